@@ -0,0 +1,21 @@
+package io.github.speedbridgemc.config;
+
+/**
+ * Defines how a {@link Config} handler implementation handles concurrent access.
+ */
+public enum ConcurrencyMode {
+    /**
+     * No special handling.<br>
+     * The handler implementation is <em>not</em> thread-safe, and loads the configuration lazily on the first
+     * {@code get} call.
+     */
+    NONE,
+    /**
+     * The current configuration is published through a single {@code volatile} snapshot reference.<p>
+     * {@code get} becomes a single volatile read - it never blocks, never loads and never reloads. To make this
+     * possible, the configuration is loaded <em>eagerly</em>, when the handler implementation is constructed.<p>
+     * Methods that change the configuration ({@code load}, {@code set}, {@code reset}, etc.) are serialized,
+     * and swap the snapshot atomically once they're done.
+     */
+    ATOMIC
+}
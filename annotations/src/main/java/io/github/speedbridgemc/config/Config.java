@@ -48,4 +48,10 @@ public @interface Config {
      * @return nullable annotation class name
      */
     @NotNull @JavaClass String @NotNull [] nullableAnnotation() default { };
+
+    /**
+     * How the handler implementation should handle concurrent access.
+     * @return concurrency mode
+     */
+    @NotNull ConcurrencyMode concurrency() default ConcurrencyMode.NONE;
 }
@@ -0,0 +1,24 @@
+package io.github.speedbridgemc.config.serialize;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Stores a {@code Map<String, V>} field in a directory next to the config file, with one file per entry, instead of
+ * in the config file itself.<p>
+ * When the config is loaded, the field is set to a {@code DirectoryMap}, which only reads entries when they're first
+ * accessed and keeps a bounded number of them in memory. Saving the config only writes entries that were
+ * {@code put} since the last save, and deletes removed ones.<p>
+ * Only applies to fields of the config class itself - ignored on fields of nested classes.
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.SOURCE)
+public @interface DirectoryBacked {
+    /**
+     * The maximum number of unchanged entries to keep in memory. Defaults to 1024.
+     * @return cache size
+     */
+    int cacheSize() default 1024;
+}
@@ -6,6 +6,7 @@ import com.google.common.collect.Multimap;
 import com.google.common.collect.MultimapBuilder;
 import com.squareup.javapoet.*;
 import io.github.speedbridgemc.config.Component;
+import io.github.speedbridgemc.config.ConcurrencyMode;
 import io.github.speedbridgemc.config.Config;
 import io.github.speedbridgemc.config.LogLevel;
 import io.github.speedbridgemc.config.processor.api.ComponentContext;
@@ -218,6 +219,9 @@ public final class ConfigProcessor extends AbstractProcessor {
             }
             if (!handlerInterfacePackage.equals(handlerName.packageName()))
                 classBuilder.addModifiers(Modifier.PUBLIC);
+            ConcurrencyMode concurrency = config.concurrency();
+            boolean atomic = concurrency == ConcurrencyMode.ATOMIC;
+            MethodSpec.Builder constructorBuilder = MethodSpec.constructorBuilder().addModifiers(Modifier.PUBLIC);
             classBuilder
                     .addAnnotation(AnnotationSpec.builder(TypeUtils.getGeneratedAnnotation(processingEnv))
                             .addMember("value", "$S", getClass().getCanonicalName())
@@ -225,12 +229,25 @@ public final class ConfigProcessor extends AbstractProcessor {
                             .addMember("comments", "$S", "Generated by Speedbridge Config Processor v" + version)
                             .build())
                     .addModifiers(Modifier.FINAL)
-                    .addSuperinterface(handlerInterfaceTypeName)
-                    .addMethod(MethodSpec.constructorBuilder().addModifiers(Modifier.PUBLIC).build());
+                    .addSuperinterface(handlerInterfaceTypeName);
             FieldSpec.Builder configFieldBuilder = FieldSpec.builder(configType, "config", Modifier.PRIVATE);
             if (nullableAnnotation != null)
                 configFieldBuilder.addAnnotation(nullableAnnotation);
             classBuilder.addField(configFieldBuilder.build());
+            MethodSpec.Builder publishMethodBuilder = null;
+            CodeBlock.Builder postPublishBuilder = null;
+            if (atomic) {
+                // get() only ever reads this field, everything that changes the config publishes to it when done
+                FieldSpec.Builder snapshotFieldBuilder = FieldSpec.builder(configType, "snapshot", Modifier.PRIVATE, Modifier.VOLATILE);
+                if (nullableAnnotation != null)
+                    snapshotFieldBuilder.addAnnotation(nullableAnnotation);
+                classBuilder.addField(snapshotFieldBuilder.build());
+                publishMethodBuilder = MethodSpec.methodBuilder("publish")
+                        .addModifiers(Modifier.PRIVATE)
+                        .addStatement("$T snapshot = config", configType);
+                postPublishBuilder = CodeBlock.builder();
+                constructorBuilder.addStatement("load()");
+            }
             MethodSpec.Builder getMethodBuilder = MethodSpec.methodBuilder("get")
                     .addAnnotation(Override.class)
                     .addModifiers(Modifier.PUBLIC)
@@ -247,11 +264,15 @@ public final class ConfigProcessor extends AbstractProcessor {
                         .addModifiers(Modifier.PUBLIC)
                         .addParameter(configParamBuilder.build())
                         .addStatement("this.config = config");
+                if (atomic)
+                    setMethodBuilder.addModifiers(Modifier.SYNCHRONIZED).addStatement("publish()");
             }
             MethodSpec.Builder resetMethodBuilder = MethodSpec.methodBuilder("reset")
                     .addAnnotation(Override.class)
                     .addModifiers(Modifier.PUBLIC)
                     .addStatement("config = new $T()", configType);
+            if (atomic)
+                resetMethodBuilder.addModifiers(Modifier.SYNCHRONIZED).addStatement("publish()");
             MethodSpec.Builder loadMethodBuilder = MethodSpec.methodBuilder("load")
                     .addAnnotation(Override.class)
                     .addModifiers(Modifier.PUBLIC);
@@ -262,57 +283,67 @@ public final class ConfigProcessor extends AbstractProcessor {
                     .addModifiers(Modifier.PUBLIC);
             if (nonNullAnnotation != null)
                 saveMethodBuilder.addAnnotation(nonNullAnnotation);
+            if (atomic) {
+                loadMethodBuilder.addModifiers(Modifier.SYNCHRONIZED);
+                saveMethodBuilder.addModifiers(Modifier.SYNCHRONIZED);
+            }
             CodeBlock.Builder postLoadBuilder = CodeBlock.builder(), postSaveBuilder = CodeBlock.builder();
 
             ImmutableList<@NotNull VariableElement> fields = ImmutableList.copyOf(TypeUtils.getFieldsToProcess(typeElement));
 
             Component[] components = config.components();
+            // parsed up front, so components can see each other's parameters
+            ArrayList<Multimap<String, String>> paramsByIndex = new ArrayList<>(components.length);
+            HashMap<String, Multimap<String, String>> componentParams = new HashMap<>();
             for (Component component : components) {
+                Multimap<String, String> params = parseParams(component.params());
+                paramsByIndex.add(params);
+                componentParams.putIfAbsent(component.value(), params);
+            }
+            for (int i = 0; i < components.length; i++) {
+                Component component = components[i];
                 ComponentProvider provider = componentProviders.get(component.value());
                 if (provider == null) {
                     messager.printMessage(Diagnostic.Kind.ERROR,
                             "@Config annotation specifies @Component with unknown ID \"" + component.value() + "\"", typeElement);
                     continue;
                 }
-                String[] paramsIn = component.params();
-                Multimap<String, String> params = MultimapBuilder.hashKeys().arrayListValues().build();
-                for (String paramIn : paramsIn) {
-                    ArrayList<String> values = new ArrayList<>();
-                    if (paramIn.contains("=")) {
-                        String[] kv = paramIn.split("=");
-                        paramIn = kv[0];
-                        String valueIn = kv[1];
-                        if (valueIn.contains(","))
-                            Collections.addAll(values, valueIn.split(","));
-                        else
-                            values.add(valueIn);
-                    }
-                    params.putAll(paramIn, values);
-                }
                 ComponentContext ctx = new ComponentContext(configType, handlerName, handlerInterfaceTypeName, handlerInterfaceTypeElement,
                         handlerInterfaceMethods, nonNullAnnotation, nullableAnnotation,
-                        params, getMethodBuilder, resetMethodBuilder, loadMethodBuilder, saveMethodBuilder, postLoadBuilder, postSaveBuilder, setMethodBuilder);
+                        paramsByIndex.get(i), componentParams, concurrency, getMethodBuilder, resetMethodBuilder, loadMethodBuilder, saveMethodBuilder,
+                        postLoadBuilder, postSaveBuilder, setMethodBuilder, publishMethodBuilder, postPublishBuilder);
                 provider.process(name, typeElement, fields, ctx, classBuilder);
             }
 
             if (gotPostLoad)
                 loadMethodBuilder.addStatement("config = postLoad(config)");
+            if (atomic)
+                loadMethodBuilder.addStatement("publish()");
             loadMethodBuilder.addCode(postLoadBuilder.build());
             if (gotPostSave)
                 saveMethodBuilder.addStatement("postSave(config)");
             saveMethodBuilder.addCode(postSaveBuilder.build());
 
-            classBuilder.addMethod(getMethodBuilder.addCode(
-                    CodeBlock.builder()
-                            .beginControlFlow("if (config == null)")
-                            .addStatement("load()")
-                            .endControlFlow()
-                            .addStatement("return config")
-                            .build())
-                    .build());
+            if (atomic) {
+                classBuilder.addMethod(getMethodBuilder.addStatement("return snapshot").build())
+                        .addMethod(publishMethodBuilder
+                                .addStatement("this.snapshot = snapshot")
+                                .addCode(postPublishBuilder.build())
+                                .build());
+            } else {
+                classBuilder.addMethod(getMethodBuilder.addCode(
+                        CodeBlock.builder()
+                                .beginControlFlow("if (config == null)")
+                                .addStatement("load()")
+                                .endControlFlow()
+                                .addStatement("return config")
+                                .build())
+                        .build());
+            }
             if (setMethodBuilder != null)
                 classBuilder.addMethod(setMethodBuilder.build());
             classBuilder
+                    .addMethod(constructorBuilder.build())
                     .addMethod(resetMethodBuilder.build())
                     .addMethod(loadMethodBuilder.build())
                     .addMethod(saveMethodBuilder.build());
@@ -332,6 +363,24 @@ public final class ConfigProcessor extends AbstractProcessor {
         return Collections.singleton(Config.class.getCanonicalName());
     }
 
+    private static @NotNull Multimap<String, String> parseParams(@NotNull String @NotNull [] paramsIn) {
+        Multimap<String, String> params = MultimapBuilder.hashKeys().arrayListValues().build();
+        for (String paramIn : paramsIn) {
+            ArrayList<String> values = new ArrayList<>();
+            if (paramIn.contains("=")) {
+                String[] kv = paramIn.split("=");
+                paramIn = kv[0];
+                String valueIn = kv[1];
+                if (valueIn.contains(","))
+                    Collections.addAll(values, valueIn.split(","));
+                else
+                    values.add(valueIn);
+            }
+            params.putAll(paramIn, values);
+        }
+        return params;
+    }
+
     private @Nullable ClassName getAnnotationName(@NotNull TypeElement typeElement, @NotNull String @NotNull [] in, @NotNull String errName) {
         if (in.length == 0)
             return null;
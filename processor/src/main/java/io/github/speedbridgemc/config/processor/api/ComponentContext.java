@@ -6,11 +6,13 @@ import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.CodeBlock;
 import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.TypeName;
+import io.github.speedbridgemc.config.ConcurrencyMode;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import javax.lang.model.element.TypeElement;
+import java.util.Map;
 
 /**
  * The component processing context.
@@ -45,6 +47,11 @@ public final class ComponentContext {
      * The parameters specified for this component.
      */
     public final @NotNull Multimap<String, String> params;
+    private final @NotNull Map<String, Multimap<String, String>> componentParams;
+    /**
+     * The handler implementation's concurrency mode.
+     */
+    public final @NotNull ConcurrencyMode concurrency;
     /**
      * The {@code get} method's builder.
      */
@@ -73,6 +80,20 @@ public final class ComponentContext {
      * The {@code set} method's builder, or {@code null} if the handler interface doesn't define a {@code set} method.
      */
     public final @Nullable MethodSpec.Builder setMethodBuilder;
+    /**
+     * The {@code publish} method's builder, or {@code null} if the handler implementation isn't in
+     * {@linkplain ConcurrencyMode#ATOMIC atomic} mode.<p>
+     * This method publishes the {@code snapshot} local variable (initially set to {@code config}) as the value
+     * {@code get} will return. Components may reassign that variable, but must not call {@code get} or any method
+     * that changes the configuration.
+     */
+    public final @Nullable MethodSpec.Builder publishMethodBuilder;
+    /**
+     * This builder's contents will be appended to the end of the {@code publish} method, after the {@code snapshot}
+     * local variable has been published. {@code null} if the handler implementation isn't in
+     * {@linkplain ConcurrencyMode#ATOMIC atomic} mode.
+     */
+    public final @Nullable CodeBlock.Builder postPublishBuilder;
 
     @ApiStatus.Internal
     public ComponentContext(@NotNull TypeName configName, @NotNull ClassName handlerName,
@@ -81,10 +102,13 @@ public final class ComponentContext {
                             @NotNull ImmutableList<MethodSignature> handlerInterfaceMethods,
                             @Nullable ClassName nonNullAnnotation, @Nullable ClassName nullableAnnotation,
                             @NotNull Multimap<String, String> params,
+                            @NotNull Map<String, Multimap<String, String>> componentParams,
+                            @NotNull ConcurrencyMode concurrency,
                             MethodSpec.@NotNull Builder getMethodBuilder, MethodSpec.@NotNull Builder resetMethodBuilder,
                             MethodSpec.@NotNull Builder loadMethodBuilder, MethodSpec.@NotNull Builder saveMethodBuilder,
                             CodeBlock.@NotNull Builder postLoadBuilder, CodeBlock.@NotNull Builder postSaveBuilder,
-                            MethodSpec.@Nullable Builder setMethodBuilder) {
+                            MethodSpec.@Nullable Builder setMethodBuilder,
+                            MethodSpec.@Nullable Builder publishMethodBuilder, CodeBlock.@Nullable Builder postPublishBuilder) {
         this.handlerName = handlerName;
         this.handlerInterfaceName = handlerInterfaceName;
         this.handlerInterfaceTypeElement = handlerInterfaceTypeElement;
@@ -93,6 +117,8 @@ public final class ComponentContext {
         this.nullableAnnotation = nullableAnnotation;
         this.configName = configName;
         this.params = params;
+        this.componentParams = componentParams;
+        this.concurrency = concurrency;
         this.getMethodBuilder = getMethodBuilder;
         this.resetMethodBuilder = resetMethodBuilder;
         this.loadMethodBuilder = loadMethodBuilder;
@@ -100,6 +126,17 @@ public final class ComponentContext {
         this.postLoadBuilder = postLoadBuilder;
         this.postSaveBuilder = postSaveBuilder;
         this.setMethodBuilder = setMethodBuilder;
+        this.publishMethodBuilder = publishMethodBuilder;
+        this.postPublishBuilder = postPublishBuilder;
+    }
+
+    /**
+     * Gets the parameters specified for another component of the same configuration.
+     * @param id component ID
+     * @return that component's parameters, or {@code null} if the configuration doesn't have that component
+     */
+    public @Nullable Multimap<String, String> getComponentParams(@NotNull String id) {
+        return componentParams.get(id);
     }
 
     /**
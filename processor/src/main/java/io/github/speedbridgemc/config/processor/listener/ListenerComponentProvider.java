@@ -3,25 +3,76 @@ package io.github.speedbridgemc.config.processor.listener;
 import com.google.auto.service.AutoService;
 import com.google.common.collect.ImmutableList;
 import com.squareup.javapoet.*;
-import io.github.speedbridgemc.config.processor.api.BaseComponentProvider;
-import io.github.speedbridgemc.config.processor.api.ComponentContext;
-import io.github.speedbridgemc.config.processor.api.ComponentProvider;
-import io.github.speedbridgemc.config.processor.api.MethodSignature;
+import io.github.speedbridgemc.config.DirectoryMap;
+import io.github.speedbridgemc.config.LazySection;
+import io.github.speedbridgemc.config.LogLevel;
+import io.github.speedbridgemc.config.SerialExecutor;
+import io.github.speedbridgemc.config.collect.*;
+import io.github.speedbridgemc.config.processor.api.*;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import javax.lang.model.element.Modifier;
-import javax.lang.model.element.TypeElement;
-import javax.lang.model.element.VariableElement;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
 import javax.tools.Diagnostic;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Consumer;
 
 @AutoService(ComponentProvider.class)
 public final class ListenerComponentProvider extends BaseComponentProvider {
+    private static final Set<TypeName> PRIMITIVE_LIST_TYPES = new HashSet<>(Arrays.asList(
+            ClassName.get(IntList.class), ClassName.get(LongList.class), ClassName.get(FloatList.class)));
+    private static final Set<TypeName> PRIMITIVE_MAP_TYPES = new HashSet<>(Arrays.asList(
+            ClassName.get(IntObjectMap.class), ClassName.get(LongObjectMap.class)));
+    private TypeMirror listTM, mapTM, arrayListTM, hashMapTM, enumSetTM, enumMapTM, lazySectionTM, directoryMapTM, stringTM;
+
     public ListenerComponentProvider() {
         super("speedbridge-config:listener");
     }
 
+    @Override
+    public void init(@NotNull ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        listTM = types.erasure(elements.getTypeElement(List.class.getCanonicalName()).asType());
+        mapTM = types.erasure(elements.getTypeElement(Map.class.getCanonicalName()).asType());
+        arrayListTM = types.erasure(elements.getTypeElement(ArrayList.class.getCanonicalName()).asType());
+        hashMapTM = types.erasure(elements.getTypeElement(HashMap.class.getCanonicalName()).asType());
+        enumSetTM = types.erasure(elements.getTypeElement(EnumSet.class.getCanonicalName()).asType());
+        enumMapTM = types.erasure(elements.getTypeElement(EnumMap.class.getCanonicalName()).asType());
+        lazySectionTM = types.erasure(elements.getTypeElement(LazySection.class.getCanonicalName()).asType());
+        directoryMapTM = types.erasure(elements.getTypeElement(DirectoryMap.class.getCanonicalName()).asType());
+        stringTM = elements.getTypeElement(String.class.getCanonicalName()).asType();
+    }
+
+    private enum Kind {
+        VALUE, NESTED, ARRAY, LIST, MAP, PRIMITIVE_LIST, PRIMITIVE_MAP, ENUM_SET, ENUM_MAP, LAZY
+    }
+
+    private static final class Context {
+        public final @NotNull TypeElement configElement;
+        public final @NotNull TypeSpec.Builder classBuilder;
+        public final @NotNull Set<String> generatedMethods = new HashSet<>();
+        public final @NotNull Map<String, Integer> fieldNames = new HashMap<>();
+        public final @NotNull Map<String, Boolean> recursiveTypes = new HashMap<>();
+        public int fieldCount;
+
+        private Context(@NotNull TypeElement configElement, TypeSpec.@NotNull Builder classBuilder) {
+            this.configElement = configElement;
+            this.classBuilder = classBuilder;
+        }
+    }
+
     @Override
     public void process(@NotNull String name, @NotNull TypeElement type, @NotNull ImmutableList<@NotNull VariableElement> fields,
                         @NotNull ComponentContext ctx, TypeSpec.@NotNull Builder classBuilder) {
@@ -41,50 +92,174 @@ public final class ListenerComponentProvider extends BaseComponentProvider {
                     "Handler interface is missing required method: void notifyChanged(" + type.getSimpleName() + ")",
                     ctx.handlerInterfaceTypeElement);
         }
-        TypeName listName = ParameterizedTypeName.get(ClassName.get(ArrayList.class), listenerName);
+        HashMap<String, Boolean> options = new HashMap<>();
+        parseOptions(ctx.params.get("options").toArray(new String[0]), options);
+        boolean gotAddFieldListener = ctx.hasMethod(MethodSignature.of(TypeName.VOID, "addFieldListener", TypeName.INT, listenerName));
+        boolean gotRemoveFieldListener = ctx.hasMethod(MethodSignature.of(TypeName.VOID, "removeFieldListener", TypeName.INT, listenerName));
+        if (gotAddFieldListener && !gotRemoveFieldListener) {
+            messager.printMessage(Diagnostic.Kind.ERROR,
+                    "Handler interface defines method addFieldListener(int, Consumer<" + type.getSimpleName()
+                            + ">) but is missing method: void removeFieldListener(int, Consumer<" + type.getSimpleName() + ">)",
+                    ctx.handlerInterfaceTypeElement);
+        }
+        if (!gotAddFieldListener && gotRemoveFieldListener) {
+            messager.printMessage(Diagnostic.Kind.ERROR,
+                    "Handler interface defines method removeFieldListener(int, Consumer<" + type.getSimpleName()
+                            + ">) but is missing method: void addFieldListener(int, Consumer<" + type.getSimpleName() + ">)",
+                    ctx.handlerInterfaceTypeElement);
+        }
+        boolean fieldListeners = gotAddFieldListener && gotRemoveFieldListener;
+        // per-field listeners need to know what changed, so they always imply diffing
+        boolean diff = fieldListeners || options.getOrDefault("diff", false);
+        // listeners are notified on the handler's executor if it supplies one
+        boolean asyncDispatch = ctx.hasMethod(MethodSignature.ofDefault(ClassName.get(Executor.class), "listenerExecutor"));
+
+        ClassName fieldsName = null;
+        // listeners on other threads get their own copy of the config, so they also need the fields class
+        if (diff || asyncDispatch)
+            fieldsName = generateFieldsClass(type, fields, ctx);
+
+        TypeName listenerArrayName = ArrayTypeName.of(listenerName);
         ParameterSpec.Builder listenerParamBuilder = ParameterSpec.builder(listenerName, "listener");
         if (ctx.nonNullAnnotation != null)
             listenerParamBuilder.addAnnotation(ctx.nonNullAnnotation);
         ParameterSpec.Builder configParamBuilder = ParameterSpec.builder(ctx.configName, "config");
         if (ctx.nonNullAnnotation != null)
             configParamBuilder.addAnnotation(ctx.nonNullAnnotation);
+        MethodSpec.Builder notifyChangedBuilder = MethodSpec.methodBuilder("notifyChanged")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(configParamBuilder.build());
+        boolean diffing = diff && fieldsName != null;
+        if (diffing || asyncDispatch) {
+            classBuilder.addField(FieldSpec.builder(Object.class, "notifyLock", Modifier.PRIVATE, Modifier.FINAL)
+                    .initializer("new $T()", Object.class)
+                    .build());
+        }
+        if (asyncDispatch) {
+            // listeners are queued while holding the lock, so every listener sees changes in the order they were made
+            classBuilder.addField(FieldSpec.builder(SerialExecutor.class, "listenerQueue", Modifier.PRIVATE, Modifier.FINAL)
+                    .initializer("new $T()", SerialExecutor.class)
+                    .build());
+            notifyChangedBuilder.beginControlFlow("synchronized (notifyLock)");
+        }
+        if (diffing) {
+            FieldSpec.Builder lastNotifiedBuilder = FieldSpec.builder(ctx.configName, "lastNotified", Modifier.PRIVATE);
+            if (ctx.nullableAnnotation != null)
+                lastNotifiedBuilder.addAnnotation(ctx.nullableAnnotation);
+            classBuilder.addField(lastNotifiedBuilder.build());
+            // compare against a deep copy, since listeners are usually notified with the same (mutated) instance
+            notifyChangedBuilder.addStatement("$1T changed = new $1T($2T.COUNT)", BitSet.class, fieldsName);
+            if (!asyncDispatch)
+                notifyChangedBuilder.beginControlFlow("synchronized (notifyLock)");
+            notifyChangedBuilder
+                    .beginControlFlow("if (!$T.diff(lastNotified, config, changed))", fieldsName)
+                    .addStatement("return")
+                    .endControlFlow()
+                    .addStatement("lastNotified = $T.copy(config)", fieldsName);
+            if (!asyncDispatch)
+                notifyChangedBuilder.endControlFlow();
+        }
+        String dispatchedName = "config";
+        if (asyncDispatch && fieldsName != null) {
+            // the caller keeps mutating its instance, so listeners on other threads get a private copy
+            dispatchedName = "snapshot";
+            notifyChangedBuilder.addStatement("$T snapshot = $T.copy(config)", ctx.configName, fieldsName);
+        }
+        // listener arrays are never modified once published, so dispatch only needs to read the field once
         classBuilder
-                .addField(FieldSpec.builder(listName, "listeners")
-                        .addModifiers(Modifier.PRIVATE, Modifier.FINAL)
-                        .initializer("new $T()", listName)
+                .addField(FieldSpec.builder(listenerArrayName, "NO_LISTENERS")
+                        .addAnnotation(AnnotationSpec.builder(SuppressWarnings.class)
+                                .addMember("value", "{$S, $S}", "unchecked", "rawtypes")
+                                .build())
+                        .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                        .initializer("new $T[0]", Consumer.class)
                         .build())
-                .addField(FieldSpec.builder(listName, "listenersToAdd")
+                .addField(FieldSpec.builder(ParameterizedTypeName.get(ClassName.get(AtomicReference.class), listenerArrayName), "listeners")
                         .addModifiers(Modifier.PRIVATE, Modifier.FINAL)
-                        .initializer("new $T()", listName)
-                        .build())
-                .addField(FieldSpec.builder(listName, "listenersToRemove")
-                        .addModifiers(Modifier.PRIVATE, Modifier.FINAL)
-                        .initializer("new $T()", listName)
+                        .initializer("new $T<>(NO_LISTENERS)", AtomicReference.class)
                         .build())
                 .addMethod(MethodSpec.methodBuilder("addListener")
                         .addAnnotation(Override.class)
                         .addModifiers(Modifier.PUBLIC)
                         .addParameter(listenerParamBuilder.build())
-                        .addStatement("listenersToAdd.add(listener)")
+                        .addStatement("$T oldListeners", listenerArrayName)
+                        .beginControlFlow("do")
+                        .addStatement("oldListeners = listeners.get()")
+                        .endControlFlow("while (!listeners.compareAndSet(oldListeners, withListener(oldListeners, listener)))")
                         .build())
                 .addMethod(MethodSpec.methodBuilder("removeListener")
                         .addAnnotation(Override.class)
                         .addModifiers(Modifier.PUBLIC)
                         .addParameter(listenerParamBuilder.build())
-                        .addStatement("listenersToRemove.add(listener)")
+                        .addStatement("$T oldListeners, newListeners", listenerArrayName)
+                        .beginControlFlow("do")
+                        .addStatement("oldListeners = listeners.get()")
+                        .addStatement("newListeners = withoutListener(oldListeners, listener)")
+                        .beginControlFlow("if (newListeners == oldListeners)")
+                        .addStatement("return")
+                        .endControlFlow()
+                        .endControlFlow("while (!listeners.compareAndSet(oldListeners, newListeners))")
                         .build())
-                .addMethod(MethodSpec.methodBuilder("notifyChanged")
-                        .addAnnotation(Override.class)
-                        .addModifiers(Modifier.PUBLIC)
-                        .addParameter(configParamBuilder.build())
-                        .addStatement("listeners.addAll(listenersToAdd)")
-                        .addStatement("listeners.removeAll(listenersToRemove)")
-                        .addStatement("listenersToAdd.clear()")
-                        .addStatement("listenersToRemove.clear()")
-                        .beginControlFlow("for ($T listener : listeners)", listenerName)
-                        .addStatement("listener.accept(config)")
+                .addMethod(MethodSpec.methodBuilder("withListener")
+                        .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                        .returns(listenerArrayName)
+                        .addParameter(listenerArrayName, "listeners")
+                        .addParameter(listenerName, "listener")
+                        .addStatement("$T newListeners = $T.copyOf(listeners, listeners.length + 1)", listenerArrayName, Arrays.class)
+                        .addStatement("newListeners[listeners.length] = listener")
+                        .addStatement("return newListeners")
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("withoutListener")
+                        .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                        .returns(listenerArrayName)
+                        .addParameter(listenerArrayName, "listeners")
+                        .addParameter(listenerName, "listener")
+                        .beginControlFlow("for (int i = 0; i < listeners.length; i++)")
+                        .beginControlFlow("if (listeners[i].equals(listener))")
+                        .addStatement("$T newListeners = $T.copyOf(listeners, listeners.length - 1)", listenerArrayName, Arrays.class)
+                        .addStatement("$T.arraycopy(listeners, i + 1, newListeners, i, listeners.length - i - 1)", System.class)
+                        .addStatement("return newListeners")
+                        .endControlFlow()
                         .endControlFlow()
+                        .addStatement("return listeners")
                         .build());
+        MethodSpec.Builder dispatchMethodBuilder = MethodSpec.methodBuilder("dispatchChange")
+                .addModifiers(Modifier.PRIVATE)
+                .addParameter(listenerName, "listener")
+                .addParameter(ctx.configName, "config");
+        if (asyncDispatch) {
+            dispatchMethodBuilder
+                    .beginControlFlow("try")
+                    .beginControlFlow("listenerQueue.execute(listenerExecutor(), () ->")
+                    .beginControlFlow("try")
+                    .addStatement("listener.accept(config)")
+                    .nextControlFlow("catch ($T e)", RuntimeException.class)
+                    .addStatement("log($T.ERROR, \"Config listener threw an exception!\", e)", LogLevel.class)
+                    .endControlFlow()
+                    .addCode("$<});\n")
+                    .nextControlFlow("catch ($T e)", RejectedExecutionException.class)
+                    .addStatement("log($T.ERROR, \"Failed to dispatch config change to listener!\", e)", LogLevel.class)
+                    .endControlFlow();
+        } else {
+            // one broken listener shouldn't keep the rest from being notified
+            dispatchMethodBuilder
+                    .beginControlFlow("try")
+                    .addStatement("listener.accept(config)")
+                    .nextControlFlow("catch ($T e)", RuntimeException.class)
+                    .addStatement("log($T.ERROR, \"Config listener threw an exception!\", e)", LogLevel.class)
+                    .endControlFlow();
+        }
+        classBuilder.addMethod(dispatchMethodBuilder.build());
+        notifyChangedBuilder
+                .beginControlFlow("for ($T listener : listeners.get())", listenerName)
+                .addStatement("dispatchChange(listener, $L)", dispatchedName)
+                .endControlFlow();
+        if (fieldListeners && fieldsName != null)
+            generateFieldListeners(classBuilder, fieldsName, listenerName, listenerParamBuilder.build(), notifyChangedBuilder, dispatchedName);
+        if (asyncDispatch)
+            notifyChangedBuilder.endControlFlow();
+        classBuilder.addMethod(notifyChangedBuilder.build());
         CodeBlock loadBlock = CodeBlock.builder()
                 .addStatement("notifyChanged(config)")
                 .build();
@@ -93,4 +268,599 @@ public final class ListenerComponentProvider extends BaseComponentProvider {
             ctx.setMethodBuilder.addCode(loadBlock);
         ctx.postSaveBuilder.add(loadBlock);
     }
+
+    private void generateFieldListeners(TypeSpec.@NotNull Builder classBuilder, @NotNull ClassName fieldsName,
+                                        @NotNull TypeName listenerName, @NotNull ParameterSpec listenerParam,
+                                        MethodSpec.@NotNull Builder notifyChangedBuilder, @NotNull String dispatchedName) {
+        TypeName listenerArrayName = ArrayTypeName.of(listenerName);
+        ParameterSpec fieldParam = ParameterSpec.builder(TypeName.INT, "field").build();
+        CodeBlock checkFieldBlock = CodeBlock.builder()
+                .beginControlFlow("if (field < 0 || field >= $T.COUNT)", fieldsName)
+                .addStatement("throw new $T(\"Unknown field \" + field)", IllegalArgumentException.class)
+                .endControlFlow()
+                .build();
+        classBuilder
+                // indexed by field constant, stays null until a listener is added for that field
+                .addField(FieldSpec.builder(ParameterizedTypeName.get(ClassName.get(AtomicReferenceArray.class), listenerArrayName), "fieldListeners")
+                        .addModifiers(Modifier.PRIVATE, Modifier.FINAL)
+                        .initializer("new $T<>($T.COUNT)", AtomicReferenceArray.class, fieldsName)
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("addFieldListener")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .addParameter(fieldParam)
+                        .addParameter(listenerParam)
+                        .addCode(checkFieldBlock)
+                        .addStatement("$T oldListeners", listenerArrayName)
+                        .beginControlFlow("do")
+                        .addStatement("oldListeners = fieldListeners.get(field)")
+                        .endControlFlow("while (!fieldListeners.compareAndSet(field, oldListeners, "
+                                + "withListener(oldListeners == null ? NO_LISTENERS : oldListeners, listener)))")
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("removeFieldListener")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .addParameter(fieldParam)
+                        .addParameter(listenerParam)
+                        .addCode(checkFieldBlock)
+                        .addStatement("$T oldListeners, newListeners", listenerArrayName)
+                        .beginControlFlow("do")
+                        .addStatement("oldListeners = fieldListeners.get(field)")
+                        .beginControlFlow("if (oldListeners == null)")
+                        .addStatement("return")
+                        .endControlFlow()
+                        .addStatement("newListeners = withoutListener(oldListeners, listener)")
+                        .beginControlFlow("if (newListeners == oldListeners)")
+                        .addStatement("return")
+                        .endControlFlow()
+                        .endControlFlow("while (!fieldListeners.compareAndSet(field, oldListeners, newListeners))")
+                        .build());
+        notifyChangedBuilder
+                .beginControlFlow("for (int field = changed.nextSetBit(0); field >= 0; field = changed.nextSetBit(field + 1))")
+                .addStatement("$T listeners = fieldListeners.get(field)", listenerArrayName)
+                .beginControlFlow("if (listeners == null)")
+                .addStatement("continue")
+                .endControlFlow()
+                .beginControlFlow("for ($T listener : listeners)", listenerName)
+                .addStatement("dispatchChange(listener, $L)", dispatchedName)
+                .endControlFlow()
+                .endControlFlow();
+    }
+
+    private @Nullable ClassName generateFieldsClass(@NotNull TypeElement type, @NotNull List<@NotNull VariableElement> fields,
+                                                    @NotNull ComponentContext ctx) {
+        String configPackage = elements.getPackageOf(type).getQualifiedName().toString();
+        ClassName fieldsName;
+        String fieldsNameIn = ParamUtils.allOrNothing(ctx.params, "class_name");
+        if (fieldsNameIn == null)
+            fieldsName = ClassName.get(configPackage, type.getSimpleName() + "Fields");
+        else if (fieldsNameIn.contains(".")) {
+            int splitIndex = fieldsNameIn.lastIndexOf('.');
+            fieldsName = ClassName.get(fieldsNameIn.substring(0, splitIndex), fieldsNameIn.substring(splitIndex + 1));
+        } else
+            fieldsName = ClassName.get(configPackage, fieldsNameIn);
+
+        TypeSpec.Builder fieldsBuilder = TypeSpec.classBuilder(fieldsName)
+                .addAnnotation(AnnotationSpec.builder(TypeUtils.getGeneratedAnnotation(processingEnv))
+                        .addMember("value", "$S", getClass().getCanonicalName())
+                        .addMember("date", "$S", OffsetDateTime.now().format(DateTimeFormatter.ISO_OFFSET_DATE_TIME))
+                        .build())
+                .addJavadoc("Field constants for {@link $T}.<p>\n", type)
+                .addJavadoc("Fields of nested classes get their own constants, which directly follow their parent field's constant.\n")
+                .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+                .addMethod(MethodSpec.constructorBuilder()
+                        .addModifiers(Modifier.PRIVATE)
+                        .build());
+        Context fCtx = new Context(type, fieldsBuilder);
+        if (!addFieldConstants(fCtx, type, fields, "", "")) {
+            messager.printMessage(Diagnostic.Kind.ERROR,
+                    "Listener: Failed to generate field constants due to conflicting names", type);
+            return null;
+        }
+        fieldsBuilder.addField(FieldSpec.builder(TypeName.INT, "COUNT", Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+                .addJavadoc("Number of field constants.\n")
+                .initializer("$L", fCtx.fieldCount)
+                .build());
+
+        TypeName configName = TypeName.get(type.asType());
+        ParameterSpec.Builder aParamBuilder = ParameterSpec.builder(configName, "a");
+        ParameterSpec.Builder bParamBuilder = ParameterSpec.builder(configName, "b");
+        ParameterSpec.Builder changedParamBuilder = ParameterSpec.builder(BitSet.class, "changed");
+        if (ctx.nullableAnnotation != null) {
+            aParamBuilder.addAnnotation(ctx.nullableAnnotation);
+            bParamBuilder.addAnnotation(ctx.nullableAnnotation);
+        }
+        if (ctx.nonNullAnnotation != null)
+            changedParamBuilder.addAnnotation(ctx.nonNullAnnotation);
+        fieldsBuilder
+                .addMethod(MethodSpec.methodBuilder("diff")
+                        .addJavadoc("Compares two configs field by field.\n")
+                        .addJavadoc("@param a old config\n")
+                        .addJavadoc("@param b new config\n")
+                        .addJavadoc("@param changed bit set to set the constants of changed fields in\n")
+                        .addJavadoc("@return {@code true} if any field changed, {@code false} otherwise\n")
+                        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                        .returns(TypeName.BOOLEAN)
+                        .addParameter(aParamBuilder.build())
+                        .addParameter(bParamBuilder.build())
+                        .addParameter(changedParamBuilder.build())
+                        .addStatement("return $L(a, b, changed, 0)", generateDiffMethod(fCtx, type))
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("copy")
+                        .addJavadoc("Creates a deep copy of a config.\n")
+                        .addJavadoc("@param src config to copy\n")
+                        .addJavadoc("@return copy of config\n")
+                        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                        .returns(configName)
+                        .addParameter(configName, "src")
+                        .addStatement("return $L", generateCopy(fCtx, type.asType(), "src"))
+                        .build());
+        try {
+            JavaFile.builder(fieldsName.packageName(), fieldsBuilder.build())
+                    .build()
+                    .writeTo(processingEnv.getFiler());
+        } catch (IOException e) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "Listener: Failed to write fields class", type);
+            e.printStackTrace();
+        }
+        return fieldsName;
+    }
+
+    private boolean addFieldConstants(@NotNull Context fCtx, @NotNull TypeElement type, @NotNull List<@NotNull VariableElement> fields,
+                                      @NotNull String constantPrefix, @NotNull String pathPrefix) {
+        boolean success = true;
+        for (VariableElement field : fields) {
+            String fieldName = field.getSimpleName().toString();
+            String constantName = constantPrefix + StringUtils.camelCaseToSnakeCase(fieldName).toUpperCase(Locale.ROOT);
+            String path = pathPrefix + fieldName;
+            if (fCtx.fieldNames.putIfAbsent(constantName, fCtx.fieldCount) != null) {
+                messager.printMessage(Diagnostic.Kind.ERROR,
+                        "Listener: Field constant name " + constantName + " for field " + path + " is already in use", field);
+                success = false;
+            }
+            fCtx.classBuilder.addField(FieldSpec.builder(TypeName.INT, constantName, Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+                    .addJavadoc("{@code $L}\n", path)
+                    .initializer("$L", fCtx.fieldCount++)
+                    .build());
+            TypeMirror fieldType = field.asType();
+            if (isExpanded(fCtx, fieldType)) {
+                TypeElement fieldTypeElement = (TypeElement) types.asElement(fieldType);
+                success &= addFieldConstants(fCtx, fieldTypeElement, TypeUtils.getFieldsToProcess(fieldTypeElement),
+                        constantName + "_", path + ".");
+            }
+        }
+        return success;
+    }
+
+    private @NotNull Kind getKind(@NotNull TypeMirror type) {
+        if (type.getKind() == TypeKind.ARRAY)
+            return Kind.ARRAY;
+        if (type.getKind() != TypeKind.DECLARED)
+            return Kind.VALUE;
+        TypeElement typeElement = (TypeElement) ((DeclaredType) type).asElement();
+        if (typeElement.getKind() == ElementKind.ENUM)
+            return Kind.VALUE;
+        TypeMirror erasure = types.erasure(type);
+        int typeArgCount = ((DeclaredType) type).getTypeArguments().size();
+        TypeName erasureName = TypeName.get(erasure);
+        if (PRIMITIVE_LIST_TYPES.contains(erasureName))
+            return Kind.PRIMITIVE_LIST;
+        if (PRIMITIVE_MAP_TYPES.contains(erasureName))
+            return typeArgCount == 1 ? Kind.PRIMITIVE_MAP : Kind.VALUE;
+        if (types.isSameType(erasure, lazySectionTM))
+            return typeArgCount == 1 ? Kind.LAZY : Kind.VALUE;
+        // checked before the generic collection kinds, since those can't create enum collections
+        if (types.isSameType(erasure, enumSetTM))
+            return typeArgCount == 1 ? Kind.ENUM_SET : Kind.VALUE;
+        if (types.isSameType(erasure, enumMapTM))
+            return typeArgCount == 2 ? Kind.ENUM_MAP : Kind.VALUE;
+        // collections we can't create a copy of are compared as-is
+        if (types.isAssignable(erasure, listTM))
+            return typeArgCount == 1 && getCollectionType(type, arrayListTM) != null ? Kind.LIST : Kind.VALUE;
+        if (types.isAssignable(erasure, mapTM))
+            return typeArgCount == 2 && getCollectionType(type, hashMapTM) != null ? Kind.MAP : Kind.VALUE;
+        String packageName = elements.getPackageOf(typeElement).getQualifiedName().toString();
+        if (typeElement.getKind() == ElementKind.CLASS && TypeUtils.hasDefaultConstructor(typeElement)
+                && !packageName.startsWith("java.") && !packageName.startsWith("javax."))
+            return Kind.NESTED;
+        return Kind.VALUE;
+    }
+
+    private static @NotNull List<? extends TypeMirror> getTypeArguments(@NotNull TypeMirror type) {
+        return ((DeclaredType) type).getTypeArguments();
+    }
+
+    private @Nullable ClassName getCollectionType(@NotNull TypeMirror type, @NotNull TypeMirror defaultType) {
+        TypeElement typeElement = (TypeElement) types.asElement(type);
+        if (types.isAssignable(defaultType, types.erasure(type)))
+            return ClassName.get((TypeElement) types.asElement(defaultType));
+        if (typeElement.getKind() == ElementKind.CLASS && !typeElement.getModifiers().contains(Modifier.ABSTRACT)
+                && TypeUtils.hasDefaultConstructor(typeElement))
+            return ClassName.get(typeElement);
+        return null;
+    }
+
+    private boolean isExpanded(@NotNull Context fCtx, @NotNull TypeMirror type) {
+        // nested classes get their own field constants, unless they (indirectly) contain themselves
+        if (getKind(type) != Kind.NESTED)
+            return false;
+        TypeElement typeElement = (TypeElement) types.asElement(type);
+        return !fCtx.recursiveTypes.computeIfAbsent(typeElement.getQualifiedName().toString(),
+                name -> containsType(typeElement, typeElement, new HashSet<>()));
+    }
+
+    private boolean containsType(@NotNull TypeElement type, @NotNull TypeElement target, @NotNull Set<String> visited) {
+        for (VariableElement field : TypeUtils.getFieldsToProcess(type)) {
+            TypeMirror fieldType = field.asType();
+            if (getKind(fieldType) != Kind.NESTED)
+                continue;
+            TypeElement fieldTypeElement = (TypeElement) types.asElement(fieldType);
+            if (fieldTypeElement.equals(target))
+                return true;
+            if (visited.add(fieldTypeElement.getQualifiedName().toString()) && containsType(fieldTypeElement, target, visited))
+                return true;
+        }
+        return false;
+    }
+
+    private int getFieldCount(@NotNull Context fCtx, @NotNull TypeElement type) {
+        int count = 0;
+        for (VariableElement field : TypeUtils.getFieldsToProcess(type)) {
+            count++;
+            if (isExpanded(fCtx, field.asType()))
+                count += getFieldCount(fCtx, (TypeElement) types.asElement(field.asType()));
+        }
+        return count;
+    }
+
+    private @NotNull String generateDiffMethod(@NotNull Context fCtx, @NotNull TypeElement type) {
+        String methodName = "diff" + StringUtils.titleCase(TypeUtils.getSimpleIdSafeName(type.asType()));
+        if (!fCtx.generatedMethods.add(methodName))
+            return methodName;
+        TypeName typeName = TypeName.get(type.asType());
+        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(methodName)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .returns(TypeName.BOOLEAN)
+                .addParameter(typeName, "a")
+                .addParameter(typeName, "b")
+                .addParameter(BitSet.class, "changed")
+                .addParameter(TypeName.INT, "base")
+                .beginControlFlow("if (a == b)")
+                .addStatement("return false")
+                .endControlFlow()
+                .beginControlFlow("if (a == null || b == null)")
+                .addStatement("changed.set(base, base + $L)", getFieldCount(fCtx, type))
+                .addStatement("return true")
+                .endControlFlow()
+                .addStatement("boolean result = false");
+        int index = 0;
+        for (VariableElement field : TypeUtils.getFieldsToProcess(type)) {
+            String fieldName = field.getSimpleName().toString();
+            TypeMirror fieldType = field.asType();
+            int fieldIndex = index++;
+            if (isExpanded(fCtx, fieldType)) {
+                // a nested field counts as changed if any of its fields changed
+                TypeElement fieldTypeElement = (TypeElement) types.asElement(fieldType);
+                methodBuilder.beginControlFlow("if ($L(a.$L, b.$L, changed, base + $L))",
+                        generateDiffMethod(fCtx, fieldTypeElement), fieldName, fieldName, index);
+                index += getFieldCount(fCtx, fieldTypeElement);
+            } else
+                methodBuilder.beginControlFlow("if (!($L))", generateEquals(fCtx, fieldType, "a." + fieldName, "b." + fieldName));
+            methodBuilder.addStatement("changed.set(base + $L)", fieldIndex)
+                    .addStatement("result = true")
+                    .endControlFlow();
+        }
+        fCtx.classBuilder.addMethod(methodBuilder.addStatement("return result").build());
+        return methodName;
+    }
+
+    private boolean isPlain(@NotNull TypeMirror type) {
+        // types whose equals() already compares deeply
+        switch (getKind(type)) {
+        case VALUE:
+        case PRIMITIVE_LIST:
+        case ENUM_SET:
+            return true;
+        case PRIMITIVE_MAP:
+            return isPlain(getTypeArguments(type).get(0));
+        case LIST:
+            return isPlain(getTypeArguments(type).get(0));
+        case MAP:
+            List<? extends TypeMirror> typeArgs = getTypeArguments(type);
+            return isPlain(typeArgs.get(0)) && isPlain(typeArgs.get(1));
+        case ENUM_MAP:
+            return isPlain(getTypeArguments(type).get(1));
+        default:
+            return false;
+        }
+    }
+
+    private boolean mayBeDirectoryMap(@NotNull TypeMirror type) {
+        // @DirectoryBacked fields are declared as plain maps, and only become DirectoryMaps once loaded
+        return getKind(type) == Kind.MAP && types.isSameType(getTypeArguments(type).get(0), stringTM)
+                && types.isAssignable(directoryMapTM, types.erasure(type));
+    }
+
+    private boolean isValueArray(@NotNull TypeMirror type) {
+        while (type.getKind() == TypeKind.ARRAY)
+            type = ((ArrayType) type).getComponentType();
+        return getKind(type) == Kind.VALUE;
+    }
+
+    private @NotNull CodeBlock generateEquals(@NotNull Context fCtx, @NotNull TypeMirror type, @NotNull String a, @NotNull String b) {
+        switch (type.getKind()) {
+        case FLOAT:
+            return CodeBlock.of("$T.compare($L, $L) == 0", Float.class, a, b);
+        case DOUBLE:
+            return CodeBlock.of("$T.compare($L, $L) == 0", Double.class, a, b);
+        case ARRAY:
+            if (isValueArray(type)) {
+                if (((ArrayType) type).getComponentType().getKind() == TypeKind.ARRAY)
+                    return CodeBlock.of("$T.deepEquals($L, $L)", Arrays.class, a, b);
+                return CodeBlock.of("$T.equals($L, $L)", Arrays.class, a, b);
+            }
+            break;
+        default:
+            if (type.getKind().isPrimitive())
+                return CodeBlock.of("$L == $L", a, b);
+            if (isPlain(type) && !mayBeDirectoryMap(type))
+                return CodeBlock.of("$T.equals($L, $L)", Objects.class, a, b);
+            break;
+        }
+        return CodeBlock.of("$L($L, $L)", generateEqualsMethod(fCtx, type), a, b);
+    }
+
+    private @NotNull String generateEqualsMethod(@NotNull Context fCtx, @NotNull TypeMirror type) {
+        String methodName = "equals" + StringUtils.titleCase(TypeUtils.getSimpleIdSafeName(type));
+        if (!fCtx.generatedMethods.add(methodName))
+            return methodName;
+        TypeName typeName = TypeName.get(type);
+        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(methodName)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .returns(TypeName.BOOLEAN)
+                .addParameter(typeName, "a")
+                .addParameter(typeName, "b")
+                .beginControlFlow("if (a == b)")
+                .addStatement("return true")
+                .endControlFlow()
+                .beginControlFlow("if (a == null || b == null)")
+                .addStatement("return false")
+                .endControlFlow();
+        switch (getKind(type)) {
+        case NESTED:
+            CodeBlock.Builder equalsBuilder = CodeBlock.builder();
+            for (VariableElement field : TypeUtils.getFieldsToProcess((TypeElement) types.asElement(type))) {
+                String fieldName = field.getSimpleName().toString();
+                if (!equalsBuilder.isEmpty())
+                    equalsBuilder.add("\n&& ");
+                equalsBuilder.add(generateEquals(fCtx, field.asType(), "a." + fieldName, "b." + fieldName));
+            }
+            if (equalsBuilder.isEmpty())
+                equalsBuilder.add("true");
+            methodBuilder.addStatement("return $L", equalsBuilder.build());
+            break;
+        case ARRAY:
+            methodBuilder
+                    .beginControlFlow("if (a.length != b.length)")
+                    .addStatement("return false")
+                    .endControlFlow()
+                    .beginControlFlow("for (int i = 0; i < a.length; i++)")
+                    .beginControlFlow("if (!($L))", generateEquals(fCtx, ((ArrayType) type).getComponentType(), "a[i]", "b[i]"))
+                    .addStatement("return false")
+                    .endControlFlow()
+                    .endControlFlow()
+                    .addStatement("return true");
+            break;
+        case LIST:
+            TypeMirror elementType = getTypeArguments(type).get(0);
+            TypeName iteratorType = ParameterizedTypeName.get(ClassName.get(Iterator.class), TypeName.get(elementType));
+            methodBuilder
+                    .beginControlFlow("if (a.size() != b.size())")
+                    .addStatement("return false")
+                    .endControlFlow()
+                    .addStatement("$T itA = a.iterator(), itB = b.iterator()", iteratorType)
+                    .beginControlFlow("while (itA.hasNext())")
+                    .beginControlFlow("if (!($L))", generateEquals(fCtx, elementType, "itA.next()", "itB.next()"))
+                    .addStatement("return false")
+                    .endControlFlow()
+                    .endControlFlow()
+                    .addStatement("return true");
+            break;
+        case MAP:
+        case ENUM_MAP:
+            // keys are compared using their own equals(), same as the map itself does
+            List<? extends TypeMirror> typeArgs = getTypeArguments(type);
+            TypeMirror keyType = typeArgs.get(0), valueType = typeArgs.get(1);
+            if (mayBeDirectoryMap(type)) {
+                // comparing directory maps entry by entry would read every entry, so only their puts and removals count
+                methodBuilder
+                        .beginControlFlow("if (a instanceof $1T || b instanceof $1T)", DirectoryMap.class)
+                        .addStatement("return a instanceof $1T && b instanceof $1T$W"
+                                + "&& ((($1T<?>) a).isUnchangedCopyOf(($1T<?>) b) || (($1T<?>) b).isUnchangedCopyOf(($1T<?>) a))",
+                                DirectoryMap.class)
+                        .endControlFlow();
+            }
+            methodBuilder
+                    .beginControlFlow("if (a.size() != b.size())")
+                    .addStatement("return false")
+                    .endControlFlow()
+                    .beginControlFlow("for ($T entry : a.entrySet())",
+                            ParameterizedTypeName.get(ClassName.get(Map.Entry.class), TypeName.get(keyType), TypeName.get(valueType)))
+                    .beginControlFlow("if (!b.containsKey(entry.getKey()) || !($L))",
+                            generateEquals(fCtx, valueType, "entry.getValue()", "b.get(entry.getKey())"))
+                    .addStatement("return false")
+                    .endControlFlow()
+                    .endControlFlow()
+                    .addStatement("return true");
+            break;
+        case PRIMITIVE_MAP:
+            TypeMirror primitiveValueType = getTypeArguments(type).get(0);
+            methodBuilder
+                    .beginControlFlow("if (a.size() != b.size())")
+                    .addStatement("return false")
+                    .endControlFlow()
+                    .addStatement("$T cursor = a.cursor()", getCursorType(typeName))
+                    .beginControlFlow("while (cursor.advance())")
+                    .beginControlFlow("if (!b.containsKey(cursor.key()) || !($L))",
+                            generateEquals(fCtx, primitiveValueType, "cursor.value()", "b.get(cursor.key())"))
+                    .addStatement("return false")
+                    .endControlFlow()
+                    .endControlFlow()
+                    .addStatement("return true");
+            break;
+        case LAZY:
+            // sections that weren't loaded since they were copied are unchanged, and sections that were replaced by
+            // a reload are assumed to have changed, so neither is deserialized just to be compared
+            methodBuilder
+                    .beginControlFlow("if (a.hasSameRaw(b))")
+                    .addStatement("return true")
+                    .endControlFlow()
+                    .beginControlFlow("if (!a.isLoaded() && !b.isLoaded())")
+                    .addStatement("return false")
+                    .endControlFlow()
+                    .beginControlFlow("try")
+                    .addStatement("return $L", generateEquals(fCtx, getTypeArguments(type).get(0), "a.get()", "b.get()"))
+                    .nextControlFlow("catch ($T e)", IllegalStateException.class)
+                    .addStatement("return false")
+                    .endControlFlow();
+            break;
+        default:
+            methodBuilder.addStatement("return a.equals(b)");
+            break;
+        }
+        fCtx.classBuilder.addMethod(methodBuilder.build());
+        return methodName;
+    }
+
+    private @NotNull CodeBlock generateCopy(@NotNull Context fCtx, @NotNull TypeMirror type, @NotNull String src) {
+        switch (getKind(type)) {
+        case ARRAY:
+            if (((ArrayType) type).getComponentType().getKind() != TypeKind.ARRAY && isValueArray(type))
+                return CodeBlock.of("$1L == null ? null : $1L.clone()", src);
+            return CodeBlock.of("$L($L)", generateCopyMethod(fCtx, type), src);
+        case PRIMITIVE_LIST:
+            return CodeBlock.of("$1L == null ? null : $1L.copy()", src);
+        case ENUM_SET:
+            return CodeBlock.of("$1L == null ? null : $2T.copyOf($1L)", src, EnumSet.class);
+        case ENUM_MAP:
+            if (getKind(getTypeArguments(type).get(1)) == Kind.VALUE)
+                return CodeBlock.of("$1L == null ? null : new $2T<>($1L)", src, EnumMap.class);
+            return CodeBlock.of("$L($L)", generateCopyMethod(fCtx, type), src);
+        case PRIMITIVE_MAP:
+            // copy() doesn't copy values, so that's only enough if they're never modified in place
+            if (getKind(getTypeArguments(type).get(0)) == Kind.VALUE)
+                return CodeBlock.of("$1L == null ? null : $1L.copy()", src);
+            return CodeBlock.of("$L($L)", generateCopyMethod(fCtx, type), src);
+        case NESTED:
+        case LIST:
+        case MAP:
+        case LAZY:
+            return CodeBlock.of("$L($L)", generateCopyMethod(fCtx, type), src);
+        default:
+            return CodeBlock.of("$L", src);
+        }
+    }
+
+    private @NotNull String generateCopyMethod(@NotNull Context fCtx, @NotNull TypeMirror type) {
+        String methodName = "copy" + StringUtils.titleCase(TypeUtils.getSimpleIdSafeName(type));
+        if (!fCtx.generatedMethods.add(methodName))
+            return methodName;
+        TypeName typeName = TypeName.get(type);
+        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(methodName)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .returns(typeName)
+                .addParameter(typeName, "src")
+                .beginControlFlow("if (src == null)")
+                .addStatement("return null")
+                .endControlFlow();
+        switch (getKind(type)) {
+        case NESTED:
+            methodBuilder.addStatement("$1T dst = new $1T()", typeName);
+            for (VariableElement field : TypeUtils.getFieldsToProcess((TypeElement) types.asElement(type))) {
+                String fieldName = field.getSimpleName().toString();
+                methodBuilder.addStatement("dst.$L = $L", fieldName, generateCopy(fCtx, field.asType(), "src." + fieldName));
+            }
+            break;
+        case ARRAY:
+            methodBuilder
+                    .addStatement("$T dst = $L", typeName, newArray(typeName, "src.length"))
+                    .beginControlFlow("for (int i = 0; i < src.length; i++)")
+                    .addStatement("dst[i] = $L", generateCopy(fCtx, ((ArrayType) type).getComponentType(), "src[i]"))
+                    .endControlFlow();
+            break;
+        case LIST:
+            TypeMirror elementType = getTypeArguments(type).get(0);
+            ClassName listType = getCollectionType(type, arrayListTM);
+            methodBuilder
+                    .addStatement("$T dst = new $T<>($L)", typeName, listType, ClassName.get(ArrayList.class).equals(listType) ? "src.size()" : "")
+                    .beginControlFlow("for ($T e : src)", elementType)
+                    .addStatement("dst.add($L)", generateCopy(fCtx, elementType, "e"))
+                    .endControlFlow();
+            break;
+        case MAP:
+            List<? extends TypeMirror> typeArgs = getTypeArguments(type);
+            TypeMirror keyType = typeArgs.get(0), valueType = typeArgs.get(1);
+            if (mayBeDirectoryMap(type)) {
+                methodBuilder
+                        .beginControlFlow("if (src instanceof $T)", DirectoryMap.class)
+                        .addStatement("return (($T) src).copy(value -> $L)",
+                                ParameterizedTypeName.get(ClassName.get(DirectoryMap.class), TypeName.get(valueType)),
+                                generateCopy(fCtx, valueType, "value"))
+                        .endControlFlow();
+            }
+            methodBuilder
+                    .addStatement("$T dst = new $T<>()", typeName, getCollectionType(type, hashMapTM))
+                    .beginControlFlow("for ($T entry : src.entrySet())",
+                            ParameterizedTypeName.get(ClassName.get(Map.Entry.class), TypeName.get(keyType), TypeName.get(valueType)))
+                    .addStatement("dst.put(entry.getKey(), $L)", generateCopy(fCtx, valueType, "entry.getValue()"))
+                    .endControlFlow();
+            break;
+        case ENUM_MAP:
+            List<? extends TypeMirror> enumTypeArgs = getTypeArguments(type);
+            TypeMirror enumKeyType = enumTypeArgs.get(0), enumValueType = enumTypeArgs.get(1);
+            methodBuilder
+                    .addStatement("$T dst = new $T<>($T.class)", typeName, EnumMap.class, TypeName.get(enumKeyType))
+                    .beginControlFlow("for ($T entry : src.entrySet())",
+                            ParameterizedTypeName.get(ClassName.get(Map.Entry.class), TypeName.get(enumKeyType), TypeName.get(enumValueType)))
+                    .addStatement("dst.put(entry.getKey(), $L)", generateCopy(fCtx, enumValueType, "entry.getValue()"))
+                    .endControlFlow();
+            break;
+        case LAZY:
+            methodBuilder.addStatement("$T dst = src.copy(value -> $L)", typeName,
+                    generateCopy(fCtx, getTypeArguments(type).get(0), "value"));
+            break;
+        case PRIMITIVE_MAP:
+            TypeMirror primitiveValueType = getTypeArguments(type).get(0);
+            methodBuilder
+                    .addStatement("$1T dst = new $1T(src.size())", typeName)
+                    .addStatement("$T cursor = src.cursor()", getCursorType(typeName))
+                    .beginControlFlow("while (cursor.advance())")
+                    .addStatement("dst.put(cursor.key(), $L)", generateCopy(fCtx, primitiveValueType, "cursor.value()"))
+                    .endControlFlow();
+            break;
+        }
+        fCtx.classBuilder.addMethod(methodBuilder.addStatement("return dst").build());
+        return methodName;
+    }
+
+    private static @NotNull TypeName getCursorType(@NotNull TypeName mapTypeName) {
+        ParameterizedTypeName mapType = (ParameterizedTypeName) mapTypeName;
+        return ParameterizedTypeName.get(mapType.rawType.nestedClass("Cursor"), mapType.typeArguments.get(0));
+    }
+
+    private static @NotNull CodeBlock newArray(@NotNull TypeName arrayType, @NotNull String length) {
+        // new Foo[length][][], not new Foo[][][length]
+        int dimensions = 0;
+        TypeName componentType = arrayType;
+        while (componentType instanceof ArrayTypeName) {
+            componentType = ((ArrayTypeName) componentType).componentType;
+            dimensions++;
+        }
+        if (componentType instanceof ParameterizedTypeName)
+            componentType = ((ParameterizedTypeName) componentType).rawType;
+        StringBuilder sb = new StringBuilder();
+        for (int i = 1; i < dimensions; i++)
+            sb.append("[]");
+        return CodeBlock.of("new $T[$L]$L", componentType, length, sb.toString());
+    }
 }
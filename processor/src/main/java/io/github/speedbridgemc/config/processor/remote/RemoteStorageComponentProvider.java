@@ -40,14 +40,23 @@ public final class RemoteStorageComponentProvider extends BaseComponentProvider
                 .addModifiers(Modifier.PUBLIC)
                 .addParameter(setRemoteParamBuilder.build())
                 .addStatement("this.remoteConfig = remoteConfig");
+        if (ctx.publishMethodBuilder != null)
+            setRemoteMethodBuilder.addModifiers(Modifier.SYNCHRONIZED).addStatement("publish()");
         if (ctx.hasMethod(MethodSignature.of(TypeName.VOID, "notifyChanged", ctx.configName)))
             setRemoteMethodBuilder.addStatement("notifyChanged(remoteConfig)");
         classBuilder.addField(remoteFieldBuilder.build())
                 .addMethod(setRemoteMethodBuilder.build());
 
-        ctx.getMethodBuilder
-                .beginControlFlow("if (remoteConfig != null)")
-                .addStatement("return remoteConfig")
-                .endControlFlow();
+        if (ctx.publishMethodBuilder != null) {
+            ctx.publishMethodBuilder
+                    .beginControlFlow("if (remoteConfig != null)")
+                    .addStatement("snapshot = remoteConfig")
+                    .endControlFlow();
+        } else {
+            ctx.getMethodBuilder
+                    .beginControlFlow("if (remoteConfig != null)")
+                    .addStatement("return remoteConfig")
+                    .endControlFlow();
+        }
     }
 }
@@ -2,13 +2,25 @@ package io.github.speedbridgemc.config.processor.serialize;
 
 import com.google.auto.service.AutoService;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Multimap;
 import com.squareup.javapoet.*;
+import io.github.speedbridgemc.config.ConcurrencyMode;
+import io.github.speedbridgemc.config.DirectoryMap;
 import io.github.speedbridgemc.config.LogLevel;
 import io.github.speedbridgemc.config.processor.api.*;
 import io.github.speedbridgemc.config.processor.serialize.api.NamingStrategyProvider;
 import io.github.speedbridgemc.config.processor.serialize.api.SerializerContext;
 import io.github.speedbridgemc.config.processor.serialize.api.SerializerProvider;
+import io.github.speedbridgemc.config.processor.serialize.binary.BinaryCodecGenerator;
+import io.github.speedbridgemc.config.processor.serialize.storage.JournalGenerator;
+import io.github.speedbridgemc.config.processor.serialize.storage.StorageGenerator;
+import io.github.speedbridgemc.config.processor.serialize.storage.WriteBehindGenerator;
 import io.github.speedbridgemc.config.serialize.*;
+import io.github.speedbridgemc.config.serialize.binary.BinaryReader;
+import io.github.speedbridgemc.config.serialize.binary.BinarySnapshot;
+import io.github.speedbridgemc.config.serialize.binary.BinaryWriter;
+import io.github.speedbridgemc.config.storage.ConfigStorage;
+import io.github.speedbridgemc.config.storage.Durability;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -17,25 +29,35 @@ import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.element.*;
 import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
 import javax.lang.model.util.ElementFilter;
 import javax.lang.model.util.Types;
 import javax.tools.Diagnostic;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 @ApiStatus.Internal
 @AutoService(ComponentProvider.class)
 public final class SerializerComponentProvider extends BaseComponentProvider {
-    private static final ClassName STRING_NAME = ClassName.get(String.class), MAP_NAME = ClassName.get(HashMap.class);
-    private static TypeMirror keyedEnumTM;
+    private static final String ID = "speedbridge-config:serializer";
+    private static final ClassName STRING_NAME = ClassName.get(String.class),
+            KEYED_ENUM_REGISTRY_NAME = ClassName.get(KeyedEnumRegistry.class),
+            DIRECTORY_MAP_NAME = ClassName.get(DirectoryMap.class);
+    private static TypeMirror keyedEnumTM, mapTM;
     private HashMap<String, SerializerProvider> serializerProviders;
     private HashMap<String, NamingStrategyProvider> nameProviders;
 
     public SerializerComponentProvider() {
-        super("speedbridge-config:serializer");
+        super(ID);
     }
 
     @Override
@@ -47,6 +69,11 @@ public final class SerializerComponentProvider extends BaseComponentProvider {
             if (keyedEnumTM != null)
                 keyedEnumTM = types.erasure(keyedEnumTM);
         }
+        if (mapTM == null) {
+            mapTM = TypeUtils.getTypeMirror(processingEnv, Map.class.getCanonicalName());
+            if (mapTM != null)
+                mapTM = types.erasure(mapTM);
+        }
 
         serializerProviders = new HashMap<>();
         ServiceLoader<SerializerProvider> spLoader = ServiceLoader.load(SerializerProvider.class, SerializerComponentProvider.class.getClassLoader());
@@ -111,13 +138,16 @@ public final class SerializerComponentProvider extends BaseComponentProvider {
 
         HashMap<String, Boolean> options = new HashMap<>();
         parseOptions(ctx.params.get("options").toArray(new String[0]), options);
-        final boolean watchFileForChanges = options.getOrDefault("watchFileForChanges", false);
+        boolean watchFileForChanges = options.getOrDefault("watchFileForChanges", false);
+        // handlers that provide their own storage only get a file if the storage keeps the config in one
+        final boolean customStorage = ctx.hasMethod(MethodSignature.ofDefault(ClassName.get(ConfigStorage.class), "storage"));
         boolean gotResolvePath = ctx.hasMethod(MethodSignature.ofDefault(pathName, "resolvePath", stringName));
-        if (!gotResolvePath) {
+        if (!gotResolvePath && !customStorage) {
             messager.printMessage(Diagnostic.Kind.ERROR,
                     "Handler interface is missing required default method: Path resolvePath(String)", ctx.handlerInterfaceTypeElement);
         }
-        boolean gotStartWatching = false, externalThreadManagement = false, gotRunOnMainThread = false;
+        boolean gotStartWatching = false, externalThreadManagement = false;
+        boolean gotRunOnMainThread = ctx.hasMethod(MethodSignature.ofDefault("runOnMainThread", ClassName.get(Runnable.class)));
         if (watchFileForChanges) {
             gotStartWatching = ctx.hasMethod(MethodSignature.of(TypeName.VOID, "startWatching"));
             boolean gotStartWatcherThread = ctx.hasMethod(MethodSignature.ofDefault("startWatcherThread", ClassName.get(Runnable.class)));
@@ -138,90 +168,243 @@ public final class SerializerComponentProvider extends BaseComponentProvider {
                 messager.printMessage(Diagnostic.Kind.ERROR,
                         "Handler interface is missing required method: void stopWatching()", ctx.handlerInterfaceTypeElement);
             }
-            gotRunOnMainThread = ctx.hasMethod(MethodSignature.ofDefault("runOnMainThread", ClassName.get(Runnable.class)));
         }
+        final boolean writeBehind = options.getOrDefault("writeBehind", false);
+        long writeBehindDelay = 500, writeBehindMaxDelay = 5000;
+        if (writeBehind) {
+            if (!ctx.hasMethod(MethodSignature.of(TypeName.VOID, "flush"))) {
+                messager.printMessage(Diagnostic.Kind.ERROR,
+                        "Handler interface is missing required method: void flush()", ctx.handlerInterfaceTypeElement);
+            }
+            writeBehindDelay = getMillisParam(ctx, "write_behind_delay", writeBehindDelay, type);
+            writeBehindMaxDelay = getMillisParam(ctx, "write_behind_max_delay", writeBehindMaxDelay, type);
+        }
+        // how hard save() tries to make the config survive a crash
+        String durabilityParam = ParamUtils.allOrNothing(ctx.params, "durability");
+        Durability durability = Durability.NONE;
+        if (durabilityParam != null) {
+            switch (durabilityParam.trim()) {
+            case "none":
+                break;
+            case "atomic-rename":
+                durability = Durability.ATOMIC_RENAME;
+                break;
+            case "fsync":
+                durability = Durability.FSYNC;
+                break;
+            default:
+                messager.printMessage(Diagnostic.Kind.ERROR,
+                        "Serializer: Parameter \"durability\" must be one of \"none\", \"atomic-rename\" or \"fsync\"", type);
+                break;
+            }
+        }
+        // FIXME find better name for this
+        boolean saveToTempAndMoveOver = options.getOrDefault("saveToTempAndMoveOver", true);
+        if (durability == Durability.ATOMIC_RENAME && !saveToTempAndMoveOver && !customStorage) {
+            messager.printMessage(Diagnostic.Kind.ERROR,
+                    "Serializer: Durability \"atomic-rename\" requires option \"saveToTempAndMoveOver\"", type);
+        }
+        TypeName configType = ctx.configName;
+        ClassName futureName = ClassName.get(CompletableFuture.class);
+        boolean gotLoadAsync = ctx.hasMethod(MethodSignature.of(ParameterizedTypeName.get(futureName, configType), "loadAsync"));
+        boolean gotSaveAsync = ctx.hasMethod(MethodSignature.of(ParameterizedTypeName.get(futureName, ClassName.get(Void.class)), "saveAsync"));
+        if (gotLoadAsync || gotSaveAsync) {
+            String asyncMethods = gotLoadAsync ? (gotSaveAsync ? "loadAsync() and saveAsync()" : "loadAsync()") : "saveAsync()";
+            if (!ctx.hasMethod(MethodSignature.ofDefault(ClassName.get(Executor.class), "asyncExecutor"))) {
+                messager.printMessage(Diagnostic.Kind.ERROR,
+                        "Handler interface defines method " + asyncMethods + " but is missing default method: Executor asyncExecutor()",
+                        ctx.handlerInterfaceTypeElement);
+            }
+            if (!gotRunOnMainThread) {
+                messager.printMessage(Diagnostic.Kind.ERROR,
+                        "Handler interface defines method " + asyncMethods + " but is missing default method: void runOnMainThread(Runnable)",
+                        ctx.handlerInterfaceTypeElement);
+            }
+        }
+        // releases the handler's threads and hooks, if the handler interface lets users do that
+        final boolean gotClose = ctx.hasMethod(MethodSignature.of(TypeName.VOID, "close"));
+        CodeBlock.Builder closeCodeBuilder = CodeBlock.builder();
+        // directory-backed maps are stored next to the config file, so the provider never sees them
+        ImmutableList.Builder<VariableElement> fileFieldsBuilder = ImmutableList.builder();
+        ArrayList<VariableElement> entryFields = new ArrayList<>();
+        for (VariableElement field : fields) {
+            if (field.getAnnotation(DirectoryBacked.class) == null)
+                fileFieldsBuilder.add(field);
+            else if (checkEntryField(field, stringTM))
+                entryFields.add(field);
+        }
+        ImmutableList<VariableElement> fileFields = fileFieldsBuilder.build();
         String defaultMissingErrorMessage = getDefaultMissingErrorMessage(processingEnv, type);
-        classBuilder.addField(FieldSpec.builder(Path.class, "path", Modifier.PRIVATE, Modifier.FINAL)
-                .initializer("resolvePath($S)", name)
-                .build());
+        boolean binarySnapshot = options.getOrDefault("binarySnapshot", false);
+        boolean journal = options.getOrDefault("journal", false);
+        long journalCompactSize = 64 * 1024;
+        if (journal)
+            journalCompactSize = getBytesParam(ctx, "journal_compact_size", journalCompactSize, type);
+        StorageGenerator storage = new StorageGenerator(ctx, name, customStorage);
+        storage.durability = durability;
+        storage.replaceViaTemp = saveToTempAndMoveOver;
+        storage.watching = watchFileForChanges;
+        storage.binarySnapshot = binarySnapshot;
+        storage.journal = journal;
+        storage.entries = !entryFields.isEmpty();
+        storage.gotLoadAsync = gotLoadAsync;
+        storage.generateFields(classBuilder);
         String basePackage = ParamUtils.allOrNothing(ctx.params, "base_package");
-        TypeName configType = ctx.configName;
         ParameterSpec.Builder pathParamBuilder = ParameterSpec.builder(Path.class, "path");
         if (ctx.nonNullAnnotation != null)
             pathParamBuilder.addAnnotation(ctx.nonNullAnnotation);
+        ParameterSpec.Builder contentsParamBuilder = ParameterSpec.builder(byte[].class, "contents");
+        if (ctx.nonNullAnnotation != null)
+            contentsParamBuilder.addAnnotation(ctx.nonNullAnnotation);
+        // serializer providers parse from memory, so configs can come from wherever the handler stores them
         MethodSpec.Builder readMethodBuilder = MethodSpec.methodBuilder("read")
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .addParameter(contentsParamBuilder.build())
+                .returns(configType)
+                .addException(IOException.class);
+        MethodSpec.Builder readPathMethodBuilder = MethodSpec.methodBuilder("read")
                 .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
                 .addParameter(pathParamBuilder.build())
                 .returns(configType)
                 .addException(IOException.class);
-        if (ctx.nonNullAnnotation != null)
+        if (ctx.nonNullAnnotation != null) {
             readMethodBuilder.addAnnotation(ctx.nonNullAnnotation);
+            readPathMethodBuilder.addAnnotation(ctx.nonNullAnnotation);
+        }
         ParameterSpec.Builder configParamBuilder = ParameterSpec.builder(configType, "config");
         if (ctx.nonNullAnnotation != null)
             configParamBuilder.addAnnotation(ctx.nonNullAnnotation);
+        ParameterSpec.Builder outParamBuilder = ParameterSpec.builder(OutputStream.class, "out");
+        if (ctx.nonNullAnnotation != null)
+            outParamBuilder.addAnnotation(ctx.nonNullAnnotation);
+        // serializer providers write to a stream, so save() can check the serialized form before touching the file
         MethodSpec.Builder writeMethodBuilder = MethodSpec.methodBuilder("write")
                 .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
                 .addParameter(configParamBuilder.build())
-                .addParameter(pathParamBuilder.build())
+                .addParameter(outParamBuilder.build())
                 .addException(IOException.class);
         SerializerContext sCtx = new SerializerContext(ctx, configType, basePackage, nameProvider, nameProviderVariant, options,
                 readMethodBuilder, writeMethodBuilder,
                 defaultMissingErrorMessage, ctx.nonNullAnnotation, ctx.nullableAnnotation);
-        provider.process(name, type, fields, sCtx, classBuilder);
-        classBuilder.addMethod(readMethodBuilder.build()).addMethod(writeMethodBuilder.build());
-        ctx.resetMethodBuilder.addCode("save();\n");
-
-        CodeBlock.Builder loadCodeBuilder = CodeBlock.builder()
+        sCtx.entryFields.addAll(entryFields);
+        provider.process(name, type, fileFields, sCtx, classBuilder);
+        for (VariableElement field : entryFields) {
+            if (!sCtx.entryCodecs.containsKey(field.getSimpleName().toString()))
+                messager.printMessage(Diagnostic.Kind.ERROR,
+                        "Serializer: Provider \"" + providerId + "\" doesn't support @DirectoryBacked fields", field);
+        }
+        if (binarySnapshot) {
+            // a schema-fingerprinted binary copy of the config file, so load() can skip parsing unchanged files
+            TypeSpec.Builder codecBuilder = TypeSpec.classBuilder("BinaryCodec")
+                    .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                    .addField(FieldSpec.builder(long.class, "SCHEMA_HASH", Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                            .initializer("$LL", BinaryCodecGenerator.getSchemaHash(processingEnv, sCtx, type, fileFields))
+                            .build());
+            BinaryCodecGenerator.generate(processingEnv, sCtx, type, fileFields, codecBuilder);
+            ParameterSpec.Builder fingerprintParamBuilder = ParameterSpec.builder(FileFingerprint.class, "fingerprint");
+            if (ctx.nullableAnnotation != null)
+                fingerprintParamBuilder.addAnnotation(ctx.nullableAnnotation);
+            MethodSpec.Builder readSnapshotMethodBuilder = MethodSpec.methodBuilder("readBinarySnapshot")
+                    .addModifiers(Modifier.PRIVATE)
+                    .returns(configType)
+                    .addParameter(fingerprintParamBuilder.build())
+                    .beginControlFlow("if (fingerprint == null)")
+                    .addStatement("return null")
+                    .endControlFlow()
+                    .beginControlFlow("try")
+                    .addStatement("$T reader = $T.read(binarySnapshotPath, BinaryCodec.SCHEMA_HASH, fingerprint)",
+                            BinaryReader.class, BinarySnapshot.class)
+                    .beginControlFlow("if (reader == null)")
+                    .addStatement("return null")
+                    .endControlFlow()
+                    .addStatement("$T config = BinaryCodec.read(reader)", configType)
+                    .addCode(entryFields.isEmpty() ? CodeBlock.of("") : CodeBlock.of("openEntries(config, path);\n"))
+                    .addStatement("log($T.DEBUG, $S + binarySnapshotPath + $S, null)",
+                            LogLevel.class, "Loaded config from binary snapshot \"", "\"")
+                    .addStatement("return config")
+                    .nextControlFlow("catch ($T | $T e)", IOException.class, RuntimeException.class)
+                    // the text file is still there, so a bad snapshot is never fatal
+                    .addStatement("log($T.WARN, $S + binarySnapshotPath + $S, e)",
+                            LogLevel.class, "Failed to read binary snapshot \"", "\", reading config file instead")
+                    .addStatement("return null")
+                    .endControlFlow();
+            if (ctx.nullableAnnotation != null)
+                readSnapshotMethodBuilder.addAnnotation(ctx.nullableAnnotation);
+            classBuilder.addType(codecBuilder.build())
+                    .addField(FieldSpec.builder(Path.class, "binarySnapshotPath", Modifier.PRIVATE, Modifier.FINAL)
+                            .initializer(customStorage ? "path != null ? $T.resolveSnapshotPath(path) : null"
+                                    : "$T.resolveSnapshotPath(path)", BinarySnapshot.class)
+                            .build())
+                    .addMethod(readSnapshotMethodBuilder.build())
+                    .addMethod(MethodSpec.methodBuilder("writeBinarySnapshot")
+                            .addModifiers(Modifier.PRIVATE)
+                            .addParameter(configParamBuilder.build())
+                            .addParameter(fingerprintParamBuilder.build())
+                            .beginControlFlow("if (fingerprint == null)")
+                            .addStatement("return")
+                            .endControlFlow()
+                            .addStatement("$1T out = new $1T()", ByteArrayOutputStream.class)
+                            .beginControlFlow("try")
+                            .beginControlFlow("try ($T writer = new $T(out))", BinaryWriter.class, BinaryWriter.class)
+                            .addStatement("BinaryCodec.write(writer, config)")
+                            .endControlFlow()
+                            .addStatement("$T.write(binarySnapshotPath, BinaryCodec.SCHEMA_HASH, fingerprint, out.toByteArray())",
+                                    BinarySnapshot.class)
+                            .nextControlFlow("catch ($T e)", IOException.class)
+                            .addStatement("log($T.WARN, $S + binarySnapshotPath + $S, e)",
+                                    LogLevel.class, "Failed to write binary snapshot \"", "\"!")
+                            .endControlFlow()
+                            .build());
+        }
+        MethodSpec.Builder writePathMethodBuilder = MethodSpec.methodBuilder("write")
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .addParameter(configParamBuilder.build())
+                .addParameter(pathParamBuilder.build())
+                .addException(IOException.class)
+                .beginControlFlow("try ($T out = $T.newOutputStream(path))", OutputStream.class, Files.class)
+                .addStatement("write(config, out)")
+                .endControlFlow();
+        // providers parse from memory and don't know where the contents came from, so add that here
+        MethodSpec.Builder readFileMethodBuilder = MethodSpec.methodBuilder("read")
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .addParameter(pathParamBuilder.build())
+                .addParameter(contentsParamBuilder.build())
+                .returns(configType)
+                .addException(IOException.class)
+                .addStatement("$T config", configType)
                 .beginControlFlow("try")
-                .addStatement("config = read(path)")
-                .nextControlFlow("catch ($T e)", NoSuchFileException.class)
-                .addStatement("log($T.INFO, $S + path + $S, null)",
-                        LogLevel.class, "File \"", "\" does not exist, resetting to default values")
-                .addStatement("reset()")
+                .addStatement("config = read(contents)")
                 .nextControlFlow("catch ($T e)", IOException.class)
-                .addStatement("log($T.ERROR, $S + path + $S, e)",
-                        LogLevel.class, "Failed to read from config file at \"", "\"!");
+                .addStatement("throw new $T($S + path + $S, e)", IOException.class, "Failed to parse config file at \"", "\"!")
+                .endControlFlow();
+        if (!entryFields.isEmpty())
+            readFileMethodBuilder.addStatement("openEntries(config, path)");
+        readFileMethodBuilder.addStatement("return config");
+        readPathMethodBuilder.addStatement("return read(path, $T.readAllBytes(path))", Files.class);
+        classBuilder.addMethod(readMethodBuilder.build())
+                .addMethod(readPathMethodBuilder.build())
+                .addMethod(readFileMethodBuilder.build());
+        if (!entryFields.isEmpty()) {
+            writePathMethodBuilder.addStatement("writeEntries(config, path)");
+            generateEntryMethods(sCtx, configParamBuilder.build(), pathParamBuilder.build(), customStorage, classBuilder);
+        }
+        classBuilder.addMethod(writePathMethodBuilder.build())
+                .addMethod(writeMethodBuilder.build());
+        ctx.resetMethodBuilder.addCode("save();\n");
+
         boolean crashOnFail = options.getOrDefault("crashOnFail", false);
-        if (options.getOrDefault("backupOnFail", true)) {
-            loadCodeBuilder
-                    .addStatement("$T backupPath = $T.resolveTimestampedSibling(path, $S)",
-                            Path.class, PathUtils.class, "BACKUP")
-                    .addStatement("boolean backupSuccess = true");
-            loadCodeBuilder
-                    .beginControlFlow("try")
-                    .addStatement("$T.move(path, backupPath, $T.REPLACE_EXISTING)",
-                            Files.class, StandardCopyOption.class)
-                    .nextControlFlow("catch ($T be)", IOException.class)
-                    .addStatement("log($T.ERROR, $S + backupPath + $S, be)",
-                            LogLevel.class, "Failed to back up config file to \"", "\"!")
-                    .addStatement("backupSuccess = false")
-                    .endControlFlow();
-            if (crashOnFail) {
-                loadCodeBuilder
-                        .beginControlFlow("if (backupSuccess)")
-                        .addStatement("reset()")
-                        .addStatement("throw new $T($S + path + $S + backupPath + $S, e)",
-                                RuntimeException.class, "Failed to read from config file \"",
-                                "\"! File has been replaced with default values, with the original backed up at \"", "\"")
-                        .nextControlFlow("else")
-                        .addStatement("throw new $T($S + path + $S, e)",
-                                RuntimeException.class, "Failed to read from config file \"", "\"!")
-                        .endControlFlow();
-            } else
-                loadCodeBuilder
-                        .beginControlFlow("if (backupSuccess)")
-                        .addStatement("log($T.INFO, $S + backupPath + $S, null)",
-                                LogLevel.class, "Backed up config file to \"", "\"")
-                        .endControlFlow()
-                        .addStatement("log($T.WARN, $S, null)",
-                                LogLevel.class, "Resetting to default config values")
-                        .addStatement("reset()");
-        } else if (crashOnFail) {
-            loadCodeBuilder.addStatement("throw new $T($S + path + $S, e)",
-                    RuntimeException.class, "Failed to read from config file \"", "\"!");
+        boolean backupOnFail = options.getOrDefault("backupOnFail", true);
+        int maxBackups = parseMaxBackups(ctx.params);
+        if (maxBackups < 1) {
+            messager.printMessage(Diagnostic.Kind.ERROR,
+                    "Serializer: Parameter \"max_backups\" must be a positive number", type);
+            maxBackups = ConfigBackups.DEFAULT_LIMIT;
         }
-        loadCodeBuilder.endControlFlow();
+        CodeBlock.Builder loadCodeBuilder = storage.generateLoadCode(crashOnFail, backupOnFail, maxBackups, classBuilder);
+        // runs after load() is done, whether or not it actually had to read anything
+        CodeBlock.Builder loadTailBuilder = CodeBlock.builder();
         if (watchFileForChanges) {
+            boolean atomic = ctx.concurrency == ConcurrencyMode.ATOMIC;
             CodeBlock reloadBlock;
             if (gotRunOnMainThread) {
                 CodeBlock.Builder reloadBlockBuilder = CodeBlock.builder()
@@ -229,9 +412,29 @@ public final class SerializerComponentProvider extends BaseComponentProvider {
                         .addStatement("log($T.TRACE, $S, null)",
                                 LogLevel.class, "Queueing load operation on main thread");
                 if (externalThreadManagement)
-                    reloadBlockBuilder.addStatement("runOnMainThread(this::load)");
+                    reloadBlockBuilder.addStatement("runOnMainThread(this::reload)");
                 else
-                    reloadBlockBuilder.addStatement("runOnMainThread($T.this::load)", ctx.handlerName);
+                    reloadBlockBuilder.addStatement("runOnMainThread($T.this::reload)", ctx.handlerName);
+                reloadBlock = reloadBlockBuilder
+                        .nextControlFlow("else")
+                        .addStatement("log($T.TRACE, $S, null)",
+                                LogLevel.class, "Ignoring since load operation is already queued")
+                        .endControlFlow()
+                        .build();
+            } else if (atomic) {
+                // load() publishes atomically, so any thread can reload - just not the watcher thread, which
+                // every watched config shares
+                CodeBlock load = externalThreadManagement ? CodeBlock.of("this::reload") : CodeBlock.of("$T.this::reload", ctx.handlerName);
+                CodeBlock.Builder reloadBlockBuilder = CodeBlock.builder()
+                        .beginControlFlow("if (reloadQueued.compareAndSet(false, true))");
+                if (ctx.hasMethod(MethodSignature.ofDefault(ClassName.get(Executor.class), "asyncExecutor")))
+                    reloadBlockBuilder
+                            .addStatement("log($T.TRACE, $S, null)", LogLevel.class, "Queueing load operation on async executor")
+                            .addStatement("asyncExecutor().execute($L)", load);
+                else
+                    reloadBlockBuilder
+                            .addStatement("log($T.TRACE, $S, null)", LogLevel.class, "Queueing load operation on background thread")
+                            .addStatement("$T.execute($L)", BackgroundWriter.class, load);
                 reloadBlock = reloadBlockBuilder
                         .nextControlFlow("else")
                         .addStatement("log($T.TRACE, $S, null)",
@@ -245,84 +448,106 @@ public final class SerializerComponentProvider extends BaseComponentProvider {
                         .addStatement("reloadOnNextGet.set(true)")
                         .build();
 
-            CodeBlock watcherThreadBlock = CodeBlock.builder()
-                    .beginControlFlow("try ($T watcher = path.getFileSystem().newWatchService())",
-                            WatchService.class)
-                    .addStatement("$T localPath = path.getFileName()", Path.class)
-                    .addStatement("$T watchedPath = path.toAbsolutePath().getParent()", Path.class)
-                    .addStatement("watchedPath.register(watcher, $1T.ENTRY_MODIFY)",
-                            StandardWatchEventKinds.class)
-                    .addStatement("log($T.INFO, $S + watchedPath + $S + localPath + $S, null)",
-                            LogLevel.class, "Now watching path \"", "\" for changes to file \"", "\"")
-                    .beginControlFlow("while (watcherThreadRunning.get())")
-                    .addStatement("final $T key", WatchKey.class)
-                    .beginControlFlow("try")
-                    .addStatement("key = watcher.take()")
-                    .nextControlFlow("catch ($T e)", InterruptedException.class)
-                    .addStatement("log($T.INFO, $S, e)", LogLevel.class, "File watcher thread interrupted, shutting down")
-                    .addStatement("watcherThreadRunning.lazySet(false)")
-                    .addStatement("break")
-                    .nextControlFlow("catch ($T e)", ClosedWatchServiceException.class)
-                    .addStatement("log($T.INFO, $S, e)", LogLevel.class, "WatchService was closed while file watcher thread was still running, shutting down")
-                    .addStatement("watcherThreadRunning.lazySet(false)")
-                    .addStatement("break")
-                    .endControlFlow()
-                    .beginControlFlow("for ($T event : key.pollEvents())",
-                            WildcardTypeName.get(WatchEvent.class))
-                    .beginControlFlow("if (event.kind() == $T.OVERFLOW)", StandardWatchEventKinds.class)
-                    .addStatement("continue")
-                    .endControlFlow()
-                    .addStatement("$T eventPath = (($T) event).context()",
-                            Path.class, ParameterizedTypeName.get(WatchEvent.class, Path.class))
-                    .addStatement("log($T.TRACE, $S + event.kind().name() + $S + eventPath + $S, null)",
-                            LogLevel.class, "Got event of type \"", "\" at path \"", "\"")
-                    .beginControlFlow("if (localPath.equals(eventPath))")
-                    .beginControlFlow("if (ignoreNextWatchEvent.compareAndSet(true, false))")
+            CodeBlock changedBlock = CodeBlock.builder()
+                    .beginControlFlow("if (isFileUnchanged())")
                     .addStatement("log($T.TRACE, $S, null)",
-                            LogLevel.class, "Ignoring since we just saved")
+                            LogLevel.class, "Ignoring since file contents haven't changed")
                     .nextControlFlow("else")
                     .add(reloadBlock)
                     .endControlFlow()
-                    .nextControlFlow("else")
-                    .addStatement("log($T.TRACE, $S, null)",
-                            LogLevel.class, "Ignoring since it's not our configuration file")
-                    .endControlFlow()
-                    .endControlFlow()
-                    .addStatement("boolean valid = key.reset()")
-                    .beginControlFlow("if (!valid)")
-                    .addStatement("log($T.WARN, $S, null)",
-                            LogLevel.class, "Key became invalid, assuming watched directory is no longer accessible and shutting down")
-                    .addStatement("watcherThreadRunning.lazySet(false)")
-                    .addStatement("break")
-                    .endControlFlow()
-                    .endControlFlow()
-                    .nextControlFlow("catch ($T e)", IOException.class)
-                    .addStatement("log($T.ERROR, $S, e)", LogLevel.class, "Failed while running file watcher!")
-                    .addStatement("watcherThreadRunning.lazySet(false)")
-                    .endControlFlow()
                     .build();
-            classBuilder
-                    .addField(FieldSpec.builder(AtomicBoolean.class, "watcherThreadRunning", Modifier.PRIVATE, Modifier.FINAL)
-                            .initializer("new $T(false)", AtomicBoolean.class)
-                            .build())
-                    .addField(FieldSpec.builder(AtomicBoolean.class, "ignoreNextWatchEvent", Modifier.PRIVATE, Modifier.FINAL)
-                            .initializer("new $T(false)", AtomicBoolean.class)
-                            .build());
-            if (gotRunOnMainThread)
+            MethodSpec.Builder reloadMethodBuilder = MethodSpec.methodBuilder("reload")
+                    .addModifiers(Modifier.PRIVATE);
+            if (atomic)
+                reloadMethodBuilder.addModifiers(Modifier.SYNCHRONIZED);
+            if (gotRunOnMainThread || atomic) {
                 classBuilder.addField(FieldSpec.builder(AtomicBoolean.class, "reloadQueued", Modifier.PRIVATE, Modifier.FINAL)
                         .initializer("new $T(false)", AtomicBoolean.class)
                         .build());
-            else
+                // cleared before reading, so a change made while we read queues another reload instead of being dropped
+                reloadMethodBuilder.addStatement("reloadQueued.set(false)");
+            } else
                 classBuilder.addField(FieldSpec.builder(AtomicBoolean.class, "reloadOnNextGet", Modifier.PRIVATE, Modifier.FINAL)
                         .initializer("new $T(false)", AtomicBoolean.class)
                         .build());
+            // load() checks this to keep the current config if the file can't be read
+            classBuilder.addField(FieldSpec.builder(boolean.class, "reloading", Modifier.PRIVATE).build())
+                    .addMethod(reloadMethodBuilder
+                            .addStatement("reloading = true")
+                            .beginControlFlow("try")
+                            .addStatement("load()")
+                            .nextControlFlow("finally")
+                            .addStatement("reloading = false")
+                            .endControlFlow()
+                            .build());
 
             MethodSpec.Builder startWatchingMethodBuilder = MethodSpec.methodBuilder("startWatching")
                     .addModifiers(Modifier.PUBLIC);
             if (gotStartWatching)
                 startWatchingMethodBuilder.addAnnotation(Override.class);
+            if (customStorage)
+                // the storage doesn't keep the config in a file of its own, so there's nothing to watch
+                startWatchingMethodBuilder
+                        .beginControlFlow("if (path == null)")
+                        .addStatement("return")
+                        .endControlFlow();
             if (externalThreadManagement) {
+                // the handler wants to run the watcher on its own thread, so it gets its own WatchService too
+                CodeBlock watcherThreadBlock = CodeBlock.builder()
+                        .beginControlFlow("try ($T watcher = path.getFileSystem().newWatchService())",
+                                WatchService.class)
+                        .addStatement("$T localPath = path.getFileName()", Path.class)
+                        .addStatement("$T watchedPath = path.toAbsolutePath().getParent()", Path.class)
+                        .addStatement("watchedPath.register(watcher, $1T.ENTRY_MODIFY)",
+                                StandardWatchEventKinds.class)
+                        .addStatement("log($T.INFO, $S + watchedPath + $S + localPath + $S, null)",
+                                LogLevel.class, "Now watching path \"", "\" for changes to file \"", "\"")
+                        .beginControlFlow("while (watcherThreadRunning.get())")
+                        .addStatement("final $T key", WatchKey.class)
+                        .beginControlFlow("try")
+                        .addStatement("key = watcher.take()")
+                        .nextControlFlow("catch ($T e)", InterruptedException.class)
+                        .addStatement("log($T.INFO, $S, e)", LogLevel.class, "File watcher thread interrupted, shutting down")
+                        .addStatement("watcherThreadRunning.lazySet(false)")
+                        .addStatement("break")
+                        .nextControlFlow("catch ($T e)", ClosedWatchServiceException.class)
+                        .addStatement("log($T.INFO, $S, e)", LogLevel.class, "WatchService was closed while file watcher thread was still running, shutting down")
+                        .addStatement("watcherThreadRunning.lazySet(false)")
+                        .addStatement("break")
+                        .endControlFlow()
+                        .beginControlFlow("for ($T event : key.pollEvents())",
+                                WildcardTypeName.get(WatchEvent.class))
+                        .beginControlFlow("if (event.kind() == $T.OVERFLOW)", StandardWatchEventKinds.class)
+                        .addStatement("continue")
+                        .endControlFlow()
+                        .addStatement("$T eventPath = (($T) event).context()",
+                                Path.class, ParameterizedTypeName.get(WatchEvent.class, Path.class))
+                        .addStatement("log($T.TRACE, $S + event.kind().name() + $S + eventPath + $S, null)",
+                                LogLevel.class, "Got event of type \"", "\" at path \"", "\"")
+                        .beginControlFlow("if (localPath.equals(eventPath))")
+                        .add(changedBlock)
+                        .nextControlFlow("else")
+                        .addStatement("log($T.TRACE, $S, null)",
+                                LogLevel.class, "Ignoring since it's not our configuration file")
+                        .endControlFlow()
+                        .endControlFlow()
+                        .addStatement("boolean valid = key.reset()")
+                        .beginControlFlow("if (!valid)")
+                        .addStatement("log($T.WARN, $S, null)",
+                                LogLevel.class, "Key became invalid, assuming watched directory is no longer accessible and shutting down")
+                        .addStatement("watcherThreadRunning.lazySet(false)")
+                        .addStatement("break")
+                        .endControlFlow()
+                        .endControlFlow()
+                        .nextControlFlow("catch ($T e)", IOException.class)
+                        .addStatement("log($T.ERROR, $S, e)", LogLevel.class, "Failed while running file watcher!")
+                        .addStatement("watcherThreadRunning.lazySet(false)")
+                        .endControlFlow()
+                        .build();
                 classBuilder
+                        .addField(FieldSpec.builder(AtomicBoolean.class, "watcherThreadRunning", Modifier.PRIVATE, Modifier.FINAL)
+                                .initializer("new $T(false)", AtomicBoolean.class)
+                                .build())
                         .addMethod(MethodSpec.methodBuilder("runWatcherThread")
                                 .addAnnotation(AnnotationSpec.builder(SuppressWarnings.class)
                                         .addMember("value", "$S", "unchecked")
@@ -345,31 +570,37 @@ public final class SerializerComponentProvider extends BaseComponentProvider {
                                         .build())
                                 .build());
             } else {
-                classBuilder
-                        .addField(FieldSpec.builder(Thread.class, "watcherThread", Modifier.PRIVATE).build())
-                        .addType(TypeSpec.classBuilder("WatcherThread")
-                                .addModifiers(Modifier.PRIVATE, Modifier.FINAL)
-                                .superclass(Thread.class)
-                                .addMethod(MethodSpec.constructorBuilder()
-                                        .addModifiers(Modifier.PRIVATE)
-                                        .addStatement("super($S)", TypeUtils.getSimpleName(ctx.configName) + " file watcher")
-                                        .addStatement("setDaemon(true)")
-                                        .build())
-                                .addMethod(MethodSpec.methodBuilder("run")
-                                        .addAnnotation(Override.class)
-                                        .addAnnotation(AnnotationSpec.builder(SuppressWarnings.class)
-                                                .addMember("value", "$S", "unchecked")
-                                                .build())
-                                        .addModifiers(Modifier.PUBLIC)
-                                        .addCode(watcherThreadBlock)
-                                        .build())
-                                .build());
+                TypeSpec watcherListener = TypeSpec.anonymousClassBuilder("")
+                        .addSuperinterface(FileWatcherHub.Listener.class)
+                        .addMethod(MethodSpec.methodBuilder("fileChanged")
+                                .addAnnotation(Override.class)
+                                .addModifiers(Modifier.PUBLIC)
+                                .addStatement("log($T.TRACE, $S + path + $S, null)",
+                                        LogLevel.class, "Config file \"", "\" changed")
+                                .addCode(changedBlock)
+                                .build())
+                        .addMethod(MethodSpec.methodBuilder("watchFailed")
+                                .addAnnotation(Override.class)
+                                .addModifiers(Modifier.PUBLIC)
+                                .addParameter(String.class, "message")
+                                .addParameter(Exception.class, "e")
+                                .addStatement("log($T.WARN, message, e)", LogLevel.class)
+                                .addStatement("watcherRegistration = null")
+                                .build())
+                        .build();
+                classBuilder.addField(FieldSpec.builder(FileWatcherHub.Registration.class, "watcherRegistration",
+                        Modifier.PRIVATE, Modifier.VOLATILE).build());
                 startWatchingMethodBuilder
                         .addCode(CodeBlock.builder()
-                                .beginControlFlow("if (watcherThread == null)")
-                                .addStatement("watcherThreadRunning.set(true)")
-                                .addStatement("watcherThread = new WatcherThread()")
-                                .addStatement("watcherThread.start()")
+                                .beginControlFlow("if (watcherRegistration == null)")
+                                .beginControlFlow("try")
+                                .addStatement("watcherRegistration = $T.register(path, $L)", FileWatcherHub.class, watcherListener)
+                                .addStatement("log($T.INFO, $S + path + $S, null)",
+                                        LogLevel.class, "Now watching file \"", "\" for changes")
+                                .nextControlFlow("catch ($T e)", IOException.class)
+                                .addStatement("log($T.ERROR, $S + path + $S, e)",
+                                        LogLevel.class, "Failed to start watching config file \"", "\"!")
+                                .endControlFlow()
                                 .endControlFlow()
                                 .build());
                 classBuilder
@@ -377,88 +608,396 @@ public final class SerializerComponentProvider extends BaseComponentProvider {
                                 .addAnnotation(Override.class)
                                 .addModifiers(Modifier.PUBLIC)
                                 .addCode(CodeBlock.builder()
-                                        .beginControlFlow("if (watcherThread != null)")
-                                        .addStatement("watcherThreadRunning.set(false)")
-                                        .addStatement("watcherThread.interrupt()")
-                                        .beginControlFlow("try")
-                                        .addStatement("watcherThread.join()")
-                                        .nextControlFlow("catch ($T ignored)", InterruptedException.class)
-                                        .endControlFlow()
-                                        .addStatement("watcherThread = null")
+                                        .addStatement("$T registration = watcherRegistration", FileWatcherHub.Registration.class)
+                                        .beginControlFlow("if (registration != null)")
+                                        .addStatement("registration.cancel()")
+                                        .addStatement("watcherRegistration = null")
                                         .endControlFlow()
                                         .build())
                                 .build());
             }
             classBuilder.addMethod(startWatchingMethodBuilder.build());
-            if (gotRunOnMainThread)
-                loadCodeBuilder.addStatement("reloadQueued.set(false)");
-            loadCodeBuilder.addStatement("startWatching()");
-            if (!gotRunOnMainThread) {
+            loadTailBuilder.addStatement("startWatching()");
+            if (!gotRunOnMainThread && !atomic) {
                 ctx.getMethodBuilder.addCode(CodeBlock.builder()
                         .beginControlFlow("if (reloadOnNextGet.compareAndSet(true, false))")
-                        .addStatement("load()")
+                        .addStatement("reload()")
                         .endControlFlow()
                         .build());
             }
         }
-        ctx.loadMethodBuilder.addCode(loadCodeBuilder.build());
+        CodeBlock loadTail = loadTailBuilder.build();
+        CodeBlock.Builder loadPrefixBuilder = CodeBlock.builder();
+        if (writeBehind)
+            // loading throws away in-memory changes anyway, and writing them now would clobber whatever's in the file
+            loadPrefixBuilder.addStatement("discardPendingSave()");
+        // no skipping the read here even if the file hasn't changed - load() is how in-memory changes get thrown away
+        ctx.loadMethodBuilder.addCode(loadPrefixBuilder
+                .add(loadCodeBuilder.build())
+                .add(loadTail)
+                .build());
 
-        // FIXME find better name for this
-        boolean saveToTempAndMoveOver = options.getOrDefault("saveToTempAndMoveOver", true);
-        CodeBlock.Builder saveCodeBuilder = CodeBlock.builder()
-                .beginControlFlow("try")
-                .addStatement("$T.createDirectories(path.getParent())", Files.class)
-                .nextControlFlow("catch ($T e)", IOException.class)
-                .addStatement("log($T.ERROR, $S + path.getParent() + $S, null)",
-                        LogLevel.class, "Failed to create directory \"", "\"!")
-                .addStatement("return")
-                .endControlFlow();
-        if (saveToTempAndMoveOver) {
-            saveCodeBuilder
-                    .addStatement("$T tempPath = $T.resolveTimestampedSibling(path, $S)",
-                            Path.class, PathUtils.class, "TEMP")
-                    .addStatement("log($T.INFO, $S + tempPath + $S, null)",
-                            LogLevel.class, "Writing config to temp file \"", "\"")
-                    .beginControlFlow("try")
-                    .addStatement("write(config, tempPath)")
-                    .nextControlFlow("catch ($T e)", IOException.class)
-                    .addStatement("log($T.ERROR, $S + tempPath + $S, e)",
-                            LogLevel.class, "Failed to write to temp file at \"", "\"!")
+        // the config that was serialized, if it's still around and matches the contents
+        ParameterSpec.Builder savedConfigParamBuilder = ParameterSpec.builder(configType, "config");
+        if (ctx.nullableAnnotation != null)
+            savedConfigParamBuilder.addAnnotation(ctx.nullableAnnotation);
+        ParameterSpec savedConfigParam = savedConfigParamBuilder.build();
+        storage.generateSaveMethods(configParamBuilder.build(), savedConfigParam, classBuilder);
+        // journaled saves diff the config field by field instead of comparing the whole serialized file
+        StorageGenerator.SaveMethods saveMethods = StorageGenerator.SAVE_METHODS;
+        if (journal) {
+            JournalGenerator.generate(processingEnv, sCtx, type, fileFields, storage, journalCompactSize,
+                    ctx.hasMethod(MethodSignature.ofDefault(ClassName.get(Executor.class), "asyncExecutor")),
+                    savedConfigParam, closeCodeBuilder, classBuilder);
+            saveMethods = JournalGenerator.SAVE_METHODS;
+        }
+        TypeName contentsType = saveMethods.contentsType;
+        String toBytesMethod = saveMethods.toBytes, alreadySavedMethod = saveMethods.alreadySaved, saveFileMethod = saveMethods.saveFile;
+        if (writeBehind)
+            WriteBehindGenerator.generate(ctx, saveMethods, writeBehindDelay, writeBehindMaxDelay, !entryFields.isEmpty(),
+                    closeCodeBuilder, classBuilder);
+        else {
+            CodeBlock.Builder saveCodeBlockBuilder = CodeBlock.builder();
+            if (gotSaveAsync)
+                // saveAsync() writes in the order saves were made, so an older async save can't undo this one
+                saveCodeBlockBuilder
+                        .beginControlFlow("synchronized (saveOrderLock)")
+                        .addStatement("writtenSaveSequence = saveSequence.incrementAndGet()");
+            saveCodeBlockBuilder
+                    .add(entryFields.isEmpty() ? CodeBlock.of("") : CodeBlock.of("saveEntries(config);\n"))
+                    .addStatement("$T contents = $L(config)", contentsType, toBytesMethod);
+            if (entryFields.isEmpty())
+                saveCodeBlockBuilder.beginControlFlow("if (contents == null || $L(contents) || !$L(config, contents))",
+                        alreadySavedMethod, saveFileMethod);
+            else
+                // entries may have changed even if the config file didn't, so an unchanged file still counts as saved
+                saveCodeBlockBuilder.beginControlFlow("if (contents == null || !$L(contents) && !$L(config, contents))",
+                        alreadySavedMethod, saveFileMethod);
+            saveCodeBlockBuilder
                     .addStatement("return")
-                    .endControlFlow()
-                    .addStatement("log($T.INFO, $S + tempPath + $S + path + $S, null)",
-                            LogLevel.class, "Moving temp file \"", "\" over config file \"", "\"");
-            if (watchFileForChanges)
-                saveCodeBuilder.addStatement("ignoreNextWatchEvent.set(true)");
-            saveCodeBuilder
-                    .beginControlFlow("try")
-                    .addStatement("$T.move(tempPath, path, $T.REPLACE_EXISTING)",
-                            Files.class, StandardCopyOption.class)
-                    .nextControlFlow("catch ($T e)", IOException.class);
-            if (watchFileForChanges)
-                saveCodeBuilder.addStatement("ignoreNextWatchEvent.set(false)");
-            saveCodeBuilder
-                    .addStatement("log($T.ERROR, $S + tempPath + $S + path + $S, e)",
-                            LogLevel.class, "Failed to move temp file \"", "\" over config file at \"", "\"!")
                     .endControlFlow();
-        } else {
-            saveCodeBuilder
-                    .addStatement("log($T.INFO, $S + path + $S, null)",
-                            LogLevel.class, "Writing config to file \"", "\"");
-            if (watchFileForChanges)
-                saveCodeBuilder.addStatement("ignoreNextWatchEvent.set(true)");
-            saveCodeBuilder
-                    .beginControlFlow("try")
-                    .addStatement("write(config, path)")
-                    .nextControlFlow("catch ($T e)", IOException.class);
-            if (watchFileForChanges)
-                saveCodeBuilder.addStatement("ignoreNextWatchEvent.set(false)");
-            saveCodeBuilder
-                    .addStatement("log($T.ERROR, $S + path + $S, e)",
-                            LogLevel.class, "Failed to write to config file at \"", "\"!")
+            if (gotSaveAsync)
+                saveCodeBlockBuilder.endControlFlow();
+            ctx.saveMethodBuilder.addCode(saveCodeBlockBuilder.build());
+        }
+
+        CodeBlock location = storage.getLocation();
+        if (gotLoadAsync) {
+            CodeBlock.Builder loadAsyncCodeBuilder = CodeBlock.builder()
+                    .addStatement("$T future = new $T<>()", ParameterizedTypeName.get(futureName, configType), futureName)
+                    .beginControlFlow("asyncExecutor().execute(() ->")
+                    .addStatement("$T prefetched = null", configType)
+                    .addStatement("byte[] prefetchedBytes = null");
+            if (writeBehind)
+                loadAsyncCodeBuilder.addStatement("discardPendingSave()");
+            classBuilder.addMethod(MethodSpec.methodBuilder("loadAsync")
+                    .addAnnotation(Override.class)
+                    .addModifiers(Modifier.PUBLIC)
+                    .returns(ParameterizedTypeName.get(futureName, configType))
+                    .addCode(loadAsyncCodeBuilder
+                            .beginControlFlow("try")
+                            .add(storage.generatePrefetchCode())
+                            .nextControlFlow("catch ($T | $T e)", IOException.class, RuntimeException.class)
+                            // reading again on the main thread is exactly what loadAsync() is meant to avoid
+                            .addStatement("log($T.ERROR, $S + $L + $S, e)",
+                                    LogLevel.class, "Failed to read config \"", location, "\"!")
+                            .addStatement("future.completeExceptionally(e)")
+                            .addStatement("return")
+                            .endControlFlow()
+                            .addStatement("final $T loaded = prefetched", configType)
+                            .addStatement("final byte[] loadedContents = prefetchedBytes")
+                            .beginControlFlow("runOnMainThread(() ->")
+                            .addStatement("contentsPrefetched = true")
+                            .addStatement("prefetchedConfig = loaded")
+                            .addStatement("prefetchedContents = loadedContents")
+                            .beginControlFlow("try")
+                            .addStatement("load()")
+                            .addStatement("future.complete(config)")
+                            .nextControlFlow("catch ($T e)", RuntimeException.class)
+                            .addStatement("future.completeExceptionally(e)")
+                            .nextControlFlow("finally")
+                            .addStatement("contentsPrefetched = false")
+                            .addStatement("prefetchedConfig = null")
+                            .addStatement("prefetchedContents = null")
+                            .endControlFlow()
+                            .unindent().add("});\n")
+                            .unindent().add("});\n")
+                            .addStatement("return future")
+                            .build())
+                    .build());
+        }
+        if (gotSaveAsync) {
+            TypeName voidFutureName = ParameterizedTypeName.get(futureName, ClassName.get(Void.class));
+            CodeBlock.Builder saveEntriesCodeBuilder = CodeBlock.builder();
+            if (!entryFields.isEmpty())
+                saveEntriesCodeBuilder
+                        .beginControlFlow("if (!saveEntries(saved))")
+                        .addStatement("future.completeExceptionally(new $T($S + $L + $S))",
+                                IOException.class, "Failed to save entries of config \"", location, "\"")
+                        .addStatement("return")
+                        .endControlFlow();
+            CodeBlock.Builder saveAsyncFileCodeBuilder = CodeBlock.builder();
+            if (entryFields.isEmpty())
+                saveAsyncFileCodeBuilder
+                        .beginControlFlow("if ($L(contents))", alreadySavedMethod)
+                        .addStatement("future.complete(null)")
+                        .addStatement("return")
+                        .endControlFlow()
+                        .addStatement("success = $L(null, contents)", saveFileMethod);
+            else
+                saveAsyncFileCodeBuilder.addStatement("success = $L(contents) || $L(null, contents)", alreadySavedMethod, saveFileMethod);
+            CodeBlock.Builder postSaveCodeBuilder = CodeBlock.builder();
+            if (ctx.hasMethod(MethodSignature.ofDefault("postSave", configType)))
+                postSaveCodeBuilder.addStatement("postSave(saved)");
+            if (ctx.hasMethod(MethodSignature.of(TypeName.VOID, "notifyChanged", configType)))
+                postSaveCodeBuilder.addStatement("notifyChanged(saved)");
+            classBuilder
+                    .addField(FieldSpec.builder(Object.class, "saveOrderLock", Modifier.PRIVATE, Modifier.FINAL)
+                            .initializer("new $T()", Object.class)
+                            .build())
+                    .addField(FieldSpec.builder(AtomicLong.class, "saveSequence", Modifier.PRIVATE, Modifier.FINAL)
+                            .initializer("new $T()", AtomicLong.class)
+                            .build())
+                    // sequence number of the newest save that was written, guarded by saveOrderLock
+                    .addField(FieldSpec.builder(long.class, "writtenSaveSequence", Modifier.PRIVATE).build())
+                    .addMethod(MethodSpec.methodBuilder("saveAsync")
+                    .addAnnotation(Override.class)
+                    .addModifiers(Modifier.PUBLIC)
+                    .returns(voidFutureName)
+                    .addCode(CodeBlock.builder()
+                            .addStatement("final $T saved = config", configType)
+                            .addStatement("$T future = new $T<>()", voidFutureName, futureName)
+                            // serialized right away, so changes made to the config after this call aren't written
+                            .addStatement("final $T contents = $L(saved)", contentsType, toBytesMethod)
+                            .beginControlFlow("if (contents == null)")
+                            .addStatement("future.completeExceptionally(new $T($S + $L + $S))",
+                                    IOException.class, "Failed to serialize config \"", location, "\"")
+                            .addStatement("return future")
+                            .endControlFlow()
+                            .addStatement("final long sequence = saveSequence.incrementAndGet()")
+                            .beginControlFlow("asyncExecutor().execute(() ->")
+                            .addStatement("boolean success")
+                            .beginControlFlow("try")
+                            .beginControlFlow("synchronized (saveOrderLock)")
+                            .beginControlFlow("if (sequence < writtenSaveSequence)")
+                            // a newer save was already written, writing this one would only put older contents back
+                            .addStatement("future.complete(null)")
+                            .addStatement("return")
+                            .endControlFlow()
+                            .addStatement("writtenSaveSequence = sequence")
+                            .add(saveEntriesCodeBuilder.build())
+                            .add(saveAsyncFileCodeBuilder.build())
+                            .endControlFlow()
+                            .nextControlFlow("catch ($T e)", RuntimeException.class)
+                            .addStatement("future.completeExceptionally(e)")
+                            .addStatement("return")
+                            .endControlFlow()
+                            .beginControlFlow("if (!success)")
+                            .addStatement("future.completeExceptionally(new $T($S + $L + $S))",
+                                    IOException.class, "Failed to save config \"", location, "\"")
+                            .addStatement("return")
+                            .endControlFlow()
+                            .beginControlFlow("runOnMainThread(() ->")
+                            .beginControlFlow("try")
+                            .add(postSaveCodeBuilder.build())
+                            .addStatement("future.complete(null)")
+                            .nextControlFlow("catch ($T e)", RuntimeException.class)
+                            .addStatement("future.completeExceptionally(e)")
+                            .endControlFlow()
+                            .unindent().add("});\n")
+                            .unindent().add("});\n")
+                            .addStatement("return future")
+                            .build())
+                    .build());
+        }
+        if (gotClose)
+            classBuilder.addMethod(MethodSpec.methodBuilder("close")
+                    .addAnnotation(Override.class)
+                    .addModifiers(Modifier.PUBLIC)
+                    .addCode(closeCodeBuilder.build())
+                    .build());
+    }
+
+    private boolean checkEntryField(@NotNull VariableElement field, @NotNull TypeMirror stringTM) {
+        TypeMirror fieldType = field.asType();
+        if (fieldType.getKind() != TypeKind.DECLARED || mapTM == null
+                || !types.isSameType(types.erasure(fieldType), mapTM)) {
+            messager.printMessage(Diagnostic.Kind.ERROR,
+                    "Serializer: @DirectoryBacked fields must be of type Map<String, V>", field);
+            return false;
+        }
+        List<? extends TypeMirror> typeArguments = ((DeclaredType) fieldType).getTypeArguments();
+        if (typeArguments.size() == 0) {
+            messager.printMessage(Diagnostic.Kind.ERROR,
+                    "Serializer: Raw maps are unsupported", field);
+            return false;
+        }
+        TypeKind valueKind = typeArguments.get(1).getKind();
+        if (!types.isSameType(typeArguments.get(0), stringTM)
+                || (valueKind != TypeKind.DECLARED && valueKind != TypeKind.ARRAY)) {
+            messager.printMessage(Diagnostic.Kind.ERROR,
+                    "Serializer: @DirectoryBacked fields must be of type Map<String, V>", field);
+            return false;
+        }
+        if (field.getAnnotation(DirectoryBacked.class).cacheSize() < 0) {
+            messager.printMessage(Diagnostic.Kind.ERROR,
+                    "Serializer: @DirectoryBacked cache size can't be negative", field);
+            return false;
+        }
+        return true;
+    }
+
+    private static void generateEntryMethods(@NotNull SerializerContext ctx, @NotNull ParameterSpec configParam, @NotNull ParameterSpec pathParam,
+                                             boolean customStorage, TypeSpec.@NotNull Builder classBuilder) {
+        MethodSpec.Builder openMethodBuilder = MethodSpec.methodBuilder("openEntries")
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .addParameter(configParam)
+                .addParameter(pathParam)
+                .addException(IOException.class);
+        MethodSpec.Builder writeMethodBuilder = MethodSpec.methodBuilder("writeEntries")
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .addParameter(configParam)
+                .addParameter(pathParam)
+                .addException(IOException.class);
+        for (VariableElement field : ctx.entryFields) {
+            String fieldName = field.getSimpleName().toString();
+            String codecName = ctx.entryCodecs.get(fieldName);
+            if (codecName == null)
+                continue;
+            String serializedName = getSerializedName(ctx, field);
+            openMethodBuilder.addStatement("config.$L = $T.open(path, $S, $L, $L)",
+                    fieldName, DIRECTORY_MAP_NAME, serializedName, codecName, field.getAnnotation(DirectoryBacked.class).cacheSize());
+            writeMethodBuilder
+                    .beginControlFlow("if (config.$L != null)", fieldName)
+                    .addStatement("$T.save(config.$L, path, $S, $L)", DIRECTORY_MAP_NAME, fieldName, serializedName, codecName)
                     .endControlFlow();
         }
-        ctx.saveMethodBuilder.addCode(saveCodeBuilder.build());
+        // entries are saved separately from the config file, so an unchanged file doesn't mean unchanged entries
+        MethodSpec.Builder saveMethodBuilder = MethodSpec.methodBuilder("saveEntries")
+                .addModifiers(Modifier.PRIVATE)
+                .returns(TypeName.BOOLEAN)
+                .addParameter(configParam);
+        if (customStorage)
+            // no file for the entries to sit next to, so they're only kept in memory
+            saveMethodBuilder
+                    .beginControlFlow("if (path == null)")
+                    .addStatement("return true")
+                    .endControlFlow();
+        classBuilder.addMethod(openMethodBuilder.build())
+                .addMethod(writeMethodBuilder.build())
+                .addMethod(saveMethodBuilder
+                        .beginControlFlow("try")
+                        .addStatement("writeEntries(config, path)")
+                        .addStatement("return true")
+                        .nextControlFlow("catch ($T | $T e)", IOException.class, UncheckedIOException.class)
+                        .addStatement("log($T.ERROR, $S + path + $S, e)",
+                                LogLevel.class, "Failed to save entries of config file \"", "\"!")
+                        .addStatement("return false")
+                        .endControlFlow()
+                        .build());
+    }
+
+    /**
+     * Gets the number of backups to keep per config, as set by the {@code max_backups} parameter of the config's
+     * serializer component.<p>
+     * Other components that back up configs use this too, so every backup of a config counts towards the same limit.
+     * @param ctx context of the component asking
+     * @return maximum number of backups, or {@link ConfigBackups#DEFAULT_LIMIT} if it's not set (or invalid)
+     */
+    public static int getMaxBackups(@NotNull ComponentContext ctx) {
+        Multimap<String, String> params = ctx.getComponentParams(ID);
+        if (params == null)
+            return ConfigBackups.DEFAULT_LIMIT;
+        int maxBackups = parseMaxBackups(params);
+        return maxBackups < 1 ? ConfigBackups.DEFAULT_LIMIT : maxBackups;
+    }
+
+    private static int parseMaxBackups(@NotNull Multimap<String, String> params) {
+        String maxBackups = ParamUtils.allOrNothing(params, "max_backups");
+        if (maxBackups == null)
+            return ConfigBackups.DEFAULT_LIMIT;
+        try {
+            return Integer.parseInt(maxBackups.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Gets the value type of a {@link DirectoryBacked} field.
+     * @param field field
+     * @return value type
+     */
+    public static @NotNull TypeMirror getEntryValueType(@NotNull VariableElement field) {
+        return ((DeclaredType) field.asType()).getTypeArguments().get(1);
+    }
+
+    /**
+     * Adds the {@link DirectoryMap.Codec} a {@link DirectoryBacked} field's entries are read and written with.
+     * @param ctx serializer context
+     * @param field field
+     * @param readMethodName name of static method that reads a value from a {@code byte[]}
+     * @param writeMethodName name of static method that writes a value to a {@code byte[]}
+     * @param classBuilder class builder
+     */
+    public static void addEntryCodec(@NotNull SerializerContext ctx, @NotNull VariableElement field,
+                                     @NotNull String readMethodName, @NotNull String writeMethodName,
+                                     TypeSpec.@NotNull Builder classBuilder) {
+        String fieldName = field.getSimpleName().toString();
+        String codecName = "ENTRIES_" + StringUtils.camelCaseToSnakeCase(fieldName).toUpperCase(Locale.ROOT);
+        TypeName valueTypeName = TypeName.get(getEntryValueType(field));
+        TypeName codecType = ParameterizedTypeName.get(DIRECTORY_MAP_NAME.nestedClass("Codec"), valueTypeName);
+        TypeSpec codecImpl = TypeSpec.anonymousClassBuilder("")
+                .addSuperinterface(codecType)
+                .addMethod(MethodSpec.methodBuilder("read")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(valueTypeName)
+                        .addParameter(byte[].class, "raw")
+                        .addException(IOException.class)
+                        .addStatement("return $L(raw)", readMethodName)
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("write")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(byte[].class)
+                        .addParameter(valueTypeName, "value")
+                        .addException(IOException.class)
+                        .addStatement("return $L(value)", writeMethodName)
+                        .build())
+                .build();
+        classBuilder.addField(FieldSpec.builder(codecType, codecName, Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                .initializer("$L", codecImpl)
+                .build());
+        ctx.entryCodecs.put(fieldName, codecName);
+    }
+
+    private long getMillisParam(@NotNull ComponentContext ctx, @NotNull String key, long defaultValue, @NotNull TypeElement type) {
+        String value = ParamUtils.allOrNothing(ctx.params, key);
+        if (value == null)
+            return defaultValue;
+        try {
+            long millis = Long.parseLong(value.trim());
+            if (millis >= 0)
+                return millis;
+        } catch (NumberFormatException ignored) { }
+        messager.printMessage(Diagnostic.Kind.ERROR,
+                "Serializer: Parameter \"" + key + "\" must be a non-negative number of milliseconds", type);
+        return defaultValue;
+    }
+
+    private long getBytesParam(@NotNull ComponentContext ctx, @NotNull String key, long defaultValue, @NotNull TypeElement type) {
+        String value = ParamUtils.allOrNothing(ctx.params, key);
+        if (value == null)
+            return defaultValue;
+        try {
+            long bytes = Long.parseLong(value.trim());
+            if (bytes >= 0)
+                return bytes;
+        } catch (NumberFormatException ignored) { }
+        messager.printMessage(Diagnostic.Kind.ERROR,
+                "Serializer: Parameter \"" + key + "\" must be a non-negative number of bytes", type);
+        return defaultValue;
     }
 
     private static final HashMap<VariableElement, String> SERIALIZED_NAME_CACHE = new HashMap<>();
@@ -576,7 +1115,7 @@ public final class SerializerComponentProvider extends BaseComponentProvider {
 
         private static @NotNull EnumKeyType keyed(@NotNull TypeMirror type, @NotNull String deserializer,
                                                  @NotNull List<Object> deserializerArgs) {
-            return new EnumKeyType(type, "$L.getId()", deserializer, true, deserializerArgs);
+            return new EnumKeyType(type, "$L.getKey()", deserializer, true, deserializerArgs);
         }
 
         public static @NotNull EnumKeyType simple(@NotNull TypeMirror type, @NotNull String serializer, @NotNull String deserializer,
@@ -587,8 +1126,7 @@ public final class SerializerComponentProvider extends BaseComponentProvider {
     private static final HashMap<TypeElement, EnumKeyType> ENUM_KEY_TYPE_CACHE = new HashMap<>();
 
     public static @Nullable EnumKeyType getEnumKeyType(@NotNull ProcessingEnvironment processingEnv,
-                                                       @NotNull TypeElement type,
-                                                       @NotNull TypeSpec.Builder classBuilder) {
+                                                       @NotNull TypeElement type) {
         final Types types = processingEnv.getTypeUtils();
         return ENUM_KEY_TYPE_CACHE.computeIfAbsent(type, typeElement -> {
             for (TypeMirror anInterface : typeElement.getInterfaces()) {
@@ -605,8 +1143,13 @@ public final class SerializerComponentProvider extends BaseComponentProvider {
                     String deserializer;
                     ArrayList<Object> deserializerArgs = new ArrayList<>();
                     if (enumDeserializerMethod == null) {
-                        deserializer = "$2L.get($1L)";
-                        deserializerArgs.add(addEnumMap(classBuilder, keyType, "%s.getKey()", true, type));
+                        // keyed enums used to be written with getId() when they had one, so keep reading those ids
+                        if (hasLegacyId(processingEnv, typeElement, keyType))
+                            deserializer = "$2T.getWithLegacyKeys($3T.class, $3T::getId).get($1L)";
+                        else
+                            deserializer = "$2T.get($3T.class).get($1L)";
+                        deserializerArgs.add(KEYED_ENUM_REGISTRY_NAME);
+                        deserializerArgs.add(ClassName.get(type));
                     } else {
                         deserializer = "$2T.$3L($1L)";
                         deserializerArgs.add(ClassName.get(type));
@@ -625,8 +1168,9 @@ public final class SerializerComponentProvider extends BaseComponentProvider {
                     if (keyType.getKind().isPrimitive())
                         keyType = types.boxedClass((PrimitiveType) keyType).asType();
                     ArrayList<Object> deserializerArgs = new ArrayList<>();
-                    deserializerArgs.add(addEnumMap(classBuilder, keyType, "%s.getId()", false, type));
-                    return EnumKeyType.simple(keyType, "$L.getId()", "$2L.get($1L)", deserializerArgs);
+                    deserializerArgs.add(KEYED_ENUM_REGISTRY_NAME);
+                    deserializerArgs.add(ClassName.get(type));
+                    return EnumKeyType.simple(keyType, "$L.getId()", "$2T.get($3T.class, $3T::getId).get($1L)", deserializerArgs);
                 }
             }
             // see if we can find a public final id field
@@ -640,14 +1184,31 @@ public final class SerializerComponentProvider extends BaseComponentProvider {
                     if (keyType.getKind().isPrimitive())
                         keyType = types.boxedClass((PrimitiveType) keyType).asType();
                     ArrayList<Object> deserializerArgs = new ArrayList<>();
-                    deserializerArgs.add(addEnumMap(classBuilder, keyType, "%s.id", false, type));
-                    return EnumKeyType.simple(keyType, "$L.id", "$2L.get($1L)", deserializerArgs);
+                    deserializerArgs.add(KEYED_ENUM_REGISTRY_NAME);
+                    deserializerArgs.add(ClassName.get(type));
+                    return EnumKeyType.simple(keyType, "$L.id", "$2T.get($3T.class, e -> e.id).get($1L)", deserializerArgs);
                 }
             }
             return null;
         });
     }
 
+    private static boolean hasLegacyId(@NotNull ProcessingEnvironment processingEnv, @NotNull TypeElement type,
+                                       @NotNull TypeMirror keyType) {
+        final Types types = processingEnv.getTypeUtils();
+        for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+            if (!method.getModifiers().contains(Modifier.PUBLIC) || !method.getParameters().isEmpty()
+                    || !method.getSimpleName().contentEquals("getId"))
+                continue;
+            TypeMirror idType = method.getReturnType();
+            if (idType.getKind().isPrimitive())
+                idType = types.boxedClass((PrimitiveType) idType).asType();
+            // ids of any other type never made it into a config file, since the generated writer didn't compile
+            return types.isSameType(idType, keyType);
+        }
+        return false;
+    }
+
     private static @Nullable ExecutableElement findEnumDeserializer(@NotNull ProcessingEnvironment processingEnv,
                                                                     @NotNull TypeElement type,
                                                                     @NotNull TypeMirror keyType) {
@@ -676,33 +1237,6 @@ public final class SerializerComponentProvider extends BaseComponentProvider {
         return null;
     }
 
-    private static @NotNull String addEnumMap(@NotNull TypeSpec.Builder classBuilder,
-                                             @NotNull TypeMirror keyType,
-                                             @NotNull String serializer,
-                                             boolean keyed,
-                                             @NotNull TypeElement valueTypeElement) {
-        TypeName keyTypeName = TypeName.get(keyType);
-        TypeName valueTypeName = TypeName.get(valueTypeElement.asType());
-        String mapName = "MAP_" + StringUtils.camelCaseToSnakeCase(valueTypeElement.getSimpleName().toString()).toUpperCase(Locale.ROOT);
-        TypeName mapType = ParameterizedTypeName.get(MAP_NAME, keyTypeName, valueTypeName);
-        classBuilder.addField(FieldSpec.builder(mapType, mapName, Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL).build());
-        CodeBlock.Builder codeBuilder = CodeBlock.builder();
-        codeBuilder
-                .addStatement("$L = new $T()", mapName, mapType)
-                .beginControlFlow("for ($1T e : $1T.values())", valueTypeName)
-                .addStatement("$L.put($L, e)", mapName, String.format(serializer, "e"));
-        if (keyed) {
-            codeBuilder
-                    .beginControlFlow("for ($T a : e.getAliases())", keyTypeName)
-                    .addStatement("$L.put(a, e)", mapName)
-                    .endControlFlow();
-        }
-        classBuilder.addStaticBlock(codeBuilder
-                .endControlFlow()
-                .build());
-        return mapName;
-    }
-
     public static @NotNull String getDefaultValue(@NotNull TypeName type) {
         if (STRING_NAME.equals(type))
             return "\"\"";
@@ -7,6 +7,9 @@ import io.github.speedbridgemc.config.processor.api.ComponentContext;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import javax.lang.model.element.VariableElement;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Map;
 
 public final class SerializerContext {
@@ -19,6 +22,9 @@ public final class SerializerContext {
     public final @NotNull MethodSpec.Builder readMethodBuilder, writeMethodBuilder;
     public final @Nullable String defaultMissingErrorMessage;
     public final @Nullable ClassName nonNullAnnotation, nullableAnnotation;
+    // @DirectoryBacked fields, which aren't passed to the provider with the rest, and the codec fields it generated for them
+    public final @NotNull ArrayList<@NotNull VariableElement> entryFields = new ArrayList<>();
+    public final @NotNull HashMap<@NotNull String, @NotNull String> entryCodecs = new HashMap<>();
 
     public SerializerContext(@NotNull ComponentContext compCtx, @NotNull TypeName configType, @Nullable String basePackage,
                              @NotNull NamingStrategyProvider nameProvider, @NotNull String nameProviderVariant,
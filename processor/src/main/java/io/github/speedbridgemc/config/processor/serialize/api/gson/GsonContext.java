@@ -2,8 +2,10 @@ package io.github.speedbridgemc.config.processor.serialize.api.gson;
 
 import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeSpec;
+import io.github.speedbridgemc.config.processor.api.StringUtils;
 import io.github.speedbridgemc.config.processor.serialize.api.SerializerContext;
 import io.github.speedbridgemc.config.processor.serialize.gson.*;
 import org.jetbrains.annotations.NotNull;
@@ -11,6 +13,7 @@ import org.jetbrains.annotations.Nullable;
 
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.element.Element;
+import javax.lang.model.element.Modifier;
 import javax.lang.model.type.TypeMirror;
 import java.util.*;
 
@@ -22,9 +25,16 @@ public final class GsonContext {
     public final @NotNull Set<@NotNull String> generatedMethods;
     public final @NotNull Map<@NotNull String, @NotNull String> gotFlags;
     public final @NotNull Map<@NotNull String, @Nullable String> missingErrorMessages;
+    private final @NotNull Map<@NotNull Element, @NotNull String> sizeHints;
     public final @NotNull TypeName readerType, writerType, tokenType;
     public final @Nullable ClassName nonNullAnnotation, nullableAnnotation;
     public @NotNull String readerName = "reader", writerName = "writer";
+    // match and write names using pre-encoded byte tables (nextName(byte[][]) and name(byte[][], int)) instead of strings
+    public boolean nameTables;
+    // read and write primitive arrays in one call (nextIntArray() and value(int[]), etc.) instead of element by element
+    public boolean packedArrays;
+    // capture and write back values as-is (readRawValue() and rawValue(byte[])) instead of re-encoding them through a JsonWriter
+    public boolean rawValues;
     public @Nullable Element enclosingElement, element;
 
     @SuppressWarnings("RedundantSuppression")
@@ -40,6 +50,7 @@ public final class GsonContext {
         generatedMethods = new HashSet<>();
         gotFlags = new LinkedHashMap<>();
         missingErrorMessages = new HashMap<>();
+        sizeHints = new HashMap<>();
         ServiceLoader<GsonDelegate> delegateLoader = ServiceLoader.load(GsonDelegate.class, GsonContext.class.getClassLoader());
         delegates = new ArrayList<>();
         delegates.add(new PrimitiveGsonDelegate());
@@ -49,6 +60,11 @@ public final class GsonContext {
         delegates.add(new ArrayGsonDelegate());
         delegates.add(new ListGsonDelegate());
         delegates.add(new MapGsonDelegate());
+        delegates.add(new EnumSetGsonDelegate());
+        delegates.add(new EnumMapGsonDelegate());
+        delegates.add(new PrimitiveListGsonDelegate());
+        delegates.add(new PrimitiveMapGsonDelegate());
+        delegates.add(new LazyGsonDelegate());
         nestedDelegate = new NestedGsonDelegate();
     }
 
@@ -90,6 +106,60 @@ public final class GsonContext {
         return nestedDelegate.appendWrite(this, type, name, src, codeBuilder);
     }
 
+    /**
+     * Gets the field that remembers the element count of the collection last read into or written from the current
+     * field, so the next read can start out with the right capacity.<p>
+     * Read methods are shared by every field of the same type, so they take the hint as a parameter and leave updating
+     * it to their callers. Collections inside other collections don't have a field of their own, so they get one
+     * hint per read method instead.<p>
+     * Hints are static fields shared by every instance of the handler, since the generated static {@code read} and
+     * {@code write} methods update them too. Concurrent reads and writes race on them without synchronization, which
+     * is accepted: a racing update can only leave a stale count, and the hint only decides an initial capacity.
+     * @param methodName name of read method
+     * @return name of field
+     */
+    public @NotNull String getSizeHint(@NotNull String methodName) {
+        String fieldName = getFieldSizeHint();
+        if (fieldName != null)
+            return fieldName;
+        fieldName = methodName + "SizeHint";
+        if (generatedMethods.add(fieldName))
+            addSizeHintField(fieldName);
+        return fieldName;
+    }
+
+    /**
+     * Gets the field that remembers the element count of the collection in the current field.
+     * @return name of field, or {@code null} if there is no current field
+     * @see #getSizeHint(String)
+     */
+    public @Nullable String getFieldSizeHint() {
+        if (element == null)
+            return null;
+        String fieldName = sizeHints.get(element);
+        if (fieldName != null)
+            return fieldName;
+        String typeName = element.getEnclosingElement().getSimpleName().toString();
+        String baseName = Character.toLowerCase(typeName.charAt(0)) + typeName.substring(1)
+                + StringUtils.titleCase(element.getSimpleName().toString());
+        fieldName = baseName + "SizeHint";
+        for (int i = 2; !generatedMethods.add(fieldName); i++)
+            fieldName = baseName + i + "SizeHint";
+        addSizeHintField(fieldName);
+        sizeHints.put(element, fieldName);
+        return fieldName;
+    }
+
+    private void addSizeHintField(@NotNull String fieldName) {
+        // static, since the static read(...) methods update them too
+        classBuilder.addField(FieldSpec.builder(int.class, fieldName, Modifier.PRIVATE, Modifier.STATIC)
+                .addJavadoc("Element count of the collection last read or written here, or 0 if there wasn't one yet.<p>\n")
+                .addJavadoc("Shared by every instance of this handler and updated without synchronization. That race is\n")
+                .addJavadoc("benign: {@code int} writes are atomic, and a stale or lost update only means the next read\n")
+                .addJavadoc("starts out with the wrong capacity.\n")
+                .build());
+    }
+
     public @NotNull Element getEffectiveElement() {
         if (element != null)
             return element;
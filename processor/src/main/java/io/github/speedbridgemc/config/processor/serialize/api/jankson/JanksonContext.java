@@ -1,9 +1,6 @@
 package io.github.speedbridgemc.config.processor.serialize.api.jankson;
 
-import com.squareup.javapoet.ClassName;
-import com.squareup.javapoet.CodeBlock;
-import com.squareup.javapoet.TypeName;
-import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.*;
 import io.github.speedbridgemc.config.processor.serialize.api.SerializerContext;
 import io.github.speedbridgemc.config.processor.serialize.jankson.*;
 import org.jetbrains.annotations.NotNull;
@@ -11,7 +8,10 @@ import org.jetbrains.annotations.Nullable;
 
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.element.Element;
+import javax.lang.model.element.Modifier;
 import javax.lang.model.type.TypeMirror;
+import java.io.IOException;
+import java.io.Writer;
 import java.util.*;
 
 public final class JanksonContext {
@@ -50,6 +50,11 @@ public final class JanksonContext {
         delegates.add(new ArrayJanksonDelegate());
         delegates.add(new ListJanksonDelegate());
         delegates.add(new MapJanksonDelegate());
+        delegates.add(new EnumSetJanksonDelegate());
+        delegates.add(new EnumMapJanksonDelegate());
+        delegates.add(new PrimitiveListJanksonDelegate());
+        delegates.add(new PrimitiveMapJanksonDelegate());
+        delegates.add(new LazyJanksonDelegate());
         nestedDelegate = new NestedJanksonDelegate();
     }
 
@@ -91,6 +96,76 @@ public final class JanksonContext {
         return nestedDelegate.appendWrite(this, type, name, src, codeBuilder);
     }
 
+    public boolean appendStreamWrite(@NotNull TypeMirror type, @Nullable String name, @NotNull String src, @NotNull String depth, @NotNull CodeBlock.Builder codeBuilder, boolean useNested) {
+        for (JanksonDelegate delegate : delegates) {
+            if (delegate.appendStreamWrite(this, type, name, src, depth, codeBuilder))
+                return true;
+        }
+        return useNested && appendStreamWriteNested(type, name, src, depth, codeBuilder);
+    }
+
+    public boolean appendStreamWrite(@NotNull TypeMirror type, @Nullable String name, @NotNull String src, @NotNull String depth, @NotNull CodeBlock.Builder codeBuilder) {
+        return appendStreamWrite(type, name, src, depth, codeBuilder, true);
+    }
+
+    public boolean appendStreamWriteNested(@NotNull TypeMirror type, @Nullable String name, @NotNull String src, @NotNull String depth, @NotNull CodeBlock.Builder codeBuilder) {
+        return nestedDelegate.appendStreamWrite(this, type, name, src, depth, codeBuilder);
+    }
+
+    /**
+     * Creates a method that writes a value straight to a writer, for use by
+     * {@link JanksonDelegate#appendStreamWrite(JanksonContext, TypeMirror, String, String, String, CodeBlock.Builder)}.<p>
+     * The method takes {@code writer}, the value and {@code depth}, and already writes {@code null} values.
+     * @param methodName method name
+     * @param srcType type of the value
+     * @param src parameter name of the value
+     * @return method builder
+     */
+    public @NotNull MethodSpec.Builder createStreamWriteMethod(@NotNull String methodName, @NotNull TypeName srcType, @NotNull String src) {
+        ParameterSpec.Builder srcParamBuilder = ParameterSpec.builder(srcType, src);
+        if (nullableAnnotation != null)
+            srcParamBuilder.addAnnotation(nullableAnnotation);
+        return MethodSpec.methodBuilder(methodName)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .addParameter(Writer.class, "writer")
+                .addParameter(srcParamBuilder.build())
+                .addParameter(TypeName.INT, "depth")
+                .addException(IOException.class)
+                .beginControlFlow("if ($L == null)", src)
+                .addStatement("writer.write($S)", "null")
+                .addStatement("return")
+                .endControlFlow();
+    }
+
+    /**
+     * Appends code that writes a {@code key}/{@code value} object straight to {@code writer}, which is how maps
+     * without string keys store their entries.<p>
+     * Meant for the entry loops of stream write methods, so the object is written at {@code depth + 1}.
+     * @param keyType key type
+     * @param keySrc expression for the key
+     * @param valueType value type
+     * @param valueSrc expression for the value
+     * @param codeBuilder code builder
+     */
+    public void appendStreamWriteEntry(@NotNull TypeMirror keyType, @NotNull String keySrc,
+                                       @NotNull TypeMirror valueType, @NotNull String valueSrc,
+                                       @NotNull CodeBlock.Builder codeBuilder) {
+        codeBuilder
+                .addStatement("writer.write('{')")
+                .addStatement("writeJson5Newline(writer, depth + 2)")
+                .addStatement("writeJson5Key(writer, $S)", "key");
+        appendStreamWrite(keyType, null, keySrc, "depth + 2", codeBuilder);
+        codeBuilder
+                .addStatement("writeJson5Separator(writer, false)")
+                .addStatement("writeJson5Newline(writer, depth + 2)")
+                .addStatement("writeJson5Key(writer, $S)", "value");
+        appendStreamWrite(valueType, null, valueSrc, "depth + 2", codeBuilder);
+        codeBuilder
+                .addStatement("writeJson5Separator(writer, true)")
+                .addStatement("writeJson5Newline(writer, depth + 1)")
+                .addStatement("writer.write('}')");
+    }
+
     public @NotNull Element getEffectiveElement() {
         if (element != null)
             return element;
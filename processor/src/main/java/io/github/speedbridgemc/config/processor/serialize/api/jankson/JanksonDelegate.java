@@ -11,4 +11,29 @@ import javax.lang.model.type.TypeMirror;
 public interface JanksonDelegate extends Provider {
     boolean appendRead(@NotNull JanksonContext ctx, @NotNull TypeMirror type, @Nullable String name, @NotNull String dest, @NotNull CodeBlock.Builder codeBuilder);
     boolean appendWrite(@NotNull JanksonContext ctx, @NotNull TypeMirror type, @Nullable String name, @NotNull String src, @NotNull CodeBlock.Builder codeBuilder);
+
+    /**
+     * Appends code that writes {@code src} as JSON5 straight to {@code writer}.<p>
+     * By default, this builds an element with {@link #appendWrite(JanksonContext, TypeMirror, String, String, CodeBlock.Builder)}
+     * and writes that, so delegates only need to override this to skip building the element.
+     * @param ctx context
+     * @param type type of {@code src}
+     * @param name serialized name, or {@code null} if the value isn't a field
+     * @param src expression to write
+     * @param depth expression for the nesting depth of the value
+     * @param codeBuilder code builder
+     * @return {@code true} if this delegate handles {@code type}
+     */
+    default boolean appendStreamWrite(@NotNull JanksonContext ctx, @NotNull TypeMirror type, @Nullable String name, @NotNull String src,
+                                      @NotNull String depth, @NotNull CodeBlock.Builder codeBuilder) {
+        CodeBlock.Builder elementCodeBuilder = CodeBlock.builder()
+                .addStatement("$T $L", ctx.elementType, ctx.elementName);
+        if (!appendWrite(ctx, type, name, src, elementCodeBuilder))
+            return false;
+        codeBuilder.add("{\n").indent()
+                .add(elementCodeBuilder.build())
+                .addStatement("writeJson5Element(writer, $L, $L)", ctx.elementName, depth)
+                .unindent().add("}\n");
+        return true;
+    }
 }
@@ -0,0 +1,265 @@
+package io.github.speedbridgemc.config.processor.serialize.binary;
+
+import com.squareup.javapoet.*;
+import io.github.speedbridgemc.config.processor.api.TypeUtils;
+import io.github.speedbridgemc.config.processor.serialize.SerializerComponentProvider;
+import io.github.speedbridgemc.config.processor.serialize.api.SerializerContext;
+import io.github.speedbridgemc.config.processor.serialize.api.gson.GsonContext;
+import io.github.speedbridgemc.config.processor.serialize.gson.GsonSerializerProvider;
+import io.github.speedbridgemc.config.serialize.FileFingerprint;
+import io.github.speedbridgemc.config.serialize.binary.BinaryReader;
+import io.github.speedbridgemc.config.serialize.binary.BinaryWriter;
+import io.github.speedbridgemc.config.serialize.json5.Json5Token;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Generates codecs for the binary encoding read by {@link BinaryReader} and written by {@link BinaryWriter}.<p>
+ * The readers and writers mirror Gson's streaming API, so the codecs are generated by the Gson delegates.
+ */
+@ApiStatus.Internal
+public final class BinaryCodecGenerator {
+    private BinaryCodecGenerator() { }
+
+    public static final ClassName READER_NAME = ClassName.get(BinaryReader.class),
+            WRITER_NAME = ClassName.get(BinaryWriter.class);
+    private static final ClassName TOKEN_NAME = ClassName.get(Json5Token.class);
+
+    /**
+     * Adds a binary codec for a config type to a class:
+     * <ul>
+     *     <li>{@code static T read(BinaryReader reader) throws IOException}</li>
+     *     <li>{@code static void write(BinaryWriter writer, T config) throws IOException}</li>
+     * </ul>
+     * Both of these (and the helper methods they use) are private.
+     * @param processingEnv processing environment
+     * @param ctx serializer context
+     * @param type config type
+     * @param fields fields of config type
+     * @param classBuilder class to add codec to
+     */
+    public static void generate(@NotNull ProcessingEnvironment processingEnv, @NotNull SerializerContext ctx,
+                                @NotNull TypeElement type, @NotNull List<@NotNull VariableElement> fields,
+                                TypeSpec.@NotNull Builder classBuilder) {
+        TypeName configType = ctx.configType;
+        GsonContext gCtx = new GsonContext(ctx, classBuilder, READER_NAME, WRITER_NAME, TOKEN_NAME,
+                ctx.nonNullAnnotation, ctx.nullableAnnotation);
+        gCtx.init(processingEnv);
+        gCtx.enclosingElement = type;
+        gCtx.nameTables = true;
+        gCtx.packedArrays = true;
+        gCtx.rawValues = true;
+        SerializerComponentProvider.getMissingErrorMessages(processingEnv, ctx, fields, ctx.defaultMissingErrorMessage, gCtx.missingErrorMessages);
+        GsonSerializerProvider.generateGotFlags(gCtx, fields);
+
+        String objName = "config";
+        ParameterSpec.Builder readerParamBuilder = ParameterSpec.builder(READER_NAME, gCtx.readerName);
+        if (ctx.nonNullAnnotation != null)
+            readerParamBuilder.addAnnotation(ctx.nonNullAnnotation);
+        MethodSpec.Builder readMethodBuilder = MethodSpec.methodBuilder("read")
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .returns(configType)
+                .addParameter(readerParamBuilder.build())
+                .addException(IOException.class)
+                .addCode("$1T $2L = new $1T();\n", configType, objName)
+                .addCode(GsonSerializerProvider.generateGotFlagDecls(gCtx).build())
+                .addCode(GsonSerializerProvider.generateReadFields(gCtx, type, fields, objName))
+                .addCode(GsonSerializerProvider.generateGotFlagChecks(gCtx)
+                        .addStatement("return $L", objName)
+                        .build());
+        if (ctx.nonNullAnnotation != null)
+            readMethodBuilder.addAnnotation(ctx.nonNullAnnotation);
+
+        ParameterSpec.Builder writerParamBuilder = ParameterSpec.builder(WRITER_NAME, gCtx.writerName);
+        ParameterSpec.Builder configParamBuilder = ParameterSpec.builder(configType, objName);
+        if (ctx.nonNullAnnotation != null) {
+            writerParamBuilder.addAnnotation(ctx.nonNullAnnotation);
+            configParamBuilder.addAnnotation(ctx.nonNullAnnotation);
+        }
+        MethodSpec.Builder writeMethodBuilder = MethodSpec.methodBuilder("write")
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .addParameter(writerParamBuilder.build())
+                .addParameter(configParamBuilder.build())
+                .addException(IOException.class)
+                .addCode(GsonSerializerProvider.generateWriteFields(gCtx, type, fields, objName));
+
+        classBuilder.addMethod(readMethodBuilder.build())
+                .addMethod(writeMethodBuilder.build());
+    }
+
+    /**
+     * Adds a field-by-field binary codec for a config type to a class:
+     * <ul>
+     *     <li>{@code static final int FIELD_COUNT}</li>
+     *     <li>{@code static byte[][] writeFields(T config) throws IOException} - encodes each field on its own</li>
+     *     <li>{@code static void readField(byte[] value, T config, int field) throws IOException} - decodes a
+     *     field's value into a config</li>
+     * </ul>
+     * Fields are identified by their index in {@code fields}. All of these (and the helper methods they use) are
+     * private.
+     * @param processingEnv processing environment
+     * @param ctx serializer context
+     * @param type config type
+     * @param fields fields of config type
+     * @param classBuilder class to add codec to
+     */
+    public static void generateFieldCodec(@NotNull ProcessingEnvironment processingEnv, @NotNull SerializerContext ctx,
+                                          @NotNull TypeElement type, @NotNull List<@NotNull VariableElement> fields,
+                                          TypeSpec.@NotNull Builder classBuilder) {
+        TypeName configType = ctx.configType;
+        GsonContext gCtx = new GsonContext(ctx, classBuilder, READER_NAME, WRITER_NAME, TOKEN_NAME,
+                ctx.nonNullAnnotation, ctx.nullableAnnotation);
+        gCtx.init(processingEnv);
+        gCtx.enclosingElement = type;
+        gCtx.nameTables = true;
+        gCtx.packedArrays = true;
+        gCtx.rawValues = true;
+        SerializerComponentProvider.getMissingErrorMessages(processingEnv, ctx, fields, ctx.defaultMissingErrorMessage, gCtx.missingErrorMessages);
+        GsonSerializerProvider.generateGotFlags(gCtx, fields);
+
+        String objName = "config";
+        CodeBlock.Builder readCodeBuilder = CodeBlock.builder()
+                .beginControlFlow("try ($T $L = new $T(value))", READER_NAME, gCtx.readerName, READER_NAME)
+                // a single field is never missing, so the flags are only there for the delegates to set
+                .add(GsonSerializerProvider.generateGotFlagDecls(gCtx).build())
+                .beginControlFlow("switch (field)");
+        CodeBlock.Builder writeCodeBuilder = CodeBlock.builder()
+                .beginControlFlow("switch (field)");
+        Element elementBackup = gCtx.element;
+        for (int i = 0, size = fields.size(); i < size; i++) {
+            VariableElement field = fields.get(i);
+            String fieldName = field.getSimpleName().toString();
+            String serializedName = SerializerComponentProvider.getSerializedName(ctx, field);
+            gCtx.element = field;
+            readCodeBuilder.add("case $L: // $L\n", i, serializedName).indent();
+            gCtx.appendRead(field.asType(), serializedName, objName + "." + fieldName, readCodeBuilder);
+            readCodeBuilder.addStatement("break").unindent();
+            writeCodeBuilder.add("case $L: // $L\n", i, serializedName).indent();
+            gCtx.appendWrite(field.asType(), serializedName, objName + "." + fieldName, writeCodeBuilder);
+            writeCodeBuilder.addStatement("break").unindent();
+        }
+        gCtx.element = elementBackup;
+        readCodeBuilder.add("default:\n").indent()
+                .addStatement("throw new $T($S + field)", IllegalArgumentException.class, "Unknown field ")
+                .unindent()
+                .endControlFlow()
+                .endControlFlow();
+        writeCodeBuilder.add("default:\n").indent()
+                .addStatement("throw new $T($S + field)", IllegalArgumentException.class, "Unknown field ")
+                .unindent()
+                .endControlFlow();
+
+        ParameterSpec.Builder configParamBuilder = ParameterSpec.builder(configType, objName);
+        ParameterSpec.Builder valueParamBuilder = ParameterSpec.builder(byte[].class, "value");
+        if (ctx.nonNullAnnotation != null) {
+            configParamBuilder.addAnnotation(ctx.nonNullAnnotation);
+            valueParamBuilder.addAnnotation(ctx.nonNullAnnotation);
+        }
+        MethodSpec.Builder writeFieldMethodBuilder = MethodSpec.methodBuilder("writeField")
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .addParameter(ParameterSpec.builder(WRITER_NAME, gCtx.writerName).build())
+                .addParameter(configParamBuilder.build())
+                .addParameter(int.class, "field")
+                .addException(IOException.class)
+                .addCode(writeCodeBuilder.build());
+        MethodSpec.Builder writeFieldsMethodBuilder = MethodSpec.methodBuilder("writeFields")
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .returns(byte[][].class)
+                .addParameter(configParamBuilder.build())
+                .addException(IOException.class)
+                .addStatement("byte[][] values = new byte[FIELD_COUNT][]")
+                .addStatement("$1T out = new $1T()", ByteArrayOutputStream.class)
+                .beginControlFlow("for (int field = 0; field < FIELD_COUNT; field++)")
+                .addStatement("out.reset()")
+                .beginControlFlow("try ($T $L = new $T(out))", WRITER_NAME, gCtx.writerName, WRITER_NAME)
+                .addStatement("writeField($L, $L, field)", gCtx.writerName, objName)
+                .endControlFlow()
+                .addStatement("values[field] = out.toByteArray()")
+                .endControlFlow()
+                .addStatement("return values");
+        if (ctx.nonNullAnnotation != null)
+            writeFieldsMethodBuilder.addAnnotation(ctx.nonNullAnnotation);
+        MethodSpec.Builder readFieldMethodBuilder = MethodSpec.methodBuilder("readField")
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .addParameter(valueParamBuilder.build())
+                .addParameter(configParamBuilder.build())
+                .addParameter(int.class, "field")
+                .addException(IOException.class)
+                .addCode(readCodeBuilder.build());
+
+        classBuilder.addField(FieldSpec.builder(int.class, "FIELD_COUNT", Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                        .initializer("$L", fields.size())
+                        .build())
+                .addMethod(writeFieldMethodBuilder.build())
+                .addMethod(writeFieldsMethodBuilder.build())
+                .addMethod(readFieldMethodBuilder.build());
+    }
+
+    /**
+     * Hashes a config type's schema - the serialized names, aliases and types of its fields, and of the fields of
+     * any nested types.
+     * @param processingEnv processing environment
+     * @param ctx serializer context
+     * @param type config type
+     * @param fields fields of config type
+     * @return schema hash
+     */
+    public static long getSchemaHash(@NotNull ProcessingEnvironment processingEnv, @NotNull SerializerContext ctx,
+                                      @NotNull TypeElement type, @NotNull List<@NotNull VariableElement> fields) {
+        StringBuilder sb = new StringBuilder();
+        HashSet<TypeElement> visited = new HashSet<>();
+        visited.add(type);
+        describeFields(processingEnv, ctx, type, fields, sb, visited);
+        return FileFingerprint.hash(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void describeFields(@NotNull ProcessingEnvironment processingEnv, @NotNull SerializerContext ctx,
+                                       @NotNull TypeElement type, @NotNull List<@NotNull VariableElement> fields,
+                                       @NotNull StringBuilder sb, @NotNull Set<TypeElement> visited) {
+        sb.append(type.getQualifiedName()).append('{');
+        for (VariableElement field : fields) {
+            sb.append(SerializerComponentProvider.getSerializedName(ctx, field));
+            for (String alias : SerializerComponentProvider.getSerializedAliases(field))
+                sb.append('|').append(alias);
+            sb.append(':').append(field.asType()).append(';');
+        }
+        sb.append('}');
+        for (VariableElement field : fields)
+            describeType(processingEnv, ctx, field.asType(), sb, visited);
+    }
+
+    private static void describeType(@NotNull ProcessingEnvironment processingEnv, @NotNull SerializerContext ctx,
+                                     @NotNull TypeMirror type, @NotNull StringBuilder sb, @NotNull Set<TypeElement> visited) {
+        switch (type.getKind()) {
+        case ARRAY:
+            describeType(processingEnv, ctx, ((ArrayType) type).getComponentType(), sb, visited);
+            break;
+        case DECLARED:
+            DeclaredType declaredType = (DeclaredType) type;
+            for (TypeMirror typeArg : declaredType.getTypeArguments())
+                describeType(processingEnv, ctx, typeArg, sb, visited);
+            Element element = declaredType.asElement();
+            if (element.getKind() != ElementKind.CLASS)
+                break;
+            TypeElement typeElement = (TypeElement) element;
+            if (typeElement.getQualifiedName().toString().startsWith("java.") || !visited.add(typeElement))
+                break;
+            describeFields(processingEnv, ctx, typeElement, TypeUtils.getFieldsToProcess(typeElement), sb, visited);
+            break;
+        default:
+            break;
+        }
+    }
+}
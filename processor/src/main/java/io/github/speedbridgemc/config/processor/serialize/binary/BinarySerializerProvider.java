@@ -0,0 +1,75 @@
+package io.github.speedbridgemc.config.processor.serialize.binary;
+
+import com.google.auto.service.AutoService;
+import com.google.common.collect.ImmutableList;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import io.github.speedbridgemc.config.processor.serialize.SerializerComponentProvider;
+import io.github.speedbridgemc.config.processor.serialize.api.BaseSerializerProvider;
+import io.github.speedbridgemc.config.processor.serialize.api.SerializerContext;
+import io.github.speedbridgemc.config.processor.serialize.api.SerializerProvider;
+import io.github.speedbridgemc.config.processor.serialize.api.gson.GsonContext;
+import io.github.speedbridgemc.config.processor.serialize.gson.GsonSerializerProvider;
+import io.github.speedbridgemc.config.serialize.binary.BinaryReader;
+import io.github.speedbridgemc.config.serialize.binary.BinaryWriter;
+import io.github.speedbridgemc.config.serialize.json5.Json5Token;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+
+/**
+ * Generates serializers for the compact binary encoding, for configs that are only ever edited by programs.<p>
+ * {@link BinaryReader} and {@link BinaryWriter} mirror Gson's streaming API, so this reuses the Gson delegates, with
+ * name tables and packed primitive arrays. Fields are still matched by (serialized) name, so aliases work and fields
+ * can be added, removed or reordered without breaking existing files.
+ */
+@ApiStatus.Internal
+@AutoService(SerializerProvider.class)
+public final class BinarySerializerProvider extends BaseSerializerProvider {
+    private static final ClassName READER_NAME = ClassName.get(BinaryReader.class),
+            WRITER_NAME = ClassName.get(BinaryWriter.class),
+            TOKEN_NAME = ClassName.get(Json5Token.class);
+
+    public BinarySerializerProvider() {
+        super("speedbridge-config:binary");
+    }
+
+    @Override
+    public void process(@NotNull String name, @NotNull TypeElement type,
+                        @NotNull ImmutableList<VariableElement> fields,
+                        @NotNull SerializerContext ctx, TypeSpec.@NotNull Builder classBuilder) {
+        TypeName configType = ctx.configType;
+        GsonContext gCtx = new GsonContext(ctx, classBuilder, READER_NAME, WRITER_NAME, TOKEN_NAME,
+                ctx.nonNullAnnotation, ctx.nullableAnnotation);
+        gCtx.init(processingEnv);
+        gCtx.enclosingElement = type;
+        gCtx.nameTables = true;
+        gCtx.packedArrays = true;
+        gCtx.rawValues = true;
+        SerializerComponentProvider.getMissingErrorMessages(processingEnv, ctx, fields, ctx.defaultMissingErrorMessage, gCtx.missingErrorMessages);
+        GsonSerializerProvider.generateGotFlags(gCtx, fields);
+        String objName = "config";
+        ctx.readMethodBuilder.addCode("$1T $2L = new $1T();\n", configType, objName);
+        ctx.readMethodBuilder.addCode(GsonSerializerProvider.generateGotFlagDecls(gCtx).build());
+        ctx.readMethodBuilder.addCode(CodeBlock.builder()
+                .beginControlFlow("try ($1T $2L = new $1T(contents))", READER_NAME, gCtx.readerName)
+                .add(GsonSerializerProvider.generateReadFields(gCtx, type, fields, objName))
+                .endControlFlow()
+                .build());
+        ctx.readMethodBuilder.addCode(GsonSerializerProvider.generateGotFlagChecks(gCtx)
+                .addStatement("return $L", objName)
+                .build());
+        ctx.writeMethodBuilder.addCode(CodeBlock.builder()
+                .beginControlFlow("try ($1T $2L = new $1T(out))", WRITER_NAME, gCtx.writerName)
+                .add(GsonSerializerProvider.generateWriteFields(gCtx, type, fields, objName))
+                .endControlFlow()
+                .build());
+        GsonSerializerProvider.generateEntryCodecs(gCtx,
+                CodeBlock.of("new $T(raw)", READER_NAME), CodeBlock.of(""),
+                CodeBlock.of("new $T(out)", WRITER_NAME), CodeBlock.of(""));
+    }
+}
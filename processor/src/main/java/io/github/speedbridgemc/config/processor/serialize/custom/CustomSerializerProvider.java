@@ -19,9 +19,9 @@ import javax.lang.model.element.VariableElement;
 import javax.lang.model.type.TypeMirror;
 import javax.lang.model.util.ElementFilter;
 import javax.tools.Diagnostic;
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.nio.file.Files;
 import java.util.List;
 import java.util.Set;
 
@@ -88,12 +88,9 @@ public final class CustomSerializerProvider extends BaseSerializerProvider {
         if (serializeMethod == null || deserializeMethod == null)
             return;
         ctx.readMethodBuilder
-                .beginControlFlow("try ($T in = $T.newInputStream(path))", InputStream.class, Files.class)
-                .addStatement("return $T.$L(in)", ctx.configType, deserializeMethod.getSimpleName().toString())
-                .endControlFlow();
+                .addStatement("return $T.$L(new $T(contents))", ctx.configType, deserializeMethod.getSimpleName().toString(),
+                        ByteArrayInputStream.class);
         ctx.writeMethodBuilder
-                .beginControlFlow("try ($T out = $T.newOutputStream(path))", OutputStream.class, Files.class)
-                .addStatement("$T.$L(config, out)", ctx.configType, serializeMethod.getSimpleName().toString())
-                .endControlFlow();
+                .addStatement("$T.$L(config, out)", ctx.configType, serializeMethod.getSimpleName().toString());
     }
 }
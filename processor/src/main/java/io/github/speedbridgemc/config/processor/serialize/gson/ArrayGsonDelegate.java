@@ -14,10 +14,19 @@ import javax.lang.model.type.ArrayType;
 import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 
 public final class ArrayGsonDelegate extends BaseGsonDelegate {
-    private static final ClassName ARRAY_LIST_NAME = ClassName.get(ArrayList.class);
+    private static final HashMap<TypeName, String> PACKED_READ_METHODS = new HashMap<>();
+
+    static {
+        PACKED_READ_METHODS.put(TypeName.BOOLEAN, "nextBooleanArray");
+        PACKED_READ_METHODS.put(TypeName.INT, "nextIntArray");
+        PACKED_READ_METHODS.put(TypeName.LONG, "nextLongArray");
+        PACKED_READ_METHODS.put(TypeName.FLOAT, "nextFloatArray");
+        PACKED_READ_METHODS.put(TypeName.DOUBLE, "nextDoubleArray");
+    }
 
     @Override
     public boolean appendRead(@NotNull GsonContext ctx, @NotNull TypeMirror type, @Nullable String name, @NotNull String dest, CodeBlock.@NotNull Builder codeBuilder) {
@@ -27,7 +36,15 @@ public final class ArrayGsonDelegate extends BaseGsonDelegate {
 
         TypeName componentTypeName = TypeName.get(componentType);
         String methodName = generateReadMethod(ctx, componentTypeName, componentType);
-        codeBuilder.addStatement("$L = $L($L)", dest, methodName, ctx.readerName);
+        if (ctx.packedArrays && PACKED_READ_METHODS.containsKey(componentTypeName))
+            codeBuilder.addStatement("$L = $L($L)", dest, methodName, ctx.readerName);
+        else {
+            String sizeHint = ctx.getSizeHint(methodName);
+            codeBuilder.addStatement("$L = $L($L, $L)", dest, methodName, ctx.readerName, sizeHint)
+                    .beginControlFlow("if ($L != null)", dest)
+                    .addStatement("$L = $L.length", sizeHint, dest)
+                    .endControlFlow();
+        }
 
         if (name != null) {
             String gotFlag = ctx.gotFlags.get(name);
@@ -55,17 +72,28 @@ public final class ArrayGsonDelegate extends BaseGsonDelegate {
                 .addException(IOException.class);
         if (ctx.nullableAnnotation != null)
             methodBuilder.addAnnotation(ctx.nullableAnnotation);
-        String listName = "list" + typeSimpleName;
-        TypeName listCompType = componentTypeName;
-        if (listCompType.isPrimitive())
-            listCompType = listCompType.box();
-        TypeName listTypeName = ParameterizedTypeName.get(ARRAY_LIST_NAME, listCompType);
-        methodBuilder.addCode(CodeBlock.builder()
+        String packedReadMethod = ctx.packedArrays ? PACKED_READ_METHODS.get(componentTypeName) : null;
+        if (packedReadMethod != null) {
+            methodBuilder.addCode(CodeBlock.builder()
+                    .beginControlFlow("if ($L.peek() == $T.NULL)", ctx.readerName, ctx.tokenType)
+                    .addStatement("$L.skipValue()", ctx.readerName)
+                    .addStatement("return null")
+                    .endControlFlow()
+                    .addStatement("return $L.$L()", ctx.readerName, packedReadMethod)
+                    .build());
+            ctx.classBuilder.addMethod(methodBuilder.build());
+            return methodName;
+        }
+        // read into a growable buffer of the actual component type, so primitives never get boxed
+        String bufName = "buf" + typeSimpleName;
+        methodBuilder.addParameter(TypeName.INT, "sizeHint").addCode(CodeBlock.builder()
                 .beginControlFlow("if ($L.peek() == $T.NULL)", ctx.readerName, ctx.tokenType)
                 .addStatement("$L.skipValue()", ctx.readerName)
                 .addStatement("return null")
                 .endControlFlow()
-                .addStatement("$1T $2L = new $1T()", listTypeName, listName)
+                // if the hint is right, the buffer can be returned as-is
+                .addStatement("$T $L = $L", arrayTypeName, bufName, newArray(componentTypeName, "sizeHint > 0 ? sizeHint : 16"))
+                .addStatement("int count = 0")
                 .build());
         CodeBlock.Builder codeBuilder = CodeBlock.builder();
 
@@ -82,33 +110,31 @@ public final class ArrayGsonDelegate extends BaseGsonDelegate {
         ctx.enclosingElement = enclosingElementBackup;
 
         codeBuilder
-                .addStatement("$L.add($L)", listName, compDest)
+                .beginControlFlow("if (count == $L.length)", bufName)
+                .addStatement("$1L = $2T.copyOf($1L, count * 2)", bufName, Arrays.class)
                 .endControlFlow()
-                .addStatement("reader.endArray()");
-        if (componentTypeName instanceof ArrayTypeName) {
-            TypeName tn = componentTypeName;
-            StringBuilder ib = new StringBuilder("[0]");
-            while (tn instanceof ArrayTypeName) {
-                ib.append("[]");
-                tn = ((ArrayTypeName) tn).componentType;
-            }
-            codeBuilder
-                    .addStatement("return $L.toArray(new $T" + ib + ")", listName, tn);
-        } else if (componentTypeName.isPrimitive()) {
-            codeBuilder
-                    .addStatement("$1T[] tmp = new $1T[$2L.size()]", componentTypeName, listName)
-                    .beginControlFlow("for (int i = 0; i < tmp.length; i++)")
-                    .addStatement("tmp[i] = $L.get(i)", listName)
-                    .endControlFlow()
-                    .addStatement("return tmp");
-        } else
-            codeBuilder
-                    .addStatement("return $L.toArray(new $T[0])", listName, componentTypeName);
+                .addStatement("$L[count++] = $L", bufName, compDest)
+                .endControlFlow()
+                .addStatement("reader.endArray()")
+                .addStatement("return count == $1L.length ? $1L : $2T.copyOf($1L, count)", bufName, Arrays.class);
         methodBuilder.addCode(codeBuilder.build());
         ctx.classBuilder.addMethod(methodBuilder.build());
         return methodName;
     }
 
+    private static @NotNull CodeBlock newArray(@NotNull TypeName componentTypeName, @NotNull String length) {
+        // new Foo[length][], not new Foo[][length]
+        StringBuilder dimensions = new StringBuilder();
+        TypeName tn = componentTypeName;
+        while (tn instanceof ArrayTypeName) {
+            dimensions.append("[]");
+            tn = ((ArrayTypeName) tn).componentType;
+        }
+        if (tn instanceof ParameterizedTypeName)
+            tn = ((ParameterizedTypeName) tn).rawType;
+        return CodeBlock.of("new $T[$L]$L", tn, length, dimensions.toString());
+    }
+
     @Override
     public boolean appendWrite(@NotNull GsonContext ctx, @NotNull TypeMirror type, @Nullable String name, @NotNull String src, CodeBlock.@NotNull Builder codeBuilder) {
         if (type.getKind() != TypeKind.ARRAY)
@@ -118,6 +144,14 @@ public final class ArrayGsonDelegate extends BaseGsonDelegate {
         TypeName componentTypeName = TypeName.get(componentType);
         String methodName = generateWriteMethod(ctx, componentTypeName, componentType);
         codeBuilder.addStatement("$L($L, $L)", methodName, ctx.writerName, src);
+        if (ctx.packedArrays && PACKED_READ_METHODS.containsKey(componentTypeName))
+            return true;
+        // saves change what the next load will most likely see too
+        String sizeHint = ctx.getFieldSizeHint();
+        if (sizeHint != null)
+            codeBuilder.beginControlFlow("if ($L != null)", src)
+                    .addStatement("$L = $L.length", sizeHint, src)
+                    .endControlFlow();
 
         return true;
     }
@@ -146,6 +180,13 @@ public final class ArrayGsonDelegate extends BaseGsonDelegate {
                 .addStatement("$L.nullValue()", ctx.writerName)
                 .addStatement("return")
                 .endControlFlow();
+        if (ctx.packedArrays && PACKED_READ_METHODS.containsKey(componentTypeName)) {
+            methodBuilder.addCode(codeBuilder
+                    .addStatement("$L.value($L)", ctx.writerName, src)
+                    .build());
+            ctx.classBuilder.addMethod(methodBuilder.build());
+            return methodName;
+        }
 
         Element elementBackup = ctx.element, enclosingElementBackup = ctx.enclosingElement;
         ctx.enclosingElement = elementBackup;
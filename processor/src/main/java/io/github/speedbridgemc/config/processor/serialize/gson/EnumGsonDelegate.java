@@ -53,7 +53,7 @@ public final class EnumGsonDelegate extends BaseGsonDelegate {
         if (ctx.nullableAnnotation != null)
             methodBuilder.addAnnotation(ctx.nullableAnnotation);
         CodeBlock.Builder codeBuilder = CodeBlock.builder();
-        SerializerComponentProvider.EnumKeyType keyType = SerializerComponentProvider.getEnumKeyType(processingEnv, typeElement, ctx.classBuilder);
+        SerializerComponentProvider.EnumKeyType keyType = SerializerComponentProvider.getEnumKeyType(processingEnv, typeElement);
         if (keyType != null) {
             TypeMirror keyTypeMirror = keyType.type;
             TypeName keyTypeName = TypeName.get(keyType.type);
@@ -120,7 +120,7 @@ public final class EnumGsonDelegate extends BaseGsonDelegate {
                         .endControlFlow()
                         .build());
         CodeBlock.Builder codeBuilder = CodeBlock.builder();
-        SerializerComponentProvider.EnumKeyType keyType = SerializerComponentProvider.getEnumKeyType(processingEnv, typeElement, ctx.classBuilder);
+        SerializerComponentProvider.EnumKeyType keyType = SerializerComponentProvider.getEnumKeyType(processingEnv, typeElement);
         if (keyType != null) {
             TypeMirror keyTypeMirror = keyType.type;
             TypeName keyTypeName = TypeName.get(keyTypeMirror);
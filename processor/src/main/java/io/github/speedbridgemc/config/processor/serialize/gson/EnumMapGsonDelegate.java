@@ -0,0 +1,233 @@
+package io.github.speedbridgemc.config.processor.serialize.gson;
+
+import com.squareup.javapoet.*;
+import io.github.speedbridgemc.config.processor.api.StringUtils;
+import io.github.speedbridgemc.config.processor.api.TypeUtils;
+import io.github.speedbridgemc.config.processor.serialize.api.gson.BaseGsonDelegate;
+import io.github.speedbridgemc.config.processor.serialize.api.gson.GsonContext;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class EnumMapGsonDelegate extends BaseGsonDelegate {
+    private static final ClassName ENUM_MAP_NAME = ClassName.get(EnumMap.class);
+    private TypeMirror enumMapTM, entryTM;
+
+    @Override
+    public void init(@NotNull ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        enumMapTM = TypeUtils.getTypeMirror(processingEnv, EnumMap.class.getCanonicalName());
+        if (enumMapTM != null)
+            enumMapTM = types.erasure(enumMapTM);
+        entryTM = TypeUtils.getTypeMirror(processingEnv, Map.Entry.class.getCanonicalName());
+        if (entryTM != null)
+            entryTM = types.erasure(entryTM);
+    }
+
+    private @Nullable List<? extends TypeMirror> getTypeArguments(@NotNull GsonContext ctx, @NotNull TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED || enumMapTM == null)
+            return null;
+        DeclaredType declaredType = (DeclaredType) type;
+        if (!types.isSameType(types.erasure(declaredType), enumMapTM))
+            return null;
+        List<? extends TypeMirror> typeArguments = declaredType.getTypeArguments();
+        if (typeArguments.size() == 0) {
+            messager.printMessage(Diagnostic.Kind.ERROR,
+                    "Serializer: Raw enum maps are unsupported", ctx.getEffectiveElement());
+            return null;
+        }
+        return typeArguments;
+    }
+
+    @Override
+    public boolean appendRead(@NotNull GsonContext ctx, @NotNull TypeMirror type, @Nullable String name, @NotNull String dest, CodeBlock.@NotNull Builder codeBuilder) {
+        List<? extends TypeMirror> typeArguments = getTypeArguments(ctx, type);
+        if (typeArguments == null)
+            return false;
+
+        String methodName = generateReadMethod(ctx, typeArguments.get(0), typeArguments.get(1));
+        codeBuilder.addStatement("$L = $L($L)", dest, methodName, ctx.readerName);
+
+        if (name != null) {
+            String gotFlag = ctx.gotFlags.get(name);
+            if (gotFlag != null)
+                codeBuilder.addStatement("$L = true", gotFlag);
+        }
+
+        return true;
+    }
+
+    private @NotNull String generateReadMethod(@NotNull GsonContext ctx, @NotNull TypeMirror keyType, @NotNull TypeMirror valueType) {
+        String keyTypeSimpleName = StringUtils.titleCase(TypeUtils.getSimpleIdSafeName(keyType));
+        String valueTypeSimpleName = StringUtils.titleCase(TypeUtils.getSimpleIdSafeName(valueType));
+        String methodName = "read" + keyTypeSimpleName + "2" + valueTypeSimpleName + "EnumMap";
+        if (ctx.generatedMethods.contains(methodName))
+            return methodName;
+        ctx.generatedMethods.add(methodName);
+        TypeName keyTypeName = TypeName.get(keyType);
+        TypeName valueTypeName = TypeName.get(valueType);
+        TypeName mapTypeName = ParameterizedTypeName.get(ENUM_MAP_NAME, keyTypeName, valueTypeName);
+        ParameterSpec.Builder readerParamBuilder = ParameterSpec.builder(ctx.readerType, ctx.readerName);
+        if (ctx.nonNullAnnotation != null)
+            readerParamBuilder.addAnnotation(ctx.nonNullAnnotation);
+        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(methodName)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .returns(mapTypeName)
+                .addParameter(readerParamBuilder.build())
+                .addException(IOException.class);
+        if (ctx.nullableAnnotation != null)
+            methodBuilder.addAnnotation(ctx.nullableAnnotation);
+        String mapName = "map" + keyTypeSimpleName + "2" + valueTypeSimpleName;
+        String tokenDest = "token";
+        String nameDest = "name";
+        String keyDest = "key";
+        String valueDest = "value";
+
+        HashMap<String, String> gotFlagsBackup = new HashMap<>(ctx.gotFlags);
+        HashMap<String, String> missingErrorMessagesBackup = new HashMap<>(ctx.missingErrorMessages);
+        ctx.gotFlags.clear();
+        ctx.gotFlags.put(keyDest, "got" + StringUtils.titleCase(keyDest));
+        ctx.gotFlags.put(valueDest, "got" + StringUtils.titleCase(valueDest));
+        ctx.missingErrorMessages.clear();
+        ctx.missingErrorMessages.put(keyDest, "Missing complex map entry key!");
+        ctx.missingErrorMessages.put(valueDest, "Missing complex map entry value!");
+
+        Element elementBackup = ctx.element, enclosingElementBackup = ctx.enclosingElement;
+        ctx.enclosingElement = elementBackup;
+        ctx.element = null;
+
+        // same layout as maps with non-string keys: an array of key/value pair objects
+        CodeBlock.Builder codeBuilder = CodeBlock.builder()
+                .beginControlFlow("if ($L.peek() == $T.NULL)", ctx.readerName, ctx.tokenType)
+                .addStatement("$L.skipValue()", ctx.readerName)
+                .addStatement("return null")
+                .endControlFlow()
+                .addStatement("$1T $2L = new $1T($3T.class)", mapTypeName, mapName, keyTypeName)
+                .add(GsonSerializerProvider.generateGotFlagDecls(ctx).build())
+                .addStatement("$T $L = null", keyType, keyDest)
+                .addStatement("$T $L = null", valueType, valueDest)
+                .addStatement("$L.beginArray()", ctx.readerName)
+                .beginControlFlow("while ($L.hasNext())", ctx.readerName)
+                .addStatement("$L.beginObject()", ctx.readerName)
+                .beginControlFlow("while ($L.hasNext())", ctx.readerName)
+                .addStatement("$T $L = $L.peek()", ctx.tokenType, tokenDest, ctx.readerName)
+                .beginControlFlow("if ($L == $T.NAME)", tokenDest, ctx.tokenType)
+                .addStatement("String $L = $L.nextName()", nameDest, ctx.readerName)
+                .beginControlFlow("if ($S.equals($L))", "key", nameDest);
+        ctx.appendRead(keyType, keyDest, keyDest, codeBuilder);
+        codeBuilder
+                .addStatement("continue")
+                .nextControlFlow("else if ($S.equals($L))", "value", nameDest);
+        ctx.appendRead(valueType, valueDest, valueDest, codeBuilder);
+        codeBuilder
+                .addStatement("continue")
+                .endControlFlow()
+                .endControlFlow()
+                .addStatement("$L.skipValue()", ctx.readerName)
+                .endControlFlow()
+                .addStatement("$L.endObject()", ctx.readerName)
+                .add(GsonSerializerProvider.generateGotFlagChecks(ctx).build())
+                // keyed enums read unknown keys as null - drop those entries, instead of failing the whole map
+                .beginControlFlow("if ($L != null)", keyDest)
+                .addStatement("$L.put($L, $L)", mapName, keyDest, valueDest)
+                .endControlFlow()
+                .addStatement("$L = null", keyDest)
+                .addStatement("$L = null", valueDest)
+                .endControlFlow()
+                .addStatement("$L.endArray()", ctx.readerName)
+                .addStatement("return $L", mapName);
+
+        ctx.element = elementBackup;
+        ctx.enclosingElement = enclosingElementBackup;
+        ctx.gotFlags.clear();
+        ctx.gotFlags.putAll(gotFlagsBackup);
+        ctx.missingErrorMessages.clear();
+        ctx.missingErrorMessages.putAll(missingErrorMessagesBackup);
+
+        methodBuilder.addCode(codeBuilder.build());
+        ctx.classBuilder.addMethod(methodBuilder.build());
+        return methodName;
+    }
+
+    @Override
+    public boolean appendWrite(@NotNull GsonContext ctx, @NotNull TypeMirror type, @Nullable String name, @NotNull String src, CodeBlock.@NotNull Builder codeBuilder) {
+        List<? extends TypeMirror> typeArguments = getTypeArguments(ctx, type);
+        if (typeArguments == null)
+            return false;
+
+        String methodName = generateWriteMethod(ctx, typeArguments.get(0), typeArguments.get(1));
+        codeBuilder.addStatement("$L($L, $L)", methodName, ctx.writerName, src);
+
+        return true;
+    }
+
+    private @NotNull String generateWriteMethod(@NotNull GsonContext ctx, @NotNull TypeMirror keyType, @NotNull TypeMirror valueType) {
+        String keyTypeSimpleName = StringUtils.titleCase(TypeUtils.getSimpleIdSafeName(keyType));
+        String valueTypeSimpleName = StringUtils.titleCase(TypeUtils.getSimpleIdSafeName(valueType));
+        String methodName = "write" + keyTypeSimpleName + "2" + valueTypeSimpleName + "EnumMap";
+        if (ctx.generatedMethods.contains(methodName))
+            return methodName;
+        ctx.generatedMethods.add(methodName);
+        TypeName mapTypeName = ParameterizedTypeName.get(ENUM_MAP_NAME, TypeName.get(keyType), TypeName.get(valueType));
+        ParameterSpec.Builder writerParamBuilder = ParameterSpec.builder(ctx.writerType, "writer");
+        if (ctx.nonNullAnnotation != null)
+            writerParamBuilder.addAnnotation(ctx.nonNullAnnotation);
+        String src = "obj";
+        ParameterSpec.Builder configParamBuilder = ParameterSpec.builder(mapTypeName, src);
+        if (ctx.nullableAnnotation != null)
+            configParamBuilder.addAnnotation(ctx.nullableAnnotation);
+        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(methodName)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .addParameter(writerParamBuilder.build())
+                .addParameter(configParamBuilder.build())
+                .addException(IOException.class);
+
+        String valueSrc = "value";
+        String entrySrc = "entry";
+        String keySrc = "key";
+        CodeBlock.Builder codeBuilder = CodeBlock.builder()
+                .beginControlFlow("if (obj == null)")
+                .addStatement("$L.nullValue()", ctx.writerName)
+                .addStatement("return")
+                .endControlFlow()
+                .addStatement("$T $L", keyType, keySrc)
+                .addStatement("$T $L", valueType, valueSrc)
+                .addStatement("$L.beginArray()", ctx.writerName)
+                .beginControlFlow("for ($T<$T, $T> $L : $L.entrySet())", entryTM, keyType, valueType, entrySrc, src)
+                .addStatement("$L = $L.getKey()", keySrc, entrySrc)
+                .addStatement("$L = $L.getValue()", valueSrc, entrySrc)
+                .addStatement("$L.beginObject()", ctx.writerName)
+                .addStatement("$L.name($S)", ctx.writerName, "key");
+
+        Element elementBackup = ctx.element, enclosingElementBackup = ctx.enclosingElement;
+        ctx.enclosingElement = elementBackup;
+        ctx.element = null;
+
+        ctx.appendWrite(keyType, null, keySrc, codeBuilder);
+        codeBuilder.addStatement("$L.name($S)", ctx.writerName, "value");
+        ctx.appendWrite(valueType, null, valueSrc, codeBuilder);
+        codeBuilder
+                .addStatement("$L.endObject()", ctx.writerName)
+                .endControlFlow()
+                .addStatement("$L.endArray()", ctx.writerName);
+
+        ctx.element = elementBackup;
+        ctx.enclosingElement = enclosingElementBackup;
+
+        methodBuilder.addCode(codeBuilder.build());
+        ctx.classBuilder.addMethod(methodBuilder.build());
+        return methodName;
+    }
+}
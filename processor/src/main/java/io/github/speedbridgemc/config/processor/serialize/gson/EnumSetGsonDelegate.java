@@ -0,0 +1,174 @@
+package io.github.speedbridgemc.config.processor.serialize.gson;
+
+import com.squareup.javapoet.*;
+import io.github.speedbridgemc.config.processor.api.StringUtils;
+import io.github.speedbridgemc.config.processor.api.TypeUtils;
+import io.github.speedbridgemc.config.processor.serialize.api.gson.BaseGsonDelegate;
+import io.github.speedbridgemc.config.processor.serialize.api.gson.GsonContext;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.List;
+
+public final class EnumSetGsonDelegate extends BaseGsonDelegate {
+    private static final ClassName ENUM_SET_NAME = ClassName.get(EnumSet.class);
+    private TypeMirror enumSetTM;
+
+    @Override
+    public void init(@NotNull ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        enumSetTM = TypeUtils.getTypeMirror(processingEnv, EnumSet.class.getCanonicalName());
+        if (enumSetTM != null)
+            enumSetTM = types.erasure(enumSetTM);
+    }
+
+    private @Nullable TypeMirror getComponentType(@NotNull GsonContext ctx, @NotNull TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED || enumSetTM == null)
+            return null;
+        DeclaredType declaredType = (DeclaredType) type;
+        if (!types.isSameType(types.erasure(declaredType), enumSetTM))
+            return null;
+        List<? extends TypeMirror> typeArguments = declaredType.getTypeArguments();
+        if (typeArguments.size() == 0) {
+            messager.printMessage(Diagnostic.Kind.ERROR,
+                    "Serializer: Raw enum sets are unsupported", ctx.getEffectiveElement());
+            return null;
+        }
+        return typeArguments.get(0);
+    }
+
+    @Override
+    public boolean appendRead(@NotNull GsonContext ctx, @NotNull TypeMirror type, @Nullable String name, @NotNull String dest, CodeBlock.@NotNull Builder codeBuilder) {
+        TypeMirror componentType = getComponentType(ctx, type);
+        if (componentType == null)
+            return false;
+
+        String methodName = generateReadMethod(ctx, componentType);
+        codeBuilder.addStatement("$L = $L($L)", dest, methodName, ctx.readerName);
+
+        if (name != null) {
+            String gotFlag = ctx.gotFlags.get(name);
+            if (gotFlag != null)
+                codeBuilder.addStatement("$L = true", gotFlag);
+        }
+
+        return true;
+    }
+
+    private @NotNull String generateReadMethod(@NotNull GsonContext ctx, @NotNull TypeMirror componentType) {
+        String typeSimpleName = StringUtils.titleCase(TypeUtils.getSimpleIdSafeName(componentType));
+        String methodName = "read" + typeSimpleName + "EnumSet";
+        if (ctx.generatedMethods.contains(methodName))
+            return methodName;
+        ctx.generatedMethods.add(methodName);
+        TypeName componentTypeName = TypeName.get(componentType);
+        TypeName setTypeName = ParameterizedTypeName.get(ENUM_SET_NAME, componentTypeName);
+        ParameterSpec.Builder readerParamBuilder = ParameterSpec.builder(ctx.readerType, ctx.readerName);
+        if (ctx.nonNullAnnotation != null)
+            readerParamBuilder.addAnnotation(ctx.nonNullAnnotation);
+        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(methodName)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .returns(setTypeName)
+                .addParameter(readerParamBuilder.build())
+                .addException(IOException.class);
+        if (ctx.nullableAnnotation != null)
+            methodBuilder.addAnnotation(ctx.nullableAnnotation);
+        String setName = "set" + typeSimpleName;
+        String compDest = "comp" + typeSimpleName;
+        CodeBlock.Builder codeBuilder = CodeBlock.builder()
+                .beginControlFlow("if ($L.peek() == $T.NULL)", ctx.readerName, ctx.tokenType)
+                .addStatement("$L.skipValue()", ctx.readerName)
+                .addStatement("return null")
+                .endControlFlow()
+                .addStatement("$T $L = $T.noneOf($T.class)", setTypeName, setName, ENUM_SET_NAME, componentTypeName)
+                .addStatement("$L.beginArray()", ctx.readerName)
+                .beginControlFlow("while ($L.hasNext())", ctx.readerName)
+                .addStatement("$T $L", componentTypeName, compDest);
+
+        Element elementBackup = ctx.element, enclosingElementBackup = ctx.enclosingElement;
+        ctx.enclosingElement = elementBackup;
+        ctx.element = null;
+        ctx.appendRead(componentType, null, compDest, codeBuilder);
+        ctx.element = elementBackup;
+        ctx.enclosingElement = enclosingElementBackup;
+
+        codeBuilder
+                // keyed enums read unknown keys as null - drop those, instead of failing the whole set
+                .beginControlFlow("if ($L != null)", compDest)
+                .addStatement("$L.add($L)", setName, compDest)
+                .endControlFlow()
+                .endControlFlow()
+                .addStatement("$L.endArray()", ctx.readerName)
+                .addStatement("return $L", setName);
+        methodBuilder.addCode(codeBuilder.build());
+        ctx.classBuilder.addMethod(methodBuilder.build());
+        return methodName;
+    }
+
+    @Override
+    public boolean appendWrite(@NotNull GsonContext ctx, @NotNull TypeMirror type, @Nullable String name, @NotNull String src, CodeBlock.@NotNull Builder codeBuilder) {
+        TypeMirror componentType = getComponentType(ctx, type);
+        if (componentType == null)
+            return false;
+
+        String methodName = generateWriteMethod(ctx, componentType);
+        codeBuilder.addStatement("$L($L, $L)", methodName, ctx.writerName, src);
+
+        return true;
+    }
+
+    private @NotNull String generateWriteMethod(@NotNull GsonContext ctx, @NotNull TypeMirror componentType) {
+        String typeSimpleName = StringUtils.titleCase(TypeUtils.getSimpleIdSafeName(componentType));
+        String methodName = "write" + typeSimpleName + "EnumSet";
+        if (ctx.generatedMethods.contains(methodName))
+            return methodName;
+        ctx.generatedMethods.add(methodName);
+        TypeName componentTypeName = TypeName.get(componentType);
+        TypeName setTypeName = ParameterizedTypeName.get(ENUM_SET_NAME, componentTypeName);
+        ParameterSpec.Builder writerParamBuilder = ParameterSpec.builder(ctx.writerType, "writer");
+        if (ctx.nonNullAnnotation != null)
+            writerParamBuilder.addAnnotation(ctx.nonNullAnnotation);
+        String src = "obj";
+        ParameterSpec.Builder configParamBuilder = ParameterSpec.builder(setTypeName, src);
+        if (ctx.nullableAnnotation != null)
+            configParamBuilder.addAnnotation(ctx.nullableAnnotation);
+        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(methodName)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .addParameter(writerParamBuilder.build())
+                .addParameter(configParamBuilder.build())
+                .addException(IOException.class);
+
+        CodeBlock.Builder codeBuilder = CodeBlock.builder()
+                .beginControlFlow("if (obj == null)")
+                .addStatement("$L.nullValue()", ctx.writerName)
+                .addStatement("return")
+                .endControlFlow();
+
+        Element elementBackup = ctx.element, enclosingElementBackup = ctx.enclosingElement;
+        ctx.enclosingElement = elementBackup;
+        ctx.element = null;
+
+        // same layout as lists, so switching a field from List<E> to EnumSet<E> keeps existing files readable
+        codeBuilder.addStatement("$L.beginArray()", ctx.writerName)
+                .beginControlFlow("for ($T comp : $L)", componentTypeName, src);
+        ctx.appendWrite(componentType, null, "comp", codeBuilder);
+        codeBuilder.endControlFlow()
+                .addStatement("$L.endArray()", ctx.writerName);
+
+        ctx.element = elementBackup;
+        ctx.enclosingElement = enclosingElementBackup;
+
+        methodBuilder.addCode(codeBuilder.build());
+        ctx.classBuilder.addMethod(methodBuilder.build());
+        return methodName;
+    }
+}
@@ -3,6 +3,8 @@ package io.github.speedbridgemc.config.processor.serialize.gson;
 import com.google.auto.service.AutoService;
 import com.google.common.collect.ImmutableList;
 import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeSpec;
 import io.github.speedbridgemc.config.processor.api.StringUtils;
@@ -12,14 +14,21 @@ import io.github.speedbridgemc.config.processor.serialize.api.BaseSerializerProv
 import io.github.speedbridgemc.config.processor.serialize.api.SerializerContext;
 import io.github.speedbridgemc.config.processor.serialize.api.SerializerProvider;
 import io.github.speedbridgemc.config.processor.serialize.api.gson.GsonContext;
+import io.github.speedbridgemc.config.serialize.FileContents;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.NotNull;
 
+import javax.lang.model.element.Element;
+import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
 import java.io.*;
-import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 @ApiStatus.Internal
@@ -52,66 +61,193 @@ public final class GsonSerializerProvider extends BaseSerializerProvider {
         CodeBlock.Builder codeBuilder = generateGotFlagDecls(gCtx);
         ctx.readMethodBuilder.addCode(codeBuilder.build());
         codeBuilder = CodeBlock.builder();
-        codeBuilder
-                .beginControlFlow("try ($4T $5L = new $4T(new $3T(new $2T($1T.newInputStream(path)))))",
-                        Files.class, InputStreamReader.class, BufferedReader.class, readerType, gCtx.readerName);
+        // config files are always UTF-8, not the platform's default charset
+        // directRead also skips a byte order mark, and decodes the whole file in one go
+        if (ctx.options.getOrDefault("directRead", false))
+            codeBuilder.beginControlFlow("try ($1T $2L = new $1T($3T.newReader(contents)))",
+                    readerType, gCtx.readerName, FileContents.class);
+        else
+            codeBuilder.beginControlFlow("try ($3T $4L = new $3T(new $2T(new $1T(contents), $5T.UTF_8)))",
+                    ByteArrayInputStream.class, InputStreamReader.class, readerType, gCtx.readerName, StandardCharsets.class);
         if (ctx.options.getOrDefault("lenient", true))
             codeBuilder.addStatement("$L.setLenient(true)", gCtx.readerName);
-        codeBuilder
-            .addStatement("$L.beginObject()", gCtx.readerName)
-            .beginControlFlow("while ($L.hasNext())", gCtx.readerName)
-            .addStatement("$T token = $L.peek()", tokenType, gCtx.readerName)
-            .beginControlFlow("if (token == $T.NAME)", tokenType)
-            .addStatement("String name = $L.nextName()", gCtx.readerName)
-            .beginControlFlow("switch (name)");
-        ctx.readMethodBuilder.addCode(codeBuilder.build());
-        for (VariableElement field : fields) {
-            String fieldName = field.getSimpleName().toString();
-            String serializedName = SerializerComponentProvider.getSerializedName(ctx, field);
-            codeBuilder = CodeBlock.builder()
-                    .add("case $S:\n", serializedName);
-            for (String alias : SerializerComponentProvider.getSerializedAliases(field))
-                codeBuilder.add("case $S:\n", alias);
-            codeBuilder.indent();
-            gCtx.element = field;
-            gCtx.appendRead(field.asType(), serializedName, objName + "." + fieldName, codeBuilder);
-            ctx.readMethodBuilder.addCode(codeBuilder
-                    .addStatement("continue").unindent()
-                    .build());
-        }
-        ctx.readMethodBuilder.addCode(CodeBlock.builder()
-                .endControlFlow()
-                .endControlFlow()
-                .addStatement("$L.skipValue()", gCtx.readerName)
-                .endControlFlow()
-                .addStatement("$L.endObject()", gCtx.readerName)
+        codeBuilder.add(generateReadFields(gCtx, type, fields, objName));
+        ctx.readMethodBuilder.addCode(codeBuilder
                 .nextControlFlow("catch ($T e)", malformedExceptionType)
-                .addStatement("throw new $T($S + path + $S, e)", IOException.class, "Failed to parse config file at \"", "\" to JSON!")
+                .addStatement("throw new $T($S, e)", IOException.class, "Failed to parse config file to JSON!")
                 .endControlFlow()
                 .build());
         ctx.readMethodBuilder.addCode(generateGotFlagChecks(gCtx)
                 .addStatement("return $L", objName)
                 .build());
         codeBuilder = CodeBlock.builder()
-                .beginControlFlow("try ($4T $5L = new $4T(new $3T(new $2T($1T.newOutputStream(path)))))",
-                        Files.class, OutputStreamWriter.class, BufferedWriter.class, writerType, gCtx.writerName);
+                .beginControlFlow("try ($3T $4L = new $3T(new $2T(new $1T(out, $5T.UTF_8))))",
+                        OutputStreamWriter.class, BufferedWriter.class, writerType, gCtx.writerName, StandardCharsets.class);
         if (ctx.options.getOrDefault("prettyPrinting", true))
             codeBuilder.addStatement("$L.setIndent($S)", gCtx.writerName, "  ");
-        codeBuilder.addStatement("$L.beginObject()", gCtx.writerName);
+        codeBuilder.add(generateWriteFields(gCtx, type, fields, objName))
+                .endControlFlow();
         ctx.writeMethodBuilder.addCode(codeBuilder.build());
-        for (VariableElement field : fields) {
+        CodeBlock.Builder readerSetupBuilder = CodeBlock.builder(), writerSetupBuilder = CodeBlock.builder();
+        if (ctx.options.getOrDefault("lenient", true))
+            readerSetupBuilder.addStatement("$L.setLenient(true)", gCtx.readerName);
+        if (ctx.options.getOrDefault("prettyPrinting", true))
+            writerSetupBuilder.addStatement("$L.setIndent($S)", gCtx.writerName, "  ");
+        generateEntryCodecs(gCtx,
+                CodeBlock.of("new $T(new $T(new $T(raw), $T.UTF_8))",
+                        readerType, InputStreamReader.class, ByteArrayInputStream.class, StandardCharsets.class),
+                readerSetupBuilder.build(),
+                CodeBlock.of("new $T(new $T(out, $T.UTF_8))", writerType, OutputStreamWriter.class, StandardCharsets.class),
+                writerSetupBuilder.build());
+    }
+
+    private static @NotNull String getNameTable(@NotNull GsonContext ctx, @NotNull TypeElement type,
+                                                @NotNull List<@NotNull VariableElement> fields) {
+        String tableName = "NAMES_" + StringUtils.camelCaseToSnakeCase(type.getSimpleName().toString()).toUpperCase(Locale.ROOT);
+        if (ctx.generatedMethods.contains(tableName))
+            return tableName;
+        ctx.generatedMethods.add(tableName);
+        // serialized names first, so a field's index in the table is also its index in the field list
+        ArrayList<String> names = new ArrayList<>();
+        for (VariableElement field : fields)
+            names.add(SerializerComponentProvider.getSerializedName(ctx.sCtx, field));
+        for (VariableElement field : fields)
+            Collections.addAll(names, SerializerComponentProvider.getSerializedAliases(field));
+        CodeBlock.Builder initBuilder = CodeBlock.builder().add("{\n").indent();
+        for (int i = 0, size = names.size(); i < size; i++)
+            initBuilder.add("$S.getBytes($T.UTF_8)$L\n", names.get(i), StandardCharsets.class, i < size - 1 ? "," : "");
+        ctx.classBuilder.addField(FieldSpec.builder(byte[][].class, tableName, Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                .initializer(initBuilder.unindent().add("}").build())
+                .build());
+        return tableName;
+    }
+
+    public static @NotNull CodeBlock generateReadFields(@NotNull GsonContext ctx, @NotNull TypeElement type,
+                                                        @NotNull List<@NotNull VariableElement> fields, @NotNull String objName) {
+        String tableName = ctx.nameTables ? getNameTable(ctx, type, fields) : null;
+        CodeBlock.Builder codeBuilder = CodeBlock.builder()
+                .addStatement("$L.beginObject()", ctx.readerName)
+                .beginControlFlow("while ($L.hasNext())", ctx.readerName)
+                .addStatement("$T token = $L.peek()", ctx.tokenType, ctx.readerName)
+                .beginControlFlow("if (token == $T.NAME)", ctx.tokenType);
+        if (tableName == null)
+            codeBuilder.addStatement("String name = $L.nextName()", ctx.readerName)
+                    .beginControlFlow("switch (name)");
+        else
+            codeBuilder.beginControlFlow("switch ($L.nextName($L))", ctx.readerName, tableName);
+        Element elementBackup = ctx.element;
+        int aliasIndex = fields.size();
+        for (int i = 0, size = fields.size(); i < size; i++) {
+            VariableElement field = fields.get(i);
             String fieldName = field.getSimpleName().toString();
-            String serializedName = SerializerComponentProvider.getSerializedName(ctx, field);
-            codeBuilder = CodeBlock.builder()
-                    .addStatement("$L.name($S)", gCtx.writerName, serializedName);
-            gCtx.element = field;
-            gCtx.appendWrite(field.asType(), serializedName, objName + "." + fieldName, codeBuilder);
-            ctx.writeMethodBuilder.addCode(codeBuilder.build());
+            String serializedName = SerializerComponentProvider.getSerializedName(ctx.sCtx, field);
+            if (tableName == null) {
+                codeBuilder.add("case $S:\n", serializedName);
+                for (String alias : SerializerComponentProvider.getSerializedAliases(field))
+                    codeBuilder.add("case $S:\n", alias);
+            } else {
+                codeBuilder.add("case $L: // $L\n", i, serializedName);
+                for (String alias : SerializerComponentProvider.getSerializedAliases(field))
+                    codeBuilder.add("case $L: // $L\n", aliasIndex++, alias);
+            }
+            codeBuilder.indent();
+            ctx.element = field;
+            ctx.appendRead(field.asType(), serializedName, objName + "." + fieldName, codeBuilder);
+            codeBuilder.addStatement("continue").unindent();
         }
-        ctx.writeMethodBuilder.addCode(CodeBlock.builder()
-                .addStatement("$L.endObject()", gCtx.writerName)
+        ctx.element = elementBackup;
+        return codeBuilder
                 .endControlFlow()
-                .build());
+                .endControlFlow()
+                .addStatement("$L.skipValue()", ctx.readerName)
+                .endControlFlow()
+                .addStatement("$L.endObject()", ctx.readerName)
+                .build();
+    }
+
+    public static @NotNull CodeBlock generateWriteFields(@NotNull GsonContext ctx, @NotNull TypeElement type,
+                                                         @NotNull List<@NotNull VariableElement> fields, @NotNull String objName) {
+        String tableName = ctx.nameTables ? getNameTable(ctx, type, fields) : null;
+        CodeBlock.Builder codeBuilder = CodeBlock.builder()
+                .addStatement("$L.beginObject()", ctx.writerName);
+        Element elementBackup = ctx.element;
+        for (int i = 0, size = fields.size(); i < size; i++) {
+            VariableElement field = fields.get(i);
+            String fieldName = field.getSimpleName().toString();
+            String serializedName = SerializerComponentProvider.getSerializedName(ctx.sCtx, field);
+            if (tableName == null)
+                codeBuilder.addStatement("$L.name($S)", ctx.writerName, serializedName);
+            else
+                codeBuilder.addStatement("$L.name($L, $L)", ctx.writerName, tableName, i);
+            ctx.element = field;
+            ctx.appendWrite(field.asType(), serializedName, objName + "." + fieldName, codeBuilder);
+        }
+        ctx.element = elementBackup;
+        return codeBuilder
+                .addStatement("$L.endObject()", ctx.writerName)
+                .build();
+    }
+
+    /**
+     * Generates codecs for the context's {@code @DirectoryBacked} fields, which store each entry as a single value.
+     * @param ctx context
+     * @param readerInit expression that creates a reader for the {@code byte[] raw}
+     * @param readerSetup statements that set up the reader
+     * @param writerInit expression that creates a writer for the {@code OutputStream out}
+     * @param writerSetup statements that set up the writer
+     */
+    public static void generateEntryCodecs(@NotNull GsonContext ctx, @NotNull CodeBlock readerInit, @NotNull CodeBlock readerSetup,
+                                           @NotNull CodeBlock writerInit, @NotNull CodeBlock writerSetup) {
+        Element elementBackup = ctx.element, enclosingElementBackup = ctx.enclosingElement;
+        for (VariableElement field : ctx.sCtx.entryFields) {
+            String fieldName = field.getSimpleName().toString();
+            TypeMirror valueType = SerializerComponentProvider.getEntryValueType(field);
+            TypeName valueTypeName = TypeName.get(valueType);
+            ctx.enclosingElement = field;
+            ctx.element = null;
+
+            String readMethodName = "read" + StringUtils.titleCase(fieldName) + "Entry";
+            CodeBlock.Builder codeBuilder = CodeBlock.builder()
+                    .beginControlFlow("try ($T $L = $L)", ctx.readerType, ctx.readerName, readerInit)
+                    .add(readerSetup)
+                    .addStatement("$T value = null", valueTypeName);
+            ctx.appendRead(valueType, null, "value", codeBuilder);
+            MethodSpec.Builder readMethodBuilder = MethodSpec.methodBuilder(readMethodName)
+                    .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                    .returns(valueTypeName)
+                    .addParameter(byte[].class, "raw")
+                    .addException(IOException.class)
+                    .addCode(codeBuilder
+                            .addStatement("return value")
+                            .endControlFlow()
+                            .build());
+            if (ctx.nullableAnnotation != null)
+                readMethodBuilder.addAnnotation(ctx.nullableAnnotation);
+
+            String writeMethodName = "write" + StringUtils.titleCase(fieldName) + "Entry";
+            codeBuilder = CodeBlock.builder()
+                    .addStatement("$1T out = new $1T()", ByteArrayOutputStream.class)
+                    .beginControlFlow("try ($T $L = $L)", ctx.writerType, ctx.writerName, writerInit)
+                    .add(writerSetup);
+            ctx.appendWrite(valueType, null, "value", codeBuilder);
+            MethodSpec.Builder writeMethodBuilder = MethodSpec.methodBuilder(writeMethodName)
+                    .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                    .returns(byte[].class)
+                    .addParameter(valueTypeName, "value")
+                    .addException(IOException.class)
+                    .addCode(codeBuilder
+                            .endControlFlow()
+                            .addStatement("return out.toByteArray()")
+                            .build());
+            if (ctx.nonNullAnnotation != null)
+                writeMethodBuilder.addAnnotation(ctx.nonNullAnnotation);
+
+            ctx.classBuilder.addMethod(readMethodBuilder.build())
+                    .addMethod(writeMethodBuilder.build());
+            SerializerComponentProvider.addEntryCodec(ctx.sCtx, field, readMethodName, writeMethodName, ctx.classBuilder);
+        }
+        ctx.element = elementBackup;
+        ctx.enclosingElement = enclosingElementBackup;
     }
 
     public static void generateGotFlags(@NotNull GsonContext ctx, @NotNull List<@NotNull VariableElement> fields) {
@@ -0,0 +1,264 @@
+package io.github.speedbridgemc.config.processor.serialize.gson;
+
+import com.squareup.javapoet.*;
+import io.github.speedbridgemc.config.LazySection;
+import io.github.speedbridgemc.config.processor.api.StringUtils;
+import io.github.speedbridgemc.config.processor.api.TypeUtils;
+import io.github.speedbridgemc.config.processor.serialize.api.gson.BaseGsonDelegate;
+import io.github.speedbridgemc.config.processor.serialize.api.gson.GsonContext;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Locale;
+
+public final class LazyGsonDelegate extends BaseGsonDelegate {
+    private static final ClassName LAZY_SECTION_NAME = ClassName.get(LazySection.class);
+    private static final ClassName DECODER_NAME = ClassName.get(LazySection.Decoder.class);
+    private static final String COPY_METHOD_NAME = "readRawValue";
+    private TypeMirror lazySectionTM;
+
+    @Override
+    public void init(@NotNull ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        lazySectionTM = TypeUtils.getTypeMirror(processingEnv, LazySection.class.getCanonicalName());
+        if (lazySectionTM != null)
+            lazySectionTM = types.erasure(lazySectionTM);
+    }
+
+    private @Nullable TypeMirror getValueType(@NotNull GsonContext ctx, @NotNull TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED || lazySectionTM == null)
+            return null;
+        DeclaredType declaredType = (DeclaredType) type;
+        if (!types.isSameType(types.erasure(declaredType), lazySectionTM))
+            return null;
+        List<? extends TypeMirror> typeArguments = declaredType.getTypeArguments();
+        if (typeArguments.size() == 0) {
+            messager.printMessage(Diagnostic.Kind.ERROR,
+                    "Serializer: Raw lazy sections are unsupported", ctx.getEffectiveElement());
+            return null;
+        }
+        return typeArguments.get(0);
+    }
+
+    private static @NotNull TypeName getRawType(@NotNull GsonContext ctx) {
+        // Gson's JsonReader can't hand out the text it's parsing, so values get re-encoded to a string instead
+        return ctx.rawValues ? ArrayTypeName.of(TypeName.BYTE) : ClassName.get(String.class);
+    }
+
+    @Override
+    public boolean appendRead(@NotNull GsonContext ctx, @NotNull TypeMirror type, @Nullable String name, @NotNull String dest, CodeBlock.@NotNull Builder codeBuilder) {
+        TypeMirror valueType = getValueType(ctx, type);
+        if (valueType == null)
+            return false;
+
+        String decoderName = generateDecoder(ctx, valueType);
+        codeBuilder
+                .beginControlFlow("if ($L.peek() == $T.NULL)", ctx.readerName, ctx.tokenType)
+                .addStatement("$L.skipValue()", ctx.readerName)
+                .addStatement("$L = null", dest)
+                .nextControlFlow("else");
+        if (ctx.rawValues)
+            codeBuilder.addStatement("$L = $T.deferred($L.readRawValue(), $L)", dest, LAZY_SECTION_NAME, ctx.readerName, decoderName);
+        else
+            codeBuilder.addStatement("$L = $T.deferred($L($L), $L)", dest, LAZY_SECTION_NAME,
+                    generateCopyMethod(ctx), ctx.readerName, decoderName);
+        codeBuilder.endControlFlow();
+
+        if (name != null) {
+            String gotFlag = ctx.gotFlags.get(name);
+            if (gotFlag != null)
+                codeBuilder.addStatement("$L = true", gotFlag);
+        }
+
+        return true;
+    }
+
+    private @NotNull String generateDecoder(@NotNull GsonContext ctx, @NotNull TypeMirror valueType) {
+        String typeSimpleName = StringUtils.titleCase(TypeUtils.getSimpleIdSafeName(valueType));
+        String methodName = "decode" + typeSimpleName + "LazySection";
+        String fieldName = "DECODE_" + StringUtils.camelCaseToSnakeCase(typeSimpleName).toUpperCase(Locale.ROOT) + "_LAZY_SECTION";
+        if (ctx.generatedMethods.contains(methodName))
+            return fieldName;
+        ctx.generatedMethods.add(methodName);
+        TypeName valueTypeName = TypeName.get(valueType);
+        TypeName rawTypeName = getRawType(ctx);
+        ParameterSpec.Builder rawParamBuilder = ParameterSpec.builder(rawTypeName, "raw");
+        if (ctx.nonNullAnnotation != null)
+            rawParamBuilder.addAnnotation(ctx.nonNullAnnotation);
+        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(methodName)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .returns(valueTypeName)
+                .addParameter(rawParamBuilder.build())
+                .addException(IOException.class);
+        if (ctx.nullableAnnotation != null)
+            methodBuilder.addAnnotation(ctx.nullableAnnotation);
+
+        CodeBlock.Builder codeBuilder = CodeBlock.builder();
+        if (ctx.rawValues)
+            codeBuilder.beginControlFlow("try ($1T $2L = new $1T(raw))", ctx.readerType, ctx.readerName);
+        else {
+            codeBuilder.beginControlFlow("try ($1T $2L = new $1T(new $3T(raw)))", ctx.readerType, ctx.readerName, StringReader.class)
+                    .addStatement("$L.setLenient(true)", ctx.readerName);
+        }
+        codeBuilder.addStatement("$T value = null", valueTypeName);
+
+        Element elementBackup = ctx.element, enclosingElementBackup = ctx.enclosingElement;
+        ctx.enclosingElement = elementBackup;
+        ctx.element = null;
+        ctx.appendRead(valueType, null, "value", codeBuilder);
+        ctx.element = elementBackup;
+        ctx.enclosingElement = enclosingElementBackup;
+
+        codeBuilder.addStatement("return value")
+                .endControlFlow();
+        methodBuilder.addCode(codeBuilder.build());
+        ctx.classBuilder.addMethod(methodBuilder.build());
+
+        ctx.classBuilder.addField(FieldSpec.builder(ParameterizedTypeName.get(DECODER_NAME, rawTypeName, valueTypeName), fieldName,
+                Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                .initializer("raw -> $L(raw)", methodName)
+                .build());
+        return fieldName;
+    }
+
+    private @NotNull String generateCopyMethod(@NotNull GsonContext ctx) {
+        if (ctx.generatedMethods.contains(COPY_METHOD_NAME))
+            return COPY_METHOD_NAME;
+        ctx.generatedMethods.add(COPY_METHOD_NAME);
+        ParameterSpec.Builder readerParamBuilder = ParameterSpec.builder(ctx.readerType, ctx.readerName);
+        if (ctx.nonNullAnnotation != null)
+            readerParamBuilder.addAnnotation(ctx.nonNullAnnotation);
+        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(COPY_METHOD_NAME)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .returns(String.class)
+                .addParameter(readerParamBuilder.build())
+                .addException(IOException.class);
+        if (ctx.nonNullAnnotation != null)
+            methodBuilder.addAnnotation(ctx.nonNullAnnotation);
+        String writer = ctx.writerName, reader = ctx.readerName;
+        CodeBlock.Builder codeBuilder = CodeBlock.builder()
+                .addStatement("$1T out = new $1T()", StringWriter.class)
+                .beginControlFlow("try ($1T $2L = new $1T(out))", ctx.writerType, writer)
+                .addStatement("$L.setLenient(true)", writer)
+                .addStatement("int depth = 0")
+                .beginControlFlow("do")
+                .addStatement("$T token = $L.peek()", ctx.tokenType, reader)
+                .beginControlFlow("switch (token)")
+                .add("case BEGIN_ARRAY:\n$>")
+                .addStatement("$L.beginArray()", reader)
+                .addStatement("$L.beginArray()", writer)
+                .addStatement("depth++")
+                .addStatement("break$<")
+                .add("case END_ARRAY:\n$>")
+                .addStatement("$L.endArray()", reader)
+                .addStatement("$L.endArray()", writer)
+                .addStatement("depth--")
+                .addStatement("break$<")
+                .add("case BEGIN_OBJECT:\n$>")
+                .addStatement("$L.beginObject()", reader)
+                .addStatement("$L.beginObject()", writer)
+                .addStatement("depth++")
+                .addStatement("break$<")
+                .add("case END_OBJECT:\n$>")
+                .addStatement("$L.endObject()", reader)
+                .addStatement("$L.endObject()", writer)
+                .addStatement("depth--")
+                .addStatement("break$<")
+                .add("case NAME:\n$>")
+                .addStatement("$L.name($L.nextName())", writer, reader)
+                .addStatement("break$<")
+                .add("case STRING:\n$>")
+                .addStatement("$L.value($L.nextString())", writer, reader)
+                .addStatement("break$<")
+                // keep numbers exactly as written, instead of round-tripping them through a double
+                .add("case NUMBER:\n$>")
+                .addStatement("$L.jsonValue($L.nextString())", writer, reader)
+                .addStatement("break$<")
+                .add("case BOOLEAN:\n$>")
+                .addStatement("$L.value($L.nextBoolean())", writer, reader)
+                .addStatement("break$<")
+                .add("case NULL:\n$>")
+                .addStatement("$L.nextNull()", reader)
+                .addStatement("$L.nullValue()", writer)
+                .addStatement("break$<")
+                .add("default:\n$>")
+                .addStatement("throw new $T($S + token)", IOException.class, "Expected a value but was ")
+                .add("$<")
+                .endControlFlow()
+                .endControlFlow("while (depth > 0)")
+                .endControlFlow()
+                .addStatement("return out.toString()");
+        methodBuilder.addCode(codeBuilder.build());
+        ctx.classBuilder.addMethod(methodBuilder.build());
+        return COPY_METHOD_NAME;
+    }
+
+    @Override
+    public boolean appendWrite(@NotNull GsonContext ctx, @NotNull TypeMirror type, @Nullable String name, @NotNull String src, CodeBlock.@NotNull Builder codeBuilder) {
+        TypeMirror valueType = getValueType(ctx, type);
+        if (valueType == null)
+            return false;
+
+        String methodName = generateWriteMethod(ctx, valueType);
+        codeBuilder.addStatement("$L($L, $L)", methodName, ctx.writerName, src);
+
+        return true;
+    }
+
+    private @NotNull String generateWriteMethod(@NotNull GsonContext ctx, @NotNull TypeMirror valueType) {
+        String typeSimpleName = StringUtils.titleCase(TypeUtils.getSimpleIdSafeName(valueType));
+        String methodName = "write" + typeSimpleName + "LazySection";
+        if (ctx.generatedMethods.contains(methodName))
+            return methodName;
+        ctx.generatedMethods.add(methodName);
+        String decoderName = generateDecoder(ctx, valueType);
+        TypeName valueTypeName = TypeName.get(valueType);
+        TypeName sectionTypeName = ParameterizedTypeName.get(LAZY_SECTION_NAME, valueTypeName);
+        ParameterSpec.Builder writerParamBuilder = ParameterSpec.builder(ctx.writerType, ctx.writerName);
+        if (ctx.nonNullAnnotation != null)
+            writerParamBuilder.addAnnotation(ctx.nonNullAnnotation);
+        ParameterSpec.Builder configParamBuilder = ParameterSpec.builder(sectionTypeName, "obj");
+        if (ctx.nullableAnnotation != null)
+            configParamBuilder.addAnnotation(ctx.nullableAnnotation);
+        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(methodName)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .addParameter(writerParamBuilder.build())
+                .addParameter(configParamBuilder.build())
+                .addException(IOException.class);
+
+        CodeBlock.Builder codeBuilder = CodeBlock.builder()
+                .beginControlFlow("if (obj == null)")
+                .addStatement("$L.nullValue()", ctx.writerName)
+                .addStatement("return")
+                .endControlFlow()
+                // sections that were never loaded are written back as they were read
+                .addStatement("$T raw = obj.getRaw($L)", getRawType(ctx), decoderName)
+                .beginControlFlow("if (raw != null)")
+                .addStatement(ctx.rawValues ? "$L.rawValue(raw)" : "$L.jsonValue(raw)", ctx.writerName)
+                .addStatement("return")
+                .endControlFlow()
+                .addStatement("$T value = obj.get()", valueTypeName);
+
+        Element elementBackup = ctx.element, enclosingElementBackup = ctx.enclosingElement;
+        ctx.enclosingElement = elementBackup;
+        ctx.element = null;
+        ctx.appendWrite(valueType, null, "value", codeBuilder);
+        ctx.element = elementBackup;
+        ctx.enclosingElement = enclosingElementBackup;
+
+        methodBuilder.addCode(codeBuilder.build());
+        ctx.classBuilder.addMethod(methodBuilder.build());
+        return methodName;
+    }
+}
@@ -60,7 +60,11 @@ public final class ListGsonDelegate extends BaseGsonDelegate {
             componentTypeName = componentTypeName.box();
 
         String methodName = generateReadMethod(ctx, componentTypeName, componentType);
-        codeBuilder.addStatement("$L = $L($L)", dest, methodName, ctx.readerName);
+        String sizeHint = ctx.getSizeHint(methodName);
+        codeBuilder.addStatement("$L = $L($L, $L)", dest, methodName, ctx.readerName, sizeHint)
+                .beginControlFlow("if ($L != null)", dest)
+                .addStatement("$L = $L.size()", sizeHint, dest)
+                .endControlFlow();
 
         if (name != null) {
             String gotFlag = ctx.gotFlags.get(name);
@@ -85,6 +89,7 @@ public final class ListGsonDelegate extends BaseGsonDelegate {
                 .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
                 .returns(listTypeName)
                 .addParameter(readerParamBuilder.build())
+                .addParameter(TypeName.INT, "sizeHint")
                 .addException(IOException.class);
         if (ctx.nullableAnnotation != null)
             methodBuilder.addAnnotation(ctx.nullableAnnotation);
@@ -94,7 +99,7 @@ public final class ListGsonDelegate extends BaseGsonDelegate {
                 .addStatement("$L.skipValue()", ctx.readerName)
                 .addStatement("return null")
                 .endControlFlow()
-                .addStatement("$1T $2L = new $1T()", listTypeName, listName)
+                .addStatement("$1T $2L = new $1T(sizeHint > 0 ? sizeHint : 10)", listTypeName, listName)
                 .build());
         CodeBlock.Builder codeBuilder = CodeBlock.builder();
 
@@ -146,6 +151,12 @@ public final class ListGsonDelegate extends BaseGsonDelegate {
 
         String methodName = generateWriteMethod(ctx, componentTypeName, componentType);
         codeBuilder.addStatement("$L($L, $L)", methodName, ctx.writerName, src);
+        // saves change what the next load will most likely see too
+        String sizeHint = ctx.getFieldSizeHint();
+        if (sizeHint != null)
+            codeBuilder.beginControlFlow("if ($L != null)", src)
+                    .addStatement("$L = $L.size()", sizeHint, src)
+                    .endControlFlow();
 
         return true;
     }
@@ -60,7 +60,11 @@ public final class MapGsonDelegate extends BaseGsonDelegate {
             return false;
 
         String methodName = generateReadMethod(ctx, keyType, valueType);
-        codeBuilder.addStatement("$L = $L($L)", dest, methodName, ctx.readerName);
+        String sizeHint = ctx.getSizeHint(methodName);
+        codeBuilder.addStatement("$L = $L($L, $L)", dest, methodName, ctx.readerName, sizeHint)
+                .beginControlFlow("if ($L != null)", dest)
+                .addStatement("$L = $L.size()", sizeHint, dest)
+                .endControlFlow();
 
         if (name != null) {
             String gotFlag = ctx.gotFlags.get(name);
@@ -88,6 +92,7 @@ public final class MapGsonDelegate extends BaseGsonDelegate {
                 .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
                 .returns(mapTypeName)
                 .addParameter(readerParamBuilder.build())
+                .addParameter(TypeName.INT, "sizeHint")
                 .addException(IOException.class);
         if (ctx.nullableAnnotation != null)
             methodBuilder.addAnnotation(ctx.nullableAnnotation);
@@ -97,7 +102,8 @@ public final class MapGsonDelegate extends BaseGsonDelegate {
                 .addStatement("$L.skipValue()", ctx.readerName)
                 .addStatement("return null")
                 .endControlFlow()
-                .addStatement("$1T $2L = new $1T()", mapTypeName, mapName)
+                // big enough to hold the hinted number of entries without resizing
+                .addStatement("$1T $2L = new $1T(sizeHint > 0 ? sizeHint * 4 / 3 + 1 : 16)", mapTypeName, mapName)
                 .build());
         CodeBlock.Builder codeBuilder = CodeBlock.builder();
 
@@ -207,6 +213,12 @@ public final class MapGsonDelegate extends BaseGsonDelegate {
 
         String methodName = generateWriteMethod(ctx, keyType, valueType);
         codeBuilder.addStatement("$L($L, $L)", methodName, ctx.writerName, src);
+        // saves change what the next load will most likely see too
+        String sizeHint = ctx.getFieldSizeHint();
+        if (sizeHint != null)
+            codeBuilder.beginControlFlow("if ($L != null)", src)
+                    .addStatement("$L = $L.size()", sizeHint, src)
+                    .endControlFlow();
 
         return true;
     }
@@ -76,32 +76,9 @@ public final class NestedGsonDelegate extends BaseGsonDelegate {
         methodBuilder.addCode("$1T $2L = new $1T();\n", typeName, objName);
         methodBuilder.addCode(CodeBlock.builder()
                 .add(GsonSerializerProvider.generateGotFlagDecls(ctx).build())
-                .addStatement("$L.beginObject()", ctx.readerName)
-                .beginControlFlow("while ($L.hasNext())", ctx.readerName)
-                .addStatement("$T token = $L.peek()", ctx.tokenType, ctx.readerName)
-                .beginControlFlow("if (token == $T.NAME)", ctx.tokenType)
-                .addStatement("String name = $L.nextName()", ctx.readerName)
-                .beginControlFlow("switch (name)")
-                .build());
-        CodeBlock.Builder codeBuilder = CodeBlock.builder();
-        for (VariableElement field : fields) {
-            String fieldName = field.getSimpleName().toString();
-            String serializedName = SerializerComponentProvider.getSerializedName(ctx.sCtx, field);
-            codeBuilder.add("case $S:\n", serializedName);
-            for (String alias : SerializerComponentProvider.getSerializedAliases(field))
-                codeBuilder.add("case $S:\n", alias);
-            codeBuilder.indent();
-            ctx.element = field;
-            ctx.appendRead(field.asType(), serializedName, objName + "." + fieldName, codeBuilder);
-            codeBuilder.addStatement("continue").unindent();
-        }
-        codeBuilder.add(CodeBlock.builder()
-                .endControlFlow()
-                .endControlFlow()
-                .addStatement("$L.skipValue()", ctx.readerName)
-                .endControlFlow()
-                .addStatement("$L.endObject()", ctx.readerName)
                 .build());
+        CodeBlock.Builder codeBuilder = CodeBlock.builder()
+                .add(GsonSerializerProvider.generateReadFields(ctx, typeElement, fields, objName));
         codeBuilder.add(GsonSerializerProvider.generateGotFlagChecks(ctx)
                 .addStatement("return $L", objName)
                 .build());
@@ -155,17 +132,8 @@ public final class NestedGsonDelegate extends BaseGsonDelegate {
                         .addStatement("$L.nullValue()", ctx.writerName)
                         .addStatement("return")
                         .endControlFlow()
-                        .addStatement("$L.beginObject()", ctx.writerName)
-                        .build());
-        for (VariableElement field : fields) {
-            String fieldName = field.getSimpleName().toString();
-            String serializedName = SerializerComponentProvider.getSerializedName(ctx.sCtx, field);
-            CodeBlock.Builder codeBuilder = CodeBlock.builder()
-                    .addStatement("$L.name($S)", ctx.writerName, serializedName);
-            ctx.appendWrite(field.asType(), serializedName, "obj." + fieldName, codeBuilder);
-            methodBuilder.addCode(codeBuilder.build());
-        }
-        methodBuilder.addCode("$L.endObject();\n", ctx.writerName);
+                        .build())
+                .addCode(GsonSerializerProvider.generateWriteFields(ctx, typeElement, fields, "obj"));
         ctx.classBuilder.addMethod(methodBuilder.build());
         return methodName;
     }
@@ -0,0 +1,178 @@
+package io.github.speedbridgemc.config.processor.serialize.gson;
+
+import com.squareup.javapoet.*;
+import io.github.speedbridgemc.config.collect.FloatList;
+import io.github.speedbridgemc.config.collect.IntList;
+import io.github.speedbridgemc.config.collect.LongList;
+import io.github.speedbridgemc.config.processor.serialize.api.gson.BaseGsonDelegate;
+import io.github.speedbridgemc.config.processor.serialize.api.gson.GsonContext;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import java.io.IOException;
+import java.util.HashMap;
+
+public final class PrimitiveListGsonDelegate extends BaseGsonDelegate {
+    private static final HashMap<TypeName, TypeKind> COMPONENT_KINDS = new HashMap<>();
+    private static final HashMap<TypeName, String> PACKED_READ_METHODS = new HashMap<>();
+
+    static {
+        COMPONENT_KINDS.put(ClassName.get(IntList.class), TypeKind.INT);
+        COMPONENT_KINDS.put(ClassName.get(LongList.class), TypeKind.LONG);
+        COMPONENT_KINDS.put(ClassName.get(FloatList.class), TypeKind.FLOAT);
+        PACKED_READ_METHODS.put(ClassName.get(IntList.class), "nextIntArray");
+        PACKED_READ_METHODS.put(ClassName.get(LongList.class), "nextLongArray");
+        PACKED_READ_METHODS.put(ClassName.get(FloatList.class), "nextFloatArray");
+    }
+
+    @Override
+    public boolean appendRead(@NotNull GsonContext ctx, @NotNull TypeMirror type, @Nullable String name, @NotNull String dest, CodeBlock.@NotNull Builder codeBuilder) {
+        TypeName typeName = TypeName.get(type);
+        TypeKind componentKind = COMPONENT_KINDS.get(typeName);
+        if (componentKind == null)
+            return false;
+
+        String methodName = generateReadMethod(ctx, typeName, types.getPrimitiveType(componentKind));
+        String sizeHint = ctx.getSizeHint(methodName);
+        codeBuilder.addStatement("$L = $L($L, $L)", dest, methodName, ctx.readerName, sizeHint)
+                .beginControlFlow("if ($L != null)", dest)
+                .addStatement("$L = $L.size()", sizeHint, dest)
+                .endControlFlow();
+
+        if (name != null) {
+            String gotFlag = ctx.gotFlags.get(name);
+            if (gotFlag != null)
+                codeBuilder.addStatement("$L = true", gotFlag);
+        }
+
+        return true;
+    }
+
+    private @NotNull String generateReadMethod(@NotNull GsonContext ctx, @NotNull TypeName listTypeName, @NotNull TypeMirror componentType) {
+        String listSimpleName = ((ClassName) listTypeName).simpleName();
+        String methodName = "read" + listSimpleName;
+        if (ctx.generatedMethods.contains(methodName))
+            return methodName;
+        ctx.generatedMethods.add(methodName);
+        ParameterSpec.Builder readerParamBuilder = ParameterSpec.builder(ctx.readerType, ctx.readerName);
+        if (ctx.nonNullAnnotation != null)
+            readerParamBuilder.addAnnotation(ctx.nonNullAnnotation);
+        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(methodName)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .returns(listTypeName)
+                .addParameter(readerParamBuilder.build())
+                .addParameter(TypeName.INT, "sizeHint")
+                .addException(IOException.class);
+        if (ctx.nullableAnnotation != null)
+            methodBuilder.addAnnotation(ctx.nullableAnnotation);
+        CodeBlock.Builder codeBuilder = CodeBlock.builder()
+                .beginControlFlow("if ($L.peek() == $T.NULL)", ctx.readerName, ctx.tokenType)
+                .addStatement("$L.skipValue()", ctx.readerName)
+                .addStatement("return null")
+                .endControlFlow();
+        if (ctx.packedArrays) {
+            methodBuilder.addCode(codeBuilder
+                    .addStatement("return $T.wrap($L.$L())", listTypeName, ctx.readerName, PACKED_READ_METHODS.get(listTypeName))
+                    .build());
+            ctx.classBuilder.addMethod(methodBuilder.build());
+            return methodName;
+        }
+
+        String listName = "list";
+        String compDest = "comp";
+        codeBuilder
+                .addStatement("$1T $2L = new $1T(sizeHint > 0 ? sizeHint : 10)", listTypeName, listName)
+                .addStatement("$L.beginArray()", ctx.readerName)
+                .beginControlFlow("while ($L.hasNext())", ctx.readerName)
+                .addStatement("$T $L", componentType, compDest);
+
+        Element elementBackup = ctx.element, enclosingElementBackup = ctx.enclosingElement;
+        ctx.enclosingElement = elementBackup;
+        ctx.element = null;
+        ctx.appendRead(componentType, null, compDest, codeBuilder);
+        ctx.element = elementBackup;
+        ctx.enclosingElement = enclosingElementBackup;
+
+        codeBuilder
+                .addStatement("$L.add($L)", listName, compDest)
+                .endControlFlow()
+                .addStatement("$L.endArray()", ctx.readerName)
+                .addStatement("return $L", listName);
+        methodBuilder.addCode(codeBuilder.build());
+        ctx.classBuilder.addMethod(methodBuilder.build());
+        return methodName;
+    }
+
+    @Override
+    public boolean appendWrite(@NotNull GsonContext ctx, @NotNull TypeMirror type, @Nullable String name, @NotNull String src, CodeBlock.@NotNull Builder codeBuilder) {
+        TypeName typeName = TypeName.get(type);
+        TypeKind componentKind = COMPONENT_KINDS.get(typeName);
+        if (componentKind == null)
+            return false;
+
+        String methodName = generateWriteMethod(ctx, typeName, types.getPrimitiveType(componentKind));
+        codeBuilder.addStatement("$L($L, $L)", methodName, ctx.writerName, src);
+        // saves change what the next load will most likely see too
+        String sizeHint = ctx.getFieldSizeHint();
+        if (sizeHint != null)
+            codeBuilder.beginControlFlow("if ($L != null)", src)
+                    .addStatement("$L = $L.size()", sizeHint, src)
+                    .endControlFlow();
+
+        return true;
+    }
+
+    private @NotNull String generateWriteMethod(@NotNull GsonContext ctx, @NotNull TypeName listTypeName, @NotNull TypeMirror componentType) {
+        String methodName = "write" + ((ClassName) listTypeName).simpleName();
+        if (ctx.generatedMethods.contains(methodName))
+            return methodName;
+        ctx.generatedMethods.add(methodName);
+        ParameterSpec.Builder writerParamBuilder = ParameterSpec.builder(ctx.writerType, "writer");
+        if (ctx.nonNullAnnotation != null)
+            writerParamBuilder.addAnnotation(ctx.nonNullAnnotation);
+        String src = "obj";
+        ParameterSpec.Builder configParamBuilder = ParameterSpec.builder(listTypeName, src);
+        if (ctx.nullableAnnotation != null)
+            configParamBuilder.addAnnotation(ctx.nullableAnnotation);
+        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(methodName)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .addParameter(writerParamBuilder.build())
+                .addParameter(configParamBuilder.build())
+                .addException(IOException.class);
+
+        CodeBlock.Builder codeBuilder = CodeBlock.builder()
+                .beginControlFlow("if (obj == null)")
+                .addStatement("$L.nullValue()", ctx.writerName)
+                .addStatement("return")
+                .endControlFlow();
+        if (ctx.packedArrays) {
+            methodBuilder.addCode(codeBuilder
+                    .addStatement("$L.value($L.toArray())", ctx.writerName, src)
+                    .build());
+            ctx.classBuilder.addMethod(methodBuilder.build());
+            return methodName;
+        }
+
+        Element elementBackup = ctx.element, enclosingElementBackup = ctx.enclosingElement;
+        ctx.enclosingElement = elementBackup;
+        ctx.element = null;
+
+        codeBuilder.addStatement("$L.beginArray()", ctx.writerName)
+                .beginControlFlow("for (int i = 0, size = $1L.size(); i < size; i++)", src)
+                .addStatement("$T comp = $L.get(i)", componentType, src);
+        ctx.appendWrite(componentType, null, "comp", codeBuilder);
+        codeBuilder.endControlFlow()
+                .addStatement("$L.endArray()", ctx.writerName);
+
+        ctx.element = elementBackup;
+        ctx.enclosingElement = enclosingElementBackup;
+
+        methodBuilder.addCode(codeBuilder.build());
+        ctx.classBuilder.addMethod(methodBuilder.build());
+        return methodName;
+    }
+}
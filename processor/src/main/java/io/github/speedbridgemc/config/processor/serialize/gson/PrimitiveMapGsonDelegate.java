@@ -0,0 +1,242 @@
+package io.github.speedbridgemc.config.processor.serialize.gson;
+
+import com.squareup.javapoet.*;
+import io.github.speedbridgemc.config.collect.IntObjectMap;
+import io.github.speedbridgemc.config.collect.LongObjectMap;
+import io.github.speedbridgemc.config.processor.api.StringUtils;
+import io.github.speedbridgemc.config.processor.api.TypeUtils;
+import io.github.speedbridgemc.config.processor.serialize.api.gson.BaseGsonDelegate;
+import io.github.speedbridgemc.config.processor.serialize.api.gson.GsonContext;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+
+public final class PrimitiveMapGsonDelegate extends BaseGsonDelegate {
+    private static final HashMap<TypeName, TypeKind> KEY_KINDS = new HashMap<>();
+
+    static {
+        KEY_KINDS.put(ClassName.get(IntObjectMap.class), TypeKind.INT);
+        KEY_KINDS.put(ClassName.get(LongObjectMap.class), TypeKind.LONG);
+    }
+
+    private @Nullable TypeMirror getValueType(@NotNull GsonContext ctx, @NotNull TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED)
+            return null;
+        DeclaredType declaredType = (DeclaredType) type;
+        if (!KEY_KINDS.containsKey(TypeName.get(types.erasure(declaredType))))
+            return null;
+        List<? extends TypeMirror> typeArguments = declaredType.getTypeArguments();
+        if (typeArguments.size() == 0) {
+            messager.printMessage(Diagnostic.Kind.ERROR,
+                    "Serializer: Raw maps are unsupported", ctx.getEffectiveElement());
+            return null;
+        }
+        return typeArguments.get(0);
+    }
+
+    @Override
+    public boolean appendRead(@NotNull GsonContext ctx, @NotNull TypeMirror type, @Nullable String name, @NotNull String dest, CodeBlock.@NotNull Builder codeBuilder) {
+        TypeMirror valueType = getValueType(ctx, type);
+        if (valueType == null)
+            return false;
+
+        String methodName = generateReadMethod(ctx, (DeclaredType) type, valueType);
+        String sizeHint = ctx.getSizeHint(methodName);
+        codeBuilder.addStatement("$L = $L($L, $L)", dest, methodName, ctx.readerName, sizeHint)
+                .beginControlFlow("if ($L != null)", dest)
+                .addStatement("$L = $L.size()", sizeHint, dest)
+                .endControlFlow();
+
+        if (name != null) {
+            String gotFlag = ctx.gotFlags.get(name);
+            if (gotFlag != null)
+                codeBuilder.addStatement("$L = true", gotFlag);
+        }
+
+        return true;
+    }
+
+    private @NotNull String generateReadMethod(@NotNull GsonContext ctx, @NotNull DeclaredType mapType, @NotNull TypeMirror valueType) {
+        TypeMirror keyType = types.getPrimitiveType(KEY_KINDS.get(TypeName.get(types.erasure(mapType))));
+        String keyTypeSimpleName = StringUtils.titleCase(TypeUtils.getSimpleIdSafeName(keyType));
+        String valueTypeSimpleName = StringUtils.titleCase(TypeUtils.getSimpleIdSafeName(valueType));
+        String methodName = "read" + keyTypeSimpleName + "2" + valueTypeSimpleName + "Map";
+        if (ctx.generatedMethods.contains(methodName))
+            return methodName;
+        ctx.generatedMethods.add(methodName);
+        TypeName mapTypeName = TypeName.get(mapType);
+        ParameterSpec.Builder readerParamBuilder = ParameterSpec.builder(ctx.readerType, ctx.readerName);
+        if (ctx.nonNullAnnotation != null)
+            readerParamBuilder.addAnnotation(ctx.nonNullAnnotation);
+        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(methodName)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .returns(mapTypeName)
+                .addParameter(readerParamBuilder.build())
+                .addParameter(TypeName.INT, "sizeHint")
+                .addException(IOException.class);
+        if (ctx.nullableAnnotation != null)
+            methodBuilder.addAnnotation(ctx.nullableAnnotation);
+        String mapName = "map" + keyTypeSimpleName + "2" + valueTypeSimpleName;
+        methodBuilder.addCode(CodeBlock.builder()
+                .beginControlFlow("if ($L.peek() == $T.NULL)", ctx.readerName, ctx.tokenType)
+                .addStatement("$L.skipValue()", ctx.readerName)
+                .addStatement("return null")
+                .endControlFlow()
+                .addStatement("$1T $2L = new $1T(sizeHint)", mapTypeName, mapName)
+                .build());
+        CodeBlock.Builder codeBuilder = CodeBlock.builder();
+
+        // same layout as maps with non-string keys: an array of key/value pair objects
+        String tokenDest = "token";
+        String nameDest = "name";
+        String keyDest = "key";
+        String valueDest = "value";
+        Element elementBackup = ctx.element, enclosingElementBackup = ctx.enclosingElement;
+        ctx.enclosingElement = elementBackup;
+        ctx.element = null;
+        HashMap<String, String> gotFlagsBackup = new HashMap<>(ctx.gotFlags);
+        HashMap<String, String> missingErrorMessagesBackup = new HashMap<>(ctx.missingErrorMessages);
+        ctx.gotFlags.clear();
+        ctx.gotFlags.put(keyDest, "got" + StringUtils.titleCase(keyDest));
+        ctx.gotFlags.put(valueDest, "got" + StringUtils.titleCase(valueDest));
+        ctx.missingErrorMessages.clear();
+        ctx.missingErrorMessages.put(keyDest, "Missing complex map entry key!");
+        ctx.missingErrorMessages.put(valueDest, "Missing complex map entry value!");
+
+        codeBuilder.add(GsonSerializerProvider.generateGotFlagDecls(ctx).build());
+        codeBuilder
+                .addStatement("$T $L = 0", keyType, keyDest)
+                .addStatement("$T $L = null", valueType, valueDest)
+                .addStatement("$L.beginArray()", ctx.readerName)
+                .beginControlFlow("while ($L.hasNext())", ctx.readerName)
+                .addStatement("$L.beginObject()", ctx.readerName)
+                .beginControlFlow("while ($L.hasNext())", ctx.readerName)
+                .addStatement("$T $L = $L.peek()", ctx.tokenType, tokenDest, ctx.readerName)
+                .beginControlFlow("if ($L == $T.NAME)", tokenDest, ctx.tokenType)
+                .addStatement("String $L = $L.nextName()", nameDest, ctx.readerName)
+                .beginControlFlow("if ($S.equals($L))", "key", nameDest);
+        ctx.appendRead(keyType, keyDest, keyDest, codeBuilder);
+        codeBuilder
+                .addStatement("continue")
+                .nextControlFlow("else if ($S.equals($L))", "value", nameDest);
+        ctx.appendRead(valueType, valueDest, valueDest, codeBuilder);
+        codeBuilder
+                .addStatement("continue")
+                .endControlFlow()
+                .endControlFlow()
+                .addStatement("$L.skipValue()", ctx.readerName)
+                .endControlFlow()
+                .addStatement("$L.endObject()", ctx.readerName);
+        codeBuilder.add(GsonSerializerProvider.generateGotFlagChecks(ctx).build());
+        codeBuilder
+                .addStatement("$L.put($L, $L)", mapName, keyDest, valueDest)
+                .addStatement("$L = null", valueDest)
+                .endControlFlow()
+                .addStatement("$L.endArray()", ctx.readerName);
+
+        ctx.gotFlags.clear();
+        ctx.gotFlags.putAll(gotFlagsBackup);
+        ctx.missingErrorMessages.clear();
+        ctx.missingErrorMessages.putAll(missingErrorMessagesBackup);
+        ctx.element = elementBackup;
+        ctx.enclosingElement = enclosingElementBackup;
+
+        codeBuilder.addStatement("return $L", mapName);
+        methodBuilder.addCode(codeBuilder.build());
+        ctx.classBuilder.addMethod(methodBuilder.build());
+        return methodName;
+    }
+
+    @Override
+    public boolean appendWrite(@NotNull GsonContext ctx, @NotNull TypeMirror type, @Nullable String name, @NotNull String src, CodeBlock.@NotNull Builder codeBuilder) {
+        TypeMirror valueType = getValueType(ctx, type);
+        if (valueType == null)
+            return false;
+
+        String methodName = generateWriteMethod(ctx, (DeclaredType) type, valueType);
+        codeBuilder.addStatement("$L($L, $L)", methodName, ctx.writerName, src);
+        // saves change what the next load will most likely see too
+        String sizeHint = ctx.getFieldSizeHint();
+        if (sizeHint != null)
+            codeBuilder.beginControlFlow("if ($L != null)", src)
+                    .addStatement("$L = $L.size()", sizeHint, src)
+                    .endControlFlow();
+
+        return true;
+    }
+
+    private @NotNull String generateWriteMethod(@NotNull GsonContext ctx, @NotNull DeclaredType mapType, @NotNull TypeMirror valueType) {
+        TypeMirror keyType = types.getPrimitiveType(KEY_KINDS.get(TypeName.get(types.erasure(mapType))));
+        String keyTypeSimpleName = StringUtils.titleCase(TypeUtils.getSimpleIdSafeName(keyType));
+        String valueTypeSimpleName = StringUtils.titleCase(TypeUtils.getSimpleIdSafeName(valueType));
+        String methodName = "write" + keyTypeSimpleName + "2" + valueTypeSimpleName + "Map";
+        if (ctx.generatedMethods.contains(methodName))
+            return methodName;
+        ctx.generatedMethods.add(methodName);
+        TypeName mapTypeName = TypeName.get(mapType);
+        ParameterSpec.Builder writerParamBuilder = ParameterSpec.builder(ctx.writerType, "writer");
+        if (ctx.nonNullAnnotation != null)
+            writerParamBuilder.addAnnotation(ctx.nonNullAnnotation);
+        String src = "obj";
+        ParameterSpec.Builder configParamBuilder = ParameterSpec.builder(mapTypeName, src);
+        if (ctx.nullableAnnotation != null)
+            configParamBuilder.addAnnotation(ctx.nullableAnnotation);
+        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(methodName)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .addParameter(writerParamBuilder.build())
+                .addParameter(configParamBuilder.build())
+                .addException(IOException.class);
+
+        CodeBlock.Builder codeBuilder = CodeBlock.builder()
+                .beginControlFlow("if (obj == null)")
+                .addStatement("$L.nullValue()", ctx.writerName)
+                .addStatement("return")
+                .endControlFlow();
+        String cursorSrc = "cursor";
+        String keySrc = "key";
+        String valueSrc = "value";
+
+        Element elementBackup = ctx.element, enclosingElementBackup = ctx.enclosingElement;
+        ctx.enclosingElement = elementBackup;
+        ctx.element = null;
+
+        codeBuilder
+                .addStatement("$T $L", keyType, keySrc)
+                .addStatement("$T $L", valueType, valueSrc)
+                .addStatement("$T $L = $L.cursor()", getCursorType(mapTypeName), cursorSrc, src)
+                .addStatement("$L.beginArray()", ctx.writerName)
+                .beginControlFlow("while ($L.advance())", cursorSrc)
+                .addStatement("$L = $L.key()", keySrc, cursorSrc)
+                .addStatement("$L = $L.value()", valueSrc, cursorSrc)
+                .addStatement("$L.beginObject()", ctx.writerName)
+                .addStatement("$L.name($S)", ctx.writerName, "key");
+        ctx.appendWrite(keyType, null, keySrc, codeBuilder);
+        codeBuilder.addStatement("$L.name($S)", ctx.writerName, "value");
+        ctx.appendWrite(valueType, null, valueSrc, codeBuilder);
+        codeBuilder
+                .addStatement("$L.endObject()", ctx.writerName)
+                .endControlFlow()
+                .addStatement("$L.endArray()", ctx.writerName);
+
+        ctx.element = elementBackup;
+        ctx.enclosingElement = enclosingElementBackup;
+
+        methodBuilder.addCode(codeBuilder.build());
+        ctx.classBuilder.addMethod(methodBuilder.build());
+        return methodName;
+    }
+
+    private static @NotNull TypeName getCursorType(@NotNull TypeName mapTypeName) {
+        ParameterizedTypeName mapType = (ParameterizedTypeName) mapTypeName;
+        return ParameterizedTypeName.get(mapType.rawType.nestedClass("Cursor"), mapType.typeArguments.get(0));
+    }
+}
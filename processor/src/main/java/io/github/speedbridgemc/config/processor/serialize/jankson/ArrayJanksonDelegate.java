@@ -15,11 +15,8 @@ import javax.lang.model.type.ArrayType;
 import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
 import java.io.IOException;
-import java.util.ArrayList;
 
 public final class ArrayJanksonDelegate extends BaseJanksonDelegate {
-    private static final ClassName ARRAY_LIST_NAME = ClassName.get(ArrayList.class);
-
     @Override
     public boolean appendRead(@NotNull JanksonContext ctx, @NotNull TypeMirror type, @Nullable String name, @NotNull String dest, CodeBlock.@NotNull Builder codeBuilder) {
         if (type.getKind() != TypeKind.ARRAY)
@@ -50,11 +47,8 @@ public final class ArrayJanksonDelegate extends BaseJanksonDelegate {
                 .addException(IOException.class);
         if (ctx.nullableAnnotation != null)
             methodBuilder.addAnnotation(ctx.nullableAnnotation);
-        String listName = "list" + typeSimpleName;
-        TypeName listCompType = componentTypeName;
-        if (listCompType.isPrimitive())
-            listCompType = listCompType.box();
-        TypeName listTypeName = ParameterizedTypeName.get(ARRAY_LIST_NAME, listCompType);
+        // JSON arrays know their size up front, so read straight into an array of the actual component type
+        String arrName = "arr" + typeSimpleName;
         String compDest = "comp";
         String elemDest = "elem" + typeSimpleName;
         CodeBlock.Builder codeBuilder = CodeBlock.builder()
@@ -62,7 +56,8 @@ public final class ArrayJanksonDelegate extends BaseJanksonDelegate {
                 .addStatement("return null")
                 .nextControlFlow("else if ($L instanceof $T)", ctx.elementName, ctx.arrayType)
                 .addStatement("$2T $1L = ($2T) $3L", ctx.arrayName, ctx.arrayType, ctx.elementName)
-                .addStatement("$1T $2L = new $1T()", listTypeName, listName)
+                .addStatement("$T $L = $L", arrayTypeName, arrName, newArray(componentTypeName, ctx.arrayName + ".size()"))
+                .addStatement("int count = 0")
                 .addStatement("$T $L", ctx.primitiveType, ctx.primitiveName)
                 .addStatement("$T $L = $L", componentType, compDest, SerializerComponentProvider.getDefaultValue(componentTypeName))
                 .beginControlFlow("for ($T $L : $L)", ctx.elementType, elemDest, ctx.arrayName);
@@ -80,27 +75,9 @@ public final class ArrayJanksonDelegate extends BaseJanksonDelegate {
         ctx.elementName = elementNameBackup;
 
         codeBuilder
-                .addStatement("$L.add($L)", listName, compDest)
-                .endControlFlow();
-        if (componentTypeName instanceof ArrayTypeName) {
-            TypeName tn = componentTypeName;
-            StringBuilder ib = new StringBuilder("[0]");
-            while (tn instanceof ArrayTypeName) {
-                ib.append("[]");
-                tn = ((ArrayTypeName) tn).componentType;
-            }
-            codeBuilder
-                    .addStatement("return $L.toArray(new $T" + ib + ")", listName, tn);
-        } else if (componentTypeName.isPrimitive()) {
-            codeBuilder
-                    .addStatement("$1T[] tmp = new $1T[$2L.size()]", componentTypeName, listName)
-                    .beginControlFlow("for (int i = 0; i < tmp.length; i++)")
-                    .addStatement("tmp[i] = $L.get(i)", listName)
-                    .endControlFlow()
-                    .addStatement("return tmp");
-        } else
-            codeBuilder
-                    .addStatement("return $L.toArray(new $T[0])", listName, componentTypeName);
+                .addStatement("$L[count++] = $L", arrName, compDest)
+                .endControlFlow()
+                .addStatement("return $L", arrName);
         codeBuilder
                 .nextControlFlow("else")
                 .addStatement("throw new $T($S + $L.getClass().getSimpleName() + $S)",
@@ -111,6 +88,19 @@ public final class ArrayJanksonDelegate extends BaseJanksonDelegate {
         return methodName;
     }
 
+    private static @NotNull CodeBlock newArray(@NotNull TypeName componentTypeName, @NotNull String length) {
+        // new Foo[length][], not new Foo[][length]
+        StringBuilder dimensions = new StringBuilder();
+        TypeName tn = componentTypeName;
+        while (tn instanceof ArrayTypeName) {
+            dimensions.append("[]");
+            tn = ((ArrayTypeName) tn).componentType;
+        }
+        if (tn instanceof ParameterizedTypeName)
+            tn = ((ParameterizedTypeName) tn).rawType;
+        return CodeBlock.of("new $T[$L]$L", tn, length, dimensions.toString());
+    }
+
     @Override
     public boolean appendWrite(@NotNull JanksonContext ctx, @NotNull TypeMirror type, @Nullable String name, @NotNull String src, CodeBlock.@NotNull Builder codeBuilder) {
         if (type.getKind() != TypeKind.ARRAY)
@@ -177,4 +167,51 @@ public final class ArrayJanksonDelegate extends BaseJanksonDelegate {
         ctx.classBuilder.addMethod(methodBuilder.build());
         return methodName;
     }
+
+    @Override
+    public boolean appendStreamWrite(@NotNull JanksonContext ctx, @NotNull TypeMirror type, @Nullable String name, @NotNull String src,
+                                     @NotNull String depth, CodeBlock.@NotNull Builder codeBuilder) {
+        if (type.getKind() != TypeKind.ARRAY)
+            return false;
+        TypeMirror componentType = ((ArrayType) type).getComponentType();
+
+        String methodName = generateStreamWriteMethod(ctx, TypeName.get(componentType), componentType);
+        codeBuilder.addStatement("$L(writer, $L, $L)", methodName, src, depth);
+        return true;
+    }
+
+    private @NotNull String generateStreamWriteMethod(@NotNull JanksonContext ctx, @NotNull TypeName componentTypeName, @NotNull TypeMirror componentType) {
+        String typeSimpleName = StringUtils.titleCase(TypeUtils.getSimpleIdSafeName(componentType));
+        String methodName = "write" + typeSimpleName + "ArrayJson5";
+        if (ctx.generatedMethods.contains(methodName))
+            return methodName;
+        ctx.generatedMethods.add(methodName);
+        MethodSpec.Builder methodBuilder = ctx.createStreamWriteMethod(methodName, ArrayTypeName.of(componentTypeName), "obj");
+        String compSrc = "comp";
+        CodeBlock.Builder codeBuilder = CodeBlock.builder()
+                .beginControlFlow("if (obj.length == 0)")
+                .addStatement("writer.write($S)", "[]")
+                .addStatement("return")
+                .endControlFlow()
+                .addStatement("writer.write('[')")
+                .beginControlFlow("for (int i = 0; i < obj.length; i++)")
+                .addStatement("$T $L = obj[i]", componentTypeName, compSrc)
+                .addStatement("writeJson5Newline(writer, depth + 1)");
+
+        Element elementBackup = ctx.element, enclosingElementBackup = ctx.enclosingElement;
+        ctx.enclosingElement = elementBackup;
+        ctx.element = null;
+        ctx.appendStreamWrite(componentType, null, compSrc, "depth + 1", codeBuilder);
+        ctx.element = elementBackup;
+        ctx.enclosingElement = enclosingElementBackup;
+
+        codeBuilder
+                .addStatement("writeJson5Separator(writer, i == obj.length - 1)")
+                .endControlFlow()
+                .addStatement("writeJson5Newline(writer, depth)")
+                .addStatement("writer.write(']')");
+        methodBuilder.addCode(codeBuilder.build());
+        ctx.classBuilder.addMethod(methodBuilder.build());
+        return methodName;
+    }
 }
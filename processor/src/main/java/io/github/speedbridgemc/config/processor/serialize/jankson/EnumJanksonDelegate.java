@@ -51,7 +51,7 @@ public final class EnumJanksonDelegate extends BaseJanksonDelegate {
         if (ctx.nullableAnnotation != null)
             methodBuilder.addAnnotation(ctx.nullableAnnotation);
         CodeBlock.Builder codeBuilder = CodeBlock.builder();
-        SerializerComponentProvider.EnumKeyType keyType = SerializerComponentProvider.getEnumKeyType(processingEnv, typeElement, ctx.classBuilder);
+        SerializerComponentProvider.EnumKeyType keyType = SerializerComponentProvider.getEnumKeyType(processingEnv, typeElement);
         if (keyType != null) {
             TypeMirror keyTypeMirror = keyType.type;
             TypeName keyTypeName = TypeName.get(keyTypeMirror);
@@ -70,9 +70,11 @@ public final class EnumJanksonDelegate extends BaseJanksonDelegate {
         } else {
             String nameName = "name" + StringUtils.titleCase(typeSimpleName);
             codeBuilder
+                    .beginControlFlow("if ($L == $T.INSTANCE)", ctx.elementName, ctx.nullType)
+                    .addStatement("return null")
                     .nextControlFlow("else if ($L instanceof $T)", ctx.elementName, ctx.primitiveType)
                     .addStatement("$1T $2L = ($1T) $3L", ctx.primitiveType, ctx.primitiveName, ctx.elementName)
-                    .addStatement("$1T $2L = $1T.valueOf($3L)", String.class, nameName, ctx.primitiveName)
+                    .addStatement("$1T $2L = $1T.valueOf($3L.getValue())", String.class, nameName, ctx.primitiveName)
                     .beginControlFlow("try")
                     .addStatement("return $T.valueOf($L)", typeName, nameName)
                     .nextControlFlow("catch ($T e)", IllegalArgumentException.class)
@@ -125,7 +127,7 @@ public final class EnumJanksonDelegate extends BaseJanksonDelegate {
                 .beginControlFlow("if ($L == null)", configName)
                 .addStatement("return $T.INSTANCE", ctx.nullType)
                 .endControlFlow();
-        SerializerComponentProvider.EnumKeyType keyType = SerializerComponentProvider.getEnumKeyType(processingEnv, typeElement, ctx.classBuilder);
+        SerializerComponentProvider.EnumKeyType keyType = SerializerComponentProvider.getEnumKeyType(processingEnv, typeElement);
         if (keyType != null) {
             TypeMirror keyTypeMirror = keyType.type;
             TypeName keyTypeName = TypeName.get(keyTypeMirror);
@@ -146,4 +148,46 @@ public final class EnumJanksonDelegate extends BaseJanksonDelegate {
         ctx.classBuilder.addMethod(methodBuilder.build());
         return methodName;
     }
+
+    @Override
+    public boolean appendStreamWrite(@NotNull JanksonContext ctx, @NotNull TypeMirror type, @Nullable String name, @NotNull String src,
+                                     @NotNull String depth, CodeBlock.@NotNull Builder codeBuilder) {
+        Element typeElementRaw = types.asElement(type);
+        if (typeElementRaw == null || typeElementRaw.getKind() != ElementKind.ENUM)
+            return false;
+        TypeElement typeElement = (TypeElement) typeElementRaw;
+        TypeName typeName = TypeName.get(type);
+        String methodName = generateStreamWriteMethod(ctx, typeName, typeElement);
+        codeBuilder.addStatement("$L(writer, $L, $L)", methodName, src, depth);
+        return true;
+    }
+
+    private @NotNull String generateStreamWriteMethod(@NotNull JanksonContext ctx, @NotNull TypeName typeName, @NotNull TypeElement typeElement) {
+        String typeSimpleName = typeElement.getSimpleName().toString();
+        String methodName = "write" + typeSimpleName + "Json5";
+        if (ctx.generatedMethods.contains(methodName))
+            return methodName;
+        ctx.generatedMethods.add(methodName);
+        String configName = "obj";
+        MethodSpec.Builder methodBuilder = ctx.createStreamWriteMethod(methodName, typeName, configName);
+        CodeBlock.Builder codeBuilder = CodeBlock.builder();
+        SerializerComponentProvider.EnumKeyType keyType = SerializerComponentProvider.getEnumKeyType(processingEnv, typeElement);
+        if (keyType != null) {
+            TypeMirror keyTypeMirror = keyType.type;
+            TypeName keyTypeName = TypeName.get(keyTypeMirror);
+            if (keyTypeName.isBoxedPrimitive()) {
+                keyTypeMirror = types.unboxedType(keyTypeMirror);
+                keyTypeName = keyTypeName.unbox();
+            }
+            String src = "src";
+            codeBuilder
+                    .add("$T $L = ", keyTypeName, src)
+                    .addStatement(keyType.generateSerializer(configName));
+            ctx.appendStreamWrite(keyTypeMirror, null, src, "depth", codeBuilder);
+        } else
+            codeBuilder.addStatement("writeJson5String(writer, $L.name())", configName);
+        methodBuilder.addCode(codeBuilder.build());
+        ctx.classBuilder.addMethod(methodBuilder.build());
+        return methodName;
+    }
 }
@@ -0,0 +1,291 @@
+package io.github.speedbridgemc.config.processor.serialize.jankson;
+
+import com.squareup.javapoet.*;
+import io.github.speedbridgemc.config.processor.api.StringUtils;
+import io.github.speedbridgemc.config.processor.api.TypeUtils;
+import io.github.speedbridgemc.config.processor.serialize.SerializerComponentProvider;
+import io.github.speedbridgemc.config.processor.serialize.api.jankson.BaseJanksonDelegate;
+import io.github.speedbridgemc.config.processor.serialize.api.jankson.JanksonContext;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+public final class EnumMapJanksonDelegate extends BaseJanksonDelegate {
+    private static final ClassName ENUM_MAP_NAME = ClassName.get(EnumMap.class),
+            ITERATOR_NAME = ClassName.get(Iterator.class);
+    private TypeMirror enumMapTM, entryTM;
+
+    @Override
+    public void init(@NotNull ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        enumMapTM = TypeUtils.getTypeMirror(processingEnv, EnumMap.class.getCanonicalName());
+        if (enumMapTM != null)
+            enumMapTM = types.erasure(enumMapTM);
+        entryTM = TypeUtils.getTypeMirror(processingEnv, Map.Entry.class.getCanonicalName());
+        if (entryTM != null)
+            entryTM = types.erasure(entryTM);
+    }
+
+    private @Nullable List<? extends TypeMirror> getTypeArguments(@NotNull JanksonContext ctx, @NotNull TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED || enumMapTM == null)
+            return null;
+        DeclaredType declaredType = (DeclaredType) type;
+        if (!types.isSameType(types.erasure(declaredType), enumMapTM))
+            return null;
+        List<? extends TypeMirror> typeArguments = declaredType.getTypeArguments();
+        if (typeArguments.size() == 0) {
+            messager.printMessage(Diagnostic.Kind.ERROR,
+                    "Serializer: Raw enum maps are unsupported", ctx.getEffectiveElement());
+            return null;
+        }
+        return typeArguments;
+    }
+
+    @Override
+    public boolean appendRead(@NotNull JanksonContext ctx, @NotNull TypeMirror type, @Nullable String name, @NotNull String dest, CodeBlock.@NotNull Builder codeBuilder) {
+        List<? extends TypeMirror> typeArguments = getTypeArguments(ctx, type);
+        if (typeArguments == null)
+            return false;
+
+        String methodName = generateReadMethod(ctx, typeArguments.get(0), typeArguments.get(1));
+        codeBuilder
+                .beginControlFlow("if ($L != null)", ctx.elementName)
+                .addStatement("$L = $L($L)", dest, methodName, ctx.elementName)
+                .endControlFlow();
+
+        return true;
+    }
+
+    private @NotNull String generateReadMethod(@NotNull JanksonContext ctx, @NotNull TypeMirror keyType, @NotNull TypeMirror valueType) {
+        String keyTypeSimpleName = StringUtils.titleCase(TypeUtils.getSimpleIdSafeName(keyType));
+        String valueTypeSimpleName = StringUtils.titleCase(TypeUtils.getSimpleIdSafeName(valueType));
+        String methodName = "read" + keyTypeSimpleName + "2" + valueTypeSimpleName + "EnumMap";
+        if (ctx.generatedMethods.contains(methodName))
+            return methodName;
+        ctx.generatedMethods.add(methodName);
+        TypeName keyTypeName = TypeName.get(keyType);
+        TypeName valueTypeName = TypeName.get(valueType);
+        TypeName mapTypeName = ParameterizedTypeName.get(ENUM_MAP_NAME, keyTypeName, valueTypeName);
+        ParameterSpec.Builder elementParamBuilder = ParameterSpec.builder(ctx.elementType, ctx.elementName);
+        if (ctx.nonNullAnnotation != null)
+            elementParamBuilder.addAnnotation(ctx.nonNullAnnotation);
+        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(methodName)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .returns(mapTypeName)
+                .addParameter(elementParamBuilder.build())
+                .addException(IOException.class);
+        if (ctx.nullableAnnotation != null)
+            methodBuilder.addAnnotation(ctx.nullableAnnotation);
+        String mapName = "map" + keyTypeSimpleName + "2" + valueTypeSimpleName;
+
+        String objDest = "obj";
+        String arrDest = "arr";
+        String elemDest = "elem" + keyTypeSimpleName + "2" + valueTypeSimpleName;
+        String keyDest = "key";
+        String valueDest = "value";
+        String keyElemDest = "keyElem";
+        String valueElemDest = "valueElem";
+
+        Element elementBackup = ctx.element, enclosingElementBackup = ctx.enclosingElement;
+        ctx.enclosingElement = elementBackup;
+        ctx.element = null;
+        String elementNameBackup = ctx.elementName;
+        ctx.elementName = elemDest;
+
+        // same layout as maps with non-string keys: an array of key/value pair objects
+        CodeBlock.Builder codeBuilder = CodeBlock.builder()
+                .beginControlFlow("if ($L == $T.INSTANCE)", elementNameBackup, ctx.nullType)
+                .addStatement("return null")
+                .nextControlFlow("else if ($L instanceof $T)", elementNameBackup, ctx.arrayType)
+                .addStatement("$1T $2L = ($1T) $3L", ctx.arrayType, arrDest, elementNameBackup)
+                .addStatement("$1T $2L = new $1T($3T.class)", mapTypeName, mapName, keyTypeName)
+                .addStatement("$T $L", ctx.primitiveType, ctx.primitiveName)
+                .addStatement("$T $L = null", keyType, keyDest)
+                .addStatement("$T $L = $L", valueType, valueDest, SerializerComponentProvider.getDefaultValue(valueTypeName))
+                .beginControlFlow("for ($T $L : $L)", ctx.elementType, elemDest, arrDest)
+                .beginControlFlow("if ($L instanceof $T)", elemDest, ctx.objectType)
+                .addStatement("$1T $2L = ($1T) $3L", ctx.objectType, objDest, elemDest)
+                .addStatement("$T $L = $L.get($S)", ctx.elementType, keyElemDest, objDest, "key")
+                .beginControlFlow("if ($L == null)", keyElemDest)
+                .addStatement("throw new $T($S)", IOException.class, "Missing complex map entry key!")
+                .endControlFlow();
+        ctx.elementName = keyElemDest;
+        ctx.appendRead(keyType, null, keyDest, codeBuilder);
+        codeBuilder.addStatement("$T $L = $L.get($S)", ctx.elementType, valueElemDest, objDest, "value")
+                .beginControlFlow("if ($L == null)", valueElemDest)
+                .addStatement("throw new $T($S)", IOException.class, "Missing complex map entry value!")
+                .endControlFlow();
+        ctx.elementName = valueElemDest;
+        ctx.appendRead(valueType, null, valueDest, codeBuilder);
+        ctx.elementName = elemDest;
+        codeBuilder
+                // keyed enums read unknown keys as null - drop those entries, instead of failing the whole map
+                .beginControlFlow("if ($L != null)", keyDest)
+                .addStatement("$L.put($L, $L)", mapName, keyDest, valueDest)
+                .endControlFlow()
+                .endControlFlow()
+                .endControlFlow()
+                .addStatement("return $L", mapName)
+                .nextControlFlow("else")
+                .addStatement("throw new $T($S + $L.getClass().getSimpleName() + $S)",
+                        IOException.class, "Type mismatch! Expected \"JsonArray\", got \"", elementNameBackup, "\"!")
+                .endControlFlow();
+
+        ctx.element = elementBackup;
+        ctx.enclosingElement = enclosingElementBackup;
+        ctx.elementName = elementNameBackup;
+
+        methodBuilder.addCode(codeBuilder.build());
+        ctx.classBuilder.addMethod(methodBuilder.build());
+        return methodName;
+    }
+
+    @Override
+    public boolean appendWrite(@NotNull JanksonContext ctx, @NotNull TypeMirror type, @Nullable String name, @NotNull String src, CodeBlock.@NotNull Builder codeBuilder) {
+        List<? extends TypeMirror> typeArguments = getTypeArguments(ctx, type);
+        if (typeArguments == null)
+            return false;
+
+        String methodName = generateWriteMethod(ctx, typeArguments.get(0), typeArguments.get(1));
+        codeBuilder.addStatement("$L = $L($L)", ctx.elementName, methodName, src);
+
+        return true;
+    }
+
+    private @NotNull String generateWriteMethod(@NotNull JanksonContext ctx, @NotNull TypeMirror keyType, @NotNull TypeMirror valueType) {
+        String keyTypeSimpleName = StringUtils.titleCase(TypeUtils.getSimpleIdSafeName(keyType));
+        String valueTypeSimpleName = StringUtils.titleCase(TypeUtils.getSimpleIdSafeName(valueType));
+        String methodName = "write" + keyTypeSimpleName + "2" + valueTypeSimpleName + "EnumMap";
+        if (ctx.generatedMethods.contains(methodName))
+            return methodName;
+        ctx.generatedMethods.add(methodName);
+        TypeName mapTypeName = ParameterizedTypeName.get(ENUM_MAP_NAME, TypeName.get(keyType), TypeName.get(valueType));
+        String src = "obj";
+        ParameterSpec.Builder configParamBuilder = ParameterSpec.builder(mapTypeName, src);
+        if (ctx.nullableAnnotation != null)
+            configParamBuilder.addAnnotation(ctx.nullableAnnotation);
+        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(methodName)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .returns(ctx.elementType)
+                .addParameter(configParamBuilder.build())
+                .addException(IOException.class)
+                .addCode(CodeBlock.builder()
+                        .beginControlFlow("if ($L == null)", src)
+                        .addStatement("return $T.INSTANCE", ctx.nullType)
+                        .endControlFlow()
+                        .build());
+        if (ctx.nonNullAnnotation != null)
+            methodBuilder.addAnnotation(ctx.nonNullAnnotation);
+        CodeBlock.Builder codeBuilder = CodeBlock.builder();
+
+        String entrySrc = "entry" + keyTypeSimpleName + "2" + valueTypeSimpleName;
+        String keySrc = "key";
+        String valueSrc = "value";
+        String objSrc = "obj" + keyTypeSimpleName + "2" + valueTypeSimpleName;
+        String arrSrc = "arr";
+        String keyElemSrc = "keyElem";
+        String valueElemSrc = "valueElem";
+
+        Element elementBackup = ctx.element, enclosingElementBackup = ctx.enclosingElement;
+        ctx.enclosingElement = elementBackup;
+        ctx.element = null;
+        String elementNameBackup = ctx.elementName;
+
+        codeBuilder
+                .addStatement("$1T $2L = new $1T()", ctx.arrayType, arrSrc)
+                .beginControlFlow("for ($T<$T, $T> $L : $L.entrySet())",
+                        entryTM, keyType, valueType, entrySrc, src);
+        ctx.elementName = keyElemSrc;
+        codeBuilder
+                .addStatement("$T $L", ctx.elementType, keyElemSrc)
+                .addStatement("$T $L = $L.getKey()", keyType, keySrc, entrySrc);
+        ctx.appendWrite(keyType, null, keySrc, codeBuilder);
+        ctx.elementName = valueElemSrc;
+        codeBuilder
+                .addStatement("$T $L", ctx.elementType, valueElemSrc)
+                .addStatement("$T $L = $L.getValue()", valueType, valueSrc, entrySrc);
+        ctx.appendWrite(valueType, null, valueSrc, codeBuilder);
+        codeBuilder
+                .addStatement("$1T $2L = new $1T()", ctx.objectType, objSrc)
+                .addStatement("$L.put($S, $L)", objSrc, "key", keyElemSrc)
+                .addStatement("$L.put($S, $L)", objSrc, "value", valueElemSrc)
+                .addStatement("$L.add($L)", arrSrc, objSrc)
+                .endControlFlow()
+                .addStatement("return $L", arrSrc);
+
+        ctx.elementName = elementNameBackup;
+        ctx.element = elementBackup;
+        ctx.enclosingElement = enclosingElementBackup;
+
+        methodBuilder.addCode(codeBuilder.build());
+        ctx.classBuilder.addMethod(methodBuilder.build());
+        return methodName;
+    }
+
+    @Override
+    public boolean appendStreamWrite(@NotNull JanksonContext ctx, @NotNull TypeMirror type, @Nullable String name, @NotNull String src,
+                                     @NotNull String depth, CodeBlock.@NotNull Builder codeBuilder) {
+        List<? extends TypeMirror> typeArguments = getTypeArguments(ctx, type);
+        if (typeArguments == null)
+            return false;
+
+        String methodName = generateStreamWriteMethod(ctx, typeArguments.get(0), typeArguments.get(1));
+        codeBuilder.addStatement("$L(writer, $L, $L)", methodName, src, depth);
+
+        return true;
+    }
+
+    private @NotNull String generateStreamWriteMethod(@NotNull JanksonContext ctx, @NotNull TypeMirror keyType, @NotNull TypeMirror valueType) {
+        String keyTypeSimpleName = StringUtils.titleCase(TypeUtils.getSimpleIdSafeName(keyType));
+        String valueTypeSimpleName = StringUtils.titleCase(TypeUtils.getSimpleIdSafeName(valueType));
+        String methodName = "write" + keyTypeSimpleName + "2" + valueTypeSimpleName + "EnumMapJson5";
+        if (ctx.generatedMethods.contains(methodName))
+            return methodName;
+        ctx.generatedMethods.add(methodName);
+        TypeName keyTypeName = TypeName.get(keyType), valueTypeName = TypeName.get(valueType);
+        TypeName entryTypeName = ParameterizedTypeName.get(ClassName.get(Map.Entry.class), keyTypeName, valueTypeName);
+        MethodSpec.Builder methodBuilder = ctx.createStreamWriteMethod(methodName,
+                ParameterizedTypeName.get(ENUM_MAP_NAME, keyTypeName, valueTypeName), "obj");
+        String entrySrc = "entry", keySrc = "key", valueSrc = "value";
+        CodeBlock.Builder codeBuilder = CodeBlock.builder()
+                .addStatement("$T it = obj.entrySet().iterator()", ParameterizedTypeName.get(ITERATOR_NAME, entryTypeName))
+                .beginControlFlow("if (!it.hasNext())")
+                .addStatement("writer.write($S)", "[]")
+                .addStatement("return")
+                .endControlFlow()
+                .addStatement("writer.write('[')")
+                .beginControlFlow("do")
+                .addStatement("$T $L = it.next()", entryTypeName, entrySrc)
+                .addStatement("writeJson5Newline(writer, depth + 1)")
+                .addStatement("$T $L = $L.getKey()", keyType, keySrc, entrySrc)
+                .addStatement("$T $L = $L.getValue()", valueType, valueSrc, entrySrc);
+
+        Element elementBackup = ctx.element, enclosingElementBackup = ctx.enclosingElement;
+        ctx.enclosingElement = elementBackup;
+        ctx.element = null;
+        ctx.appendStreamWriteEntry(keyType, keySrc, valueType, valueSrc, codeBuilder);
+        ctx.element = elementBackup;
+        ctx.enclosingElement = enclosingElementBackup;
+
+        codeBuilder
+                .addStatement("writeJson5Separator(writer, !it.hasNext())")
+                .endControlFlow("while (it.hasNext())")
+                .addStatement("writeJson5Newline(writer, depth)")
+                .addStatement("writer.write(']')");
+        methodBuilder.addCode(codeBuilder.build());
+        ctx.classBuilder.addMethod(methodBuilder.build());
+        return methodName;
+    }
+}
@@ -0,0 +1,244 @@
+package io.github.speedbridgemc.config.processor.serialize.jankson;
+
+import com.squareup.javapoet.*;
+import io.github.speedbridgemc.config.processor.api.StringUtils;
+import io.github.speedbridgemc.config.processor.api.TypeUtils;
+import io.github.speedbridgemc.config.processor.serialize.api.jankson.BaseJanksonDelegate;
+import io.github.speedbridgemc.config.processor.serialize.api.jankson.JanksonContext;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+
+public final class EnumSetJanksonDelegate extends BaseJanksonDelegate {
+    private static final ClassName ENUM_SET_NAME = ClassName.get(EnumSet.class),
+            ITERATOR_NAME = ClassName.get(Iterator.class);
+    private TypeMirror enumSetTM;
+
+    @Override
+    public void init(@NotNull ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        enumSetTM = TypeUtils.getTypeMirror(processingEnv, EnumSet.class.getCanonicalName());
+        if (enumSetTM != null)
+            enumSetTM = types.erasure(enumSetTM);
+    }
+
+    private @Nullable TypeMirror getComponentType(@NotNull JanksonContext ctx, @NotNull TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED || enumSetTM == null)
+            return null;
+        DeclaredType declaredType = (DeclaredType) type;
+        if (!types.isSameType(types.erasure(declaredType), enumSetTM))
+            return null;
+        List<? extends TypeMirror> typeArguments = declaredType.getTypeArguments();
+        if (typeArguments.size() == 0) {
+            messager.printMessage(Diagnostic.Kind.ERROR,
+                    "Serializer: Raw enum sets are unsupported", ctx.getEffectiveElement());
+            return null;
+        }
+        return typeArguments.get(0);
+    }
+
+    @Override
+    public boolean appendRead(@NotNull JanksonContext ctx, @NotNull TypeMirror type, @Nullable String name, @NotNull String dest, CodeBlock.@NotNull Builder codeBuilder) {
+        TypeMirror componentType = getComponentType(ctx, type);
+        if (componentType == null)
+            return false;
+
+        String methodName = generateReadMethod(ctx, componentType);
+        codeBuilder
+                .beginControlFlow("if ($L != null)", ctx.elementName)
+                .addStatement("$L = $L($L)", dest, methodName, ctx.elementName)
+                .endControlFlow();
+
+        return true;
+    }
+
+    private @NotNull String generateReadMethod(@NotNull JanksonContext ctx, @NotNull TypeMirror componentType) {
+        String typeSimpleName = StringUtils.titleCase(TypeUtils.getSimpleIdSafeName(componentType));
+        String methodName = "read" + typeSimpleName + "EnumSet";
+        if (ctx.generatedMethods.contains(methodName))
+            return methodName;
+        ctx.generatedMethods.add(methodName);
+        TypeName componentTypeName = TypeName.get(componentType);
+        TypeName setTypeName = ParameterizedTypeName.get(ENUM_SET_NAME, componentTypeName);
+        ParameterSpec.Builder elementParamBuilder = ParameterSpec.builder(ctx.elementType, ctx.elementName);
+        if (ctx.nonNullAnnotation != null)
+            elementParamBuilder.addAnnotation(ctx.nonNullAnnotation);
+        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(methodName)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .returns(setTypeName)
+                .addParameter(elementParamBuilder.build())
+                .addException(IOException.class);
+        if (ctx.nullableAnnotation != null)
+            methodBuilder.addAnnotation(ctx.nullableAnnotation);
+        String setName = "set" + typeSimpleName;
+        String compDest = "comp" + typeSimpleName;
+        String elemDest = "elem" + typeSimpleName;
+        CodeBlock.Builder codeBuilder = CodeBlock.builder()
+                .beginControlFlow("if ($L == $T.INSTANCE)", ctx.elementName, ctx.nullType)
+                .addStatement("return null")
+                .nextControlFlow("else if ($L instanceof $T)", ctx.elementName, ctx.arrayType)
+                .addStatement("$2T $1L = ($2T) $3L", ctx.arrayName, ctx.arrayType, ctx.elementName)
+                .addStatement("$T $L = $T.noneOf($T.class)", setTypeName, setName, ENUM_SET_NAME, componentTypeName)
+                .beginControlFlow("for ($T $L : $L)", ctx.elementType, elemDest, ctx.arrayName)
+                .addStatement("$T $L = null", componentTypeName, compDest);
+
+        String elementNameBackup = ctx.elementName;
+        ctx.elementName = elemDest;
+        Element elementBackup = ctx.element, enclosingElementBackup = ctx.enclosingElement;
+        ctx.enclosingElement = elementBackup;
+        ctx.element = null;
+
+        ctx.appendRead(componentType, null, compDest, codeBuilder);
+
+        ctx.element = elementBackup;
+        ctx.enclosingElement = enclosingElementBackup;
+        ctx.elementName = elementNameBackup;
+
+        codeBuilder
+                // keyed enums read unknown keys as null - drop those, instead of failing the whole set
+                .beginControlFlow("if ($L != null)", compDest)
+                .addStatement("$L.add($L)", setName, compDest)
+                .endControlFlow()
+                .endControlFlow()
+                .addStatement("return $L", setName)
+                .nextControlFlow("else")
+                .addStatement("throw new $T($S + $L.getClass().getSimpleName() + $S)",
+                        IOException.class, "Type mismatch! Expected \"JsonArray\", got \"", ctx.elementName, "\"!")
+                .endControlFlow();
+        methodBuilder.addCode(codeBuilder.build());
+        ctx.classBuilder.addMethod(methodBuilder.build());
+        return methodName;
+    }
+
+    @Override
+    public boolean appendWrite(@NotNull JanksonContext ctx, @NotNull TypeMirror type, @Nullable String name, @NotNull String src, CodeBlock.@NotNull Builder codeBuilder) {
+        TypeMirror componentType = getComponentType(ctx, type);
+        if (componentType == null)
+            return false;
+
+        String methodName = generateWriteMethod(ctx, componentType);
+        codeBuilder.addStatement("$L = $L($L)", ctx.elementName, methodName, src);
+
+        return true;
+    }
+
+    private @NotNull String generateWriteMethod(@NotNull JanksonContext ctx, @NotNull TypeMirror componentType) {
+        String typeSimpleName = StringUtils.titleCase(TypeUtils.getSimpleIdSafeName(componentType));
+        String methodName = "write" + typeSimpleName + "EnumSet";
+        if (ctx.generatedMethods.contains(methodName))
+            return methodName;
+        ctx.generatedMethods.add(methodName);
+        TypeName componentTypeName = TypeName.get(componentType);
+        TypeName setTypeName = ParameterizedTypeName.get(ENUM_SET_NAME, componentTypeName);
+        String src = "obj";
+        ParameterSpec.Builder configParamBuilder = ParameterSpec.builder(setTypeName, src);
+        if (ctx.nullableAnnotation != null)
+            configParamBuilder.addAnnotation(ctx.nullableAnnotation);
+        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(methodName)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .returns(ctx.elementType)
+                .addParameter(configParamBuilder.build())
+                .addException(IOException.class);
+        if (ctx.nonNullAnnotation != null)
+            methodBuilder.addAnnotation(ctx.nonNullAnnotation);
+        CodeBlock.Builder codeBuilder = CodeBlock.builder();
+
+        String compSrc = "comp";
+        String arrSrc = "arr";
+        String elemSrc = "elem" + typeSimpleName;
+
+        String arrayNameBackup = ctx.arrayName;
+        String elementNameBackup = ctx.elementName;
+        Element elementBackup = ctx.element, enclosingElementBackup = ctx.enclosingElement;
+        ctx.enclosingElement = elementBackup;
+        ctx.element = null;
+        ctx.arrayName = arrSrc;
+        ctx.elementName = elemSrc;
+
+        // same layout as lists, so switching a field from List<E> to EnumSet<E> keeps existing files readable
+        codeBuilder
+                .beginControlFlow("if ($L == null)", src)
+                .addStatement("return $T.INSTANCE", ctx.nullType)
+                .endControlFlow()
+                .addStatement("$1T $2L = new $1T()", ctx.arrayType, ctx.arrayName)
+                .beginControlFlow("for ($T $L : $L)", componentTypeName, compSrc, src)
+                .addStatement("$T $L", ctx.elementType, ctx.elementName);
+        ctx.appendWrite(componentType, null, compSrc, codeBuilder);
+        codeBuilder
+                .addStatement("$L.add($L)", ctx.arrayName, ctx.elementName)
+                .endControlFlow()
+                .addStatement("return $L", arrSrc);
+
+        ctx.element = elementBackup;
+        ctx.enclosingElement = enclosingElementBackup;
+        ctx.arrayName = arrayNameBackup;
+        ctx.elementName = elementNameBackup;
+
+        methodBuilder.addCode(codeBuilder.build());
+        ctx.classBuilder.addMethod(methodBuilder.build());
+        return methodName;
+    }
+
+    @Override
+    public boolean appendStreamWrite(@NotNull JanksonContext ctx, @NotNull TypeMirror type, @Nullable String name, @NotNull String src,
+                                     @NotNull String depth, CodeBlock.@NotNull Builder codeBuilder) {
+        TypeMirror componentType = getComponentType(ctx, type);
+        if (componentType == null)
+            return false;
+
+        String methodName = generateStreamWriteMethod(ctx, componentType);
+        codeBuilder.addStatement("$L(writer, $L, $L)", methodName, src, depth);
+
+        return true;
+    }
+
+    private @NotNull String generateStreamWriteMethod(@NotNull JanksonContext ctx, @NotNull TypeMirror componentType) {
+        String typeSimpleName = StringUtils.titleCase(TypeUtils.getSimpleIdSafeName(componentType));
+        String methodName = "write" + typeSimpleName + "EnumSetJson5";
+        if (ctx.generatedMethods.contains(methodName))
+            return methodName;
+        ctx.generatedMethods.add(methodName);
+        TypeName componentTypeName = TypeName.get(componentType);
+        MethodSpec.Builder methodBuilder = ctx.createStreamWriteMethod(methodName,
+                ParameterizedTypeName.get(ENUM_SET_NAME, componentTypeName), "obj");
+        String compSrc = "comp";
+        // same layout as lists
+        CodeBlock.Builder codeBuilder = CodeBlock.builder()
+                .addStatement("$T it = obj.iterator()", ParameterizedTypeName.get(ITERATOR_NAME, componentTypeName))
+                .beginControlFlow("if (!it.hasNext())")
+                .addStatement("writer.write($S)", "[]")
+                .addStatement("return")
+                .endControlFlow()
+                .addStatement("writer.write('[')")
+                .beginControlFlow("do")
+                .addStatement("$T $L = it.next()", componentTypeName, compSrc)
+                .addStatement("writeJson5Newline(writer, depth + 1)");
+
+        Element elementBackup = ctx.element, enclosingElementBackup = ctx.enclosingElement;
+        ctx.enclosingElement = elementBackup;
+        ctx.element = null;
+        ctx.appendStreamWrite(componentType, null, compSrc, "depth + 1", codeBuilder);
+        ctx.element = elementBackup;
+        ctx.enclosingElement = enclosingElementBackup;
+
+        codeBuilder
+                .addStatement("writeJson5Separator(writer, !it.hasNext())")
+                .endControlFlow("while (it.hasNext())")
+                .addStatement("writeJson5Newline(writer, depth)")
+                .addStatement("writer.write(']')");
+        methodBuilder.addCode(codeBuilder.build());
+        ctx.classBuilder.addMethod(methodBuilder.build());
+        return methodName;
+    }
+}
@@ -2,10 +2,8 @@ package io.github.speedbridgemc.config.processor.serialize.jankson;
 
 import com.google.auto.service.AutoService;
 import com.google.common.collect.ImmutableList;
-import com.squareup.javapoet.CodeBlock;
-import com.squareup.javapoet.FieldSpec;
-import com.squareup.javapoet.TypeName;
-import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.*;
+import io.github.speedbridgemc.config.processor.api.StringUtils;
 import io.github.speedbridgemc.config.processor.api.TypeUtils;
 import io.github.speedbridgemc.config.processor.serialize.SerializerComponentProvider;
 import io.github.speedbridgemc.config.processor.serialize.api.BaseSerializerProvider;
@@ -17,18 +15,16 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
-import java.io.BufferedWriter;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStreamWriter;
-import java.nio.file.Files;
+import javax.lang.model.type.TypeMirror;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @ApiStatus.Internal
 @AutoService(SerializerProvider.class)
@@ -46,7 +42,6 @@ public final class JanksonSerializerProvider extends BaseSerializerProvider {
         HashMap<String, Boolean> grammarMap = createGrammarMap(ctx.options);
         TypeName configType = ctx.configType;
         TypeName janksonType = TypeUtils.getTypeName(processingEnv, basePackage + ".Jankson");
-        TypeName grammarType = TypeUtils.getTypeName(processingEnv, basePackage + ".JsonGrammar");
         TypeName elementType = TypeUtils.getTypeName(processingEnv, basePackage + ".JsonElement");
         TypeName objectType = TypeUtils.getTypeName(processingEnv, basePackage + ".JsonObject");
         TypeName arrayType = TypeUtils.getTypeName(processingEnv, basePackage + ".JsonArray");
@@ -56,9 +51,6 @@ public final class JanksonSerializerProvider extends BaseSerializerProvider {
         classBuilder
                 .addField(FieldSpec.builder(janksonType, "JANKSON", Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
                         .initializer("$T.builder().build()", janksonType)
-                        .build())
-                .addField(FieldSpec.builder(grammarType, "GRAMMAR", Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
-                        .initializer("$T.builder()$L.build()", grammarType, createGrammarCode(grammarMap))
                         .build());
         JanksonContext jCtx = new JanksonContext(ctx, classBuilder, elementType, objectType, primitiveType, arrayType, nullType, ctx.nonNullAnnotation, ctx.nullableAnnotation);
         jCtx.init(processingEnv);
@@ -66,8 +58,8 @@ public final class JanksonSerializerProvider extends BaseSerializerProvider {
         String configName = "config";
         ctx.readMethodBuilder.addCode(CodeBlock.builder()
                 .addStatement("$1T $2L = new $1T()", configType, configName)
-                .beginControlFlow("try ($T in = $T.newInputStream(path))", InputStream.class, Files.class)
-                .addStatement("$T $L = JANKSON.load(in)", objectType, jCtx.objectName)
+                .beginControlFlow("try")
+                .addStatement("$T $L = JANKSON.load(new $T(contents))", objectType, jCtx.objectName, ByteArrayInputStream.class)
                 .build());
         ctx.readMethodBuilder.addCode(generateFieldChecks(processingEnv, ctx, fields, jCtx.objectName, ctx.defaultMissingErrorMessage)
                 .build());
@@ -87,30 +79,335 @@ public final class JanksonSerializerProvider extends BaseSerializerProvider {
         ctx.readMethodBuilder.addCode(codeBuilder.build());
         ctx.readMethodBuilder.addCode(CodeBlock.builder()
                 .nextControlFlow("catch ($T e)", syntaxErrorType)
-                .addStatement("throw new $T($S + path + $S, e)", IOException.class, "Failed to parse config file at \"", "\" to JSON!")
+                .addStatement("throw new $T($S, e)", IOException.class, "Failed to parse config file to JSON!")
                 .endControlFlow()
                 .addStatement("return $L", configName)
                 .build());
+        // write fields straight to the output instead of building the whole tree and then a String out of it
+        // (save() still collects the output into a byte array, since it needs the bytes for fingerprints and temp files)
+        generateEmitter(jCtx, grammarMap, classBuilder);
+        boolean bareRootObject = grammarMap.get("bareRootObject");
+        int rootDepth = bareRootObject ? 0 : 1;
         ctx.writeMethodBuilder.addCode(CodeBlock.builder()
-                .addStatement("$1T $2L = new $1T()", objectType, jCtx.objectName)
-                .addStatement("$T $L", elementType, jCtx.elementName)
+                .beginControlFlow("try ($T writer = new $T(new $T(out, $T.UTF_8)))",
+                        Writer.class, BufferedWriter.class, OutputStreamWriter.class, StandardCharsets.class)
                 .build());
         codeBuilder = CodeBlock.builder();
-        for (VariableElement field : fields) {
+        if (!bareRootObject)
+            codeBuilder.addStatement("writer.write('{')");
+        for (int i = 0, size = fields.size(); i < size; i++) {
+            VariableElement field = fields.get(i);
             String fieldName = field.getSimpleName().toString();
             String serializedName = SerializerComponentProvider.getSerializedName(ctx, field);
             jCtx.element = field;
-            jCtx.appendWrite(field.asType(), serializedName, configName + "." + fieldName, codeBuilder);
-            codeBuilder.addStatement(generatePut(jCtx, field).build());
+            if (!bareRootObject || i > 0)
+                codeBuilder.addStatement("writeJson5Newline(writer, $L)", rootDepth);
+            codeBuilder.addStatement("writeJson5Key(writer, $S)", serializedName);
+            jCtx.appendStreamWrite(field.asType(), serializedName, configName + "." + fieldName, String.valueOf(rootDepth), codeBuilder);
+            String separator = getSeparator(grammarMap, i == size - 1);
+            if (!separator.isEmpty())
+                codeBuilder.addStatement("writer.write($S)", separator);
+        }
+        if (!bareRootObject) {
+            if (!fields.isEmpty())
+                codeBuilder.addStatement("writeJson5Newline(writer, 0)");
+            codeBuilder.addStatement("writer.write('}')");
         }
         ctx.writeMethodBuilder.addCode(codeBuilder.build());
         ctx.writeMethodBuilder.addCode(CodeBlock.builder()
-                .addStatement("String json = $L.toJson(GRAMMAR)", jCtx.objectName)
-                .beginControlFlow("try ($3T out = new $3T(new $2T($1T.newOutputStream(path))))",
-                        Files.class, OutputStreamWriter.class, BufferedWriter.class)
-                .addStatement("out.write(json)")
                 .endControlFlow()
                 .build());
+        generateEntryCodecs(jCtx, syntaxErrorType);
+    }
+
+    // entry files hold a single object with a "value" key, since Jankson only loads objects
+    private static void generateEntryCodecs(@NotNull JanksonContext ctx, @NotNull TypeName syntaxErrorType) {
+        Element elementBackup = ctx.element, enclosingElementBackup = ctx.enclosingElement;
+        for (VariableElement field : ctx.sCtx.entryFields) {
+            String fieldName = field.getSimpleName().toString();
+            TypeMirror valueType = SerializerComponentProvider.getEntryValueType(field);
+            TypeName valueTypeName = TypeName.get(valueType);
+            ctx.enclosingElement = field;
+            ctx.element = null;
+
+            String readMethodName = "read" + StringUtils.titleCase(fieldName) + "Entry";
+            CodeBlock.Builder codeBuilder = CodeBlock.builder()
+                    .addStatement("$T $L", ctx.objectType, ctx.objectName)
+                    .beginControlFlow("try")
+                    .addStatement("$L = JANKSON.load(new $T(raw))", ctx.objectName, ByteArrayInputStream.class)
+                    .nextControlFlow("catch ($T e)", syntaxErrorType)
+                    .addStatement("throw new $T($S, e)", IOException.class, "Failed to parse entry to JSON!")
+                    .endControlFlow()
+                    .addStatement("$T $L = $L.get($S)", ctx.elementType, ctx.elementName, ctx.objectName, "value")
+                    .addStatement("$T $L", ctx.primitiveType, ctx.primitiveName)
+                    .addStatement("$T $L", ctx.arrayType, ctx.arrayName)
+                    .addStatement("$T value = null", valueTypeName);
+            ctx.appendRead(valueType, null, "value", codeBuilder);
+            MethodSpec.Builder readMethodBuilder = MethodSpec.methodBuilder(readMethodName)
+                    .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                    .returns(valueTypeName)
+                    .addParameter(byte[].class, "raw")
+                    .addException(IOException.class)
+                    .addCode(codeBuilder
+                            .addStatement("return value")
+                            .build());
+            if (ctx.nullableAnnotation != null)
+                readMethodBuilder.addAnnotation(ctx.nullableAnnotation);
+
+            String writeMethodName = "write" + StringUtils.titleCase(fieldName) + "Entry";
+            codeBuilder = CodeBlock.builder()
+                    .addStatement("$1T out = new $1T()", ByteArrayOutputStream.class)
+                    .beginControlFlow("try ($T writer = new $T(new $T(out, $T.UTF_8)))",
+                            Writer.class, BufferedWriter.class, OutputStreamWriter.class, StandardCharsets.class)
+                    .addStatement("writer.write('{')")
+                    .addStatement("writeJson5Newline(writer, 1)")
+                    .addStatement("writeJson5Key(writer, $S)", "value");
+            ctx.appendStreamWrite(valueType, null, "value", "1", codeBuilder);
+            MethodSpec.Builder writeMethodBuilder = MethodSpec.methodBuilder(writeMethodName)
+                    .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                    .returns(byte[].class)
+                    .addParameter(valueTypeName, "value")
+                    .addException(IOException.class)
+                    .addCode(codeBuilder
+                            .addStatement("writeJson5Newline(writer, 0)")
+                            .addStatement("writer.write('}')")
+                            .endControlFlow()
+                            .addStatement("return out.toByteArray()")
+                            .build());
+            if (ctx.nonNullAnnotation != null)
+                writeMethodBuilder.addAnnotation(ctx.nonNullAnnotation);
+
+            ctx.classBuilder.addMethod(readMethodBuilder.build())
+                    .addMethod(writeMethodBuilder.build());
+            SerializerComponentProvider.addEntryCodec(ctx.sCtx, field, readMethodName, writeMethodName, ctx.classBuilder);
+        }
+        ctx.element = elementBackup;
+        ctx.enclosingElement = enclosingElementBackup;
+    }
+
+    private static @NotNull String getSeparator(@NotNull Map<String, Boolean> grammarMap, boolean last) {
+        boolean printCommas = grammarMap.get("printCommas");
+        if (last)
+            return printCommas && grammarMap.get("printTrailingCommas") ? "," : "";
+        if (printCommas)
+            return ",";
+        // without commas or newlines, entries still need to be told apart
+        return grammarMap.get("printWhitespace") ? "" : " ";
+    }
+
+    private void generateEmitter(@NotNull JanksonContext jCtx, @NotNull Map<String, Boolean> grammarMap,
+                                 TypeSpec.@NotNull Builder classBuilder) {
+        boolean withComments = grammarMap.get("withComments");
+        boolean printWhitespace = grammarMap.get("printWhitespace");
+        boolean bareSpecialNumerics = grammarMap.get("bareSpecialNumerics");
+        boolean printUnquotedKeys = grammarMap.get("printUnquotedKeys");
+        String separator = getSeparator(grammarMap, false), lastSeparator = getSeparator(grammarMap, true);
+        ParameterSpec writerParam = ParameterSpec.builder(Writer.class, "writer").build();
+        ParameterSpec depthParam = ParameterSpec.builder(TypeName.INT, "depth").build();
+
+        MethodSpec.Builder newlineMethodBuilder = MethodSpec.methodBuilder("writeJson5Newline")
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .addParameter(writerParam)
+                .addParameter(depthParam)
+                .addException(IOException.class);
+        if (printWhitespace)
+            newlineMethodBuilder
+                    .addStatement("writer.write('\\n')")
+                    .beginControlFlow("for (int i = 0; i < depth; i++)")
+                    .addStatement("writer.write('\\t')")
+                    .endControlFlow();
+
+        MethodSpec.Builder keyMethodBuilder = MethodSpec.methodBuilder("writeJson5Key")
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .addParameter(writerParam)
+                .addParameter(String.class, "key")
+                .addException(IOException.class);
+        if (printUnquotedKeys) {
+            // only plain ASCII identifiers, anything else gets quoted to be safe
+            keyMethodBuilder
+                    .addStatement("boolean identifier = !key.isEmpty() && !(key.charAt(0) >= '0' && key.charAt(0) <= '9')")
+                    .beginControlFlow("for (int i = 0, length = key.length(); identifier && i < length; i++)")
+                    .addStatement("char c = key.charAt(i)")
+                    .addStatement("identifier = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_' || c == '$$'")
+                    .endControlFlow()
+                    .beginControlFlow("if (identifier)")
+                    .addStatement("writer.write(key)")
+                    .nextControlFlow("else")
+                    .addStatement("writeJson5String(writer, key)")
+                    .endControlFlow();
+        } else
+            keyMethodBuilder.addStatement("writeJson5String(writer, key)");
+        keyMethodBuilder.addStatement("writer.write($S)", printWhitespace ? ": " : ":");
+
+        CodeBlock.Builder escapeBuilder = CodeBlock.builder()
+                .beginControlFlow("switch (c)");
+        String[][] escapes = { { "\\\"", "\\\"" }, { "\\\\", "\\\\" }, { "\\n", "\\n" }, { "\\r", "\\r" },
+                { "\\t", "\\t" }, { "\\b", "\\b" }, { "\\f", "\\f" } };
+        for (String[] escape : escapes) {
+            escapeBuilder.add("case '$L':\n", escape[0]).indent()
+                    .addStatement("writer.write($S)", escape[1])
+                    .addStatement("break")
+                    .unindent();
+        }
+        escapeBuilder.add("default:\n").indent()
+                .beginControlFlow("if (c < 0x20)")
+                .addStatement("writer.write($S)", "\\u00")
+                .addStatement("writer.write(HEX_DIGITS.charAt(c >> 4))")
+                .addStatement("writer.write(HEX_DIGITS.charAt(c & 0xF))")
+                .nextControlFlow("else")
+                .addStatement("writer.write(c)")
+                .endControlFlow()
+                .addStatement("break")
+                .unindent()
+                .endControlFlow();
+        MethodSpec.Builder stringMethodBuilder = MethodSpec.methodBuilder("writeJson5String")
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .addParameter(writerParam)
+                .addParameter(String.class, "s")
+                .addException(IOException.class)
+                .addStatement("writer.write('\"')")
+                .beginControlFlow("for (int i = 0, length = s.length(); i < length; i++)")
+                .addStatement("char c = s.charAt(i)")
+                .addCode(escapeBuilder.build())
+                .endControlFlow()
+                .addStatement("writer.write('\"')");
+
+        MethodSpec.Builder doubleMethodBuilder = MethodSpec.methodBuilder("writeJson5Double")
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .addParameter(writerParam)
+                .addParameter(TypeName.DOUBLE, "d")
+                .addException(IOException.class);
+        if (bareSpecialNumerics)
+            doubleMethodBuilder.addStatement("writer.write($T.toString(d))", Double.class);
+        else
+            doubleMethodBuilder
+                    .beginControlFlow("if ($T.isFinite(d))", Double.class)
+                    .addStatement("writer.write($T.toString(d))", Double.class)
+                    .nextControlFlow("else")
+                    .addStatement("writeJson5String(writer, $T.toString(d))", Double.class)
+                    .endControlFlow();
+
+        // Jankson widens floats to doubles and the other numbers to longs, so only doubles need special handling
+        MethodSpec.Builder primitiveMethodBuilder = MethodSpec.methodBuilder("writeJson5Primitive")
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .addParameter(writerParam)
+                .addParameter(Object.class, "value")
+                .addException(IOException.class)
+                .beginControlFlow("if (value instanceof $T)", Double.class)
+                .addStatement("writeJson5Double(writer, ($T) value)", Double.class)
+                .nextControlFlow("else if (value instanceof $T || value instanceof $T)", Number.class, Boolean.class)
+                .addStatement("writer.write(value.toString())")
+                .nextControlFlow("else if (value == null)")
+                .addStatement("writer.write($S)", "null")
+                .nextControlFlow("else")
+                .addStatement("writeJson5String(writer, value.toString())")
+                .endControlFlow();
+
+        MethodSpec.Builder separatorMethodBuilder = MethodSpec.methodBuilder("writeJson5Separator")
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .addParameter(writerParam)
+                .addParameter(TypeName.BOOLEAN, "last")
+                .addException(IOException.class);
+        if (separator.equals(lastSeparator)) {
+            if (!separator.isEmpty())
+                separatorMethodBuilder.addStatement("writer.write($S)", separator);
+        } else if (lastSeparator.isEmpty()) {
+            separatorMethodBuilder
+                    .beginControlFlow("if (!last)")
+                    .addStatement("writer.write($S)", separator)
+                    .endControlFlow();
+        } else if (separator.isEmpty()) {
+            separatorMethodBuilder
+                    .beginControlFlow("if (last)")
+                    .addStatement("writer.write($S)", lastSeparator)
+                    .endControlFlow();
+        } else
+            separatorMethodBuilder.addStatement("writer.write(last ? $S : $S)", lastSeparator, separator);
+
+        TypeName entryType = ParameterizedTypeName.get(ClassName.get(Map.Entry.class), ClassName.get(String.class), jCtx.elementType);
+        MethodSpec.Builder objectMethodBuilder = MethodSpec.methodBuilder("writeJson5Object")
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .addParameter(writerParam)
+                .addParameter(jCtx.objectType, "obj")
+                .addParameter(depthParam)
+                .addException(IOException.class)
+                .beginControlFlow("if (obj.isEmpty())")
+                .addStatement("writer.write($S)", "{}")
+                .addStatement("return")
+                .endControlFlow()
+                .addStatement("writer.write('{')")
+                .addStatement("int remaining = obj.size()")
+                .beginControlFlow("for ($T entry : obj.entrySet())", entryType)
+                .addStatement("writeJson5Newline(writer, depth + 1)");
+        if (withComments) {
+            objectMethodBuilder
+                    .addStatement("String comment = obj.getComment(entry.getKey())")
+                    .beginControlFlow("if (comment != null && !comment.isEmpty())")
+                    .addStatement("writer.write($S)", "/* ")
+                    .addStatement("writer.write(comment.replace($S, $S))", "*/", "* /")
+                    .addStatement("writer.write($S)", " */");
+            if (printWhitespace)
+                objectMethodBuilder.addStatement("writeJson5Newline(writer, depth + 1)");
+            else
+                objectMethodBuilder.addStatement("writer.write(' ')");
+            objectMethodBuilder.endControlFlow();
+        }
+        objectMethodBuilder
+                .addStatement("writeJson5Key(writer, entry.getKey())")
+                .addStatement("writeJson5Element(writer, entry.getValue(), depth + 1)")
+                .addStatement("writeJson5Separator(writer, --remaining == 0)")
+                .endControlFlow()
+                .addStatement("writeJson5Newline(writer, depth)")
+                .addStatement("writer.write('}')");
+
+        MethodSpec.Builder arrayMethodBuilder = MethodSpec.methodBuilder("writeJson5Array")
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .addParameter(writerParam)
+                .addParameter(jCtx.arrayType, "arr")
+                .addParameter(depthParam)
+                .addException(IOException.class)
+                .beginControlFlow("if (arr.isEmpty())")
+                .addStatement("writer.write($S)", "[]")
+                .addStatement("return")
+                .endControlFlow()
+                .addStatement("writer.write('[')")
+                .addStatement("int remaining = arr.size()")
+                .beginControlFlow("for ($T elem : arr)", jCtx.elementType)
+                .addStatement("writeJson5Newline(writer, depth + 1)")
+                .addStatement("writeJson5Element(writer, elem, depth + 1)")
+                .addStatement("writeJson5Separator(writer, --remaining == 0)")
+                .endControlFlow()
+                .addStatement("writeJson5Newline(writer, depth)")
+                .addStatement("writer.write(']')");
+
+        MethodSpec.Builder elementMethodBuilder = MethodSpec.methodBuilder("writeJson5Element")
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .addParameter(writerParam)
+                .addParameter(jCtx.elementType, "elem")
+                .addParameter(depthParam)
+                .addException(IOException.class)
+                .beginControlFlow("if (elem instanceof $T)", jCtx.objectType)
+                .addStatement("writeJson5Object(writer, ($T) elem, depth)", jCtx.objectType)
+                .nextControlFlow("else if (elem instanceof $T)", jCtx.arrayType)
+                .addStatement("writeJson5Array(writer, ($T) elem, depth)", jCtx.arrayType)
+                .nextControlFlow("else if (elem instanceof $T)", jCtx.primitiveType)
+                .addStatement("writeJson5Primitive(writer, (($T) elem).getValue())", jCtx.primitiveType)
+                .nextControlFlow("else")
+                .addStatement("writer.write($S)", "null")
+                .endControlFlow();
+
+        classBuilder.addField(FieldSpec.builder(String.class, "HEX_DIGITS", Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                        .initializer("$S", "0123456789abcdef")
+                        .build())
+                .addMethod(newlineMethodBuilder.build())
+                .addMethod(keyMethodBuilder.build())
+                .addMethod(stringMethodBuilder.build())
+                .addMethod(doubleMethodBuilder.build())
+                .addMethod(primitiveMethodBuilder.build())
+                .addMethod(separatorMethodBuilder.build())
+                .addMethod(objectMethodBuilder.build())
+                .addMethod(arrayMethodBuilder.build())
+                .addMethod(elementMethodBuilder.build());
     }
 
     private HashMap<String, Boolean> createGrammarMap(Map<String, Boolean> src) {
@@ -129,12 +426,6 @@ public final class JanksonSerializerProvider extends BaseSerializerProvider {
         return grammarMap;
     }
 
-    private String createGrammarCode(HashMap<String, Boolean> grammarMap) {
-        return "." + grammarMap.entrySet().stream()
-                .map(entry -> String.format("%s(%b)", entry.getKey(), entry.getValue()))
-                .collect(Collectors.joining("."));
-    }
-
     public static @NotNull CodeBlock.Builder generateFieldChecks(@NotNull ProcessingEnvironment processingEnv,
                                               @NotNull SerializerContext ctx,
                                               @NotNull List<VariableElement> fields,
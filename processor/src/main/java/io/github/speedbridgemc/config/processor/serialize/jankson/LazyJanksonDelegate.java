@@ -0,0 +1,212 @@
+package io.github.speedbridgemc.config.processor.serialize.jankson;
+
+import com.squareup.javapoet.*;
+import io.github.speedbridgemc.config.LazySection;
+import io.github.speedbridgemc.config.processor.api.StringUtils;
+import io.github.speedbridgemc.config.processor.api.TypeUtils;
+import io.github.speedbridgemc.config.processor.serialize.api.jankson.BaseJanksonDelegate;
+import io.github.speedbridgemc.config.processor.serialize.api.jankson.JanksonContext;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+public final class LazyJanksonDelegate extends BaseJanksonDelegate {
+    private static final ClassName LAZY_SECTION_NAME = ClassName.get(LazySection.class);
+    private static final ClassName DECODER_NAME = ClassName.get(LazySection.Decoder.class);
+    private TypeMirror lazySectionTM;
+
+    @Override
+    public void init(@NotNull ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        lazySectionTM = TypeUtils.getTypeMirror(processingEnv, LazySection.class.getCanonicalName());
+        if (lazySectionTM != null)
+            lazySectionTM = types.erasure(lazySectionTM);
+    }
+
+    private @Nullable TypeMirror getValueType(@NotNull JanksonContext ctx, @NotNull TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED || lazySectionTM == null)
+            return null;
+        DeclaredType declaredType = (DeclaredType) type;
+        if (!types.isSameType(types.erasure(declaredType), lazySectionTM))
+            return null;
+        List<? extends TypeMirror> typeArguments = declaredType.getTypeArguments();
+        if (typeArguments.size() == 0) {
+            messager.printMessage(Diagnostic.Kind.ERROR,
+                    "Serializer: Raw lazy sections are unsupported", ctx.getEffectiveElement());
+            return null;
+        }
+        return typeArguments.get(0);
+    }
+
+    @Override
+    public boolean appendRead(@NotNull JanksonContext ctx, @NotNull TypeMirror type, @Nullable String name, @NotNull String dest, CodeBlock.@NotNull Builder codeBuilder) {
+        TypeMirror valueType = getValueType(ctx, type);
+        if (valueType == null)
+            return false;
+
+        // the parsed element tree is kept as the section's serialized form
+        String decoderName = generateDecoder(ctx, valueType);
+        codeBuilder
+                .beginControlFlow("if ($L == $T.INSTANCE)", ctx.elementName, ctx.nullType)
+                .addStatement("$L = null", dest)
+                .nextControlFlow("else if ($L != null)", ctx.elementName)
+                .addStatement("$L = $T.deferred($L, $L)", dest, LAZY_SECTION_NAME, ctx.elementName, decoderName)
+                .endControlFlow();
+
+        return true;
+    }
+
+    private @NotNull String generateDecoder(@NotNull JanksonContext ctx, @NotNull TypeMirror valueType) {
+        String typeSimpleName = StringUtils.titleCase(TypeUtils.getSimpleIdSafeName(valueType));
+        String methodName = "decode" + typeSimpleName + "LazySection";
+        String fieldName = "DECODE_" + StringUtils.camelCaseToSnakeCase(typeSimpleName).toUpperCase(Locale.ROOT) + "_LAZY_SECTION";
+        if (ctx.generatedMethods.contains(methodName))
+            return fieldName;
+        ctx.generatedMethods.add(methodName);
+        TypeName valueTypeName = TypeName.get(valueType);
+        ParameterSpec.Builder elementParamBuilder = ParameterSpec.builder(ctx.elementType, ctx.elementName);
+        if (ctx.nonNullAnnotation != null)
+            elementParamBuilder.addAnnotation(ctx.nonNullAnnotation);
+        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(methodName)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .returns(valueTypeName)
+                .addParameter(elementParamBuilder.build())
+                .addException(IOException.class);
+        if (ctx.nullableAnnotation != null)
+            methodBuilder.addAnnotation(ctx.nullableAnnotation);
+
+        CodeBlock.Builder codeBuilder = CodeBlock.builder()
+                .addStatement("$T value = null", valueTypeName)
+                .addStatement("$T $L", ctx.primitiveType, ctx.primitiveName)
+                .addStatement("$T $L", ctx.arrayType, ctx.arrayName);
+
+        Element elementBackup = ctx.element, enclosingElementBackup = ctx.enclosingElement;
+        ctx.enclosingElement = elementBackup;
+        ctx.element = null;
+        ctx.appendRead(valueType, null, "value", codeBuilder);
+        ctx.element = elementBackup;
+        ctx.enclosingElement = enclosingElementBackup;
+
+        codeBuilder.addStatement("return value");
+        methodBuilder.addCode(codeBuilder.build());
+        ctx.classBuilder.addMethod(methodBuilder.build());
+
+        ctx.classBuilder.addField(FieldSpec.builder(ParameterizedTypeName.get(DECODER_NAME, ctx.elementType, valueTypeName), fieldName,
+                Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                .initializer("$L -> $L($L)", ctx.elementName, methodName, ctx.elementName)
+                .build());
+        return fieldName;
+    }
+
+    @Override
+    public boolean appendWrite(@NotNull JanksonContext ctx, @NotNull TypeMirror type, @Nullable String name, @NotNull String src, CodeBlock.@NotNull Builder codeBuilder) {
+        TypeMirror valueType = getValueType(ctx, type);
+        if (valueType == null)
+            return false;
+
+        String methodName = generateWriteMethod(ctx, valueType);
+        codeBuilder.addStatement("$L = $L($L)", ctx.elementName, methodName, src);
+
+        return true;
+    }
+
+    private @NotNull String generateWriteMethod(@NotNull JanksonContext ctx, @NotNull TypeMirror valueType) {
+        String typeSimpleName = StringUtils.titleCase(TypeUtils.getSimpleIdSafeName(valueType));
+        String methodName = "write" + typeSimpleName + "LazySection";
+        if (ctx.generatedMethods.contains(methodName))
+            return methodName;
+        ctx.generatedMethods.add(methodName);
+        String decoderName = generateDecoder(ctx, valueType);
+        TypeName valueTypeName = TypeName.get(valueType);
+        TypeName sectionTypeName = ParameterizedTypeName.get(LAZY_SECTION_NAME, valueTypeName);
+        ParameterSpec.Builder configParamBuilder = ParameterSpec.builder(sectionTypeName, "obj");
+        if (ctx.nullableAnnotation != null)
+            configParamBuilder.addAnnotation(ctx.nullableAnnotation);
+        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(methodName)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .returns(ctx.elementType)
+                .addParameter(configParamBuilder.build())
+                .addException(IOException.class);
+        if (ctx.nonNullAnnotation != null)
+            methodBuilder.addAnnotation(ctx.nonNullAnnotation);
+
+        CodeBlock.Builder codeBuilder = CodeBlock.builder()
+                .beginControlFlow("if (obj == null)")
+                .addStatement("return $T.INSTANCE", ctx.nullType)
+                .endControlFlow()
+                // sections that were never loaded are written back as they were read
+                .addStatement("$T raw = obj.getRaw($L)", ctx.elementType, decoderName)
+                .beginControlFlow("if (raw != null)")
+                .addStatement("return raw")
+                .endControlFlow()
+                .addStatement("$T value = obj.get()", valueTypeName)
+                .addStatement("$T $L", ctx.elementType, ctx.elementName);
+
+        Element elementBackup = ctx.element, enclosingElementBackup = ctx.enclosingElement;
+        ctx.enclosingElement = elementBackup;
+        ctx.element = null;
+        ctx.appendWrite(valueType, null, "value", codeBuilder);
+        ctx.element = elementBackup;
+        ctx.enclosingElement = enclosingElementBackup;
+
+        codeBuilder.addStatement("return $L", ctx.elementName);
+        methodBuilder.addCode(codeBuilder.build());
+        ctx.classBuilder.addMethod(methodBuilder.build());
+        return methodName;
+    }
+
+    @Override
+    public boolean appendStreamWrite(@NotNull JanksonContext ctx, @NotNull TypeMirror type, @Nullable String name, @NotNull String src,
+                                     @NotNull String depth, CodeBlock.@NotNull Builder codeBuilder) {
+        TypeMirror valueType = getValueType(ctx, type);
+        if (valueType == null)
+            return false;
+
+        String methodName = generateStreamWriteMethod(ctx, valueType);
+        codeBuilder.addStatement("$L(writer, $L, $L)", methodName, src, depth);
+
+        return true;
+    }
+
+    private @NotNull String generateStreamWriteMethod(@NotNull JanksonContext ctx, @NotNull TypeMirror valueType) {
+        String typeSimpleName = StringUtils.titleCase(TypeUtils.getSimpleIdSafeName(valueType));
+        String methodName = "write" + typeSimpleName + "LazySectionJson5";
+        if (ctx.generatedMethods.contains(methodName))
+            return methodName;
+        ctx.generatedMethods.add(methodName);
+        String decoderName = generateDecoder(ctx, valueType);
+        TypeName valueTypeName = TypeName.get(valueType);
+        MethodSpec.Builder methodBuilder = ctx.createStreamWriteMethod(methodName,
+                ParameterizedTypeName.get(LAZY_SECTION_NAME, valueTypeName), "obj");
+
+        CodeBlock.Builder codeBuilder = CodeBlock.builder()
+                // sections that were never loaded are written back as they were read
+                .addStatement("$T raw = obj.getRaw($L)", ctx.elementType, decoderName)
+                .beginControlFlow("if (raw != null)")
+                .addStatement("writeJson5Element(writer, raw, depth)")
+                .addStatement("return")
+                .endControlFlow()
+                .addStatement("$T value = obj.get()", valueTypeName);
+
+        Element elementBackup = ctx.element, enclosingElementBackup = ctx.enclosingElement;
+        ctx.enclosingElement = elementBackup;
+        ctx.element = null;
+        ctx.appendStreamWrite(valueType, null, "value", "depth", codeBuilder);
+        ctx.element = elementBackup;
+        ctx.enclosingElement = enclosingElementBackup;
+
+        methodBuilder.addCode(codeBuilder.build());
+        ctx.classBuilder.addMethod(methodBuilder.build());
+        return methodName;
+    }
+}
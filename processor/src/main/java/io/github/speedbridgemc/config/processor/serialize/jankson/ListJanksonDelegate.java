@@ -18,11 +18,12 @@ import javax.lang.model.type.TypeMirror;
 import javax.tools.Diagnostic;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 public final class ListJanksonDelegate extends BaseJanksonDelegate {
     private static final ClassName ARRAY_LIST_NAME = ClassName.get(ArrayList.class),
-            ITERABLE_NAME = ClassName.get(Iterable.class);
+            ITERABLE_NAME = ClassName.get(Iterable.class), ITERATOR_NAME = ClassName.get(Iterator.class);
     private TypeMirror listTM;
 
     @Override
@@ -93,7 +94,7 @@ public final class ListJanksonDelegate extends BaseJanksonDelegate {
                 .addStatement("return null")
                 .nextControlFlow("else if ($L instanceof $T)", ctx.elementName, ctx.arrayType)
                 .addStatement("$2T $1L = ($2T) $3L", ctx.arrayName, ctx.arrayType, ctx.elementName)
-                .addStatement("$1T $2L = new $1T()", listTypeName, listName)
+                .addStatement("$1T $2L = new $1T($3L.size())", listTypeName, listName, ctx.arrayName)
                 .addStatement("$T $L", ctx.primitiveType, ctx.primitiveName)
                 .addStatement("$T $L = $L", componentType, compDest, SerializerComponentProvider.getDefaultValue(componentTypeName))
                 .beginControlFlow("for ($T $L : $L)", ctx.elementType, elemDest, ctx.arrayName);
@@ -208,4 +209,69 @@ public final class ListJanksonDelegate extends BaseJanksonDelegate {
         ctx.classBuilder.addMethod(methodBuilder.build());
         return methodName;
     }
+
+    @Override
+    public boolean appendStreamWrite(@NotNull JanksonContext ctx, @NotNull TypeMirror type, @Nullable String name, @NotNull String src,
+                                     @NotNull String depth, CodeBlock.@NotNull Builder codeBuilder) {
+        TypeMirror componentType = null;
+        if (type.getKind() == TypeKind.DECLARED) {
+            DeclaredType declaredType = (DeclaredType) type;
+            if (listTM == null)
+                return false;
+            TypeMirror erasedType = types.erasure(declaredType);
+            if (types.isSameType(erasedType, listTM)) {
+                List<? extends TypeMirror> typeArguments = declaredType.getTypeArguments();
+                if (typeArguments.size() == 0) {
+                    messager.printMessage(Diagnostic.Kind.ERROR,
+                            "Serializer: Raw lists are unsupported", ctx.getEffectiveElement());
+                    return false;
+                }
+                componentType = typeArguments.get(0);
+            }
+        }
+        if (componentType == null)
+            return false;
+
+        String methodName = generateStreamWriteMethod(ctx, TypeName.get(componentType), componentType);
+        codeBuilder.addStatement("$L(writer, $L, $L)", methodName, src, depth);
+        return true;
+    }
+
+    private @NotNull String generateStreamWriteMethod(@NotNull JanksonContext ctx, @NotNull TypeName componentTypeName, @NotNull TypeMirror componentType) {
+        String typeSimpleName = StringUtils.titleCase(TypeUtils.getSimpleIdSafeName(componentType));
+        String methodName = "write" + typeSimpleName + "ListJson5";
+        if (ctx.generatedMethods.contains(methodName))
+            return methodName;
+        ctx.generatedMethods.add(methodName);
+        TypeName boxedComponentTypeName = componentTypeName.box();
+        MethodSpec.Builder methodBuilder = ctx.createStreamWriteMethod(methodName,
+                ParameterizedTypeName.get(ITERABLE_NAME, boxedComponentTypeName), "obj");
+        String compSrc = "comp";
+        CodeBlock.Builder codeBuilder = CodeBlock.builder()
+                .addStatement("$T it = obj.iterator()", ParameterizedTypeName.get(ITERATOR_NAME, boxedComponentTypeName))
+                .beginControlFlow("if (!it.hasNext())")
+                .addStatement("writer.write($S)", "[]")
+                .addStatement("return")
+                .endControlFlow()
+                .addStatement("writer.write('[')")
+                .beginControlFlow("do")
+                .addStatement("$T $L = it.next()", boxedComponentTypeName, compSrc)
+                .addStatement("writeJson5Newline(writer, depth + 1)");
+
+        Element elementBackup = ctx.element, enclosingElementBackup = ctx.enclosingElement;
+        ctx.enclosingElement = elementBackup;
+        ctx.element = null;
+        ctx.appendStreamWrite(componentType, null, compSrc, "depth + 1", codeBuilder);
+        ctx.element = elementBackup;
+        ctx.enclosingElement = enclosingElementBackup;
+
+        codeBuilder
+                .addStatement("writeJson5Separator(writer, !it.hasNext())")
+                .endControlFlow("while (it.hasNext())")
+                .addStatement("writeJson5Newline(writer, depth)")
+                .addStatement("writer.write(']')");
+        methodBuilder.addCode(codeBuilder.build());
+        ctx.classBuilder.addMethod(methodBuilder.build());
+        return methodName;
+    }
 }
@@ -18,12 +18,13 @@ import javax.lang.model.type.TypeMirror;
 import javax.tools.Diagnostic;
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
 public final class MapJanksonDelegate extends BaseJanksonDelegate {
     private static final ClassName HASH_MAP_NAME = ClassName.get(HashMap.class),
-            MAP_NAME = ClassName.get(Map.class);
+            MAP_NAME = ClassName.get(Map.class), ITERATOR_NAME = ClassName.get(Iterator.class);
     private TypeMirror mapTM, stringTM, entryTM;
 
     @Override
@@ -116,7 +117,7 @@ public final class MapJanksonDelegate extends BaseJanksonDelegate {
             codeBuilder
                     .nextControlFlow("else if ($L instanceof $T)", elementNameBackup, ctx.objectType)
                     .addStatement("$1T $2L = ($1T) $3L", ctx.objectType, objDest, elementNameBackup)
-                    .addStatement("$1T $2L = new $1T()", mapTypeName, mapName)
+                    .addStatement("$1T $2L = new $1T($3L.size() * 4 / 3 + 1)", mapTypeName, mapName, objDest)
                     .addStatement("$T $L", ctx.primitiveType, ctx.primitiveName)
                     .addStatement("$T $L = $L", valueType, valueDest, SerializerComponentProvider.getDefaultValue(valueTypeName))
                     .beginControlFlow("for ($T<$T, $T> $L : $L.entrySet())",
@@ -136,7 +137,7 @@ public final class MapJanksonDelegate extends BaseJanksonDelegate {
             codeBuilder
                     .nextControlFlow("else if ($L instanceof $T)", elementNameBackup, ctx.arrayType)
                     .addStatement("$1T $2L = ($1T) $3L", ctx.arrayType, arrDest, elementNameBackup)
-                    .addStatement("$1T $2L = new $1T()", mapTypeName, mapName)
+                    .addStatement("$1T $2L = new $1T($3L.size() * 4 / 3 + 1)", mapTypeName, mapName, arrDest)
                     .addStatement("$T $L", ctx.primitiveType, ctx.primitiveName)
                     .addStatement("$T $L = $L", keyType, keyDest, SerializerComponentProvider.getDefaultValue(keyTypeName))
                     .addStatement("$T $L = $L", valueType, valueDest, SerializerComponentProvider.getDefaultValue(valueTypeName))
@@ -295,4 +296,91 @@ public final class MapJanksonDelegate extends BaseJanksonDelegate {
         ctx.classBuilder.addMethod(methodBuilder.build());
         return methodName;
     }
+
+    @Override
+    public boolean appendStreamWrite(@NotNull JanksonContext ctx, @NotNull TypeMirror type, @Nullable String name, @NotNull String src,
+                                     @NotNull String depth, CodeBlock.@NotNull Builder codeBuilder) {
+        TypeMirror keyType = null, valueType = null;
+        if (type.getKind() == TypeKind.DECLARED) {
+            DeclaredType declaredType = (DeclaredType) type;
+            if (mapTM == null)
+                return false;
+            TypeMirror erasedType = types.erasure(declaredType);
+            if (types.isSameType(erasedType, mapTM)) {
+                List<? extends TypeMirror> typeArguments = declaredType.getTypeArguments();
+                if (typeArguments.size() == 0) {
+                    messager.printMessage(Diagnostic.Kind.ERROR,
+                            "Serializer: Raw maps are unsupported", ctx.getEffectiveElement());
+                    return false;
+                }
+                keyType = typeArguments.get(0);
+                valueType = typeArguments.get(1);
+            }
+        }
+        if (keyType == null || valueType == null)
+            return false;
+
+        String methodName = generateStreamWriteMethod(ctx, keyType, valueType);
+        codeBuilder.addStatement("$L(writer, $L, $L)", methodName, src, depth);
+
+        return true;
+    }
+
+    private @NotNull String generateStreamWriteMethod(@NotNull JanksonContext ctx, @NotNull TypeMirror keyType, @NotNull TypeMirror valueType) {
+        String keyTypeSimpleName = StringUtils.titleCase(TypeUtils.getSimpleIdSafeName(keyType));
+        String valueTypeSimpleName = StringUtils.titleCase(TypeUtils.getSimpleIdSafeName(valueType));
+        String methodName = "write" + keyTypeSimpleName + "2" + valueTypeSimpleName + "MapJson5";
+        if (ctx.generatedMethods.contains(methodName))
+            return methodName;
+        ctx.generatedMethods.add(methodName);
+        TypeName keyTypeName = TypeName.get(keyType);
+        TypeName valueTypeName = TypeName.get(valueType);
+        TypeName entryTypeName = ParameterizedTypeName.get(ClassName.get(Map.Entry.class), keyTypeName, valueTypeName);
+        String src = "obj";
+        MethodSpec.Builder methodBuilder = ctx.createStreamWriteMethod(methodName,
+                ParameterizedTypeName.get(MAP_NAME, keyTypeName, valueTypeName), src);
+
+        boolean stringKeys = types.isSameType(keyType, stringTM);
+        String entrySrc = "entry", keySrc = "key", valueSrc = "value";
+        CodeBlock.Builder codeBuilder = CodeBlock.builder()
+                .addStatement("$T it = $L.entrySet().iterator()", ParameterizedTypeName.get(ITERATOR_NAME, entryTypeName), src)
+                .beginControlFlow("if (!it.hasNext())")
+                .addStatement("writer.write($S)", stringKeys ? "{}" : "[]")
+                .addStatement("return")
+                .endControlFlow()
+                .addStatement("writer.write($L)", stringKeys ? "'{'" : "'['")
+                .beginControlFlow("do")
+                .addStatement("$T $L = it.next()", entryTypeName, entrySrc)
+                .addStatement("writeJson5Newline(writer, depth + 1)");
+
+        Element elementBackup = ctx.element, enclosingElementBackup = ctx.enclosingElement;
+        ctx.enclosingElement = elementBackup;
+        ctx.element = null;
+
+        if (stringKeys) {
+            // object
+            codeBuilder
+                    .addStatement("writeJson5Key(writer, $L.getKey())", entrySrc)
+                    .addStatement("$T $L = $L.getValue()", valueType, valueSrc, entrySrc);
+            ctx.appendStreamWrite(valueType, null, valueSrc, "depth + 1", codeBuilder);
+        } else {
+            // array of key/value objects
+            codeBuilder
+                    .addStatement("$T $L = $L.getKey()", keyType, keySrc, entrySrc)
+                    .addStatement("$T $L = $L.getValue()", valueType, valueSrc, entrySrc);
+            ctx.appendStreamWriteEntry(keyType, keySrc, valueType, valueSrc, codeBuilder);
+        }
+
+        ctx.element = elementBackup;
+        ctx.enclosingElement = enclosingElementBackup;
+
+        codeBuilder
+                .addStatement("writeJson5Separator(writer, !it.hasNext())")
+                .endControlFlow("while (it.hasNext())")
+                .addStatement("writeJson5Newline(writer, depth)")
+                .addStatement("writer.write($L)", stringKeys ? "'}'" : "']'");
+        methodBuilder.addCode(codeBuilder.build());
+        ctx.classBuilder.addMethod(methodBuilder.build());
+        return methodName;
+    }
 }
@@ -161,4 +161,62 @@ public final class NestedJanksonDelegate extends BaseJanksonDelegate {
         ctx.classBuilder.addMethod(methodBuilder.build());
         return methodName;
     }
+
+    @Override
+    public boolean appendStreamWrite(@NotNull JanksonContext ctx, @NotNull TypeMirror type, @Nullable String name, @NotNull String src,
+                                     @NotNull String depth, CodeBlock.@NotNull Builder codeBuilder) {
+        Element typeElementRaw = types.asElement(type);
+        if (typeElementRaw == null || typeElementRaw.getKind() != ElementKind.CLASS) {
+            messager.printMessage(Diagnostic.Kind.ERROR,
+                    "Serializer: Field has non-class type with no special delegate", ctx.getEffectiveElement());
+            return false;
+        }
+        TypeElement typeElement = (TypeElement) typeElementRaw;
+        TypeName typeName = TypeName.get(type);
+        String methodName = generateStreamWriteMethod(ctx, typeName, typeElement);
+        codeBuilder.addStatement("$L(writer, $L, $L)", methodName, src, depth);
+        return true;
+    }
+
+    private @NotNull String generateStreamWriteMethod(@NotNull JanksonContext ctx, @NotNull TypeName typeName, @NotNull TypeElement typeElement) {
+        String methodName = "write" + typeElement.getSimpleName().toString() + "Json5";
+        if (ctx.generatedMethods.contains(methodName))
+            return methodName;
+        ctx.generatedMethods.add(methodName);
+        List<VariableElement> fields = TypeUtils.getFieldsToProcess(typeElement);
+        String configName = "obj";
+        MethodSpec.Builder methodBuilder = ctx.createStreamWriteMethod(methodName, typeName, configName);
+        CodeBlock.Builder codeBuilder = CodeBlock.builder();
+        if (fields.isEmpty()) {
+            methodBuilder.addStatement("writer.write($S)", "{}");
+            ctx.classBuilder.addMethod(methodBuilder.build());
+            return methodName;
+        }
+        codeBuilder.addStatement("writer.write('{')");
+
+        Element elementBackup = ctx.element, enclosingElementBackup = ctx.enclosingElement;
+        ctx.enclosingElement = elementBackup;
+
+        for (int i = 0, size = fields.size(); i < size; i++) {
+            VariableElement field = fields.get(i);
+            String fieldName = field.getSimpleName().toString();
+            String serializedName = SerializerComponentProvider.getSerializedName(ctx.sCtx, field);
+            ctx.element = null;
+            codeBuilder
+                    .addStatement("writeJson5Newline(writer, depth + 1)")
+                    .addStatement("writeJson5Key(writer, $S)", serializedName);
+            ctx.appendStreamWrite(field.asType(), serializedName, configName + "." + fieldName, "depth + 1", codeBuilder);
+            codeBuilder.addStatement("writeJson5Separator(writer, $L)", i == size - 1);
+        }
+
+        ctx.element = elementBackup;
+        ctx.enclosingElement = enclosingElementBackup;
+
+        methodBuilder.addCode(codeBuilder
+                .addStatement("writeJson5Newline(writer, depth)")
+                .addStatement("writer.write('}')")
+                .build());
+        ctx.classBuilder.addMethod(methodBuilder.build());
+        return methodName;
+    }
 }
@@ -101,4 +101,33 @@ public final class PrimitiveJanksonDelegate extends BaseJanksonDelegate {
         }
         return false;
     }
+
+    @Override
+    public boolean appendStreamWrite(@NotNull JanksonContext ctx, @NotNull TypeMirror type, @Nullable String name, @NotNull String src,
+                                     @NotNull String depth, CodeBlock.@NotNull Builder codeBuilder) {
+        TypeName typeName = TypeName.get(type);
+        boolean string = STRING_TYPE.equals(typeName);
+        boolean boxed = typeName.isBoxedPrimitive();
+        if (boxed)
+            typeName = typeName.unbox();
+        else if (!string && !typeName.isPrimitive())
+            return false;
+
+        if (boxed || string)
+            codeBuilder
+                    .beginControlFlow("if ($L == null)", src)
+                    .addStatement("writer.write($S)", "null")
+                    .nextControlFlow("else");
+        if (string)
+            codeBuilder.addStatement("writeJson5String(writer, $L)", src);
+        else if (TypeName.CHAR.equals(typeName))
+            codeBuilder.addStatement("writeJson5String(writer, $T.valueOf($L))", String.class, src);
+        else if (TypeName.FLOAT.equals(typeName) || TypeName.DOUBLE.equals(typeName))
+            codeBuilder.addStatement("writeJson5Double(writer, $L)", src);
+        else
+            codeBuilder.addStatement("writer.write($T.valueOf($L))", String.class, src);
+        if (boxed || string)
+            codeBuilder.endControlFlow();
+        return true;
+    }
 }
@@ -0,0 +1,212 @@
+package io.github.speedbridgemc.config.processor.serialize.jankson;
+
+import com.squareup.javapoet.*;
+import io.github.speedbridgemc.config.collect.FloatList;
+import io.github.speedbridgemc.config.collect.IntList;
+import io.github.speedbridgemc.config.collect.LongList;
+import io.github.speedbridgemc.config.processor.serialize.api.jankson.BaseJanksonDelegate;
+import io.github.speedbridgemc.config.processor.serialize.api.jankson.JanksonContext;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import java.io.IOException;
+import java.util.HashMap;
+
+public final class PrimitiveListJanksonDelegate extends BaseJanksonDelegate {
+    private static final HashMap<TypeName, TypeKind> COMPONENT_KINDS = new HashMap<>();
+
+    static {
+        COMPONENT_KINDS.put(ClassName.get(IntList.class), TypeKind.INT);
+        COMPONENT_KINDS.put(ClassName.get(LongList.class), TypeKind.LONG);
+        COMPONENT_KINDS.put(ClassName.get(FloatList.class), TypeKind.FLOAT);
+    }
+
+    @Override
+    public boolean appendRead(@NotNull JanksonContext ctx, @NotNull TypeMirror type, @Nullable String name, @NotNull String dest, CodeBlock.@NotNull Builder codeBuilder) {
+        TypeName typeName = TypeName.get(type);
+        TypeKind componentKind = COMPONENT_KINDS.get(typeName);
+        if (componentKind == null)
+            return false;
+
+        String methodName = generateReadMethod(ctx, typeName, types.getPrimitiveType(componentKind));
+        codeBuilder
+                .beginControlFlow("if ($L != null)", ctx.elementName)
+                .addStatement("$L = $L($L)", dest, methodName, ctx.elementName)
+                .endControlFlow();
+
+        return true;
+    }
+
+    private @NotNull String generateReadMethod(@NotNull JanksonContext ctx, @NotNull TypeName listTypeName, @NotNull TypeMirror componentType) {
+        String methodName = "read" + ((ClassName) listTypeName).simpleName();
+        if (ctx.generatedMethods.contains(methodName))
+            return methodName;
+        ctx.generatedMethods.add(methodName);
+        ParameterSpec.Builder elementParamBuilder = ParameterSpec.builder(ctx.elementType, ctx.elementName);
+        if (ctx.nonNullAnnotation != null)
+            elementParamBuilder.addAnnotation(ctx.nonNullAnnotation);
+        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(methodName)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .returns(listTypeName)
+                .addParameter(elementParamBuilder.build())
+                .addException(IOException.class);
+        if (ctx.nullableAnnotation != null)
+            methodBuilder.addAnnotation(ctx.nullableAnnotation);
+        String listName = "list";
+        String compDest = "comp";
+        String elemDest = "elem";
+        CodeBlock.Builder codeBuilder = CodeBlock.builder()
+                .beginControlFlow("if ($L == $T.INSTANCE)", ctx.elementName, ctx.nullType)
+                .addStatement("return null")
+                .nextControlFlow("else if ($L instanceof $T)", ctx.elementName, ctx.arrayType)
+                .addStatement("$2T $1L = ($2T) $3L", ctx.arrayName, ctx.arrayType, ctx.elementName)
+                .addStatement("$1T $2L = new $1T($3L.size())", listTypeName, listName, ctx.arrayName)
+                .addStatement("$T $L", ctx.primitiveType, ctx.primitiveName)
+                .addStatement("$T $L = 0", componentType, compDest)
+                .beginControlFlow("for ($T $L : $L)", ctx.elementType, elemDest, ctx.arrayName);
+
+        String elementNameBackup = ctx.elementName;
+        ctx.elementName = elemDest;
+        Element elementBackup = ctx.element, enclosingElementBackup = ctx.enclosingElement;
+        ctx.enclosingElement = elementBackup;
+        ctx.element = null;
+
+        ctx.appendRead(componentType, null, compDest, codeBuilder);
+
+        ctx.element = elementBackup;
+        ctx.enclosingElement = enclosingElementBackup;
+        ctx.elementName = elementNameBackup;
+
+        codeBuilder
+                .addStatement("$L.add($L)", listName, compDest)
+                .endControlFlow()
+                .addStatement("return $L", listName)
+                .nextControlFlow("else")
+                .addStatement("throw new $T($S + $L.getClass().getSimpleName() + $S)",
+                        IOException.class, "Type mismatch! Expected \"JsonArray\", got \"", ctx.elementName, "\"!")
+                .endControlFlow();
+        methodBuilder.addCode(codeBuilder.build());
+        ctx.classBuilder.addMethod(methodBuilder.build());
+        return methodName;
+    }
+
+    @Override
+    public boolean appendWrite(@NotNull JanksonContext ctx, @NotNull TypeMirror type, @Nullable String name, @NotNull String src, CodeBlock.@NotNull Builder codeBuilder) {
+        TypeName typeName = TypeName.get(type);
+        TypeKind componentKind = COMPONENT_KINDS.get(typeName);
+        if (componentKind == null)
+            return false;
+
+        String methodName = generateWriteMethod(ctx, typeName, types.getPrimitiveType(componentKind));
+        codeBuilder.addStatement("$L = $L($L)", ctx.elementName, methodName, src);
+
+        return true;
+    }
+
+    private @NotNull String generateWriteMethod(@NotNull JanksonContext ctx, @NotNull TypeName listTypeName, @NotNull TypeMirror componentType) {
+        String methodName = "write" + ((ClassName) listTypeName).simpleName();
+        if (ctx.generatedMethods.contains(methodName))
+            return methodName;
+        ctx.generatedMethods.add(methodName);
+        String src = "obj";
+        ParameterSpec.Builder configParamBuilder = ParameterSpec.builder(listTypeName, src);
+        if (ctx.nullableAnnotation != null)
+            configParamBuilder.addAnnotation(ctx.nullableAnnotation);
+        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(methodName)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .returns(ctx.elementType)
+                .addParameter(configParamBuilder.build())
+                .addException(IOException.class);
+        if (ctx.nonNullAnnotation != null)
+            methodBuilder.addAnnotation(ctx.nonNullAnnotation);
+        CodeBlock.Builder codeBuilder = CodeBlock.builder();
+
+        String compSrc = "comp";
+        String arrSrc = "arr";
+        String elemSrc = "elem";
+
+        String arrayNameBackup = ctx.arrayName;
+        String elementNameBackup = ctx.elementName;
+        Element elementBackup = ctx.element, enclosingElementBackup = ctx.enclosingElement;
+        ctx.enclosingElement = elementBackup;
+        ctx.element = null;
+        ctx.arrayName = arrSrc;
+        ctx.elementName = elemSrc;
+
+        codeBuilder
+                .beginControlFlow("if ($L == null)", src)
+                .addStatement("return $T.INSTANCE", ctx.nullType)
+                .endControlFlow()
+                .addStatement("$1T $2L = new $1T()", ctx.arrayType, ctx.arrayName)
+                .beginControlFlow("for (int i = 0, size = $1L.size(); i < size; i++)", src)
+                .addStatement("$T $L = $L.get(i)", componentType, compSrc, src)
+                .addStatement("$T $L", ctx.elementType, ctx.elementName);
+        ctx.appendWrite(componentType, null, compSrc, codeBuilder);
+        codeBuilder
+                .addStatement("$L.add($L)", ctx.arrayName, ctx.elementName)
+                .endControlFlow()
+                .addStatement("return $L", arrSrc);
+
+        ctx.element = elementBackup;
+        ctx.enclosingElement = enclosingElementBackup;
+        ctx.arrayName = arrayNameBackup;
+        ctx.elementName = elementNameBackup;
+
+        methodBuilder.addCode(codeBuilder.build());
+        ctx.classBuilder.addMethod(methodBuilder.build());
+        return methodName;
+    }
+
+    @Override
+    public boolean appendStreamWrite(@NotNull JanksonContext ctx, @NotNull TypeMirror type, @Nullable String name, @NotNull String src,
+                                     @NotNull String depth, CodeBlock.@NotNull Builder codeBuilder) {
+        TypeName typeName = TypeName.get(type);
+        TypeKind componentKind = COMPONENT_KINDS.get(typeName);
+        if (componentKind == null)
+            return false;
+
+        String methodName = generateStreamWriteMethod(ctx, typeName, types.getPrimitiveType(componentKind));
+        codeBuilder.addStatement("$L(writer, $L, $L)", methodName, src, depth);
+
+        return true;
+    }
+
+    private @NotNull String generateStreamWriteMethod(@NotNull JanksonContext ctx, @NotNull TypeName listTypeName, @NotNull TypeMirror componentType) {
+        String methodName = "write" + ((ClassName) listTypeName).simpleName() + "Json5";
+        if (ctx.generatedMethods.contains(methodName))
+            return methodName;
+        ctx.generatedMethods.add(methodName);
+        MethodSpec.Builder methodBuilder = ctx.createStreamWriteMethod(methodName, listTypeName, "obj");
+        String compSrc = "comp";
+        CodeBlock.Builder codeBuilder = CodeBlock.builder()
+                .addStatement("int size = obj.size()")
+                .beginControlFlow("if (size == 0)")
+                .addStatement("writer.write($S)", "[]")
+                .addStatement("return")
+                .endControlFlow()
+                .addStatement("writer.write('[')")
+                .beginControlFlow("for (int i = 0; i < size; i++)")
+                .addStatement("$T $L = obj.get(i)", componentType, compSrc)
+                .addStatement("writeJson5Newline(writer, depth + 1)");
+
+        Element elementBackup = ctx.element, enclosingElementBackup = ctx.enclosingElement;
+        ctx.enclosingElement = elementBackup;
+        ctx.element = null;
+        ctx.appendStreamWrite(componentType, null, compSrc, "depth + 1", codeBuilder);
+        ctx.element = elementBackup;
+        ctx.enclosingElement = enclosingElementBackup;
+
+        codeBuilder
+                .addStatement("writeJson5Separator(writer, i == size - 1)")
+                .endControlFlow()
+                .addStatement("writeJson5Newline(writer, depth)")
+                .addStatement("writer.write(']')");
+        methodBuilder.addCode(codeBuilder.build());
+        ctx.classBuilder.addMethod(methodBuilder.build());
+        return methodName;
+    }
+}
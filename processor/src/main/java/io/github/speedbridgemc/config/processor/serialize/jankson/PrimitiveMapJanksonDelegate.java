@@ -0,0 +1,282 @@
+package io.github.speedbridgemc.config.processor.serialize.jankson;
+
+import com.squareup.javapoet.*;
+import io.github.speedbridgemc.config.collect.IntObjectMap;
+import io.github.speedbridgemc.config.collect.LongObjectMap;
+import io.github.speedbridgemc.config.processor.api.StringUtils;
+import io.github.speedbridgemc.config.processor.api.TypeUtils;
+import io.github.speedbridgemc.config.processor.serialize.api.jankson.BaseJanksonDelegate;
+import io.github.speedbridgemc.config.processor.serialize.api.jankson.JanksonContext;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+
+public final class PrimitiveMapJanksonDelegate extends BaseJanksonDelegate {
+    private static final HashMap<TypeName, TypeKind> KEY_KINDS = new HashMap<>();
+
+    static {
+        KEY_KINDS.put(ClassName.get(IntObjectMap.class), TypeKind.INT);
+        KEY_KINDS.put(ClassName.get(LongObjectMap.class), TypeKind.LONG);
+    }
+
+    private @Nullable TypeMirror getValueType(@NotNull JanksonContext ctx, @NotNull TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED)
+            return null;
+        DeclaredType declaredType = (DeclaredType) type;
+        if (!KEY_KINDS.containsKey(TypeName.get(types.erasure(declaredType))))
+            return null;
+        List<? extends TypeMirror> typeArguments = declaredType.getTypeArguments();
+        if (typeArguments.size() == 0) {
+            messager.printMessage(Diagnostic.Kind.ERROR,
+                    "Serializer: Raw maps are unsupported", ctx.getEffectiveElement());
+            return null;
+        }
+        return typeArguments.get(0);
+    }
+
+    @Override
+    public boolean appendRead(@NotNull JanksonContext ctx, @NotNull TypeMirror type, @Nullable String name, @NotNull String dest, CodeBlock.@NotNull Builder codeBuilder) {
+        TypeMirror valueType = getValueType(ctx, type);
+        if (valueType == null)
+            return false;
+
+        String methodName = generateReadMethod(ctx, (DeclaredType) type, valueType);
+        codeBuilder
+                .beginControlFlow("if ($L != null)", ctx.elementName)
+                .addStatement("$L = $L($L)", dest, methodName, ctx.elementName)
+                .endControlFlow();
+
+        return true;
+    }
+
+    private @NotNull String generateReadMethod(@NotNull JanksonContext ctx, @NotNull DeclaredType mapType, @NotNull TypeMirror valueType) {
+        TypeMirror keyType = types.getPrimitiveType(KEY_KINDS.get(TypeName.get(types.erasure(mapType))));
+        String keyTypeSimpleName = StringUtils.titleCase(TypeUtils.getSimpleIdSafeName(keyType));
+        String valueTypeSimpleName = StringUtils.titleCase(TypeUtils.getSimpleIdSafeName(valueType));
+        String methodName = "read" + keyTypeSimpleName + "2" + valueTypeSimpleName + "Map";
+        if (ctx.generatedMethods.contains(methodName))
+            return methodName;
+        ctx.generatedMethods.add(methodName);
+        TypeName mapTypeName = TypeName.get(mapType);
+        ParameterSpec.Builder elementParamBuilder = ParameterSpec.builder(ctx.elementType, ctx.elementName);
+        if (ctx.nonNullAnnotation != null)
+            elementParamBuilder.addAnnotation(ctx.nonNullAnnotation);
+        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(methodName)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .returns(mapTypeName)
+                .addParameter(elementParamBuilder.build())
+                .addException(IOException.class);
+        if (ctx.nullableAnnotation != null)
+            methodBuilder.addAnnotation(ctx.nullableAnnotation);
+        String mapName = "map" + keyTypeSimpleName + "2" + valueTypeSimpleName;
+
+        String objDest = "obj";
+        String arrDest = "arr";
+        String elemDest = "elem" + keyTypeSimpleName + "2" + valueTypeSimpleName;
+        String keyDest = "key";
+        String valueDest = "value";
+        String keyElemDest = "keyElem";
+        String valueElemDest = "valueElem";
+
+        Element elementBackup = ctx.element, enclosingElementBackup = ctx.enclosingElement;
+        ctx.enclosingElement = elementBackup;
+        ctx.element = null;
+        String elementNameBackup = ctx.elementName;
+        ctx.elementName = elemDest;
+
+        // same layout as maps with non-string keys: an array of key/value pair objects
+        CodeBlock.Builder codeBuilder = CodeBlock.builder()
+                .beginControlFlow("if ($L == $T.INSTANCE)", elementNameBackup, ctx.nullType)
+                .addStatement("return null")
+                .nextControlFlow("else if ($L instanceof $T)", elementNameBackup, ctx.arrayType)
+                .addStatement("$1T $2L = ($1T) $3L", ctx.arrayType, arrDest, elementNameBackup)
+                .addStatement("$1T $2L = new $1T($3L.size())", mapTypeName, mapName, arrDest)
+                .addStatement("$T $L", ctx.primitiveType, ctx.primitiveName)
+                .addStatement("$T $L = 0", keyType, keyDest)
+                .addStatement("$T $L = null", valueType, valueDest)
+                .beginControlFlow("for ($T $L : $L)", ctx.elementType, elemDest, arrDest)
+                .beginControlFlow("if ($L instanceof $T)", elemDest, ctx.objectType)
+                .addStatement("$1T $2L = ($1T) $3L", ctx.objectType, objDest, elemDest)
+                .addStatement("$T $L = $L.get($S)", ctx.elementType, keyElemDest, objDest, "key")
+                .beginControlFlow("if ($L == null)", keyElemDest)
+                .addStatement("throw new $T($S)", IOException.class, "Missing complex map entry key!")
+                .endControlFlow();
+        ctx.elementName = keyElemDest;
+        ctx.appendRead(keyType, null, keyDest, codeBuilder);
+        codeBuilder.addStatement("$T $L = $L.get($S)", ctx.elementType, valueElemDest, objDest, "value")
+                .beginControlFlow("if ($L == null)", valueElemDest)
+                .addStatement("throw new $T($S)", IOException.class, "Missing complex map entry value!")
+                .endControlFlow();
+        ctx.elementName = valueElemDest;
+        ctx.appendRead(valueType, null, valueDest, codeBuilder);
+        ctx.elementName = elemDest;
+        codeBuilder
+                .addStatement("$L.put($L, $L)", mapName, keyDest, valueDest)
+                .endControlFlow()
+                .endControlFlow()
+                .addStatement("return $L", mapName)
+                .nextControlFlow("else")
+                .addStatement("throw new $T($S + $L.getClass().getSimpleName() + $S)",
+                        IOException.class, "Type mismatch! Expected \"JsonArray\", got \"", elementNameBackup, "\"!")
+                .endControlFlow();
+
+        ctx.element = elementBackup;
+        ctx.enclosingElement = enclosingElementBackup;
+        ctx.elementName = elementNameBackup;
+
+        methodBuilder.addCode(codeBuilder.build());
+        ctx.classBuilder.addMethod(methodBuilder.build());
+        return methodName;
+    }
+
+    @Override
+    public boolean appendWrite(@NotNull JanksonContext ctx, @NotNull TypeMirror type, @Nullable String name, @NotNull String src, CodeBlock.@NotNull Builder codeBuilder) {
+        TypeMirror valueType = getValueType(ctx, type);
+        if (valueType == null)
+            return false;
+
+        String methodName = generateWriteMethod(ctx, (DeclaredType) type, valueType);
+        codeBuilder.addStatement("$L = $L($L)", ctx.elementName, methodName, src);
+
+        return true;
+    }
+
+    private @NotNull String generateWriteMethod(@NotNull JanksonContext ctx, @NotNull DeclaredType mapType, @NotNull TypeMirror valueType) {
+        TypeMirror keyType = types.getPrimitiveType(KEY_KINDS.get(TypeName.get(types.erasure(mapType))));
+        String keyTypeSimpleName = StringUtils.titleCase(TypeUtils.getSimpleIdSafeName(keyType));
+        String valueTypeSimpleName = StringUtils.titleCase(TypeUtils.getSimpleIdSafeName(valueType));
+        String methodName = "write" + keyTypeSimpleName + "2" + valueTypeSimpleName + "Map";
+        if (ctx.generatedMethods.contains(methodName))
+            return methodName;
+        ctx.generatedMethods.add(methodName);
+        TypeName mapTypeName = TypeName.get(mapType);
+        String src = "obj";
+        ParameterSpec.Builder configParamBuilder = ParameterSpec.builder(mapTypeName, src);
+        if (ctx.nullableAnnotation != null)
+            configParamBuilder.addAnnotation(ctx.nullableAnnotation);
+        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(methodName)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .returns(ctx.elementType)
+                .addParameter(configParamBuilder.build())
+                .addException(IOException.class)
+                .addCode(CodeBlock.builder()
+                        .beginControlFlow("if ($L == null)", src)
+                        .addStatement("return $T.INSTANCE", ctx.nullType)
+                        .endControlFlow()
+                        .build());
+        if (ctx.nonNullAnnotation != null)
+            methodBuilder.addAnnotation(ctx.nonNullAnnotation);
+        CodeBlock.Builder codeBuilder = CodeBlock.builder();
+
+        String cursorSrc = "cursor";
+        String keySrc = "key";
+        String valueSrc = "value";
+        String objSrc = "obj" + keyTypeSimpleName + "2" + valueTypeSimpleName;
+        String arrSrc = "arr";
+        String keyElemSrc = "keyElem";
+        String valueElemSrc = "valueElem";
+
+        Element elementBackup = ctx.element, enclosingElementBackup = ctx.enclosingElement;
+        ctx.enclosingElement = elementBackup;
+        ctx.element = null;
+        String elementNameBackup = ctx.elementName;
+
+        codeBuilder
+                .addStatement("$1T $2L = new $1T()", ctx.arrayType, arrSrc)
+                .addStatement("$T $L = $L.cursor()", getCursorType(mapTypeName), cursorSrc, src)
+                .beginControlFlow("while ($L.advance())", cursorSrc);
+        ctx.elementName = keyElemSrc;
+        codeBuilder
+                .addStatement("$T $L", ctx.elementType, keyElemSrc)
+                .addStatement("$T $L = $L.key()", keyType, keySrc, cursorSrc);
+        ctx.appendWrite(keyType, null, keySrc, codeBuilder);
+        ctx.elementName = valueElemSrc;
+        codeBuilder
+                .addStatement("$T $L", ctx.elementType, valueElemSrc)
+                .addStatement("$T $L = $L.value()", valueType, valueSrc, cursorSrc);
+        ctx.appendWrite(valueType, null, valueSrc, codeBuilder);
+        codeBuilder
+                .addStatement("$1T $2L = new $1T()", ctx.objectType, objSrc)
+                .addStatement("$L.put($S, $L)", objSrc, "key", keyElemSrc)
+                .addStatement("$L.put($S, $L)", objSrc, "value", valueElemSrc)
+                .addStatement("$L.add($L)", arrSrc, objSrc)
+                .endControlFlow()
+                .addStatement("return $L", arrSrc);
+
+        ctx.elementName = elementNameBackup;
+        ctx.element = elementBackup;
+        ctx.enclosingElement = enclosingElementBackup;
+
+        methodBuilder.addCode(codeBuilder.build());
+        ctx.classBuilder.addMethod(methodBuilder.build());
+        return methodName;
+    }
+
+    private static @NotNull TypeName getCursorType(@NotNull TypeName mapTypeName) {
+        ParameterizedTypeName mapType = (ParameterizedTypeName) mapTypeName;
+        return ParameterizedTypeName.get(mapType.rawType.nestedClass("Cursor"), mapType.typeArguments.get(0));
+    }
+
+    @Override
+    public boolean appendStreamWrite(@NotNull JanksonContext ctx, @NotNull TypeMirror type, @Nullable String name, @NotNull String src,
+                                     @NotNull String depth, CodeBlock.@NotNull Builder codeBuilder) {
+        TypeMirror valueType = getValueType(ctx, type);
+        if (valueType == null)
+            return false;
+
+        String methodName = generateStreamWriteMethod(ctx, (DeclaredType) type, valueType);
+        codeBuilder.addStatement("$L(writer, $L, $L)", methodName, src, depth);
+
+        return true;
+    }
+
+    private @NotNull String generateStreamWriteMethod(@NotNull JanksonContext ctx, @NotNull DeclaredType mapType, @NotNull TypeMirror valueType) {
+        TypeMirror keyType = types.getPrimitiveType(KEY_KINDS.get(TypeName.get(types.erasure(mapType))));
+        String keyTypeSimpleName = StringUtils.titleCase(TypeUtils.getSimpleIdSafeName(keyType));
+        String valueTypeSimpleName = StringUtils.titleCase(TypeUtils.getSimpleIdSafeName(valueType));
+        String methodName = "write" + keyTypeSimpleName + "2" + valueTypeSimpleName + "MapJson5";
+        if (ctx.generatedMethods.contains(methodName))
+            return methodName;
+        ctx.generatedMethods.add(methodName);
+        TypeName mapTypeName = TypeName.get(mapType);
+        MethodSpec.Builder methodBuilder = ctx.createStreamWriteMethod(methodName, mapTypeName, "obj");
+        String cursorSrc = "cursor", keySrc = "key", valueSrc = "value";
+        CodeBlock.Builder codeBuilder = CodeBlock.builder()
+                .addStatement("int remaining = obj.size()")
+                .beginControlFlow("if (remaining == 0)")
+                .addStatement("writer.write($S)", "[]")
+                .addStatement("return")
+                .endControlFlow()
+                .addStatement("writer.write('[')")
+                .addStatement("$T $L = obj.cursor()", getCursorType(mapTypeName), cursorSrc)
+                .beginControlFlow("while ($L.advance())", cursorSrc)
+                .addStatement("writeJson5Newline(writer, depth + 1)")
+                .addStatement("$T $L = $L.key()", keyType, keySrc, cursorSrc)
+                .addStatement("$T $L = $L.value()", valueType, valueSrc, cursorSrc);
+
+        Element elementBackup = ctx.element, enclosingElementBackup = ctx.enclosingElement;
+        ctx.enclosingElement = elementBackup;
+        ctx.element = null;
+        ctx.appendStreamWriteEntry(keyType, keySrc, valueType, valueSrc, codeBuilder);
+        ctx.element = elementBackup;
+        ctx.enclosingElement = enclosingElementBackup;
+
+        codeBuilder
+                .addStatement("writeJson5Separator(writer, --remaining == 0)")
+                .endControlFlow()
+                .addStatement("writeJson5Newline(writer, depth)")
+                .addStatement("writer.write(']')");
+        methodBuilder.addCode(codeBuilder.build());
+        ctx.classBuilder.addMethod(methodBuilder.build());
+        return methodName;
+    }
+}
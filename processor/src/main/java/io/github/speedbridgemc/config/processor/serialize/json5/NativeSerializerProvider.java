@@ -0,0 +1,82 @@
+package io.github.speedbridgemc.config.processor.serialize.json5;
+
+import com.google.auto.service.AutoService;
+import com.google.common.collect.ImmutableList;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import io.github.speedbridgemc.config.processor.serialize.SerializerComponentProvider;
+import io.github.speedbridgemc.config.processor.serialize.api.BaseSerializerProvider;
+import io.github.speedbridgemc.config.processor.serialize.api.SerializerContext;
+import io.github.speedbridgemc.config.processor.serialize.api.SerializerProvider;
+import io.github.speedbridgemc.config.processor.serialize.api.gson.GsonContext;
+import io.github.speedbridgemc.config.processor.serialize.gson.GsonSerializerProvider;
+import io.github.speedbridgemc.config.serialize.json5.Json5Reader;
+import io.github.speedbridgemc.config.serialize.json5.Json5SyntaxException;
+import io.github.speedbridgemc.config.serialize.json5.Json5Token;
+import io.github.speedbridgemc.config.serialize.json5.Json5Writer;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import java.io.IOException;
+
+/**
+ * Generates JSON5 serializers that only depend on the runtime module.<p>
+ * {@link Json5Reader} and {@link Json5Writer} mirror Gson's streaming API, so this reuses the Gson delegates
+ * (including any registered third-party ones), but with property names matched against pre-encoded byte tables.
+ */
+@ApiStatus.Internal
+@AutoService(SerializerProvider.class)
+public final class NativeSerializerProvider extends BaseSerializerProvider {
+    private static final ClassName READER_NAME = ClassName.get(Json5Reader.class),
+            WRITER_NAME = ClassName.get(Json5Writer.class),
+            TOKEN_NAME = ClassName.get(Json5Token.class),
+            SYNTAX_EXCEPTION_NAME = ClassName.get(Json5SyntaxException.class);
+
+    public NativeSerializerProvider() {
+        super("speedbridge-config:native");
+    }
+
+    @Override
+    public void process(@NotNull String name, @NotNull TypeElement type,
+                        @NotNull ImmutableList<VariableElement> fields,
+                        @NotNull SerializerContext ctx, TypeSpec.@NotNull Builder classBuilder) {
+        TypeName configType = ctx.configType;
+        GsonContext gCtx = new GsonContext(ctx, classBuilder, READER_NAME, WRITER_NAME, TOKEN_NAME,
+                ctx.nonNullAnnotation, ctx.nullableAnnotation);
+        gCtx.init(processingEnv);
+        gCtx.enclosingElement = type;
+        gCtx.nameTables = true;
+        gCtx.rawValues = true;
+        SerializerComponentProvider.getMissingErrorMessages(processingEnv, ctx, fields, ctx.defaultMissingErrorMessage, gCtx.missingErrorMessages);
+        GsonSerializerProvider.generateGotFlags(gCtx, fields);
+        String objName = "config";
+        ctx.readMethodBuilder.addCode("$1T $2L = new $1T();\n", configType, objName);
+        ctx.readMethodBuilder.addCode(GsonSerializerProvider.generateGotFlagDecls(gCtx).build());
+        ctx.readMethodBuilder.addCode(CodeBlock.builder()
+                .beginControlFlow("try ($1T $2L = new $1T(contents))", READER_NAME, gCtx.readerName)
+                .add(GsonSerializerProvider.generateReadFields(gCtx, type, fields, objName))
+                .nextControlFlow("catch ($T e)", SYNTAX_EXCEPTION_NAME)
+                .addStatement("throw new $T($S, e)", IOException.class, "Failed to parse config file to JSON5!")
+                .endControlFlow()
+                .build());
+        ctx.readMethodBuilder.addCode(GsonSerializerProvider.generateGotFlagChecks(gCtx)
+                .addStatement("return $L", objName)
+                .build());
+        CodeBlock.Builder codeBuilder = CodeBlock.builder()
+                .beginControlFlow("try ($1T $2L = new $1T(out))", WRITER_NAME, gCtx.writerName);
+        if (ctx.options.getOrDefault("prettyPrinting", true))
+            codeBuilder.addStatement("$L.setIndent($S)", gCtx.writerName, "  ");
+        ctx.writeMethodBuilder.addCode(codeBuilder
+                .add(GsonSerializerProvider.generateWriteFields(gCtx, type, fields, objName))
+                .endControlFlow()
+                .build());
+        GsonSerializerProvider.generateEntryCodecs(gCtx,
+                CodeBlock.of("new $T(raw)", READER_NAME), CodeBlock.of(""),
+                CodeBlock.of("new $T(out)", WRITER_NAME), ctx.options.getOrDefault("prettyPrinting", true)
+                        ? CodeBlock.of("$L.setIndent($S);\n", gCtx.writerName, "  ") : CodeBlock.of(""));
+    }
+}
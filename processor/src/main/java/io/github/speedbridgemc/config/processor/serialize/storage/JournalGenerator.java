@@ -0,0 +1,270 @@
+package io.github.speedbridgemc.config.processor.serialize.storage;
+
+import com.google.common.collect.ImmutableList;
+import com.squareup.javapoet.*;
+import io.github.speedbridgemc.config.LogLevel;
+import io.github.speedbridgemc.config.processor.serialize.api.SerializerContext;
+import io.github.speedbridgemc.config.processor.serialize.binary.BinaryCodecGenerator;
+import io.github.speedbridgemc.config.serialize.BackgroundWriter;
+import io.github.speedbridgemc.config.serialize.ConfigJournal;
+import io.github.speedbridgemc.config.serialize.FileFingerprint;
+import io.github.speedbridgemc.config.storage.Durability;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Generates the code that saves configs by appending changed fields to a {@link ConfigJournal}, instead of rewriting
+ * the whole config every time.<p>
+ * The journal sits next to the config's file, so handlers that don't have one (see {@link StorageGenerator}) leave
+ * the {@code journal} field {@code null}. The generated code never gets far enough to touch it in that case, since
+ * a journal is only ever started from a fingerprint of the config's file.
+ */
+@ApiStatus.Internal
+public final class JournalGenerator {
+    private JournalGenerator() { }
+
+    /**
+     * Methods generated by {@link #generate}.
+     */
+    public static final StorageGenerator.SaveMethods SAVE_METHODS = new StorageGenerator.SaveMethods(TypeName.get(byte[][].class),
+            "toFieldBytes", "isAlreadyJournaled", "saveJournaled");
+
+    /**
+     * Adds the journal to a handler, along with the methods listed in {@link #SAVE_METHODS} and
+     * {@code void replayJournal(FileFingerprint fingerprint)}, which {@code load()} must call after reading the config.
+     * <p>
+     * Uses the methods listed in {@link StorageGenerator#SAVE_METHODS} to rewrite the config when the journal can't
+     * be appended to, or gets too big.
+     * @param processingEnv processing environment
+     * @param sCtx serializer context
+     * @param type config type
+     * @param fields fields of config type that are stored in the config itself
+     * @param storage storage generator of the handler
+     * @param compactSize size of the journal (in bytes) past which it's compacted into the config
+     * @param gotAsyncExecutor {@code true} if the handler interface defines {@code Executor asyncExecutor()}
+     * @param savedConfigParam nullable config parameter, for the config that was serialized
+     * @param closeCodeBuilder code of {@code close()}
+     * @param classBuilder class to add the journal to
+     */
+    public static void generate(@NotNull ProcessingEnvironment processingEnv, @NotNull SerializerContext sCtx,
+                                @NotNull TypeElement type, @NotNull ImmutableList<VariableElement> fields,
+                                @NotNull StorageGenerator storage, long compactSize, boolean gotAsyncExecutor,
+                                @NotNull ParameterSpec savedConfigParam, CodeBlock.@NotNull Builder closeCodeBuilder,
+                                TypeSpec.@NotNull Builder classBuilder) {
+        TypeName configType = sCtx.configType;
+        StorageGenerator.SaveMethods saveMethods = StorageGenerator.SAVE_METHODS;
+        CodeBlock location = storage.getLocation();
+        TypeSpec.Builder codecBuilder = TypeSpec.classBuilder("JournalCodec")
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                .addField(FieldSpec.builder(long.class, "SCHEMA_HASH", Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                        .initializer("$LL", BinaryCodecGenerator.getSchemaHash(processingEnv, sCtx, type, fields))
+                        .build());
+        BinaryCodecGenerator.generateFieldCodec(processingEnv, sCtx, type, fields, codecBuilder);
+        ParameterSpec.Builder configParamBuilder = ParameterSpec.builder(configType, "config");
+        ParameterSpec.Builder fingerprintParamBuilder = ParameterSpec.builder(FileFingerprint.class, "fingerprint");
+        if (sCtx.nonNullAnnotation != null)
+            configParamBuilder.addAnnotation(sCtx.nonNullAnnotation);
+        if (sCtx.nullableAnnotation != null)
+            fingerprintParamBuilder.addAnnotation(sCtx.nullableAnnotation);
+        ClassName journalName = ClassName.get(ConfigJournal.class);
+        boolean sync = storage.durability == Durability.FSYNC;
+        FieldSpec.Builder journalFieldBuilder = FieldSpec.builder(journalName, "journal", Modifier.PRIVATE, Modifier.FINAL);
+        if (storage.customStorage) {
+            journalFieldBuilder.initializer("path != null ? new $T(path, JournalCodec.SCHEMA_HASH, $L) : null", journalName, sync);
+            if (sCtx.nullableAnnotation != null)
+                journalFieldBuilder.addAnnotation(sCtx.nullableAnnotation);
+        } else
+            journalFieldBuilder.initializer("new $T(path, JournalCodec.SCHEMA_HASH, $L)", journalName, sync);
+        classBuilder.addType(codecBuilder.build())
+                .addField(FieldSpec.builder(long.class, "JOURNAL_COMPACT_SIZE", Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                        .initializer("$LL", compactSize)
+                        .build())
+                .addField(journalFieldBuilder.build())
+                // the journal itself might not exist, so saves, replays and compactions are serialized on this instead
+                .addField(FieldSpec.builder(Object.class, "journalLock", Modifier.PRIVATE, Modifier.FINAL)
+                        .initializer("new $T()", Object.class)
+                        .build())
+                // encoded fields of the config as of the config file plus the journal, or null if the journal isn't in use
+                .addField(FieldSpec.builder(byte[][].class, "lastFieldValues", Modifier.PRIVATE, Modifier.VOLATILE).build())
+                .addField(FieldSpec.builder(AtomicBoolean.class, "journalCompactionQueued", Modifier.PRIVATE, Modifier.FINAL)
+                        .initializer("new $T(false)", AtomicBoolean.class)
+                        .build())
+                .addMethod(MethodSpec.methodBuilder(SAVE_METHODS.toBytes)
+                        .addModifiers(Modifier.PRIVATE)
+                        .returns(byte[][].class)
+                        .addParameter(configParamBuilder.build())
+                        .beginControlFlow("try")
+                        .addStatement("return JournalCodec.writeFields(config)")
+                        .nextControlFlow("catch ($T e)", IOException.class)
+                        .addStatement("log($T.ERROR, $S, e)", LogLevel.class, "Failed to serialize config!")
+                        .addStatement("return null")
+                        .endControlFlow()
+                        .build())
+                .addMethod(MethodSpec.methodBuilder(SAVE_METHODS.alreadySaved)
+                        .addModifiers(Modifier.PRIVATE)
+                        .returns(TypeName.BOOLEAN)
+                        .addParameter(byte[][].class, "contents")
+                        .beginControlFlow("if (!$T.deepEquals(contents, lastFieldValues) || !journal.isCurrent())", Arrays.class)
+                        .addStatement("return false")
+                        .endControlFlow()
+                        .addStatement("log($T.INFO, $S + $L + $S, null)",
+                                LogLevel.class, "Config \"", location, "\" is already up to date, skipping save")
+                        .addStatement("return true")
+                        .build())
+                // rebuilds exactly what a set of encoded fields holds, not whatever's in memory right now
+                .addMethod(MethodSpec.methodBuilder("fromFieldBytes")
+                        .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                        .returns(configType)
+                        .addParameter(byte[][].class, "values")
+                        .addException(IOException.class)
+                        .addStatement("$1T config = new $1T()", configType)
+                        .beginControlFlow("for (int field = 0; field < values.length; field++)")
+                        .addStatement("JournalCodec.readField(values[field], config, field)")
+                        .endControlFlow()
+                        .addStatement("return config")
+                        .build())
+                .addMethod(MethodSpec.methodBuilder(SAVE_METHODS.saveFile)
+                        .addModifiers(Modifier.PRIVATE)
+                        .returns(TypeName.BOOLEAN)
+                        .addParameter(savedConfigParam)
+                        .addParameter(byte[][].class, "contents")
+                        .beginControlFlow("synchronized (journalLock)")
+                        .addStatement("byte[][] last = lastFieldValues")
+                        .beginControlFlow("if (last != null && journal.isCurrent())")
+                        .beginControlFlow("try")
+                        .beginControlFlow("for (int field = 0; field < contents.length; field++)")
+                        .beginControlFlow("if (!$T.equals(contents[field], last[field]))", Arrays.class)
+                        .addStatement("journal.append(field, contents[field])")
+                        .endControlFlow()
+                        .endControlFlow()
+                        .addStatement("lastFieldValues = contents")
+                        .addStatement("log($T.DEBUG, $S + journal.getPath() + $S, null)",
+                                LogLevel.class, "Appended changes to journal \"", "\"")
+                        .beginControlFlow("if (journal.size() >= JOURNAL_COMPACT_SIZE && journalCompactionQueued.compareAndSet(false, true))")
+                        .addStatement(gotAsyncExecutor ? CodeBlock.of("asyncExecutor().execute(this::compactJournal)")
+                                : CodeBlock.of("$T.execute(journalCompactionTask)", BackgroundWriter.class))
+                        .endControlFlow()
+                        .addStatement("return true")
+                        .nextControlFlow("catch ($T e)", IOException.class)
+                        .addStatement("log($T.WARN, $S + journal.getPath() + $S, e)",
+                                LogLevel.class, "Failed to append to journal \"", "\", rewriting config instead")
+                        .endControlFlow()
+                        .endControlFlow()
+                        .beginControlFlow("if (config == null)")
+                        .beginControlFlow("try")
+                        .addStatement("config = fromFieldBytes(contents)")
+                        .nextControlFlow("catch ($T | $T e)", IOException.class, RuntimeException.class)
+                        .addStatement("log($T.ERROR, $S, e)", LogLevel.class, "Failed to rebuild config from its encoded fields!")
+                        .addStatement("lastFieldValues = null")
+                        .addStatement("return false")
+                        .endControlFlow()
+                        .endControlFlow()
+                        .addStatement("byte[] fileContents = $L(config)", saveMethods.toBytes)
+                        .beginControlFlow("if (fileContents == null || !$L(fileContents) && !$L(config, fileContents))",
+                                saveMethods.alreadySaved, saveMethods.saveFile)
+                        .addStatement("lastFieldValues = null")
+                        .addStatement("return false")
+                        .endControlFlow()
+                        .addStatement("startJournal(contents)")
+                        .addStatement("return true")
+                        .endControlFlow()
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("startJournal")
+                        .addModifiers(Modifier.PRIVATE)
+                        .addParameter(byte[][].class, "contents")
+                        .addStatement("lastFieldValues = null")
+                        .addStatement("$T base = lastFingerprint", FileFingerprint.class)
+                        .beginControlFlow("if (base == null)")
+                        // couldn't tell what the file looks like, so the next save just rewrites it again
+                        .addStatement("return")
+                        .endControlFlow()
+                        .beginControlFlow("try")
+                        .addStatement("journal.start(base)")
+                        .addStatement("lastFieldValues = contents")
+                        .nextControlFlow("catch ($T e)", IOException.class)
+                        .addStatement("log($T.WARN, $S + journal.getPath() + $S, e)",
+                                LogLevel.class, "Failed to start journal \"", "\"")
+                        .endControlFlow()
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("replayJournal")
+                        .addModifiers(Modifier.PRIVATE)
+                        .addParameter(fingerprintParamBuilder.build())
+                        .beginControlFlow("synchronized (journalLock)")
+                        .addStatement("lastFieldValues = null")
+                        .beginControlFlow("if (fingerprint == null)")
+                        .addStatement("return")
+                        .endControlFlow()
+                        .beginControlFlow("try")
+                        .addStatement("byte[][] journaled = journal.read(fingerprint, JournalCodec.FIELD_COUNT)")
+                        .beginControlFlow("if (journaled == null)")
+                        // nothing to replay - the next save rewrites the config file and starts a new journal
+                        .addStatement("return")
+                        .endControlFlow()
+                        .addStatement("int replayed = 0")
+                        .beginControlFlow("for (int field = 0; field < journaled.length; field++)")
+                        .beginControlFlow("if (journaled[field] != null)")
+                        .addStatement("JournalCodec.readField(journaled[field], config, field)")
+                        .addStatement("replayed++")
+                        .endControlFlow()
+                        .endControlFlow()
+                        .addStatement("lastFieldValues = $L(config)", SAVE_METHODS.toBytes)
+                        .addStatement("log($T.DEBUG, $S + replayed + $S + journal.getPath() + $S, null)",
+                                LogLevel.class, "Replayed ", " field(s) from journal \"", "\"")
+                        .nextControlFlow("catch ($T | $T e)", IOException.class, RuntimeException.class)
+                        .addStatement("log($T.WARN, $S + journal.getPath() + $S, e)",
+                                LogLevel.class, "Failed to replay journal \"", "\", ignoring it")
+                        .endControlFlow()
+                        .endControlFlow()
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("compactJournal")
+                        .addModifiers(Modifier.PRIVATE)
+                        .beginControlFlow("synchronized (journalLock)")
+                        .addStatement("journalCompactionQueued.set(false)")
+                        .addStatement("byte[][] values = lastFieldValues")
+                        .beginControlFlow("if (values == null || !journal.isCurrent())")
+                        .addStatement("return")
+                        .endControlFlow()
+                        // rebuild exactly what the config file and journal hold, not whatever's in memory right now
+                        .addStatement("final $T compacted", configType)
+                        .beginControlFlow("try")
+                        .addStatement("compacted = fromFieldBytes(values)")
+                        .nextControlFlow("catch ($T | $T e)", IOException.class, RuntimeException.class)
+                        .addStatement("log($T.ERROR, $S + journal.getPath() + $S, e)",
+                                LogLevel.class, "Failed to compact journal \"", "\"!")
+                        .addStatement("return")
+                        .endControlFlow()
+                        .addStatement("byte[] contents = $L(compacted)", saveMethods.toBytes)
+                        .beginControlFlow("if (contents == null)")
+                        .addStatement("return")
+                        .endControlFlow()
+                        .addStatement("log($T.INFO, $S + journal.getPath() + $S + $L + $S, null)",
+                                LogLevel.class, "Compacting journal \"", "\" into config \"", location, "\"")
+                        .beginControlFlow("if ($L(compacted, contents))", saveMethods.saveFile)
+                        .addStatement("startJournal(values)")
+                        .endControlFlow()
+                        .endControlFlow()
+                        .build());
+        if (gotAsyncExecutor)
+            return;
+        // no executor to hand compactions to, so they go to the writer thread every handler shares
+        classBuilder.addField(FieldSpec.builder(Runnable.class, "journalCompactionTask", Modifier.PRIVATE, Modifier.FINAL)
+                .initializer("this::compactJournal")
+                .build());
+        closeCodeBuilder
+                // drop a queued compaction, the next save that finds the journal too big queues another one
+                .beginControlFlow("if ($T.cancel(journalCompactionTask))", BackgroundWriter.class)
+                .addStatement("journalCompactionQueued.set(false)")
+                .endControlFlow()
+                // and wait for one that's already running
+                .beginControlFlow("synchronized (journalLock)")
+                .endControlFlow();
+    }
+}
@@ -0,0 +1,459 @@
+package io.github.speedbridgemc.config.processor.serialize.storage;
+
+import com.squareup.javapoet.*;
+import io.github.speedbridgemc.config.LogLevel;
+import io.github.speedbridgemc.config.processor.api.ComponentContext;
+import io.github.speedbridgemc.config.serialize.ConfigBackups;
+import io.github.speedbridgemc.config.serialize.FileFingerprint;
+import io.github.speedbridgemc.config.storage.ConfigStorage;
+import io.github.speedbridgemc.config.storage.Durability;
+import io.github.speedbridgemc.config.storage.FileConfigStorage;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+
+import javax.lang.model.element.Modifier;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Generates the code that moves a config's serialized form in and out of its {@link ConfigStorage}.<p>
+ * Handlers that don't define {@code ConfigStorage storage()} get a {@link FileConfigStorage} over their
+ * {@code resolvePath(String)} method. Either way, the generated code keeps track of what was last loaded or saved, so
+ * saving unchanged contents doesn't touch the storage.<p>
+ * Watching, binary snapshots, journals and {@code @DirectoryBacked} fields need the config's own file. Handlers with a
+ * storage of their own look that up with {@link ConfigStorage#getPath(String)} when they're created, and generated
+ * code for those features must check the {@code path} field for {@code null} (or rely on a fingerprint, which is only
+ * ever taken of an actual file).
+ */
+@ApiStatus.Internal
+public final class StorageGenerator {
+    /**
+     * Methods generated by {@link #generateSaveMethods(ParameterSpec, ParameterSpec, TypeSpec.Builder)}.
+     */
+    public static final SaveMethods SAVE_METHODS = new SaveMethods(TypeName.get(byte[].class), "toBytes", "isAlreadySaved", "saveFile");
+
+    /**
+     * Names of the generated methods that serialize and store a config, and the type of the serialized contents
+     * they pass around.
+     */
+    public static final class SaveMethods {
+        /**
+         * Type of serialized contents.
+         */
+        public final @NotNull TypeName contentsType;
+        /**
+         * {@code contentsType toBytes(T config)} - serializes a config, returns {@code null} on failure.
+         */
+        public final @NotNull String toBytes;
+        /**
+         * {@code boolean isAlreadySaved(contentsType contents)} - checks if the contents are what's already stored.
+         */
+        public final @NotNull String alreadySaved;
+        /**
+         * {@code boolean saveFile(@Nullable T config, contentsType contents)} - stores the contents, returns
+         * {@code false} on failure.
+         */
+        public final @NotNull String saveFile;
+
+        public SaveMethods(@NotNull TypeName contentsType, @NotNull String toBytes, @NotNull String alreadySaved,
+                           @NotNull String saveFile) {
+            this.contentsType = contentsType;
+            this.toBytes = toBytes;
+            this.alreadySaved = alreadySaved;
+            this.saveFile = saveFile;
+        }
+    }
+
+    private final @NotNull ComponentContext ctx;
+    private final @NotNull String name;
+    public final boolean customStorage;
+    public @NotNull Durability durability = Durability.NONE;
+    // only used for handlers without a storage of their own
+    public boolean replaceViaTemp = true;
+    // features that need the config's own file
+    public boolean watching, binarySnapshot, journal, entries;
+    public boolean gotLoadAsync;
+
+    /**
+     * Creates a storage generator.
+     * @param ctx component context
+     * @param name name of config
+     * @param customStorage {@code true} if the handler interface defines {@code ConfigStorage storage()}
+     */
+    public StorageGenerator(@NotNull ComponentContext ctx, @NotNull String name, boolean customStorage) {
+        this.ctx = ctx;
+        this.name = name;
+        this.customStorage = customStorage;
+    }
+
+    /**
+     * Checks if the handler needs to know its config's file.
+     * @return {@code true} if the handler gets a {@code path} field, {@code false} otherwise
+     */
+    public boolean hasPath() {
+        return !customStorage || watching || binarySnapshot || journal || entries;
+    }
+
+    /**
+     * Checks if the handler fingerprints its config's file.
+     * @return {@code true} if the handler gets a {@code lastFingerprint} field, {@code false} otherwise
+     */
+    public boolean hasFingerprint() {
+        return !customStorage || watching || binarySnapshot || journal;
+    }
+
+    /**
+     * Gets an expression that describes where the config is stored, for log messages.
+     * @return location expression
+     */
+    public @NotNull CodeBlock getLocation() {
+        return customStorage ? CodeBlock.of("storage.getLocation($S)", name) : CodeBlock.of("path");
+    }
+
+    /**
+     * Adds the {@code storage} field and, if needed, the {@code path} and {@code lastFingerprint} fields.
+     * @param classBuilder class to add fields to
+     */
+    public void generateFields(TypeSpec.@NotNull Builder classBuilder) {
+        if (!customStorage) {
+            classBuilder.addField(FieldSpec.builder(FileConfigStorage.class, "storage", Modifier.PRIVATE, Modifier.FINAL)
+                            .initializer("new $T(this::resolvePath, $L)", FileConfigStorage.class, replaceViaTemp)
+                            .build())
+                    .addField(FieldSpec.builder(Path.class, "path", Modifier.PRIVATE, Modifier.FINAL)
+                            .initializer("storage.resolvePath($S)", name)
+                            .build());
+        } else {
+            classBuilder.addField(FieldSpec.builder(ConfigStorage.class, "storage", Modifier.PRIVATE, Modifier.FINAL)
+                    .initializer("storage()")
+                    .build());
+            // contents of the config when we last loaded or saved it, so save() can skip rewriting identical contents
+            classBuilder.addField(FieldSpec.builder(byte[].class, "lastContents", Modifier.PRIVATE, Modifier.VOLATILE).build());
+            if (ctx.setMethodBuilder != null)
+                // the stored config no longer matches what's in memory
+                ctx.setMethodBuilder.addStatement("lastContents = null");
+            if (hasPath()) {
+                ArrayList<String> features = new ArrayList<>();
+                if (watching)
+                    features.add("watching for changes");
+                if (binarySnapshot)
+                    features.add("binary snapshot");
+                if (journal)
+                    features.add("journal");
+                if (entries)
+                    features.add("saving @DirectoryBacked fields");
+                FieldSpec.Builder pathBuilder = FieldSpec.builder(Path.class, "path", Modifier.PRIVATE, Modifier.FINAL)
+                        .initializer("resolveStoragePath()");
+                MethodSpec.Builder resolveMethodBuilder = MethodSpec.methodBuilder("resolveStoragePath")
+                        .addModifiers(Modifier.PRIVATE)
+                        .returns(Path.class)
+                        .addStatement("$T path = storage.getPath($S)", Path.class, name)
+                        .beginControlFlow("if (path == null)")
+                        .addStatement("log($T.WARN, $S + storage.getLocation($S) + $S, null)",
+                                LogLevel.class, "Config \"", name, "\" isn't stored in a file of its own, turning off: "
+                                        + String.join(", ", features))
+                        .endControlFlow()
+                        .addStatement("return path");
+                if (ctx.nullableAnnotation != null) {
+                    pathBuilder.addAnnotation(ctx.nullableAnnotation);
+                    resolveMethodBuilder.addAnnotation(ctx.nullableAnnotation);
+                }
+                classBuilder.addField(pathBuilder.build())
+                        .addMethod(resolveMethodBuilder.build());
+            }
+        }
+        if (!hasFingerprint())
+            return;
+        // fingerprint of the config file's contents when we last loaded or saved it, so the watcher can ignore
+        // events that didn't actually change the file, and save() can skip rewriting identical contents
+        classBuilder.addField(FieldSpec.builder(FileFingerprint.class, "lastFingerprint", Modifier.PRIVATE, Modifier.VOLATILE).build());
+        if (ctx.setMethodBuilder != null)
+            // the file no longer matches what's in memory
+            ctx.setMethodBuilder.addStatement("lastFingerprint = null");
+        classBuilder.addMethod(MethodSpec.methodBuilder("isFileUnchanged")
+                .addModifiers(Modifier.PRIVATE)
+                .returns(TypeName.BOOLEAN)
+                // only ever set for configs that have a file
+                .addStatement("$T last = lastFingerprint", FileFingerprint.class)
+                .beginControlFlow("if (last == null)")
+                .addStatement("return false")
+                .endControlFlow()
+                .beginControlFlow("try")
+                .addStatement("return last.matches(path)")
+                .nextControlFlow("catch ($T e)", IOException.class)
+                .addStatement("return false")
+                .endControlFlow()
+                .build());
+    }
+
+    /**
+     * Generates the part of {@code load()} that reads and parses the config.<p>
+     * Expects {@code read(byte[])} and, for handlers with a {@code path} field, {@code read(Path, byte[])} to exist.
+     * Also uses {@code readBinarySnapshot(FileFingerprint)} and {@code writeBinarySnapshot(T, FileFingerprint)} for
+     * binary snapshots, {@code replayJournal(FileFingerprint)} for journals, and the {@code reloading} field for
+     * handlers that watch their file.
+     * @param crashOnFail {@code true} to throw if the config can't be read
+     * @param backupOnFail {@code true} to back up configs that can't be read
+     * @param maxBackups maximum number of backups to keep
+     * @param classBuilder class to add any fields the code needs to
+     * @return code builder
+     */
+    public CodeBlock.@NotNull Builder generateLoadCode(boolean crashOnFail, boolean backupOnFail, int maxBackups,
+                                                     TypeSpec.@NotNull Builder classBuilder) {
+        TypeName configType = ctx.configName;
+        CodeBlock location = getLocation();
+        CodeBlock.Builder loadCodeBuilder = CodeBlock.builder()
+                .addStatement("byte[] contents = null")
+                .beginControlFlow("try");
+        if (gotLoadAsync) {
+            // loadAsync() reads and parses the config off-thread, then hands the result to load() on the main thread
+            classBuilder.addField(FieldSpec.builder(configType, "prefetchedConfig", Modifier.PRIVATE).build())
+                    .addField(FieldSpec.builder(byte[].class, "prefetchedContents", Modifier.PRIVATE).build())
+                    // the config might not be stored yet, in which case there are no contents to hand over
+                    .addField(FieldSpec.builder(boolean.class, "contentsPrefetched", Modifier.PRIVATE).build());
+            loadCodeBuilder.addStatement("contents = contentsPrefetched ? prefetchedContents : storage.read($S)", name);
+        } else
+            loadCodeBuilder.addStatement("contents = storage.read($S)", name);
+        loadCodeBuilder
+                .beginControlFlow("if (contents == null)")
+                .addStatement("log($T.INFO, $S + $L + $S, null)",
+                        LogLevel.class, customStorage ? "Config \"" : "File \"", location, "\" does not exist, resetting to default values")
+                .addStatement("reset()")
+                .nextControlFlow("else");
+        // the file is read once, and the fingerprint is of exactly the bytes that were parsed
+        if (hasFingerprint()) {
+            if (customStorage)
+                loadCodeBuilder.addStatement("$1T fingerprint = path != null ? $1T.of(path, contents) : null", FileFingerprint.class);
+            else
+                loadCodeBuilder.addStatement("$1T fingerprint = $1T.of(path, contents)", FileFingerprint.class);
+        }
+        CodeBlock read;
+        if (!customStorage)
+            read = CodeBlock.of("read(path, contents)");
+        else if (entries)
+            read = CodeBlock.of("path != null ? read(path, contents) : read(contents)");
+        else
+            read = CodeBlock.of("read(contents)");
+        String prefetched = gotLoadAsync ? "prefetchedConfig != null ? prefetchedConfig : " : "";
+        if (binarySnapshot)
+            loadCodeBuilder
+                    .addStatement("$T loaded = $LreadBinarySnapshot(fingerprint)", configType, prefetched)
+                    .beginControlFlow("if (loaded == null)")
+                    .addStatement("loaded = $L", read)
+                    .addStatement("writeBinarySnapshot(loaded, fingerprint)")
+                    .endControlFlow()
+                    .addStatement("config = loaded");
+        else
+            loadCodeBuilder.addStatement("config = $L$L", prefetched, read);
+        if (customStorage)
+            loadCodeBuilder.addStatement("lastContents = contents");
+        if (hasFingerprint())
+            loadCodeBuilder.addStatement("lastFingerprint = fingerprint");
+        if (journal)
+            loadCodeBuilder.addStatement("replayJournal(fingerprint)");
+        loadCodeBuilder
+                .endControlFlow()
+                .nextControlFlow("catch ($T e)", IOException.class);
+        if (watching)
+            // the file might still be in the middle of being written, in which case it'll change again once it's
+            // done - resetting now would replace it with default values
+            loadCodeBuilder
+                    .beginControlFlow("if (reloading)")
+                    .addStatement("log($T.WARN, $S + $L + $S, e)",
+                            LogLevel.class, customStorage ? "Failed to reload config \"" : "Failed to reload config file at \"",
+                            location, "\", keeping current values until it changes again")
+                    .addStatement("return")
+                    .endControlFlow();
+        loadCodeBuilder
+                .addStatement("log($T.ERROR, $S + $L + $S, e)",
+                        LogLevel.class, customStorage ? "Failed to read config \"" : "Failed to read from config file at \"", location, "\"!");
+        if (backupOnFail) {
+            if (customStorage) {
+                // if the storage itself failed there's nothing to back up
+                loadCodeBuilder
+                        .addStatement("$T backupName = null", String.class)
+                        .addStatement("boolean backupSuccess = contents != null")
+                        .beginControlFlow("if (backupSuccess)")
+                        .beginControlFlow("try")
+                        .addStatement("backupName = $T.backUp(storage, $S, contents, $L)", ConfigBackups.class, name, maxBackups)
+                        .nextControlFlow("catch ($T be)", IOException.class)
+                        .addStatement("log($T.ERROR, $S + $L + $S, be)",
+                                LogLevel.class, "Failed to back up config \"", location, "\"!")
+                        .addStatement("backupSuccess = false")
+                        .endControlFlow()
+                        .endControlFlow();
+            } else {
+                loadCodeBuilder
+                        .addStatement("$T backupPath = null", Path.class)
+                        .addStatement("boolean backupSuccess = true")
+                        .beginControlFlow("try")
+                        .addStatement("backupPath = $T.backUp(path, $L)", ConfigBackups.class, maxBackups)
+                        .nextControlFlow("catch ($T be)", IOException.class)
+                        .addStatement("log($T.ERROR, $S + path + $S, be)",
+                                LogLevel.class, "Failed to back up config file \"", "\"!")
+                        .addStatement("backupSuccess = false")
+                        .endControlFlow();
+            }
+            CodeBlock backupLocation = customStorage ? CodeBlock.of("storage.getLocation(backupName)") : CodeBlock.of("backupPath");
+            if (crashOnFail) {
+                loadCodeBuilder
+                        .beginControlFlow("if (backupSuccess)")
+                        .addStatement("reset()")
+                        .addStatement("throw new $T($S + $L + $S + $L + $S, e)",
+                                RuntimeException.class, customStorage ? "Failed to read config \"" : "Failed to read from config file \"",
+                                location, customStorage
+                                        ? "\"! Config has been replaced with default values, with the original backed up at \""
+                                        : "\"! File has been replaced with default values, with the original backed up at \"",
+                                backupLocation, "\"")
+                        .nextControlFlow("else")
+                        .addStatement("throw new $T($S + $L + $S, e)",
+                                RuntimeException.class, customStorage ? "Failed to read config \"" : "Failed to read from config file \"",
+                                location, "\"!")
+                        .endControlFlow();
+            } else
+                loadCodeBuilder
+                        .beginControlFlow("if (backupSuccess)")
+                        .addStatement("log($T.INFO, $S + $L + $S, null)",
+                                LogLevel.class, customStorage ? "Backed up config to \"" : "Backed up config file to \"", backupLocation, "\"")
+                        .endControlFlow()
+                        .addStatement("log($T.WARN, $S, null)",
+                                LogLevel.class, "Resetting to default config values")
+                        .addStatement("reset()");
+        } else if (crashOnFail) {
+            loadCodeBuilder.addStatement("throw new $T($S + $L + $S, e)",
+                    RuntimeException.class, customStorage ? "Failed to read config \"" : "Failed to read from config file \"",
+                    location, "\"!");
+        }
+        return loadCodeBuilder.endControlFlow();
+    }
+
+    /**
+     * Generates the code {@code loadAsync()} runs off-thread, which reads and parses the config into the
+     * {@code prefetched} and {@code prefetchedBytes} locals.
+     * @return code block
+     */
+    public @NotNull CodeBlock generatePrefetchCode() {
+        CodeBlock read;
+        if (!customStorage)
+            read = CodeBlock.of("read(path, prefetchedBytes)");
+        else if (entries)
+            read = CodeBlock.of("path != null ? read(path, prefetchedBytes) : read(prefetchedBytes)");
+        else
+            read = CodeBlock.of("read(prefetchedBytes)");
+        // a missing config is reset by load(), which finds it missing too
+        return CodeBlock.builder()
+                .addStatement("prefetchedBytes = storage.read($S)", name)
+                .beginControlFlow("if (prefetchedBytes != null)")
+                .addStatement("prefetched = $L", read)
+                .endControlFlow()
+                .build();
+    }
+
+    /**
+     * Adds the methods listed in {@link #SAVE_METHODS}.<p>
+     * Also uses {@code write(T, OutputStream)}, and {@code writeBinarySnapshot(T, FileFingerprint)} for binary
+     * snapshots.
+     * @param configParam non-null config parameter
+     * @param savedConfigParam nullable config parameter, for the config that was serialized
+     * @param classBuilder class to add methods to
+     */
+    public void generateSaveMethods(@NotNull ParameterSpec configParam, @NotNull ParameterSpec savedConfigParam,
+                                    TypeSpec.@NotNull Builder classBuilder) {
+        CodeBlock durabilityCode = CodeBlock.of("$T.$L", Durability.class, durability.name());
+        CodeBlock.Builder saveCodeBuilder = CodeBlock.builder();
+        CodeBlock.Builder alreadySavedCodeBuilder = CodeBlock.builder();
+        if (customStorage) {
+            saveCodeBuilder
+                    .addStatement("log($T.INFO, $S + storage.getLocation($S) + $S, null)",
+                            LogLevel.class, "Writing config to \"", name, "\"")
+                    .addStatement("lastContents = null");
+            if (hasFingerprint())
+                saveCodeBuilder.addStatement("lastFingerprint = null");
+            saveCodeBuilder
+                    .beginControlFlow("try")
+                    .addStatement("storage.write($S, contents, $L)", name, durabilityCode)
+                    .nextControlFlow("catch ($T e)", IOException.class)
+                    .addStatement("log($T.ERROR, $S + storage.getLocation($S) + $S, e)",
+                            LogLevel.class, "Failed to write config \"", name, "\"!")
+                    .addStatement("return false")
+                    .endControlFlow()
+                    .addStatement("lastContents = contents");
+            if (hasFingerprint())
+                // other storages don't say when the file is replaced, so this can only be done afterwards - a watcher
+                // that sees the write first just reloads what was written
+                saveCodeBuilder
+                        .beginControlFlow("if (path != null)")
+                        .beginControlFlow("try")
+                        .addStatement("lastFingerprint = $T.of(path, contents)", FileFingerprint.class)
+                        .nextControlFlow("catch ($T e)", IOException.class)
+                        .addStatement("lastFingerprint = null")
+                        .endControlFlow()
+                        .endControlFlow();
+            alreadySavedCodeBuilder
+                    .beginControlFlow("if (!$T.equals(contents, lastContents))", Arrays.class)
+                    .addStatement("return false")
+                    .endControlFlow()
+                    .addStatement("log($T.INFO, $S + storage.getLocation($S) + $S, null)",
+                            LogLevel.class, "Config \"", name, "\" is already up to date, skipping save");
+        } else {
+            // the storage fingerprints the new file before it replaces the config file, so the watcher can't see the
+            // new file before we know about it
+            saveCodeBuilder
+                    .addStatement("log($T.INFO, $S + path + $S, null)",
+                            LogLevel.class, "Writing config to file \"", "\"")
+                    .beginControlFlow("try")
+                    .addStatement("storage.write($S, contents, $L, fingerprint -> lastFingerprint = fingerprint)", name, durabilityCode)
+                    .nextControlFlow("catch ($T e)", IOException.class)
+                    .addStatement("lastFingerprint = null")
+                    .addStatement("log($T.ERROR, $S + path + $S, e)",
+                            LogLevel.class, "Failed to write config file at \"", "\"!")
+                    .addStatement("return false")
+                    .endControlFlow();
+            alreadySavedCodeBuilder
+                    .addStatement("$T last = lastFingerprint", FileFingerprint.class)
+                    .beginControlFlow("if (last == null || !last.matches(contents) || !isFileUnchanged())")
+                    .addStatement("return false")
+                    .endControlFlow()
+                    .addStatement("log($T.INFO, $S + path + $S, null)",
+                            LogLevel.class, "Config file \"", "\" is already up to date, skipping save");
+        }
+        if (binarySnapshot)
+            // write-behind saves only keep the contents, the next load() writes a snapshot for those
+            saveCodeBuilder
+                    .beginControlFlow("if (config != null)")
+                    .addStatement("writeBinarySnapshot(config, lastFingerprint)")
+                    .endControlFlow();
+        saveCodeBuilder.addStatement("return true");
+        // split out of save() so saveAsync() and flush() can run just the I/O
+        classBuilder
+                .addMethod(MethodSpec.methodBuilder(SAVE_METHODS.toBytes)
+                        .addModifiers(Modifier.PRIVATE)
+                        .returns(byte[].class)
+                        .addParameter(configParam)
+                        .addStatement("$1T out = new $1T()", ByteArrayOutputStream.class)
+                        .beginControlFlow("try")
+                        .addStatement("write(config, out)")
+                        .nextControlFlow("catch ($T e)", IOException.class)
+                        .addStatement("log($T.ERROR, $S, e)", LogLevel.class, "Failed to serialize config!")
+                        .addStatement("return null")
+                        .endControlFlow()
+                        .addStatement("return out.toByteArray()")
+                        .build())
+                .addMethod(MethodSpec.methodBuilder(SAVE_METHODS.alreadySaved)
+                        .addModifiers(Modifier.PRIVATE)
+                        .returns(TypeName.BOOLEAN)
+                        .addParameter(byte[].class, "contents")
+                        .addCode(alreadySavedCodeBuilder.build())
+                        .addStatement("return true")
+                        .build())
+                .addMethod(MethodSpec.methodBuilder(SAVE_METHODS.saveFile)
+                        .addModifiers(Modifier.PRIVATE)
+                        .returns(TypeName.BOOLEAN)
+                        .addParameter(savedConfigParam)
+                        .addParameter(byte[].class, "contents")
+                        .addCode(saveCodeBuilder.build())
+                        .build());
+    }
+}
@@ -0,0 +1,114 @@
+package io.github.speedbridgemc.config.processor.serialize.storage;
+
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeSpec;
+import io.github.speedbridgemc.config.LogLevel;
+import io.github.speedbridgemc.config.processor.api.ComponentContext;
+import io.github.speedbridgemc.config.serialize.BackgroundWriter;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+
+import javax.lang.model.element.Modifier;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates write-behind saves, where {@code save()} only serializes the config and leaves writing it to the
+ * {@link BackgroundWriter} thread, once saves quiet down.
+ */
+@ApiStatus.Internal
+public final class WriteBehindGenerator {
+    private WriteBehindGenerator() { }
+
+    /**
+     * Adds write-behind saves to a handler:
+     * <ul>
+     *     <li>{@code void flush()}, which writes the pending save right away</li>
+     *     <li>{@code void discardPendingSave()}, which {@code load()} must call before reading the config</li>
+     *     <li>the body of {@code save()}</li>
+     * </ul>
+     * @param ctx component context
+     * @param saveMethods methods that serialize and store the config
+     * @param delay time to wait for more saves before writing, in milliseconds
+     * @param maxDelay longest time a save can be held off by later ones, in milliseconds
+     * @param saveEntries {@code true} if {@code save()} should save {@code @DirectoryBacked} fields right away
+     * @param closeCodeBuilder code of {@code close()}
+     * @param classBuilder class to add methods to
+     */
+    public static void generate(@NotNull ComponentContext ctx, @NotNull StorageGenerator.SaveMethods saveMethods,
+                                long delay, long maxDelay, boolean saveEntries,
+                                CodeBlock.@NotNull Builder closeCodeBuilder, TypeSpec.@NotNull Builder classBuilder) {
+        classBuilder
+                .addField(FieldSpec.builder(long.class, "WRITE_BEHIND_DELAY", Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                        .initializer("$T.MILLISECONDS.toNanos($L)", TimeUnit.class, delay)
+                        .build())
+                .addField(FieldSpec.builder(long.class, "WRITE_BEHIND_MAX_DELAY", Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                        .initializer("$T.MILLISECONDS.toNanos($L)", TimeUnit.class, maxDelay)
+                        .build())
+                .addField(FieldSpec.builder(Object.class, "writeBehindLock", Modifier.PRIVATE, Modifier.FINAL)
+                        .initializer("new $T()", Object.class)
+                        .build())
+                .addField(FieldSpec.builder(Object.class, "flushLock", Modifier.PRIVATE, Modifier.FINAL)
+                        .initializer("new $T()", Object.class)
+                        .build())
+                // serialized when save() is called, so changes made to the config after that aren't written
+                .addField(FieldSpec.builder(saveMethods.contentsType, "pendingContents", Modifier.PRIVATE).build())
+                .addField(FieldSpec.builder(long.class, "pendingSince", Modifier.PRIVATE).build())
+                // the same instance every time, so rescheduling moves the pending write instead of adding another
+                .addField(FieldSpec.builder(Runnable.class, "flushTask", Modifier.PRIVATE, Modifier.FINAL)
+                        .initializer("this::flush")
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("flush")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .addCode(CodeBlock.builder()
+                                // flushLock makes sure a write that's already in progress finishes before we return
+                                .beginControlFlow("synchronized (flushLock)")
+                                .addStatement("final $T pending", saveMethods.contentsType)
+                                .beginControlFlow("synchronized (writeBehindLock)")
+                                .addStatement("pending = pendingContents")
+                                .addStatement("pendingContents = null")
+                                .addStatement("$T.cancel(flushTask)", BackgroundWriter.class)
+                                .endControlFlow()
+                                .beginControlFlow("if (pending != null && !$L(pending))", saveMethods.alreadySaved)
+                                .addStatement("$L(null, pending)", saveMethods.saveFile)
+                                .endControlFlow()
+                                .endControlFlow()
+                                .build())
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("discardPendingSave")
+                        .addModifiers(Modifier.PRIVATE)
+                        // a write that's already in progress can't be taken back, so let it finish
+                        .beginControlFlow("synchronized (flushLock)")
+                        .beginControlFlow("synchronized (writeBehindLock)")
+                        .beginControlFlow("if (pendingContents != null)")
+                        .addStatement("pendingContents = null")
+                        .addStatement("$T.cancel(flushTask)", BackgroundWriter.class)
+                        .addStatement("log($T.DEBUG, $S, null)", LogLevel.class, "Discarding pending save")
+                        .endControlFlow()
+                        .endControlFlow()
+                        .endControlFlow()
+                        .build());
+        // the writer thread is shared and stops by itself, so there's nothing to release but the pending write
+        closeCodeBuilder.addStatement("flush()");
+        ctx.saveMethodBuilder.addCode(CodeBlock.builder()
+                // entries live in their own small files and only changed ones are written, so don't defer them
+                .add(saveEntries ? CodeBlock.of("saveEntries(config);\n") : CodeBlock.of(""))
+                .addStatement("$T contents = $L(config)", saveMethods.contentsType, saveMethods.toBytes)
+                .beginControlFlow("if (contents == null)")
+                .addStatement("return")
+                .endControlFlow()
+                .beginControlFlow("synchronized (writeBehindLock)")
+                .addStatement("long now = $T.nanoTime()", System.class)
+                .beginControlFlow("if (pendingContents == null)")
+                .addStatement("pendingSince = now")
+                .endControlFlow()
+                .addStatement("pendingContents = contents")
+                // wait for saves to quiet down, but don't hold off forever
+                .addStatement("$T.schedule(flushTask, $T.min(now + WRITE_BEHIND_DELAY, pendingSince + WRITE_BEHIND_MAX_DELAY))",
+                        BackgroundWriter.class, Math.class)
+                .endControlFlow()
+                .build());
+    }
+}
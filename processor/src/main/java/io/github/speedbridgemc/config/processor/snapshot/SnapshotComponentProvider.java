@@ -0,0 +1,652 @@
+package io.github.speedbridgemc.config.processor.snapshot;
+
+import com.google.auto.service.AutoService;
+import com.google.common.collect.ImmutableList;
+import com.squareup.javapoet.*;
+import io.github.speedbridgemc.config.ConfigSnapshot;
+import io.github.speedbridgemc.config.LazySection;
+import io.github.speedbridgemc.config.collect.*;
+import io.github.speedbridgemc.config.processor.api.*;
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+@AutoService(ComponentProvider.class)
+public final class SnapshotComponentProvider extends BaseComponentProvider {
+    private static final ClassName LIST_NAME = ClassName.get(List.class), MAP_NAME = ClassName.get(Map.class),
+            SET_NAME = ClassName.get(Set.class), ENUM_SET_NAME = ClassName.get(EnumSet.class),
+            ENUM_MAP_NAME = ClassName.get(EnumMap.class), LAZY_SECTION_NAME = ClassName.get(LazySection.class),
+            LINKED_HASH_SET_NAME = ClassName.get(LinkedHashSet.class);
+    private static final Set<TypeName> PRIMITIVE_LIST_TYPES = new HashSet<>(Arrays.asList(
+            ClassName.get(IntList.class), ClassName.get(LongList.class), ClassName.get(FloatList.class)));
+    private static final Set<TypeName> PRIMITIVE_MAP_TYPES = new HashSet<>(Arrays.asList(
+            ClassName.get(IntObjectMap.class), ClassName.get(LongObjectMap.class)));
+    private TypeMirror listTM, mapTM, setTM, linkedHashSetTM, enumSetTM, enumMapTM, lazySectionTM;
+
+    public SnapshotComponentProvider() {
+        super("speedbridge-config:snapshot");
+    }
+
+    @Override
+    public void init(@NotNull ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        listTM = types.erasure(elements.getTypeElement(List.class.getCanonicalName()).asType());
+        mapTM = types.erasure(elements.getTypeElement(Map.class.getCanonicalName()).asType());
+        setTM = types.erasure(elements.getTypeElement(Set.class.getCanonicalName()).asType());
+        linkedHashSetTM = types.erasure(elements.getTypeElement(LinkedHashSet.class.getCanonicalName()).asType());
+        enumSetTM = types.erasure(elements.getTypeElement(EnumSet.class.getCanonicalName()).asType());
+        enumMapTM = types.erasure(elements.getTypeElement(EnumMap.class.getCanonicalName()).asType());
+        lazySectionTM = types.erasure(elements.getTypeElement(LazySection.class.getCanonicalName()).asType());
+    }
+
+    private enum Kind {
+        VALUE, NESTED, ARRAY, LIST, MAP, SET, PRIMITIVE_LIST, PRIMITIVE_MAP, ENUM_SET, ENUM_MAP, LAZY
+    }
+
+    private static final class Context {
+        public final @NotNull TypeElement configElement;
+        public final @NotNull ClassName snapshotName;
+        public final @NotNull TypeSpec.Builder classBuilder;
+        public final @NotNull Set<String> generatedMethods = new HashSet<>();
+        // nested snapshot class of each config type, and every name that's been given out
+        public final @NotNull Map<String, ClassName> nestedNames = new HashMap<>();
+        public final @NotNull Set<String> usedNames = new HashSet<>();
+        public final @NotNull List<TypeElement> pendingTypes = new ArrayList<>();
+
+        private Context(@NotNull TypeElement configElement, @NotNull ClassName snapshotName, TypeSpec.@NotNull Builder classBuilder) {
+            this.configElement = configElement;
+            this.snapshotName = snapshotName;
+            this.classBuilder = classBuilder;
+        }
+    }
+
+    @Override
+    public void process(@NotNull String name, @NotNull TypeElement type, @NotNull ImmutableList<@NotNull VariableElement> fields,
+                        @NotNull ComponentContext ctx, TypeSpec.@NotNull Builder classBuilder) {
+        if (ctx.publishMethodBuilder == null || ctx.postPublishBuilder == null) {
+            messager.printMessage(Diagnostic.Kind.ERROR,
+                    "Snapshot: Handler implementation must use atomic concurrency mode", type);
+            return;
+        }
+        TypeName snapshotInterfaceName = ParameterizedTypeName.get(ClassName.get(ConfigSnapshot.class), ctx.configName);
+        if (!ctx.hasMethod(MethodSignature.of(snapshotInterfaceName, "snapshot"))) {
+            messager.printMessage(Diagnostic.Kind.ERROR,
+                    "Handler interface is missing required method: ConfigSnapshot<" + type.getSimpleName() + "> snapshot()",
+                    ctx.handlerInterfaceTypeElement);
+        }
+
+        String configPackage = elements.getPackageOf(type).getQualifiedName().toString();
+        ClassName snapshotName;
+        String snapshotNameIn = ParamUtils.allOrNothing(ctx.params, "class_name");
+        if (snapshotNameIn == null)
+            snapshotName = ClassName.get(configPackage, type.getSimpleName() + "Snapshot");
+        else if (snapshotNameIn.contains(".")) {
+            int splitIndex = snapshotNameIn.lastIndexOf('.');
+            snapshotName = ClassName.get(snapshotNameIn.substring(0, splitIndex), snapshotNameIn.substring(splitIndex + 1));
+        } else
+            snapshotName = ClassName.get(configPackage, snapshotNameIn);
+
+        TypeSpec.Builder snapshotBuilder = TypeSpec.classBuilder(snapshotName)
+                .addAnnotation(AnnotationSpec.builder(TypeUtils.getGeneratedAnnotation(processingEnv))
+                        .addMember("value", "$S", getClass().getCanonicalName())
+                        .addMember("date", "$S", OffsetDateTime.now().format(DateTimeFormatter.ISO_OFFSET_DATE_TIME))
+                        .build())
+                .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+                .addSuperinterface(snapshotInterfaceName);
+        Context sCtx = new Context(type, snapshotName, snapshotBuilder);
+        sCtx.usedNames.add(snapshotName.simpleName());
+        generateBody(ctx, sCtx, snapshotBuilder, type, fields, snapshotName, true);
+        // nested types are discovered while generating bodies
+        while (!sCtx.pendingTypes.isEmpty()) {
+            TypeElement nestedType = sCtx.pendingTypes.remove(0);
+            ClassName nestedName = sCtx.nestedNames.get(nestedType.getQualifiedName().toString());
+            TypeSpec.Builder nestedBuilder = TypeSpec.classBuilder(nestedName)
+                    .addModifiers(Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL);
+            generateBody(ctx, sCtx, nestedBuilder, nestedType, TypeUtils.getFieldsToProcess(nestedType), nestedName, false);
+            snapshotBuilder.addType(nestedBuilder.build());
+        }
+        try {
+            JavaFile.builder(snapshotName.packageName(), snapshotBuilder.build())
+                    .build()
+                    .writeTo(processingEnv.getFiler());
+        } catch (IOException e) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "Snapshot: Failed to write snapshot class", type);
+            e.printStackTrace();
+        }
+
+        FieldSpec.Builder frozenFieldBuilder = FieldSpec.builder(snapshotName, "frozenSnapshot", Modifier.PRIVATE, Modifier.VOLATILE);
+        if (ctx.nullableAnnotation != null)
+            frozenFieldBuilder.addAnnotation(ctx.nullableAnnotation);
+        MethodSpec.Builder snapshotMethodBuilder = MethodSpec.methodBuilder("snapshot")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC)
+                .returns(snapshotName)
+                .addStatement("return frozenSnapshot");
+        if (ctx.nonNullAnnotation != null)
+            snapshotMethodBuilder.addAnnotation(ctx.nonNullAnnotation);
+        classBuilder.addField(frozenFieldBuilder.build())
+                .addMethod(snapshotMethodBuilder.build());
+        ctx.postPublishBuilder.addStatement("frozenSnapshot = new $T(snapshot)", snapshotName);
+    }
+
+    private void generateBody(@NotNull ComponentContext ctx, @NotNull Context sCtx, TypeSpec.@NotNull Builder typeBuilder,
+                              @NotNull TypeElement type, @NotNull List<@NotNull VariableElement> fields,
+                              @NotNull ClassName snapshotName, boolean topLevel) {
+        TypeName typeName = TypeName.get(type.asType());
+        ParameterSpec.Builder configParamBuilder = ParameterSpec.builder(typeName, "config");
+        if (ctx.nonNullAnnotation != null)
+            configParamBuilder.addAnnotation(ctx.nonNullAnnotation);
+        MethodSpec.Builder constructorBuilder = MethodSpec.constructorBuilder()
+                .addModifiers(topLevel ? Modifier.PUBLIC : Modifier.PRIVATE)
+                .addParameter(configParamBuilder.build());
+        MethodSpec.Builder thawMethodBuilder = MethodSpec.methodBuilder("thaw")
+                .addModifiers(Modifier.PUBLIC)
+                .returns(typeName)
+                .addStatement("$1T config = new $1T()", typeName);
+        if (topLevel)
+            thawMethodBuilder.addAnnotation(Override.class);
+        if (ctx.nonNullAnnotation != null)
+            thawMethodBuilder.addAnnotation(ctx.nonNullAnnotation);
+        CodeBlock.Builder equalsBuilder = CodeBlock.builder();
+        CodeBlock.Builder hashCodeBuilder = CodeBlock.builder()
+                .addStatement("int result = 1");
+        for (VariableElement field : fields) {
+            String fieldName = field.getSimpleName().toString();
+            TypeMirror fieldType = field.asType();
+            TypeName snapshotType = getSnapshotType(sCtx, fieldType);
+            typeBuilder.addField(snapshotType, fieldName, Modifier.PRIVATE, Modifier.FINAL);
+            constructorBuilder.addStatement("this.$L = $L", fieldName, generateFreeze(sCtx, fieldType, "config." + fieldName));
+            thawMethodBuilder.addStatement("config.$L = $L", fieldName, generateThaw(sCtx, fieldType, fieldName));
+            MethodSpec.Builder getterBuilder = MethodSpec.methodBuilder(fieldName)
+                    .addModifiers(Modifier.PUBLIC)
+                    .returns(snapshotType);
+            if (fieldType.getKind() == TypeKind.ARRAY) {
+                // arrays can't be frozen, so hand out copies - but also offer allocation-free element access
+                TypeMirror componentType = ((ArrayType) fieldType).getComponentType();
+                getterBuilder.addStatement("return $L", generateCopy(sCtx, fieldType, fieldName));
+                typeBuilder.addMethod(MethodSpec.methodBuilder(fieldName)
+                                .addModifiers(Modifier.PUBLIC)
+                                .returns(getSnapshotType(sCtx, componentType))
+                                .addParameter(TypeName.INT, "index")
+                                .addStatement("return $L", generateCopy(sCtx, componentType, fieldName + "[index]"))
+                                .build())
+                        .addMethod(MethodSpec.methodBuilder(fieldName + "Length")
+                                .addModifiers(Modifier.PUBLIC)
+                                .returns(TypeName.INT)
+                                .addStatement("return $L.length", fieldName)
+                                .build());
+            } else
+                getterBuilder.addStatement("return $L", fieldName);
+            typeBuilder.addMethod(getterBuilder.build());
+            if (!equalsBuilder.isEmpty())
+                equalsBuilder.add("\n&& ");
+            equalsBuilder.add(generateEquals(fieldType, fieldName, "that." + fieldName));
+            hashCodeBuilder.addStatement("result = 31 * result + $L", generateHashCode(fieldType, fieldName));
+        }
+        if (equalsBuilder.isEmpty())
+            equalsBuilder.add("true");
+        typeBuilder.addMethod(constructorBuilder.build())
+                .addMethod(thawMethodBuilder.addStatement("return config").build())
+                .addMethod(MethodSpec.methodBuilder("equals")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(TypeName.BOOLEAN)
+                        .addParameter(Object.class, "o")
+                        .beginControlFlow("if (this == o)")
+                        .addStatement("return true")
+                        .endControlFlow()
+                        .beginControlFlow("if (o == null || getClass() != o.getClass())")
+                        .addStatement("return false")
+                        .endControlFlow()
+                        .addStatement("$1T that = ($1T) o", snapshotName)
+                        .addStatement("return $L", equalsBuilder.build())
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("hashCode")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(TypeName.INT)
+                        .addCode(hashCodeBuilder.build())
+                        .addStatement("return result")
+                        .build());
+    }
+
+    private @NotNull Kind getKind(@NotNull TypeMirror type) {
+        if (type.getKind() == TypeKind.ARRAY)
+            return Kind.ARRAY;
+        if (type.getKind() != TypeKind.DECLARED)
+            return Kind.VALUE;
+        TypeElement typeElement = (TypeElement) ((DeclaredType) type).asElement();
+        if (typeElement.getKind() == ElementKind.ENUM)
+            return Kind.VALUE;
+        TypeMirror erasure = types.erasure(type);
+        int typeArgCount = ((DeclaredType) type).getTypeArguments().size();
+        TypeName erasureName = TypeName.get(erasure);
+        if (PRIMITIVE_LIST_TYPES.contains(erasureName))
+            return Kind.PRIMITIVE_LIST;
+        if (PRIMITIVE_MAP_TYPES.contains(erasureName))
+            return typeArgCount == 1 ? Kind.PRIMITIVE_MAP : Kind.VALUE;
+        if (types.isSameType(erasure, lazySectionTM))
+            return typeArgCount == 1 ? Kind.LAZY : Kind.VALUE;
+        // checked before the generic collection kinds, since thawing those creates HashMaps
+        if (types.isSameType(erasure, enumSetTM))
+            return typeArgCount == 1 ? Kind.ENUM_SET : Kind.VALUE;
+        if (types.isSameType(erasure, enumMapTM))
+            return typeArgCount == 2 ? Kind.ENUM_MAP : Kind.VALUE;
+        if (types.isAssignable(erasure, listTM))
+            return typeArgCount == 1 ? Kind.LIST : Kind.VALUE;
+        if (types.isAssignable(erasure, mapTM))
+            return typeArgCount == 2 ? Kind.MAP : Kind.VALUE;
+        if (types.isAssignable(erasure, setTM))
+            return typeArgCount == 1 ? Kind.SET : Kind.VALUE;
+        String packageName = elements.getPackageOf(typeElement).getQualifiedName().toString();
+        if (typeElement.getKind() == ElementKind.CLASS && TypeUtils.hasDefaultConstructor(typeElement)
+                && !packageName.startsWith("java.") && !packageName.startsWith("javax."))
+            return Kind.NESTED;
+        // strings, boxed primitives, raw collections and other types we can't look into are shared as-is
+        return Kind.VALUE;
+    }
+
+    private static @NotNull List<? extends TypeMirror> getTypeArguments(@NotNull TypeMirror type) {
+        return ((DeclaredType) type).getTypeArguments();
+    }
+
+    private @NotNull TypeName getSnapshotType(@NotNull Context sCtx, @NotNull TypeMirror type) {
+        switch (getKind(type)) {
+        case NESTED:
+            return getNestedName(sCtx, (TypeElement) types.asElement(type));
+        case ARRAY:
+            return ArrayTypeName.of(getSnapshotType(sCtx, ((ArrayType) type).getComponentType()));
+        case LIST:
+            return ParameterizedTypeName.get(LIST_NAME, getSnapshotType(sCtx, getTypeArguments(type).get(0)));
+        case MAP:
+            List<? extends TypeMirror> typeArgs = getTypeArguments(type);
+            return ParameterizedTypeName.get(MAP_NAME, getSnapshotType(sCtx, typeArgs.get(0)), getSnapshotType(sCtx, typeArgs.get(1)));
+        case PRIMITIVE_MAP:
+            return ParameterizedTypeName.get(ClassName.get((TypeElement) types.asElement(type)),
+                    getSnapshotType(sCtx, getTypeArguments(type).get(0)));
+        case SET:
+            return ParameterizedTypeName.get(SET_NAME, getSnapshotType(sCtx, getTypeArguments(type).get(0)));
+        case ENUM_SET:
+            return ParameterizedTypeName.get(SET_NAME, TypeName.get(getTypeArguments(type).get(0)));
+        case ENUM_MAP:
+            List<? extends TypeMirror> enumMapTypeArgs = getTypeArguments(type);
+            return ParameterizedTypeName.get(MAP_NAME, TypeName.get(enumMapTypeArgs.get(0)), getSnapshotType(sCtx, enumMapTypeArgs.get(1)));
+        case LAZY:
+            return ParameterizedTypeName.get(LAZY_SECTION_NAME, getSnapshotType(sCtx, getTypeArguments(type).get(0)));
+        default:
+            return TypeName.get(type);
+        }
+    }
+
+    private @NotNull ClassName getNestedName(@NotNull Context sCtx, @NotNull TypeElement typeElement) {
+        if (typeElement.equals(sCtx.configElement))
+            return sCtx.snapshotName;
+        String qualifiedName = typeElement.getQualifiedName().toString();
+        ClassName nestedName = sCtx.nestedNames.get(qualifiedName);
+        if (nestedName == null) {
+            nestedName = sCtx.snapshotName.nestedClass(getUniqueNestedName(sCtx, typeElement));
+            sCtx.nestedNames.put(qualifiedName, nestedName);
+            sCtx.pendingTypes.add(typeElement);
+        }
+        return nestedName;
+    }
+
+    private static @NotNull String getUniqueNestedName(@NotNull Context sCtx, @NotNull TypeElement typeElement) {
+        // types with the same simple name (say, A.Inner and B.Inner) get their enclosing types' names prepended,
+        // as in AInner and BInner
+        String name = typeElement.getSimpleName().toString();
+        Element enclosing = typeElement.getEnclosingElement();
+        while (!sCtx.usedNames.add(name)) {
+            if (enclosing == null || !(enclosing instanceof TypeElement)) {
+                String baseName = name;
+                for (int i = 2; !sCtx.usedNames.add(name = baseName + i); i++) { }
+                break;
+            }
+            name = enclosing.getSimpleName() + name;
+            enclosing = enclosing.getEnclosingElement();
+        }
+        return name;
+    }
+
+    private @NotNull CodeBlock generateFreeze(@NotNull Context sCtx, @NotNull TypeMirror type, @NotNull String src) {
+        switch (getKind(type)) {
+        case NESTED:
+            return CodeBlock.of("$1L == null ? null : new $2T($1L)", src, getSnapshotType(sCtx, type));
+        case PRIMITIVE_LIST:
+            return CodeBlock.of("$1L == null ? null : $1L.frozenCopy()", src);
+        case ENUM_SET:
+            return CodeBlock.of("$1L == null ? null : $2T.unmodifiableSet($3T.copyOf($1L))", src, Collections.class, ENUM_SET_NAME);
+        case ARRAY:
+            if (isValueArray(type))
+                return generateCopy(sCtx, type, src);
+            return CodeBlock.of("$L($L)", generateFreezeMethod(sCtx, type), src);
+        case LIST:
+        case MAP:
+        case SET:
+        case PRIMITIVE_MAP:
+        case ENUM_MAP:
+        case LAZY:
+            return CodeBlock.of("$L($L)", generateFreezeMethod(sCtx, type), src);
+        default:
+            return CodeBlock.of("$L", src);
+        }
+    }
+
+    private @NotNull CodeBlock generateThaw(@NotNull Context sCtx, @NotNull TypeMirror type, @NotNull String src) {
+        switch (getKind(type)) {
+        case NESTED:
+            return CodeBlock.of("$1L == null ? null : $1L.thaw()", src);
+        case PRIMITIVE_LIST:
+            return CodeBlock.of("$1L == null ? null : $1L.copy()", src);
+        case ARRAY:
+            if (isValueArray(type))
+                return generateCopy(sCtx, type, src);
+            return CodeBlock.of("$L($L)", generateThawMethod(sCtx, type), src);
+        case LIST:
+        case MAP:
+        case SET:
+        case PRIMITIVE_MAP:
+        case ENUM_SET:
+        case ENUM_MAP:
+        case LAZY:
+            return CodeBlock.of("$L($L)", generateThawMethod(sCtx, type), src);
+        default:
+            return CodeBlock.of("$L", src);
+        }
+    }
+
+    private boolean isValueArray(@NotNull TypeMirror type) {
+        // arrays of values (and arrays of arrays of values, etc.) only need to be copied to be frozen or thawed
+        while (type.getKind() == TypeKind.ARRAY)
+            type = ((ArrayType) type).getComponentType();
+        return getKind(type) == Kind.VALUE;
+    }
+
+    private @NotNull CodeBlock generateCopy(@NotNull Context sCtx, @NotNull TypeMirror type, @NotNull String src) {
+        if (type.getKind() != TypeKind.ARRAY)
+            return CodeBlock.of("$L", src);
+        TypeMirror componentType = ((ArrayType) type).getComponentType();
+        if (componentType.getKind() != TypeKind.ARRAY)
+            return CodeBlock.of("$1L == null ? null : $1L.clone()", src);
+        String methodName = "copy" + StringUtils.titleCase(TypeUtils.getSimpleIdSafeName(type));
+        if (sCtx.generatedMethods.add(methodName)) {
+            TypeName snapshotType = getSnapshotType(sCtx, type);
+            sCtx.classBuilder.addMethod(MethodSpec.methodBuilder(methodName)
+                    .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                    .returns(snapshotType)
+                    .addParameter(snapshotType, "src")
+                    .beginControlFlow("if (src == null)")
+                    .addStatement("return null")
+                    .endControlFlow()
+                    .addStatement("$T dst = $L", snapshotType, newArray(snapshotType, "src.length"))
+                    .beginControlFlow("for (int i = 0; i < src.length; i++)")
+                    .addStatement("dst[i] = $L", generateCopy(sCtx, componentType, "src[i]"))
+                    .endControlFlow()
+                    .addStatement("return dst")
+                    .build());
+        }
+        return CodeBlock.of("$L($L)", methodName, src);
+    }
+
+    private @NotNull String generateFreezeMethod(@NotNull Context sCtx, @NotNull TypeMirror type) {
+        String methodName = "freeze" + StringUtils.titleCase(TypeUtils.getSimpleIdSafeName(type));
+        if (!sCtx.generatedMethods.add(methodName))
+            return methodName;
+        TypeName typeName = TypeName.get(type), snapshotType = getSnapshotType(sCtx, type);
+        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(methodName)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .returns(snapshotType)
+                .addParameter(typeName, "src")
+                .beginControlFlow("if (src == null)")
+                .addStatement("return null")
+                .endControlFlow();
+        Kind kind = getKind(type);
+        if (kind == Kind.ARRAY) {
+            TypeMirror componentType = ((ArrayType) type).getComponentType();
+            methodBuilder
+                    .addStatement("$T dst = $L", snapshotType, newArray(snapshotType, "src.length"))
+                    .beginControlFlow("for (int i = 0; i < src.length; i++)")
+                    .addStatement("dst[i] = $L", generateFreeze(sCtx, componentType, "src[i]"))
+                    .endControlFlow()
+                    .addStatement("return dst");
+        } else if (kind == Kind.LIST) {
+            TypeMirror elementType = getTypeArguments(type).get(0);
+            TypeName listType = ParameterizedTypeName.get(ClassName.get(ArrayList.class), getSnapshotType(sCtx, elementType));
+            methodBuilder
+                    .addStatement("$1T dst = new $1T(src.size())", listType)
+                    .beginControlFlow("for ($T e : src)", elementType)
+                    .addStatement("dst.add($L)", generateFreeze(sCtx, elementType, "e"))
+                    .endControlFlow()
+                    .addStatement("return $T.unmodifiableList(dst)", Collections.class);
+        } else if (kind == Kind.SET) {
+            TypeMirror elementType = getTypeArguments(type).get(0);
+            TypeName setType = ParameterizedTypeName.get(LINKED_HASH_SET_NAME, getSnapshotType(sCtx, elementType));
+            // keeps the original iteration order, in case it's meaningful
+            methodBuilder
+                    .addStatement("$1T dst = new $1T(src.size() * 4 / 3 + 1)", setType)
+                    .beginControlFlow("for ($T e : src)", elementType)
+                    .addStatement("dst.add($L)", generateFreeze(sCtx, elementType, "e"))
+                    .endControlFlow()
+                    .addStatement("return $T.unmodifiableSet(dst)", Collections.class);
+        } else if (kind == Kind.PRIMITIVE_MAP) {
+            TypeMirror valueType = getTypeArguments(type).get(0);
+            methodBuilder
+                    .addStatement("$1T dst = new $1T(src.size())", snapshotType)
+                    .addStatement("$T cursor = src.cursor()", getCursorType(typeName))
+                    .beginControlFlow("while (cursor.advance())")
+                    .addStatement("dst.put(cursor.key(), $L)", generateFreeze(sCtx, valueType, "cursor.value()"))
+                    .endControlFlow()
+                    .addStatement("return dst.freeze()");
+        } else if (kind == Kind.ENUM_MAP) {
+            List<? extends TypeMirror> typeArgs = getTypeArguments(type);
+            TypeMirror keyType = typeArgs.get(0), valueType = typeArgs.get(1);
+            TypeName mapType = ParameterizedTypeName.get(ENUM_MAP_NAME, TypeName.get(keyType), getSnapshotType(sCtx, valueType));
+            methodBuilder
+                    .addStatement("$1T dst = new $1T($2T.class)", mapType, TypeName.get(keyType))
+                    .beginControlFlow("for ($T entry : src.entrySet())",
+                            ParameterizedTypeName.get(ClassName.get(Map.Entry.class), TypeName.get(keyType), TypeName.get(valueType)))
+                    .addStatement("dst.put(entry.getKey(), $L)", generateFreeze(sCtx, valueType, "entry.getValue()"))
+                    .endControlFlow()
+                    .addStatement("return $T.unmodifiableMap(dst)", Collections.class);
+        } else if (kind == Kind.LAZY) {
+            // sections that aren't loaded yet stay that way, each snapshot decodes its own copy once it's needed
+            TypeMirror valueType = getTypeArguments(type).get(0);
+            methodBuilder.addStatement("return src.map(value -> $L).freeze()", generateFreeze(sCtx, valueType, "value"));
+        } else {
+            List<? extends TypeMirror> typeArgs = getTypeArguments(type);
+            TypeMirror keyType = typeArgs.get(0), valueType = typeArgs.get(1);
+            TypeName mapType = ParameterizedTypeName.get(ClassName.get(HashMap.class),
+                    getSnapshotType(sCtx, keyType), getSnapshotType(sCtx, valueType));
+            methodBuilder
+                    .addStatement("$1T dst = new $1T()", mapType)
+                    .beginControlFlow("for ($T entry : src.entrySet())",
+                            ParameterizedTypeName.get(ClassName.get(Map.Entry.class), TypeName.get(keyType), TypeName.get(valueType)))
+                    .addStatement("dst.put($L, $L)",
+                            generateFreeze(sCtx, keyType, "entry.getKey()"), generateFreeze(sCtx, valueType, "entry.getValue()"))
+                    .endControlFlow()
+                    .addStatement("return $T.unmodifiableMap(dst)", Collections.class);
+        }
+        sCtx.classBuilder.addMethod(methodBuilder.build());
+        return methodName;
+    }
+
+    private @NotNull String generateThawMethod(@NotNull Context sCtx, @NotNull TypeMirror type) {
+        String methodName = "thaw" + StringUtils.titleCase(TypeUtils.getSimpleIdSafeName(type));
+        if (!sCtx.generatedMethods.add(methodName))
+            return methodName;
+        TypeName snapshotType = getSnapshotType(sCtx, type);
+        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(methodName)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .addParameter(snapshotType, "src");
+        Kind kind = getKind(type);
+        if (kind == Kind.ARRAY) {
+            TypeName typeName = TypeName.get(type);
+            TypeMirror componentType = ((ArrayType) type).getComponentType();
+            methodBuilder.returns(typeName)
+                    .beginControlFlow("if (src == null)")
+                    .addStatement("return null")
+                    .endControlFlow()
+                    .addStatement("$T dst = $L", typeName, newArray(typeName, "src.length"))
+                    .beginControlFlow("for (int i = 0; i < src.length; i++)")
+                    .addStatement("dst[i] = $L", generateThaw(sCtx, componentType, "src[i]"))
+                    .endControlFlow()
+                    .addStatement("return dst");
+        } else if (kind == Kind.LIST) {
+            TypeMirror elementType = getTypeArguments(type).get(0);
+            TypeName listType = ParameterizedTypeName.get(ClassName.get(ArrayList.class), TypeName.get(elementType));
+            methodBuilder.returns(listType)
+                    .beginControlFlow("if (src == null)")
+                    .addStatement("return null")
+                    .endControlFlow()
+                    .addStatement("$1T dst = new $1T(src.size())", listType)
+                    .beginControlFlow("for ($T e : src)", getSnapshotType(sCtx, elementType))
+                    .addStatement("dst.add($L)", generateThaw(sCtx, elementType, "e"))
+                    .endControlFlow()
+                    .addStatement("return dst");
+        } else if (kind == Kind.SET) {
+            TypeMirror elementType = getTypeArguments(type).get(0);
+            // fields declared as some other kind of set get a new instance of that, or a TreeSet for SortedSets
+            TypeElement setElement = (TypeElement) types.asElement(type);
+            ClassName setClassName;
+            if (types.isAssignable(linkedHashSetTM, types.erasure(type)))
+                setClassName = LINKED_HASH_SET_NAME;
+            else if (setElement.getKind() == ElementKind.INTERFACE || setElement.getModifiers().contains(Modifier.ABSTRACT))
+                setClassName = ClassName.get(TreeSet.class);
+            else
+                setClassName = ClassName.get(setElement);
+            TypeName setType = ParameterizedTypeName.get(setClassName, TypeName.get(elementType));
+            methodBuilder.returns(setType)
+                    .beginControlFlow("if (src == null)")
+                    .addStatement("return null")
+                    .endControlFlow()
+                    .addStatement("$1T dst = new $1T()", setType)
+                    .beginControlFlow("for ($T e : src)", getSnapshotType(sCtx, elementType))
+                    .addStatement("dst.add($L)", generateThaw(sCtx, elementType, "e"))
+                    .endControlFlow()
+                    .addStatement("return dst");
+        } else if (kind == Kind.PRIMITIVE_MAP) {
+            TypeName typeName = TypeName.get(type);
+            TypeMirror valueType = getTypeArguments(type).get(0);
+            methodBuilder.returns(typeName)
+                    .beginControlFlow("if (src == null)")
+                    .addStatement("return null")
+                    .endControlFlow()
+                    .addStatement("$1T dst = new $1T(src.size())", typeName)
+                    .addStatement("$T cursor = src.cursor()", getCursorType(snapshotType))
+                    .beginControlFlow("while (cursor.advance())")
+                    .addStatement("dst.put(cursor.key(), $L)", generateThaw(sCtx, valueType, "cursor.value()"))
+                    .endControlFlow()
+                    .addStatement("return dst");
+        } else if (kind == Kind.ENUM_SET) {
+            TypeName elementType = TypeName.get(getTypeArguments(type).get(0));
+            TypeName setType = ParameterizedTypeName.get(ENUM_SET_NAME, elementType);
+            // EnumSet.copyOf can't tell the element type of an empty collection that isn't an EnumSet
+            methodBuilder.returns(setType)
+                    .beginControlFlow("if (src == null)")
+                    .addStatement("return null")
+                    .endControlFlow()
+                    .addStatement("$T dst = $T.noneOf($T.class)", setType, ENUM_SET_NAME, elementType)
+                    .addStatement("dst.addAll(src)")
+                    .addStatement("return dst");
+        } else if (kind == Kind.ENUM_MAP) {
+            List<? extends TypeMirror> typeArgs = getTypeArguments(type);
+            TypeMirror keyType = typeArgs.get(0), valueType = typeArgs.get(1);
+            TypeName mapType = ParameterizedTypeName.get(ENUM_MAP_NAME, TypeName.get(keyType), TypeName.get(valueType));
+            methodBuilder.returns(mapType)
+                    .beginControlFlow("if (src == null)")
+                    .addStatement("return null")
+                    .endControlFlow()
+                    .addStatement("$1T dst = new $1T($2T.class)", mapType, TypeName.get(keyType))
+                    .beginControlFlow("for ($T entry : src.entrySet())",
+                            ParameterizedTypeName.get(ClassName.get(Map.Entry.class),
+                                    TypeName.get(keyType), getSnapshotType(sCtx, valueType)))
+                    .addStatement("dst.put(entry.getKey(), $L)", generateThaw(sCtx, valueType, "entry.getValue()"))
+                    .endControlFlow()
+                    .addStatement("return dst");
+        } else if (kind == Kind.LAZY) {
+            TypeMirror valueType = getTypeArguments(type).get(0);
+            methodBuilder.returns(TypeName.get(type))
+                    .beginControlFlow("if (src == null)")
+                    .addStatement("return null")
+                    .endControlFlow()
+                    .addStatement("return src.map(value -> $L)", generateThaw(sCtx, valueType, "value"));
+        } else {
+            List<? extends TypeMirror> typeArgs = getTypeArguments(type);
+            TypeMirror keyType = typeArgs.get(0), valueType = typeArgs.get(1);
+            TypeName mapType = ParameterizedTypeName.get(ClassName.get(HashMap.class), TypeName.get(keyType), TypeName.get(valueType));
+            methodBuilder.returns(mapType)
+                    .beginControlFlow("if (src == null)")
+                    .addStatement("return null")
+                    .endControlFlow()
+                    .addStatement("$1T dst = new $1T()", mapType)
+                    .beginControlFlow("for ($T entry : src.entrySet())",
+                            ParameterizedTypeName.get(ClassName.get(Map.Entry.class),
+                                    getSnapshotType(sCtx, keyType), getSnapshotType(sCtx, valueType)))
+                    .addStatement("dst.put($L, $L)",
+                            generateThaw(sCtx, keyType, "entry.getKey()"), generateThaw(sCtx, valueType, "entry.getValue()"))
+                    .endControlFlow()
+                    .addStatement("return dst");
+        }
+        sCtx.classBuilder.addMethod(methodBuilder.build());
+        return methodName;
+    }
+
+    private static @NotNull CodeBlock newArray(@NotNull TypeName arrayType, @NotNull String length) {
+        // new Foo[length][][], not new Foo[][][length]
+        int dimensions = 0;
+        TypeName componentType = arrayType;
+        while (componentType instanceof ArrayTypeName) {
+            componentType = ((ArrayTypeName) componentType).componentType;
+            dimensions++;
+        }
+        if (componentType instanceof ParameterizedTypeName)
+            componentType = ((ParameterizedTypeName) componentType).rawType;
+        StringBuilder sb = new StringBuilder();
+        for (int i = 1; i < dimensions; i++)
+            sb.append("[]");
+        return CodeBlock.of("new $T[$L]$L", componentType, length, sb.toString());
+    }
+
+    private static @NotNull CodeBlock generateEquals(@NotNull TypeMirror type, @NotNull String a, @NotNull String b) {
+        switch (type.getKind()) {
+        case FLOAT:
+            return CodeBlock.of("$T.compare($L, $L) == 0", Float.class, a, b);
+        case DOUBLE:
+            return CodeBlock.of("$T.compare($L, $L) == 0", Double.class, a, b);
+        case ARRAY:
+            if (((ArrayType) type).getComponentType().getKind().isPrimitive())
+                return CodeBlock.of("$T.equals($L, $L)", Arrays.class, a, b);
+            return CodeBlock.of("$T.deepEquals($L, $L)", Arrays.class, a, b);
+        default:
+            if (type.getKind().isPrimitive())
+                return CodeBlock.of("$L == $L", a, b);
+            return CodeBlock.of("$T.equals($L, $L)", Objects.class, a, b);
+        }
+    }
+
+    private static @NotNull CodeBlock generateHashCode(@NotNull TypeMirror type, @NotNull String src) {
+        if (type.getKind().isPrimitive())
+            return CodeBlock.of("$T.hashCode($L)", TypeName.get(type).box(), src);
+        if (type.getKind() == TypeKind.ARRAY) {
+            if (((ArrayType) type).getComponentType().getKind().isPrimitive())
+                return CodeBlock.of("$T.hashCode($L)", Arrays.class, src);
+            return CodeBlock.of("$T.deepHashCode($L)", Arrays.class, src);
+        }
+        return CodeBlock.of("$T.hashCode($L)", Objects.class, src);
+    }
+
+    private static @NotNull TypeName getCursorType(@NotNull TypeName mapTypeName) {
+        ParameterizedTypeName mapType = (ParameterizedTypeName) mapTypeName;
+        return ParameterizedTypeName.get(mapType.rawType.nestedClass("Cursor"), mapType.typeArguments.get(0));
+    }
+}
@@ -0,0 +1,85 @@
+package io.github.speedbridgemc.config.processor.validate;
+
+import com.squareup.javapoet.CodeBlock;
+import io.github.speedbridgemc.config.EnforceMode;
+import io.github.speedbridgemc.config.EnforceNotNull;
+import io.github.speedbridgemc.config.LazySection;
+import io.github.speedbridgemc.config.processor.api.StringUtils;
+import io.github.speedbridgemc.config.processor.api.TypeUtils;
+import io.github.speedbridgemc.config.processor.validate.api.BaseValidatorDelegate;
+import io.github.speedbridgemc.config.processor.validate.api.ErrorDelegate;
+import io.github.speedbridgemc.config.processor.validate.api.ValidatorContext;
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import java.util.List;
+
+public final class LazyValidatorDelegate extends BaseValidatorDelegate {
+    private TypeMirror lazySectionTM;
+
+    @Override
+    public void init(@NotNull ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        lazySectionTM = TypeUtils.getTypeMirror(processingEnv, LazySection.class.getCanonicalName());
+        if (lazySectionTM != null)
+            lazySectionTM = types.erasure(lazySectionTM);
+    }
+
+    @Override
+    public boolean appendCheck(@NotNull ValidatorContext ctx, @NotNull TypeMirror type, @NotNull String src, @NotNull ErrorDelegate errDelegate, CodeBlock.@NotNull Builder codeBuilder) {
+        if (type.getKind() != TypeKind.DECLARED || lazySectionTM == null)
+            return false;
+        DeclaredType declaredType = (DeclaredType) type;
+        if (!types.isSameType(types.erasure(declaredType), lazySectionTM))
+            return false;
+        List<? extends TypeMirror> typeArguments = declaredType.getTypeArguments();
+        if (typeArguments.size() == 0) {
+            messager.printMessage(Diagnostic.Kind.ERROR,
+                    "Validator: Raw lazy sections are unsupported", ctx.getEffectiveElement());
+            return false;
+        }
+        TypeMirror valueType = typeArguments.get(0);
+
+        EnforceNotNull enforceNotNull = ctx.getAnnotation(EnforceNotNull.class);
+        if (enforceNotNull != null && enforceNotNull.value() != EnforceMode.IGNORE) {
+            codeBuilder.beginControlFlow("if ($L == null)", src);
+            // TRY_FIX and USE_DEFAULT can only fix this if there's a default to reset to
+            if (enforceNotNull.value() != EnforceMode.ERROR && ctx.canSet && ctx.defaultSrc != null)
+                codeBuilder.addStatement("$L = $L", src, ctx.defaultSrc);
+            else
+                codeBuilder.addStatement(errDelegate.generateThrow(" is null!"));
+            codeBuilder.endControlFlow();
+        }
+
+        String simpleName = StringUtils.titleCase(ctx.getEffectiveElement().getSimpleName().toString());
+        String valueSrc = "value" + simpleName + "_" + ctx.nestingFactor;
+        ctx.nestingFactor++;
+
+        // the value's checks run whenever the section gets loaded, so they can't fix anything
+        CodeBlock.Builder checksBuilder = CodeBlock.builder();
+        boolean canSetBackup = ctx.canSet;
+        String defaultSrcBackup = ctx.defaultSrc;
+        ctx.canSet = false;
+        ctx.defaultSrc = null;
+        ctx.appendCheck(valueType, valueSrc, errDelegate, checksBuilder);
+        ctx.canSet = canSetBackup;
+        ctx.defaultSrc = defaultSrcBackup;
+
+        ctx.nestingFactor--;
+
+        if (!checksBuilder.isEmpty()) {
+            codeBuilder
+                    .beginControlFlow("if ($L != null)", src)
+                    .add("$L.validateWith($L -> {\n$>", src, valueSrc)
+                    .add(checksBuilder.build())
+                    .add("$<});\n")
+                    .endControlFlow();
+        }
+
+        return true;
+    }
+}
@@ -84,7 +84,10 @@ public final class NestedValidatorDelegate extends BaseValidatorDelegate {
         CodeBlock.Builder codeBuilder = CodeBlock.builder();
         Element elementBackup = ctx.element, enclosingElementBackup = ctx.enclosingElement;
         String defaultSrcBackup = ctx.defaultSrc;
+        boolean canSetBackup = ctx.canSet;
         ctx.enclosingElement = typeElement;
+        // fields can always be fixed in place, even if the object itself can't be replaced
+        ctx.canSet = true;
         for (VariableElement field : fields) {
             String fieldName = field.getSimpleName().toString();
             ctx.element = field;
@@ -93,6 +96,7 @@ public final class NestedValidatorDelegate extends BaseValidatorDelegate {
                     ErrorDelegate.simple(fieldName), codeBuilder);
         }
         ctx.defaultSrc = defaultSrcBackup;
+        ctx.canSet = canSetBackup;
         ctx.enclosingElement = enclosingElementBackup;
         ctx.element = elementBackup;
         if (codeBuilder.isEmpty()) {
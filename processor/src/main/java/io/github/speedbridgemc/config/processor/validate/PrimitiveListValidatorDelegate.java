@@ -0,0 +1,86 @@
+package io.github.speedbridgemc.config.processor.validate;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.TypeName;
+import io.github.speedbridgemc.config.EnforceMode;
+import io.github.speedbridgemc.config.EnforceNotNull;
+import io.github.speedbridgemc.config.collect.FloatList;
+import io.github.speedbridgemc.config.collect.IntList;
+import io.github.speedbridgemc.config.collect.LongList;
+import io.github.speedbridgemc.config.processor.api.StringUtils;
+import io.github.speedbridgemc.config.processor.validate.api.BaseValidatorDelegate;
+import io.github.speedbridgemc.config.processor.validate.api.ErrorDelegate;
+import io.github.speedbridgemc.config.processor.validate.api.ValidatorContext;
+import org.jetbrains.annotations.NotNull;
+
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import java.util.HashMap;
+
+public final class PrimitiveListValidatorDelegate extends BaseValidatorDelegate {
+    private static final HashMap<TypeName, TypeKind> COMPONENT_KINDS = new HashMap<>();
+
+    static {
+        COMPONENT_KINDS.put(ClassName.get(IntList.class), TypeKind.INT);
+        COMPONENT_KINDS.put(ClassName.get(LongList.class), TypeKind.LONG);
+        COMPONENT_KINDS.put(ClassName.get(FloatList.class), TypeKind.FLOAT);
+    }
+
+    @Override
+    public boolean appendCheck(@NotNull ValidatorContext ctx, @NotNull TypeMirror type, @NotNull String src, @NotNull ErrorDelegate errDelegate, CodeBlock.@NotNull Builder codeBuilder) {
+        TypeKind componentKind = COMPONENT_KINDS.get(TypeName.get(type));
+        if (componentKind == null)
+            return false;
+        TypeMirror componentType = types.getPrimitiveType(componentKind);
+
+        EnforceNotNull enforceNotNull = ctx.getAnnotation(EnforceNotNull.class);
+        if (enforceNotNull != null && enforceNotNull.value() != EnforceMode.IGNORE) {
+            codeBuilder.beginControlFlow("if ($L == null)", src);
+            // TRY_FIX and USE_DEFAULT can only fix this if there's a default to reset to
+            if (enforceNotNull.value() != EnforceMode.ERROR && ctx.canSet && ctx.defaultSrc != null)
+                codeBuilder.addStatement("$L = $L.copy()", src, ctx.defaultSrc);
+            else
+                codeBuilder.addStatement(errDelegate.generateThrow(" is null!"));
+            codeBuilder.endControlFlow();
+        }
+
+        String simpleName = StringUtils.titleCase(ctx.getEffectiveElement().getSimpleName().toString());
+        String indexSrc = "index" + simpleName + "_" + ctx.nestingFactor;
+        String sizeSrc = "size" + simpleName + "_" + ctx.nestingFactor;
+        String compSrc = "comp" + simpleName + "_" + ctx.nestingFactor;
+        ctx.nestingFactor++;
+        // the default value is the whole list, which elements can't be reset to
+        String defaultSrcBackup = ctx.defaultSrc;
+        ctx.defaultSrc = null;
+
+        CodeBlock.Builder checksBuilder = CodeBlock.builder();
+
+        ctx.appendCheck(componentType, compSrc, errDelegate.derive((details, desc) -> CodeBlock.builder()
+                .add("throw new $T(", IllegalArgumentException.class)
+                .add("$S", '"' + desc + '[')
+                .add(" + $L + ", indexSrc)
+                .add("$S", "]\"")
+                .add(" + ")
+                .add(details)
+                .add(")")
+                .build()), checksBuilder);
+
+        ctx.defaultSrc = defaultSrcBackup;
+        ctx.nestingFactor--;
+
+        if (!checksBuilder.isEmpty()) {
+            codeBuilder
+                    .beginControlFlow("if ($L != null)", src)
+                    .beginControlFlow("for (int $1L = 0, $2L = $3L.size(); $1L < $2L; $1L++)",
+                            indexSrc, sizeSrc, src)
+                    .addStatement("$T $L = $L.get($L)", componentType, compSrc, src, indexSrc)
+                    .add(checksBuilder.build())
+                    .addStatement("$L.set($L, $L)", src, indexSrc, compSrc)
+                    .endControlFlow()
+                    .endControlFlow();
+        }
+
+        return true;
+    }
+}
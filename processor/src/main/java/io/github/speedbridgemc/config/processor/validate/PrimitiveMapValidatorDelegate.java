@@ -0,0 +1,100 @@
+package io.github.speedbridgemc.config.processor.validate;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import io.github.speedbridgemc.config.EnforceMode;
+import io.github.speedbridgemc.config.EnforceNotNull;
+import io.github.speedbridgemc.config.collect.IntObjectMap;
+import io.github.speedbridgemc.config.collect.LongObjectMap;
+import io.github.speedbridgemc.config.processor.api.StringUtils;
+import io.github.speedbridgemc.config.processor.validate.api.BaseValidatorDelegate;
+import io.github.speedbridgemc.config.processor.validate.api.ErrorDelegate;
+import io.github.speedbridgemc.config.processor.validate.api.ValidatorContext;
+import org.jetbrains.annotations.NotNull;
+
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import java.util.HashSet;
+import java.util.List;
+
+public final class PrimitiveMapValidatorDelegate extends BaseValidatorDelegate {
+    private static final HashSet<TypeName> MAP_TYPES = new HashSet<>();
+
+    static {
+        MAP_TYPES.add(ClassName.get(IntObjectMap.class));
+        MAP_TYPES.add(ClassName.get(LongObjectMap.class));
+    }
+
+    @Override
+    public boolean appendCheck(@NotNull ValidatorContext ctx, @NotNull TypeMirror type, @NotNull String src, @NotNull ErrorDelegate errDelegate, CodeBlock.@NotNull Builder codeBuilder) {
+        if (type.getKind() != TypeKind.DECLARED)
+            return false;
+        DeclaredType declaredType = (DeclaredType) type;
+        if (!MAP_TYPES.contains(TypeName.get(types.erasure(declaredType))))
+            return false;
+        List<? extends TypeMirror> typeArguments = declaredType.getTypeArguments();
+        if (typeArguments.size() == 0) {
+            messager.printMessage(Diagnostic.Kind.ERROR,
+                    "Validator: Raw maps are unsupported", ctx.getEffectiveElement());
+            return false;
+        }
+        TypeMirror valueType = typeArguments.get(0);
+
+        EnforceNotNull enforceNotNull = ctx.getAnnotation(EnforceNotNull.class);
+        if (enforceNotNull != null && enforceNotNull.value() != EnforceMode.IGNORE) {
+            codeBuilder.beginControlFlow("if ($L == null)", src);
+            // TRY_FIX and USE_DEFAULT can only fix this if there's a default to reset to
+            if (enforceNotNull.value() != EnforceMode.ERROR && ctx.canSet && ctx.defaultSrc != null)
+                codeBuilder.addStatement("$L = $L.copy()", src, ctx.defaultSrc);
+            else
+                codeBuilder.addStatement(errDelegate.generateThrow(" is null!"));
+            codeBuilder.endControlFlow();
+        }
+
+        String simpleName = StringUtils.titleCase(ctx.getEffectiveElement().getSimpleName().toString());
+        String cursorSrc = "cursor" + simpleName + "_" + ctx.nestingFactor;
+        String valueSrc = "value" + simpleName + "_" + ctx.nestingFactor;
+        ctx.nestingFactor++;
+        // the default value is the whole map, which values can't be reset to
+        String defaultSrcBackup = ctx.defaultSrc;
+        ctx.defaultSrc = null;
+
+        CodeBlock.Builder checksBuilder = CodeBlock.builder();
+
+        ctx.appendCheck(valueType, valueSrc, errDelegate.derive((details, desc) -> CodeBlock.builder()
+                .add("throw new $T(", IllegalArgumentException.class)
+                .add("$S", '"' + desc + '[')
+                .add(" + $L.key() + ", cursorSrc)
+                .add("$S", "]\"")
+                .add(" + ")
+                .add(details)
+                .add(")")
+                .build()), checksBuilder);
+
+        ctx.defaultSrc = defaultSrcBackup;
+        ctx.nestingFactor--;
+
+        if (!checksBuilder.isEmpty()) {
+            codeBuilder
+                    .beginControlFlow("if ($L != null)", src)
+                    .addStatement("$T $L = $L.cursor()", getCursorType(TypeName.get(type)), cursorSrc, src)
+                    .beginControlFlow("while ($L.advance())", cursorSrc)
+                    .addStatement("$T $L = $L.value()", valueType, valueSrc, cursorSrc)
+                    .add(checksBuilder.build())
+                    .addStatement("$L.setValue($L)", cursorSrc, valueSrc)
+                    .endControlFlow()
+                    .endControlFlow();
+        }
+
+        return true;
+    }
+
+    private static @NotNull TypeName getCursorType(@NotNull TypeName mapTypeName) {
+        ParameterizedTypeName mapType = (ParameterizedTypeName) mapTypeName;
+        return ParameterizedTypeName.get(mapType.rawType.nestedClass("Cursor"), mapType.typeArguments.get(0));
+    }
+}
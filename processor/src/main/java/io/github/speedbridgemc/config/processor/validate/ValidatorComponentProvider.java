@@ -4,21 +4,20 @@ import com.google.auto.service.AutoService;
 import com.google.common.collect.ImmutableList;
 import com.squareup.javapoet.*;
 import io.github.speedbridgemc.config.LogLevel;
-import io.github.speedbridgemc.config.processor.api.BaseComponentProvider;
-import io.github.speedbridgemc.config.processor.api.ComponentContext;
-import io.github.speedbridgemc.config.processor.api.ComponentProvider;
+import io.github.speedbridgemc.config.processor.api.*;
+import io.github.speedbridgemc.config.processor.serialize.SerializerComponentProvider;
 import io.github.speedbridgemc.config.processor.validate.api.ErrorDelegate;
 import io.github.speedbridgemc.config.processor.validate.api.ValidatorContext;
-import io.github.speedbridgemc.config.serialize.PathUtils;
+import io.github.speedbridgemc.config.serialize.ConfigBackups;
+import io.github.speedbridgemc.config.storage.ConfigStorage;
 import org.jetbrains.annotations.NotNull;
 
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
+import javax.tools.Diagnostic;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
 import java.util.HashMap;
 
 @AutoService(ComponentProvider.class)
@@ -63,25 +62,42 @@ public final class ValidatorComponentProvider extends BaseComponentProvider {
         checkMethodBuilder.addCode(codeBuilder.build());
         classBuilder.addMethod(checkMethodBuilder.build());
 
+        // handlers with their own storage don't have a config file to move out of the way
+        boolean customStorage = ctx.hasMethod(MethodSignature.ofDefault(ClassName.get(ConfigStorage.class), "storage"));
+        CodeBlock path = customStorage ? CodeBlock.of("storage.getLocation($S)", name) : CodeBlock.of("path");
         CodeBlock.Builder loadCodeBuilder = CodeBlock.builder()
                 .beginControlFlow("try")
                 .addStatement("validate(config)")
                 .nextControlFlow("catch ($T e)", IllegalArgumentException.class)
-                .addStatement("log($T.ERROR, $S + path + $S, e)",
-                        LogLevel.class, "Config file at \"", "\" is invalid!");
+                .addStatement("log($T.ERROR, $S + $L + $S, e)",
+                        LogLevel.class, "Config file at \"", path, "\" is invalid!");
         boolean crashOnFail = options.getOrDefault("crashOnFail", false);
         if (options.getOrDefault("backupOnFail", true)) {
+            // backups made here and by the serializer end up in the same place, so they share its limit
+            int maxBackups = SerializerComponentProvider.getMaxBackups(ctx);
+            if (ParamUtils.allOrNothing(ctx.params, "max_backups") != null)
+                messager.printMessage(Diagnostic.Kind.ERROR,
+                        "Validator: Parameter \"max_backups\" must be set on the serializer component instead", type);
             loadCodeBuilder
-                    .addStatement("$T backupPath = $T.resolveTimestampedSibling(path, $S)",
-                            Path.class, PathUtils.class, "BACKUP")
-                    .addStatement("boolean backupSuccess = true");
+                    .addStatement("$T backupPath = null", customStorage ? String.class : Path.class)
+                    .addStatement("boolean backupSuccess = true")
+                    .beginControlFlow("try");
+            if (customStorage)
+                loadCodeBuilder
+                        .addStatement("byte[] backupContents = storage.read($S)", name)
+                        .beginControlFlow("if (backupContents != null)")
+                        .addStatement("backupPath = storage.getLocation($T.backUp(storage, $S, backupContents, $L))",
+                                ConfigBackups.class, name, maxBackups)
+                        .nextControlFlow("else")
+                        // nothing to back up
+                        .addStatement("backupSuccess = false")
+                        .endControlFlow();
+            else
+                loadCodeBuilder.addStatement("backupPath = $T.backUp(path, $L)", ConfigBackups.class, maxBackups);
             loadCodeBuilder
-                    .beginControlFlow("try")
-                    .addStatement("$T.move(path, backupPath, $T.REPLACE_EXISTING)",
-                            Files.class, StandardCopyOption.class)
                     .nextControlFlow("catch ($T be)", IOException.class)
-                    .addStatement("log($T.ERROR, $S + backupPath + $S, be)",
-                            LogLevel.class, "Failed to back up config file to \"", "\"!")
+                    .addStatement("log($T.ERROR, $S + $L + $S, be)",
+                            LogLevel.class, "Failed to back up config file \"", path, "\"!")
                     .addStatement("backupSuccess = false")
                     .endControlFlow();
             if (crashOnFail) {
@@ -89,12 +105,12 @@ public final class ValidatorComponentProvider extends BaseComponentProvider {
                         .beginControlFlow("if (backupSuccess)")
                         .addStatement("reset()")
                         .addStatement("save()")
-                        .addStatement("throw new $T($S + path + $S + backupPath + $S, e)",
-                                RuntimeException.class, "Config file \"",
+                        .addStatement("throw new $T($S + $L + $S + backupPath + $S, e)",
+                                RuntimeException.class, "Config file \"", path,
                                 "\" is invalid! File has been replaced with default values, with the original backed up at \"", "\"")
                         .nextControlFlow("else")
-                        .addStatement("throw new $T($S + path + $S, e)",
-                                RuntimeException.class, "Config file \"", "\" is invalid!")
+                        .addStatement("throw new $T($S + $L + $S, e)",
+                                RuntimeException.class, "Config file \"", path, "\" is invalid!")
                         .endControlFlow();
             } else
                 loadCodeBuilder
@@ -106,8 +122,8 @@ public final class ValidatorComponentProvider extends BaseComponentProvider {
                                 LogLevel.class, "Resetting to default config values")
                         .addStatement("reset()");
         } else if (crashOnFail) {
-            loadCodeBuilder.addStatement("throw new $T($S + path + $S, e)",
-                    RuntimeException.class, "Config file \"", "\" is invalid!");
+            loadCodeBuilder.addStatement("throw new $T($S + $L + $S, e)",
+                    RuntimeException.class, "Config file \"", path, "\" is invalid!");
         }
         loadCodeBuilder.endControlFlow();
         ctx.loadMethodBuilder.addCode(loadCodeBuilder.build());
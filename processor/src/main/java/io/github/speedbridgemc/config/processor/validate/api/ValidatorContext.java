@@ -49,6 +49,9 @@ public final class ValidatorContext {
             delegates.add(delegate);
         delegates.add(new ArrayValidatorDelegate());
         delegates.add(new ListValidatorDelegate());
+        delegates.add(new PrimitiveListValidatorDelegate());
+        delegates.add(new PrimitiveMapValidatorDelegate());
+        delegates.add(new LazyValidatorDelegate());
         delegates.add(new NestedValidatorDelegate());
         delegates.add(new ObjectValidatorDelegate());
     }
@@ -0,0 +1,18 @@
+package io.github.speedbridgemc.config;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A deep-frozen, immutable copy of a configuration POJO.<p>
+ * Implementations are generated by the {@code speedbridge-config:snapshot} component. Since they can't change,
+ * they can be freely shared between threads, with no locking or defensive copying needed.
+ * @param <T> type of configuration
+ */
+public interface ConfigSnapshot<T> {
+    /**
+     * Creates a new <em>mutable</em> copy of the configuration this snapshot was frozen from.<p>
+     * Changes made to the returned configuration do not affect this snapshot.
+     * @return thawed configuration
+     */
+    @NotNull T thaw();
+}
@@ -0,0 +1,469 @@
+package io.github.speedbridgemc.config;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * A map whose entries are stored in a directory, one file per entry.<p>
+ * Entries are only read when they're first accessed, and at most {@code cacheSize} unchanged entries are kept in
+ * memory, least recently used ones being dropped first. Saving only writes entries that were {@linkplain #put put}
+ * since the map was last saved, and deletes removed ones. Values changed in place must be put back to be saved.<p>
+ * Maps that aren't bound to a directory yet (like ones created by config constructors) keep all of their entries
+ * in memory, and are bound to a directory the first time they're saved.<p>
+ * Iterating over the map, comparing it or hashing it reads every entry. Maps are thread-safe.
+ * @param <V> type of value
+ */
+public final class DirectoryMap<V> extends AbstractMap<String, V> {
+    /**
+     * Converts values to and from the contents of entry files.
+     * @param <V> type of value
+     */
+    public interface Codec<V> {
+        @Nullable V read(byte @NotNull [] raw) throws IOException;
+        byte @NotNull [] write(@Nullable V value) throws IOException;
+    }
+
+    public static final int DEFAULT_CACHE_SIZE = 1024;
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private final int cacheSize;
+    // every key, whether its entry is loaded or not
+    private final @NotNull HashSet<String> keys = new HashSet<>();
+    // loaded entries, least recently used first
+    private final @NotNull LinkedHashMap<String, V> cache = new LinkedHashMap<>(16, 0.75f, true);
+    // changed since the last save - never dropped from the cache
+    private final @NotNull HashSet<String> dirty = new HashSet<>();
+    private final @NotNull HashSet<String> removed = new HashSet<>();
+    private @Nullable Path dir;
+    private @NotNull String extension = "";
+    private @Nullable Codec<V> codec;
+    private @Nullable EntrySet entrySet;
+    // bumped by every put and removal, so copies can tell if they're still up to date without reading entries
+    private long modCount;
+    private @Nullable DirectoryMap<V> copiedFrom;
+    private long copiedModCount;
+
+    /**
+     * Creates an empty map that isn't bound to a directory yet.
+     */
+    public DirectoryMap() {
+        this(DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Creates an empty map that isn't bound to a directory yet.
+     * @param cacheSize maximum number of unchanged entries to keep in memory
+     */
+    public DirectoryMap(int cacheSize) {
+        if (cacheSize < 0)
+            throw new IllegalArgumentException("cacheSize < 0");
+        this.cacheSize = cacheSize;
+    }
+
+    /**
+     * Opens the map stored next to a config file. Only the directory's listing is read.
+     * @param configPath path of config file
+     * @param name name of map, usually the field's serialized name
+     * @param codec codec for entries
+     * @param cacheSize maximum number of unchanged entries to keep in memory
+     * @param <V> type of value
+     * @return map
+     * @throws IOException if the directory can't be listed
+     */
+    public static <V> @NotNull DirectoryMap<V> open(@NotNull Path configPath, @NotNull String name,
+                                                    @NotNull Codec<V> codec, int cacheSize) throws IOException {
+        DirectoryMap<V> map = new DirectoryMap<>(cacheSize);
+        map.bind(resolveDirectory(configPath, name), getExtension(configPath), codec);
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(map.dir)) {
+            for (Path file : stream) {
+                String key = map.getKey(file.getFileName().toString());
+                if (key != null)
+                    map.keys.add(key);
+            }
+        } catch (NoSuchFileException ignored) {
+            // nothing's been saved yet
+        }
+        return map;
+    }
+
+    /**
+     * Saves a map next to a config file.<p>
+     * Maps that are already bound to this directory only write their changes. Anything else gets written in full,
+     * replacing whatever was in the directory, and {@code DirectoryMap}s are then bound to it.
+     * @param map map to save
+     * @param configPath path of config file
+     * @param name name of map, usually the field's serialized name
+     * @param codec codec for entries
+     * @param <V> type of value
+     * @throws IOException if an entry couldn't be written or deleted
+     */
+    @SuppressWarnings("unchecked")
+    public static <V> void save(@NotNull Map<String, ? extends V> map, @NotNull Path configPath, @NotNull String name,
+                                @NotNull Codec<V> codec) throws IOException {
+        Path dir = resolveDirectory(configPath, name);
+        String extension = getExtension(configPath);
+        if (map instanceof DirectoryMap) {
+            ((DirectoryMap<V>) map).save(dir, extension, codec);
+            return;
+        }
+        Files.createDirectories(dir);
+        for (Map.Entry<String, ? extends V> entry : map.entrySet())
+            writeEntry(dir.resolve(getFileName(entry.getKey(), extension)), codec.write(entry.getValue()));
+        deleteOthers(dir, extension, map.keySet());
+    }
+
+    private synchronized void save(@NotNull Path dir, @NotNull String extension, @NotNull Codec<V> codec) throws IOException {
+        Files.createDirectories(dir);
+        if (!dir.equals(this.dir) || !extension.equals(this.extension) || codec != this.codec) {
+            // not saved here before, so everything has to be written
+            for (String key : keys) {
+                V value = cache.containsKey(key) ? cache.get(key) : read(key);
+                writeEntry(dir.resolve(getFileName(key, extension)), codec.write(value));
+            }
+            deleteOthers(dir, extension, keys);
+            bind(dir, extension, codec);
+        } else {
+            for (String key : dirty)
+                writeEntry(dir.resolve(getFileName(key, extension)), codec.write(cache.get(key)));
+            for (String key : removed)
+                Files.deleteIfExists(dir.resolve(getFileName(key, extension)));
+        }
+        dirty.clear();
+        removed.clear();
+        evict();
+    }
+
+    /**
+     * Creates a copy of this map that's bound to the same directory.<p>
+     * Only keys and entries that were put since the map was last saved are copied. Other entries are read from the
+     * directory when they're first accessed, so they reflect whatever was last saved there, not what this map
+     * contained when it was copied.
+     * @param copier creates a copy of a value
+     * @return copy of map
+     * @see #isUnchangedCopyOf(DirectoryMap)
+     */
+    public synchronized @NotNull DirectoryMap<V> copy(@NotNull Function<? super V, ? extends V> copier) {
+        DirectoryMap<V> copy = new DirectoryMap<>(cacheSize);
+        if (dir != null && codec != null)
+            copy.bind(dir, extension, codec);
+        copy.keys.addAll(keys);
+        copy.removed.addAll(removed);
+        // unbound maps keep every entry in memory, so every entry counts as changed
+        for (Map.Entry<String, V> entry : cache.entrySet()) {
+            if (dir != null && !dirty.contains(entry.getKey()))
+                continue;
+            copy.cache.put(entry.getKey(), copier.apply(entry.getValue()));
+            copy.dirty.add(entry.getKey());
+        }
+        copy.copiedFrom = this;
+        copy.copiedModCount = modCount;
+        return copy;
+    }
+
+    /**
+     * Checks if this map was {@linkplain #copy copied} from another map, and neither map had entries put or removed
+     * since. No entries are read.<p>
+     * Values changed in place don't count as changes, same as when saving.
+     * @param other other map
+     * @return {@code true} if both maps still have the same entries, {@code false} if they may not
+     */
+    public boolean isUnchangedCopyOf(@NotNull DirectoryMap<?> other) {
+        long copiedModCount;
+        synchronized (this) {
+            if (copiedFrom != other || modCount != 0)
+                return false;
+            copiedModCount = this.copiedModCount;
+        }
+        synchronized (other) {
+            return other.modCount == copiedModCount;
+        }
+    }
+
+    private void bind(@NotNull Path dir, @NotNull String extension, @NotNull Codec<V> codec) {
+        this.dir = dir;
+        this.extension = extension;
+        this.codec = codec;
+    }
+
+    /**
+     * Checks if an entry's value is currently in memory.
+     * @param key key
+     * @return {@code true} if loaded or changed, {@code false} otherwise
+     */
+    public synchronized boolean isLoaded(@NotNull String key) {
+        return cache.containsKey(key);
+    }
+
+    /**
+     * Gets the value of an entry, reading it first if needed.
+     * @param key key
+     * @return value, or {@code null} if there's no such entry
+     * @throws UncheckedIOException if the entry couldn't be read
+     */
+    @Override
+    public synchronized V get(Object key) {
+        V value = cache.get(key);
+        if (value != null || cache.containsKey(key) || !keys.contains(key))
+            return value;
+        String k = (String) key;
+        value = read(k);
+        cache.put(k, value);
+        evict();
+        return value;
+    }
+
+    @Override
+    public synchronized boolean containsKey(Object key) {
+        return keys.contains(key);
+    }
+
+    @Override
+    public synchronized int size() {
+        return keys.size();
+    }
+
+    /**
+     * {@inheritDoc}<p>
+     * Unlike other maps, this only returns the previous value if it's in memory - it's never read just to be returned.
+     * This also means entries that can't be read can still be replaced.
+     * @return previous value if it was in memory, {@code null} otherwise
+     */
+    @Override
+    public synchronized V put(@NotNull String key, V value) {
+        V prev = cache.get(key);
+        keys.add(key);
+        cache.put(key, value);
+        dirty.add(key);
+        removed.remove(key);
+        modCount++;
+        return prev;
+    }
+
+    /**
+     * {@inheritDoc}<p>
+     * Unlike other maps, this only returns the previous value if it's in memory - it's never read just to be returned.
+     * This also means entries that can't be read can still be removed.
+     * @return previous value if it was in memory, {@code null} otherwise
+     */
+    @Override
+    public synchronized V remove(Object key) {
+        if (!keys.contains(key))
+            return null;
+        String k = (String) key;
+        keys.remove(k);
+        V prev = cache.remove(k);
+        dirty.remove(k);
+        if (dir != null)
+            removed.add(k);
+        modCount++;
+        return prev;
+    }
+
+    @Override
+    public synchronized void clear() {
+        if (dir != null)
+            removed.addAll(keys);
+        keys.clear();
+        cache.clear();
+        dirty.clear();
+        modCount++;
+    }
+
+    @Override
+    public @NotNull Set<Map.Entry<String, V>> entrySet() {
+        EntrySet entrySet = this.entrySet;
+        if (entrySet == null)
+            this.entrySet = entrySet = new EntrySet();
+        return entrySet;
+    }
+
+    private @Nullable V read(@NotNull String key) {
+        assert dir != null && codec != null;
+        try {
+            return codec.read(Files.readAllBytes(dir.resolve(getFileName(key, extension))));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read entry \"" + key + "\"", e);
+        }
+    }
+
+    private void evict() {
+        if (dir == null || cache.size() <= cacheSize)
+            return;
+        Iterator<String> it = cache.keySet().iterator();
+        while (cache.size() > cacheSize && it.hasNext()) {
+            if (!dirty.contains(it.next()))
+                it.remove();
+        }
+    }
+
+    private static void writeEntry(@NotNull Path file, byte @NotNull [] contents) throws IOException {
+        // don't leave a half-written entry behind if we're interrupted
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(tempFile, contents);
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void deleteOthers(@NotNull Path dir, @NotNull String extension, @NotNull Set<String> keys) throws IOException {
+        ArrayList<Path> toDelete = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path file : stream) {
+                String key = getKey(file.getFileName().toString(), extension);
+                if (key != null && !keys.contains(key))
+                    toDelete.add(file);
+            }
+        }
+        for (Path file : toDelete)
+            Files.deleteIfExists(file);
+    }
+
+    private static @NotNull Path resolveDirectory(@NotNull Path configPath, @NotNull String name) {
+        String fileName = configPath.getFileName().toString();
+        return configPath.resolveSibling(fileName.substring(0, fileName.length() - getExtension(configPath).length()) + "-" + name);
+    }
+
+    private static @NotNull String getExtension(@NotNull Path configPath) {
+        String fileName = configPath.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        return dot > 0 ? fileName.substring(dot) : "";
+    }
+
+    private @Nullable String getKey(@NotNull String fileName) {
+        return getKey(fileName, extension);
+    }
+
+    private static @Nullable String getKey(@NotNull String fileName, @NotNull String extension) {
+        if (!fileName.endsWith(extension))
+            return null;
+        String encoded = fileName.substring(0, fileName.length() - extension.length());
+        // skips temp files and anything else that we didn't write
+        if (encoded.indexOf('.') >= 0)
+            return null;
+        ByteArrayOutputStream out = new ByteArrayOutputStream(encoded.length());
+        for (int i = 0, length = encoded.length(); i < length; i++) {
+            char c = encoded.charAt(i);
+            if (c == '%') {
+                if (i + 2 >= length)
+                    return null;
+                int hi = Character.digit(encoded.charAt(i + 1), 16), lo = Character.digit(encoded.charAt(i + 2), 16);
+                if (hi < 0 || lo < 0)
+                    return null;
+                out.write(hi << 4 | lo);
+                i += 2;
+            } else if (c < 0x80)
+                out.write(c);
+            else
+                return null;
+        }
+        String key = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        return encoded.equals(encodeKey(key)) ? key : null;
+    }
+
+    private static @NotNull String getFileName(@NotNull String key, @NotNull String extension) {
+        return encodeKey(key) + extension;
+    }
+
+    private static @NotNull String encodeKey(@NotNull String key) {
+        // keep names readable, but safe on every file system
+        StringBuilder sb = new StringBuilder(key.length());
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            if ((b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') || b == '_' || b == '-')
+                sb.append((char) b);
+            else
+                sb.append('%').append(HEX_DIGITS[(b >> 4) & 0xF]).append(HEX_DIGITS[b & 0xF]);
+        }
+        return sb.toString();
+    }
+
+    private final class EntrySet extends AbstractSet<Map.Entry<String, V>> {
+        @Override
+        public @NotNull Iterator<Map.Entry<String, V>> iterator() {
+            final Iterator<String> it;
+            synchronized (DirectoryMap.this) {
+                it = new ArrayList<>(keys).iterator();
+            }
+            return new Iterator<Map.Entry<String, V>>() {
+                private @Nullable String last;
+
+                @Override
+                public boolean hasNext() {
+                    return it.hasNext();
+                }
+
+                @Override
+                public Map.Entry<String, V> next() {
+                    String key = it.next();
+                    last = key;
+                    return new Entry(key);
+                }
+
+                @Override
+                public void remove() {
+                    if (last == null)
+                        throw new IllegalStateException();
+                    DirectoryMap.this.remove(last);
+                    last = null;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return DirectoryMap.this.size();
+        }
+
+        @Override
+        public void clear() {
+            DirectoryMap.this.clear();
+        }
+    }
+
+    // values are read when they're asked for, so iterating over keys doesn't read every entry
+    private final class Entry implements Map.Entry<String, V> {
+        private final @NotNull String key;
+
+        private Entry(@NotNull String key) {
+            this.key = key;
+        }
+
+        @Override
+        public String getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return get(key);
+        }
+
+        @Override
+        public V setValue(V value) {
+            return put(key, value);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?, ?> that = (Map.Entry<?, ?>) o;
+            return key.equals(that.getKey()) && Objects.equals(getValue(), that.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + getValue();
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package io.github.speedbridgemc.config;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * A config value that's only deserialized when it's first accessed.<p>
+ * Declaring a field as {@code LazySection<T>} instead of {@code T} makes generated serializers keep the field's
+ * serialized form around, instead of deserializing (and validating) it while loading the rest of the config. This
+ * makes loading configs with large, rarely used sections (like client-only settings on a server) cheaper. Sections
+ * that were never accessed are written back as-is when the config is saved.<p>
+ * If a section fails to deserialize or validate, {@link #get()} throws an {@link IllegalStateException}, and the
+ * section keeps its serialized form, so saving the config doesn't lose it.<p>
+ * Sections are thread-safe. Sections handed out by config snapshots are frozen, and throw
+ * {@link UnsupportedOperationException} when modified.
+ * @param <T> type of value
+ */
+public final class LazySection<T> {
+    /**
+     * Deserializes a section's value from its serialized form.
+     * @param <R> type of serialized form
+     * @param <T> type of value
+     */
+    @FunctionalInterface
+    public interface Decoder<R, T> {
+        @Nullable T decode(@NotNull R raw) throws IOException;
+    }
+
+    /**
+     * Validates a section's value.
+     * @param <T> type of value
+     */
+    @FunctionalInterface
+    public interface Validator<T> {
+        void validate(@Nullable T value) throws IllegalArgumentException;
+    }
+
+    private volatile boolean loaded;
+    private @Nullable T value;
+    // only set while the section isn't loaded
+    private @Nullable Object raw;
+    private @Nullable Decoder<Object, ? extends T> decoder;
+    private @Nullable Validator<? super T> validator;
+    private @Nullable Exception failure;
+    private boolean frozen;
+
+    private LazySection(@Nullable T value) {
+        this.value = value;
+        loaded = true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private LazySection(@NotNull Object raw, @NotNull Decoder<?, ? extends T> decoder) {
+        this.raw = raw;
+        this.decoder = (Decoder<Object, ? extends T>) decoder;
+    }
+
+    /**
+     * Creates a section that's already loaded.
+     * @param value value
+     * @param <T> type of value
+     * @return new section
+     */
+    public static <T> @NotNull LazySection<T> of(@Nullable T value) {
+        return new LazySection<>(value);
+    }
+
+    /**
+     * Creates a section that will be deserialized when it's first accessed.
+     * @param raw serialized form of value
+     * @param decoder decoder, which is also used to identify the serialized form's format
+     * @param <R> type of serialized form
+     * @param <T> type of value
+     * @return new section
+     */
+    public static <R, T> @NotNull LazySection<T> deferred(@NotNull R raw, @NotNull Decoder<R, ? extends T> decoder) {
+        return new LazySection<>(raw, decoder);
+    }
+
+    /**
+     * Gets the section's value, deserializing and validating it first if needed.
+     * @return value
+     * @throws IllegalStateException if the section couldn't be deserialized or is invalid
+     */
+    public @Nullable T get() {
+        if (loaded)
+            return value;
+        synchronized (this) {
+            if (!loaded)
+                load();
+            return value;
+        }
+    }
+
+    /**
+     * Replaces the section's value. The section's serialized form, if it has one, is discarded.
+     * @param value new value
+     */
+    public synchronized void set(@Nullable T value) {
+        checkMutable();
+        this.value = value;
+        raw = null;
+        decoder = null;
+        validator = null;
+        failure = null;
+        loaded = true;
+    }
+
+    /**
+     * Checks if the section has been deserialized yet.
+     * @return {@code true} if loaded, {@code false} otherwise
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Gets the section's serialized form, if it hasn't been loaded yet.
+     * @param decoder decoder the section must have been created with
+     * @param <R> type of serialized form
+     * @return serialized form, or {@code null} if the section is loaded or was created with a different decoder
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <R> @Nullable R getRaw(@NotNull Decoder<R, ?> decoder) {
+        if (loaded || this.decoder != decoder)
+            return null;
+        return (R) raw;
+    }
+
+    /**
+     * Validates the section's value. If the section isn't loaded yet, validation is deferred until it is.
+     * @param validator validator
+     * @throws IllegalArgumentException if the section is loaded and its value is invalid
+     */
+    public void validateWith(@NotNull Validator<? super T> validator) throws IllegalArgumentException {
+        synchronized (this) {
+            if (!loaded) {
+                this.validator = validator;
+                return;
+            }
+        }
+        validator.validate(value);
+    }
+
+    /**
+     * Creates a section with the result of applying a function to this section's value.<p>
+     * If this section isn't loaded yet, neither is the new one - it deserializes its own copy of the value, and then
+     * applies the function to it.
+     * @param function function to apply
+     * @param <U> type of new value
+     * @return new section
+     */
+    public <U> @NotNull LazySection<U> map(@NotNull Function<? super T, ? extends U> function) {
+        Object raw;
+        Decoder<Object, ? extends T> decoder;
+        Validator<? super T> validator;
+        synchronized (this) {
+            if (loaded)
+                return new LazySection<>(function.apply(value));
+            raw = this.raw;
+            decoder = this.decoder;
+            validator = this.validator;
+        }
+        assert raw != null && decoder != null;
+        Decoder<Object, U> mappedDecoder = r -> {
+            T value = decoder.decode(r);
+            if (validator != null)
+                validator.validate(value);
+            return function.apply(value);
+        };
+        return new LazySection<>(raw, mappedDecoder);
+    }
+
+    /**
+     * Creates a modifiable copy of this section.<p>
+     * If this section isn't loaded yet, neither is the copy - it shares this section's serialized form, and deserializes
+     * its own copy of the value once it's needed. Otherwise, the copy holds the result of applying a function to this
+     * section's value.
+     * @param copier creates a copy of a value
+     * @return new section
+     */
+    public @NotNull LazySection<T> copy(@NotNull Function<? super T, ? extends T> copier) {
+        T value;
+        synchronized (this) {
+            if (!loaded) {
+                assert raw != null && decoder != null;
+                LazySection<T> copy = new LazySection<>(raw, decoder);
+                copy.validator = validator;
+                copy.failure = failure;
+                return copy;
+            }
+            value = this.value;
+        }
+        return new LazySection<>(copier.apply(value));
+    }
+
+    /**
+     * Checks if this section and another one both aren't loaded yet, and have identical serialized forms in the same
+     * format. Neither section is deserialized.
+     * @param other other section
+     * @return {@code true} if both sections have the same serialized form, {@code false} otherwise
+     */
+    public boolean hasSameRaw(@NotNull LazySection<?> other) {
+        Object rawA, rawB;
+        Decoder<?, ?> decoderA, decoderB;
+        synchronized (this) {
+            rawA = raw;
+            decoderA = decoder;
+        }
+        synchronized (other) {
+            rawB = other.raw;
+            decoderB = other.decoder;
+        }
+        return decoderA != null && decoderA == decoderB
+                && (rawA instanceof byte[] && rawB instanceof byte[] ? Arrays.equals((byte[]) rawA, (byte[]) rawB) : Objects.equals(rawA, rawB));
+    }
+
+    /**
+     * Freezes this section, making it unmodifiable.
+     * @return this section
+     */
+    public @NotNull LazySection<T> freeze() {
+        frozen = true;
+        return this;
+    }
+
+    private void load() {
+        if (failure != null)
+            throw new IllegalStateException("Failed to load section", failure);
+        assert raw != null && decoder != null;
+        T value;
+        try {
+            value = decoder.decode(raw);
+            if (validator != null)
+                validator.validate(value);
+        } catch (IOException | IllegalArgumentException e) {
+            failure = e;
+            throw new IllegalStateException("Failed to load section", e);
+        }
+        this.value = value;
+        raw = null;
+        decoder = null;
+        validator = null;
+        loaded = true;
+    }
+
+    private void checkMutable() {
+        if (frozen)
+            throw new UnsupportedOperationException("Section is frozen");
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        LazySection<?> that = (LazySection<?>) o;
+        // identical serialized forms in the same format can skip deserializing, anything else has to compare values
+        if (hasSameRaw(that))
+            return true;
+        return Objects.equals(get(), that.get());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(get());
+    }
+
+    @Override
+    public String toString() {
+        return loaded ? "LazySection{" + value + "}" : "LazySection{<not loaded>}";
+    }
+}
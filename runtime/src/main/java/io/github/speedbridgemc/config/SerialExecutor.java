@@ -0,0 +1,65 @@
+package io.github.speedbridgemc.config;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs tasks on another executor one at a time, in the order they were submitted.<p>
+ * Generated handlers use this to deliver change notifications on their listener executor, so that listeners see
+ * changes in the order they happened even if the executor has several threads.
+ * At most one task is handed to the backing executor at a time; it runs every queued task before finishing.
+ */
+public final class SerialExecutor {
+    // guards every field below
+    private final Object lock = new Object();
+    private final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+    private boolean draining;
+
+    /**
+     * Queues a task, submitting a drain task to the executor if one isn't already running.<p>
+     * Tasks should catch their own exceptions - one that escapes is reported to the running thread's
+     * uncaught exception handler, and the remaining tasks still run.
+     * @param executor executor to run tasks on
+     * @param task task to run
+     * @throws RejectedExecutionException if the executor rejected the drain task. Every queued task is discarded.
+     */
+    public void execute(@NotNull Executor executor, @NotNull Runnable task) {
+        synchronized (lock) {
+            queue.add(task);
+            if (draining)
+                return;
+            draining = true;
+        }
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            synchronized (lock) {
+                queue.clear();
+                draining = false;
+            }
+            throw e;
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            Runnable task;
+            synchronized (lock) {
+                task = queue.poll();
+                if (task == null) {
+                    draining = false;
+                    return;
+                }
+            }
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                Thread current = Thread.currentThread();
+                current.getUncaughtExceptionHandler().uncaughtException(current, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package io.github.speedbridgemc.config.collect;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of {@code float}s, backed by a {@code float[]}.<p>
+ * Unlike {@code List<Float>}, elements are never boxed. Lists handed out by config snapshots are frozen, and throw
+ * {@link UnsupportedOperationException} when modified.
+ */
+public final class FloatList {
+    private static final float[] EMPTY = new float[0];
+
+    private float[] elements;
+    private int size;
+    private boolean frozen;
+
+    public FloatList() {
+        elements = EMPTY;
+    }
+
+    /**
+     * Creates an empty list.
+     * @param initialCapacity number of elements the list can hold before having to grow
+     */
+    public FloatList(int initialCapacity) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+        elements = initialCapacity == 0 ? EMPTY : new float[initialCapacity];
+    }
+
+    private FloatList(float @NotNull [] elements, int size) {
+        this.elements = elements;
+        this.size = size;
+    }
+
+    /**
+     * Creates a list containing the specified elements.
+     * @param elements elements
+     * @return new list
+     */
+    public static @NotNull FloatList of(float @NotNull ... elements) {
+        return new FloatList(elements.clone(), elements.length);
+    }
+
+    /**
+     * Creates a list that takes ownership of the specified array, without copying it.<p>
+     * The array must not be modified afterwards.
+     * @param elements elements
+     * @return new list
+     */
+    public static @NotNull FloatList wrap(float @NotNull [] elements) {
+        return new FloatList(elements, elements.length);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public float get(int index) {
+        checkIndex(index);
+        return elements[index];
+    }
+
+    public float set(int index, float value) {
+        checkMutable();
+        checkIndex(index);
+        float old = elements[index];
+        elements[index] = value;
+        return old;
+    }
+
+    public void add(float value) {
+        checkMutable();
+        if (size == elements.length)
+            grow(size + 1);
+        elements[size++] = value;
+    }
+
+    public void add(int index, float value) {
+        checkMutable();
+        if (index < 0 || index > size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        if (size == elements.length)
+            grow(size + 1);
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = value;
+        size++;
+    }
+
+    public void addAll(@NotNull FloatList other) {
+        checkMutable();
+        int otherSize = other.size;
+        if (size + otherSize > elements.length)
+            grow(size + otherSize);
+        System.arraycopy(other.elements, 0, elements, size, otherSize);
+        size += otherSize;
+    }
+
+    public float removeAt(int index) {
+        checkMutable();
+        checkIndex(index);
+        float old = elements[index];
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        size--;
+        return old;
+    }
+
+    public int indexOf(float value) {
+        for (int i = 0; i < size; i++) {
+            if (Float.floatToIntBits(elements[i]) == Float.floatToIntBits(value))
+                return i;
+        }
+        return -1;
+    }
+
+    public boolean contains(float value) {
+        return indexOf(value) >= 0;
+    }
+
+    public void clear() {
+        checkMutable();
+        size = 0;
+    }
+
+    /**
+     * Makes sure the list can hold the specified number of elements without having to grow.
+     * @param minCapacity minimum capacity
+     */
+    public void ensureCapacity(int minCapacity) {
+        checkMutable();
+        if (minCapacity > elements.length)
+            grow(minCapacity);
+    }
+
+    public float @NotNull [] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+    /**
+     * Creates a modifiable copy of this list.
+     * @return copy of list
+     */
+    public @NotNull FloatList copy() {
+        return new FloatList(toArray(), size);
+    }
+
+    /**
+     * Creates an unmodifiable copy of this list, or returns this list if it's already unmodifiable.
+     * @return frozen copy of list
+     */
+    public @NotNull FloatList frozenCopy() {
+        if (frozen)
+            return this;
+        FloatList copy = copy();
+        copy.frozen = true;
+        return copy;
+    }
+
+    /**
+     * Makes this list unmodifiable. Used to freeze freshly built lists without copying them again.
+     * @return this list
+     */
+    public @NotNull FloatList freeze() {
+        frozen = true;
+        return this;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof FloatList))
+            return false;
+        FloatList that = (FloatList) o;
+        if (size != that.size)
+            return false;
+        for (int i = 0; i < size; i++) {
+            if (Float.floatToIntBits(elements[i]) != Float.floatToIntBits(that.elements[i]))
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (int i = 0; i < size; i++)
+            result = 31 * result + Float.hashCode(elements[i]);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        if (size == 0)
+            return "[]";
+        StringBuilder sb = new StringBuilder().append('[').append(elements[0]);
+        for (int i = 1; i < size; i++)
+            sb.append(", ").append(elements[i]);
+        return sb.append(']').toString();
+    }
+
+    private void grow(int minCapacity) {
+        int newCapacity = elements.length + (elements.length >> 1);
+        if (newCapacity < minCapacity)
+            newCapacity = Math.max(minCapacity, 10);
+        if (newCapacity < 0)
+            throw new OutOfMemoryError("List is too large");
+        elements = Arrays.copyOf(elements, newCapacity);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+
+    private void checkMutable() {
+        if (frozen)
+            throw new UnsupportedOperationException("List is frozen");
+    }
+}
@@ -0,0 +1,230 @@
+package io.github.speedbridgemc.config.collect;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of {@code int}s, backed by an {@code int[]}.<p>
+ * Unlike {@code List<Integer>}, elements are never boxed. Lists handed out by config snapshots are frozen, and throw
+ * {@link UnsupportedOperationException} when modified.
+ */
+public final class IntList {
+    private static final int[] EMPTY = new int[0];
+
+    private int[] elements;
+    private int size;
+    private boolean frozen;
+
+    public IntList() {
+        elements = EMPTY;
+    }
+
+    /**
+     * Creates an empty list.
+     * @param initialCapacity number of elements the list can hold before having to grow
+     */
+    public IntList(int initialCapacity) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+        elements = initialCapacity == 0 ? EMPTY : new int[initialCapacity];
+    }
+
+    private IntList(int @NotNull [] elements, int size) {
+        this.elements = elements;
+        this.size = size;
+    }
+
+    /**
+     * Creates a list containing the specified elements.
+     * @param elements elements
+     * @return new list
+     */
+    public static @NotNull IntList of(int @NotNull ... elements) {
+        return new IntList(elements.clone(), elements.length);
+    }
+
+    /**
+     * Creates a list that takes ownership of the specified array, without copying it.<p>
+     * The array must not be modified afterwards.
+     * @param elements elements
+     * @return new list
+     */
+    public static @NotNull IntList wrap(int @NotNull [] elements) {
+        return new IntList(elements, elements.length);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int get(int index) {
+        checkIndex(index);
+        return elements[index];
+    }
+
+    public int set(int index, int value) {
+        checkMutable();
+        checkIndex(index);
+        int old = elements[index];
+        elements[index] = value;
+        return old;
+    }
+
+    public void add(int value) {
+        checkMutable();
+        if (size == elements.length)
+            grow(size + 1);
+        elements[size++] = value;
+    }
+
+    public void add(int index, int value) {
+        checkMutable();
+        if (index < 0 || index > size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        if (size == elements.length)
+            grow(size + 1);
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = value;
+        size++;
+    }
+
+    public void addAll(@NotNull IntList other) {
+        checkMutable();
+        int otherSize = other.size;
+        if (size + otherSize > elements.length)
+            grow(size + otherSize);
+        System.arraycopy(other.elements, 0, elements, size, otherSize);
+        size += otherSize;
+    }
+
+    public int removeAt(int index) {
+        checkMutable();
+        checkIndex(index);
+        int old = elements[index];
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        size--;
+        return old;
+    }
+
+    public int indexOf(int value) {
+        for (int i = 0; i < size; i++) {
+            if (elements[i] == value)
+                return i;
+        }
+        return -1;
+    }
+
+    public boolean contains(int value) {
+        return indexOf(value) >= 0;
+    }
+
+    public void clear() {
+        checkMutable();
+        size = 0;
+    }
+
+    /**
+     * Makes sure the list can hold the specified number of elements without having to grow.
+     * @param minCapacity minimum capacity
+     */
+    public void ensureCapacity(int minCapacity) {
+        checkMutable();
+        if (minCapacity > elements.length)
+            grow(minCapacity);
+    }
+
+    public int @NotNull [] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+    /**
+     * Creates a modifiable copy of this list.
+     * @return copy of list
+     */
+    public @NotNull IntList copy() {
+        return new IntList(toArray(), size);
+    }
+
+    /**
+     * Creates an unmodifiable copy of this list, or returns this list if it's already unmodifiable.
+     * @return frozen copy of list
+     */
+    public @NotNull IntList frozenCopy() {
+        if (frozen)
+            return this;
+        IntList copy = copy();
+        copy.frozen = true;
+        return copy;
+    }
+
+    /**
+     * Makes this list unmodifiable. Used to freeze freshly built lists without copying them again.
+     * @return this list
+     */
+    public @NotNull IntList freeze() {
+        frozen = true;
+        return this;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof IntList))
+            return false;
+        IntList that = (IntList) o;
+        if (size != that.size)
+            return false;
+        for (int i = 0; i < size; i++) {
+            if (elements[i] != that.elements[i])
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (int i = 0; i < size; i++)
+            result = 31 * result + Integer.hashCode(elements[i]);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        if (size == 0)
+            return "[]";
+        StringBuilder sb = new StringBuilder().append('[').append(elements[0]);
+        for (int i = 1; i < size; i++)
+            sb.append(", ").append(elements[i]);
+        return sb.append(']').toString();
+    }
+
+    private void grow(int minCapacity) {
+        int newCapacity = elements.length + (elements.length >> 1);
+        if (newCapacity < minCapacity)
+            newCapacity = Math.max(minCapacity, 10);
+        if (newCapacity < 0)
+            throw new OutOfMemoryError("List is too large");
+        elements = Arrays.copyOf(elements, newCapacity);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+
+    private void checkMutable() {
+        if (frozen)
+            throw new UnsupportedOperationException("List is frozen");
+    }
+}
@@ -0,0 +1,392 @@
+package io.github.speedbridgemc.config.collect;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * A hash map with {@code long} keys, using open addressing with linear probing.<p>
+ * Unlike {@code Map<Long, V>}, keys are never boxed, and there are no per-entry objects. Entries are iterated
+ * using a {@linkplain #cursor() cursor}. Maps handed out by config snapshots are frozen, and throw
+ * {@link UnsupportedOperationException} when modified.
+ * @param <V> value type
+ */
+public final class LongObjectMap<V> {
+    private static final int MIN_CAPACITY = 4;
+
+    // a key of 0 marks a free slot, so the entry with key 0 (if any) is kept outside of the table
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+    private int maxFill;
+    private boolean hasZeroKey;
+    private @Nullable Object zeroValue;
+    private boolean frozen;
+    private int modCount;
+
+    public LongObjectMap() {
+        this(0);
+    }
+
+    /**
+     * Creates an empty map.
+     * @param expectedSize number of entries the map can hold before having to grow
+     */
+    public LongObjectMap(int expectedSize) {
+        if (expectedSize < 0)
+            throw new IllegalArgumentException("Illegal expected size: " + expectedSize);
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public @Nullable V get(long key) {
+        if (key == 0)
+            return hasZeroKey ? (V) zeroValue : null;
+        int i = find(key);
+        return i < 0 ? null : (V) values[i];
+    }
+
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(long key, V defaultValue) {
+        if (key == 0)
+            return hasZeroKey ? (V) zeroValue : defaultValue;
+        int i = find(key);
+        return i < 0 ? defaultValue : (V) values[i];
+    }
+
+    public boolean containsKey(long key) {
+        if (key == 0)
+            return hasZeroKey;
+        return find(key) >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public @Nullable V put(long key, V value) {
+        checkMutable();
+        if (key == 0) {
+            V old = (V) zeroValue;
+            zeroValue = value;
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+                modCount++;
+            }
+            return old;
+        }
+        int i = mix(key) & mask;
+        long k;
+        while ((k = keys[i]) != 0) {
+            if (k == key) {
+                V old = (V) values[i];
+                values[i] = value;
+                return old;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        modCount++;
+        if (++size > maxFill)
+            rehash(keys.length * 2);
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public @Nullable V remove(long key) {
+        checkMutable();
+        if (key == 0) {
+            if (!hasZeroKey)
+                return null;
+            V old = (V) zeroValue;
+            hasZeroKey = false;
+            zeroValue = null;
+            size--;
+            modCount++;
+            return old;
+        }
+        int i = find(key);
+        if (i < 0)
+            return null;
+        V old = (V) values[i];
+        removeSlot(i);
+        size--;
+        modCount++;
+        return old;
+    }
+
+    public void clear() {
+        checkMutable();
+        if (size == 0)
+            return;
+        Arrays.fill(keys, 0);
+        Arrays.fill(values, null);
+        hasZeroKey = false;
+        zeroValue = null;
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Returns all keys in this map, in iteration order.
+     * @return array of keys
+     */
+    public long @NotNull [] keys() {
+        long[] result = new long[size];
+        int j = 0;
+        if (hasZeroKey)
+            result[j++] = 0;
+        for (long k : keys) {
+            if (k != 0)
+                result[j++] = k;
+        }
+        return result;
+    }
+
+    /**
+     * Creates a cursor over the entries of this map. The cursor starts out before the first entry.
+     * @return new cursor
+     */
+    public @NotNull Cursor<V> cursor() {
+        return new Cursor<>(this);
+    }
+
+    /**
+     * Creates a modifiable copy of this map. Values are not copied.
+     * @return copy of map
+     */
+    public @NotNull LongObjectMap<V> copy() {
+        LongObjectMap<V> copy = new LongObjectMap<>(0);
+        copy.keys = keys.clone();
+        copy.values = values.clone();
+        copy.mask = mask;
+        copy.size = size;
+        copy.maxFill = maxFill;
+        copy.hasZeroKey = hasZeroKey;
+        copy.zeroValue = zeroValue;
+        return copy;
+    }
+
+    /**
+     * Creates an unmodifiable copy of this map, or returns this map if it's already unmodifiable. Values are not
+     * copied.
+     * @return frozen copy of map
+     */
+    public @NotNull LongObjectMap<V> frozenCopy() {
+        if (frozen)
+            return this;
+        LongObjectMap<V> copy = copy();
+        copy.frozen = true;
+        return copy;
+    }
+
+    /**
+     * Makes this map unmodifiable. Used to freeze freshly built maps without copying them again.
+     * @return this map
+     */
+    public @NotNull LongObjectMap<V> freeze() {
+        frozen = true;
+        return this;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof LongObjectMap))
+            return false;
+        LongObjectMap<?> that = (LongObjectMap<?>) o;
+        if (size != that.size)
+            return false;
+        if (hasZeroKey && (!that.hasZeroKey || !Objects.equals(zeroValue, that.zeroValue)))
+            return false;
+        for (int i = 0; i < keys.length; i++) {
+            long k = keys[i];
+            if (k == 0)
+                continue;
+            int j = that.find(k);
+            if (j < 0 || !Objects.equals(values[i], that.values[j]))
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        // same as Map.hashCode, so the result doesn't depend on iteration order
+        int result = hasZeroKey ? Objects.hashCode(zeroValue) : 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0)
+                result += Long.hashCode(keys[i]) ^ Objects.hashCode(values[i]);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder().append('{');
+        Cursor<V> cursor = cursor();
+        boolean first = true;
+        while (cursor.advance()) {
+            if (first)
+                first = false;
+            else
+                sb.append(", ");
+            sb.append(cursor.key()).append('=').append(cursor.value());
+        }
+        return sb.append('}').toString();
+    }
+
+    private int find(long key) {
+        int i = mix(key) & mask;
+        long k;
+        while ((k = keys[i]) != 0) {
+            if (k == key)
+                return i;
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void removeSlot(int i) {
+        // shift following entries of the probe sequence back, so lookups never stop early at the freed slot
+        int last, slot;
+        while (true) {
+            last = i;
+            i = (i + 1) & mask;
+            long k;
+            while (true) {
+                if ((k = keys[i]) == 0) {
+                    keys[last] = 0;
+                    values[last] = null;
+                    return;
+                }
+                slot = mix(k) & mask;
+                if (last <= i ? last >= slot || slot > i : last >= slot && slot > i)
+                    break;
+                i = (i + 1) & mask;
+            }
+            keys[last] = k;
+            values[last] = values[i];
+        }
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long k = oldKeys[i];
+            if (k == 0)
+                continue;
+            int j = mix(k) & mask;
+            while (keys[j] != 0)
+                j = (j + 1) & mask;
+            keys[j] = k;
+            values[j] = oldValues[i];
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        maxFill = capacity * 3 / 4;
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        // keep the load factor at or below 3/4
+        long needed = Math.max(MIN_CAPACITY, (long) expectedSize * 4 / 3 + 1);
+        if (needed > 1 << 30)
+            throw new IllegalArgumentException("Expected size is too large: " + expectedSize);
+        return Integer.highestOneBit((int) needed - 1) << 1;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private void checkMutable() {
+        if (frozen)
+            throw new UnsupportedOperationException("Map is frozen");
+    }
+
+    /**
+     * Iterates over the entries of a map, without allocating an object per entry.<p>
+     * The map must not be structurally modified while a cursor is in use, but values may be replaced using
+     * {@link #setValue(Object)}.
+     */
+    public static final class Cursor<V> {
+        private final LongObjectMap<V> map;
+        private final int expectedModCount;
+        // -1 is the zero key entry, 0 to keys.length - 1 are table slots
+        private int index = -2;
+
+        private Cursor(@NotNull LongObjectMap<V> map) {
+            this.map = map;
+            expectedModCount = map.modCount;
+        }
+
+        /**
+         * Moves to the next entry.
+         * @return {@code true} if there is a next entry, {@code false} otherwise
+         */
+        public boolean advance() {
+            if (map.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (index == -2) {
+                index = -1;
+                if (map.hasZeroKey)
+                    return true;
+            }
+            while (++index < map.keys.length) {
+                if (map.keys[index] != 0)
+                    return true;
+            }
+            index = map.keys.length;
+            return false;
+        }
+
+        public long key() {
+            checkEntry();
+            return index < 0 ? 0 : map.keys[index];
+        }
+
+        @SuppressWarnings("unchecked")
+        public V value() {
+            checkEntry();
+            return (V) (index < 0 ? map.zeroValue : map.values[index]);
+        }
+
+        public void setValue(V value) {
+            map.checkMutable();
+            checkEntry();
+            if (index < 0)
+                map.zeroValue = value;
+            else
+                map.values[index] = value;
+        }
+
+        private void checkEntry() {
+            if (index < -1 || index >= map.keys.length)
+                throw new NoSuchElementException();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package io.github.speedbridgemc.config.serialize;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs deferred writes for every handler on a single daemon thread, with a single JVM shutdown hook.<p>
+ * Generated handlers use this for write-behind saves and journal compactions instead of spawning their own threads,
+ * and for reloads that mustn't hold up the shared {@link FileWatcherHub} thread.
+ * The thread is started when the first write is scheduled and exits once there's nothing left to write. Any writes
+ * that are still scheduled when the JVM shuts down are run by the shutdown hook.
+ */
+public final class BackgroundWriter {
+    private BackgroundWriter() { }
+
+    // guards every field below
+    private static final Object LOCK = new Object();
+    // scheduled writes, mapped to their deadlines in System.nanoTime() terms
+    private static final HashMap<Runnable, Long> SCHEDULED = new HashMap<>();
+    private static @Nullable WriterThread thread;
+    private static boolean shutdownHookAdded;
+
+    /**
+     * Schedules a write. If the write is already scheduled, it's moved to the new deadline instead of being
+     * scheduled twice.<p>
+     * Writes are run on the shared writer thread - don't block it for long.
+     * @param write write to run
+     * @param deadline when to run it, in {@link System#nanoTime()} terms
+     */
+    public static void schedule(@NotNull Runnable write, long deadline) {
+        synchronized (LOCK) {
+            SCHEDULED.put(write, deadline);
+            if (!shutdownHookAdded) {
+                Runtime.getRuntime().addShutdownHook(new Thread(BackgroundWriter::runAll, "Speedbridge Config writer shutdown"));
+                shutdownHookAdded = true;
+            }
+            if (thread == null) {
+                thread = new WriterThread();
+                thread.start();
+            } else
+                LOCK.notifyAll();
+        }
+    }
+
+    /**
+     * Schedules a write to run as soon as possible.
+     * @param write write to run
+     * @see #schedule(Runnable, long)
+     */
+    public static void execute(@NotNull Runnable write) {
+        schedule(write, System.nanoTime());
+    }
+
+    /**
+     * Cancels a scheduled write. Does nothing if the write isn't scheduled, or is already running.
+     * @param write write to cancel
+     * @return {@code true} if the write was cancelled, {@code false} otherwise
+     */
+    public static boolean cancel(@NotNull Runnable write) {
+        synchronized (LOCK) {
+            return SCHEDULED.remove(write) != null;
+        }
+    }
+
+    private static void runAll() {
+        ArrayList<Runnable> writes;
+        synchronized (LOCK) {
+            writes = new ArrayList<>(SCHEDULED.keySet());
+            SCHEDULED.clear();
+        }
+        for (Runnable write : writes)
+            run(write);
+    }
+
+    private static void run(@NotNull Runnable write) {
+        try {
+            write.run();
+        } catch (RuntimeException e) {
+            // don't let one handler's failure hold up every other handler's writes
+            Thread current = Thread.currentThread();
+            current.getUncaughtExceptionHandler().uncaughtException(current, e);
+        }
+    }
+
+    private static final class WriterThread extends Thread {
+        private WriterThread() {
+            super("Speedbridge Config writer");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Runnable write = null;
+                synchronized (LOCK) {
+                    try {
+                        while (write == null) {
+                            if (SCHEDULED.isEmpty()) {
+                                // nothing left to write, shut down - the next write will start a fresh thread
+                                thread = null;
+                                return;
+                            }
+                            long now = System.nanoTime(), remaining = Long.MAX_VALUE;
+                            for (Map.Entry<Runnable, Long> entry : SCHEDULED.entrySet()) {
+                                long entryRemaining = entry.getValue() - now;
+                                if (entryRemaining < remaining) {
+                                    remaining = entryRemaining;
+                                    write = entry.getKey();
+                                }
+                            }
+                            if (remaining > 0) {
+                                write = null;
+                                TimeUnit.NANOSECONDS.timedWait(LOCK, remaining);
+                            }
+                        }
+                        SCHEDULED.remove(write);
+                    } catch (InterruptedException e) {
+                        // hand whatever's still scheduled to a fresh thread, so it isn't stranded until shutdown
+                        thread = null;
+                        if (!SCHEDULED.isEmpty()) {
+                            thread = new WriterThread();
+                            thread.start();
+                        }
+                        return;
+                    }
+                }
+                BackgroundWriter.run(write);
+            }
+        }
+    }
+}
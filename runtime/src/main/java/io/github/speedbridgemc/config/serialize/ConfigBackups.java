@@ -0,0 +1,187 @@
+package io.github.speedbridgemc.config.serialize;
+
+import io.github.speedbridgemc.config.storage.ConfigStorage;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps a bounded ring of compressed backups per config, for generated handlers that back up configs that failed
+ * to load.<p>
+ * Backups are GZIP-compressed and named {@code "{name}-BACKUP-{timestamp}-{hash}"}, where {@code hash} is a hash of
+ * the uncompressed contents. Backing up contents that are identical to an existing backup doesn't store them again,
+ * it just makes that backup the newest one. Once there are more backups than the limit, the oldest ones are deleted,
+ * so a config that keeps failing to load can't fill up the disk.
+ */
+public final class ConfigBackups {
+    private ConfigBackups() { }
+
+    /**
+     * Default number of backups to keep per config.
+     */
+    public static final int DEFAULT_LIMIT = 5;
+
+    private static final String TAG = "BACKUP";
+    private static final String EXTENSION = ".gz";
+    // storages can't be listed, so they get an index of their backups instead, oldest first
+    private static final String INDEX_SUFFIX = "-BACKUPS";
+
+    /**
+     * Backs up a config file, removing the original.<p>
+     * Timestamped backups of the file (including uncompressed ones from older versions) beyond the limit
+     * are deleted, oldest first.
+     * @param path path of config file
+     * @param limit maximum number of backups to keep
+     * @return path of backup
+     * @throws IOException if the file couldn't be backed up or removed
+     */
+    public static @NotNull Path backUp(@NotNull Path path, int limit) throws IOException {
+        byte[] contents = Files.readAllBytes(path);
+        String fileName = path.getFileName().toString();
+        String prefix = fileName + "-" + TAG + "-";
+        String hashSuffix = "-" + hashString(contents) + EXTENSION;
+        Path backupPath = path.resolveSibling(PathUtils.appendTimestamp(fileName, TAG) + hashSuffix);
+        ArrayList<Path> backups = listBackups(path, prefix);
+        Path duplicate = null;
+        for (Path backup : backups) {
+            if (backup.getFileName().toString().endsWith(hashSuffix)) {
+                duplicate = backup;
+                break;
+            }
+        }
+        if (duplicate != null) {
+            // already backed up, just move it to the front of the line
+            Files.move(duplicate, backupPath);
+            backups.remove(duplicate);
+        } else {
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(backupPath))) {
+                out.write(contents);
+            } catch (IOException e) {
+                Files.deleteIfExists(backupPath);
+                throw e;
+            }
+        }
+        Files.delete(path);
+        // the new backup sorts after every existing one, so the oldest are at the start
+        for (int i = 0, excess = backups.size() + 1 - Math.max(limit, 1); i < excess; i++) {
+            try {
+                Files.deleteIfExists(backups.get(i));
+            } catch (IOException ignored) {
+                // it'll be pruned next time
+            }
+        }
+        return backupPath;
+    }
+
+    /**
+     * Backs up a config to a storage, next to the original.<p>
+     * The storage's backups of the config are tracked in an index, stored as {@code "{name}-BACKUPS"}.
+     * Backups beyond the limit are deleted, oldest first.
+     * @param storage storage of config
+     * @param name name of config
+     * @param contents contents of config
+     * @param limit maximum number of backups to keep
+     * @return name of backup
+     * @throws IOException if the config couldn't be backed up
+     */
+    public static @NotNull String backUp(@NotNull ConfigStorage storage, @NotNull String name,
+                                         byte @NotNull [] contents, int limit) throws IOException {
+        String indexName = name + INDEX_SUFFIX;
+        String hashSuffix = "-" + hashString(contents);
+        // storages are thread-safe, but reading, changing and writing the index isn't atomic
+        synchronized (storage) {
+            ArrayList<String> backups = new ArrayList<>();
+            byte[] indexContents = storage.read(indexName);
+            if (indexContents != null) {
+                for (String line : new String(indexContents, StandardCharsets.UTF_8).split("\n")) {
+                    if (!line.isEmpty())
+                        backups.add(line);
+                }
+            }
+            String backupName = null;
+            for (String backup : backups) {
+                if (backup.endsWith(hashSuffix)) {
+                    backupName = backup;
+                    break;
+                }
+            }
+            if (backupName != null)
+                // already backed up, just move it to the front of the line
+                backups.remove(backupName);
+            else {
+                backupName = PathUtils.appendTimestamp(name, TAG) + hashSuffix;
+                storage.write(backupName, compress(contents));
+            }
+            backups.add(backupName);
+            ArrayList<String> pruned = new ArrayList<>();
+            while (backups.size() > Math.max(limit, 1))
+                pruned.add(backups.remove(0));
+            storage.write(indexName, String.join("\n", backups).getBytes(StandardCharsets.UTF_8));
+            for (String backup : pruned) {
+                try {
+                    storage.delete(backup);
+                } catch (IOException ignored) {
+                    // no longer indexed, so this only costs space
+                }
+            }
+            return backupName;
+        }
+    }
+
+    /**
+     * Decompresses the contents of a backup.
+     * @param backup compressed contents of backup
+     * @return original contents of config
+     * @throws IOException if the backup is corrupt
+     */
+    public static byte @NotNull [] decompress(byte @NotNull [] backup) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(backup))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(backup.length * 4);
+            byte[] buf = new byte[8192];
+            int read;
+            while ((read = in.read(buf)) >= 0)
+                out.write(buf, 0, read);
+            return out.toByteArray();
+        }
+    }
+
+    private static byte @NotNull [] compress(byte @NotNull [] contents) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(contents.length / 2 + 32);
+        try (OutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(contents);
+        }
+        return out.toByteArray();
+    }
+
+    private static @NotNull String hashString(byte @NotNull [] contents) {
+        return String.format(Locale.ROOT, "%016x", FileFingerprint.hash(contents));
+    }
+
+    private static @NotNull ArrayList<Path> listBackups(@NotNull Path path, @NotNull String prefix) throws IOException {
+        ArrayList<Path> backups = new ArrayList<>();
+        Path dir = path.toAbsolutePath().getParent();
+        if (dir == null)
+            return backups;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir,
+                entry -> entry.getFileName().toString().startsWith(prefix))) {
+            for (Path entry : stream)
+                backups.add(path.resolveSibling(entry.getFileName()));
+        }
+        // timestamps sort chronologically
+        Collections.sort(backups);
+        return backups;
+    }
+}
@@ -0,0 +1,214 @@
+package io.github.speedbridgemc.config.serialize;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only log of field-level changes to a config, stored next to its file.<p>
+ * Generated handlers that journal their saves append the encoded values of changed fields here instead of
+ * rewriting the config file, and replay them over the config file when loading. Once the journal grows large enough,
+ * the config file is rewritten and a new, empty journal is started.<p>
+ * A journal's header records the contents of the config file it applies to and a hash of the config's schema, so a
+ * journal is ignored if the config file was changed (or rewritten) some other way. Records are checksummed, so a
+ * record that was only partially written is ignored along with anything after it.
+ */
+public final class ConfigJournal {
+    private static final int MAGIC = 0x5342434A; // "SBCJ"
+    private static final byte VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 1 + 8 + 8 + 8;
+    // field index, value length, checksum
+    private static final int RECORD_HEADER_SIZE = 12;
+
+    private final @NotNull Path configPath, path;
+    private final long schemaHash;
+    private final boolean sync;
+    // config file this journal applies to, or null if it hasn't been read or started
+    private @Nullable FileFingerprint base;
+    private long size;
+
+    /**
+     * Creates a journal for a config file. Nothing is read or written until the journal is first used.
+     * @param configPath path of config file
+     * @param schemaHash hash of the config's schema
+     * @param sync {@code true} to sync every write to the storage device before returning
+     */
+    public ConfigJournal(@NotNull Path configPath, long schemaHash, boolean sync) {
+        this.configPath = configPath;
+        this.path = resolveJournalPath(configPath);
+        this.schemaHash = schemaHash;
+        this.sync = sync;
+    }
+
+    /**
+     * Creates a journal for a config file that doesn't sync its writes.
+     * @param configPath path of config file
+     * @param schemaHash hash of the config's schema
+     */
+    public ConfigJournal(@NotNull Path configPath, long schemaHash) {
+        this(configPath, schemaHash, false);
+    }
+
+    /**
+     * Resolves the journal path for a config file - {@code "{path}.journal"}.
+     * @param path path of config file
+     * @return path of journal file
+     */
+    public static @NotNull Path resolveJournalPath(@NotNull Path path) {
+        return path.resolveSibling(path.getFileName() + ".journal");
+    }
+
+    /**
+     * Gets the path of the journal file.
+     * @return path of journal file
+     */
+    public @NotNull Path getPath() {
+        return path;
+    }
+
+    /**
+     * Gets the size of the journal file, including outdated records.
+     * @return size of journal, or 0 if it isn't in use
+     */
+    public synchronized long size() {
+        return base == null ? 0 : size;
+    }
+
+    /**
+     * Checks if the journal applies to the config file's current contents, meaning records can be appended to it.
+     * @return {@code true} if the journal is in use and the config file hasn't changed, {@code false} otherwise
+     */
+    public synchronized boolean isCurrent() {
+        FileFingerprint base = this.base;
+        if (base == null)
+            return false;
+        try {
+            return base.matches(configPath);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Reads the journal, if it applies to the config file. Appending then continues after the last valid record.
+     * @param source fingerprint of the config file's contents
+     * @param fieldCount number of fields in the config
+     * @return the latest journaled value of each field (or {@code null} for fields without one), or {@code null}
+     * if there's no journal file or it doesn't match the schema or config file
+     * @throws IOException if the journal file couldn't be read
+     */
+    public synchronized byte @Nullable [] @Nullable [] read(@NotNull FileFingerprint source, int fieldCount) throws IOException {
+        base = null;
+        byte[] data;
+        try {
+            data = Files.readAllBytes(path);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        if (data.length < HEADER_SIZE)
+            return null;
+        ByteBuffer buf = ByteBuffer.wrap(data);
+        if (buf.getInt() != MAGIC || buf.get() != VERSION || buf.getLong() != schemaHash
+                || buf.getLong() != source.size || buf.getLong() != source.hash)
+            return null;
+        byte[][] values = new byte[fieldCount][];
+        CRC32 crc = new CRC32();
+        int pos = HEADER_SIZE;
+        while (data.length - pos >= RECORD_HEADER_SIZE) {
+            int field = buf.getInt(pos), length = buf.getInt(pos + 4), checksum = buf.getInt(pos + 8);
+            if (field < 0 || field >= fieldCount || length < 0 || length > data.length - pos - RECORD_HEADER_SIZE)
+                break;
+            crc.reset();
+            crc.update(data, pos, 8);
+            crc.update(data, pos + RECORD_HEADER_SIZE, length);
+            if ((int) crc.getValue() != checksum)
+                // partially written, so this is where the journal really ends
+                break;
+            byte[] value = new byte[length];
+            System.arraycopy(data, pos + RECORD_HEADER_SIZE, value, 0, length);
+            values[field] = value;
+            pos += RECORD_HEADER_SIZE + length;
+        }
+        if (pos < data.length) {
+            // drop the torn tail, so new records don't end up behind it
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(pos);
+            }
+        }
+        base = source;
+        size = pos;
+        return values;
+    }
+
+    /**
+     * Starts a new, empty journal for the config file's current contents, replacing the existing journal.
+     * @param source fingerprint of the config file's contents
+     * @throws IOException if the journal file couldn't be written
+     */
+    public synchronized void start(@NotNull FileFingerprint source) throws IOException {
+        base = null;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                .putInt(MAGIC)
+                .put(VERSION)
+                .putLong(schemaHash)
+                .putLong(source.size)
+                .putLong(source.hash);
+        header.flip();
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(channel, header, 0);
+            if (sync)
+                channel.force(true);
+        }
+        if (sync) {
+            Path dir = path.toAbsolutePath().getParent();
+            if (dir != null)
+                FileSync.syncDirectory(dir);
+        }
+        base = source;
+        size = HEADER_SIZE;
+    }
+
+    /**
+     * Appends a field's new value to the journal.
+     * @param field index of field
+     * @param value encoded value of field
+     * @throws IOException if the journal file couldn't be written
+     * @throws IllegalStateException if the journal hasn't been read or started
+     */
+    public synchronized void append(int field, byte @NotNull [] value) throws IOException {
+        if (base == null)
+            throw new IllegalStateException("Journal hasn't been read or started");
+        byte[] record = new byte[RECORD_HEADER_SIZE + value.length];
+        ByteBuffer buf = ByteBuffer.wrap(record);
+        buf.putInt(field).putInt(value.length).putInt(0).put(value);
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, 8);
+        crc.update(value, 0, value.length);
+        buf.putInt(8, (int) crc.getValue());
+        buf.flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            writeFully(channel, buf, size);
+            if (sync)
+                channel.force(false);
+        } catch (IOException e) {
+            // whatever made it to the file can't be trusted, so stop using the journal until it's started again
+            base = null;
+            throw e;
+        }
+        size += record.length;
+    }
+
+    private static void writeFully(@NotNull FileChannel channel, @NotNull ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining())
+            pos += channel.write(buf, pos);
+    }
+}
@@ -0,0 +1,97 @@
+package io.github.speedbridgemc.config.serialize;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Helper methods for decoding config files that were already read in full.<p>
+ * Handlers read config files through their {@link io.github.speedbridgemc.config.storage.ConfigStorage ConfigStorage}
+ * in one pass, so serializer providers only ever parse from memory. Readers opened here decode straight from the
+ * file's contents into the parser's own buffer, so decoding a file never needs more memory than the parser asks for.
+ */
+public final class FileContents {
+    private FileContents() { }
+
+    // decoders are reset for every file, so each thread only ever needs one
+    private static final ThreadLocal<CharsetDecoder> DECODER = ThreadLocal.withInitial(() -> StandardCharsets.UTF_8.newDecoder()
+            // same as InputStreamReader
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE));
+
+    /**
+     * Opens a reader that decodes file contents as UTF-8. A leading byte order mark is skipped.<p>
+     * The reader must be used (and closed) on the thread that opened it.
+     * @param contents file contents
+     * @return reader over the decoded contents
+     */
+    public static @NotNull Reader newReader(byte @NotNull [] contents) {
+        int off = 0;
+        if (contents.length >= 3 && contents[0] == (byte) 0xEF && contents[1] == (byte) 0xBB && contents[2] == (byte) 0xBF)
+            off = 3;
+        CharsetDecoder decoder = DECODER.get();
+        decoder.reset();
+        return new DecodingReader(decoder, ByteBuffer.wrap(contents, off, contents.length - off));
+    }
+
+    private static final class DecodingReader extends Reader {
+        private final @NotNull CharsetDecoder decoder;
+        private final @NotNull ByteBuffer in;
+        // the second half of a surrogate pair that didn't fit into the last read
+        private final CharBuffer leftover = CharBuffer.allocate(2);
+        private boolean flushed, closed;
+
+        DecodingReader(@NotNull CharsetDecoder decoder, @NotNull ByteBuffer in) {
+            this.decoder = decoder;
+            this.in = in;
+            leftover.limit(0);
+        }
+
+        @Override
+        public int read(char @NotNull [] cbuf, int off, int len) throws IOException {
+            if (closed)
+                throw new IOException("Reader is closed");
+            if (len == 0)
+                return 0;
+            CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+            while (leftover.hasRemaining() && out.hasRemaining())
+                out.put(leftover.get());
+            if (len == 1 && out.hasRemaining()) {
+                // a single char might not fit a whole code point, so decode into the leftover buffer first
+                leftover.clear();
+                decode(leftover);
+                leftover.flip();
+                if (leftover.hasRemaining())
+                    out.put(leftover.get());
+            } else
+                decode(out);
+            int read = out.position() - off;
+            return read == 0 ? -1 : read;
+        }
+
+        private void decode(@NotNull CharBuffer out) {
+            if (flushed)
+                return;
+            CoderResult result = decoder.decode(in, out, true);
+            if (result.isUnderflow() && decoder.flush(out).isUnderflow())
+                flushed = true;
+        }
+
+        @Override
+        public boolean ready() {
+            return !closed;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package io.github.speedbridgemc.config.serialize;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A cheap fingerprint of a file's contents - its size, last modification time and a 64-bit hash of its bytes.<p>
+ * Generated handlers use this to tell if their config file actually changed since they last loaded or saved it.
+ */
+public final class FileFingerprint {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * Size of the file, in bytes.
+     */
+    public final long size;
+    /**
+     * Last modification time of the file, in nanoseconds since the epoch.
+     */
+    public final long lastModified;
+    /**
+     * Hash of the file's contents.
+     */
+    public final long hash;
+
+    private FileFingerprint(long size, long lastModified, long hash) {
+        this.size = size;
+        this.lastModified = lastModified;
+        this.hash = hash;
+    }
+
+    /**
+     * Fingerprints a file by reading and hashing all of it.<p>
+     * Sizes and modification times alone can't tell if a file is unchanged, since an edit that keeps the size
+     * can land within the file system's timestamp granularity. If the file is about to be read anyway, read it
+     * once and use {@link #of(Path, byte[])} instead.
+     * @param path file to fingerprint
+     * @return the file's fingerprint
+     * @throws IOException if the file couldn't be read
+     */
+    public static @NotNull FileFingerprint of(@NotNull Path path) throws IOException {
+        // modification time first, so a write racing with us can only make the fingerprint look older
+        long lastModified = Files.getLastModifiedTime(path).to(TimeUnit.NANOSECONDS);
+        byte[] bytes = Files.readAllBytes(path);
+        return new FileFingerprint(bytes.length, lastModified, hash(bytes));
+    }
+
+    /**
+     * Fingerprints a file whose contents are already known, because they were just read from or written to it.
+     * Only the file's modification time is read from disk.
+     * @param path file to fingerprint
+     * @param contents contents of the file
+     * @return the file's fingerprint
+     * @throws IOException if the file's modification time couldn't be read
+     */
+    public static @NotNull FileFingerprint of(@NotNull Path path, byte @NotNull [] contents) throws IOException {
+        long lastModified = Files.getLastModifiedTime(path).to(TimeUnit.NANOSECONDS);
+        return new FileFingerprint(contents.length, lastModified, hash(contents));
+    }
+
+    /**
+     * Hashes an array of bytes using 64-bit FNV-1a.
+     * @param bytes bytes to hash
+     * @return hash of bytes
+     */
+    public static long hash(byte @NotNull [] bytes) {
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : bytes) {
+            hash ^= b & 0xFF;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Checks if another fingerprint describes the same file contents as this one.
+     * Modification times are ignored, since rewriting a file with the same contents doesn't change it.
+     * @param other other fingerprint
+     * @return {@code true} if both fingerprints have the same size and hash, {@code false} otherwise
+     */
+    public boolean sameContents(@Nullable FileFingerprint other) {
+        return other != null && size == other.size && hash == other.hash;
+    }
+
+    /**
+     * Checks if a file still has the contents this fingerprint describes.<p>
+     * A different size is enough to tell the file changed, in which case it isn't read. Otherwise, the file is
+     * read and hashed - matching sizes and modification times don't prove anything.
+     * @param path file to check
+     * @return {@code true} if the file has the same size and hash as this fingerprint, {@code false} otherwise
+     * @throws IOException if the file couldn't be read
+     */
+    public boolean matches(@NotNull Path path) throws IOException {
+        if (Files.size(path) != size)
+            return false;
+        return sameContents(of(path));
+    }
+
+    /**
+     * Checks if this fingerprint describes a file with the specified contents.
+     * @param contents contents to check
+     * @return {@code true} if the contents have the same size and hash as this fingerprint, {@code false} otherwise
+     */
+    public boolean matches(byte @NotNull [] contents) {
+        return size == contents.length && hash == hash(contents);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        FileFingerprint that = (FileFingerprint) o;
+        return size == that.size && lastModified == that.lastModified && hash == that.hash;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Long.hashCode(size);
+        result = 31 * result + Long.hashCode(lastModified);
+        result = 31 * result + Long.hashCode(hash);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "FileFingerprint{size=" + size + ", lastModified=" + lastModified + ", hash=" + Long.toHexString(hash) + "}";
+    }
+}
@@ -0,0 +1,124 @@
+package io.github.speedbridgemc.config.serialize;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Durable file operations for generated handlers.<p>
+ * Making a replaced file survive a crash takes three steps - syncing the new file's contents, atomically moving it
+ * over the old file, and syncing the directory so the move itself is persisted. Syncing a directory is expensive, so
+ * {@link #syncDirectory(Path)} uses group commit: handlers that save to the same directory at the same time share
+ * one sync instead of each doing their own.
+ */
+public final class FileSync {
+    private FileSync() { }
+
+    // directories can't be opened (let alone synced) on Windows, where NTFS journals renames anyway
+    private static final boolean CAN_SYNC_DIRECTORIES = !System.getProperty("os.name", "")
+            .toLowerCase(Locale.ROOT).startsWith("windows");
+    private static final ConcurrentHashMap<Path, DirectoryState> DIRECTORIES = new ConcurrentHashMap<>();
+
+    private static final class DirectoryState {
+        // tickets handed out to callers, and the last ticket covered by a finished sync
+        long requested, completed;
+        // last ticket covered by a failed sync, and why it failed
+        long failed;
+        @Nullable IOException failure;
+        boolean syncing;
+    }
+
+    /**
+     * Writes a file and syncs its contents to the storage device.
+     * @param path path of file
+     * @param contents contents of file
+     * @throws IOException if an I/O error occurs
+     */
+    public static void writeSynced(@NotNull Path path, byte @NotNull [] contents) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buf = ByteBuffer.wrap(contents);
+            while (buf.hasRemaining())
+                channel.write(buf);
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Moves a file over another one atomically, so the target is always either the old or the new file.<p>
+     * Falls back to a regular move if the file system doesn't support atomic moves.
+     * @param source file to move
+     * @param target file to replace
+     * @throws IOException if an I/O error occurs
+     */
+    public static void moveAtomically(@NotNull Path source, @NotNull Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Syncs a directory, persisting files that were created, moved or deleted in it.<p>
+     * If another thread is already syncing the directory, this waits for that sync to finish, then joins every other
+     * thread that showed up in the meantime in a single follow-up sync. Does nothing on platforms that can't sync
+     * directories.
+     * @param dir directory to sync
+     * @throws IOException if the sync failed
+     */
+    public static void syncDirectory(@NotNull Path dir) throws IOException {
+        if (!CAN_SYNC_DIRECTORIES)
+            return;
+        DirectoryState state = DIRECTORIES.computeIfAbsent(dir.toAbsolutePath().normalize(), p -> new DirectoryState());
+        long target;
+        synchronized (state) {
+            // a sync that's already running may have started before our changes, so it doesn't count
+            long ticket = ++state.requested;
+            while (true) {
+                if (state.completed >= ticket)
+                    return;
+                if (state.failed >= ticket) {
+                    assert state.failure != null;
+                    throw new IOException("Failed to sync directory \"" + dir + "\"", state.failure);
+                }
+                if (!state.syncing)
+                    break;
+                try {
+                    state.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting to sync directory \"" + dir + "\"");
+                }
+            }
+            // we're leading this round, which covers everyone who's asked so far
+            state.syncing = true;
+            target = state.requested;
+        }
+        IOException failure = null;
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            failure = e;
+        }
+        synchronized (state) {
+            state.syncing = false;
+            if (failure == null)
+                state.completed = target;
+            else {
+                state.failed = target;
+                state.failure = failure;
+            }
+            state.notifyAll();
+        }
+        if (failure != null)
+            throw failure;
+    }
+}
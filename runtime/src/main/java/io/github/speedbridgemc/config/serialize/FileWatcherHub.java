@@ -0,0 +1,264 @@
+package io.github.speedbridgemc.config.serialize;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Multiplexes file watchers onto a single {@link WatchService} per file system, with a single dispatcher thread each.<p>
+ * Generated handlers use this to watch their config files instead of spawning their own watcher threads.
+ */
+public final class FileWatcherHub {
+    private FileWatcherHub() { }
+
+    /**
+     * Receives events for a single watched file.<p>
+     * Callbacks are invoked on the dispatcher thread, which is shared by every watched file on the same file system -
+     * don't block it for long.
+     */
+    public interface Listener {
+        /**
+         * Called when the watched file is modified.
+         */
+        void fileChanged();
+
+        /**
+         * Called when the watched file can no longer be watched, for example because its directory was deleted.<p>
+         * The listener has already been unregistered when this is called.
+         * @param message failure message
+         * @param e exception that caused the failure, if any
+         */
+        void watchFailed(@NotNull String message, @Nullable Exception e);
+    }
+
+    /**
+     * A listener's registration with the hub.
+     */
+    public interface Registration {
+        /**
+         * Stops delivering events to the listener. Does nothing if the registration was already cancelled.
+         */
+        void cancel();
+    }
+
+    // guards every dispatcher's state
+    private static final Object LOCK = new Object();
+    private static final HashMap<FileSystem, Dispatcher> DISPATCHERS = new HashMap<>();
+
+    /**
+     * Starts watching a file for changes.
+     * @param path file to watch
+     * @param listener listener to notify of changes
+     * @return the listener's registration
+     * @throws IOException if the file's directory couldn't be watched
+     */
+    public static @NotNull Registration register(@NotNull Path path, @NotNull Listener listener) throws IOException {
+        Path absPath = path.toAbsolutePath().normalize();
+        Path dirPath = absPath.getParent();
+        if (dirPath == null)
+            throw new IOException("Path \"" + path + "\" doesn't have a parent directory to watch");
+        // watch services hand out one key per actual directory, so paths that reach it through symlinks must share it
+        dirPath = dirPath.toRealPath();
+        synchronized (LOCK) {
+            FileSystem fs = dirPath.getFileSystem();
+            Dispatcher dispatcher = DISPATCHERS.get(fs);
+            boolean newDispatcher = dispatcher == null;
+            if (newDispatcher)
+                dispatcher = new Dispatcher(fs);
+            try {
+                Registration registration = dispatcher.register(dirPath, absPath.getFileName(), listener);
+                if (newDispatcher) {
+                    DISPATCHERS.put(fs, dispatcher);
+                    dispatcher.start();
+                }
+                return registration;
+            } catch (IOException e) {
+                if (newDispatcher)
+                    dispatcher.close();
+                throw e;
+            }
+        }
+    }
+
+    private static final class Directory {
+        public final @NotNull Path path;
+        public final @NotNull WatchKey key;
+        public final @NotNull HashMap<Path, ArrayList<Entry>> entries;
+
+        private Directory(@NotNull Path path, @NotNull WatchKey key) {
+            this.path = path;
+            this.key = key;
+            entries = new HashMap<>();
+        }
+    }
+
+    private static final class Entry implements Registration {
+        private final @NotNull Dispatcher dispatcher;
+        private final @NotNull Directory directory;
+        private final @NotNull Path fileName;
+        private final @NotNull Listener listener;
+        private boolean cancelled;
+
+        private Entry(@NotNull Dispatcher dispatcher, @NotNull Directory directory, @NotNull Path fileName, @NotNull Listener listener) {
+            this.dispatcher = dispatcher;
+            this.directory = directory;
+            this.fileName = fileName;
+            this.listener = listener;
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (LOCK) {
+                if (cancelled)
+                    return;
+                cancelled = true;
+                dispatcher.unregister(this);
+            }
+        }
+    }
+
+    private static final class Dispatcher extends Thread {
+        private final @NotNull FileSystem fs;
+        private final @NotNull WatchService watchService;
+        private final @NotNull HashMap<Path, Directory> directories;
+        private final @NotNull HashMap<WatchKey, Directory> directoriesByKey;
+
+        private Dispatcher(@NotNull FileSystem fs) throws IOException {
+            super("Speedbridge Config file watcher");
+            setDaemon(true);
+            this.fs = fs;
+            watchService = fs.newWatchService();
+            directories = new HashMap<>();
+            directoriesByKey = new HashMap<>();
+        }
+
+        // all of the following methods must be called while holding LOCK
+
+        private @NotNull Registration register(@NotNull Path dirPath, @NotNull Path fileName, @NotNull Listener listener) throws IOException {
+            Directory directory = directories.get(dirPath);
+            if (directory == null) {
+                WatchKey key = dirPath.register(watchService, StandardWatchEventKinds.ENTRY_MODIFY);
+                directory = new Directory(dirPath, key);
+                directories.put(dirPath, directory);
+                directoriesByKey.put(key, directory);
+            }
+            Entry entry = new Entry(this, directory, fileName, listener);
+            directory.entries.computeIfAbsent(fileName, path -> new ArrayList<>()).add(entry);
+            return entry;
+        }
+
+        private void unregister(@NotNull Entry entry) {
+            Directory directory = entry.directory;
+            ArrayList<Entry> fileEntries = directory.entries.get(entry.fileName);
+            if (fileEntries == null)
+                return;
+            fileEntries.remove(entry);
+            if (fileEntries.isEmpty())
+                directory.entries.remove(entry.fileName);
+            if (directory.entries.isEmpty())
+                removeDirectory(directory);
+        }
+
+        private void removeDirectory(@NotNull Directory directory) {
+            directory.key.cancel();
+            directories.remove(directory.path);
+            directoriesByKey.remove(directory.key);
+            if (directories.isEmpty()) {
+                // nothing left to watch, shut down - the next registration will start a fresh dispatcher
+                DISPATCHERS.remove(fs, this);
+                close();
+            }
+        }
+
+        private void close() {
+            try {
+                watchService.close();
+            } catch (IOException ignored) { }
+        }
+
+        @Override
+        public void run() {
+            ArrayList<Entry> changed = new ArrayList<>();
+            ArrayList<Entry> failed = new ArrayList<>();
+            while (true) {
+                WatchKey key;
+                try {
+                    key = watchService.take();
+                } catch (ClosedWatchServiceException e) {
+                    break;
+                } catch (InterruptedException e) {
+                    synchronized (LOCK) {
+                        for (Directory directory : directories.values())
+                            for (List<Entry> fileEntries : directory.entries.values())
+                                failed.addAll(fileEntries);
+                        for (Entry entry : failed)
+                            entry.cancelled = true;
+                        directories.clear();
+                        directoriesByKey.clear();
+                        DISPATCHERS.remove(fs, this);
+                        close();
+                    }
+                    notifyFailed(failed, "File watcher thread interrupted, shutting down", e);
+                    break;
+                }
+                synchronized (LOCK) {
+                    Directory directory = directoriesByKey.get(key);
+                    if (directory == null) {
+                        // cancelled while we were waiting
+                        key.pollEvents();
+                        continue;
+                    }
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW)
+                            continue;
+                        ArrayList<Entry> fileEntries = directory.entries.get((Path) event.context());
+                        if (fileEntries == null)
+                            continue;
+                        // editors often modify a file several times in a row, only report it once per batch
+                        for (Entry entry : fileEntries) {
+                            if (!changed.contains(entry))
+                                changed.add(entry);
+                        }
+                    }
+                    if (!key.reset()) {
+                        for (List<Entry> fileEntries : directory.entries.values())
+                            failed.addAll(fileEntries);
+                        for (Entry entry : failed)
+                            entry.cancelled = true;
+                        removeDirectory(directory);
+                    }
+                }
+                for (Entry entry : changed) {
+                    synchronized (LOCK) {
+                        if (entry.cancelled)
+                            continue;
+                    }
+                    try {
+                        entry.listener.fileChanged();
+                    } catch (RuntimeException e) {
+                        // don't let one listener take down every other watched file
+                        getUncaughtExceptionHandler().uncaughtException(this, e);
+                    }
+                }
+                changed.clear();
+                notifyFailed(failed, "Key became invalid, assuming watched directory is no longer accessible", null);
+                failed.clear();
+            }
+        }
+
+        private void notifyFailed(@NotNull List<Entry> failed, @NotNull String message, @Nullable Exception e) {
+            for (Entry entry : failed) {
+                try {
+                    entry.listener.watchFailed(message, e);
+                } catch (RuntimeException le) {
+                    getUncaughtExceptionHandler().uncaughtException(this, le);
+                }
+            }
+        }
+    }
+}
@@ -5,7 +5,6 @@ import org.jetbrains.annotations.NotNull;
 import java.lang.reflect.Array;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
-import java.util.HashMap;
 
 /**
  * Helper methods for {@link KeyedEnum}s.
@@ -13,19 +12,11 @@ import java.util.HashMap;
 final class KeyedEnumHelpers {
     private KeyedEnumHelpers() { }
 
-    private static final HashMap<KeyedEnum<?>, Class<?>> KEY_TYPE_CACHE = new HashMap<>();
-
-    /**
-     * Returns a keyed enum's key type.
-     * @param keyedEnum the keyed enum
-     * @param <T> type of key
-     * @return key type's class
-     */
-    @SuppressWarnings("unchecked")
-    public static <T> @NotNull Class<T> getKeyType(@NotNull KeyedEnum<T> keyedEnum) {
-        // this is utterly horrible. but it works, so...
-        return (Class<T>) KEY_TYPE_CACHE.computeIfAbsent(keyedEnum, keyedEnum1 -> {
-            for (Type interfaceType : keyedEnum1.getClass().getGenericInterfaces()) {
+    private static final ClassValue<Class<?>> KEY_TYPES = new ClassValue<Class<?>>() {
+        @Override
+        protected Class<?> computeValue(Class<?> type) {
+            // this is utterly horrible. but it works, so...
+            for (Type interfaceType : type.getGenericInterfaces()) {
                 if (interfaceType instanceof ParameterizedType) {
                     ParameterizedType paramType = (ParameterizedType) interfaceType;
                     Type rawType = paramType.getRawType();
@@ -33,15 +24,38 @@ final class KeyedEnumHelpers {
                         continue;
                     Type[] typeArgs = paramType.getActualTypeArguments();
                     if (typeArgs.length == 0)
-                        throw new RuntimeException("Raw keyed enum isn't supported: " + keyedEnum.getClass().toGenericString());
+                        throw new RuntimeException("Raw keyed enum isn't supported: " + type.toGenericString());
                     return (Class<?>) typeArgs[0];
                 }
             }
-            throw new RuntimeException("Couldn't find key type for keyed enum: " + keyedEnum.getClass().toGenericString());
-        });
+            throw new RuntimeException("Couldn't find key type for keyed enum: " + type.toGenericString());
+        }
+    };
+
+    private static final ClassValue<Object> EMPTY_ALIAS_ARRAYS = new ClassValue<Object>() {
+        @Override
+        protected Object computeValue(Class<?> type) {
+            return Array.newInstance(KEY_TYPES.get(type), 0);
+        }
+    };
+
+    private static @NotNull Class<?> getDeclaringType(@NotNull KeyedEnum<?> keyedEnum) {
+        // enum constants with bodies are anonymous subclasses of the type that actually implements KeyedEnum
+        if (keyedEnum instanceof Enum)
+            return ((Enum<?>) keyedEnum).getDeclaringClass();
+        return keyedEnum.getClass();
     }
 
-    private static final HashMap<KeyedEnum<?>, Object> EMPTY_ALIAS_ARRAY_CACHE = new HashMap<>();
+    /**
+     * Returns a keyed enum's key type.
+     * @param keyedEnum the keyed enum
+     * @param <T> type of key
+     * @return key type's class
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> @NotNull Class<T> getKeyType(@NotNull KeyedEnum<T> keyedEnum) {
+        return (Class<T>) KEY_TYPES.get(getDeclaringType(keyedEnum));
+    }
 
     /**
      * Returns an empty array of keys.
@@ -51,7 +65,6 @@ final class KeyedEnumHelpers {
      */
     @SuppressWarnings("unchecked")
     public static <T> @NotNull T @NotNull [] getEmptyAliasArray(@NotNull KeyedEnum<T> keyedEnum) {
-        return (T[]) EMPTY_ALIAS_ARRAY_CACHE.computeIfAbsent(keyedEnum,
-                keyedEnum1 -> Array.newInstance(getKeyType(keyedEnum), 0));
+        return (T[]) EMPTY_ALIAS_ARRAYS.get(getDeclaringType(keyedEnum));
     }
 }
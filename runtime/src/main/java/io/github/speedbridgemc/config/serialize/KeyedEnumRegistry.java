@@ -0,0 +1,154 @@
+package io.github.speedbridgemc.config.serialize;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Array;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Shared key-to-value lookups for enums that are serialized using keys instead of their names.<p>
+ * Lookups are built once per enum type, on first use, and shared by all generated handlers. Enums whose keys are
+ * all small non-negative {@code int}s are backed by an array indexed by key instead of a hash map.
+ */
+public final class KeyedEnumRegistry {
+    private KeyedEnumRegistry() { }
+
+    /**
+     * Highest {@code int} key that's always allowed in a dense lookup. Enums with higher keys only get one if the
+     * resulting array isn't much bigger than the number of keys.
+     */
+    private static final int DENSE_MIN_LIMIT = 64;
+
+    private static final ClassValue<Holder> HOLDERS = new ClassValue<Holder>() {
+        @Override
+        protected Holder computeValue(Class<?> type) {
+            return new Holder();
+        }
+    };
+
+    private static final class Holder {
+        volatile @Nullable Lookup<?> lookup, legacyLookup;
+    }
+
+    /**
+     * Gets the lookup for a {@link KeyedEnum}. Both keys and {@linkplain KeyedEnum#getAliases() aliases} are
+     * mapped to their values.
+     * @param type enum type
+     * @param <E> enum type
+     * @return lookup for the enum
+     */
+    public static <E extends Enum<E> & KeyedEnum<?>> @NotNull Lookup<E> get(@NotNull Class<E> type) {
+        return get(type, null);
+    }
+
+    /**
+     * Gets the lookup for an enum with custom keys.<p>
+     * An enum type's lookup is only built once, so all callers must pass an equivalent key getter.
+     * @param type enum type
+     * @param keyGetter gets a value's key, or {@code null} to use {@link KeyedEnum#getKey()} and
+     *                  {@link KeyedEnum#getAliases()}
+     * @param <E> enum type
+     * @return lookup for the enum
+     */
+    @SuppressWarnings("unchecked")
+    public static <E extends Enum<E>> @NotNull Lookup<E> get(@NotNull Class<E> type,
+                                                           @Nullable Function<? super E, ?> keyGetter) {
+        Holder holder = HOLDERS.get(type);
+        Lookup<?> lookup = holder.lookup;
+        if (lookup == null) {
+            // racing threads build equal lookups, so whichever one wins doesn't matter
+            lookup = new Lookup<>(type, keyGetter, null);
+            holder.lookup = lookup;
+        }
+        return (Lookup<E>) lookup;
+    }
+
+    /**
+     * Gets the lookup for a {@link KeyedEnum} that used to be serialized using a different key, like an id that's
+     * since been replaced by {@link KeyedEnum#getKey()}. Keys and aliases are mapped to their values first, and then
+     * any legacy key that isn't already taken, so files written either way can be read.<p>
+     * An enum type's legacy lookup is only built once, so all callers must pass an equivalent legacy key getter.
+     * @param type enum type
+     * @param legacyKeyGetter gets a value's legacy key
+     * @param <E> enum type
+     * @return lookup for the enum, including legacy keys
+     */
+    @SuppressWarnings("unchecked")
+    public static <E extends Enum<E> & KeyedEnum<?>> @NotNull Lookup<E> getWithLegacyKeys(@NotNull Class<E> type,
+                                                                                        @NotNull Function<? super E, ?> legacyKeyGetter) {
+        Holder holder = HOLDERS.get(type);
+        Lookup<?> lookup = holder.legacyLookup;
+        if (lookup == null) {
+            lookup = new Lookup<>(type, null, legacyKeyGetter);
+            holder.legacyLookup = lookup;
+        }
+        return (Lookup<E>) lookup;
+    }
+
+    /**
+     * Maps keys to enum values.
+     * @param <E> enum type
+     */
+    public static final class Lookup<E extends Enum<E>> {
+        private final @NotNull HashMap<Object, E> byKey;
+        private final E @Nullable [] dense;
+
+        @SuppressWarnings("unchecked")
+        private Lookup(@NotNull Class<E> type, @Nullable Function<? super E, ?> keyGetter,
+                       @Nullable Function<? super E, ?> legacyKeyGetter) {
+            E[] values = type.getEnumConstants();
+            byKey = new HashMap<>(values.length * 2);
+            for (E value : values) {
+                if (keyGetter == null) {
+                    KeyedEnum<?> keyed = (KeyedEnum<?>) value;
+                    byKey.put(keyed.getKey(), value);
+                    for (Object alias : keyed.getAliases())
+                        byKey.put(alias, value);
+                } else
+                    byKey.put(keyGetter.apply(value), value);
+            }
+            if (legacyKeyGetter != null) {
+                for (E value : values)
+                    byKey.putIfAbsent(legacyKeyGetter.apply(value), value);
+            }
+            int maxKey = -1;
+            for (Object key : byKey.keySet()) {
+                if (!(key instanceof Integer) || (Integer) key < 0) {
+                    maxKey = Integer.MAX_VALUE;
+                    break;
+                }
+                maxKey = Math.max(maxKey, (Integer) key);
+            }
+            if (maxKey < Math.max(DENSE_MIN_LIMIT, byKey.size() * 4)) {
+                dense = (E[]) Array.newInstance(type, maxKey + 1);
+                for (Map.Entry<Object, E> entry : byKey.entrySet())
+                    dense[(Integer) entry.getKey()] = entry.getValue();
+            } else
+                dense = null;
+        }
+
+        /**
+         * Gets the enum value with the specified key.
+         * @param key key
+         * @return enum value, or {@code null} if no value has this key
+         */
+        public @Nullable E get(@Nullable Object key) {
+            return byKey.get(key);
+        }
+
+        /**
+         * Gets the enum value with the specified {@code int} key, without boxing it if possible.
+         * @param key key
+         * @return enum value, or {@code null} if no value has this key
+         */
+        public @Nullable E get(int key) {
+            E[] dense = this.dense;
+            if (dense != null)
+                return key >= 0 && key < dense.length ? dense[key] : null;
+            return byKey.get(key);
+        }
+    }
+}
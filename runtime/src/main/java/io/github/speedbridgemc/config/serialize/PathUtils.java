@@ -39,8 +39,18 @@ public final class PathUtils {
      * @return Sibling path
      */
     public static Path resolveTimestampedSibling(Path base, String tag) {
-        return base.resolveSibling(base.getFileName().toString()
+        return base.resolveSibling(appendTimestamp(base.getFileName().toString(), tag));
+    }
+
+    /**
+     * Appends a tag and a timestamp to a name - {@code "{name}-{tag}-{timestamp}"}.
+     * @param name Base name
+     * @param tag Tag to add to name
+     * @return Timestamped name
+     */
+    public static String appendTimestamp(String name, String tag) {
+        return name
                 + "-" + tag
-                + "-" + LocalDateTime.now().format(ISO_LOCAL_DATE_TIME_SAFE));
+                + "-" + LocalDateTime.now().format(ISO_LOCAL_DATE_TIME_SAFE);
     }
 }
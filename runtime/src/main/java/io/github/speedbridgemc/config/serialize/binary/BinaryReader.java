@@ -0,0 +1,598 @@
+package io.github.speedbridgemc.config.serialize.binary;
+
+import io.github.speedbridgemc.config.serialize.json5.Json5Token;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static io.github.speedbridgemc.config.serialize.binary.BinaryWriter.*;
+
+/**
+ * Reads the binary encoding written by {@link BinaryWriter}, one token at a time.<p>
+ * The API mirrors {@link io.github.speedbridgemc.config.serialize.json5.Json5Reader}, and reports the same
+ * {@link Json5Token}s. Packed arrays are reported as {@link Json5Token#BEGIN_ARRAY}, but can only be read with
+ * the {@code next*Array} methods (or skipped).
+ */
+public final class BinaryReader implements Closeable {
+    private final byte[] buf;
+    private final int limit;
+    private int pos;
+    // true for objects, false for arrays
+    private boolean[] stack;
+    private int stackSize;
+    // the document's name dictionary, as ranges of buf
+    private int[] nameOffsets, nameLengths;
+    private int nameCount;
+    // name table and index each dictionary entry was last matched against
+    private byte[][][] nameTables;
+    private int[] nameTableIndices;
+
+    /**
+     * Creates a reader over an entire array of bytes.
+     * @param buf encoded document
+     */
+    public BinaryReader(byte @NotNull [] buf) {
+        this(buf, 0, buf.length);
+    }
+
+    /**
+     * Creates a reader over a range of an array of bytes.
+     * @param buf array containing the encoded document
+     * @param off offset of the document in the array
+     * @param len length of the document, in bytes
+     */
+    public BinaryReader(byte @NotNull [] buf, int off, int len) {
+        if (off < 0 || len < 0 || off + len > buf.length)
+            throw new IndexOutOfBoundsException("off=" + off + ", len=" + len + ", length=" + buf.length);
+        this.buf = buf;
+        pos = off;
+        limit = off + len;
+        stack = new boolean[32];
+        nameOffsets = new int[32];
+        nameLengths = new int[32];
+        nameTables = new byte[32][][];
+        nameTableIndices = new int[32];
+    }
+
+    /**
+     * Returns the type of the next token, without consuming it.
+     * @return type of next token
+     * @throws IOException if the data is malformed
+     */
+    public @NotNull Json5Token peek() throws IOException {
+        if (pos >= limit)
+            return Json5Token.END_DOCUMENT;
+        byte tag = buf[pos];
+        switch (tag) {
+        case TAG_NULL:
+            return Json5Token.NULL;
+        case TAG_FALSE:
+        case TAG_TRUE:
+            return Json5Token.BOOLEAN;
+        case TAG_INT:
+        case TAG_FLOAT:
+        case TAG_DOUBLE:
+            return Json5Token.NUMBER;
+        case TAG_STRING:
+            return Json5Token.STRING;
+        case TAG_BEGIN_ARRAY:
+        case TAG_PACKED_INTS:
+        case TAG_PACKED_FLOATS:
+        case TAG_PACKED_DOUBLES:
+        case TAG_PACKED_BOOLEANS:
+            return Json5Token.BEGIN_ARRAY;
+        case TAG_BEGIN_OBJECT:
+            return Json5Token.BEGIN_OBJECT;
+        case TAG_END:
+            if (stackSize == 0)
+                throw malformed("Unexpected end of structure");
+            return stack[stackSize - 1] ? Json5Token.END_OBJECT : Json5Token.END_ARRAY;
+        case TAG_NAME_REF:
+        case TAG_NAME_STRING:
+            return Json5Token.NAME;
+        default:
+            throw malformed("Unknown tag " + tag);
+        }
+    }
+
+    public void beginObject() throws IOException {
+        expect(TAG_BEGIN_OBJECT, Json5Token.BEGIN_OBJECT);
+        push(true);
+    }
+
+    public void endObject() throws IOException {
+        if (stackSize == 0 || !stack[stackSize - 1])
+            throw unexpected(Json5Token.END_OBJECT);
+        expect(TAG_END, Json5Token.END_OBJECT);
+        stackSize--;
+    }
+
+    public void beginArray() throws IOException {
+        if (pos < limit && buf[pos] >= TAG_PACKED_INTS && buf[pos] <= TAG_PACKED_BOOLEANS)
+            throw malformed("Expected BEGIN_ARRAY but was a packed array");
+        expect(TAG_BEGIN_ARRAY, Json5Token.BEGIN_ARRAY);
+        push(false);
+    }
+
+    public void endArray() throws IOException {
+        if (stackSize == 0 || stack[stackSize - 1])
+            throw unexpected(Json5Token.END_ARRAY);
+        expect(TAG_END, Json5Token.END_ARRAY);
+        stackSize--;
+    }
+
+    public boolean hasNext() {
+        return pos < limit && buf[pos] != TAG_END;
+    }
+
+    /**
+     * Consumes the next token, which must be a name.
+     * @return the name
+     * @throws IOException if the next token isn't a name
+     */
+    public @NotNull String nextName() throws IOException {
+        int id = readNameId();
+        return new String(buf, nameOffsets[id], nameLengths[id], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Consumes the next token, which must be a name, and looks it up in a name table.
+     * @param names name table, which must be the same table the name was written with
+     * @return index of the name in the table, or -1 if it isn't in the table
+     * @throws IOException if the next token isn't a name
+     */
+    public int nextName(byte @NotNull [] @NotNull [] names) throws IOException {
+        int id = readNameId();
+        // objects of the same type reuse the same names, so this is usually a hit
+        if (nameTables[id] == names)
+            return nameTableIndices[id];
+        int start = nameOffsets[id], len = nameLengths[id];
+        int index = -1;
+        outer:
+        for (int i = 0; i < names.length; i++) {
+            byte[] name = names[i];
+            if (name.length != len)
+                continue;
+            for (int j = 0; j < len; j++) {
+                if (name[j] != buf[start + j])
+                    continue outer;
+            }
+            index = i;
+            break;
+        }
+        nameTables[id] = names;
+        nameTableIndices[id] = index;
+        return index;
+    }
+
+    public @NotNull String nextString() throws IOException {
+        expect(TAG_STRING, Json5Token.STRING);
+        int len = readLength();
+        String value = new String(buf, pos, len, StandardCharsets.UTF_8);
+        pos += len;
+        return value;
+    }
+
+    public boolean nextBoolean() throws IOException {
+        require(1);
+        byte tag = buf[pos];
+        if (tag != TAG_TRUE && tag != TAG_FALSE)
+            throw unexpected(Json5Token.BOOLEAN);
+        pos++;
+        return tag == TAG_TRUE;
+    }
+
+    public void nextNull() throws IOException {
+        expect(TAG_NULL, Json5Token.NULL);
+    }
+
+    public int nextInt() throws IOException {
+        long value = nextLong();
+        if (value != (int) value)
+            throw malformed("Expected an int but was " + value);
+        return (int) value;
+    }
+
+    public long nextLong() throws IOException {
+        require(1);
+        byte tag = buf[pos];
+        if (tag == TAG_INT) {
+            pos++;
+            long zigzag = readVarLong();
+            return (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+        double d = nextDouble();
+        long value = (long) d;
+        if (value != d)
+            throw malformed("Expected a long but was " + d);
+        return value;
+    }
+
+    public double nextDouble() throws IOException {
+        require(1);
+        switch (buf[pos]) {
+        case TAG_INT:
+            return nextLong();
+        case TAG_FLOAT:
+            pos++;
+            return Float.intBitsToFloat(readInt());
+        case TAG_DOUBLE:
+            pos++;
+            return Double.longBitsToDouble(readLong());
+        default:
+            throw unexpected(Json5Token.NUMBER);
+        }
+    }
+
+    /**
+     * Consumes the next value, which must be an array of integers (packed or not).
+     * @return the array
+     * @throws IOException if the next value isn't an array of integers
+     */
+    public int @NotNull [] nextIntArray() throws IOException {
+        if (pos < limit && buf[pos] == TAG_PACKED_INTS) {
+            pos++;
+            int[] values = new int[readCount(1)];
+            for (int i = 0; i < values.length; i++) {
+                long zigzag = readVarLong();
+                long value = (zigzag >>> 1) ^ -(zigzag & 1);
+                if (value != (int) value)
+                    throw malformed("Expected an int but was " + value);
+                values[i] = (int) value;
+            }
+            return values;
+        }
+        int[] values = new int[16];
+        int count = 0;
+        beginArray();
+        while (hasNext()) {
+            if (count == values.length)
+                values = Arrays.copyOf(values, count * 2);
+            values[count++] = nextInt();
+        }
+        endArray();
+        return Arrays.copyOf(values, count);
+    }
+
+    /**
+     * Consumes the next value, which must be an array of integers (packed or not).
+     * @return the array
+     * @throws IOException if the next value isn't an array of integers
+     */
+    public long @NotNull [] nextLongArray() throws IOException {
+        if (pos < limit && buf[pos] == TAG_PACKED_INTS) {
+            pos++;
+            long[] values = new long[readCount(1)];
+            for (int i = 0; i < values.length; i++) {
+                long zigzag = readVarLong();
+                values[i] = (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+            return values;
+        }
+        long[] values = new long[16];
+        int count = 0;
+        beginArray();
+        while (hasNext()) {
+            if (count == values.length)
+                values = Arrays.copyOf(values, count * 2);
+            values[count++] = nextLong();
+        }
+        endArray();
+        return Arrays.copyOf(values, count);
+    }
+
+    /**
+     * Consumes the next value, which must be an array of numbers (packed or not).
+     * @return the array
+     * @throws IOException if the next value isn't an array of numbers
+     */
+    public float @NotNull [] nextFloatArray() throws IOException {
+        if (pos < limit && buf[pos] == TAG_PACKED_FLOATS) {
+            pos++;
+            float[] values = new float[readCount(4)];
+            for (int i = 0; i < values.length; i++)
+                values[i] = Float.intBitsToFloat(readInt());
+            return values;
+        }
+        float[] values = new float[16];
+        int count = 0;
+        beginArray();
+        while (hasNext()) {
+            if (count == values.length)
+                values = Arrays.copyOf(values, count * 2);
+            values[count++] = (float) nextDouble();
+        }
+        endArray();
+        return Arrays.copyOf(values, count);
+    }
+
+    /**
+     * Consumes the next value, which must be an array of numbers (packed or not).
+     * @return the array
+     * @throws IOException if the next value isn't an array of numbers
+     */
+    public double @NotNull [] nextDoubleArray() throws IOException {
+        if (pos < limit && buf[pos] == TAG_PACKED_DOUBLES) {
+            pos++;
+            double[] values = new double[readCount(8)];
+            for (int i = 0; i < values.length; i++)
+                values[i] = Double.longBitsToDouble(readLong());
+            return values;
+        }
+        double[] values = new double[16];
+        int count = 0;
+        beginArray();
+        while (hasNext()) {
+            if (count == values.length)
+                values = Arrays.copyOf(values, count * 2);
+            values[count++] = nextDouble();
+        }
+        endArray();
+        return Arrays.copyOf(values, count);
+    }
+
+    /**
+     * Consumes the next value, which must be an array of booleans (packed or not).
+     * @return the array
+     * @throws IOException if the next value isn't an array of booleans
+     */
+    public boolean @NotNull [] nextBooleanArray() throws IOException {
+        if (pos < limit && buf[pos] == TAG_PACKED_BOOLEANS) {
+            pos++;
+            int len = readVarInt();
+            require((len + 7) / 8);
+            boolean[] values = new boolean[len];
+            for (int i = 0; i < len; i++)
+                values[i] = (buf[pos + (i >> 3)] & (1 << (i & 7))) != 0;
+            pos += (len + 7) / 8;
+            return values;
+        }
+        boolean[] values = new boolean[16];
+        int count = 0;
+        beginArray();
+        while (hasNext()) {
+            if (count == values.length)
+                values = Arrays.copyOf(values, count * 2);
+            values[count++] = nextBoolean();
+        }
+        endArray();
+        return Arrays.copyOf(values, count);
+    }
+
+    /**
+     * Skips the next value, recursively skipping nested objects and arrays.<p>
+     * If the next token is a name, only the name is skipped.
+     * @throws IOException if the data is malformed
+     */
+    public void skipValue() throws IOException {
+        walkValue(null);
+    }
+
+    /**
+     * Consumes the next value, and returns it as a document of its own.<p>
+     * The result can be read with a new reader, or written back with {@link BinaryWriter#rawValue(byte[])}. Names
+     * that the value refers to by index are copied into it, so it doesn't depend on the rest of this document.
+     * @return encoded value
+     * @throws IOException if the next token isn't a value, or if the data is malformed
+     */
+    public byte @NotNull [] readRawValue() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (BinaryWriter writer = new BinaryWriter(out)) {
+            copyValue(writer);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Copies the next value to a writer as-is, except for names, which are translated to the writer's dictionary.
+     */
+    void copyValue(@NotNull BinaryWriter writer) throws IOException {
+        Json5Token token = peek();
+        switch (token) {
+        case NAME:
+        case END_OBJECT:
+        case END_ARRAY:
+        case END_DOCUMENT:
+            throw malformed("Expected a value but was " + token);
+        }
+        walkValue(writer);
+    }
+
+    private void walkValue(@Nullable BinaryWriter writer) throws IOException {
+        // dictionary index of each name in this document -> index in the writer's document + 1, or 0 if not written
+        int[] writerIds = null;
+        int copyStart = pos;
+        int depth = 0;
+        do {
+            require(1);
+            byte tag = buf[pos];
+            switch (tag) {
+            case TAG_BEGIN_OBJECT:
+            case TAG_BEGIN_ARRAY:
+                pos++;
+                push(tag == TAG_BEGIN_OBJECT);
+                depth++;
+                break;
+            case TAG_END:
+                if (depth == 0)
+                    return;
+                pos++;
+                stackSize--;
+                depth--;
+                break;
+            case TAG_NULL:
+            case TAG_FALSE:
+            case TAG_TRUE:
+                pos++;
+                break;
+            case TAG_INT:
+                pos++;
+                readVarLong();
+                break;
+            case TAG_FLOAT:
+                pos++;
+                skip(4);
+                break;
+            case TAG_DOUBLE:
+                pos++;
+                skip(8);
+                break;
+            case TAG_STRING:
+                pos++;
+                skip(readLength());
+                break;
+            case TAG_NAME_REF:
+            case TAG_NAME_STRING:
+                if (writer == null) {
+                    // even when skipping, later names may refer to this one
+                    readNameId();
+                    break;
+                }
+                writer.writeRaw(buf, copyStart, pos - copyStart);
+                int id = readNameId();
+                if (writerIds == null || id >= writerIds.length)
+                    writerIds = writerIds == null ? new int[nameCount + 16] : Arrays.copyOf(writerIds, nameCount + 16);
+                if (writerIds[id] == 0)
+                    writerIds[id] = writer.nameString(buf, nameOffsets[id], nameLengths[id]) + 1;
+                else
+                    writer.nameRef(writerIds[id] - 1);
+                copyStart = pos;
+                break;
+            case TAG_PACKED_INTS:
+                pos++;
+                for (int i = readCount(1); i > 0; i--)
+                    readVarLong();
+                break;
+            case TAG_PACKED_FLOATS:
+                pos++;
+                skip(readCount(4) * 4);
+                break;
+            case TAG_PACKED_DOUBLES:
+                pos++;
+                skip(readCount(8) * 8);
+                break;
+            case TAG_PACKED_BOOLEANS:
+                pos++;
+                skip((readVarInt() + 7) / 8);
+                break;
+            default:
+                throw malformed("Unknown tag " + tag);
+            }
+        } while (depth > 0);
+        if (writer != null)
+            writer.writeRaw(buf, copyStart, pos - copyStart);
+    }
+
+    @Override
+    public void close() {
+        stackSize = 0;
+    }
+
+    private void expect(byte tag, @NotNull Json5Token token) throws IOException {
+        require(1);
+        if (buf[pos] != tag)
+            throw unexpected(token);
+        pos++;
+    }
+
+    private void push(boolean object) {
+        if (stackSize == stack.length)
+            stack = Arrays.copyOf(stack, stackSize * 2);
+        stack[stackSize++] = object;
+    }
+
+    private void require(int bytes) throws IOException {
+        if (limit - pos < bytes)
+            throw malformed("Unexpected end of data");
+    }
+
+    private void skip(int bytes) throws IOException {
+        require(bytes);
+        pos += bytes;
+    }
+
+    private int readNameId() throws IOException {
+        require(1);
+        if (buf[pos] == TAG_NAME_REF) {
+            pos++;
+            int id = readVarInt();
+            if (id >= nameCount)
+                throw malformed("Unknown name reference " + id);
+            return id;
+        }
+        expect(TAG_NAME_STRING, Json5Token.NAME);
+        int len = readLength();
+        if (nameCount == nameOffsets.length) {
+            int newLength = nameCount * 2;
+            nameOffsets = Arrays.copyOf(nameOffsets, newLength);
+            nameLengths = Arrays.copyOf(nameLengths, newLength);
+            nameTables = Arrays.copyOf(nameTables, newLength);
+            nameTableIndices = Arrays.copyOf(nameTableIndices, newLength);
+        }
+        nameOffsets[nameCount] = pos;
+        nameLengths[nameCount] = len;
+        pos += len;
+        return nameCount++;
+    }
+
+    private int readCount(int minElementSize) throws IOException {
+        int count = readVarInt();
+        // don't let corrupt data make us allocate a huge array
+        if ((long) count * minElementSize > limit - pos)
+            throw malformed("Unexpected end of data");
+        return count;
+    }
+
+    private int readInt() throws IOException {
+        require(4);
+        int value = ((buf[pos] & 0xFF) << 24) | ((buf[pos + 1] & 0xFF) << 16) | ((buf[pos + 2] & 0xFF) << 8) | (buf[pos + 3] & 0xFF);
+        pos += 4;
+        return value;
+    }
+
+    private long readLong() throws IOException {
+        require(8);
+        long value = 0;
+        for (int i = 0; i < 8; i++)
+            value = (value << 8) | (buf[pos++] & 0xFF);
+        return value;
+    }
+
+    private int readLength() throws IOException {
+        int len = readVarInt();
+        require(len);
+        return len;
+    }
+
+    private int readVarInt() throws IOException {
+        long value = readVarLong();
+        if (value < 0 || value > Integer.MAX_VALUE)
+            throw malformed("Varint out of range");
+        return (int) value;
+    }
+
+    private long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            require(1);
+            byte b = buf[pos++];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0)
+                return value;
+        }
+        throw malformed("Varint too long");
+    }
+
+    private @NotNull IOException unexpected(@NotNull Json5Token expected) throws IOException {
+        return malformed("Expected " + expected + " but was " + peek());
+    }
+
+    private @NotNull IOException malformed(@NotNull String message) {
+        return new IOException("Malformed binary data: " + message + " at offset " + pos);
+    }
+}
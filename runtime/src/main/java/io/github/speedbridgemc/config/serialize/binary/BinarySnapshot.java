@@ -0,0 +1,88 @@
+package io.github.speedbridgemc.config.serialize.binary;
+
+import io.github.speedbridgemc.config.serialize.FileFingerprint;
+import io.github.speedbridgemc.config.serialize.PathUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Reads and writes binary snapshot files - the binary encoding of a config, stored next to its text file.<p>
+ * A snapshot's header records the fingerprint of the text file it was made from and a hash of the config's schema,
+ * so generated handlers can decode the snapshot instead of reparsing the text file as long as neither has changed.
+ */
+public final class BinarySnapshot {
+    private BinarySnapshot() { }
+
+    private static final int MAGIC = 0x53424353; // "SBCS"
+    private static final byte VERSION = 2;
+    private static final int HEADER_SIZE = 4 + 1 + 8 + 8 + 8 + 8;
+
+    /**
+     * Resolves the snapshot path for a config file - {@code "{path}.bin"}.
+     * @param path path of config file
+     * @return path of snapshot file
+     */
+    public static @NotNull Path resolveSnapshotPath(@NotNull Path path) {
+        return path.resolveSibling(path.getFileName() + ".bin");
+    }
+
+    /**
+     * Opens a snapshot file, if it matches.
+     * @param path path of snapshot file
+     * @param schemaHash hash of the config's schema
+     * @param source fingerprint of the config's text file
+     * @return a reader over the snapshot's contents, or {@code null} if there's no snapshot file or it doesn't
+     * match the schema or text file
+     * @throws IOException if the snapshot file couldn't be read
+     */
+    public static @Nullable BinaryReader read(@NotNull Path path, long schemaHash, @NotNull FileFingerprint source) throws IOException {
+        byte[] data;
+        try {
+            data = Files.readAllBytes(path);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        if (data.length < HEADER_SIZE)
+            return null;
+        ByteBuffer header = ByteBuffer.wrap(data, 0, HEADER_SIZE);
+        if (header.getInt() != MAGIC || header.get() != VERSION || header.getLong() != schemaHash
+                || header.getLong() != source.size || header.getLong() != source.lastModified || header.getLong() != source.hash)
+            return null;
+        return new BinaryReader(data, HEADER_SIZE, data.length - HEADER_SIZE);
+    }
+
+    /**
+     * Writes a snapshot file. The file is written to a temporary file first, then moved into place.
+     * @param path path of snapshot file
+     * @param schemaHash hash of the config's schema
+     * @param source fingerprint of the config's text file
+     * @param contents contents of snapshot, as written by a {@link BinaryWriter}
+     * @throws IOException if the snapshot file couldn't be written
+     */
+    public static void write(@NotNull Path path, long schemaHash, @NotNull FileFingerprint source, byte @NotNull [] contents) throws IOException {
+        byte[] data = new byte[HEADER_SIZE + contents.length];
+        ByteBuffer.wrap(data)
+                .putInt(MAGIC)
+                .put(VERSION)
+                .putLong(schemaHash)
+                .putLong(source.size)
+                .putLong(source.lastModified)
+                .putLong(source.hash)
+                .put(contents);
+        Path tempPath = PathUtils.resolveTimestampedSibling(path, "TEMP");
+        try {
+            Files.write(tempPath, data);
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(tempPath);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package io.github.speedbridgemc.config.serialize.binary;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.IdentityHashMap;
+
+/**
+ * Writes a compact, tagged binary encoding of a JSON document, one token at a time.<p>
+ * The API mirrors {@link io.github.speedbridgemc.config.serialize.json5.Json5Writer}. Every value is prefixed with a
+ * single tag byte, integers and lengths are written as (zigzag) varints, and primitive arrays can be written packed,
+ * without a tag per element.<p>
+ * Each name is only written out the first time it's used in a document. After that, it's referred to by its index in
+ * the document's own name dictionary, so the output is compact but still doesn't depend on the field order of the
+ * type that wrote it. Read the output back with {@link BinaryReader}.
+ */
+public final class BinaryWriter implements Closeable, Flushable {
+    static final byte TAG_NULL = 0,
+            TAG_FALSE = 1,
+            TAG_TRUE = 2,
+            TAG_INT = 3,
+            TAG_FLOAT = 4,
+            TAG_DOUBLE = 5,
+            TAG_STRING = 6,
+            TAG_BEGIN_ARRAY = 7,
+            TAG_BEGIN_OBJECT = 8,
+            TAG_END = 9,
+            TAG_NAME_REF = 10, // index in the document's name dictionary
+            TAG_NAME_STRING = 11, // also added to the document's name dictionary
+            TAG_PACKED_INTS = 12, // count, then zigzag varints
+            TAG_PACKED_FLOATS = 13,
+            TAG_PACKED_DOUBLES = 14,
+            TAG_PACKED_BOOLEANS = 15; // count, then 8 booleans per byte, lowest bit first
+
+    private final OutputStream out;
+    private final byte[] buf;
+    private int count;
+    // name table -> dictionary index + 1 of each of its names, or 0 if not written yet
+    private final IdentityHashMap<byte[][], int[]> nameIds;
+    private int nextNameId;
+
+    /**
+     * Creates a writer. Output is buffered internally, so the stream doesn't need to be buffered.
+     * @param out stream to write to
+     */
+    public BinaryWriter(@NotNull OutputStream out) {
+        this.out = out;
+        buf = new byte[8192];
+        nameIds = new IdentityHashMap<>();
+    }
+
+    public void beginObject() throws IOException {
+        write(TAG_BEGIN_OBJECT);
+    }
+
+    public void endObject() throws IOException {
+        write(TAG_END);
+    }
+
+    public void beginArray() throws IOException {
+        write(TAG_BEGIN_ARRAY);
+    }
+
+    public void endArray() throws IOException {
+        write(TAG_END);
+    }
+
+    /**
+     * Writes the name of the next property.
+     * @param name property name
+     */
+    public void name(@NotNull String name) throws IOException {
+        name(name.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes the name of the next property.
+     * @param name UTF-8 encoded property name
+     */
+    public void name(byte @NotNull [] name) throws IOException {
+        nameString(name, 0, name.length);
+    }
+
+    /**
+     * Writes the name of the next property from a name table.<p>
+     * The name is only written out the first time; after that, it's written as a reference.
+     * @param names table of UTF-8 encoded names
+     * @param index index of the name in the table
+     */
+    public void name(byte @NotNull [] @NotNull [] names, int index) throws IOException {
+        int[] ids = nameIds.get(names);
+        if (ids == null) {
+            ids = new int[names.length];
+            nameIds.put(names, ids);
+        }
+        int id = ids[index];
+        if (id == 0) {
+            ids[index] = nextNameId + 1;
+            name(names[index]);
+        } else {
+            nameRef(id - 1);
+        }
+    }
+
+    public void value(@Nullable String value) throws IOException {
+        if (value == null) {
+            nullValue();
+            return;
+        }
+        write(TAG_STRING);
+        writeBytes(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void value(boolean value) throws IOException {
+        write(value ? TAG_TRUE : TAG_FALSE);
+    }
+
+    public void value(@Nullable Boolean value) throws IOException {
+        if (value == null)
+            nullValue();
+        else
+            value(value.booleanValue());
+    }
+
+    public void value(long value) throws IOException {
+        write(TAG_INT);
+        // zigzag, so small negative numbers stay small
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    public void value(double value) throws IOException {
+        write(TAG_DOUBLE);
+        writeLong(Double.doubleToRawLongBits(value));
+    }
+
+    public void value(float value) throws IOException {
+        write(TAG_FLOAT);
+        writeInt(Float.floatToRawIntBits(value));
+    }
+
+    public void value(@Nullable Number value) throws IOException {
+        if (value == null)
+            nullValue();
+        else if (value instanceof Float)
+            value(value.floatValue());
+        else if (value instanceof Double)
+            value(value.doubleValue());
+        else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte)
+            value(value.longValue());
+        else
+            value(value.doubleValue());
+    }
+
+    public void nullValue() throws IOException {
+        write(TAG_NULL);
+    }
+
+    /**
+     * Writes a value that was encoded separately.
+     * @param raw encoded value, such as one returned by {@link BinaryReader#readRawValue()}
+     * @throws IOException if the value is malformed
+     */
+    public void rawValue(byte @NotNull [] raw) throws IOException {
+        // names in the value refer to its own dictionary, so they need to be translated to this document's
+        new BinaryReader(raw).copyValue(this);
+    }
+
+    /**
+     * Writes a packed array.
+     * @param values array
+     */
+    public void value(int @Nullable [] values) throws IOException {
+        if (values == null) {
+            nullValue();
+            return;
+        }
+        write(TAG_PACKED_INTS);
+        writeVarInt(values.length);
+        for (int value : values)
+            writeVarLong(((long) value << 1) ^ (value >> 31));
+    }
+
+    /**
+     * Writes a packed array.
+     * @param values array
+     */
+    public void value(long @Nullable [] values) throws IOException {
+        if (values == null) {
+            nullValue();
+            return;
+        }
+        write(TAG_PACKED_INTS);
+        writeVarInt(values.length);
+        for (long value : values)
+            writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * Writes a packed array.
+     * @param values array
+     */
+    public void value(float @Nullable [] values) throws IOException {
+        if (values == null) {
+            nullValue();
+            return;
+        }
+        write(TAG_PACKED_FLOATS);
+        writeVarInt(values.length);
+        for (float value : values)
+            writeInt(Float.floatToRawIntBits(value));
+    }
+
+    /**
+     * Writes a packed array.
+     * @param values array
+     */
+    public void value(double @Nullable [] values) throws IOException {
+        if (values == null) {
+            nullValue();
+            return;
+        }
+        write(TAG_PACKED_DOUBLES);
+        writeVarInt(values.length);
+        for (double value : values)
+            writeLong(Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * Writes a packed array.
+     * @param values array
+     */
+    public void value(boolean @Nullable [] values) throws IOException {
+        if (values == null) {
+            nullValue();
+            return;
+        }
+        write(TAG_PACKED_BOOLEANS);
+        writeVarInt(values.length);
+        for (int i = 0; i < values.length; i += 8) {
+            int bits = 0;
+            for (int j = 0, end = Math.min(8, values.length - i); j < end; j++) {
+                if (values[i + j])
+                    bits |= 1 << j;
+            }
+            write((byte) bits);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flushBuffer();
+        out.close();
+    }
+
+    /**
+     * Writes a name and adds it to the document's name dictionary.
+     * @return index of the name in the dictionary
+     */
+    int nameString(byte @NotNull [] src, int off, int len) throws IOException {
+        write(TAG_NAME_STRING);
+        writeVarInt(len);
+        writeRaw(src, off, len);
+        return nextNameId++;
+    }
+
+    void nameRef(int id) throws IOException {
+        write(TAG_NAME_REF);
+        writeVarInt(id);
+    }
+
+    void writeRaw(byte @NotNull [] src, int off, int len) throws IOException {
+        if (len > buf.length - count) {
+            flushBuffer();
+            if (len > buf.length) {
+                out.write(src, off, len);
+                return;
+            }
+        }
+        System.arraycopy(src, off, buf, count, len);
+        count += len;
+    }
+
+    private void writeBytes(byte @NotNull [] bytes) throws IOException {
+        writeVarInt(bytes.length);
+        writeRaw(bytes, 0, bytes.length);
+    }
+
+    private void writeVarInt(int value) throws IOException {
+        writeVarLong(value & 0xFFFFFFFFL);
+    }
+
+    private void writeVarLong(long value) throws IOException {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buf[count++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buf[count++] = (byte) value;
+    }
+
+    private void writeInt(int value) throws IOException {
+        ensureCapacity(4);
+        buf[count++] = (byte) (value >>> 24);
+        buf[count++] = (byte) (value >>> 16);
+        buf[count++] = (byte) (value >>> 8);
+        buf[count++] = (byte) value;
+    }
+
+    private void writeLong(long value) throws IOException {
+        ensureCapacity(8);
+        for (int shift = 56; shift >= 0; shift -= 8)
+            buf[count++] = (byte) (value >>> shift);
+    }
+
+    private void write(byte b) throws IOException {
+        if (count == buf.length)
+            flushBuffer();
+        buf[count++] = b;
+    }
+
+    private void ensureCapacity(int bytes) throws IOException {
+        if (buf.length - count < bytes)
+            flushBuffer();
+    }
+
+    private void flushBuffer() throws IOException {
+        if (count > 0) {
+            out.write(buf, 0, count);
+            count = 0;
+        }
+    }
+}
@@ -0,0 +1,829 @@
+package io.github.speedbridgemc.config.serialize.json5;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads a JSON5 document from UTF-8 encoded bytes, one token at a time.<p>
+ * The API mirrors Gson's {@code JsonReader}, but the reader works directly on the document's bytes - names can be
+ * matched against pre-encoded tables (see {@link #nextName(byte[][])}) and integers are parsed without decoding
+ * them to strings first.
+ */
+public final class Json5Reader implements Closeable {
+    private static final int PEEKED_NONE = 0,
+            PEEKED_BEGIN_OBJECT = 1,
+            PEEKED_END_OBJECT = 2,
+            PEEKED_BEGIN_ARRAY = 3,
+            PEEKED_END_ARRAY = 4,
+            PEEKED_TRUE = 5,
+            PEEKED_FALSE = 6,
+            PEEKED_NULL = 7,
+            PEEKED_QUOTED = 8,
+            PEEKED_QUOTED_NAME = 9,
+            PEEKED_UNQUOTED_NAME = 10,
+            PEEKED_NUMBER = 11,
+            PEEKED_EOF = 12;
+
+    private static final int SCOPE_EMPTY_ARRAY = 1,
+            SCOPE_NONEMPTY_ARRAY = 2,
+            SCOPE_EMPTY_OBJECT = 3,
+            SCOPE_DANGLING_NAME = 4,
+            SCOPE_NONEMPTY_OBJECT = 5,
+            SCOPE_EMPTY_DOCUMENT = 6,
+            SCOPE_NONEMPTY_DOCUMENT = 7;
+
+    private final byte[] buf;
+    private final int limit;
+    private int pos;
+    private int peeked;
+    // quote character of the peeked string or name
+    private byte quote;
+    // bounds of the peeked number
+    private int numberStart, numberEnd;
+    // result of the last successful parseIntegral call
+    private long parsedLong;
+    // start of the peeked value
+    private int valueStart;
+    private int[] stack;
+    private int stackSize;
+
+    /**
+     * Creates a reader over an entire array of bytes.
+     * @param buf UTF-8 encoded document
+     */
+    public Json5Reader(byte @NotNull [] buf) {
+        this(buf, 0, buf.length);
+    }
+
+    /**
+     * Creates a reader over a range of an array of bytes.
+     * @param buf array containing the UTF-8 encoded document
+     * @param off offset of the document in the array
+     * @param len length of the document, in bytes
+     */
+    public Json5Reader(byte @NotNull [] buf, int off, int len) {
+        if (off < 0 || len < 0 || off + len > buf.length)
+            throw new IndexOutOfBoundsException("off=" + off + ", len=" + len + ", length=" + buf.length);
+        this.buf = buf;
+        pos = off;
+        limit = off + len;
+        // skip the byte order mark, if there is one
+        if (len >= 3 && buf[off] == (byte) 0xEF && buf[off + 1] == (byte) 0xBB && buf[off + 2] == (byte) 0xBF)
+            pos += 3;
+        stack = new int[32];
+        stack[stackSize++] = SCOPE_EMPTY_DOCUMENT;
+    }
+
+    /**
+     * Returns the type of the next token, without consuming it.
+     * @return type of next token
+     * @throws Json5SyntaxException if the document is malformed
+     */
+    public @NotNull Json5Token peek() throws Json5SyntaxException {
+        int p = peeked;
+        if (p == PEEKED_NONE)
+            p = doPeek();
+        switch (p) {
+        case PEEKED_BEGIN_OBJECT:
+            return Json5Token.BEGIN_OBJECT;
+        case PEEKED_END_OBJECT:
+            return Json5Token.END_OBJECT;
+        case PEEKED_BEGIN_ARRAY:
+            return Json5Token.BEGIN_ARRAY;
+        case PEEKED_END_ARRAY:
+            return Json5Token.END_ARRAY;
+        case PEEKED_TRUE:
+        case PEEKED_FALSE:
+            return Json5Token.BOOLEAN;
+        case PEEKED_NULL:
+            return Json5Token.NULL;
+        case PEEKED_QUOTED:
+            return Json5Token.STRING;
+        case PEEKED_QUOTED_NAME:
+        case PEEKED_UNQUOTED_NAME:
+            return Json5Token.NAME;
+        case PEEKED_NUMBER:
+            return Json5Token.NUMBER;
+        case PEEKED_EOF:
+            return Json5Token.END_DOCUMENT;
+        default:
+            throw new AssertionError();
+        }
+    }
+
+    /**
+     * Consumes the next token, which must be the beginning of an object.
+     * @throws Json5SyntaxException if the next token isn't the beginning of an object
+     */
+    public void beginObject() throws Json5SyntaxException {
+        expect(PEEKED_BEGIN_OBJECT, Json5Token.BEGIN_OBJECT);
+        push(SCOPE_EMPTY_OBJECT);
+        peeked = PEEKED_NONE;
+    }
+
+    /**
+     * Consumes the next token, which must be the end of an object.
+     * @throws Json5SyntaxException if the next token isn't the end of an object
+     */
+    public void endObject() throws Json5SyntaxException {
+        expect(PEEKED_END_OBJECT, Json5Token.END_OBJECT);
+        stackSize--;
+        peeked = PEEKED_NONE;
+    }
+
+    /**
+     * Consumes the next token, which must be the beginning of an array.
+     * @throws Json5SyntaxException if the next token isn't the beginning of an array
+     */
+    public void beginArray() throws Json5SyntaxException {
+        expect(PEEKED_BEGIN_ARRAY, Json5Token.BEGIN_ARRAY);
+        push(SCOPE_EMPTY_ARRAY);
+        peeked = PEEKED_NONE;
+    }
+
+    /**
+     * Consumes the next token, which must be the end of an array.
+     * @throws Json5SyntaxException if the next token isn't the end of an array
+     */
+    public void endArray() throws Json5SyntaxException {
+        expect(PEEKED_END_ARRAY, Json5Token.END_ARRAY);
+        stackSize--;
+        peeked = PEEKED_NONE;
+    }
+
+    /**
+     * Checks if the current object or array has another element.
+     * @return {@code true} if there's another element, {@code false} otherwise
+     * @throws Json5SyntaxException if the document is malformed
+     */
+    public boolean hasNext() throws Json5SyntaxException {
+        int p = peeked;
+        if (p == PEEKED_NONE)
+            p = doPeek();
+        return p != PEEKED_END_OBJECT && p != PEEKED_END_ARRAY && p != PEEKED_EOF;
+    }
+
+    /**
+     * Consumes the next token, which must be a name, and decodes it.
+     * @return the name
+     * @throws Json5SyntaxException if the next token isn't a name
+     */
+    public @NotNull String nextName() throws Json5SyntaxException {
+        int p = peeked;
+        if (p == PEEKED_NONE)
+            p = doPeek();
+        String name;
+        if (p == PEEKED_QUOTED_NAME)
+            name = readString(quote);
+        else if (p == PEEKED_UNQUOTED_NAME) {
+            int end = identifierEnd(pos);
+            name = new String(buf, pos, end - pos, StandardCharsets.UTF_8);
+            pos = end;
+        } else
+            throw unexpected(Json5Token.NAME);
+        peeked = PEEKED_NONE;
+        return name;
+    }
+
+    /**
+     * Consumes the next token, which must be a name, and looks it up in a table of UTF-8 encoded names.<p>
+     * Unless the name contains escape sequences, it's compared directly against the table without being decoded.
+     * @param names table of names
+     * @return index of the name in the table, or -1 if it isn't in the table
+     * @throws Json5SyntaxException if the next token isn't a name
+     */
+    public int nextName(byte @NotNull [] @NotNull [] names) throws Json5SyntaxException {
+        int p = peeked;
+        if (p == PEEKED_NONE)
+            p = doPeek();
+        int start = pos, end;
+        if (p == PEEKED_QUOTED_NAME) {
+            end = start;
+            while (true) {
+                if (end >= limit)
+                    throw syntaxError("Unterminated name");
+                byte b = buf[end];
+                if (b == quote)
+                    break;
+                if (b == '\\') {
+                    // slow path, decode the name and compare its re-encoded form
+                    peeked = PEEKED_NONE;
+                    byte[] name = readString(quote).getBytes(StandardCharsets.UTF_8);
+                    return indexOf(names, name, 0, name.length);
+                }
+                end++;
+            }
+            pos = end + 1;
+        } else if (p == PEEKED_UNQUOTED_NAME) {
+            end = identifierEnd(start);
+            pos = end;
+        } else
+            throw unexpected(Json5Token.NAME);
+        peeked = PEEKED_NONE;
+        return indexOf(names, buf, start, end - start);
+    }
+
+    private static int indexOf(byte @NotNull [] @NotNull [] names, byte @NotNull [] src, int off, int len) {
+        outer:
+        for (int i = 0; i < names.length; i++) {
+            byte[] name = names[i];
+            if (name.length != len)
+                continue;
+            for (int j = 0; j < len; j++) {
+                if (name[j] != src[off + j])
+                    continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Consumes the next token, which must be a string or a number, and returns its value as a string.
+     * @return string value of token
+     * @throws Json5SyntaxException if the next token isn't a string or a number
+     */
+    public @NotNull String nextString() throws Json5SyntaxException {
+        int p = peeked;
+        if (p == PEEKED_NONE)
+            p = doPeek();
+        String result;
+        if (p == PEEKED_QUOTED)
+            result = readString(quote);
+        else if (p == PEEKED_NUMBER)
+            result = numberText();
+        else
+            throw unexpected(Json5Token.STRING);
+        peeked = PEEKED_NONE;
+        return result;
+    }
+
+    /**
+     * Consumes the next token, which must be a boolean.
+     * @return boolean value of token
+     * @throws Json5SyntaxException if the next token isn't a boolean
+     */
+    public boolean nextBoolean() throws Json5SyntaxException {
+        int p = peeked;
+        if (p == PEEKED_NONE)
+            p = doPeek();
+        boolean result;
+        if (p == PEEKED_TRUE)
+            result = true;
+        else if (p == PEEKED_FALSE)
+            result = false;
+        else
+            throw unexpected(Json5Token.BOOLEAN);
+        peeked = PEEKED_NONE;
+        return result;
+    }
+
+    /**
+     * Consumes the next token, which must be {@code null}.
+     * @throws Json5SyntaxException if the next token isn't {@code null}
+     */
+    public void nextNull() throws Json5SyntaxException {
+        expect(PEEKED_NULL, Json5Token.NULL);
+        peeked = PEEKED_NONE;
+    }
+
+    /**
+     * Consumes the next token, which must be a number, and returns its value as an {@code int}.
+     * @return integer value of token
+     * @throws Json5SyntaxException if the next token isn't a number or can't be represented as an {@code int}
+     */
+    public int nextInt() throws Json5SyntaxException {
+        expect(PEEKED_NUMBER, Json5Token.NUMBER);
+        int result;
+        if (parseIntegral() && parsedLong == (int) parsedLong)
+            result = (int) parsedLong;
+        else {
+            double d = parseDouble();
+            result = (int) d;
+            if (result != d)
+                throw syntaxError("Expected an int but was " + numberText());
+        }
+        peeked = PEEKED_NONE;
+        return result;
+    }
+
+    /**
+     * Consumes the next token, which must be a number, and returns its value as a {@code long}.
+     * @return integer value of token
+     * @throws Json5SyntaxException if the next token isn't a number or can't be represented as a {@code long}
+     */
+    public long nextLong() throws Json5SyntaxException {
+        expect(PEEKED_NUMBER, Json5Token.NUMBER);
+        long result;
+        if (parseIntegral())
+            result = parsedLong;
+        else {
+            double d = parseDouble();
+            result = (long) d;
+            if (result != d)
+                throw syntaxError("Expected a long but was " + numberText());
+        }
+        peeked = PEEKED_NONE;
+        return result;
+    }
+
+    /**
+     * Consumes the next token, which must be a number, and returns its value as a {@code double}.
+     * @return floating-point value of token
+     * @throws Json5SyntaxException if the next token isn't a number
+     */
+    public double nextDouble() throws Json5SyntaxException {
+        expect(PEEKED_NUMBER, Json5Token.NUMBER);
+        double result;
+        if (parseIntegral())
+            result = parsedLong;
+        else
+            result = parseDouble();
+        peeked = PEEKED_NONE;
+        return result;
+    }
+
+    /**
+     * Skips the next value, recursively skipping nested objects and arrays.<p>
+     * If the next token is a name, only the name is skipped.
+     * @throws Json5SyntaxException if the document is malformed
+     */
+    public void skipValue() throws Json5SyntaxException {
+        int depth = 0;
+        do {
+            int p = peeked;
+            if (p == PEEKED_NONE)
+                p = doPeek();
+            switch (p) {
+            case PEEKED_BEGIN_OBJECT:
+                push(SCOPE_EMPTY_OBJECT);
+                depth++;
+                break;
+            case PEEKED_BEGIN_ARRAY:
+                push(SCOPE_EMPTY_ARRAY);
+                depth++;
+                break;
+            case PEEKED_END_OBJECT:
+            case PEEKED_END_ARRAY:
+                if (depth == 0)
+                    return;
+                stackSize--;
+                depth--;
+                break;
+            case PEEKED_QUOTED:
+            case PEEKED_QUOTED_NAME:
+                skipString(quote);
+                break;
+            case PEEKED_UNQUOTED_NAME:
+                pos = identifierEnd(pos);
+                break;
+            case PEEKED_EOF:
+                return;
+            default:
+                // literals are consumed while peeking
+                break;
+            }
+            peeked = PEEKED_NONE;
+        } while (depth > 0);
+    }
+
+    /**
+     * Consumes the next value, and returns its source as-is.<p>
+     * The result is a document of its own, so it can be read with a new reader or written back with
+     * {@link Json5Writer#rawValue(byte[])}. Comments and whitespace inside the value are kept.
+     * @return UTF-8 encoded source of the value
+     * @throws Json5SyntaxException if the next token isn't a value, or if the document is malformed
+     */
+    public byte @NotNull [] readRawValue() throws Json5SyntaxException {
+        Json5Token token = peek();
+        switch (token) {
+        case NAME:
+        case END_OBJECT:
+        case END_ARRAY:
+        case END_DOCUMENT:
+            throw syntaxError("Expected a value but was " + token);
+        }
+        int start = valueStart;
+        skipValue();
+        return Arrays.copyOfRange(buf, start, pos);
+    }
+
+    @Override
+    public void close() {
+        peeked = PEEKED_NONE;
+        stackSize = 0;
+    }
+
+    private void expect(int expected, @NotNull Json5Token token) throws Json5SyntaxException {
+        int p = peeked;
+        if (p == PEEKED_NONE)
+            p = doPeek();
+        if (p != expected)
+            throw unexpected(token);
+    }
+
+    private void push(int scope) {
+        if (stackSize == stack.length)
+            stack = Arrays.copyOf(stack, stackSize * 2);
+        stack[stackSize++] = scope;
+    }
+
+    private int doPeek() throws Json5SyntaxException {
+        if (stackSize == 0)
+            throw new IllegalStateException("Reader is closed");
+        int scope = stack[stackSize - 1];
+        int c;
+        switch (scope) {
+        case SCOPE_EMPTY_ARRAY:
+            stack[stackSize - 1] = SCOPE_NONEMPTY_ARRAY;
+            break;
+        case SCOPE_NONEMPTY_ARRAY:
+            c = nextNonWhitespace();
+            if (c == ']') {
+                pos++;
+                return peeked = PEEKED_END_ARRAY;
+            } else if (c != ',')
+                throw syntaxError("Expected ',' or ']'");
+            pos++;
+            break;
+        case SCOPE_EMPTY_OBJECT:
+        case SCOPE_NONEMPTY_OBJECT:
+            stack[stackSize - 1] = SCOPE_DANGLING_NAME;
+            if (scope == SCOPE_NONEMPTY_OBJECT) {
+                c = nextNonWhitespace();
+                if (c == '}') {
+                    pos++;
+                    return peeked = PEEKED_END_OBJECT;
+                } else if (c != ',')
+                    throw syntaxError("Expected ',' or '}'");
+                pos++;
+            }
+            c = nextNonWhitespace();
+            if (c == '}') {
+                // empty object or trailing comma
+                pos++;
+                return peeked = PEEKED_END_OBJECT;
+            } else if (c == '"' || c == '\'') {
+                quote = (byte) c;
+                pos++;
+                return peeked = PEEKED_QUOTED_NAME;
+            } else if (isIdentifierStart(c))
+                return peeked = PEEKED_UNQUOTED_NAME;
+            throw syntaxError("Expected name");
+        case SCOPE_DANGLING_NAME:
+            stack[stackSize - 1] = SCOPE_NONEMPTY_OBJECT;
+            if (nextNonWhitespace() != ':')
+                throw syntaxError("Expected ':'");
+            pos++;
+            break;
+        case SCOPE_EMPTY_DOCUMENT:
+            stack[stackSize - 1] = SCOPE_NONEMPTY_DOCUMENT;
+            break;
+        case SCOPE_NONEMPTY_DOCUMENT:
+            if (nextNonWhitespace() == -1)
+                return peeked = PEEKED_EOF;
+            throw syntaxError("Expected end of document");
+        default:
+            throw new AssertionError();
+        }
+
+        c = nextNonWhitespace();
+        valueStart = pos;
+        switch (c) {
+        case -1:
+            throw syntaxError("Unexpected end of document");
+        case ']':
+            if (scope == SCOPE_EMPTY_ARRAY || scope == SCOPE_NONEMPTY_ARRAY) {
+                // empty array or trailing comma
+                pos++;
+                return peeked = PEEKED_END_ARRAY;
+            }
+            throw syntaxError("Unexpected ']'");
+        case '{':
+            pos++;
+            return peeked = PEEKED_BEGIN_OBJECT;
+        case '[':
+            pos++;
+            return peeked = PEEKED_BEGIN_ARRAY;
+        case '"':
+        case '\'':
+            quote = (byte) c;
+            pos++;
+            return peeked = PEEKED_QUOTED;
+        default:
+            return peeked = peekLiteral();
+        }
+    }
+
+    private int peekLiteral() throws Json5SyntaxException {
+        int start = pos, end = start;
+        while (end < limit && !isDelimiter(buf[end]))
+            end++;
+        int len = end - start;
+        if (len == 0)
+            throw syntaxError("Expected value");
+        int result;
+        if (regionMatches(start, len, "true"))
+            result = PEEKED_TRUE;
+        else if (regionMatches(start, len, "false"))
+            result = PEEKED_FALSE;
+        else if (regionMatches(start, len, "null"))
+            result = PEEKED_NULL;
+        else {
+            byte c = buf[start];
+            if (!(c >= '0' && c <= '9') && c != '-' && c != '+' && c != '.' && c != 'I' && c != 'N')
+                throw syntaxError("Expected value");
+            numberStart = start;
+            numberEnd = end;
+            result = PEEKED_NUMBER;
+        }
+        pos = end;
+        return result;
+    }
+
+    private boolean regionMatches(int start, int len, @NotNull String literal) {
+        if (len != literal.length())
+            return false;
+        for (int i = 0; i < len; i++) {
+            if (buf[start + i] != literal.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean isDelimiter(byte b) {
+        switch (b) {
+        case ' ':
+        case '\t':
+        case '\n':
+        case '\r':
+        case '\f':
+        case 0x0B:
+        case ',':
+        case ':':
+        case ']':
+        case '}':
+        case '[':
+        case '{':
+        case '"':
+        case '\'':
+        case '/':
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    private static boolean isIdentifierStart(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == '$' || c >= 0x80;
+    }
+
+    private int identifierEnd(int start) {
+        int end = start;
+        while (end < limit) {
+            int c = buf[end] & 0xFF;
+            if (!isIdentifierStart(c) && !(c >= '0' && c <= '9'))
+                break;
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * Skips whitespace and comments.
+     * @return the next byte, which isn't consumed, or -1 if the end of the document was reached
+     */
+    private int nextNonWhitespace() throws Json5SyntaxException {
+        while (pos < limit) {
+            int c = buf[pos] & 0xFF;
+            switch (c) {
+            case ' ':
+            case '\t':
+            case '\n':
+            case '\r':
+            case '\f':
+            case 0x0B:
+                pos++;
+                continue;
+            case 0xC2:
+                // U+00A0 NO-BREAK SPACE
+                if (pos + 1 < limit && buf[pos + 1] == (byte) 0xA0) {
+                    pos += 2;
+                    continue;
+                }
+                return c;
+            case 0xE2:
+                // U+2028 LINE SEPARATOR, U+2029 PARAGRAPH SEPARATOR
+                if (pos + 2 < limit && buf[pos + 1] == (byte) 0x80
+                        && (buf[pos + 2] == (byte) 0xA8 || buf[pos + 2] == (byte) 0xA9)) {
+                    pos += 3;
+                    continue;
+                }
+                return c;
+            case '/':
+                if (pos + 1 < limit) {
+                    byte next = buf[pos + 1];
+                    if (next == '/') {
+                        pos += 2;
+                        while (pos < limit && buf[pos] != '\n' && buf[pos] != '\r')
+                            pos++;
+                        continue;
+                    } else if (next == '*') {
+                        int end = pos + 2;
+                        while (true) {
+                            if (end + 1 >= limit)
+                                throw syntaxError("Unterminated comment");
+                            if (buf[end] == '*' && buf[end + 1] == '/')
+                                break;
+                            end++;
+                        }
+                        pos = end + 2;
+                        continue;
+                    }
+                }
+                return c;
+            default:
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    private @NotNull String readString(byte quote) throws Json5SyntaxException {
+        StringBuilder builder = null;
+        int start = pos;
+        while (true) {
+            if (pos >= limit)
+                throw syntaxError("Unterminated string");
+            byte b = buf[pos];
+            if (b == quote) {
+                String chunk = new String(buf, start, pos - start, StandardCharsets.UTF_8);
+                pos++;
+                return builder == null ? chunk : builder.append(chunk).toString();
+            } else if (b == '\\') {
+                if (builder == null)
+                    builder = new StringBuilder();
+                builder.append(new String(buf, start, pos - start, StandardCharsets.UTF_8));
+                pos++;
+                readEscape(builder);
+                start = pos;
+            } else if (b == '\n' || b == '\r')
+                throw syntaxError("Unterminated string");
+            else
+                pos++;
+        }
+    }
+
+    private void readEscape(@NotNull StringBuilder builder) throws Json5SyntaxException {
+        if (pos >= limit)
+            throw syntaxError("Unterminated escape sequence");
+        byte c = buf[pos++];
+        switch (c) {
+        case 'b':
+            builder.append('\b');
+            break;
+        case 'f':
+            builder.append('\f');
+            break;
+        case 'n':
+            builder.append('\n');
+            break;
+        case 'r':
+            builder.append('\r');
+            break;
+        case 't':
+            builder.append('\t');
+            break;
+        case 'v':
+            builder.append('\u000B');
+            break;
+        case '0':
+            if (pos < limit && buf[pos] >= '0' && buf[pos] <= '9')
+                throw syntaxError("Octal escape sequences aren't allowed");
+            builder.append('\0');
+            break;
+        case 'x':
+            builder.append((char) readHex(2));
+            break;
+        case 'u':
+            builder.append((char) readHex(4));
+            break;
+        case '\r':
+            // line continuation
+            if (pos < limit && buf[pos] == '\n')
+                pos++;
+            break;
+        case '\n':
+            break;
+        default:
+            if (c >= '1' && c <= '9')
+                throw syntaxError("Octal escape sequences aren't allowed");
+            if (c < 0) {
+                // multi-byte character, keep it as is (this also covers escaped U+2028 and U+2029 line continuations)
+                pos--;
+                if (pos + 2 < limit && buf[pos] == (byte) 0xE2 && buf[pos + 1] == (byte) 0x80
+                        && (buf[pos + 2] == (byte) 0xA8 || buf[pos + 2] == (byte) 0xA9))
+                    pos += 3;
+                break;
+            }
+            builder.append((char) c);
+            break;
+        }
+    }
+
+    private int readHex(int digits) throws Json5SyntaxException {
+        if (pos + digits > limit)
+            throw syntaxError("Unterminated escape sequence");
+        int result = 0;
+        for (int i = 0; i < digits; i++) {
+            int digit = Character.digit(buf[pos++], 16);
+            if (digit < 0)
+                throw syntaxError("Malformed escape sequence");
+            result = (result << 4) | digit;
+        }
+        return result;
+    }
+
+    private void skipString(byte quote) throws Json5SyntaxException {
+        while (pos < limit) {
+            byte b = buf[pos++];
+            if (b == quote)
+                return;
+            else if (b == '\\')
+                pos++;
+        }
+        throw syntaxError("Unterminated string");
+    }
+
+    /**
+     * Parses the peeked number as a decimal or hexadecimal integer, without allocating.
+     * @return {@code true} if the number is an integer that fits in a {@code long}, {@code false} otherwise
+     */
+    private boolean parseIntegral() {
+        int i = numberStart, end = numberEnd;
+        boolean negative = false;
+        if (buf[i] == '-' || buf[i] == '+') {
+            negative = buf[i] == '-';
+            i++;
+        }
+        if (i == end)
+            return false;
+        long value = 0;
+        if (end - i > 2 && buf[i] == '0' && (buf[i + 1] == 'x' || buf[i + 1] == 'X')) {
+            i += 2;
+            if (end - i > 16)
+                return false;
+            for (; i < end; i++) {
+                int digit = Character.digit(buf[i], 16);
+                if (digit < 0)
+                    return false;
+                value = (value << 4) | digit;
+            }
+        } else {
+            // 18 digits always fit, anything longer goes through the slow path
+            if (end - i > 18)
+                return false;
+            for (; i < end; i++) {
+                byte b = buf[i];
+                if (b < '0' || b > '9')
+                    return false;
+                value = value * 10 + (b - '0');
+            }
+        }
+        parsedLong = negative ? -value : value;
+        return true;
+    }
+
+    private double parseDouble() throws Json5SyntaxException {
+        String text = numberText();
+        try {
+            // also handles Infinity and NaN
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            throw syntaxError("Malformed number " + text);
+        }
+    }
+
+    private @NotNull String numberText() {
+        return new String(buf, numberStart, numberEnd - numberStart, StandardCharsets.ISO_8859_1);
+    }
+
+    private @NotNull Json5SyntaxException unexpected(@NotNull Json5Token expected) throws Json5SyntaxException {
+        return syntaxError("Expected " + expected + " but was " + peek());
+    }
+
+    private @NotNull Json5SyntaxException syntaxError(@NotNull String message) {
+        int line = 1, lineStart = 0;
+        int end = Math.min(pos, limit);
+        for (int i = 0; i < end; i++) {
+            if (buf[i] == '\n') {
+                line++;
+                lineStart = i + 1;
+            }
+        }
+        return new Json5SyntaxException(message + " at line " + line + " column " + (end - lineStart + 1));
+    }
+}
@@ -0,0 +1,14 @@
+package io.github.speedbridgemc.config.serialize.json5;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a {@link Json5Reader} encounters malformed JSON5.
+ */
+public final class Json5SyntaxException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public Json5SyntaxException(String message) {
+        super(message);
+    }
+}
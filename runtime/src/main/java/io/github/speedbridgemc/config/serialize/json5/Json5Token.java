@@ -0,0 +1,18 @@
+package io.github.speedbridgemc.config.serialize.json5;
+
+/**
+ * A structure, name or value type in a JSON5 document.
+ * @see Json5Reader#peek()
+ */
+public enum Json5Token {
+    BEGIN_ARRAY,
+    END_ARRAY,
+    BEGIN_OBJECT,
+    END_OBJECT,
+    NAME,
+    STRING,
+    NUMBER,
+    BOOLEAN,
+    NULL,
+    END_DOCUMENT
+}
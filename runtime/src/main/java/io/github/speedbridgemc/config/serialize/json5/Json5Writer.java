@@ -0,0 +1,375 @@
+package io.github.speedbridgemc.config.serialize.json5;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes a JSON5 document as UTF-8 encoded bytes, one token at a time.<p>
+ * The API mirrors Gson's {@code JsonWriter}. Names are always quoted, so as long as no non-finite numbers are
+ * written the output is also valid JSON.
+ */
+public final class Json5Writer implements Closeable, Flushable {
+    private static final int SCOPE_EMPTY_ARRAY = 1,
+            SCOPE_NONEMPTY_ARRAY = 2,
+            SCOPE_EMPTY_OBJECT = 3,
+            SCOPE_DANGLING_NAME = 4,
+            SCOPE_NONEMPTY_OBJECT = 5,
+            SCOPE_EMPTY_DOCUMENT = 6,
+            SCOPE_NONEMPTY_DOCUMENT = 7;
+
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final OutputStream out;
+    private final byte[] buf;
+    private int count;
+    private byte @Nullable [] indent;
+    private int[] stack;
+    private int stackSize;
+
+    /**
+     * Creates a writer. Output is buffered internally, so the stream doesn't need to be buffered.
+     * @param out stream to write to
+     */
+    public Json5Writer(@NotNull OutputStream out) {
+        this.out = out;
+        buf = new byte[8192];
+        stack = new int[32];
+        stack[stackSize++] = SCOPE_EMPTY_DOCUMENT;
+    }
+
+    /**
+     * Sets the string to indent nested structures with. If empty, the document is written on a single line.
+     * @param indent indent string
+     */
+    public void setIndent(@NotNull String indent) {
+        this.indent = indent.isEmpty() ? null : indent.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public void beginObject() throws IOException {
+        open(SCOPE_EMPTY_OBJECT, '{');
+    }
+
+    public void endObject() throws IOException {
+        close(SCOPE_EMPTY_OBJECT, SCOPE_NONEMPTY_OBJECT, '}');
+    }
+
+    public void beginArray() throws IOException {
+        open(SCOPE_EMPTY_ARRAY, '[');
+    }
+
+    public void endArray() throws IOException {
+        close(SCOPE_EMPTY_ARRAY, SCOPE_NONEMPTY_ARRAY, ']');
+    }
+
+    /**
+     * Writes the name of the next property.
+     * @param name property name
+     */
+    public void name(@NotNull String name) throws IOException {
+        beforeName();
+        writeString(name);
+    }
+
+    /**
+     * Writes the name of the next property.
+     * @param name UTF-8 encoded property name
+     */
+    public void name(byte @NotNull [] name) throws IOException {
+        beforeName();
+        write('"');
+        for (byte b : name) {
+            // bytes of multi-byte characters are always negative, so they can be copied as-is
+            if (b == '"' || b == '\\' || (b >= 0 && b < 0x20))
+                writeEscape(b);
+            else
+                write(b);
+        }
+        write('"');
+    }
+
+    /**
+     * Writes the name of the next property from a name table.
+     * @param names table of UTF-8 encoded names
+     * @param index index of the name in the table
+     */
+    public void name(byte @NotNull [] @NotNull [] names, int index) throws IOException {
+        name(names[index]);
+    }
+
+    public void value(@Nullable String value) throws IOException {
+        if (value == null) {
+            nullValue();
+            return;
+        }
+        beforeValue();
+        writeString(value);
+    }
+
+    public void value(boolean value) throws IOException {
+        beforeValue();
+        writeAscii(value ? "true" : "false");
+    }
+
+    public void value(@Nullable Boolean value) throws IOException {
+        if (value == null)
+            nullValue();
+        else
+            value(value.booleanValue());
+    }
+
+    public void value(long value) throws IOException {
+        beforeValue();
+        if (value == Long.MIN_VALUE) {
+            writeAscii(Long.toString(value));
+            return;
+        }
+        if (value < 0) {
+            write('-');
+            value = -value;
+        }
+        // write digits straight into the buffer
+        int digits = 1;
+        for (long n = value; n >= 10; n /= 10)
+            digits++;
+        if (buf.length - count < digits)
+            flushBuffer();
+        int i = count + digits;
+        do {
+            buf[--i] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value != 0);
+        count += digits;
+    }
+
+    public void value(double value) throws IOException {
+        beforeValue();
+        writeDouble(value, Double.toString(value));
+    }
+
+    public void value(float value) throws IOException {
+        beforeValue();
+        writeDouble(value, Float.toString(value));
+    }
+
+    public void value(@Nullable Number value) throws IOException {
+        if (value == null)
+            nullValue();
+        else if (value instanceof Float)
+            value(value.floatValue());
+        else if (value instanceof Double)
+            value(value.doubleValue());
+        else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte)
+            value(value.longValue());
+        else {
+            beforeValue();
+            writeAscii(value.toString());
+        }
+    }
+
+    public void nullValue() throws IOException {
+        beforeValue();
+        writeAscii("null");
+    }
+
+    /**
+     * Writes a value's source as-is, without checking it.
+     * @param raw UTF-8 encoded source of a single value, such as one returned by {@link Json5Reader#readRawValue()}
+     */
+    public void rawValue(byte @NotNull [] raw) throws IOException {
+        beforeValue();
+        for (byte b : raw)
+            write(b);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    /**
+     * Flushes and closes the writer and its underlying stream.
+     * @throws IOException if the document is incomplete, or if the stream couldn't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        flushBuffer();
+        out.close();
+        if (stackSize > 1 || stack[0] != SCOPE_NONEMPTY_DOCUMENT)
+            throw new IOException("Incomplete document");
+    }
+
+    private void open(int emptyScope, char c) throws IOException {
+        beforeValue();
+        if (stackSize == stack.length)
+            stack = Arrays.copyOf(stack, stackSize * 2);
+        stack[stackSize++] = emptyScope;
+        write(c);
+    }
+
+    private void close(int emptyScope, int nonEmptyScope, char c) throws IOException {
+        int scope = stack[stackSize - 1];
+        if (scope != emptyScope && scope != nonEmptyScope)
+            throw new IllegalStateException("Nesting problem.");
+        stackSize--;
+        if (scope == nonEmptyScope)
+            newline();
+        write(c);
+    }
+
+    private void beforeName() throws IOException {
+        int scope = stack[stackSize - 1];
+        if (scope == SCOPE_NONEMPTY_OBJECT)
+            write(',');
+        else if (scope != SCOPE_EMPTY_OBJECT)
+            throw new IllegalStateException("Nesting problem.");
+        newline();
+        stack[stackSize - 1] = SCOPE_DANGLING_NAME;
+    }
+
+    private void beforeValue() throws IOException {
+        switch (stack[stackSize - 1]) {
+        case SCOPE_EMPTY_DOCUMENT:
+            stack[stackSize - 1] = SCOPE_NONEMPTY_DOCUMENT;
+            break;
+        case SCOPE_EMPTY_ARRAY:
+            stack[stackSize - 1] = SCOPE_NONEMPTY_ARRAY;
+            newline();
+            break;
+        case SCOPE_NONEMPTY_ARRAY:
+            write(',');
+            newline();
+            break;
+        case SCOPE_DANGLING_NAME:
+            write(':');
+            if (indent != null)
+                write(' ');
+            stack[stackSize - 1] = SCOPE_NONEMPTY_OBJECT;
+            break;
+        case SCOPE_NONEMPTY_DOCUMENT:
+            throw new IllegalStateException("JSON5 must have only one top-level value.");
+        default:
+            throw new IllegalStateException("Nesting problem.");
+        }
+    }
+
+    private void newline() throws IOException {
+        if (indent == null)
+            return;
+        write('\n');
+        for (int i = 1; i < stackSize; i++) {
+            for (byte b : indent)
+                write(b);
+        }
+    }
+
+    private void writeDouble(double value, @NotNull String text) throws IOException {
+        if (Double.isNaN(value))
+            writeAscii("NaN");
+        else if (Double.isInfinite(value))
+            writeAscii(value > 0 ? "Infinity" : "-Infinity");
+        else
+            writeAscii(text);
+    }
+
+    private void writeString(@NotNull String value) throws IOException {
+        write('"');
+        for (int i = 0, length = value.length(); i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (c == '"' || c == '\\' || c < 0x20)
+                    writeEscape((byte) c);
+                else
+                    write((byte) c);
+            } else if (c < 0x800) {
+                write((byte) (0xC0 | (c >> 6)));
+                write((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, value.charAt(++i));
+                write((byte) (0xF0 | (cp >> 18)));
+                write((byte) (0x80 | ((cp >> 12) & 0x3F)));
+                write((byte) (0x80 | ((cp >> 6) & 0x3F)));
+                write((byte) (0x80 | (cp & 0x3F)));
+            } else if (Character.isSurrogate(c) || c == '\u2028' || c == '\u2029')
+                // lone surrogates can't be encoded, and the line separators trip up JavaScript
+                writeUnicodeEscape(c);
+            else {
+                write((byte) (0xE0 | (c >> 12)));
+                write((byte) (0x80 | ((c >> 6) & 0x3F)));
+                write((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+        write('"');
+    }
+
+    private void writeEscape(byte b) throws IOException {
+        switch (b) {
+        case '"':
+        case '\\':
+            write('\\');
+            write(b);
+            break;
+        case '\n':
+            write('\\');
+            write('n');
+            break;
+        case '\r':
+            write('\\');
+            write('r');
+            break;
+        case '\t':
+            write('\\');
+            write('t');
+            break;
+        case '\b':
+            write('\\');
+            write('b');
+            break;
+        case '\f':
+            write('\\');
+            write('f');
+            break;
+        default:
+            writeUnicodeEscape((char) b);
+            break;
+        }
+    }
+
+    private void writeUnicodeEscape(char c) throws IOException {
+        write('\\');
+        write('u');
+        write(HEX_DIGITS[(c >> 12) & 0xF]);
+        write(HEX_DIGITS[(c >> 8) & 0xF]);
+        write(HEX_DIGITS[(c >> 4) & 0xF]);
+        write(HEX_DIGITS[c & 0xF]);
+    }
+
+    private void writeAscii(@NotNull String s) throws IOException {
+        for (int i = 0, length = s.length(); i < length; i++)
+            write((byte) s.charAt(i));
+    }
+
+    private void write(char c) throws IOException {
+        write((byte) c);
+    }
+
+    private void write(byte b) throws IOException {
+        if (count == buf.length)
+            flushBuffer();
+        buf[count++] = b;
+    }
+
+    private void flushBuffer() throws IOException {
+        if (count > 0) {
+            out.write(buf, 0, count);
+            count = 0;
+        }
+    }
+}
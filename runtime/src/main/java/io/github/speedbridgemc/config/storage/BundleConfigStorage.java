@@ -0,0 +1,387 @@
+package io.github.speedbridgemc.config.storage;
+
+import io.github.speedbridgemc.config.serialize.FileSync;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Stores any number of configs in a single file.<p>
+ * The file is a log of records, each holding a config's name and contents (or a deletion marker). Writing a config
+ * appends a new record, so saving never rewrites other configs. Once outdated records take up more space than live
+ * ones, the live records are copied to a new file, which replaces the old one.<p>
+ * The file is opened when a config is first read or written. It's mapped into memory in one go, and its records'
+ * headers are walked to build an index of where each config's latest contents are, so loading configs afterwards
+ * doesn't touch the file system at all. Records are checksummed, so a record that was only partially written (like
+ * when the game crashes while saving) is detected, and ignored along with anything after it.<p>
+ * How hard writes try to survive a crash depends on the {@link Durability} they're made with, or the storage's own,
+ * whichever is higher. Appends never touch earlier records, so every durability gets atomic writes - with
+ * {@link Durability#FSYNC}, appends are also forced to the storage device before the write returns.<p>
+ * Only one storage should use a file at a time.
+ */
+public final class BundleConfigStorage implements ConfigStorage, Closeable {
+    private static final int MAGIC = 0x53424342; // "SBCB"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    // name length, contents length (-1 for deletions), checksum
+    private static final int RECORD_HEADER_SIZE = 12;
+    private static final long MIN_COMPACT_SIZE = 256 * 1024;
+
+    private static final class Record {
+        // of contents
+        final long offset;
+        final int length;
+        final int size;
+
+        Record(long offset, int length, int size) {
+            this.offset = offset;
+            this.length = length;
+            this.size = size;
+        }
+    }
+
+    private final @NotNull Path file;
+    private final @NotNull Durability durability;
+    private @NotNull HashMap<String, Record> index = new HashMap<>();
+    private @Nullable FileChannel channel;
+    // the file as it was when it was opened - later records are read through the channel
+    private @Nullable MappedByteBuffer map;
+    // end of the last valid record
+    private long end;
+    private long liveSize, deadSize;
+    private boolean opened, closed;
+
+    /**
+     * Creates a storage backed by a file. The file isn't opened (or created) until it's first needed.
+     * @param file path of file
+     * @param durability minimum durability of every write, including compactions
+     */
+    public BundleConfigStorage(@NotNull Path file, @NotNull Durability durability) {
+        this.file = file;
+        this.durability = durability;
+    }
+
+    /**
+     * Creates a storage backed by a file, with no minimum durability.
+     * The file isn't opened (or created) until it's first needed.
+     * @param file path of file
+     */
+    public BundleConfigStorage(@NotNull Path file) {
+        this(file, Durability.NONE);
+    }
+
+    /**
+     * Gets the path of the storage's file.
+     * @return path of file
+     */
+    public @NotNull Path getFile() {
+        return file;
+    }
+
+    @Override
+    public synchronized byte @Nullable [] read(@NotNull String name) throws IOException {
+        open();
+        Record record = index.get(name);
+        if (record == null)
+            return null;
+        byte[] contents = new byte[record.length];
+        MappedByteBuffer map = this.map;
+        if (map != null && record.offset + record.length <= map.limit()) {
+            ByteBuffer buf = map.duplicate();
+            buf.position((int) record.offset);
+            buf.get(contents);
+        } else {
+            assert channel != null;
+            readFully(channel, ByteBuffer.wrap(contents), record.offset);
+        }
+        return contents;
+    }
+
+    @Override
+    public void write(@NotNull String name, byte @NotNull [] contents) throws IOException {
+        write(name, contents, durability);
+    }
+
+    @Override
+    public synchronized void write(@NotNull String name, byte @NotNull [] contents, @NotNull Durability durability) throws IOException {
+        open();
+        boolean sync = isSynced(durability);
+        append(name, contents, sync);
+        compactIfNeeded(sync);
+    }
+
+    @Override
+    public synchronized void delete(@NotNull String name) throws IOException {
+        open();
+        if (!index.containsKey(name))
+            return;
+        boolean sync = isSynced(durability);
+        append(name, null, sync);
+        compactIfNeeded(sync);
+    }
+
+    @Override
+    public @NotNull String getLocation(@NotNull String name) {
+        return file + "[" + name + "]";
+    }
+
+    /**
+     * Copies the latest record of every config to a new file, which then replaces the current one.<p>
+     * This is done automatically once outdated records take up more space than live ones.
+     * @throws IOException if an I/O error occurs
+     */
+    public synchronized void compact() throws IOException {
+        compact(isSynced(durability));
+    }
+
+    private void compact(boolean sync) throws IOException {
+        open();
+        if (channel == null)
+            return;
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        HashMap<String, Record> newIndex = new HashMap<>();
+        long pos = HEADER_SIZE;
+        try (FileChannel out = FileChannel.open(tempFile,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(out, createHeader(), 0);
+            for (Map.Entry<String, Record> entry : index.entrySet()) {
+                byte[] nameBytes = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                ByteBuffer buf = createRecord(nameBytes, read(entry.getKey()));
+                int size = buf.remaining();
+                writeFully(out, buf, pos);
+                newIndex.put(entry.getKey(), new Record(pos + RECORD_HEADER_SIZE + nameBytes.length, entry.getValue().length, size));
+                pos += size;
+            }
+            out.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        // some platforms can't replace files that are open (or mapped), so let go of ours first
+        map = null;
+        channel.close();
+        channel = null;
+        try {
+            try {
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            // the old file is still intact, keep using it
+            reopen();
+            throw e;
+        }
+        index = newIndex;
+        end = pos;
+        liveSize = pos - HEADER_SIZE;
+        deadSize = 0;
+        reopen();
+        if (sync)
+            syncDirectory();
+    }
+
+    /**
+     * Closes the storage's file. The storage can't be used afterwards.
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        map = null;
+        index.clear();
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private void open() throws IOException {
+        if (closed)
+            throw new IOException("Storage is closed");
+        if (opened)
+            return;
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (NoSuchFileException e) {
+            // created by the first write
+            opened = true;
+            return;
+        }
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                throw new IOException("Bundle \"" + file + "\" is too large");
+            // an empty file was created, but never got its header
+            if (size > 0) {
+                MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                end = scan(map);
+                this.map = map;
+            }
+            this.channel = channel;
+        } catch (IOException | RuntimeException e) {
+            index.clear();
+            liveSize = deadSize = 0;
+            channel.close();
+            throw e;
+        }
+        opened = true;
+    }
+
+    private long scan(@NotNull ByteBuffer buf) throws IOException {
+        int limit = buf.limit();
+        if (limit < HEADER_SIZE || buf.getInt(0) != MAGIC)
+            throw new IOException("\"" + file + "\" isn't a config bundle");
+        int version = buf.getInt(4);
+        if (version != VERSION)
+            throw new IOException("Bundle \"" + file + "\" has unsupported version " + version);
+        CRC32 crc = new CRC32();
+        int pos = HEADER_SIZE;
+        while (limit - pos >= RECORD_HEADER_SIZE) {
+            int nameLength = buf.getInt(pos), contentsLength = buf.getInt(pos + 4), checksum = buf.getInt(pos + 8);
+            int dataLength = Math.max(contentsLength, 0);
+            if (nameLength < 0 || contentsLength < -1
+                    || (long) nameLength + dataLength > limit - pos - RECORD_HEADER_SIZE)
+                break;
+            int size = RECORD_HEADER_SIZE + nameLength + dataLength;
+            ByteBuffer slice = buf.duplicate();
+            slice.limit(pos + 8).position(pos);
+            crc.reset();
+            crc.update(slice);
+            slice.limit(pos + size).position(pos + RECORD_HEADER_SIZE);
+            crc.update(slice);
+            if ((int) crc.getValue() != checksum)
+                // partially written, so this is where the log really ends
+                break;
+            byte[] nameBytes = new byte[nameLength];
+            slice.position(pos + RECORD_HEADER_SIZE);
+            slice.get(nameBytes);
+            String name = new String(nameBytes, StandardCharsets.UTF_8);
+            update(name, contentsLength < 0 ? null : new Record(pos + RECORD_HEADER_SIZE + nameLength, contentsLength, size), size);
+            pos += size;
+        }
+        return pos;
+    }
+
+    // maps the file up to the end of the last valid record, so reads skip the channel again
+    private void reopen() throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.channel = channel;
+        try {
+            map = end > 0 ? channel.map(FileChannel.MapMode.READ_ONLY, 0, end) : null;
+        } catch (IOException e) {
+            // reads fall back to the channel
+            map = null;
+        }
+    }
+
+    private void append(@NotNull String name, byte @Nullable [] contents, boolean sync) throws IOException {
+        FileChannel channel = this.channel;
+        boolean created = false;
+        if (channel == null) {
+            Path parent = file.getParent();
+            if (parent != null)
+                Files.createDirectories(parent);
+            // never clobber a file that showed up (or that we lost track of) after opening
+            channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.channel = channel;
+            created = true;
+        }
+        if (end == 0) {
+            writeFully(channel, createHeader(), 0);
+            end = HEADER_SIZE;
+        }
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buf = createRecord(nameBytes, contents);
+        int size = buf.remaining();
+        // if this fails halfway, the next record just overwrites whatever made it to the file
+        writeFully(channel, buf, end);
+        if (sync)
+            // the file's size changes with every append, so its metadata has to be forced too
+            channel.force(true);
+        update(name, contents == null ? null : new Record(end + RECORD_HEADER_SIZE + nameBytes.length, contents.length, size), size);
+        end += size;
+        if (sync && created)
+            syncDirectory();
+    }
+
+    private boolean isSynced(@NotNull Durability durability) {
+        return durability == Durability.FSYNC || this.durability == Durability.FSYNC;
+    }
+
+    private void syncDirectory() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null)
+            FileSync.syncDirectory(parent);
+    }
+
+    private void update(@NotNull String name, @Nullable Record record, int size) {
+        Record old = record == null ? index.remove(name) : index.put(name, record);
+        if (old != null) {
+            liveSize -= old.size;
+            deadSize += old.size;
+        }
+        if (record == null)
+            deadSize += size;
+        else
+            liveSize += size;
+    }
+
+    private void compactIfNeeded(boolean sync) {
+        if (deadSize < MIN_COMPACT_SIZE || deadSize <= liveSize)
+            return;
+        try {
+            compact(sync);
+        } catch (IOException ignored) {
+            // the write itself went through, so this can wait until the next one
+        }
+    }
+
+    private static @NotNull ByteBuffer createHeader() {
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_SIZE);
+        buf.putInt(MAGIC).putInt(VERSION).flip();
+        return buf;
+    }
+
+    private static @NotNull ByteBuffer createRecord(byte @NotNull [] nameBytes, byte @Nullable [] contents) {
+        int dataLength = contents == null ? 0 : contents.length;
+        byte[] record = new byte[RECORD_HEADER_SIZE + nameBytes.length + dataLength];
+        ByteBuffer buf = ByteBuffer.wrap(record);
+        buf.putInt(nameBytes.length).putInt(contents == null ? -1 : contents.length).putInt(0).put(nameBytes);
+        if (contents != null)
+            buf.put(contents);
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, 8);
+        crc.update(record, RECORD_HEADER_SIZE, record.length - RECORD_HEADER_SIZE);
+        buf.putInt(8, (int) crc.getValue());
+        buf.flip();
+        return buf;
+    }
+
+    private static void readFully(@NotNull FileChannel channel, @NotNull ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining()) {
+            int read = channel.read(buf, pos);
+            if (read < 0)
+                throw new EOFException();
+            pos += read;
+        }
+    }
+
+    private static void writeFully(@NotNull FileChannel channel, @NotNull ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining())
+            pos += channel.write(buf, pos);
+    }
+}
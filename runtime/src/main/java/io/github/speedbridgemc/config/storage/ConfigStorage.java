@@ -0,0 +1,72 @@
+package io.github.speedbridgemc.config.storage;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Stores the serialized forms of configs.<p>
+ * Handlers normally store each config in its own file, at the path returned by their {@code resolvePath(String)}
+ * method, through a {@link FileConfigStorage}. Handler interfaces that define a default
+ * {@code ConfigStorage storage()} method store their configs in the returned storage instead.<p>
+ * Watching configs for changes, binary snapshots, journals and {@code @DirectoryBacked} fields all need an actual
+ * file, so handlers only use them for configs that {@link #getPath(String)} returns a file for. For other configs,
+ * they're turned off (and the handler logs that they were).<p>
+ * Storages are shared between handlers, so implementations must be thread-safe.
+ */
+public interface ConfigStorage {
+    /**
+     * Reads a config.
+     * @param name name of config
+     * @return contents of config, or {@code null} if it hasn't been stored yet
+     * @throws IOException if an I/O error occurs
+     */
+    byte @Nullable [] read(@NotNull String name) throws IOException;
+
+    /**
+     * Stores a config, replacing its current contents. If this fails, the current contents must be left intact.
+     * @param name name of config
+     * @param contents new contents of config
+     * @throws IOException if an I/O error occurs
+     */
+    void write(@NotNull String name, byte @NotNull [] contents) throws IOException;
+
+    /**
+     * Stores a config, making the write at least as durable as requested.<p>
+     * The default implementation ignores the requested durability, and just calls {@link #write(String, byte[])}.
+     * @param name name of config
+     * @param contents new contents of config
+     * @param durability how hard to try to make the write survive a crash
+     * @throws IOException if an I/O error occurs
+     */
+    default void write(@NotNull String name, byte @NotNull [] contents, @NotNull Durability durability) throws IOException {
+        write(name, contents);
+    }
+
+    /**
+     * Deletes a config. Does nothing if it hasn't been stored.
+     * @param name name of config
+     * @throws IOException if an I/O error occurs
+     */
+    void delete(@NotNull String name) throws IOException;
+
+    /**
+     * Describes where a config is stored, for log messages.
+     * @param name name of config
+     * @return location of config
+     */
+    @NotNull String getLocation(@NotNull String name);
+
+    /**
+     * Gets the file a config is stored in, if it's stored in a file of its own.<p>
+     * The file must hold exactly the config's contents, as passed to {@link #write(String, byte[])}.
+     * The default implementation returns {@code null}.
+     * @param name name of config
+     * @return path of config's file, or {@code null} if it doesn't have one
+     */
+    default @Nullable Path getPath(@NotNull String name) {
+        return null;
+    }
+}
@@ -0,0 +1,22 @@
+package io.github.speedbridgemc.config.storage;
+
+/**
+ * Defines how hard a {@link ConfigStorage} tries to make a write survive a crash.<p>
+ * Set per handler through the {@code durability} parameter of the serializer component.
+ */
+public enum Durability {
+    /**
+     * No special handling.<br>
+     * A crash shortly after a write may lose it, or (depending on the storage) leave it half-written.
+     */
+    NONE,
+    /**
+     * A write either fully replaces the config's old contents or doesn't happen at all.<br>
+     * It may still be lost in a crash shortly afterwards.
+     */
+    ATOMIC_RENAME,
+    /**
+     * Like {@link #ATOMIC_RENAME}, and a write is also synced to the storage device before it's reported as done.
+     */
+    FSYNC
+}
@@ -0,0 +1,157 @@
+package io.github.speedbridgemc.config.storage;
+
+import io.github.speedbridgemc.config.serialize.FileFingerprint;
+import io.github.speedbridgemc.config.serialize.FileSync;
+import io.github.speedbridgemc.config.serialize.PathUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Stores each config in its own file. Handlers without a {@link ConfigStorage} of their own use this too.<p>
+ * By default, configs are written to a temporary file first, which is then moved over the config's file.
+ */
+public final class FileConfigStorage implements ConfigStorage {
+    private final @NotNull Function<@NotNull String, @NotNull Path> pathResolver;
+    private final boolean replaceViaTemp;
+
+    /**
+     * Creates a storage that resolves config paths with a function, like a handler's {@code resolvePath(String)}.
+     * @param pathResolver function that resolves the path of a config's file from its name
+     * @param replaceViaTemp {@code true} to write configs to a temporary file which is then moved over the config's
+     *                       file, {@code false} to write them in place. Writes with a durability of
+     *                       {@link Durability#ATOMIC_RENAME} always go through a temporary file
+     */
+    public FileConfigStorage(@NotNull Function<@NotNull String, @NotNull Path> pathResolver, boolean replaceViaTemp) {
+        this.pathResolver = pathResolver;
+        this.replaceViaTemp = replaceViaTemp;
+    }
+
+    /**
+     * Creates a storage that resolves config paths with a function, like a handler's {@code resolvePath(String)}.
+     * Configs are written to a temporary file, which is then moved over the config's file.
+     * @param pathResolver function that resolves the path of a config's file from its name
+     */
+    public FileConfigStorage(@NotNull Function<@NotNull String, @NotNull Path> pathResolver) {
+        this(pathResolver, true);
+    }
+
+    /**
+     * Creates a storage that keeps configs in a directory, as {@code "{name}{extension}"}.
+     * @param dir directory
+     * @param extension file extension, including the leading dot
+     * @return new storage
+     */
+    public static @NotNull FileConfigStorage inDirectory(@NotNull Path dir, @NotNull String extension) {
+        return new FileConfigStorage(name -> dir.resolve(name + extension));
+    }
+
+    /**
+     * Gets the path of a config's file.
+     * @param name name of config
+     * @return path of file
+     */
+    public @NotNull Path resolvePath(@NotNull String name) {
+        return pathResolver.apply(name);
+    }
+
+    @Override
+    public byte @Nullable [] read(@NotNull String name) throws IOException {
+        try {
+            return Files.readAllBytes(resolvePath(name));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void write(@NotNull String name, byte @NotNull [] contents) throws IOException {
+        write(name, contents, Durability.NONE, null);
+    }
+
+    @Override
+    public void write(@NotNull String name, byte @NotNull [] contents, @NotNull Durability durability) throws IOException {
+        write(name, contents, durability, null);
+    }
+
+    /**
+     * Stores a config, and hands the fingerprint of its new file to a callback <em>before</em> the file replaces the
+     * config's current one.<p>
+     * Moving a file keeps its contents and modification time, so this is also the fingerprint of the config's file
+     * once the write is done. Handlers that watch their config file use this to recognize their own writes, since a
+     * watcher may see the new file before this method returns.
+     * @param name name of config
+     * @param contents new contents of config
+     * @param durability how hard to try to make the write survive a crash
+     * @param fingerprintConsumer callback that receives the fingerprint, or {@code null} if the file couldn't be
+     *                            fingerprinted
+     * @throws IOException if an I/O error occurs
+     */
+    public void write(@NotNull String name, byte @NotNull [] contents, @NotNull Durability durability,
+                      @Nullable Consumer<@Nullable FileFingerprint> fingerprintConsumer) throws IOException {
+        Path path = resolvePath(name);
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null)
+            Files.createDirectories(parent);
+        boolean sync = durability == Durability.FSYNC;
+        if (replaceViaTemp || durability == Durability.ATOMIC_RENAME) {
+            Path tempPath = PathUtils.resolveTimestampedSibling(path, "TEMP");
+            try {
+                write(tempPath, contents, sync);
+                fingerprint(tempPath, contents, fingerprintConsumer);
+                if (durability == Durability.NONE)
+                    Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+                else
+                    FileSync.moveAtomically(tempPath, path);
+            } catch (IOException e) {
+                Files.deleteIfExists(tempPath);
+                throw e;
+            }
+        } else {
+            write(path, contents, sync);
+            fingerprint(path, contents, fingerprintConsumer);
+        }
+        if (sync && parent != null)
+            // the file's contents are synced, but its directory entry isn't yet
+            FileSync.syncDirectory(parent);
+    }
+
+    @Override
+    public void delete(@NotNull String name) throws IOException {
+        Files.deleteIfExists(resolvePath(name));
+    }
+
+    @Override
+    public @NotNull String getLocation(@NotNull String name) {
+        return resolvePath(name).toString();
+    }
+
+    @Override
+    public @NotNull Path getPath(@NotNull String name) {
+        return resolvePath(name);
+    }
+
+    private static void write(@NotNull Path path, byte @NotNull [] contents, boolean sync) throws IOException {
+        if (sync)
+            FileSync.writeSynced(path, contents);
+        else
+            Files.write(path, contents);
+    }
+
+    private static void fingerprint(@NotNull Path path, byte @NotNull [] contents,
+                                    @Nullable Consumer<@Nullable FileFingerprint> fingerprintConsumer) {
+        if (fingerprintConsumer == null)
+            return;
+        FileFingerprint fingerprint;
+        try {
+            fingerprint = FileFingerprint.of(path, contents);
+        } catch (IOException e) {
+            fingerprint = null;
+        }
+        fingerprintConsumer.accept(fingerprint);
+    }
+}
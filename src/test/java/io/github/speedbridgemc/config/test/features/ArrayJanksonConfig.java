@@ -0,0 +1,21 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.*;
+
+@Config(name = "array_jankson", handlerInterface = "ArrayJanksonHandler",
+        components = @Component(value = "speedbridge-config:serializer", params = "provider=speedbridge-config:jankson"))
+public class ArrayJanksonConfig {
+    public int[] empty = new int[0];
+    public int[] ints = { 1 };
+    public long[] longs = { 1L << 40 };
+    public float[] floats = { 0.25f };
+    public double[] doubles = { 0.5 };
+    public boolean[] flags = { true };
+    public String[] strings = { "a" };
+    public int[][] grid = { { 1 }, { 2, 3 } };
+    public Point[] points = { new Point() };
+
+    public static class Point {
+        public int x, y;
+    }
+}
@@ -0,0 +1,79 @@
+package io.github.speedbridgemc.config.test.features;
+
+import java.util.Arrays;
+
+import static io.github.speedbridgemc.config.test.features.FeatureTests.*;
+
+final class ArrayTest {
+    private ArrayTest() { }
+
+    static void run() throws Exception {
+        // sizes on both sides of the initial read buffer's capacity, and a few doublings beyond it
+        for (int size : new int[] { 0, 1, 15, 16, 17, 100, 1000 }) {
+            ArrayGsonHandler gson = new ArrayGsonHandlerImpl();
+            ArrayGsonConfig gsonConfig = new ArrayGsonConfig();
+            ArrayJanksonHandler jankson = new ArrayJanksonHandlerImpl();
+            ArrayJanksonConfig janksonConfig = new ArrayJanksonConfig();
+            gsonConfig.ints = janksonConfig.ints = new int[size];
+            gsonConfig.longs = janksonConfig.longs = new long[size];
+            gsonConfig.floats = janksonConfig.floats = new float[size];
+            gsonConfig.doubles = janksonConfig.doubles = new double[size];
+            gsonConfig.flags = janksonConfig.flags = new boolean[size];
+            gsonConfig.strings = janksonConfig.strings = new String[size];
+            gsonConfig.grid = janksonConfig.grid = new int[size][];
+            gsonConfig.points = new ArrayGsonConfig.Point[size];
+            janksonConfig.points = new ArrayJanksonConfig.Point[size];
+            for (int i = 0; i < size; i++) {
+                gsonConfig.ints[i] = i * 31 - 500;
+                gsonConfig.longs[i] = (long) i << 33;
+                gsonConfig.floats[i] = i / 4f;
+                gsonConfig.doubles[i] = i / 8.0;
+                gsonConfig.flags[i] = i % 3 == 0;
+                gsonConfig.strings[i] = "s" + i;
+                gsonConfig.grid[i] = new int[i % 5];
+                Arrays.fill(gsonConfig.grid[i], i);
+                gsonConfig.points[i] = new ArrayGsonConfig.Point();
+                gsonConfig.points[i].x = i;
+                gsonConfig.points[i].y = -i;
+                janksonConfig.points[i] = new ArrayJanksonConfig.Point();
+                janksonConfig.points[i].x = i;
+                janksonConfig.points[i].y = -i;
+            }
+            gson.set(gsonConfig);
+            gson.save();
+            gson.load();
+            ArrayGsonConfig gsonLoaded = gson.get();
+            check(gsonLoaded != gsonConfig, "gson config wasn't reloaded");
+            checkArrayEquals(gsonConfig.empty, gsonLoaded.empty, "gson empty of " + size);
+            checkArrayEquals(gsonConfig.ints, gsonLoaded.ints, "gson ints of " + size);
+            checkArrayEquals(gsonConfig.longs, gsonLoaded.longs, "gson longs of " + size);
+            checkArrayEquals(gsonConfig.floats, gsonLoaded.floats, "gson floats of " + size);
+            checkArrayEquals(gsonConfig.doubles, gsonLoaded.doubles, "gson doubles of " + size);
+            checkArrayEquals(gsonConfig.flags, gsonLoaded.flags, "gson flags of " + size);
+            checkArrayEquals(gsonConfig.strings, gsonLoaded.strings, "gson strings of " + size);
+            checkArrayEquals(gsonConfig.grid, gsonLoaded.grid, "gson grid of " + size);
+            for (int i = 0; i < size; i++) {
+                checkEquals(i, gsonLoaded.points[i].x, "gson points[" + i + "].x");
+                checkEquals(-i, gsonLoaded.points[i].y, "gson points[" + i + "].y");
+            }
+
+            jankson.set(janksonConfig);
+            jankson.save();
+            jankson.load();
+            ArrayJanksonConfig janksonLoaded = jankson.get();
+            check(janksonLoaded != janksonConfig, "jankson config wasn't reloaded");
+            checkArrayEquals(janksonConfig.empty, janksonLoaded.empty, "jankson empty of " + size);
+            checkArrayEquals(janksonConfig.ints, janksonLoaded.ints, "jankson ints of " + size);
+            checkArrayEquals(janksonConfig.longs, janksonLoaded.longs, "jankson longs of " + size);
+            checkArrayEquals(janksonConfig.floats, janksonLoaded.floats, "jankson floats of " + size);
+            checkArrayEquals(janksonConfig.doubles, janksonLoaded.doubles, "jankson doubles of " + size);
+            checkArrayEquals(janksonConfig.flags, janksonLoaded.flags, "jankson flags of " + size);
+            checkArrayEquals(janksonConfig.strings, janksonLoaded.strings, "jankson strings of " + size);
+            checkArrayEquals(janksonConfig.grid, janksonLoaded.grid, "jankson grid of " + size);
+            for (int i = 0; i < size; i++) {
+                checkEquals(i, janksonLoaded.points[i].x, "jankson points[" + i + "].x");
+                checkEquals(-i, janksonLoaded.points[i].y, "jankson points[" + i + "].y");
+            }
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.*;
+
+@Config(name = "async", handlerInterface = "AsyncHandler",
+        components = {
+            @Component(value = "speedbridge-config:serializer", params = "provider=speedbridge-config:gson"),
+            @Component("speedbridge-config:listener")
+        })
+public class AsyncConfig {
+    public int value = 5;
+    public String name = "default";
+}
@@ -0,0 +1,29 @@
+package io.github.speedbridgemc.config.test.features;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+public interface AsyncHandler extends FeatureHandler<AsyncConfig> {
+    @NotNull CompletableFuture<AsyncConfig> loadAsync();
+    @NotNull CompletableFuture<Void> saveAsync();
+    void addListener(@NotNull Consumer<AsyncConfig> listener);
+    void removeListener(@NotNull Consumer<AsyncConfig> listener);
+    void notifyChanged(@NotNull AsyncConfig config);
+
+    default @NotNull Executor asyncExecutor() {
+        return AsyncTest.IO_EXECUTOR;
+    }
+
+    default void runOnMainThread(@NotNull Runnable command) {
+        AsyncTest.MAIN_EXECUTOR.execute(command);
+    }
+
+    @Override
+    default @NotNull Path resolvePath(@NotNull String name) {
+        return FeatureTests.configDir().resolve("async").resolve(name + ".json5");
+    }
+}
@@ -0,0 +1,112 @@
+package io.github.speedbridgemc.config.test.features;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static io.github.speedbridgemc.config.test.features.FeatureTests.*;
+
+final class AsyncTest {
+    private AsyncTest() { }
+
+    static final String MAIN_THREAD_NAME = "feature-test main";
+    static final String IO_THREAD_NAME = "feature-test io";
+    static final ExecutorService MAIN_EXECUTOR = Executors.newSingleThreadExecutor(r -> newDaemon(r, MAIN_THREAD_NAME));
+    static final ExecutorService IO_EXECUTOR = Executors.newCachedThreadPool(r -> newDaemon(r, IO_THREAD_NAME));
+
+    private static Thread newDaemon(Runnable r, String name) {
+        Thread thread = new Thread(r, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    static void run() throws Exception {
+        Path path = configDir().resolve("async").resolve("async.json5");
+        AsyncHandler handler = new AsyncHandlerImpl();
+        List<String> notifiedOn = Collections.synchronizedList(new ArrayList<>());
+        handler.addListener(config -> notifiedOn.add(Thread.currentThread().getName()));
+
+        AsyncConfig config = new AsyncConfig();
+        config.value = 33;
+        config.name = "saved async";
+        handler.set(config);
+        notifiedOn.clear();
+        handler.saveAsync().get(5, TimeUnit.SECONDS);
+        AsyncConfig saved = new AsyncHandlerImpl().get();
+        checkEquals(33, saved.value, "value written by saveAsync()");
+        checkEquals("saved async", saved.name, "name written by saveAsync()");
+        // notifications are dispatched to the main thread, so flush it before looking
+        MAIN_EXECUTOR.submit(() -> { }).get(5, TimeUnit.SECONDS);
+        checkEquals(Collections.singletonList(MAIN_THREAD_NAME), notifiedOn, "threads notified by saveAsync()");
+
+        Files.write(path, "{ \"value\": 12, \"name\": \"loaded async\" }".getBytes(StandardCharsets.UTF_8));
+        notifiedOn.clear();
+        AsyncConfig loaded = handler.loadAsync().get(5, TimeUnit.SECONDS);
+        checkEquals(12, loaded.value, "value read by loadAsync()");
+        checkEquals("loaded async", loaded.name, "name read by loadAsync()");
+        check(handler.get() == loaded, "loadAsync() didn't publish its result");
+        checkEquals(Collections.singletonList(MAIN_THREAD_NAME), notifiedOn, "threads notified by loadAsync()");
+
+        // a file that fails to parse fails the future, without reading it again on the main thread
+        Files.write(path, "{ \"value\": ".getBytes(StandardCharsets.UTF_8));
+        checkThrows(ExecutionException.class, () -> handler.loadAsync().get(5, TimeUnit.SECONDS),
+                "loadAsync() of a broken file");
+        check(handler.get() == loaded, "loadAsync() of a broken file replaced the config");
+        checkEquals(0, backups(path), "backups after loadAsync() of a broken file");
+        // load() still backs it up and resets
+        handler.load();
+        checkEquals(5, handler.get().value, "value after load() of a broken file");
+        checkEquals(1, backups(path), "backups after load() of a broken file");
+
+        // saveAsync() serializes right away, so changes made after it aren't written
+        AsyncConfig mutated = new AsyncConfig();
+        mutated.value = 40;
+        handler.set(mutated);
+        CompletableFuture<Void> saving = handler.saveAsync();
+        mutated.value = 41;
+        saving.get(5, TimeUnit.SECONDS);
+        checkEquals(40, new AsyncHandlerImpl().get().value, "value written by saveAsync() before mutation");
+
+        // saves are written in the order they were made, even though the I/O executor runs them in parallel
+        List<CompletableFuture<Void>> saves = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            AsyncConfig ordered = new AsyncConfig();
+            ordered.value = 100 + i;
+            handler.set(ordered);
+            saves.add(handler.saveAsync());
+        }
+        handler.get().value = 200;
+        handler.save();
+        for (CompletableFuture<Void> save : saves)
+            save.get(5, TimeUnit.SECONDS);
+        checkEquals(200, new AsyncHandlerImpl().get().value, "value after saveAsync() burst and save()");
+
+        // a save that can't be written completes exceptionally
+        Path dir = path.getParent();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path file : stream)
+                Files.delete(file);
+        }
+        Files.delete(dir);
+        Files.write(dir, new byte[0]);
+        checkThrows(ExecutionException.class, () -> handler.saveAsync().get(5, TimeUnit.SECONDS),
+                "saveAsync() into a missing directory");
+    }
+
+    private static int backups(@NotNull Path path) throws IOException {
+        int backups = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(path.getParent(), path.getFileName() + "-BACKUP-*")) {
+            for (Path ignored : stream)
+                backups++;
+        }
+        return backups;
+    }
+}
@@ -0,0 +1,15 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.*;
+
+@Config(name = "atomic", handlerInterface = "AtomicHandler", concurrency = ConcurrencyMode.ATOMIC,
+        components = {
+            @Component(value = "speedbridge-config:serializer", params = "provider=speedbridge-config:gson"),
+            @Component("speedbridge-config:validator"),
+            @Component("speedbridge-config:remote_storage")
+        })
+public class AtomicConfig {
+    @IntegerRange(min = 0, max = 100, maxMode = RangeMode.INCLUSIVE, mode = EnforceMode.TRY_FIX)
+    public int value = 5;
+    public String name = "default";
+}
@@ -0,0 +1,7 @@
+package io.github.speedbridgemc.config.test.features;
+
+import org.jetbrains.annotations.Nullable;
+
+public interface AtomicHandler extends FeatureHandler<AtomicConfig> {
+    void setRemote(@Nullable AtomicConfig remoteConfig);
+}
@@ -0,0 +1,61 @@
+package io.github.speedbridgemc.config.test.features;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static io.github.speedbridgemc.config.test.features.FeatureTests.*;
+
+final class AtomicTest {
+    private AtomicTest() { }
+
+    static void run() throws Exception {
+        Path path = configDir().resolve("atomic.json5");
+        AtomicHandler handler = new AtomicHandlerImpl();
+        // atomic handlers load eagerly, so get() never has to
+        check(Files.exists(path), "handler didn't load eagerly");
+        checkEquals(5, handler.get().value, "default value");
+
+        AtomicConfig config = new AtomicConfig();
+        config.value = 42;
+        config.name = "saved";
+        handler.set(config);
+        check(handler.get() == config, "set() didn't publish config");
+        handler.save();
+        AtomicConfig reloaded = new AtomicHandlerImpl().get();
+        checkEquals(42, reloaded.value, "round-tripped value");
+        checkEquals("saved", reloaded.name, "round-tripped name");
+
+        AtomicConfig remote = new AtomicConfig();
+        handler.setRemote(remote);
+        check(handler.get() == remote, "setRemote() didn't publish remote config");
+        handler.setRemote(null);
+        check(handler.get() == config, "setRemote(null) didn't restore local config");
+
+        // readers must never see a config that hasn't been validated yet
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread[] readers = new Thread[4];
+        for (int i = 0; i < readers.length; i++) {
+            readers[i] = new Thread(() -> {
+                for (int j = 0; j < 1_000_000; j++) {
+                    AtomicConfig current = handler.get();
+                    if (current == null)
+                        failure.set("get() returned null");
+                    else if (current.value > 100)
+                        failure.set("get() returned unvalidated value " + current.value);
+                }
+            });
+            readers[i].start();
+        }
+        for (int i = 0; i < 100; i++) {
+            Files.write(path, ("{ \"value\": " + (500 + i) + ", \"name\": \"loaded\" }").getBytes(StandardCharsets.UTF_8));
+            handler.load();
+        }
+        for (Thread reader : readers)
+            reader.join();
+        checkEquals(null, failure.get(), "concurrent readers");
+        checkEquals(100, handler.get().value, "validated value");
+        checkEquals("loaded", handler.get().name, "loaded name");
+    }
+}
@@ -0,0 +1,13 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.*;
+
+@Config(name = "atomic_watch", handlerInterface = "AtomicWatchHandler", concurrency = ConcurrencyMode.ATOMIC,
+        components = {
+            @Component(value = "speedbridge-config:serializer",
+                    params = { "provider=speedbridge-config:gson", "options=+watchFileForChanges" }),
+            @Component("speedbridge-config:listener")
+        })
+public class AtomicWatchConfig {
+    public int value = 5;
+}
@@ -0,0 +1,13 @@
+package io.github.speedbridgemc.config.test.features;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.Consumer;
+
+public interface AtomicWatchHandler extends FeatureHandler<AtomicWatchConfig> {
+    void addListener(@NotNull Consumer<AtomicWatchConfig> listener);
+    void removeListener(@NotNull Consumer<AtomicWatchConfig> listener);
+    void notifyChanged(@NotNull AtomicWatchConfig config);
+    void startWatching();
+    void stopWatching();
+}
@@ -0,0 +1,14 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.*;
+
+@Config(name = "backup", handlerInterface = "BackupHandler",
+        components = {
+                @Component(value = "speedbridge-config:serializer",
+                        params = { "provider=speedbridge-config:gson", "max_backups=3" }),
+                @Component("speedbridge-config:validator")
+        })
+public class BackupConfig {
+    @IntegerRange(min = 0, max = 100, maxMode = RangeMode.INCLUSIVE, mode = EnforceMode.ERROR)
+    public int value = 5;
+}
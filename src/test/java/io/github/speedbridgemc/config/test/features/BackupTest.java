@@ -0,0 +1,89 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.serialize.ConfigBackups;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+
+import static io.github.speedbridgemc.config.test.features.FeatureTests.*;
+
+final class BackupTest {
+    private BackupTest() { }
+
+    static void run() throws Exception {
+        BackupHandler handler = new BackupHandlerImpl();
+        Path path = handler.resolvePath("backup");
+        // left behind by an older version, which didn't compress backups
+        Path oldBackup = path.resolveSibling("backup.json5-BACKUP-20000101T0000");
+        Files.write(oldBackup, bytes("{ \"value\": 1 }"));
+
+        // unreadable configs are backed up, and only the newest 3 backups are kept
+        for (int i = 0; i < 5; i++) {
+            failLoad(handler, path, "{ \"value\": " + i);
+            ArrayList<Path> backups = backups(path);
+            checkEquals(Math.min(i + 2, 3), backups.size(), "backups after " + (i + 1) + " failed load(s)");
+            checkEquals("{ \"value\": " + i, restore(backups.get(backups.size() - 1)), "newest backup");
+            checkEquals(5, handler.get().value, "config wasn't reset");
+        }
+        check(!Files.exists(oldBackup), "old uncompressed backup wasn't pruned");
+        for (Path backup : backups(path))
+            check(backup.getFileName().toString().endsWith(".gz"), backup + " isn't compressed");
+
+        // backing up the same contents again just makes that backup the newest one
+        ArrayList<Path> before = backups(path);
+        String oldest = restore(before.get(0));
+        failLoad(handler, path, oldest);
+        ArrayList<Path> after = backups(path);
+        checkEquals(3, after.size(), "backups after duplicate");
+        checkEquals(oldest, restore(after.get(2)), "duplicate backup isn't the newest");
+        checkEquals(restore(before.get(1)), restore(after.get(0)), "duplicate backup was stored twice");
+        checkEquals(restore(before.get(2)), restore(after.get(1)), "duplicate backup was stored twice");
+
+        // invalid configs share the serializer's limit
+        failLoad(handler, path, "{ \"value\": 500 }");
+        after = backups(path);
+        checkEquals(3, after.size(), "backups after invalid config");
+        checkEquals("{ \"value\": 500 }", restore(after.get(2)), "invalid config's backup");
+
+        // at least one backup is always kept
+        Path other = configDir().resolve("other.json5");
+        Files.write(other, bytes("first"));
+        ConfigBackups.backUp(other, 0);
+        Files.write(other, bytes("second"));
+        Path backup = ConfigBackups.backUp(other, 0);
+        check(!Files.exists(other), "backed up file wasn't removed");
+        checkEquals(Collections.singletonList(backup), backups(other), "backups with limit 0");
+        checkEquals("second", restore(backup), "backup with limit 0");
+        checkThrows(IOException.class, () -> ConfigBackups.decompress(bytes("not gzip")), "corrupt backup");
+    }
+
+    private static void failLoad(BackupHandler handler, Path path, String contents) throws Exception {
+        // backups are ordered by their timestamps
+        Thread.sleep(5);
+        Files.write(path, bytes(contents));
+        handler.load();
+    }
+
+    private static ArrayList<Path> backups(Path path) throws IOException {
+        ArrayList<Path> backups = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(path.getParent(), path.getFileName() + "-BACKUP-*")) {
+            for (Path backup : stream)
+                backups.add(backup);
+        }
+        Collections.sort(backups);
+        return backups;
+    }
+
+    private static String restore(Path backup) throws IOException {
+        return new String(ConfigBackups.decompress(Files.readAllBytes(backup)), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,31 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.*;
+
+import java.util.*;
+
+@Config(name = "binary", handlerInterface = "BinaryHandler",
+        components = @Component(value = "speedbridge-config:serializer", params = "provider=speedbridge-config:binary"))
+public class BinaryConfig {
+    public int number = 1;
+    public long big = 1L << 40;
+    public String text = "text";
+    public String removed = "removed";
+    public Mode mode = Mode.FIRST;
+    public int[] ints = { -1, 0, 1 };
+    public long[] longs = { Long.MIN_VALUE, Long.MAX_VALUE };
+    public float[] floats = { 0.25f };
+    public double[] doubles = { Double.NaN, -0.0 };
+    public boolean[] flags = { true, false, true };
+    public List<Nested> nested = new ArrayList<>();
+    public Map<String, String> map = new HashMap<>();
+
+    public enum Mode {
+        FIRST, SECOND
+    }
+
+    public static class Nested {
+        public int depth;
+        public String label;
+    }
+}
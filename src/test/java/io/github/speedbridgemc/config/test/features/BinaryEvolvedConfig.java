@@ -0,0 +1,22 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.*;
+import io.github.speedbridgemc.config.serialize.SerializedAliases;
+import io.github.speedbridgemc.config.serialize.UseDefaultIfMissing;
+
+import java.util.*;
+
+// a later version of BinaryConfig's schema: fields reordered, renamed, added and removed
+@Config(name = "binary", handlerInterface = "BinaryEvolvedHandler",
+        components = @Component(value = "speedbridge-config:serializer", params = "provider=speedbridge-config:binary"))
+public class BinaryEvolvedConfig {
+    public Map<String, String> map = new HashMap<>();
+    @SerializedAliases("text")
+    public String renamed = "renamed";
+    @UseDefaultIfMissing
+    public int added = 123;
+    public List<BinaryConfig.Nested> nested = new ArrayList<>();
+    public BinaryConfig.Mode mode = BinaryConfig.Mode.FIRST;
+    public long big;
+    public int number;
+}
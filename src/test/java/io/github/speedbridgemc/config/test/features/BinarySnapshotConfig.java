@@ -0,0 +1,21 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.*;
+
+import java.util.*;
+
+@Config(name = "binary_snapshot", handlerInterface = "BinarySnapshotHandler",
+        components = @Component(value = "speedbridge-config:serializer",
+                params = { "provider=speedbridge-config:gson", "options=+binarySnapshot" }))
+public class BinarySnapshotConfig {
+    public int value = 5;
+    public String name = "default";
+    public double[] weights = { 0.5 };
+    public List<Nested> nested = new ArrayList<>();
+    public Map<String, Integer> map = new HashMap<>();
+
+    public static class Nested {
+        public long id;
+        public boolean flag;
+    }
+}
@@ -0,0 +1,82 @@
+package io.github.speedbridgemc.config.test.features;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static io.github.speedbridgemc.config.test.features.FeatureTests.*;
+
+final class BinarySnapshotTest {
+    private BinarySnapshotTest() { }
+
+    // magic, version, schema hash and text file fingerprint
+    private static final int HEADER_SIZE = 4 + 1 + 8 + 8 + 8 + 8;
+
+    static void run() throws Exception {
+        Path path = configDir().resolve("binary_snapshot.json5");
+        Path snapshotPath = configDir().resolve("binary_snapshot.json5.bin");
+        BinarySnapshotHandler handler = new BinarySnapshotHandlerImpl();
+        BinarySnapshotConfig config = handler.get();
+        check(Files.exists(snapshotPath), "snapshot wasn't written with the default config");
+
+        // save one config just for its snapshot payload
+        config.value = 99;
+        config.name = "from snapshot";
+        handler.save();
+        byte[] otherSnapshot = Files.readAllBytes(snapshotPath);
+
+        config.value = 42;
+        config.name = "from text";
+        config.weights = new double[] { 1, 2, 3 };
+        BinarySnapshotConfig.Nested nested = new BinarySnapshotConfig.Nested();
+        nested.id = Long.MIN_VALUE;
+        nested.flag = true;
+        config.nested.add(nested);
+        config.map.put("key", 7);
+        handler.save();
+        handler.load();
+        BinarySnapshotConfig loaded = handler.get();
+        check(loaded != config, "config wasn't reloaded");
+        checkEquals(42, loaded.value, "value");
+        checkEquals("from text", loaded.name, "name");
+        checkArrayEquals(config.weights, loaded.weights, "weights");
+        checkEquals(Long.MIN_VALUE, loaded.nested.get(0).id, "nested id");
+        checkEquals(true, loaded.nested.get(0).flag, "nested flag");
+        checkEquals(config.map, loaded.map, "map");
+
+        // a snapshot that matches the text file is decoded instead of the text, so swap in the other payload to tell
+        byte[] snapshot = Files.readAllBytes(snapshotPath);
+        Files.write(snapshotPath, splice(snapshot, otherSnapshot));
+        handler.load();
+        checkEquals(99, handler.get().value, "value loaded from matching snapshot");
+        checkEquals("from snapshot", handler.get().name, "name loaded from matching snapshot");
+
+        // a corrupt snapshot falls back to the text file, which rewrites the snapshot
+        byte[] corrupt = Arrays.copyOf(snapshot, snapshot.length);
+        Arrays.fill(corrupt, HEADER_SIZE, corrupt.length, (byte) 0xFF);
+        Files.write(snapshotPath, corrupt);
+        handler.load();
+        checkEquals(42, handler.get().value, "value loaded past corrupt snapshot");
+        checkArrayEquals(snapshot, Files.readAllBytes(snapshotPath), "snapshot rewritten after corrupt one");
+
+        // so does a stale snapshot, once the text file changes
+        Files.write(path, new String(Files.readAllBytes(path), StandardCharsets.UTF_8)
+                .replace("from text", "edited text").getBytes(StandardCharsets.UTF_8));
+        handler.load();
+        checkEquals("edited text", handler.get().name, "name loaded past stale snapshot");
+        check(!Arrays.equals(snapshot, Files.readAllBytes(snapshotPath)), "stale snapshot wasn't rewritten");
+
+        // and a missing one
+        Files.delete(snapshotPath);
+        handler.load();
+        checkEquals("edited text", handler.get().name, "name loaded without snapshot");
+        check(Files.exists(snapshotPath), "snapshot wasn't rewritten");
+    }
+
+    private static byte[] splice(byte[] header, byte[] payload) {
+        byte[] spliced = Arrays.copyOf(header, payload.length);
+        System.arraycopy(payload, HEADER_SIZE, spliced, HEADER_SIZE, payload.length - HEADER_SIZE);
+        return spliced;
+    }
+}
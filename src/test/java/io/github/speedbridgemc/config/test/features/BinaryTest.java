@@ -0,0 +1,81 @@
+package io.github.speedbridgemc.config.test.features;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static io.github.speedbridgemc.config.test.features.FeatureTests.*;
+
+final class BinaryTest {
+    private BinaryTest() { }
+
+    static void run() throws Exception {
+        Path path = configDir().resolve("binary.json5");
+        BinaryHandler handler = new BinaryHandlerImpl();
+        BinaryConfig config = handler.get();
+        config.number = Integer.MIN_VALUE;
+        config.big = -1;
+        config.text = "text \u00e9\ud83d\ude00";
+        config.mode = BinaryConfig.Mode.SECOND;
+        config.ints = new int[] { Integer.MIN_VALUE, -1, 0, 1, Integer.MAX_VALUE };
+        config.flags = new boolean[13];
+        for (int i = 0; i < config.flags.length; i++)
+            config.flags[i] = i % 3 == 1;
+        for (int i = 0; i < 3; i++) {
+            BinaryConfig.Nested nested = new BinaryConfig.Nested();
+            nested.depth = i;
+            nested.label = i == 1 ? null : "label " + i;
+            config.nested.add(nested);
+        }
+        config.map.put("key", "value");
+        config.map.put("", "");
+        handler.save();
+        handler.load();
+        BinaryConfig loaded = handler.get();
+        check(loaded != config, "config wasn't reloaded");
+        checkEquals(config.number, loaded.number, "number");
+        checkEquals(config.big, loaded.big, "big");
+        checkEquals(config.text, loaded.text, "text");
+        checkEquals(config.mode, loaded.mode, "mode");
+        checkArrayEquals(config.ints, loaded.ints, "ints");
+        checkArrayEquals(config.longs, loaded.longs, "longs");
+        checkArrayEquals(config.floats, loaded.floats, "floats");
+        checkArrayEquals(config.doubles, loaded.doubles, "doubles");
+        checkArrayEquals(config.flags, loaded.flags, "flags");
+        checkEquals(3, loaded.nested.size(), "nested size");
+        for (int i = 0; i < 3; i++) {
+            checkEquals(i, loaded.nested.get(i).depth, "nested[" + i + "].depth");
+            checkEquals(config.nested.get(i).label, loaded.nested.get(i).label, "nested[" + i + "].label");
+        }
+        checkEquals(config.map, loaded.map, "map");
+
+        // names are written once per document, so each nested object doesn't repeat them
+        byte[] contents = Files.readAllBytes(path);
+        checkEquals(1, occurrences(contents, "depth"), "occurrences of a nested field's name");
+
+        // fields are matched by name, not position
+        BinaryEvolvedConfig evolved = new BinaryEvolvedHandlerImpl().get();
+        checkEquals(Integer.MIN_VALUE, evolved.number, "number read by evolved schema");
+        checkEquals(-1L, evolved.big, "big read by evolved schema");
+        checkEquals(config.text, evolved.renamed, "aliased field read by evolved schema");
+        checkEquals(123, evolved.added, "added field read by evolved schema");
+        checkEquals(BinaryConfig.Mode.SECOND, evolved.mode, "mode read by evolved schema");
+        checkEquals(3, evolved.nested.size(), "nested size read by evolved schema");
+        checkEquals(config.map, evolved.map, "map read by evolved schema");
+        checkArrayEquals(contents, Files.readAllBytes(path), "contents after reading with evolved schema");
+    }
+
+    private static int occurrences(byte[] contents, String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int count = 0;
+        outer:
+        for (int i = 0; i <= contents.length - bytes.length; i++) {
+            for (int j = 0; j < bytes.length; j++) {
+                if (contents[i + j] != bytes[j])
+                    continue outer;
+            }
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,16 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.*;
+
+import java.util.*;
+
+// PrimitiveCollectionConfig with boxed collections, which must share its file layout
+@Config(name = "primitive_collection", handlerInterface = "BoxedCollectionHandler",
+        components = @Component(value = "speedbridge-config:serializer", params = "provider=speedbridge-config:gson"))
+public class BoxedCollectionConfig {
+    public List<Integer> ints = new ArrayList<>();
+    public List<Long> longs = new ArrayList<>();
+    public List<Float> floats = new ArrayList<>();
+    public Map<Integer, String> intMap = new HashMap<>();
+    public Map<Long, String> longMap = new HashMap<>();
+}
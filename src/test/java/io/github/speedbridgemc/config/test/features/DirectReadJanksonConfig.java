@@ -0,0 +1,13 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.*;
+
+import java.util.*;
+
+@Config(name = "direct_read_jankson", handlerInterface = "DirectReadJanksonHandler",
+        components = @Component(value = "speedbridge-config:serializer",
+                params = { "provider=speedbridge-config:jankson", "options=+directRead" }))
+public class DirectReadJanksonConfig {
+    public String text = "text";
+    public List<String> lines = new ArrayList<>();
+}
@@ -0,0 +1,14 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.*;
+
+import java.util.*;
+
+// same as DirectReadGsonConfig, without directRead, for ReadBenchmark
+@Config(name = "direct_read_plain", handlerInterface = "DirectReadPlainHandler",
+        components = @Component(value = "speedbridge-config:serializer",
+                params = "provider=speedbridge-config:gson"))
+public class DirectReadPlainConfig {
+    public String text = "text";
+    public List<String> lines = new ArrayList<>();
+}
@@ -0,0 +1,78 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.serialize.FileContents;
+
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.github.speedbridgemc.config.test.features.FeatureTests.*;
+
+final class DirectReadTest {
+    private DirectReadTest() { }
+
+    private static final String TEXT = "unicode \u00e9\u4e2d\ud83d\ude00";
+    private static final byte[] BOM = { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF };
+
+    static void run() throws Exception {
+        try (Reader reader = FileContents.newReader(concat(BOM, TEXT.getBytes(StandardCharsets.UTF_8)))) {
+            checkEquals(TEXT, readAll(reader), "decoded contents with BOM");
+        }
+        try (Reader reader = FileContents.newReader(TEXT.getBytes(StandardCharsets.UTF_8))) {
+            checkEquals(TEXT, readAll(reader), "decoded contents without BOM");
+        }
+        // surrogate pairs are split between reads that only have room for one char
+        try (Reader reader = FileContents.newReader(TEXT.getBytes(StandardCharsets.UTF_8))) {
+            StringBuilder sb = new StringBuilder();
+            int c;
+            while ((c = reader.read()) >= 0)
+                sb.append((char) c);
+            checkEquals(TEXT, sb.toString(), "contents decoded one char at a time");
+        }
+        try (Reader reader = FileContents.newReader(new byte[] { 'a', (byte) 0xC3, 'b' })) {
+            checkEquals("a\ufffdb", readAll(reader), "malformed contents");
+        }
+
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++)
+            lines.add(TEXT + " " + i);
+
+        DirectReadGsonHandler gson = new DirectReadGsonHandlerImpl();
+        gson.get().text = TEXT;
+        gson.get().lines.addAll(lines);
+        gson.save();
+        gson.load();
+        checkEquals(TEXT, gson.get().text, "gson text");
+        checkEquals(lines, gson.get().lines, "gson lines");
+        Files.write(configDir().resolve("direct_read_gson.json5"),
+                concat(BOM, ("{ \"text\": \"" + TEXT + " with BOM\", \"lines\": [] }").getBytes(StandardCharsets.UTF_8)));
+        gson.load();
+        checkEquals(TEXT + " with BOM", gson.get().text, "gson text of file with BOM");
+
+        DirectReadJanksonHandler jankson = new DirectReadJanksonHandlerImpl();
+        jankson.get().text = TEXT;
+        jankson.get().lines.addAll(lines);
+        jankson.save();
+        jankson.load();
+        checkEquals(TEXT, jankson.get().text, "jankson text");
+        checkEquals(lines, jankson.get().lines, "jankson lines");
+    }
+
+    private static String readAll(Reader reader) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        char[] buf = new char[4096];
+        int read;
+        while ((read = reader.read(buf)) >= 0)
+            sb.append(buf, 0, read);
+        return sb.toString();
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] result = new byte[a.length + b.length];
+        System.arraycopy(a, 0, result, 0, a.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+}
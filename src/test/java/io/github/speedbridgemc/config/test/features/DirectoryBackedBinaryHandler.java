@@ -0,0 +1,3 @@
+package io.github.speedbridgemc.config.test.features;
+
+public interface DirectoryBackedBinaryHandler extends FeatureHandler<DirectoryBackedBinaryConfig> { }
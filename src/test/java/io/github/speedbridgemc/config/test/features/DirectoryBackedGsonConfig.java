@@ -0,0 +1,22 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.*;
+import io.github.speedbridgemc.config.serialize.DirectoryBacked;
+
+import java.util.*;
+
+@Config(name = "directory_backed_gson", handlerInterface = "DirectoryBackedGsonHandler",
+        components = @Component(value = "speedbridge-config:serializer", params = "provider=speedbridge-config:gson"))
+public class DirectoryBackedGsonConfig {
+    public static class Entry {
+        public int count = 1;
+        public String label = "entry";
+        public List<String> tags = new ArrayList<>();
+    }
+
+    public int value = 5;
+    @DirectoryBacked(cacheSize = 2)
+    public Map<String, Entry> entries = new HashMap<>();
+    @DirectoryBacked
+    public Map<String, String> notes = new HashMap<>();
+}
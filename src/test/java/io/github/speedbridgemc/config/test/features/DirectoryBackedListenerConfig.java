@@ -0,0 +1,19 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.*;
+import io.github.speedbridgemc.config.serialize.DirectoryBacked;
+
+import java.util.*;
+
+@Config(name = "directory_backed_listener", handlerInterface = "DirectoryBackedListenerHandler",
+        components = {
+            @Component(value = "speedbridge-config:serializer", params = "provider=speedbridge-config:gson"),
+            @Component("speedbridge-config:listener")
+        })
+public class DirectoryBackedListenerConfig {
+    public int value = 5;
+    @DirectoryBacked
+    public Map<String, DirectoryBackedGsonConfig.Entry> entries = new HashMap<>();
+    @DirectoryBacked
+    public Map<String, String> notes = new HashMap<>();
+}
@@ -0,0 +1,13 @@
+package io.github.speedbridgemc.config.test.features;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.Consumer;
+
+public interface DirectoryBackedListenerHandler extends FeatureHandler<DirectoryBackedListenerConfig> {
+    void addListener(@NotNull Consumer<DirectoryBackedListenerConfig> listener);
+    void removeListener(@NotNull Consumer<DirectoryBackedListenerConfig> listener);
+    void addFieldListener(int field, @NotNull Consumer<DirectoryBackedListenerConfig> listener);
+    void removeFieldListener(int field, @NotNull Consumer<DirectoryBackedListenerConfig> listener);
+    void notifyChanged(@NotNull DirectoryBackedListenerConfig config);
+}
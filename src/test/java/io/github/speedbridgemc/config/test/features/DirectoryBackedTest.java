@@ -0,0 +1,204 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.DirectoryMap;
+
+import java.lang.reflect.Field;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static io.github.speedbridgemc.config.test.features.FeatureTests.*;
+
+final class DirectoryBackedTest {
+    private DirectoryBackedTest() { }
+
+    private static final String ODD_KEY = "a/b c.\u00e9";
+
+    static void run() throws Exception {
+        checkGson();
+        checkProvider("native", new DirectoryBackedNativeHandlerImpl());
+        checkProvider("binary", new DirectoryBackedBinaryHandlerImpl());
+        checkProvider("jankson", new DirectoryBackedJanksonHandlerImpl());
+        checkFieldListeners();
+    }
+
+    private static void checkGson() throws Exception {
+        DirectoryBackedGsonHandler handler = new DirectoryBackedGsonHandlerImpl();
+        Path entriesDir = configDir().resolve("directory_backed_gson-entries");
+
+        // a fresh config's plain maps are written in full
+        DirectoryBackedGsonConfig config = handler.get();
+        for (int i = 0; i < 4; i++)
+            config.entries.put("e" + i, entry(i));
+        config.entries.put(ODD_KEY, entry(99));
+        config.notes.put("hello", "world");
+        handler.save();
+        checkEquals(new HashSet<>(Arrays.asList("e0.json5", "e1.json5", "e2.json5", "e3.json5", "a%2Fb%20c%2E%C3%A9.json5")),
+                list(entriesDir), "entry files");
+        String contents = new String(Files.readAllBytes(handler.resolvePath("directory_backed_gson")), StandardCharsets.UTF_8);
+        check(!contents.contains("entries") && !contents.contains("hello"), "maps were written to the config file:\n" + contents);
+
+        // loading only lists the directory
+        handler.load();
+        config = handler.get();
+        check(config.entries instanceof DirectoryMap, "field isn't a DirectoryMap");
+        DirectoryMap<DirectoryBackedGsonConfig.Entry> entries = (DirectoryMap<DirectoryBackedGsonConfig.Entry>) config.entries;
+        checkEquals(5, entries.size(), "size");
+        check(entries.containsKey(ODD_KEY), "escaped key");
+        for (String key : entries.keySet())
+            check(!entries.isLoaded(key), key + " was read while loading");
+        checkEquals(99, entries.get(ODD_KEY).count, "escaped key's entry");
+        checkEquals(Collections.singletonList("tag2"), entries.get("e2").tags, "entry");
+        checkEquals("world", config.notes.get("hello"), "note");
+
+        // only the most recently used unchanged entries stay in memory
+        entries.get("e0");
+        entries.get("e1");
+        entries.get("e3");
+        check(!entries.isLoaded("e0") && entries.isLoaded("e1") && entries.isLoaded("e3"), "cache wasn't trimmed");
+
+        // saves only touch changed entries, even if the config file itself didn't change
+        Path e1 = entriesDir.resolve("e1.json5");
+        byte[] marker = "{ \"count\": 1000, \"label\": \"marker\", \"tags\": [] }".getBytes(StandardCharsets.UTF_8);
+        Files.write(e1, marker);
+        entries.put("e0", entry(10));
+        entries.remove("e2");
+        handler.save();
+        checkArrayEquals(marker, Files.readAllBytes(e1), "unchanged entry was rewritten");
+        check(!Files.exists(entriesDir.resolve("e2.json5")), "removed entry wasn't deleted");
+
+        // changed entries aren't evicted before they're saved
+        entries.put("e3", entry(30));
+        entries.get("e0");
+        entries.get("e1");
+        entries.get(ODD_KEY);
+        check(entries.isLoaded("e3"), "changed entry was evicted");
+        handler.save();
+        handler.load();
+        config = handler.get();
+        checkEquals(new HashSet<>(Arrays.asList("e0", "e1", "e3", ODD_KEY)), config.entries.keySet(), "keys after save");
+        checkEquals(10, config.entries.get("e0").count, "changed entry");
+        checkEquals(30, config.entries.get("e3").count, "changed entry");
+
+        // blind puts and removes don't read the old entry, so corrupt entries can still be replaced or removed
+        Files.write(entriesDir.resolve("e1.json5"), "{ corrupt".getBytes(StandardCharsets.UTF_8));
+        Files.write(entriesDir.resolve("e3.json5"), "{ corrupt".getBytes(StandardCharsets.UTF_8));
+        handler.load();
+        config = handler.get();
+        entries = (DirectoryMap<DirectoryBackedGsonConfig.Entry>) config.entries;
+        DirectoryMap<DirectoryBackedGsonConfig.Entry> corrupt = entries;
+        checkThrows(UncheckedIOException.class, () -> corrupt.get("e1"), "corrupt entry was read");
+        checkEquals(null, entries.put("e1", entry(11)), "unloaded previous value");
+        checkEquals(null, entries.remove("e3"), "unloaded previous value");
+        check(!entries.isLoaded("e0"), "put or remove read another entry");
+        entries.get("e0");
+        checkEquals(10, entries.put("e0", entry(12)).count, "loaded previous value");
+        handler.save();
+        handler.load();
+        config = handler.get();
+        checkEquals(11, config.entries.get("e1").count, "replaced corrupt entry");
+        check(!config.entries.containsKey("e3"), "corrupt entry wasn't removed");
+        check(!Files.exists(entriesDir.resolve("e3.json5")), "corrupt entry file wasn't deleted");
+
+        // a plain map replaces everything in the directory
+        config.entries = new HashMap<>(Collections.singletonMap("only", entry(1)));
+        handler.save();
+        checkEquals(Collections.singleton("only.json5"), list(entriesDir), "entry files after replacing map");
+
+        handler.reset();
+        handler.save();
+        checkEquals(Collections.emptySet(), list(entriesDir), "entry files after reset");
+    }
+
+    private static void checkProvider(String provider, FeatureHandler<?> handler) throws Exception {
+        Object config = handler.get();
+        Map<String, Object> entries = map(config, "entries");
+        Class<?> entryType = Class.forName(config.getClass().getName() + "$Entry");
+        for (int i = 0; i < 3; i++) {
+            Object entry = entryType.getConstructor().newInstance();
+            entryType.getField("count").setInt(entry, i);
+            entries.put(i == 0 ? ODD_KEY : "e" + i, entry);
+        }
+        map(config, "notes").put("hello", "world");
+        handler.save();
+        handler.load();
+        config = handler.get();
+        entries = map(config, "entries");
+        check(entries instanceof DirectoryMap, provider + " field isn't a DirectoryMap");
+        checkEquals(new HashSet<>(Arrays.asList(ODD_KEY, "e1", "e2")), entries.keySet(), provider + " keys");
+        checkEquals(0, entryType.getField("count").getInt(entries.get(ODD_KEY)), provider + " entry");
+        checkEquals(2, entryType.getField("count").getInt(entries.get("e2")), provider + " entry");
+        checkEquals("world", map(config, "notes").get("hello"), provider + " note");
+
+        entries.remove("e1");
+        handler.save();
+        handler.load();
+        checkEquals(new HashSet<>(Arrays.asList(ODD_KEY, "e2")), map(handler.get(), "entries").keySet(),
+                provider + " keys after removal");
+    }
+
+    // diffing compares what was put or removed, without reading any entries
+    @SuppressWarnings("unchecked")
+    private static void checkFieldListeners() throws Exception {
+        DirectoryBackedListenerHandler handler = new DirectoryBackedListenerHandlerImpl();
+        for (int i = 0; i < 3; i++)
+            handler.get().entries.put("e" + i, entry(i));
+        handler.get().notes.put("hello", "world");
+        handler.save();
+        handler.load();
+        List<String> changed = new ArrayList<>();
+        handler.addFieldListener(DirectoryBackedListenerConfigFields.ENTRIES, config -> changed.add("entries"));
+        handler.addFieldListener(DirectoryBackedListenerConfigFields.NOTES, config -> changed.add("notes"));
+        DirectoryMap<DirectoryBackedGsonConfig.Entry> entries = (DirectoryMap<DirectoryBackedGsonConfig.Entry>) handler.get().entries;
+        handler.notifyChanged(handler.get());
+        check(changed.isEmpty(), "unchanged config notified " + changed);
+
+        entries.put("e3", entry(3));
+        handler.save();
+        checkEquals(Collections.singletonList("entries"), changed, "changed fields of put");
+        changed.clear();
+        handler.save();
+        check(changed.isEmpty(), "unchanged save notified " + changed);
+
+        entries.remove("e0");
+        handler.get().notes.put("hello", "there");
+        handler.save();
+        checkEquals(Arrays.asList("entries", "notes"), changed, "changed fields of remove and replace");
+        changed.clear();
+        for (String key : Arrays.asList("e1", "e2"))
+            check(!entries.isLoaded(key), key + " was read while diffing");
+
+        DirectoryBackedListenerConfig copy = DirectoryBackedListenerConfigFields.copy(handler.get());
+        check(copy.entries instanceof DirectoryMap && copy.entries != entries, "copy() shares the directory map");
+        checkEquals(3, copy.entries.get("e3").count, "copied entry");
+        check(copy.entries.get("e3") != entries.get("e3"), "copy() isn't deep");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> map(Object config, String name) throws Exception {
+        Field field = config.getClass().getField(name);
+        return (Map<String, Object>) field.get(config);
+    }
+
+    private static DirectoryBackedGsonConfig.Entry entry(int count) {
+        DirectoryBackedGsonConfig.Entry entry = new DirectoryBackedGsonConfig.Entry();
+        entry.count = count;
+        entry.label = "entry " + count;
+        entry.tags.add("tag" + count);
+        return entry;
+    }
+
+    private static Set<String> list(Path dir) throws Exception {
+        HashSet<String> names = new HashSet<>();
+        if (!Files.isDirectory(dir))
+            return names;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path file : stream)
+                names.add(file.getFileName().toString());
+        }
+        return names;
+    }
+}
@@ -0,0 +1,13 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.*;
+
+import java.util.*;
+
+@Config(name = "durability_atomic_rename", handlerInterface = "DurabilityAtomicRenameHandler",
+        components = @Component(value = "speedbridge-config:serializer",
+                params = { "provider=speedbridge-config:gson", "durability=atomic-rename" }))
+public class DurabilityAtomicRenameConfig {
+    public int value = 5;
+    public String text = "text";
+}
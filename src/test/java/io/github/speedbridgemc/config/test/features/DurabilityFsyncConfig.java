@@ -0,0 +1,13 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.*;
+
+import java.util.*;
+
+@Config(name = "durability_fsync", handlerInterface = "DurabilityFsyncHandler",
+        components = @Component(value = "speedbridge-config:serializer",
+                params = { "provider=speedbridge-config:gson", "durability=fsync" }))
+public class DurabilityFsyncConfig {
+    public int value = 5;
+    public String text = "text";
+}
@@ -0,0 +1,13 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.*;
+
+import java.util.*;
+
+@Config(name = "durability_fsync_journal", handlerInterface = "DurabilityFsyncJournalHandler",
+        components = @Component(value = "speedbridge-config:serializer",
+                params = { "provider=speedbridge-config:native", "durability=fsync", "options=+journal" }))
+public class DurabilityFsyncJournalConfig {
+    public int value = 5;
+    public String text = "text";
+}
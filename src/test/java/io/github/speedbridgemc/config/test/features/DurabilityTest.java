@@ -0,0 +1,145 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.serialize.FileSync;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static io.github.speedbridgemc.config.test.features.FeatureTests.*;
+
+final class DurabilityTest {
+    private DurabilityTest() { }
+
+    static void run() throws Exception {
+        checkAtomicRename();
+        checkHandlers();
+        checkFileSync();
+        checkGroupSync();
+    }
+
+    private static void checkAtomicRename() throws Exception {
+        DurabilityAtomicRenameHandler handler = new DurabilityAtomicRenameHandlerImpl();
+        Path path = handler.resolvePath("durability_atomic_rename");
+        handler.load();
+        // readers never see a half-written config file
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                try {
+                    DurabilityAtomicRenameHandlerImpl.read(path);
+                } catch (Exception e) {
+                    failure.compareAndSet(null, e);
+                }
+            }
+        }, "durability reader");
+        reader.start();
+        char[] text = new char[4096];
+        try {
+            for (int i = 0; i < 200; i++) {
+                Arrays.fill(text, 0, 1 + i * 20, (char) ('a' + i % 26));
+                handler.get().value = i;
+                handler.get().text = new String(text, 0, 1 + i * 20);
+                handler.save();
+            }
+        } finally {
+            done.set(true);
+            reader.join();
+        }
+        if (failure.get() != null)
+            throw new AssertionError("read a partially written config file", failure.get());
+        handler.load();
+        checkEquals(199, handler.get().value, "value after saves");
+        checkEquals(0, tempFiles(path.getParent()).size(), "temp files left behind: " + tempFiles(path.getParent()));
+    }
+
+    private static void checkHandlers() throws Exception {
+        DurabilityFsyncHandler fsync = new DurabilityFsyncHandlerImpl();
+        DurabilityFsyncJournalHandler journaled = new DurabilityFsyncJournalHandlerImpl();
+        fsync.load();
+        journaled.load();
+        fsync.get().text = "synced";
+        fsync.save();
+        for (int i = 0; i < 10; i++) {
+            journaled.get().value = i;
+            journaled.save();
+        }
+
+        DurabilityFsyncHandler fsyncReloaded = new DurabilityFsyncHandlerImpl();
+        DurabilityFsyncJournalHandler journaledReloaded = new DurabilityFsyncJournalHandlerImpl();
+        fsyncReloaded.load();
+        journaledReloaded.load();
+        checkEquals("synced", fsyncReloaded.get().text, "synced text");
+        checkEquals(9, journaledReloaded.get().value, "synced journal");
+        checkEquals(0, tempFiles(configDir()).size(), "temp files left behind: " + tempFiles(configDir()));
+    }
+
+    private static void checkFileSync() throws Exception {
+        Path dir = configDir().resolve("sync");
+        Files.createDirectories(dir);
+        Path source = dir.resolve("source"), target = dir.resolve("target");
+        FileSync.writeSynced(target, "old".getBytes(StandardCharsets.UTF_8));
+        FileSync.writeSynced(source, "new contents".getBytes(StandardCharsets.UTF_8));
+        // replaces existing contents, even longer ones
+        FileSync.writeSynced(source, "new".getBytes(StandardCharsets.UTF_8));
+        FileSync.moveAtomically(source, target);
+        check(!Files.exists(source), "source wasn't moved");
+        checkEquals("new", new String(Files.readAllBytes(target), StandardCharsets.UTF_8), "moved file");
+        FileSync.syncDirectory(dir);
+        checkThrows(IOException.class, () -> FileSync.syncDirectory(dir.resolve("missing")), "missing directory was synced");
+        // failures don't stick to later syncs
+        Files.createDirectories(dir.resolve("missing"));
+        FileSync.syncDirectory(dir.resolve("missing"));
+    }
+
+    private static void checkGroupSync() throws Exception {
+        Path dir = configDir().resolve("group");
+        Files.createDirectories(dir);
+        int threadCount = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        ArrayList<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            Path file = dir.resolve("file" + i);
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int j = 0; j < 20; j++) {
+                        FileSync.writeSynced(file, ("contents " + j).getBytes(StandardCharsets.UTF_8));
+                        FileSync.syncDirectory(dir);
+                    }
+                } catch (Exception e) {
+                    failure.compareAndSet(null, e);
+                }
+            }, "durability sync " + i);
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join(30000);
+            check(!thread.isAlive(), thread.getName() + " is stuck syncing");
+        }
+        if (failure.get() != null)
+            throw new AssertionError("concurrent sync failed", failure.get());
+        for (int i = 0; i < threadCount; i++)
+            checkEquals("contents 19", new String(Files.readAllBytes(dir.resolve("file" + i)), StandardCharsets.UTF_8), "file" + i);
+    }
+
+    private static ArrayList<String> tempFiles(Path dir) throws IOException {
+        ArrayList<String> names = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*TEMP*")) {
+            for (Path file : stream)
+                names.add(file.getFileName().toString());
+        }
+        return names;
+    }
+}
@@ -0,0 +1,18 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.*;
+import io.github.speedbridgemc.config.test.features.EnumCollectionConfig.Color;
+import io.github.speedbridgemc.config.test.features.EnumCollectionConfig.Mode;
+
+import java.util.*;
+
+@Config(name = "enum_collection_binary", handlerInterface = "EnumCollectionBinaryHandler",
+        components = @Component(value = "speedbridge-config:serializer", params = "provider=speedbridge-config:binary"))
+public class EnumCollectionBinaryConfig {
+    public Mode mode = Mode.FIRST;
+    public Color color = Color.RED;
+    public EnumSet<Mode> modes = EnumSet.noneOf(Mode.class);
+    public EnumSet<Color> colors = EnumSet.of(Color.GREEN);
+    public EnumMap<Mode, Integer> modeCounts = new EnumMap<>(Mode.class);
+    public EnumMap<Color, String> colorNames = new EnumMap<>(Color.class);
+}
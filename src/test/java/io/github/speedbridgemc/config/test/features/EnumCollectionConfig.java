@@ -0,0 +1,52 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.*;
+import io.github.speedbridgemc.config.serialize.KeyedEnum;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+@Config(name = "enum_collection", handlerInterface = "EnumCollectionHandler", concurrency = ConcurrencyMode.ATOMIC,
+        components = {
+            @Component(value = "speedbridge-config:serializer", params = "provider=speedbridge-config:gson"),
+            @Component("speedbridge-config:snapshot")
+        })
+public class EnumCollectionConfig {
+    public Mode mode = Mode.FIRST;
+    public Color color = Color.RED;
+    public EnumSet<Mode> modes = EnumSet.noneOf(Mode.class);
+    public EnumSet<Color> colors = EnumSet.of(Color.GREEN);
+    public EnumMap<Mode, Integer> modeCounts = new EnumMap<>(Mode.class);
+    public EnumMap<Color, String> colorNames = new EnumMap<>(Color.class);
+
+    public enum Mode {
+        FIRST, SECOND, THIRD
+    }
+
+    // ids differ from keys, so writing one and reading the other can't go unnoticed
+    public enum Color implements KeyedEnum<String> {
+        RED("red", 1), GREEN("green", 2), BLUE("blue", 3) {
+            @Override
+            public @NotNull String @NotNull [] getAliases() {
+                return new String[] { "azure" };
+            }
+        };
+
+        private final @NotNull String key;
+        private final int id;
+
+        Color(@NotNull String key, int id) {
+            this.key = key;
+            this.id = id;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        @Override
+        public @NotNull String getKey() {
+            return key;
+        }
+    }
+}
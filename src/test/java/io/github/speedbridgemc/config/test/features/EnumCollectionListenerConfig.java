@@ -0,0 +1,17 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.*;
+import io.github.speedbridgemc.config.test.features.EnumCollectionConfig.Mode;
+
+import java.util.*;
+
+@Config(name = "enum_collection_listener", handlerInterface = "EnumCollectionListenerHandler",
+        components = {
+            @Component(value = "speedbridge-config:serializer", params = "provider=speedbridge-config:gson"),
+            @Component("speedbridge-config:listener")
+        })
+public class EnumCollectionListenerConfig {
+    public EnumSet<Mode> modes = EnumSet.noneOf(Mode.class);
+    public EnumMap<Mode, Integer> modeCounts = new EnumMap<>(Mode.class);
+    public EnumMap<Mode, List<String>> modeTags = new EnumMap<>(Mode.class);
+}
@@ -0,0 +1,13 @@
+package io.github.speedbridgemc.config.test.features;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.Consumer;
+
+public interface EnumCollectionListenerHandler extends FeatureHandler<EnumCollectionListenerConfig> {
+    void addListener(@NotNull Consumer<EnumCollectionListenerConfig> listener);
+    void removeListener(@NotNull Consumer<EnumCollectionListenerConfig> listener);
+    void addFieldListener(int field, @NotNull Consumer<EnumCollectionListenerConfig> listener);
+    void removeFieldListener(int field, @NotNull Consumer<EnumCollectionListenerConfig> listener);
+    void notifyChanged(@NotNull EnumCollectionListenerConfig config);
+}
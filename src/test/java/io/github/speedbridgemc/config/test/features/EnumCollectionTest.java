@@ -0,0 +1,122 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.test.features.EnumCollectionConfig.Color;
+import io.github.speedbridgemc.config.test.features.EnumCollectionConfig.Mode;
+
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static io.github.speedbridgemc.config.test.features.FeatureTests.*;
+
+final class EnumCollectionTest {
+    private EnumCollectionTest() { }
+
+    private static final String[] FIELDS = { "mode", "color", "modes", "colors", "modeCounts", "colorNames" };
+
+    static void run() throws Exception {
+        EnumCollectionHandler gson = new EnumCollectionHandlerImpl();
+        checkRoundTrip("gson", gson);
+        checkRoundTrip("jankson", new EnumCollectionJanksonHandlerImpl());
+        checkRoundTrip("native", new EnumCollectionNativeHandlerImpl());
+        checkRoundTrip("binary", new EnumCollectionBinaryHandlerImpl());
+
+        // keyed enums are written by key, read by key or alias, and unknown keys are dropped
+        Path path = configDir().resolve("enum_collection.json5");
+        String contents = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+        check(contents.contains("\"blue\"") && !contents.contains("\"BLUE\""), "keyed enum wasn't written by key:\n" + contents);
+        Files.write(path, ("{ \"mode\": \"THIRD\", \"color\": \"azure\", \"modes\": [\"SECOND\"],"
+                + " \"colors\": [\"red\", \"purple\", \"azure\"], \"mode_counts\": [{ \"key\": \"FIRST\", \"value\": 1 }],"
+                + " \"color_names\": [{ \"key\": \"green\", \"value\": \"g\" }, { \"key\": \"purple\", \"value\": \"p\" }] }")
+                .getBytes(StandardCharsets.UTF_8));
+        gson.load();
+        EnumCollectionConfig loaded = gson.get();
+        checkEquals(Mode.THIRD, loaded.mode, "plain enum read by name");
+        checkEquals(Color.BLUE, loaded.color, "keyed enum read by alias");
+        checkEquals(EnumSet.of(Mode.SECOND), loaded.modes, "plain enum set");
+        checkEquals(1, loaded.modeCounts.get(Mode.FIRST), "plain enum map value");
+        checkEquals(EnumSet.of(Color.RED, Color.BLUE), loaded.colors, "keyed enum set with unknown key");
+        checkEquals(1, loaded.colorNames.size(), "keyed enum map with unknown key");
+        checkEquals("g", loaded.colorNames.get(Color.GREEN), "keyed enum map value");
+
+        // snapshots freeze them, and thaw them back into the same types
+        EnumCollectionConfigSnapshot snapshot = (EnumCollectionConfigSnapshot) gson.snapshot();
+        checkThrows(UnsupportedOperationException.class, () -> snapshot.colors().add(Color.GREEN), "frozen set is writable");
+        checkThrows(UnsupportedOperationException.class, () -> snapshot.modeCounts().put(Mode.SECOND, 2), "frozen map is writable");
+        loaded.colors.add(Color.GREEN);
+        check(!snapshot.colors().contains(Color.GREEN), "snapshot set shares state with config");
+        EnumCollectionConfig thawed = snapshot.thaw();
+        check(thawed.colors != loaded.colors && thawed.modeCounts != loaded.modeCounts, "thawed collections are shared");
+        thawed.colors.add(Color.GREEN);
+        thawed.modeCounts.put(Mode.SECOND, 2);
+
+        checkFieldListeners();
+    }
+
+    // the listener's deep copies must copy enum collections, not share them
+    private static void checkFieldListeners() {
+        EnumCollectionListenerHandler handler = new EnumCollectionListenerHandlerImpl();
+        handler.get();
+        List<String> changed = new ArrayList<>();
+        handler.addFieldListener(EnumCollectionListenerConfigFields.MODES, config -> changed.add("modes"));
+        handler.addFieldListener(EnumCollectionListenerConfigFields.MODE_COUNTS, config -> changed.add("modeCounts"));
+        handler.addFieldListener(EnumCollectionListenerConfigFields.MODE_TAGS, config -> changed.add("modeTags"));
+        handler.get().modes.add(Mode.SECOND);
+        handler.get().modeCounts.put(Mode.FIRST, 1);
+        handler.get().modeTags.put(Mode.THIRD, new ArrayList<>(Collections.singletonList("a")));
+        handler.notifyChanged(handler.get());
+        checkEquals(Arrays.asList("modes", "modeCounts", "modeTags"), changed, "changed fields of new elements");
+        changed.clear();
+
+        handler.get().modes.remove(Mode.SECOND);
+        handler.get().modeCounts.put(Mode.FIRST, 2);
+        handler.get().modeTags.get(Mode.THIRD).add("b");
+        handler.notifyChanged(handler.get());
+        checkEquals(Arrays.asList("modes", "modeCounts", "modeTags"), changed, "changed fields of in-place changes");
+        changed.clear();
+        handler.notifyChanged(handler.get());
+        check(changed.isEmpty(), "unchanged config notified " + changed);
+
+        EnumCollectionListenerConfig copy = EnumCollectionListenerConfigFields.copy(handler.get());
+        check(copy.modes != handler.get().modes && copy.modeCounts != handler.get().modeCounts
+                && copy.modeTags.get(Mode.THIRD) != handler.get().modeTags.get(Mode.THIRD), "copy() isn't deep");
+        checkEquals(handler.get().modeTags, copy.modeTags, "copied map");
+    }
+
+    // every config has the same fields, so they're set and compared reflectively
+    private static <T> void checkRoundTrip(String provider, FeatureHandler<T> handler) throws Exception {
+        T config = handler.get();
+        EnumMap<Mode, Integer> modeCounts = new EnumMap<>(Mode.class);
+        modeCounts.put(Mode.FIRST, 1);
+        modeCounts.put(Mode.THIRD, 3);
+        EnumMap<Color, String> colorNames = new EnumMap<>(Color.class);
+        colorNames.put(Color.BLUE, "b");
+        colorNames.put(Color.RED, null);
+        Object[] values = { Mode.SECOND, Color.BLUE, EnumSet.allOf(Mode.class), EnumSet.of(Color.RED, Color.BLUE),
+                modeCounts, colorNames };
+        for (int i = 0; i < FIELDS.length; i++)
+            field(config, FIELDS[i]).set(config, values[i]);
+        handler.save();
+        handler.load();
+        T loaded = handler.get();
+        check(loaded != config, provider + " config wasn't reloaded");
+        for (int i = 0; i < FIELDS.length; i++)
+            checkEquals(values[i], field(loaded, FIELDS[i]).get(loaded), provider + " " + FIELDS[i]);
+        check(field(loaded, "colors").get(loaded) instanceof EnumSet, provider + " set isn't an EnumSet");
+        check(field(loaded, "colorNames").get(loaded) instanceof EnumMap, provider + " map isn't an EnumMap");
+
+        field(config, "modes").set(config, EnumSet.noneOf(Mode.class));
+        field(config, "modeCounts").set(config, new EnumMap<>(Mode.class));
+        handler.set(config);
+        handler.save();
+        handler.load();
+        checkEquals(EnumSet.noneOf(Mode.class), field(handler.get(), "modes").get(handler.get()), provider + " empty set");
+        checkEquals(new EnumMap<>(Mode.class), field(handler.get(), "modeCounts").get(handler.get()), provider + " empty map");
+    }
+
+    private static Field field(Object config, String name) throws Exception {
+        return config.getClass().getField(name);
+    }
+}
@@ -0,0 +1,23 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.LogLevel;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Path;
+
+public interface FeatureHandler<T> {
+    @NotNull T get();
+    void set(@NotNull T config);
+    void reset();
+    void load();
+    void save();
+
+    default void log(@NotNull LogLevel level, @NotNull String msg, @Nullable Exception e) {
+        FeatureTests.log(level, msg, e);
+    }
+
+    default @NotNull Path resolvePath(@NotNull String name) {
+        return FeatureTests.configDir().resolve(name + ".json5");
+    }
+}
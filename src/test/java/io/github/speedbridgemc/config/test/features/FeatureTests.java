@@ -0,0 +1,172 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.LogLevel;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Runs headless round-trip and behavior tests of the generated handlers.<p>
+ * Every test gets its own empty config directory. Run with {@code -Dfeatures.verbose=true} to see every
+ * message the handlers log, not just warnings and errors, along with stack traces.
+ */
+public final class FeatureTests {
+    private FeatureTests() { }
+
+    @FunctionalInterface
+    interface FeatureTest {
+        void run() throws Exception;
+    }
+
+    private static final boolean VERBOSE = Boolean.getBoolean("features.verbose");
+    private static final Map<String, FeatureTest> TESTS = new LinkedHashMap<>();
+
+    static {
+        TESTS.put("atomic", AtomicTest::run);
+        TESTS.put("snapshot", SnapshotTest::run);
+        TESTS.put("async", AsyncTest::run);
+        TESTS.put("write_behind", WriteBehindTest::run);
+        TESTS.put("watch", WatchTest::run);
+        TESTS.put("fingerprint", FingerprintTest::run);
+        TESTS.put("unchanged_save", UnchangedSaveTest::run);
+        TESTS.put("field_listener", FieldListenerTest::run);
+        TESTS.put("listener_dispatch", ListenerDispatchTest::run);
+        TESTS.put("array", ArrayTest::run);
+        TESTS.put("jankson_writer", JanksonWriterTest::run);
+        TESTS.put("native", NativeTest::run);
+        TESTS.put("binary_snapshot", BinarySnapshotTest::run);
+        TESTS.put("binary", BinaryTest::run);
+        TESTS.put("direct_read", DirectReadTest::run);
+        TESTS.put("size_hint", SizeHintTest::run);
+        TESTS.put("primitive_collection", PrimitiveCollectionTest::run);
+        TESTS.put("enum_collection", EnumCollectionTest::run);
+        TESTS.put("keyed_enum", KeyedEnumTest::run);
+        TESTS.put("lazy", LazyTest::run);
+        TESTS.put("directory_backed", DirectoryBackedTest::run);
+        TESTS.put("storage", StorageTest::run);
+        TESTS.put("journal", JournalTest::run);
+        TESTS.put("durability", DurabilityTest::run);
+        TESTS.put("backup", BackupTest::run);
+    }
+
+    private static Path configDir;
+
+    public static void main(String[] args) throws IOException {
+        List<String> failed = new ArrayList<>();
+        for (Map.Entry<String, FeatureTest> entry : TESTS.entrySet()) {
+            if (args.length > 0 && !contains(args, entry.getKey()))
+                continue;
+            configDir = Files.createTempDirectory("speedbridge-config-" + entry.getKey());
+            try {
+                entry.getValue().run();
+                System.out.println("PASSED " + entry.getKey());
+            } catch (Throwable e) {
+                System.out.println("FAILED " + entry.getKey());
+                e.printStackTrace(System.out);
+                failed.add(entry.getKey());
+            } finally {
+                deleteRecursively(configDir);
+            }
+        }
+        if (!failed.isEmpty()) {
+            System.out.println(failed.size() + " feature test(s) failed: " + String.join(", ", failed));
+            System.exit(1);
+        }
+    }
+
+    static @NotNull Path configDir() {
+        return configDir;
+    }
+
+    static void log(@NotNull LogLevel level, @NotNull String msg, @Nullable Exception e) {
+        if (!VERBOSE && !LogLevel.WARN.isSameLevelOrHigher(level))
+            return;
+        // most tests break things on purpose, so the errors they log are expected
+        PrintStream out = System.out;
+        out.println("  [" + level + "/" + Thread.currentThread().getName() + "] " + msg
+                + (e == null || VERBOSE ? "" : " (" + e + ")"));
+        if (e != null && VERBOSE)
+            e.printStackTrace(out);
+    }
+
+    static void check(boolean condition, @NotNull String message) {
+        if (!condition)
+            throw new AssertionError(message);
+    }
+
+    static void checkEquals(@Nullable Object expected, @Nullable Object actual, @NotNull String message) {
+        if (expected == null ? actual != null : !expected.equals(actual))
+            throw new AssertionError(message + ": expected <" + expected + ">, got <" + actual + ">");
+    }
+
+    static void checkArrayEquals(@Nullable Object expected, @Nullable Object actual, @NotNull String message) {
+        // wrapping lets deepEquals compare primitive arrays too
+        Object[] expectedWrapper = { expected }, actualWrapper = { actual };
+        if (!Arrays.deepEquals(expectedWrapper, actualWrapper))
+            throw new AssertionError(message + ": expected " + Arrays.deepToString(expectedWrapper)
+                    + ", got " + Arrays.deepToString(actualWrapper));
+    }
+
+    static <T extends Throwable> void checkThrows(@NotNull Class<T> type, @NotNull FeatureTest action,
+                                                  @NotNull String message) {
+        try {
+            action.run();
+        } catch (Throwable e) {
+            if (type.isInstance(e))
+                return;
+            throw new AssertionError(message + ": threw " + e, e);
+        }
+        throw new AssertionError(message + ": didn't throw " + type.getSimpleName());
+    }
+
+    /**
+     * Waits for a condition that's satisfied by another thread, such as a file watcher or write-behind thread.
+     * @return {@code true} if the condition was satisfied before the timeout
+     */
+    static boolean await(long timeoutMillis, @NotNull BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline)
+                return false;
+            Thread.sleep(20);
+        }
+        return true;
+    }
+
+    private static boolean contains(@NotNull String[] array, @NotNull String value) {
+        for (String element : array) {
+            if (element.equals(value))
+                return true;
+        }
+        return false;
+    }
+
+    private static void deleteRecursively(@NotNull Path dir) throws IOException {
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
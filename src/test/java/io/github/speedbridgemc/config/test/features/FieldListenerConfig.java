@@ -0,0 +1,28 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.*;
+
+import java.util.*;
+
+@Config(name = "field_listener", handlerInterface = "FieldListenerHandler",
+        components = {
+            @Component(value = "speedbridge-config:serializer", params = "provider=speedbridge-config:gson"),
+            @Component("speedbridge-config:listener")
+        })
+public class FieldListenerConfig {
+    public String name = "default";
+    public int[] ints = { 1, 2, 3 };
+    public Inner inner = new Inner();
+    public List<Inner> inners = new ArrayList<>(Collections.singletonList(new Inner()));
+    public Map<String, List<String>> tags = new HashMap<>();
+
+    public static class Inner {
+        public String label = "inner";
+        public double[] weights = { 0.5 };
+        public Leaf child = new Leaf();
+    }
+
+    public static class Leaf {
+        public long id = 3;
+    }
+}
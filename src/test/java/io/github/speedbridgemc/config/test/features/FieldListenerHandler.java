@@ -0,0 +1,13 @@
+package io.github.speedbridgemc.config.test.features;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.Consumer;
+
+public interface FieldListenerHandler extends FeatureHandler<FieldListenerConfig> {
+    void addListener(@NotNull Consumer<FieldListenerConfig> listener);
+    void removeListener(@NotNull Consumer<FieldListenerConfig> listener);
+    void addFieldListener(int field, @NotNull Consumer<FieldListenerConfig> listener);
+    void removeFieldListener(int field, @NotNull Consumer<FieldListenerConfig> listener);
+    void notifyChanged(@NotNull FieldListenerConfig config);
+}
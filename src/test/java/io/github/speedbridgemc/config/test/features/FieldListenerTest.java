@@ -0,0 +1,86 @@
+package io.github.speedbridgemc.config.test.features;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static io.github.speedbridgemc.config.test.features.FeatureTests.*;
+
+final class FieldListenerTest {
+    private FieldListenerTest() { }
+
+    static void run() throws Exception {
+        // nested fields are laid out right after the field that contains them
+        checkEquals(FieldListenerConfigFields.INNER + 4, FieldListenerConfigFields.INNER_CHILD_ID, "INNER_CHILD_ID");
+        checkEquals(9, FieldListenerConfigFields.COUNT, "COUNT");
+
+        FieldListenerHandler handler = new FieldListenerHandlerImpl();
+        handler.get();
+        List<String> changed = new ArrayList<>();
+        AtomicInteger notifications = new AtomicInteger();
+        handler.addListener(config -> notifications.incrementAndGet());
+        handler.addFieldListener(FieldListenerConfigFields.NAME, config -> changed.add("name"));
+        handler.addFieldListener(FieldListenerConfigFields.INTS, config -> changed.add("ints"));
+        handler.addFieldListener(FieldListenerConfigFields.INNER, config -> changed.add("inner"));
+        handler.addFieldListener(FieldListenerConfigFields.INNER_CHILD_ID, config -> changed.add("inner.child.id"));
+        handler.addFieldListener(FieldListenerConfigFields.INNERS, config -> changed.add("inners"));
+        Consumer<FieldListenerConfig> tagsListener = config -> changed.add("tags");
+        handler.addFieldListener(FieldListenerConfigFields.TAGS, tagsListener);
+
+        handler.notifyChanged(handler.get());
+        check(changed.isEmpty(), "unchanged config notified " + changed);
+        checkEquals(0, notifications.get(), "notifications for unchanged config");
+
+        handler.get().inner.child.id = 9;
+        handler.notifyChanged(handler.get());
+        checkEquals(Arrays.asList("inner", "inner.child.id"), changed, "changed fields of nested change");
+        checkEquals(1, notifications.get(), "notifications for nested change");
+        changed.clear();
+
+        FieldListenerConfig copy = FieldListenerConfigFields.copy(handler.get());
+        check(copy != handler.get() && copy.inner != handler.get().inner && copy.inner.child != handler.get().inner.child,
+                "copy() isn't deep");
+        checkEquals(9L, copy.inner.child.id, "copied nested field");
+        copy.name = "renamed";
+        handler.set(copy);
+        checkEquals(Collections.singletonList("name"), changed, "changed fields of set()");
+        changed.clear();
+
+        handler.get().ints[1] = 7;
+        handler.get().inners.get(0).weights[0] = 2;
+        handler.notifyChanged(handler.get());
+        checkEquals(Arrays.asList("ints", "inners"), changed, "changed fields of element changes");
+        changed.clear();
+
+        handler.get().tags.put("t", new ArrayList<>(Collections.singletonList("x")));
+        handler.notifyChanged(handler.get());
+        handler.get().tags.get("t").add("y");
+        handler.notifyChanged(handler.get());
+        checkEquals(Arrays.asList("tags", "tags"), changed, "changed fields of map changes");
+        changed.clear();
+
+        handler.get().inner.child = null;
+        handler.notifyChanged(handler.get());
+        checkEquals(Arrays.asList("inner", "inner.child.id"), changed, "changed fields of nulled nested class");
+        changed.clear();
+
+        handler.removeFieldListener(FieldListenerConfigFields.TAGS, tagsListener);
+        handler.get().tags.clear();
+        handler.notifyChanged(handler.get());
+        check(changed.isEmpty(), "removed field listener was notified");
+
+        // reloads are diffed against the config they replace, too
+        handler.get().inner.child = new FieldListenerConfig.Leaf();
+        handler.save();
+        handler.notifyChanged(handler.get());
+        changed.clear();
+        Files.write(configDir().resolve("field_listener.json5"),
+                new String(Files.readAllBytes(configDir().resolve("field_listener.json5")), StandardCharsets.UTF_8)
+                        .replace("\"renamed\"", "\"reloaded\"").getBytes(StandardCharsets.UTF_8));
+        handler.load();
+        checkEquals("reloaded", handler.get().name, "reloaded name");
+        checkEquals(Collections.singletonList("name"), changed, "changed fields of reload");
+    }
+}
@@ -0,0 +1,67 @@
+package io.github.speedbridgemc.config.test.features;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.github.speedbridgemc.config.test.features.FeatureTests.*;
+
+final class FingerprintTest {
+    private FingerprintTest() { }
+
+    static void run() throws Exception {
+        Path path = configDir().resolve("watch.json5");
+        WatchHandler handler = new WatchHandlerImpl();
+        AtomicInteger loads = new AtomicInteger();
+        handler.addListener(config -> loads.incrementAndGet());
+        handler.get();
+
+        // the handler's own saves must not come back as reloads
+        WatchConfig config = new WatchConfig();
+        config.value = 21;
+        handler.set(config);
+        handler.save();
+        WatchTest.awaitWatcher(configDir());
+        loads.set(0);
+        check(handler.get() == config, "own save was reloaded");
+        checkEquals(0, loads.get(), "loads after own save");
+
+        // neither may rewriting the file with the same contents (without truncating, which would be a change)
+        Files.write(path, Files.readAllBytes(path), StandardOpenOption.WRITE);
+        WatchTest.awaitWatcher(configDir());
+        check(handler.get() == config, "identical rewrite was reloaded");
+        checkEquals(0, loads.get(), "loads after identical rewrite");
+
+        // but a single external edit right after a save must be
+        config.value = 22;
+        handler.save();
+        WatchTest.write(path, "{ \"value\": 23 }");
+        check(await(5000, () -> handler.get().value == 23), "external edit after own save wasn't reloaded");
+
+        // load() always re-reads, even if the file hasn't changed since
+        handler.get().value = 777;
+        handler.load();
+        checkEquals(23, handler.get().value, "value after explicit load()");
+
+        // an edit that keeps both the size and the modification time is still an edit
+        handler.get().value = 24;
+        handler.save();
+        FileTime savedTime = Files.getLastModifiedTime(path);
+        String saved = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+        WatchTest.write(path, saved.replace("24", "42"));
+        Files.setLastModifiedTime(path, savedTime);
+        check(await(5000, () -> handler.get().value == 42), "same-size edit with the same mtime wasn't reloaded");
+
+        // and saving over it must not be skipped as already up to date
+        handler.stopWatching();
+        handler.get().value = 24;
+        handler.save();
+        WatchTest.write(path, saved.replace("24", "42"));
+        Files.setLastModifiedTime(path, savedTime);
+        handler.save();
+        checkEquals(saved, new String(Files.readAllBytes(path), StandardCharsets.UTF_8), "file after saving over same-size edit");
+    }
+}
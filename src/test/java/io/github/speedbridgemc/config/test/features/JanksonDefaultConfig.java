@@ -0,0 +1,28 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.*;
+import io.github.speedbridgemc.config.serialize.SerializedName;
+
+import java.util.*;
+
+@Config(name = "jankson_default", handlerInterface = "JanksonDefaultHandler",
+        components = @Component(value = "speedbridge-config:serializer",
+                params = "provider=speedbridge-config:jankson"))
+public class JanksonDefaultConfig {
+    public String text = "plain";
+    @SerializedName("needs quoting")
+    public int quotedKey = 1;
+    public double notANumber = Double.NaN;
+    public double infinity = Double.POSITIVE_INFINITY;
+    public double negativeInfinity = Double.NEGATIVE_INFINITY;
+    public long big = Long.MIN_VALUE;
+    public List<String> emptyList = new ArrayList<>();
+    public Map<String, Integer> map = new HashMap<>();
+    public Nested nested = new Nested();
+
+    public static class Nested {
+        public boolean flag = true;
+        public float ratio = 0.5f;
+        public List<Nested> children = new ArrayList<>();
+    }
+}
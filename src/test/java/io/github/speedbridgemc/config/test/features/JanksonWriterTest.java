@@ -0,0 +1,83 @@
+package io.github.speedbridgemc.config.test.features;
+
+import blue.endless.jankson.Jankson;
+import blue.endless.jankson.JsonObject;
+import blue.endless.jankson.JsonPrimitive;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static io.github.speedbridgemc.config.test.features.FeatureTests.*;
+
+final class JanksonWriterTest {
+    private JanksonWriterTest() { }
+
+    private static final String TEXT = "quote \" backslash \\ newline \n tab \t control \u0001 unicode \u00e9\u4e2d";
+
+    static void run() throws Exception {
+        JanksonDefaultHandler defaultHandler = new JanksonDefaultHandlerImpl();
+        JanksonDefaultConfig defaultConfig = defaultHandler.get();
+        defaultConfig.text = TEXT;
+        defaultConfig.map.put("plain", 1);
+        defaultConfig.map.put("with space", 2);
+        defaultConfig.map.put("", 3);
+        defaultConfig.nested.children.add(new JanksonDefaultConfig.Nested());
+        defaultConfig.nested.children.get(0).ratio = -1.5f;
+        defaultHandler.save();
+        Path defaultPath = configDir().resolve("jankson_default.json5");
+        String defaultOutput = new String(Files.readAllBytes(defaultPath), StandardCharsets.UTF_8);
+        check(defaultOutput.contains("\n\t\"needs quoting\": 1"), "default grammar isn't indented:\n" + defaultOutput);
+        check(defaultOutput.contains("NaN") && !defaultOutput.contains("\"NaN\""),
+                "default grammar doesn't write bare special numerics:\n" + defaultOutput);
+        check(defaultOutput.contains("\ttext:"), "default grammar doesn't write unquoted keys:\n" + defaultOutput);
+        checkParsedByJankson(defaultPath);
+
+        defaultHandler.load();
+        JanksonDefaultConfig defaultLoaded = defaultHandler.get();
+        check(defaultLoaded != defaultConfig, "default config wasn't reloaded");
+        checkEquals(TEXT, defaultLoaded.text, "default text");
+        check(Double.isNaN(defaultLoaded.notANumber), "default NaN");
+        checkEquals(Double.POSITIVE_INFINITY, defaultLoaded.infinity, "default infinity");
+        checkEquals(Double.NEGATIVE_INFINITY, defaultLoaded.negativeInfinity, "default negative infinity");
+        checkEquals(Long.MIN_VALUE, defaultLoaded.big, "default big");
+        checkEquals(defaultConfig.map, defaultLoaded.map, "default map");
+        check(defaultLoaded.emptyList.isEmpty(), "default empty list");
+        checkEquals(1, defaultLoaded.nested.children.size(), "default nested children");
+        checkEquals(-1.5f, defaultLoaded.nested.children.get(0).ratio, "default nested child ratio");
+
+        JanksonCompactHandler compactHandler = new JanksonCompactHandlerImpl();
+        JanksonCompactConfig compactConfig = compactHandler.get();
+        compactConfig.text = TEXT;
+        compactConfig.quotedKey = 2;
+        compactConfig.map.put("with space", 2);
+        compactConfig.nested.children.add(new JanksonCompactConfig.Nested());
+        compactHandler.save();
+        Path compactPath = configDir().resolve("jankson_compact.json5");
+        String compactOutput = new String(Files.readAllBytes(compactPath), StandardCharsets.UTF_8);
+        check(!compactOutput.contains("\n\t"), "compact grammar is indented:\n" + compactOutput);
+        check(compactOutput.contains("\"NaN\""), "compact grammar writes bare special numerics:\n" + compactOutput);
+        check(compactOutput.contains("\"text\":"), "compact grammar writes unquoted keys:\n" + compactOutput);
+        checkParsedByJankson(compactPath);
+
+        // quoted special numerics read back as strings, just like with Jankson's own writer
+        compactConfig.notANumber = compactConfig.infinity = compactConfig.negativeInfinity = 0.25;
+        compactHandler.save();
+        compactHandler.load();
+        JanksonCompactConfig compactLoaded = compactHandler.get();
+        check(compactLoaded != compactConfig, "compact config wasn't reloaded");
+        checkEquals(TEXT, compactLoaded.text, "compact text");
+        checkEquals(2, compactLoaded.quotedKey, "compact quoted key");
+        checkEquals(compactConfig.map, compactLoaded.map, "compact map");
+        checkEquals(0.25, compactLoaded.infinity, "compact infinity");
+        checkEquals(1, compactLoaded.nested.children.size(), "compact nested children");
+    }
+
+    // the generated writer replaced Jankson's own, so Jankson must still be able to read what it writes
+    private static void checkParsedByJankson(Path path) throws Exception {
+        JsonObject object = Jankson.builder().build().load(path.toFile());
+        checkEquals(TEXT, ((JsonPrimitive) object.get("text")).asString(), "text parsed by Jankson");
+        check(object.containsKey("needs quoting"), "quoted key parsed by Jankson");
+        check(object.get(JsonObject.class, "nested") != null, "nested object parsed by Jankson");
+    }
+}
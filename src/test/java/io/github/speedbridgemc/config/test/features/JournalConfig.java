@@ -0,0 +1,15 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.*;
+
+import java.util.*;
+
+@Config(name = "journal", handlerInterface = "JournalHandler",
+        components = @Component(value = "speedbridge-config:serializer",
+                params = { "provider=speedbridge-config:gson", "options=+journal", "journal_compact_size=4096" }))
+public class JournalConfig {
+    public int value = 5;
+    public String text = "text";
+    public List<String> lines = new ArrayList<>();
+    public Map<String, Integer> counts = new HashMap<>();
+}
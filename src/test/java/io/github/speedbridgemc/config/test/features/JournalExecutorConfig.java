@@ -0,0 +1,11 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.*;
+
+@Config(name = "journal_executor", handlerInterface = "JournalExecutorHandler",
+        components = @Component(value = "speedbridge-config:serializer",
+                params = { "provider=speedbridge-config:native", "options=+journal", "journal_compact_size=1024" }))
+public class JournalExecutorConfig {
+    public int value = 5;
+    public String text = "text";
+}
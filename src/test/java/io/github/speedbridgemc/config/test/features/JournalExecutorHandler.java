@@ -0,0 +1,11 @@
+package io.github.speedbridgemc.config.test.features;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.Executor;
+
+public interface JournalExecutorHandler extends FeatureHandler<JournalExecutorConfig> {
+    default @NotNull Executor asyncExecutor() {
+        return JournalTest.EXECUTOR;
+    }
+}
@@ -0,0 +1,17 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.LogLevel;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+public interface JournalHandler extends FeatureHandler<JournalConfig>, AutoCloseable {
+    @Override
+    void close();
+
+    @Override
+    default void log(@NotNull LogLevel level, @NotNull String msg, @Nullable Exception e) {
+        if (msg.startsWith("Compacting journal"))
+            JournalTest.COMPACTION_THREADS.add(Thread.currentThread().getName());
+        FeatureHandler.super.log(level, msg, e);
+    }
+}
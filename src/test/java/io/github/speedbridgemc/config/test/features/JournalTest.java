@@ -0,0 +1,144 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.serialize.ConfigJournal;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.github.speedbridgemc.config.test.features.FeatureTests.*;
+
+final class JournalTest {
+    private JournalTest() { }
+
+    static final AtomicInteger EXECUTED = new AtomicInteger();
+    static final Set<String> COMPACTION_THREADS = ConcurrentHashMap.newKeySet();
+    // runs compactions right away, on the saving thread
+    static final Executor EXECUTOR = command -> {
+        EXECUTED.incrementAndGet();
+        command.run();
+    };
+
+    static void run() throws Exception {
+        checkJournal();
+        checkSharedWriter();
+        checkExecutor();
+    }
+
+    private static void checkJournal() throws Exception {
+        Path path = configDir().resolve("journal.json5");
+        Path journalPath = ConfigJournal.resolveJournalPath(path);
+        try (JournalHandler handler = new JournalHandlerImpl()) {
+            handler.load();
+            byte[] file = Files.readAllBytes(path);
+            check(Files.exists(journalPath), "journal wasn't started");
+
+            // saves append changed fields, without touching the config file
+            handler.get().value = 6;
+            for (int i = 0; i < 50; i++)
+                handler.get().lines.add("line " + i);
+            handler.save();
+            checkArrayEquals(file, Files.readAllBytes(path), "config file was rewritten");
+            long size = Files.size(journalPath);
+            handler.get().value = 7;
+            handler.save();
+            long valueRecordSize = Files.size(journalPath) - size;
+            check(valueRecordSize > 0 && valueRecordSize < 64, "whole config was journaled: " + valueRecordSize + " bytes");
+            handler.save();
+            checkEquals(size + valueRecordSize, Files.size(journalPath), "unchanged save appended to journal");
+        }
+
+        try (JournalHandler handler = new JournalHandlerImpl()) {
+            handler.load();
+            checkEquals(7, handler.get().value, "value from journal");
+            checkEquals(50, handler.get().lines.size(), "list from journal");
+
+            // a torn record is dropped, and later records still apply
+            handler.get().text = "torn";
+            handler.save();
+            try (FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.WRITE)) {
+                channel.truncate(channel.size() - 2);
+            }
+            handler.load();
+            checkEquals("text", handler.get().text, "torn record was replayed");
+            checkEquals(7, handler.get().value, "record before torn one");
+            handler.get().counts.put("a", 1);
+            handler.save();
+            handler.load();
+            checkEquals(1, handler.get().counts.get("a"), "record after torn one");
+        }
+
+        // the journal doesn't apply to config files changed some other way
+        Files.write(path, "{ \"value\": 42, \"text\": \"edited\", \"lines\": [], \"counts\": {} }".getBytes());
+        try (JournalHandler handler = new JournalHandlerImpl()) {
+            handler.load();
+            checkEquals(42, handler.get().value, "stale journal was replayed");
+            checkEquals("edited", handler.get().text, "stale journal was replayed");
+            handler.get().value = 43;
+            handler.save();
+            handler.load();
+            checkEquals(43, handler.get().value, "value journaled after stale journal");
+        }
+    }
+
+    private static void checkSharedWriter() throws Exception {
+        Path path = configDir().resolve("journal.json5");
+        Path journalPath = ConfigJournal.resolveJournalPath(path);
+        JournalHandler handler = new JournalHandlerImpl();
+        handler.load();
+        byte[] file = Files.readAllBytes(path);
+        char[] text = new char[256];
+        for (int i = 0; i < 40; i++) {
+            Arrays.fill(text, (char) ('a' + i % 26));
+            handler.get().text = new String(text);
+            handler.save();
+        }
+        await(5000, () -> {
+            try {
+                return Files.size(journalPath) < 4096;
+            } catch (Exception e) {
+                return false;
+            }
+        });
+        // later saves may have been journaled again, after the compaction
+        String last = handler.get().text;
+        check(!Arrays.equals(file, Files.readAllBytes(path)), "journal wasn't compacted into config file");
+        handler.get().value = 99;
+        handler.save();
+        handler.close();
+        checkEquals(Collections.singleton("Speedbridge Config writer"), COMPACTION_THREADS, "compaction threads");
+
+        JournalHandler reloaded = new JournalHandlerImpl();
+        reloaded.load();
+        checkEquals(last, reloaded.get().text, "compacted value");
+        checkEquals(99, reloaded.get().value, "value journaled after compaction");
+        reloaded.close();
+    }
+
+    private static void checkExecutor() throws Exception {
+        Path path = configDir().resolve("journal_executor.json5");
+        JournalExecutorHandler handler = new JournalExecutorHandlerImpl();
+        handler.load();
+        for (int i = 0; i < 40; i++) {
+            handler.get().value = i;
+            handler.get().text = "text " + i;
+            handler.save();
+        }
+        check(EXECUTED.get() > 0, "compaction didn't use asyncExecutor()");
+        check(Files.size(ConfigJournal.resolveJournalPath(path)) < 1024, "journal wasn't compacted");
+        checkEquals(0L, Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals("JournalExecutorConfig journal compaction")).count(),
+                "compaction thread despite asyncExecutor()");
+        JournalExecutorHandler reloaded = new JournalExecutorHandlerImpl();
+        reloaded.load();
+        checkEquals(39, reloaded.get().value, "value after compactions");
+        checkEquals("text 39", reloaded.get().text, "text after compactions");
+    }
+}
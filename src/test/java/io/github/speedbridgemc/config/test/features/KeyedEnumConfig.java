@@ -0,0 +1,69 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.*;
+import io.github.speedbridgemc.config.serialize.KeyedEnum;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+@Config(name = "keyed_enum", handlerInterface = "KeyedEnumHandler",
+        components = @Component(value = "speedbridge-config:serializer", params = "provider=speedbridge-config:gson"))
+public class KeyedEnumConfig {
+    public Level level = Level.LOW;
+    public List<Level> levels = new ArrayList<>();
+    public Code code = Code.OK;
+    public Tier tier = Tier.FREE;
+
+    // small non-negative keys, looked up through an array
+    public enum Level implements KeyedEnum<Integer> {
+        LOW(0), MEDIUM(1), HIGH(2), MAX(5);
+
+        private final int key;
+
+        Level(int key) {
+            this.key = key;
+        }
+
+        @Override
+        public @NotNull Integer getKey() {
+            return key;
+        }
+    }
+
+    // keys too sparse for an array
+    public enum Code implements KeyedEnum<Integer> {
+        OK(200), NOT_FOUND(404), BROKEN(1_000_000);
+
+        private final int key;
+
+        Code(int key) {
+            this.key = key;
+        }
+
+        @Override
+        public @NotNull Integer getKey() {
+            return key;
+        }
+    }
+
+    // written by id before keyed enums were written by key, so files may still contain ids
+    public enum Tier implements KeyedEnum<String> {
+        FREE("free", "tier_0"), PRO("pro", "tier_1"), TEAM("team", "pro");
+
+        private final @NotNull String key, id;
+
+        Tier(@NotNull String key, @NotNull String id) {
+            this.key = key;
+            this.id = id;
+        }
+
+        public @NotNull String getId() {
+            return id;
+        }
+
+        @Override
+        public @NotNull String getKey() {
+            return key;
+        }
+    }
+}
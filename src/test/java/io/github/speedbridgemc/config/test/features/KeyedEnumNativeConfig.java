@@ -0,0 +1,16 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.*;
+import io.github.speedbridgemc.config.test.features.KeyedEnumConfig.Code;
+import io.github.speedbridgemc.config.test.features.KeyedEnumConfig.Level;
+
+import java.util.*;
+
+// a second handler reading the same enums, so they can't only work in the first handler generated
+@Config(name = "keyed_enum_native", handlerInterface = "KeyedEnumNativeHandler",
+        components = @Component(value = "speedbridge-config:serializer", params = "provider=speedbridge-config:native"))
+public class KeyedEnumNativeConfig {
+    public Level level = Level.LOW;
+    public List<Level> levels = new ArrayList<>();
+    public Code code = Code.OK;
+}
@@ -0,0 +1,66 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.serialize.KeyedEnumRegistry;
+import io.github.speedbridgemc.config.test.features.EnumCollectionConfig.Color;
+import io.github.speedbridgemc.config.test.features.KeyedEnumConfig.Code;
+import io.github.speedbridgemc.config.test.features.KeyedEnumConfig.Level;
+import io.github.speedbridgemc.config.test.features.KeyedEnumConfig.Tier;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static io.github.speedbridgemc.config.test.features.FeatureTests.*;
+
+final class KeyedEnumTest {
+    private KeyedEnumTest() { }
+
+    static void run() throws Exception {
+        KeyedEnumRegistry.Lookup<Level> levels = KeyedEnumRegistry.get(Level.class);
+        check(levels == KeyedEnumRegistry.get(Level.class), "lookup isn't shared");
+        checkEquals(Level.MAX, levels.get(5), "dense lookup by int");
+        checkEquals(Level.MAX, levels.get((Object) 5), "dense lookup by boxed key");
+        checkEquals(null, levels.get(3), "dense lookup of unused key");
+        checkEquals(null, levels.get(-1), "dense lookup of negative key");
+        checkEquals(null, levels.get(6), "dense lookup past last key");
+        KeyedEnumRegistry.Lookup<Code> codes = KeyedEnumRegistry.get(Code.class);
+        checkEquals(Code.BROKEN, codes.get(1_000_000), "sparse lookup by int");
+        checkEquals(null, codes.get(0), "sparse lookup of unused key");
+        KeyedEnumRegistry.Lookup<Color> colors = KeyedEnumRegistry.get(Color.class);
+        checkEquals(Color.GREEN, colors.get("green"), "lookup by string key");
+        checkEquals(Color.BLUE, colors.get("azure"), "lookup by alias");
+        checkEquals(null, colors.get("GREEN"), "lookup by name");
+
+        KeyedEnumHandler gson = new KeyedEnumHandlerImpl();
+        gson.get().level = Level.MAX;
+        gson.get().levels.addAll(Arrays.asList(Level.HIGH, Level.LOW, Level.MAX));
+        gson.get().code = Code.BROKEN;
+        gson.save();
+        gson.load();
+        checkEquals(Level.MAX, gson.get().level, "gson level");
+        checkEquals(Arrays.asList(Level.HIGH, Level.LOW, Level.MAX), gson.get().levels, "gson levels");
+        checkEquals(Code.BROKEN, gson.get().code, "gson code");
+
+        // ids written by older versions are still read, but keys win when they clash with an id
+        Files.write(configDir().resolve("keyed_enum.json5"),
+                "{ \"level\": 0, \"levels\": [], \"code\": 200, \"tier\": \"tier_1\" }".getBytes(StandardCharsets.UTF_8));
+        gson.load();
+        checkEquals(Tier.PRO, gson.get().tier, "tier read by legacy id");
+        gson.get().tier = Tier.TEAM;
+        gson.save();
+        String contents = new String(Files.readAllBytes(configDir().resolve("keyed_enum.json5")), StandardCharsets.UTF_8);
+        check(contents.contains("\"team\"") && !contents.contains("\"pro\""), "tier wasn't written by key:\n" + contents);
+        gson.load();
+        checkEquals(Tier.TEAM, gson.get().tier, "tier read by key");
+        checkEquals(Tier.PRO, KeyedEnumRegistry.getWithLegacyKeys(Tier.class, Tier::getId).get("pro"), "key clashing with legacy id");
+        checkEquals(null, KeyedEnumRegistry.get(Tier.class).get("tier_1"), "legacy id in plain lookup");
+
+        KeyedEnumNativeHandler json5 = new KeyedEnumNativeHandlerImpl();
+        Files.write(configDir().resolve("keyed_enum_native.json5"),
+                "{ level: 1, levels: [5, 0], code: 404 }".getBytes(StandardCharsets.UTF_8));
+        json5.load();
+        checkEquals(Level.MEDIUM, json5.get().level, "native level");
+        checkEquals(Arrays.asList(Level.MAX, Level.LOW), json5.get().levels, "native levels");
+        checkEquals(Code.NOT_FOUND, json5.get().code, "native code");
+    }
+}
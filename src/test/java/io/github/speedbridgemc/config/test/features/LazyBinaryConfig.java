@@ -0,0 +1,13 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.*;
+
+import java.util.*;
+
+@Config(name = "lazy_binary", handlerInterface = "LazyBinaryHandler",
+        components = @Component(value = "speedbridge-config:serializer", params = "provider=speedbridge-config:binary"))
+public class LazyBinaryConfig {
+    public int value = 5;
+    public LazySection<LazyConfig.Section> section = LazySection.of(new LazyConfig.Section());
+    public LazySection<List<String>> lines = LazySection.of(new ArrayList<>());
+}
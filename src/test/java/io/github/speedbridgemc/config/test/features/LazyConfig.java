@@ -0,0 +1,23 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.*;
+
+import java.util.*;
+
+@Config(name = "lazy", handlerInterface = "LazyHandler", concurrency = ConcurrencyMode.ATOMIC,
+        components = {
+            @Component(value = "speedbridge-config:serializer", params = "provider=speedbridge-config:native"),
+            @Component("speedbridge-config:validator"),
+            @Component("speedbridge-config:snapshot")
+        })
+public class LazyConfig {
+    public int value = 5;
+    public LazySection<Section> section = LazySection.of(new Section());
+    public LazySection<List<String>> lines = LazySection.of(new ArrayList<>());
+
+    public static class Section {
+        @IntegerRange(min = 0, max = 100, maxMode = RangeMode.INCLUSIVE, mode = EnforceMode.ERROR)
+        public int size = 10;
+        public String name = "section";
+    }
+}
@@ -0,0 +1,13 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.*;
+
+import java.util.*;
+
+@Config(name = "lazy_jankson", handlerInterface = "LazyJanksonHandler",
+        components = @Component(value = "speedbridge-config:serializer", params = "provider=speedbridge-config:jankson"))
+public class LazyJanksonConfig {
+    public int value = 5;
+    public LazySection<LazyConfig.Section> section = LazySection.of(new LazyConfig.Section());
+    public LazySection<List<String>> lines = LazySection.of(new ArrayList<>());
+}
@@ -0,0 +1,16 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.*;
+
+import java.util.*;
+
+@Config(name = "lazy_listener", handlerInterface = "LazyListenerHandler",
+        components = {
+            @Component(value = "speedbridge-config:serializer", params = "provider=speedbridge-config:native"),
+            @Component("speedbridge-config:listener")
+        })
+public class LazyListenerConfig {
+    public int value = 5;
+    public LazySection<LazyConfig.Section> section = LazySection.of(new LazyConfig.Section());
+    public LazySection<List<String>> lines = LazySection.of(new ArrayList<>());
+}
@@ -0,0 +1,13 @@
+package io.github.speedbridgemc.config.test.features;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.Consumer;
+
+public interface LazyListenerHandler extends FeatureHandler<LazyListenerConfig> {
+    void addListener(@NotNull Consumer<LazyListenerConfig> listener);
+    void removeListener(@NotNull Consumer<LazyListenerConfig> listener);
+    void addFieldListener(int field, @NotNull Consumer<LazyListenerConfig> listener);
+    void removeFieldListener(int field, @NotNull Consumer<LazyListenerConfig> listener);
+    void notifyChanged(@NotNull LazyListenerConfig config);
+}
@@ -0,0 +1,134 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.LazySection;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static io.github.speedbridgemc.config.test.features.FeatureTests.*;
+
+final class LazyTest {
+    private LazyTest() { }
+
+    static void run() throws Exception {
+        Path path = configDir().resolve("lazy.json5");
+        LazyHandler handler = new LazyHandlerImpl();
+        Files.write(path, ("{\n"
+                + "  value: 1,\n"
+                + "  section: { /* kept as written */ size: 20, name: 'lazy', },\n"
+                + "  lines: ['a', 'b'],\n"
+                + "}\n").getBytes(StandardCharsets.UTF_8));
+        handler.load();
+        LazyConfig config = handler.get();
+        checkEquals(1, config.value, "value");
+        check(!config.section.isLoaded() && !config.lines.isLoaded(), "sections were decoded while loading");
+
+        // snapshots don't decode sections either
+        LazyConfigSnapshot snapshot = (LazyConfigSnapshot) handler.snapshot();
+        check(!config.section.isLoaded(), "snapshot decoded section");
+
+        // untouched sections are written back exactly as they were read
+        config.value = 2;
+        handler.save();
+        String contents = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+        check(contents.contains("{ /* kept as written */ size: 20, name: 'lazy', }"), "section wasn't kept:\n" + contents);
+
+        checkEquals(20, config.section.get().size, "decoded section");
+        checkEquals("lazy", config.section.get().name, "decoded section name");
+        checkEquals(Arrays.asList("a", "b"), config.lines.get(), "decoded list section");
+        checkEquals(20, snapshot.section().get().size(), "snapshot section");
+        checkThrows(UnsupportedOperationException.class, () -> snapshot.lines().set(Collections.emptyList()),
+                "snapshot section is writable");
+
+        config.section.get().size = 30;
+        handler.save();
+        handler.load();
+        checkEquals(30, handler.get().section.get().size, "changed section after round trip");
+
+        // sections are only validated when decoded, and a section that fails keeps its serialized form
+        Files.write(path, "{ value: 3, section: { size: 500, name: 'invalid' }, lines: [] }".getBytes(StandardCharsets.UTF_8));
+        handler.load();
+        checkEquals(3, handler.get().value, "value next to invalid section");
+        LazySection<LazyConfig.Section> invalid = handler.get().section;
+        checkThrows(IllegalStateException.class, invalid::get, "invalid section");
+        handler.get().value = 4;
+        handler.save();
+        contents = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+        check(contents.contains("size: 500"), "invalid section was lost:\n" + contents);
+
+        checkProvider("gson", new LazyGsonHandlerImpl());
+        checkProvider("jankson", new LazyJanksonHandlerImpl());
+        checkProvider("binary", new LazyBinaryHandlerImpl());
+        checkFieldListeners();
+    }
+
+    // the listener's copies must not share sections with the live config, and mustn't decode them just to compare
+    private static void checkFieldListeners() throws Exception {
+        Path path = configDir().resolve("lazy_listener.json5");
+        Files.write(path, "{ value: 1, section: { size: 20, name: 'lazy' }, lines: ['a'] }".getBytes(StandardCharsets.UTF_8));
+        LazyListenerHandler handler = new LazyListenerHandlerImpl();
+        List<String> changed = new ArrayList<>();
+        handler.load();
+        handler.addFieldListener(LazyListenerConfigFields.SECTION, config -> changed.add("section"));
+        handler.addFieldListener(LazyListenerConfigFields.LINES, config -> changed.add("lines"));
+        handler.notifyChanged(handler.get());
+        check(changed.isEmpty(), "unchanged config notified " + changed);
+        check(!handler.get().section.isLoaded(), "diff decoded section");
+
+        checkEquals(20, handler.get().section.get().size, "decoded section");
+        handler.notifyChanged(handler.get());
+        check(changed.isEmpty(), "decoding a section notified " + changed);
+
+        LazyConfig.Section section = new LazyConfig.Section();
+        section.size = 30;
+        handler.get().section.set(section);
+        handler.get().lines.get().add("b");
+        handler.save();
+        checkEquals(Arrays.asList("section", "lines"), changed, "changed fields of replaced and modified sections");
+        changed.clear();
+
+        section.name = "changed in place";
+        handler.save();
+        checkEquals(Collections.singletonList("section"), changed, "changed fields of section changed in place");
+        changed.clear();
+
+        Files.write(path, "{ value: 1, section: { size: 40, name: 'lazy' }, lines: ['a', 'b'] }".getBytes(StandardCharsets.UTF_8));
+        handler.load();
+        checkEquals(Collections.singletonList("section"), changed, "changed fields of reloaded sections");
+    }
+
+    private static void checkProvider(String provider, FeatureHandler<?> handler) throws Exception {
+        // every config has the same fields, but no common type
+        Object config = handler.get();
+        LazySection<LazyConfig.Section> section = section(config);
+        section.get().size = 42;
+        lines(config).set(Arrays.asList("x", "y"));
+        handler.save();
+        handler.load();
+        config = handler.get();
+        check(!section(config).isLoaded() && !lines(config).isLoaded(), provider + " sections were decoded while loading");
+        config.getClass().getField("value").setInt(config, 6);
+        // written back untouched, then read again
+        handler.save();
+        handler.load();
+        config = handler.get();
+        checkEquals(6, config.getClass().getField("value").getInt(config), provider + " value");
+        checkEquals(42, section(config).get().size, provider + " section");
+        checkEquals(Arrays.asList("x", "y"), lines(config).get(), provider + " list section");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static LazySection<LazyConfig.Section> section(Object config) throws Exception {
+        return (LazySection<LazyConfig.Section>) config.getClass().getField("section").get(config);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static LazySection<java.util.List<String>> lines(Object config) throws Exception {
+        return (LazySection<java.util.List<String>>) config.getClass().getField("lines").get(config);
+    }
+}
@@ -0,0 +1,127 @@
+package io.github.speedbridgemc.config.test.features;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static io.github.speedbridgemc.config.test.features.FeatureTests.*;
+
+final class ListenerDispatchTest {
+    private ListenerDispatchTest() { }
+
+    static void run() throws Exception {
+        FieldListenerHandler handler = new FieldListenerHandlerImpl();
+        handler.get();
+
+        // a throwing listener can't keep the others from being notified, and listeners may remove themselves
+        List<String> notified = new ArrayList<>();
+        Consumer<FieldListenerConfig> thrower = config -> {
+            throw new IllegalStateException("expected listener failure");
+        };
+        Consumer<FieldListenerConfig> remover = new Consumer<FieldListenerConfig>() {
+            @Override
+            public void accept(FieldListenerConfig config) {
+                notified.add("remover");
+                handler.removeListener(this);
+            }
+        };
+        Consumer<FieldListenerConfig> after = config -> notified.add("after");
+        handler.addListener(thrower);
+        handler.addListener(remover);
+        handler.addListener(after);
+        handler.get().name = "first";
+        handler.notifyChanged(handler.get());
+        checkEquals(Arrays.asList("remover", "after"), notified, "listeners notified");
+        notified.clear();
+        handler.get().name = "second";
+        handler.notifyChanged(handler.get());
+        checkEquals(Collections.singletonList("after"), notified, "listeners notified after removal");
+        handler.removeListener(thrower);
+        handler.removeListener(after);
+
+        // listeners can be added and removed while other threads are notifying
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicInteger calls = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            int field = i % 2 == 0 ? FieldListenerConfigFields.NAME : -1;
+            threads[i] = new Thread(() -> {
+                try {
+                    for (int j = 0; j < 10_000; j++) {
+                        Consumer<FieldListenerConfig> listener = config -> calls.incrementAndGet();
+                        if (field < 0) {
+                            handler.addListener(listener);
+                            handler.removeListener(listener);
+                        } else {
+                            handler.addFieldListener(field, listener);
+                            handler.removeFieldListener(field, listener);
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            });
+            threads[i].start();
+        }
+        for (int i = 0; i < 10_000; i++) {
+            FieldListenerConfig config = new FieldListenerConfig();
+            config.name = "concurrent " + i;
+            handler.set(config);
+        }
+        for (Thread thread : threads)
+            thread.join();
+        checkEquals(null, failure.get(), "failure while adding and removing listeners");
+        calls.set(0);
+        handler.get().name = "after concurrent changes";
+        handler.notifyChanged(handler.get());
+        checkEquals(0, calls.get(), "calls to listeners that were all removed");
+
+        // with a listener executor, each listener is its own task
+        ListenerExecutorHandler executorHandler = new ListenerExecutorHandlerImpl();
+        executorHandler.get();
+        List<String> threadNames = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch latch = new CountDownLatch(2);
+        Consumer<ListenerExecutorConfig> executorThrower = config -> {
+            throw new IllegalStateException("expected listener failure");
+        };
+        executorHandler.addListener(executorThrower);
+        for (int i = 0; i < 2; i++) {
+            executorHandler.addListener(config -> {
+                threadNames.add(Thread.currentThread().getName());
+                latch.countDown();
+            });
+        }
+        executorHandler.set(new ListenerExecutorConfig());
+        check(latch.await(5, TimeUnit.SECONDS), "listeners weren't run by the executor");
+        checkEquals(Arrays.asList(AsyncTest.IO_THREAD_NAME, AsyncTest.IO_THREAD_NAME), threadNames,
+                "threads that ran listeners");
+
+        executorHandler.removeListener(executorThrower);
+
+        // listeners on the executor get their own copy, and see changes in the order they were made
+        List<Integer> values = Collections.synchronizedList(new ArrayList<>());
+        List<ListenerExecutorConfig> received = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch ordered = new CountDownLatch(200);
+        executorHandler.addListener(config -> {
+            values.add(config.value);
+            received.add(config);
+            ordered.countDown();
+        });
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            executorHandler.get().value = i;
+            executorHandler.notifyChanged(executorHandler.get());
+            expected.add(i);
+        }
+        check(ordered.await(5, TimeUnit.SECONDS), "listeners weren't run by the executor");
+        checkEquals(expected, values, "values seen by listener");
+        for (ListenerExecutorConfig config : received)
+            check(config != executorHandler.get(), "listener got the live config");
+    }
+}
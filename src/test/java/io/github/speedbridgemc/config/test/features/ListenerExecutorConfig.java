@@ -0,0 +1,12 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.*;
+
+@Config(name = "listener_executor", handlerInterface = "ListenerExecutorHandler",
+        components = {
+            @Component(value = "speedbridge-config:serializer", params = "provider=speedbridge-config:gson"),
+            @Component("speedbridge-config:listener")
+        })
+public class ListenerExecutorConfig {
+    public int value = 5;
+}
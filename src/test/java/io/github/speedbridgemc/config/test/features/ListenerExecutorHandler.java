@@ -0,0 +1,16 @@
+package io.github.speedbridgemc.config.test.features;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+public interface ListenerExecutorHandler extends FeatureHandler<ListenerExecutorConfig> {
+    void addListener(@NotNull Consumer<ListenerExecutorConfig> listener);
+    void removeListener(@NotNull Consumer<ListenerExecutorConfig> listener);
+    void notifyChanged(@NotNull ListenerExecutorConfig config);
+
+    default @NotNull Executor listenerExecutor() {
+        return AsyncTest.IO_EXECUTOR;
+    }
+}
@@ -0,0 +1,27 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.*;
+import io.github.speedbridgemc.config.serialize.SerializedAliases;
+
+import java.util.*;
+
+@Config(name = "native", handlerInterface = "NativeHandler",
+        components = @Component(value = "speedbridge-config:serializer", params = "provider=speedbridge-config:native"))
+public class NativeConfig {
+    public int number = 1;
+    public long big = 1L << 40;
+    public double ratio = 0.5;
+    public boolean flag = false;
+    public String text = "text";
+    @SerializedAliases("old_name")
+    public String renamed = "renamed";
+    public int[] ints = { 1, 2 };
+    public List<String> strings = new ArrayList<>();
+    public Map<String, Double> weights = new HashMap<>();
+    public Nested nested = new Nested();
+
+    public static class Nested {
+        public int depth = 1;
+        public List<Nested> children = new ArrayList<>();
+    }
+}
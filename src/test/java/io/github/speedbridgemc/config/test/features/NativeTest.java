@@ -0,0 +1,95 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.serialize.json5.Json5Reader;
+import io.github.speedbridgemc.config.serialize.json5.Json5SyntaxException;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static io.github.speedbridgemc.config.test.features.FeatureTests.*;
+
+final class NativeTest {
+    private NativeTest() { }
+
+    private static final String TEXT = "quote \" apostrophe ' backslash \\ newline \n control \u0001 unicode \u00e9\ud83d\ude00";
+
+    static void run() throws Exception {
+        Path path = configDir().resolve("native.json5");
+        NativeHandler handler = new NativeHandlerImpl();
+        NativeConfig config = handler.get();
+        config.number = Integer.MIN_VALUE;
+        config.big = Long.MAX_VALUE;
+        config.ratio = -1.25e-7;
+        config.flag = true;
+        config.text = TEXT;
+        config.strings.add("a");
+        config.strings.add("");
+        config.weights.put("key with spaces", Double.POSITIVE_INFINITY);
+        config.nested.children.add(new NativeConfig.Nested());
+        config.nested.children.get(0).depth = 2;
+        handler.save();
+        handler.load();
+        NativeConfig loaded = handler.get();
+        check(loaded != config, "config wasn't reloaded");
+        checkEquals(Integer.MIN_VALUE, loaded.number, "number");
+        checkEquals(Long.MAX_VALUE, loaded.big, "big");
+        checkEquals(-1.25e-7, loaded.ratio, "ratio");
+        checkEquals(true, loaded.flag, "flag");
+        checkEquals(TEXT, loaded.text, "text");
+        checkEquals(config.strings, loaded.strings, "strings");
+        checkEquals(config.weights, loaded.weights, "weights");
+        checkEquals(2, loaded.nested.children.get(0).depth, "nested child depth");
+
+        // hand-written JSON5 with everything the format allows, plus fields the config doesn't know about
+        Files.write(path, ("// leading comment\n"
+                + "{\n"
+                + "  /* block\n     comment */\n"
+                + "  number: 0x7F,\n"
+                + "  'big': -12,\n"
+                + "  \"ratio\": +Infinity,\n"
+                + "  flag: true, // trailing comment\n"
+                + "  text: 'single \\'quoted\\' \\u00e9',\n"
+                + "  old_name: 'from alias',\n"
+                + "  unknown: { nested: [1, 2, { deeper: null }], other: 'x' },\n"
+                + "  ints: [ 3, 4, 5, ],\n"
+                + "  strings: [],\n"
+                + "  weights: { a: NaN, b: .5, },\n"
+                + "  nested: { depth: 7, children: [], },\n"
+                + "}\n").getBytes(StandardCharsets.UTF_8));
+        handler.load();
+        loaded = handler.get();
+        checkEquals(0x7F, loaded.number, "hex number");
+        checkEquals(-12L, loaded.big, "negative number");
+        checkEquals(Double.POSITIVE_INFINITY, loaded.ratio, "infinity");
+        checkEquals("single 'quoted' \u00e9", loaded.text, "single-quoted string");
+        checkEquals("from alias", loaded.renamed, "aliased field");
+        checkArrayEquals(new int[] { 3, 4, 5 }, loaded.ints, "array with trailing comma");
+        checkEquals(Collections.emptyList(), loaded.strings, "empty list");
+        check(Double.isNaN(loaded.weights.get("a")), "NaN map value");
+        checkEquals(0.5, loaded.weights.get("b"), "map value with leading dot");
+        checkEquals(7, loaded.nested.depth, "nested depth");
+
+        // syntax errors point at where they happened
+        Json5SyntaxException error = null;
+        try (Json5Reader reader = new Json5Reader("{\n  a: 1,\n  b: }".getBytes(StandardCharsets.UTF_8))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                reader.nextName();
+                reader.skipValue();
+            }
+        } catch (Json5SyntaxException e) {
+            error = e;
+        }
+        check(error != null, "invalid document was accepted");
+        check(error.getMessage().endsWith(" at line 3 column 6"), "syntax error location: " + error.getMessage());
+
+        // and fall back to the usual backup and reset handling
+        Files.write(path, "{ number: 1, text: 'unterminated }".getBytes(StandardCharsets.UTF_8));
+        handler.load();
+        checkEquals(1, handler.get().number, "number after invalid document");
+        checkEquals("text", handler.get().text, "text after invalid document");
+        checkArrayEquals(new int[] { 1, 2 }, handler.get().ints, "ints after invalid document");
+    }
+}
@@ -0,0 +1,13 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.*;
+import io.github.speedbridgemc.config.collect.*;
+
+@Config(name = "primitive_collection_binary", handlerInterface = "PrimitiveCollectionBinaryHandler",
+        components = @Component(value = "speedbridge-config:serializer", params = "provider=speedbridge-config:binary"))
+public class PrimitiveCollectionBinaryConfig {
+    public IntList ints = new IntList();
+    public LongList longs = new LongList();
+    public FloatList floats = new FloatList();
+    public IntObjectMap<String> intMap = new IntObjectMap<>();
+}
@@ -0,0 +1,17 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.*;
+import io.github.speedbridgemc.config.collect.*;
+
+@Config(name = "primitive_collection", handlerInterface = "PrimitiveCollectionHandler", concurrency = ConcurrencyMode.ATOMIC,
+        components = {
+            @Component(value = "speedbridge-config:serializer", params = "provider=speedbridge-config:gson"),
+            @Component("speedbridge-config:snapshot")
+        })
+public class PrimitiveCollectionConfig {
+    public IntList ints = IntList.of(1, 2, 3);
+    public LongList longs = new LongList();
+    public FloatList floats = new FloatList();
+    public IntObjectMap<String> intMap = new IntObjectMap<>();
+    public LongObjectMap<String> longMap = new LongObjectMap<>();
+}
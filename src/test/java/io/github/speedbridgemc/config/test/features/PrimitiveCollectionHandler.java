@@ -0,0 +1,8 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.ConfigSnapshot;
+import org.jetbrains.annotations.NotNull;
+
+public interface PrimitiveCollectionHandler extends FeatureHandler<PrimitiveCollectionConfig> {
+    @NotNull ConfigSnapshot<PrimitiveCollectionConfig> snapshot();
+}
@@ -0,0 +1,18 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.*;
+import io.github.speedbridgemc.config.collect.*;
+
+import java.util.List;
+
+@Config(name = "primitive_collection_listener", handlerInterface = "PrimitiveCollectionListenerHandler",
+        components = {
+            @Component(value = "speedbridge-config:serializer", params = "provider=speedbridge-config:gson"),
+            @Component("speedbridge-config:listener")
+        })
+public class PrimitiveCollectionListenerConfig {
+    public IntList ints = IntList.of(1, 2, 3);
+    public FloatList floats = new FloatList();
+    public LongObjectMap<String> names = new LongObjectMap<>();
+    public IntObjectMap<List<String>> tags = new IntObjectMap<>();
+}
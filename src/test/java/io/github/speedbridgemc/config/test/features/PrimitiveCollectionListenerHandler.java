@@ -0,0 +1,13 @@
+package io.github.speedbridgemc.config.test.features;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.Consumer;
+
+public interface PrimitiveCollectionListenerHandler extends FeatureHandler<PrimitiveCollectionListenerConfig> {
+    void addListener(@NotNull Consumer<PrimitiveCollectionListenerConfig> listener);
+    void removeListener(@NotNull Consumer<PrimitiveCollectionListenerConfig> listener);
+    void addFieldListener(int field, @NotNull Consumer<PrimitiveCollectionListenerConfig> listener);
+    void removeFieldListener(int field, @NotNull Consumer<PrimitiveCollectionListenerConfig> listener);
+    void notifyChanged(@NotNull PrimitiveCollectionListenerConfig config);
+}
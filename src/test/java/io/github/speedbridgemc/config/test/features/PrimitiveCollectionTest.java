@@ -0,0 +1,191 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.collect.*;
+
+import java.util.*;
+
+import static io.github.speedbridgemc.config.test.features.FeatureTests.*;
+
+final class PrimitiveCollectionTest {
+    private PrimitiveCollectionTest() { }
+
+    static void run() throws Exception {
+        checkAgainstModels();
+        checkFieldListeners();
+
+        PrimitiveCollectionHandler handler = new PrimitiveCollectionHandlerImpl();
+        PrimitiveCollectionConfig config = new PrimitiveCollectionConfig();
+        for (int i = 0; i < 50; i++) {
+            config.ints.add(i * 7 - 100);
+            config.longs.add((long) i << 35);
+            config.floats.add(i / 4f);
+            config.intMap.put(i - 25, "int " + i);
+            config.longMap.put(((long) i << 40) - 1, "long " + i);
+        }
+        handler.set(config);
+        handler.save();
+        handler.load();
+        PrimitiveCollectionConfig loaded = handler.get();
+        check(loaded != config, "config wasn't reloaded");
+        checkEquals(config.ints, loaded.ints, "ints");
+        checkEquals(config.longs, loaded.longs, "longs");
+        checkEquals(config.floats, loaded.floats, "floats");
+        checkEquals(config.intMap, loaded.intMap, "int map");
+        checkEquals(config.longMap, loaded.longMap, "long map");
+
+        // snapshots hand out frozen copies
+        PrimitiveCollectionConfigSnapshot snapshot = (PrimitiveCollectionConfigSnapshot) handler.snapshot();
+        check(snapshot.ints().isFrozen() && snapshot.intMap().isFrozen(), "snapshot collections aren't frozen");
+        checkThrows(UnsupportedOperationException.class, () -> snapshot.ints().add(1), "frozen list is writable");
+        checkThrows(UnsupportedOperationException.class, () -> snapshot.intMap().put(1, "x"), "frozen map is writable");
+        loaded.ints.add(12345);
+        check(!snapshot.ints().contains(12345), "snapshot list shares state with config");
+        PrimitiveCollectionConfig thawed = snapshot.thaw();
+        check(!thawed.ints.isFrozen() && !thawed.intMap.isFrozen(), "thawed collections are frozen");
+        thawed.ints.add(1);
+
+        // the file layout is the same as for boxed collections
+        BoxedCollectionConfig boxed = new BoxedCollectionHandlerImpl().get();
+        checkEquals(config.ints.size(), boxed.ints.size(), "boxed ints size");
+        for (int i = 0; i < config.ints.size(); i++)
+            checkEquals(config.ints.get(i), (int) boxed.ints.get(i), "boxed ints[" + i + "]");
+        for (int i = 0; i < 50; i++) {
+            checkEquals(config.longs.get(i), (long) boxed.longs.get(i), "boxed longs[" + i + "]");
+            checkEquals(config.floats.get(i), (float) boxed.floats.get(i), "boxed floats[" + i + "]");
+            checkEquals(config.intMap.get(i - 25), boxed.intMap.get(i - 25), "boxed int map entry " + (i - 25));
+            checkEquals(config.longMap.get(((long) i << 40) - 1), boxed.longMap.get(((long) i << 40) - 1),
+                    "boxed long map entry " + i);
+        }
+
+        PrimitiveCollectionBinaryHandler binary = new PrimitiveCollectionBinaryHandlerImpl();
+        PrimitiveCollectionBinaryConfig binaryConfig = binary.get();
+        for (int i = 0; i < 1000; i++) {
+            binaryConfig.ints.add(i * i - 5000);
+            binaryConfig.longs.add(-i);
+            binaryConfig.floats.add(i * 0.5f);
+            if (i % 10 == 0)
+                binaryConfig.intMap.put(i, i == 500 ? null : "v" + i);
+        }
+        binary.save();
+        binary.load();
+        check(binary.get() != binaryConfig, "binary config wasn't reloaded");
+        checkEquals(binaryConfig.ints, binary.get().ints, "binary ints");
+        checkEquals(binaryConfig.longs, binary.get().longs, "binary longs");
+        checkEquals(binaryConfig.floats, binary.get().floats, "binary floats");
+        checkEquals(binaryConfig.intMap, binary.get().intMap, "binary int map");
+
+        PrimitiveCollectionJanksonHandler jankson = new PrimitiveCollectionJanksonHandlerImpl();
+        PrimitiveCollectionJanksonConfig janksonConfig = jankson.get();
+        janksonConfig.ints.clear();
+        for (int i = 0; i < 50; i++) {
+            janksonConfig.ints.add(i * 7 - 100);
+            janksonConfig.longs.add((long) i << 35);
+            janksonConfig.floats.add(i / 4f);
+            janksonConfig.intMap.put(i - 25, i == 30 ? null : "int " + i);
+            janksonConfig.longMap.put(((long) i << 40) - 1, "long " + i);
+        }
+        jankson.save();
+        jankson.load();
+        check(jankson.get() != janksonConfig, "jankson config wasn't reloaded");
+        checkEquals(janksonConfig.ints, jankson.get().ints, "jankson ints");
+        checkEquals(janksonConfig.longs, jankson.get().longs, "jankson longs");
+        checkEquals(janksonConfig.floats, jankson.get().floats, "jankson floats");
+        checkEquals(janksonConfig.intMap, jankson.get().intMap, "jankson int map");
+        checkEquals(janksonConfig.longMap, jankson.get().longMap, "jankson long map");
+    }
+
+    // random operations on the primitive collections and their java.util counterparts must agree
+    private static void checkAgainstModels() {
+        Random random = new Random(17);
+        IntList list = new IntList();
+        List<Integer> listModel = new ArrayList<>();
+        IntObjectMap<String> map = new IntObjectMap<>();
+        Map<Integer, String> mapModel = new HashMap<>();
+        LongObjectMap<String> longMap = new LongObjectMap<>();
+        Map<Long, String> longMapModel = new HashMap<>();
+        for (int i = 0; i < 50_000; i++) {
+            // a narrow key range, so there are plenty of collisions and removals, including of key 0
+            int key = random.nextInt(200) - 100;
+            long longKey = (long) key << 32;
+            String value = "v" + i;
+            switch (random.nextInt(4)) {
+                case 0:
+                case 1:
+                    checkEquals(mapModel.put(key, value), map.put(key, value), "put(" + key + ")");
+                    checkEquals(longMapModel.put(longKey, value), longMap.put(longKey, value), "put(" + longKey + "L)");
+                    list.add(key);
+                    listModel.add(key);
+                    break;
+                case 2:
+                    checkEquals(mapModel.remove(key), map.remove(key), "remove(" + key + ")");
+                    checkEquals(longMapModel.remove(longKey), longMap.remove(longKey), "remove(" + longKey + "L)");
+                    if (!listModel.isEmpty()) {
+                        int index = random.nextInt(listModel.size());
+                        checkEquals(listModel.remove(index), list.removeAt(index), "removeAt(" + index + ")");
+                    }
+                    break;
+                default:
+                    checkEquals(mapModel.get(key), map.get(key), "get(" + key + ")");
+                    checkEquals(mapModel.containsKey(key), map.containsKey(key), "containsKey(" + key + ")");
+                    checkEquals(longMapModel.get(longKey), longMap.get(longKey), "get(" + longKey + "L)");
+                    checkEquals(listModel.indexOf(key), list.indexOf(key), "indexOf(" + key + ")");
+                    break;
+            }
+        }
+        checkEquals(mapModel.size(), map.size(), "map size");
+        checkEquals(longMapModel.size(), longMap.size(), "long map size");
+        Map<Integer, String> iterated = new HashMap<>();
+        IntObjectMap.Cursor<String> cursor = map.cursor();
+        while (cursor.advance())
+            iterated.put(cursor.key(), cursor.value());
+        checkEquals(mapModel, iterated, "map entries seen by cursor");
+        checkEquals(listModel.size(), list.size(), "list size");
+        for (int i = 0; i < listModel.size(); i++)
+            checkEquals((int) listModel.get(i), list.get(i), "list[" + i + "]");
+
+        IntList frozen = list.frozenCopy();
+        checkThrows(UnsupportedOperationException.class, () -> frozen.add(1), "frozen copy is writable");
+        list.add(1);
+        checkEquals(listModel.size(), frozen.size(), "frozen copy size after changing original");
+        checkThrows(ConcurrentModificationException.class, () -> {
+            IntObjectMap.Cursor<String> modified = map.cursor();
+            modified.advance();
+            map.put(1000, "structural change");
+            modified.advance();
+        }, "cursor over changed map");
+    }
+
+    // the listener's deep copies must copy primitive collections (and the values in them), not share them
+    private static void checkFieldListeners() {
+        PrimitiveCollectionListenerHandler handler = new PrimitiveCollectionListenerHandlerImpl();
+        handler.get();
+        List<String> changed = new ArrayList<>();
+        handler.addFieldListener(PrimitiveCollectionListenerConfigFields.INTS, config -> changed.add("ints"));
+        handler.addFieldListener(PrimitiveCollectionListenerConfigFields.FLOATS, config -> changed.add("floats"));
+        handler.addFieldListener(PrimitiveCollectionListenerConfigFields.NAMES, config -> changed.add("names"));
+        handler.addFieldListener(PrimitiveCollectionListenerConfigFields.TAGS, config -> changed.add("tags"));
+        handler.get().tags.put(1, new ArrayList<>(Collections.singletonList("a")));
+        handler.notifyChanged(handler.get());
+        checkEquals(Collections.singletonList("tags"), changed, "changed fields of new map entry");
+        changed.clear();
+
+        handler.get().ints.add(4);
+        handler.get().floats.add(Float.NaN);
+        handler.notifyChanged(handler.get());
+        checkEquals(Arrays.asList("ints", "floats"), changed, "changed fields of in-place list changes");
+        changed.clear();
+        handler.notifyChanged(handler.get());
+        check(changed.isEmpty(), "unchanged config notified " + changed);
+
+        handler.get().names.put(1L << 40, "name");
+        handler.get().tags.get(1).add("b");
+        handler.notifyChanged(handler.get());
+        checkEquals(Arrays.asList("names", "tags"), changed, "changed fields of in-place map changes");
+        changed.clear();
+
+        PrimitiveCollectionListenerConfig copy = PrimitiveCollectionListenerConfigFields.copy(handler.get());
+        check(copy.ints != handler.get().ints && copy.tags != handler.get().tags
+                && copy.tags.get(1) != handler.get().tags.get(1), "copy() isn't deep");
+        checkEquals(handler.get().tags, copy.tags, "copied map");
+    }
+}
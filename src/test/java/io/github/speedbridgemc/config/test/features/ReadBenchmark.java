@@ -0,0 +1,112 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.serialize.FileContents;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Compares ways of reading a big config: streaming the file versus reading it in one pass, decoding it with an
+ * {@code InputStreamReader} versus {@link FileContents}, and parsing it with and without the Gson provider's
+ * {@code directRead} option.<p>
+ * Run with {@code gradle readBenchmark}. Each case is warmed up, then timed over several rounds, and the median round
+ * is reported. Medians of three runs on a single-core Linux VM with JDK 17, for a 3.7 MB config:
+ * <pre>
+ * file, streamed                 28.4 ms/op
+ * file, read in one pass         26.6 ms/op
+ * decode, InputStreamReader      27.8 ms/op
+ * decode, FileContents           25.6 ms/op
+ * parse, without directRead      55.5 ms/op
+ * parse, with directRead         48.2 ms/op
+ * </pre>
+ * Runs on that VM differed by up to 25%, so none of these differences are clear wins. {@code directRead} is still
+ * worth it for skipping byte order marks.
+ */
+public final class ReadBenchmark {
+    private ReadBenchmark() { }
+
+    private static final int WARMUP_ROUNDS = 10, ROUNDS = 15, OPS_PER_ROUND = 10;
+
+    @FunctionalInterface
+    private interface Op {
+        Object run() throws Exception;
+    }
+
+    // keeps the JIT from dropping results
+    private static volatile Object sink;
+
+    public static void main(String[] args) throws Exception {
+        DirectReadGsonConfig config = new DirectReadGsonConfig();
+        config.text = "unicode \u00e9\u4e2d\ud83d\ude00";
+        for (int i = 0; i < 100_000; i++)
+            config.lines.add("line " + i + " with some text \u00e9\u4e2d");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DirectReadGsonHandlerImpl.write(config, out);
+        byte[] contents = out.toByteArray();
+        System.out.printf(Locale.ROOT, "config is %.1f MB%n", contents.length / (1024.0 * 1024.0));
+
+        Path path = Files.createTempFile("speedbridge-config-benchmark", ".json5");
+        Files.write(path, contents);
+        char[] buf = new char[8192];
+        try {
+            // how the generated readers used to read files, in small reads straight from the file
+            run("file, streamed", () -> {
+                try (Reader reader = new InputStreamReader(Files.newInputStream(path), StandardCharsets.UTF_8)) {
+                    return drain(reader, buf);
+                }
+            });
+            // how storages read them now
+            run("file, read in one pass", () -> {
+                try (Reader reader = FileContents.newReader(Files.readAllBytes(path))) {
+                    return drain(reader, buf);
+                }
+            });
+        } finally {
+            Files.delete(path);
+        }
+        run("decode, InputStreamReader", () -> {
+            try (Reader reader = new InputStreamReader(new ByteArrayInputStream(contents), StandardCharsets.UTF_8)) {
+                return drain(reader, buf);
+            }
+        });
+        run("decode, FileContents", () -> {
+            try (Reader reader = FileContents.newReader(contents)) {
+                return drain(reader, buf);
+            }
+        });
+        run("parse, without directRead", () -> DirectReadPlainHandlerImpl.read(contents));
+        run("parse, with directRead", () -> DirectReadGsonHandlerImpl.read(contents));
+    }
+
+    private static void run(String name, Op op) throws Exception {
+        for (int i = 0; i < WARMUP_ROUNDS; i++)
+            round(op);
+        double[] rounds = new double[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++)
+            rounds[i] = round(op);
+        Arrays.sort(rounds);
+        System.out.printf(Locale.ROOT, "%-30s %5.1f ms/op%n", name, rounds[ROUNDS / 2]);
+    }
+
+    private static double round(Op op) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < OPS_PER_ROUND; i++)
+            sink = op.run();
+        return (System.nanoTime() - start) / 1e6 / OPS_PER_ROUND;
+    }
+
+    private static Object drain(Reader reader, char[] buf) throws Exception {
+        long total = 0;
+        int read;
+        while ((read = reader.read(buf)) >= 0)
+            total += read;
+        return total;
+    }
+}
@@ -0,0 +1,15 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.*;
+
+import java.util.*;
+
+@Config(name = "size_hint_native", handlerInterface = "SizeHintNativeHandler",
+        components = @Component(value = "speedbridge-config:serializer", params = "provider=speedbridge-config:native"))
+public class SizeHintNativeConfig {
+    public List<Integer> small = new ArrayList<>();
+    public List<Integer> large = new ArrayList<>();
+    public String[] strings = new String[0];
+    public Map<String, Integer> map = new HashMap<>();
+    public List<List<String>> nested = new ArrayList<>();
+}
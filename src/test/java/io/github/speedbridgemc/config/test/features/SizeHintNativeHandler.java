@@ -0,0 +1,3 @@
+package io.github.speedbridgemc.config.test.features;
+
+public interface SizeHintNativeHandler extends FeatureHandler<SizeHintNativeConfig> { }
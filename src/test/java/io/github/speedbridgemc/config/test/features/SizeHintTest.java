@@ -0,0 +1,105 @@
+package io.github.speedbridgemc.config.test.features;
+
+import java.lang.reflect.Field;
+import java.util.*;
+
+import static io.github.speedbridgemc.config.test.features.FeatureTests.*;
+
+final class SizeHintTest {
+    private SizeHintTest() { }
+
+    static void run() throws Exception {
+        // growing, repeating (an exact hint) and shrinking sizes must all read back exactly
+        int[] sizes = { 0, 3, 3, 40, 40, 7, 0, 100 };
+
+        SizeHintGsonHandler gson = new SizeHintGsonHandlerImpl();
+        for (int size : sizes) {
+            fill(size, gson.get().small, gson.get().large, gson.get().map, gson.get().nested);
+            gson.get().strings = strings(size);
+            gson.save();
+            checkHints("gson", SizeHintGsonHandlerImpl.class, "sizeHintGsonConfig", size);
+            SizeHintGsonConfig saved = gson.get();
+            gson.load();
+            check(gson.get() != saved, "gson config wasn't reloaded");
+            checkSame("gson", size, saved.small, saved.large, saved.strings, saved.map, saved.nested,
+                    gson.get().small, gson.get().large, gson.get().strings, gson.get().map, gson.get().nested);
+            checkHints("gson", SizeHintGsonHandlerImpl.class, "sizeHintGsonConfig", size);
+        }
+
+        SizeHintNativeHandler json5 = new SizeHintNativeHandlerImpl();
+        for (int size : sizes) {
+            fill(size, json5.get().small, json5.get().large, json5.get().map, json5.get().nested);
+            json5.get().strings = strings(size);
+            json5.save();
+            SizeHintNativeConfig saved = json5.get();
+            json5.load();
+            check(json5.get() != saved, "native config wasn't reloaded");
+            checkSame("native", size, saved.small, saved.large, saved.strings, saved.map, saved.nested,
+                    json5.get().small, json5.get().large, json5.get().strings, json5.get().map, json5.get().nested);
+            checkHints("native", SizeHintNativeHandlerImpl.class, "sizeHintNativeConfig", size);
+        }
+
+        SizeHintBinaryHandler binary = new SizeHintBinaryHandlerImpl();
+        for (int size : sizes) {
+            fill(size, binary.get().small, binary.get().large, binary.get().map, binary.get().nested);
+            binary.get().strings = strings(size);
+            binary.save();
+            SizeHintBinaryConfig saved = binary.get();
+            binary.load();
+            check(binary.get() != saved, "binary config wasn't reloaded");
+            checkSame("binary", size, saved.small, saved.large, saved.strings, saved.map, saved.nested,
+                    binary.get().small, binary.get().large, binary.get().strings, binary.get().map, binary.get().nested);
+            checkHints("binary", SizeHintBinaryHandlerImpl.class, "sizeHintBinaryConfig", size);
+        }
+    }
+
+    private static void fill(int size, List<Integer> small, List<Integer> large, Map<String, Integer> map,
+                             List<List<String>> nested) {
+        small.clear();
+        large.clear();
+        map.clear();
+        nested.clear();
+        for (int i = 0; i < size; i++) {
+            small.add(i);
+            map.put("key " + i, i);
+            nested.add(new ArrayList<>(Arrays.asList(strings(i % 4))));
+        }
+        // ten times as large, so the two lists can't share a hint
+        for (int i = 0; i < size * 10; i++)
+            large.add(-i);
+    }
+
+    private static String[] strings(int size) {
+        String[] strings = new String[size];
+        for (int i = 0; i < size; i++)
+            strings[i] = "s" + i;
+        return strings;
+    }
+
+    private static void checkSame(String provider, int size, List<Integer> small, List<Integer> large, String[] strings,
+                                  Map<String, Integer> map, List<List<String>> nested,
+                                  List<Integer> loadedSmall, List<Integer> loadedLarge, String[] loadedStrings,
+                                  Map<String, Integer> loadedMap, List<List<String>> loadedNested) {
+        String suffix = " (" + provider + ", size " + size + ")";
+        checkEquals(small, loadedSmall, "small" + suffix);
+        checkEquals(large, loadedLarge, "large" + suffix);
+        checkArrayEquals(strings, loadedStrings, "strings" + suffix);
+        checkEquals(map, loadedMap, "map" + suffix);
+        checkEquals(nested, loadedNested, "nested" + suffix);
+    }
+
+    // hints are private static fields of the generated handler, one per field
+    private static void checkHints(String provider, Class<?> handlerClass, String prefix, int size) throws Exception {
+        String suffix = " (" + provider + ", size " + size + ")";
+        checkEquals(size, hint(handlerClass, prefix + "SmallSizeHint"), "hint of small" + suffix);
+        checkEquals(size * 10, hint(handlerClass, prefix + "LargeSizeHint"), "hint of large" + suffix);
+        checkEquals(size, hint(handlerClass, prefix + "StringsSizeHint"), "hint of strings" + suffix);
+        checkEquals(size, hint(handlerClass, prefix + "MapSizeHint"), "hint of map" + suffix);
+    }
+
+    private static int hint(Class<?> handlerClass, String name) throws Exception {
+        Field field = handlerClass.getDeclaredField(name);
+        field.setAccessible(true);
+        return field.getInt(null);
+    }
+}
@@ -0,0 +1,8 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.ConfigSnapshot;
+import org.jetbrains.annotations.NotNull;
+
+public interface SnapshotHandler extends FeatureHandler<SnapshotConfig> {
+    @NotNull ConfigSnapshot<SnapshotConfig> snapshot();
+}
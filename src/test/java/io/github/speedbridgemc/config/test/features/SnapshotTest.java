@@ -0,0 +1,58 @@
+package io.github.speedbridgemc.config.test.features;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static io.github.speedbridgemc.config.test.features.FeatureTests.*;
+
+final class SnapshotTest {
+    private SnapshotTest() { }
+
+    static void run() throws Exception {
+        SnapshotHandler handler = new SnapshotHandlerImpl();
+        check(handler.snapshot() != null, "no snapshot after eager load");
+
+        SnapshotConfig config = new SnapshotConfig();
+        config.tags.put("k", new ArrayList<>(Arrays.asList("a", "b")));
+        handler.set(config);
+        SnapshotConfigSnapshot snapshot = (SnapshotConfigSnapshot) handler.snapshot();
+
+        // changing the live config must not leak into the snapshot
+        config.ints[0] = 99;
+        config.grid[1][0] = 99;
+        config.inner.label = "mutated";
+        config.inner.child.id = 99;
+        config.tags.get("k").add("c");
+        checkEquals(1, snapshot.ints(0), "array element");
+        checkEquals(2, snapshot.grid(1)[0], "nested array element");
+        checkEquals("inner", snapshot.inner().label(), "nested field");
+        checkEquals(3L, snapshot.inner().child().id(), "deeply nested field");
+        checkEquals(2, snapshot.tags().get("k").size(), "nested list size");
+
+        int[] ints = snapshot.ints();
+        ints[0] = 77;
+        checkEquals(1, snapshot.ints(0), "array accessor didn't copy");
+        checkEquals(3, snapshot.intsLength(), "array length");
+        checkThrows(UnsupportedOperationException.class, () -> snapshot.inners().add(null), "list is writable");
+        checkThrows(UnsupportedOperationException.class, () -> snapshot.tags().get("k").add("x"), "nested list is writable");
+        checkThrows(UnsupportedOperationException.class, () -> snapshot.tags().remove("k"), "map is writable");
+
+        SnapshotConfig thawed = snapshot.thaw();
+        check(thawed != config && thawed.inner.child != null, "thaw() isn't deep");
+        checkEquals(2, thawed.grid[1][0], "thawed nested array element");
+        checkEquals(Arrays.asList("a", "b"), thawed.tags.get("k"), "thawed nested list");
+        thawed.tags.get("k").add("d");
+        checkEquals(2, snapshot.tags().get("k").size(), "thawed list shares state with snapshot");
+
+        SnapshotConfigSnapshot refrozen = new SnapshotConfigSnapshot(snapshot.thaw());
+        checkEquals(snapshot, refrozen, "snapshots of equal configs");
+        checkEquals(snapshot.hashCode(), refrozen.hashCode(), "hash codes of equal snapshots");
+
+        handler.set(snapshot.thaw());
+        check(handler.snapshot() != snapshot, "set() didn't publish a new snapshot");
+        checkEquals(snapshot, handler.snapshot(), "snapshot of thawed config");
+        handler.save();
+        handler.load();
+        checkEquals(snapshot, handler.snapshot(), "snapshot after save/load round trip");
+    }
+}
@@ -0,0 +1,17 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.*;
+
+import java.util.*;
+
+@Config(name = "storage", handlerInterface = "StorageHandler",
+        components = {
+                @Component(value = "speedbridge-config:serializer", params = "provider=speedbridge-config:gson"),
+                @Component("speedbridge-config:validator")
+        })
+public class StorageConfig {
+    @IntegerRange(min = 0, max = 100, maxMode = RangeMode.INCLUSIVE, mode = EnforceMode.ERROR)
+    public int value = 5;
+    public String text = "text";
+    public List<String> lines = new ArrayList<>();
+}
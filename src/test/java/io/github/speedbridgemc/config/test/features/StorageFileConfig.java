@@ -0,0 +1,11 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.*;
+
+@Config(name = "storage_file", handlerInterface = "StorageFileHandler",
+        components = @Component(value = "speedbridge-config:serializer",
+                params = { "provider=speedbridge-config:native", "durability=fsync", "options=+journal,+binarySnapshot" }))
+public class StorageFileConfig {
+    public int value = 5;
+    public String text = "text";
+}
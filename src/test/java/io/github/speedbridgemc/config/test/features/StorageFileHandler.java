@@ -0,0 +1,9 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.storage.ConfigStorage;
+
+public interface StorageFileHandler extends FeatureHandler<StorageFileConfig> {
+    default ConfigStorage storage() {
+        return StorageTest.storage;
+    }
+}
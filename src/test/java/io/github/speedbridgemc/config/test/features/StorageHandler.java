@@ -0,0 +1,9 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.storage.ConfigStorage;
+
+public interface StorageHandler extends FeatureHandler<StorageConfig> {
+    default ConfigStorage storage() {
+        return StorageTest.storage;
+    }
+}
@@ -0,0 +1,10 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.*;
+
+@Config(name = "storage_native", handlerInterface = "StorageNativeHandler",
+        components = @Component(value = "speedbridge-config:serializer", params = "provider=speedbridge-config:native"))
+public class StorageNativeConfig {
+    public int value = 5;
+    public String text = "text";
+}
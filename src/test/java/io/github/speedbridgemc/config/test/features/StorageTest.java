@@ -0,0 +1,240 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.serialize.ConfigBackups;
+import io.github.speedbridgemc.config.serialize.ConfigJournal;
+import io.github.speedbridgemc.config.serialize.binary.BinarySnapshot;
+import io.github.speedbridgemc.config.storage.BundleConfigStorage;
+import io.github.speedbridgemc.config.storage.ConfigStorage;
+import io.github.speedbridgemc.config.storage.Durability;
+import io.github.speedbridgemc.config.storage.FileConfigStorage;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.github.speedbridgemc.config.test.features.FeatureTests.*;
+
+final class StorageTest {
+    private StorageTest() { }
+
+    // handlers get their storage when they're created
+    static volatile ConfigStorage storage;
+
+    static void run() throws Exception {
+        checkBundle();
+        checkTornRecord();
+        checkCompaction();
+        checkFiles();
+        checkFileFeatures();
+        checkParseError();
+    }
+
+    private static void checkBundle() throws Exception {
+        Path file = configDir().resolve("bundle.sbcb");
+        try (BundleConfigStorage bundle = new BundleConfigStorage(file)) {
+            check(!Files.exists(file), "bundle was created before it was needed");
+            storage = bundle;
+            StorageHandler handler = new StorageHandlerImpl();
+            StorageNativeHandler nativeHandler = new StorageNativeHandlerImpl();
+            handler.load();
+            nativeHandler.load();
+            checkEquals(5, handler.get().value, "default value");
+            handler.get().value = 7;
+            handler.get().lines.add("line");
+            handler.save();
+            nativeHandler.get().text = "native";
+            nativeHandler.save();
+            check(Files.exists(file), "bundle wasn't created");
+            check(!Files.exists(handler.resolvePath("storage")), "config was saved to its own file");
+        }
+
+        // every config is in the one file
+        try (BundleConfigStorage bundle = new BundleConfigStorage(file)) {
+            storage = bundle;
+            StorageHandler handler = new StorageHandlerImpl();
+            StorageNativeHandler nativeHandler = new StorageNativeHandlerImpl();
+            handler.load();
+            nativeHandler.load();
+            checkEquals(7, handler.get().value, "value from bundle");
+            checkEquals(Collections.singletonList("line"), handler.get().lines, "list from bundle");
+            checkEquals("native", nativeHandler.get().text, "other config from bundle");
+
+            bundle.delete("storage_native");
+            checkEquals(null, bundle.read("storage_native"), "deleted config");
+            nativeHandler.load();
+            checkEquals("text", nativeHandler.get().text, "deleted config wasn't reset");
+
+            // unreadable and invalid configs are backed up into the storage itself
+            bundle.write("storage", "{ \"value\": ".getBytes(StandardCharsets.UTF_8));
+            handler.load();
+            checkEquals(5, handler.get().value, "unreadable config wasn't reset");
+            check(bundle.read("storage-BACKUPS") != null, "unreadable config wasn't backed up");
+            bundle.write("storage", "{ \"value\": 500, \"text\": \"invalid\", \"lines\": [] }".getBytes(StandardCharsets.UTF_8));
+            handler.load();
+            checkEquals(5, handler.get().value, "invalid config wasn't reset");
+            String[] backups = new String(bundle.read("storage-BACKUPS"), StandardCharsets.UTF_8).split("\n");
+            checkEquals(2, backups.length, "backups");
+            checkArrayEquals("{ \"value\": ".getBytes(StandardCharsets.UTF_8),
+                    ConfigBackups.decompress(bundle.read(backups[0])), "backup");
+        }
+
+        BundleConfigStorage closed = new BundleConfigStorage(file);
+        closed.close();
+        checkThrows(IOException.class, () -> closed.read("storage"), "closed storage was read");
+    }
+
+    private static void checkTornRecord() throws Exception {
+        Path file = configDir().resolve("torn.sbcb");
+        try (BundleConfigStorage bundle = new BundleConfigStorage(file)) {
+            bundle.write("a", bytes("first"));
+            bundle.write("b", bytes("other"));
+            bundle.write("a", bytes("second"));
+        }
+        // as if we crashed while writing the last record
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+        try (BundleConfigStorage bundle = new BundleConfigStorage(file)) {
+            checkArrayEquals(bytes("first"), bundle.read("a"), "torn record wasn't ignored");
+            checkArrayEquals(bytes("other"), bundle.read("b"), "record before torn one");
+            // new records replace the torn one
+            bundle.write("a", bytes("third"));
+        }
+        try (BundleConfigStorage bundle = new BundleConfigStorage(file)) {
+            checkArrayEquals(bytes("third"), bundle.read("a"), "record written after torn one");
+            checkArrayEquals(bytes("other"), bundle.read("b"), "record before torn one");
+        }
+        // trailing garbage is ignored too
+        Files.write(file, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16 }, StandardOpenOption.APPEND);
+        try (BundleConfigStorage bundle = new BundleConfigStorage(file)) {
+            checkArrayEquals(bytes("third"), bundle.read("a"), "record before garbage");
+        }
+    }
+
+    private static void checkCompaction() throws Exception {
+        Path file = configDir().resolve("compact.sbcb");
+        byte[] contents = new byte[40 * 1024];
+        try (BundleConfigStorage bundle = new BundleConfigStorage(file)) {
+            bundle.write("kept", bytes("kept"));
+            for (int i = 0; i < 30; i++) {
+                Arrays.fill(contents, (byte) ('a' + i % 26));
+                bundle.write("big", contents);
+            }
+            // outdated records never take up more than the live ones, past the minimum size
+            check(Files.size(file) < 400 * 1024, "bundle wasn't compacted: " + Files.size(file) + " bytes");
+            bundle.compact();
+            check(Files.size(file) < contents.length + 1024, "bundle wasn't compacted: " + Files.size(file) + " bytes");
+            checkArrayEquals(contents, bundle.read("big"), "compacted record");
+            bundle.write("kept", bytes("changed"));
+        }
+        try (BundleConfigStorage bundle = new BundleConfigStorage(file)) {
+            checkArrayEquals(contents, bundle.read("big"), "compacted record after reopening");
+            checkArrayEquals(bytes("changed"), bundle.read("kept"), "record written after compacting");
+        }
+    }
+
+    private static void checkFiles() throws Exception {
+        Path dir = configDir().resolve("storage");
+        AtomicInteger writes = new AtomicInteger();
+        FileConfigStorage files = FileConfigStorage.inDirectory(dir, ".json5");
+        storage = new ConfigStorage() {
+            @Override
+            public byte[] read(String name) throws IOException {
+                return files.read(name);
+            }
+
+            @Override
+            public void write(String name, byte[] contents) throws IOException {
+                writes.incrementAndGet();
+                files.write(name, contents);
+            }
+
+            @Override
+            public void delete(String name) throws IOException {
+                files.delete(name);
+            }
+
+            @Override
+            public String getLocation(String name) {
+                return files.getLocation(name);
+            }
+        };
+        StorageNativeHandler handler = new StorageNativeHandlerImpl();
+        // loading a missing config saves the defaults
+        handler.load();
+        checkEquals(1, writes.get(), "writes");
+        handler.get().value = 9;
+        handler.save();
+        checkEquals(2, writes.get(), "writes");
+        check(Files.exists(dir.resolve("storage_native.json5")), "config file wasn't created");
+        handler.save();
+        checkEquals(2, writes.get(), "unchanged config was written again");
+
+        // loading always parses, so in-memory changes don't survive it
+        handler.get().value = 10;
+        handler.load();
+        checkEquals(9, handler.get().value, "value after load");
+        handler.save();
+        checkEquals(2, writes.get(), "loaded config was written again");
+    }
+
+    private static void checkFileFeatures() throws Exception {
+        // storages that keep each config in its own file get the features that need one
+        Path dir = configDir().resolve("storage_file");
+        Path path = dir.resolve("storage_file.json5");
+        storage = FileConfigStorage.inDirectory(dir, ".json5");
+        StorageFileHandler handler = new StorageFileHandlerImpl();
+        handler.load();
+        handler.get().value = 8;
+        handler.save();
+        handler.get().value = 9;
+        handler.save();
+        check(Files.exists(ConfigJournal.resolveJournalPath(path)), "journal wasn't started");
+        check(Files.exists(BinarySnapshot.resolveSnapshotPath(path)), "binary snapshot wasn't written");
+        StorageFileHandler reloaded = new StorageFileHandlerImpl();
+        reloaded.load();
+        checkEquals(9, reloaded.get().value, "value from journal");
+
+        // other storages don't, and work without them
+        Path file = configDir().resolve("storage_file.sbcb");
+        try (BundleConfigStorage bundle = new BundleConfigStorage(file, Durability.FSYNC)) {
+            storage = bundle;
+            handler = new StorageFileHandlerImpl();
+            handler.load();
+            handler.get().value = 8;
+            handler.save();
+            handler.get().value = 9;
+            handler.save();
+        }
+        check(!Files.exists(ConfigJournal.resolveJournalPath(file)), "journal was started for bundle");
+        try (BundleConfigStorage bundle = new BundleConfigStorage(file)) {
+            storage = bundle;
+            handler = new StorageFileHandlerImpl();
+            handler.load();
+            checkEquals(9, handler.get().value, "value from bundle");
+        }
+    }
+
+    private static void checkParseError() throws Exception {
+        Path path = configDir().resolve("broken.json5");
+        Files.write(path, bytes("{ \"value\": "));
+        IOException e = null;
+        try {
+            StorageHandlerImpl.read(path);
+        } catch (IOException ex) {
+            e = ex;
+        }
+        check(e != null, "broken file was read");
+        check(e.getMessage().contains(path.toString()), "message doesn't name the file: " + e.getMessage());
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
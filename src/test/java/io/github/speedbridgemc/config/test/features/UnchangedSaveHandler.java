@@ -0,0 +1,18 @@
+package io.github.speedbridgemc.config.test.features;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+public interface UnchangedSaveHandler extends FeatureHandler<UnchangedSaveConfig> {
+    AtomicInteger SAVES = new AtomicInteger();
+
+    void addListener(@NotNull Consumer<UnchangedSaveConfig> listener);
+    void removeListener(@NotNull Consumer<UnchangedSaveConfig> listener);
+    void notifyChanged(@NotNull UnchangedSaveConfig config);
+
+    default void postSave(@NotNull UnchangedSaveConfig config) {
+        SAVES.incrementAndGet();
+    }
+}
@@ -0,0 +1,50 @@
+package io.github.speedbridgemc.config.test.features;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.github.speedbridgemc.config.test.features.FeatureTests.*;
+
+final class UnchangedSaveTest {
+    private UnchangedSaveTest() { }
+
+    static void run() throws Exception {
+        Path path = configDir().resolve("unchanged_save.json5");
+        UnchangedSaveHandler handler = new UnchangedSaveHandlerImpl();
+        AtomicInteger notifications = new AtomicInteger();
+        handler.addListener(config -> notifications.incrementAndGet());
+        handler.get().name = "changed";
+        handler.save();
+        FileTime modified = Files.getLastModifiedTime(path);
+        int saves = UnchangedSaveHandler.SAVES.get();
+        notifications.set(0);
+
+        Thread.sleep(20);
+        handler.save();
+        checkEquals(modified, Files.getLastModifiedTime(path), "modification time after unchanged save");
+        checkEquals(saves, UnchangedSaveHandler.SAVES.get(), "postSave calls after unchanged save");
+        checkEquals(0, notifications.get(), "notifications after unchanged save");
+
+        // a loaded file is just as up to date as a saved one
+        handler.load();
+        notifications.set(0);
+        handler.save();
+        checkEquals(modified, Files.getLastModifiedTime(path), "modification time after loading and saving");
+        checkEquals(0, notifications.get(), "notifications after loading and saving");
+
+        handler.get().value = 6;
+        handler.save();
+        checkEquals(6, new UnchangedSaveHandlerImpl().get().value, "value after changed save");
+        checkEquals(saves + 1, UnchangedSaveHandler.SAVES.get(), "postSave calls after changed save");
+        checkEquals(1, notifications.get(), "notifications after changed save");
+
+        // the same config still has to be written if the file was changed behind the handler's back
+        Files.write(path, "{ \"value\": 7, \"name\": \"external\" }".getBytes(StandardCharsets.UTF_8));
+        handler.save();
+        checkEquals(6, new UnchangedSaveHandlerImpl().get().value, "value after saving over external edit");
+        checkEquals(saves + 2, UnchangedSaveHandler.SAVES.get(), "postSave calls after saving over external edit");
+    }
+}
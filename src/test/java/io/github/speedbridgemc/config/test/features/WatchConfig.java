@@ -0,0 +1,13 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.*;
+
+@Config(name = "watch", handlerInterface = "WatchHandler",
+        components = {
+            @Component(value = "speedbridge-config:serializer",
+                    params = { "provider=speedbridge-config:gson", "options=+watchFileForChanges" }),
+            @Component("speedbridge-config:listener")
+        })
+public class WatchConfig {
+    public int value = 5;
+}
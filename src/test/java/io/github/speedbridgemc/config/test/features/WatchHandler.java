@@ -0,0 +1,13 @@
+package io.github.speedbridgemc.config.test.features;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.Consumer;
+
+public interface WatchHandler extends FeatureHandler<WatchConfig> {
+    void addListener(@NotNull Consumer<WatchConfig> listener);
+    void removeListener(@NotNull Consumer<WatchConfig> listener);
+    void notifyChanged(@NotNull WatchConfig config);
+    void startWatching();
+    void stopWatching();
+}
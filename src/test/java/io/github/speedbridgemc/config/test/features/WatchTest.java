@@ -0,0 +1,149 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.serialize.FileWatcherHub;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.github.speedbridgemc.config.test.features.FeatureTests.*;
+
+final class WatchTest {
+    private WatchTest() { }
+
+    static final String WATCHER_THREAD_NAME = "Speedbridge Config file watcher";
+
+    static void run() throws Exception {
+        Path path = configDir().resolve("watch.json5");
+        WatchHandler first = new WatchHandlerImpl(), second = new WatchHandlerImpl();
+        first.get();
+        second.get();
+        checkEquals(1L, watcherThreads(), "watcher threads for two handlers");
+
+        AtomicInteger notifications = new AtomicInteger();
+        first.addListener(config -> notifications.incrementAndGet());
+        write(path, "{ \"value\": 61 }");
+        check(await(5000, () -> first.get().value == 61 && second.get().value == 61),
+                "handlers didn't reload from shared watcher");
+
+        // only events for the config file itself may trigger a reload
+        notifications.set(0);
+        write(configDir().resolve("unrelated.json5"), "{ \"value\": 62 }");
+        awaitWatcher(configDir());
+        checkEquals(61, first.get().value, "value after unrelated file changed");
+        checkEquals(0, notifications.get(), "notifications after unrelated file changed");
+
+        // the dispatcher keeps running until the last registration is cancelled
+        first.stopWatching();
+        write(path, "{ \"value\": 63 }");
+        check(await(5000, () -> second.get().value == 63), "watching handler didn't reload");
+        awaitWatcher(configDir());
+        checkEquals(61, first.get().value, "value of handler that stopped watching");
+        second.stopWatching();
+        check(await(5000, () -> watcherThreads() == 0), "watcher thread didn't exit");
+
+        first.startWatching();
+        checkEquals(1L, watcherThreads(), "watcher threads after restarting");
+        write(path, "{ \"value\": 64 }");
+        check(await(5000, () -> first.get().value == 64), "restarted handler didn't reload");
+
+        // the file might be caught halfway through being written, so a reload that can't parse it mustn't reset it
+        write(path, "{ \"value\":");
+        awaitWatcher(configDir());
+        checkEquals(64, first.get().value, "value after reloading unparseable file");
+        checkEquals("{ \"value\":", new String(Files.readAllBytes(path), StandardCharsets.UTF_8),
+                "file after reloading unparseable file");
+        write(path, "{ \"value\": 66 }");
+        check(await(5000, () -> first.get().value == 66), "handler didn't reload once file was written");
+        first.stopWatching();
+
+        checkAtomicReload();
+        checkSymlinkedDirectory();
+    }
+
+    // atomic handlers reload off the watcher thread, so a slow load can't hold up every other watched config
+    private static void checkAtomicReload() throws Exception {
+        Path path = configDir().resolve("atomic_watch.json5");
+        AtomicWatchHandler handler = new AtomicWatchHandlerImpl();
+        Set<String> loadedOn = ConcurrentHashMap.newKeySet();
+        handler.addListener(config -> loadedOn.add(Thread.currentThread().getName()));
+        write(path, "{ \"value\": 65 }");
+        check(await(5000, () -> handler.get().value == 65), "atomic handler didn't reload");
+        checkEquals(Collections.singleton("Speedbridge Config writer"), loadedOn, "threads atomic handler reloaded on");
+        handler.stopWatching();
+    }
+
+    // two paths that reach the same directory through a symlink share one watch key, so they must share a directory
+    private static void checkSymlinkedDirectory() throws Exception {
+        Path dir = Files.createDirectory(configDir().resolve("real"));
+        Path link;
+        try {
+            link = Files.createSymbolicLink(configDir().resolve("link"), dir);
+        } catch (UnsupportedOperationException | IOException e) {
+            // no symlinks here, nothing to alias
+            return;
+        }
+        write(dir.resolve("aliased.json5"), "{}");
+        CountDownLatch direct = new CountDownLatch(1), linked = new CountDownLatch(1);
+        FileWatcherHub.Registration directRegistration = FileWatcherHub.register(dir.resolve("aliased.json5"), listener(direct));
+        FileWatcherHub.Registration linkedRegistration = FileWatcherHub.register(link.resolve("aliased.json5"), listener(linked));
+        write(dir.resolve("aliased.json5"), "{ \"value\": 1 }");
+        check(direct.await(5, TimeUnit.SECONDS), "registration through real directory wasn't notified");
+        check(linked.await(5, TimeUnit.SECONDS), "registration through symlink wasn't notified");
+        linkedRegistration.cancel();
+        // cancelling one must not stop the other
+        CountDownLatch directAgain = new CountDownLatch(1);
+        FileWatcherHub.Registration againRegistration = FileWatcherHub.register(dir.resolve("aliased.json5"), listener(directAgain));
+        write(dir.resolve("aliased.json5"), "{ \"value\": 2 }");
+        check(directAgain.await(5, TimeUnit.SECONDS), "registration wasn't notified after symlinked one was cancelled");
+        directRegistration.cancel();
+        againRegistration.cancel();
+    }
+
+    private static FileWatcherHub.@NotNull Listener listener(@NotNull CountDownLatch latch) {
+        return new FileWatcherHub.Listener() {
+            @Override
+            public void fileChanged() {
+                latch.countDown();
+            }
+
+            @Override
+            public void watchFailed(@NotNull String message, @Nullable Exception e) { }
+        };
+    }
+
+    // the watcher reports changes one at a time and in order, so once a later change in the same directory
+    // has been reported, every earlier one has been handled
+    static void awaitWatcher(@NotNull Path dir) throws Exception {
+        Path barrier = dir.resolve("watch_barrier");
+        write(barrier, "");
+        CountDownLatch latch = new CountDownLatch(1);
+        FileWatcherHub.Registration registration = FileWatcherHub.register(barrier, listener(latch));
+        try {
+            write(barrier, "barrier");
+            check(latch.await(5, TimeUnit.SECONDS), "file watcher didn't catch up");
+        } finally {
+            registration.cancel();
+        }
+    }
+
+    static long watcherThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals(WATCHER_THREAD_NAME) && thread.isAlive())
+                .count();
+    }
+
+    // written in place, since handlers only watch for modifications
+    static void write(@NotNull Path path, @NotNull String contents) throws IOException {
+        Files.write(path, contents.getBytes(StandardCharsets.UTF_8));
+    }
+}
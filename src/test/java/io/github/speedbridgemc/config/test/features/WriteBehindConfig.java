@@ -0,0 +1,38 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.*;
+import io.github.speedbridgemc.config.serialize.Deserializer;
+import io.github.speedbridgemc.config.serialize.Serializer;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+@Config(name = "write_behind", handlerInterface = "WriteBehindHandler",
+        components = @Component(value = "speedbridge-config:serializer",
+                params = { "provider=speedbridge-config:custom", "options=+writeBehind",
+                        "write_behind_delay=200", "write_behind_max_delay=1000" }))
+public class WriteBehindConfig {
+    public int value = 5;
+    public String name = "default";
+
+    @Serializer
+    public static void serialize(WriteBehindConfig config, OutputStream out) throws IOException {
+        out.write((config.value + "\n" + config.name + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Deserializer
+    public static WriteBehindConfig deserialize(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        WriteBehindConfig config = new WriteBehindConfig();
+        String line = reader.readLine();
+        if (line == null)
+            throw new EOFException("Missing value");
+        try {
+            config.value = Integer.parseInt(line);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid value", e);
+        }
+        config.name = reader.readLine();
+        return config;
+    }
+}
@@ -0,0 +1,20 @@
+package io.github.speedbridgemc.config.test.features;
+
+import io.github.speedbridgemc.config.LogLevel;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+public interface WriteBehindHandler extends FeatureHandler<WriteBehindConfig>, AutoCloseable {
+    void flush();
+
+    @Override
+    void close();
+
+    @Override
+    default void log(@NotNull LogLevel level, @NotNull String msg, @Nullable Exception e) {
+        // logged once per write, right before the config file is written
+        if (msg.startsWith("Writing config to file"))
+            WriteBehindTest.written();
+        FeatureHandler.super.log(level, msg, e);
+    }
+}
@@ -0,0 +1,131 @@
+package io.github.speedbridgemc.config.test.features;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.github.speedbridgemc.config.test.features.FeatureTests.*;
+
+final class WriteBehindTest {
+    private WriteBehindTest() { }
+
+    private static final AtomicInteger WRITES = new AtomicInteger();
+    private static volatile CountDownLatch writeLatch = new CountDownLatch(0);
+
+    // called when a write starts - flush() then waits for it to finish
+    static void written() {
+        WRITES.incrementAndGet();
+        writeLatch.countDown();
+    }
+
+    static void run() throws Exception {
+        Path path = configDir().resolve("write_behind.json5");
+        WriteBehindHandler handler = new WriteBehindHandlerImpl();
+        handler.get();
+        handler.flush();
+
+        // a burst of saves is coalesced into one write of the last config
+        int writes = WRITES.get();
+        CountDownLatch written = expectWrite();
+        for (int i = 0; i < 50; i++) {
+            handler.set(config(i, "burst"));
+            handler.save();
+        }
+        checkEquals(writes, WRITES.get(), "writes right after burst");
+        check(written.await(5, TimeUnit.SECONDS), "burst was never written");
+        handler.flush();
+        checkEquals("49\nburst\n", contents(path), "contents after burst");
+        checkEquals(writes + 1, WRITES.get(), "writes after burst");
+
+        // save() serializes the config right away, so changes made after it aren't written
+        WriteBehindConfig config = config(50, "saved");
+        handler.set(config);
+        written = expectWrite();
+        handler.save();
+        config.value = 51;
+        config.name = "mutated";
+        check(written.await(5, TimeUnit.SECONDS), "save was never written");
+        handler.flush();
+        checkEquals("50\nsaved\n", contents(path), "contents after mutating saved config");
+
+        // saves that keep coming can only defer the write by the max delay
+        written = expectWrite();
+        long start = System.currentTimeMillis();
+        int value = 100;
+        while (written.getCount() > 0 && System.currentTimeMillis() - start < 5000) {
+            handler.set(config(value++, "stream"));
+            handler.save();
+            Thread.sleep(50);
+        }
+        check(written.getCount() == 0, "continuous saves were deferred past the max delay");
+        handler.flush();
+        check(contents(path).endsWith("\nstream\n"), "contents after continuous saves");
+
+        handler.set(config(88, "flushed"));
+        handler.save();
+        handler.flush();
+        checkEquals("88\nflushed\n", contents(path), "contents after flush()");
+
+        // load() drops pending saves, so they can't overwrite an edit made during the delay
+        handler.set(config(89, "pending"));
+        handler.save();
+        Files.write(path, "90\nexternal\n".getBytes(StandardCharsets.UTF_8));
+        writes = WRITES.get();
+        handler.load();
+        checkEquals(90, handler.get().value, "value after load()");
+        handler.flush();
+        checkEquals(writes, WRITES.get(), "writes after load()");
+        checkEquals("90\nexternal\n", contents(path), "contents after load()");
+
+        // interrupting the shared writer thread doesn't strand pending saves
+        written = expectWrite();
+        handler.set(config(92, "interrupted"));
+        handler.save();
+        for (Thread thread : writerThreads())
+            thread.interrupt();
+        check(written.await(5, TimeUnit.SECONDS), "save pending during interrupt was never written");
+        handler.flush();
+        checkEquals("92\ninterrupted\n", contents(path), "contents after interrupt");
+
+        // close() writes pending saves, and the shared writer thread stops once there's nothing left to write
+        handler.set(config(91, "closed"));
+        handler.save();
+        checkEquals(1, writerThreads().length, "writer threads after save()");
+        handler.close();
+        checkEquals("91\nclosed\n", contents(path), "contents after close()");
+        check(await(5000, () -> writerThreads().length == 0), "writer thread didn't stop after close()");
+    }
+
+    private static @NotNull CountDownLatch expectWrite() {
+        CountDownLatch latch = new CountDownLatch(1);
+        writeLatch = latch;
+        return latch;
+    }
+
+    private static @NotNull Thread @NotNull [] writerThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals("Speedbridge Config writer"))
+                .toArray(Thread[]::new);
+    }
+
+    private static @NotNull WriteBehindConfig config(int value, @NotNull String name) {
+        WriteBehindConfig config = new WriteBehindConfig();
+        config.value = value;
+        config.name = name;
+        return config;
+    }
+
+    private static @NotNull String contents(@NotNull Path path) {
+        try {
+            return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return "";
+        }
+    }
+}